@@ -2,6 +2,7 @@ plugins {
   id("qupath.common-conventions")
   id("qupath.publishing-conventions")
   `java-library`
+  alias(libs.plugins.jmh)
 }
 
 extra["moduleName"] = "qupath.core.processing"
@@ -20,4 +21,9 @@ dependencies {
   implementation(libs.guava)
   implementation(libs.commons.math)
   testImplementation(project.project(":qupath-core").sourceSets["test"].output)
-}
\ No newline at end of file
+}
+
+// Run benchmarks with gradlew :qupath-core-processing:jmh
+jmh {
+  jmhVersion = libs.versions.jmh
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ops;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import qupath.opencv.tools.OpenCVTools;
+
+import java.util.List;
+
+/**
+ * Compare applying pixelwise ops one at a time (using OpenCV where possible) with applying them
+ * in a single fused pass using {@link ImageOps.Core#sequential(ImageOp...)}.
+ * <p>
+ * The ops resemble the preprocessing commonly used before a pixel classifier or deep learning model.
+ * <p>
+ * Run with {@code gradlew :qupath-core-processing:jmh}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PixelwiseOpsBenchmark {
+
+	@Param({"512", "2048"})
+	public int size;
+
+	@Param({"1", "3"})
+	public int nChannels;
+
+	private List<ImageOp> ops;
+	private ImageOp opSequential;
+	private Mat mat;
+	private Mat matInput;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		opencv_core.setRNGSeed(42);
+		mat = new Mat(size, size, opencv_core.CV_32FC(nChannels), Scalar.all(10.0));
+		OpenCVTools.addNoise(mat, 0, 2.0);
+		ops = List.of(
+				ImageOps.Core.add(1.0),
+				ImageOps.Core.multiply(0.5),
+				ImageOps.Core.log(),
+				ImageOps.Normalize.sigmoid(),
+				ImageOps.Channels.mean()
+				);
+		opSequential = ImageOps.Core.sequential(ops);
+		matInput = new Mat();
+	}
+
+	@Setup(Level.Invocation)
+	public void resetInput() {
+		mat.copyTo(matInput);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mat.close();
+		matInput.close();
+	}
+
+	@Benchmark
+	public Mat opByOp() {
+		var output = matInput;
+		for (var op : ops)
+			output = op.apply(output);
+		return output;
+	}
+
+	@Benchmark
+	public Mat fused() {
+		return opSequential.apply(matInput);
+	}
+
+}
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.PixelCalibration;
+import qupath.lib.images.servers.TilePrefetcher;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.utils.ObjectMerger;
 import qupath.lib.objects.utils.ObjectProcessor;
@@ -33,7 +34,9 @@ import qupath.lib.objects.utils.Tiler;
 import qupath.lib.plugins.PathTask;
 import qupath.lib.plugins.TaskRunner;
 import qupath.lib.plugins.TaskRunnerUtils;
+import qupath.lib.regions.HilbertCurve;
 import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
 import qupath.lib.regions.Padding;
 import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.ROIs;
@@ -89,6 +92,8 @@ public class PixelProcessor<S, T, U> {
     private final Tiler tiler;
     private final ObjectProcessor objectProcessor;
 
+    private final boolean orderSpatially;
+
     private PixelProcessor(ImageSupplier<S> imageSupplier,
                           MaskSupplier<S, T> maskSupplier,
                           OutputHandler<S, T, U> outputHandler,
@@ -96,7 +101,8 @@ public class PixelProcessor<S, T, U> {
                           Tiler tiler,
                           ObjectProcessor objectProcessor,
                           Padding padding,
-                          DownsampleCalculator downsampleCalculator) {
+                          DownsampleCalculator downsampleCalculator,
+                          boolean orderSpatially) {
         Objects.requireNonNull(imageSupplier, "Image supplier cannot be null");
         Objects.requireNonNull(processor, "Processor cannot be null");
         if (downsampleCalculator == null)
@@ -109,6 +115,7 @@ public class PixelProcessor<S, T, U> {
         this.objectProcessor = objectProcessor;
         this.padding = padding;
         this.downsampleCalculator = downsampleCalculator;
+        this.orderSpatially = orderSpatially;
     }
 
     /**
@@ -142,11 +149,31 @@ public class PixelProcessor<S, T, U> {
      * @param pathObjects
      */
     private void processUntiled(TaskRunner runner, ImageData<BufferedImage> imageData, Collection<? extends PathObject> pathObjects) {
-        List<? extends Runnable> tasks = pathObjects.stream()
+        List<ProcessorTask> tasks = pathObjects.stream()
                 .distinct()
                 .map(pathObject -> new ProcessorTask(imageData, pathObject, processor, null))
                 .toList();
-        runner.runTasks(tasks);
+        runTasksWithPrefetching(runner, null, imageData, tasks);
+    }
+
+    /**
+     * Run tasks, while reading the tiles they need in advance.
+     * @param runner
+     * @param message optional message for the runner; may be null
+     * @param imageData
+     * @param tasks
+     */
+    private void runTasksWithPrefetching(TaskRunner runner, String message, ImageData<BufferedImage> imageData, List<ProcessorTask> tasks) {
+        if (orderSpatially)
+            tasks = HilbertCurve.sortByRegion(tasks, task -> task.request);
+        // Regions are usually requested in the same order as the tasks are submitted
+        var regions = tasks.stream().map(task -> task.request).toList();
+        try (var prefetcher = TilePrefetcher.create(imageData.getServer(), regions)) {
+            for (var task : tasks)
+                task.prefetcher = prefetcher;
+            prefetcher.start();
+            runner.runTasks(message, tasks);
+        }
     }
 
 
@@ -186,7 +213,7 @@ public class PixelProcessor<S, T, U> {
         }
         // Run the tasks
         String message = tasks.size() == 1 ? "Processing 1 tile" : "Processing " + tasks.size() + " tiles";
-        runner.runTasks(message, tasks);
+        runTasksWithPrefetching(runner, message, imageData, tasks);
 
         // Reassign the proxy objects to the parent
         // If merging is involved, this can be slow - so pass these as new tasks
@@ -239,6 +266,9 @@ public class PixelProcessor<S, T, U> {
         private final PathObject pathObject;
         private final PathObject parentProxy;
         private final Processor<S, T, U> processor;
+        private final RegionRequest request;
+
+        private TilePrefetcher prefetcher;
 
         private ProcessorTask(ImageData<BufferedImage> imageData, PathObject pathObject, Processor<S, T, U> processor,
                               PathObject parentProxy) {
@@ -246,6 +276,8 @@ public class PixelProcessor<S, T, U> {
             this.pathObject = pathObject;
             this.processor = processor;
             this.parentProxy = parentProxy;
+            // Use the proxy object, if available, otherwise use the path object
+            this.request = createRequest(imageData.getServer(), parentProxy != null ? parentProxy : pathObject);
         }
 
         @Override
@@ -255,13 +287,6 @@ public class PixelProcessor<S, T, U> {
                     logger.trace("Thread interrupted - skipping task for {}", pathObject);
                     return;
                 }
-                // Use the proxy object, if available, otherwise use the path object
-                RegionRequest request;
-                if (parentProxy != null) {
-                    request = createRequest(imageData.getServer(), parentProxy);
-                } else {
-                    request = createRequest(imageData.getServer(), pathObject);
-                }
                 Parameters.Builder<S, T> builder = Parameters.builder();
                 Parameters<S, T> params = builder.imageData(imageData)
                         .imageFunction(imageSupplier)
@@ -275,6 +300,9 @@ public class PixelProcessor<S, T, U> {
                     outputHandler.handleOutput(params, output);
             } catch (Exception e) {
                 logger.error("Error processing object", e);
+            } finally {
+                if (prefetcher != null)
+                    prefetcher.regionComplete(request);
             }
         }
 
@@ -294,6 +322,11 @@ public class PixelProcessor<S, T, U> {
         public String getLastResultsDescription() {
             return "Completed " + pathObject;
         }
+
+        @Override
+        public ImageRegion getRegion() {
+            return request;
+        }
     }
 
     /**
@@ -324,6 +357,7 @@ public class PixelProcessor<S, T, U> {
         private ObjectProcessor objectProcessor;
         private Padding padding = Padding.empty();
         private DownsampleCalculator downsampleCalculator = DownsampleCalculator.createForDownsample(1.0);
+        private boolean orderSpatially = false;
 
         /**
          * Set the image supplier. This is required if the processor is to have access to pixels.
@@ -471,6 +505,21 @@ public class PixelProcessor<S, T, U> {
             return postProcess(ObjectMerger.createSharedTileBoundaryMerger(threshold));
         }
 
+        /**
+         * Set whether regions should be processed in an order that keeps nearby regions together, rather than the
+         * order in which the objects and tiles are provided.
+         * This can improve performance when regions are padded or overlapping, because neighboring image tiles are
+         * more likely to still be cached when they are needed again.
+         * @param doOrder
+         * @return
+         * @since v0.8.0
+         * @see HilbertCurve#sortByRegion(Collection, java.util.function.Function)
+         */
+        public Builder<S, T, U> orderSpatially(boolean doOrder) {
+            this.orderSpatially = doOrder;
+            return this;
+        }
+
         /**
          * Build a {@link PixelProcessor} from the current state of the builder.
          * This will throw an exception if any of the required components are missing.
@@ -478,7 +527,7 @@ public class PixelProcessor<S, T, U> {
          */
         public PixelProcessor<S, T, U> build() {
             return new PixelProcessor<>(imageSupplier, maskSupplier, outputHandler, processor,
-                    tiler, objectProcessor, padding, downsampleCalculator);
+                    tiler, objectProcessor, padding, downsampleCalculator, orderSpatially);
         }
 
 
@@ -0,0 +1,450 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.dnn;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.io.UriResource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link DnnModel} that combines single-input predictions requested concurrently from different threads into batches.
+ * <p>
+ * Each request is added to a queue. A dispatcher thread takes requests from the queue until either the maximum batch size
+ * is reached, or the maximum delay since the first request in the batch has elapsed.
+ * The inputs are then converted into a single blob (with the batch size as the first dimension) using the
+ * {@link BlobFunction} of the wrapped model, passed to its {@link PredictionFunction}, and the outputs returned to
+ * each caller.
+ * <p>
+ * Only inputs with the same name, size and type can be combined in a batch.
+ * Predictions that require multiple inputs are passed directly to the wrapped model.
+ * <p>
+ * This is most useful where the model is called from many threads at once, each handling one tile or object,
+ * for example when applied through an {@link qupath.opencv.ops.ImageOp} or {@link DnnObjectClassifier}.
+ * Since all predictions are made on the dispatcher thread, it should be used with models that are
+ * expected to run one prediction at a time anyway (as with OpenCV's DNN module).
+ *
+ * @param <T> the blob type of the wrapped model
+ * @since v0.8.0
+ * @see DnnModels#createBatchingModel(DnnModel, int, long)
+ */
+public class BatchingDnnModel<T> implements DnnModel, UriResource {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchingDnnModel.class);
+
+	private DnnModel model;
+	private int maxBatchSize;
+	private long maxDelayMillis;
+
+	private transient LinkedBlockingQueue<Request> queue;
+	private transient Thread dispatcher;
+	private transient volatile boolean closed;
+
+	private transient LongAdder nBatches;
+	private transient LongAdder nRequests;
+	private transient LongAdder totalLatencyNanos;
+	private transient AtomicLong maxLatencyNanos;
+
+	/**
+	 * Constructor.
+	 * @param model the model to which predictions will be passed
+	 * @param maxBatchSize the maximum number of inputs to combine into a single batch
+	 * @param maxDelayMillis the maximum time to wait for a batch to fill before making a prediction, in milliseconds
+	 */
+	BatchingDnnModel(AbstractDnnModel<T> model, int maxBatchSize, long maxDelayMillis) {
+		if (maxBatchSize < 1)
+			throw new IllegalArgumentException("Maximum batch size must be at least 1, but was " + maxBatchSize);
+		if (maxDelayMillis < 0)
+			throw new IllegalArgumentException("Maximum delay must be >= 0, but was " + maxDelayMillis);
+		this.model = model;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	/**
+	 * Get the model to which predictions are passed.
+	 * @return
+	 */
+	public DnnModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Get the maximum number of inputs that can be combined into a single batch.
+	 * @return
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Get the maximum time to wait for a batch to fill before making a prediction.
+	 * @return the delay, in milliseconds
+	 */
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	@SuppressWarnings("unchecked")
+	private AbstractDnnModel<T> getAbstractModel() {
+		return (AbstractDnnModel<T>)model;
+	}
+
+	@Override
+	public Map<String, Mat> predict(Map<String, Mat> blobs) {
+		if (blobs.size() != 1) {
+			if (closed)
+				throw new IllegalStateException("Batching model has been closed");
+			return model.predict(blobs);
+		}
+		var entry = blobs.entrySet().iterator().next();
+		return await(submit(entry.getKey(), entry.getValue()));
+	}
+
+	@Override
+	public Mat predict(Mat mat) {
+		return getSingleOutput(predict(Map.of(DEFAULT_INPUT_NAME, mat)));
+	}
+
+	/**
+	 * Make predictions for a list of inputs.
+	 * Each input is queued separately, so that they may be combined with inputs from other threads
+	 * into larger batches.
+	 */
+	@Override
+	public List<Mat> batchPredict(List<? extends Mat> mats) {
+		List<CompletableFuture<Map<String, Mat>>> futures = new ArrayList<>();
+		for (var mat : mats)
+			futures.add(submit(DEFAULT_INPUT_NAME, mat));
+		List<Mat> output = new ArrayList<>();
+		for (var future : futures)
+			output.add(getSingleOutput(await(future)));
+		return output;
+	}
+
+	private static Mat getSingleOutput(Map<String, Mat> output) {
+		if (output.isEmpty())
+			return null;
+		if (output.size() > 1) {
+			var mat = output.get(DEFAULT_OUTPUT_NAME);
+			if (mat != null)
+				return mat;
+			logger.warn("Expected single output but got {} outputs - I will return the first only", output.size());
+		}
+		return output.values().iterator().next();
+	}
+
+	private CompletableFuture<Map<String, Mat>> submit(String inputName, Mat mat) {
+		var request = new Request(inputName, mat);
+		enqueue(request);
+		return request.future;
+	}
+
+	private static Map<String, Mat> await(CompletableFuture<Map<String, Mat>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re)
+				throw re;
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Add a request to the queue, starting the dispatcher if needed.
+	 * This is synchronized with {@link #close()}, so that requests can't be added after the queue has been drained.
+	 * @throws IllegalStateException if the model has been closed
+	 */
+	private synchronized void enqueue(Request request) throws IllegalStateException {
+		if (closed)
+			throw new IllegalStateException("Batching model has been closed");
+		if (queue == null) {
+			queue = new LinkedBlockingQueue<>();
+			nBatches = new LongAdder();
+			nRequests = new LongAdder();
+			totalLatencyNanos = new LongAdder();
+			maxLatencyNanos = new AtomicLong();
+		}
+		if (dispatcher == null || !dispatcher.isAlive()) {
+			var localQueue = queue;
+			dispatcher = ThreadTools.createThreadFactory("dnn-batching", true).newThread(() -> dispatch(localQueue));
+			dispatcher.start();
+		}
+		queue.add(request);
+	}
+
+	/**
+	 * Take requests from the queue and group them into batches, until interrupted.
+	 */
+	private void dispatch(LinkedBlockingQueue<Request> queue) {
+		// Requests that could not be added to the previous batch, because their input was incompatible
+		LinkedList<Request> pending = new LinkedList<>();
+		// The batch currently being filled, which may be interrupted before it can be run
+		List<Request> batch = new ArrayList<>();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				var first = pending.isEmpty() ? queue.take() : pending.removeFirst();
+				batch = new ArrayList<>();
+				batch.add(first);
+				Iterator<Request> iter = pending.iterator();
+				while (batch.size() < maxBatchSize && iter.hasNext()) {
+					var next = iter.next();
+					if (first.isCompatible(next)) {
+						batch.add(next);
+						iter.remove();
+					}
+				}
+				long deadline = first.startTime + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+				while (batch.size() < maxBatchSize) {
+					long wait = deadline - System.nanoTime();
+					var next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null)
+						break;
+					if (first.isCompatible(next))
+						batch.add(next);
+					else
+						pending.add(next);
+				}
+				runBatch(batch);
+			}
+		} catch (InterruptedException e) {
+			logger.debug("Batch dispatcher interrupted");
+		} finally {
+			// Fail any requests that haven't been run, so that callers don't wait forever
+			// (this has no effect on requests that have already been completed)
+			var exception = new IllegalStateException("Batching model has been closed");
+			for (var request : batch)
+				request.future.completeExceptionally(exception);
+			for (var request : pending)
+				request.future.completeExceptionally(exception);
+		}
+	}
+
+	private void runBatch(List<Request> batch) {
+		var inputs = batch.stream().map(r -> r.mat).toArray(Mat[]::new);
+		// Mats created for the batch as a whole, which should be released once the outputs have been copied
+		List<Mat> temporary = new ArrayList<>();
+		try {
+			var abstractModel = getAbstractModel();
+			var inputName = batch.get(0).inputName;
+			var blob = getBlobFunction(abstractModel, inputName).toBlob(inputs);
+			temporary.add(blob);
+			var prediction = abstractModel.getPredictionFunction().predict(Map.of(inputName, blob));
+			temporary.addAll(prediction.values());
+
+			// Split the outputs to get the results for each request, copying them so that the batch can be released
+			List<Map<String, Mat>> outputs = new ArrayList<>();
+			for (int i = 0; i < batch.size(); i++)
+				outputs.add(new LinkedHashMap<>());
+			for (var entry : prediction.entrySet()) {
+				var mats = getBlobFunction(abstractModel, entry.getKey()).fromBlob(entry.getValue());
+				temporary.addAll(mats);
+				if (mats.size() != batch.size())
+					throw new IllegalStateException("Expected " + batch.size() + " outputs for " + entry.getKey() + ", but got " + mats.size());
+				for (int i = 0; i < batch.size(); i++)
+					outputs.get(i).put(entry.getKey(), mats.get(i).clone());
+			}
+
+			long endTime = System.nanoTime();
+			nBatches.increment();
+			nRequests.add(batch.size());
+			for (int i = 0; i < batch.size(); i++) {
+				var request = batch.get(i);
+				long latency = endTime - request.startTime;
+				totalLatencyNanos.add(latency);
+				maxLatencyNanos.accumulateAndGet(latency, Math::max);
+				request.future.complete(Collections.unmodifiableMap(outputs.get(i)));
+			}
+		} catch (Throwable t) {
+			for (var request : batch)
+				request.future.completeExceptionally(t);
+		} finally {
+			releaseTemporary(temporary, inputs);
+		}
+	}
+
+	/**
+	 * Release native memory for Mats used while processing a batch, rather than waiting for the garbage collector.
+	 * Inputs are never released, since they belong to the caller (and a blob function might return them unchanged).
+	 */
+	private static void releaseTemporary(List<Mat> temporary, Mat[] inputs) {
+		var released = Collections.newSetFromMap(new IdentityHashMap<Mat, Boolean>());
+		released.addAll(Arrays.asList(inputs));
+		for (var mat : temporary) {
+			if (mat != null && released.add(mat))
+				mat.close();
+		}
+	}
+
+	private static <T> BlobFunction<T> getBlobFunction(AbstractDnnModel<T> model, String name) {
+		var blobFun = model.getBlobFunction(name);
+		return blobFun == null ? model.getBlobFunction() : blobFun;
+	}
+
+	/**
+	 * Get statistics summarizing the batches that have been processed so far.
+	 * This can be used to check how well the batches are being filled, and the cost in terms of latency.
+	 * @return
+	 */
+	public synchronized BatchStatistics getStatistics() {
+		if (queue == null)
+			return new BatchStatistics(maxBatchSize, 0, 0, 0, 0);
+		return new BatchStatistics(maxBatchSize, nBatches.sum(), nRequests.sum(),
+				TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.sum()) / 1000.0,
+				TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get()) / 1000.0);
+	}
+
+	/**
+	 * Statistics summarizing the batches processed by a {@link BatchingDnnModel}.
+	 * @param maxBatchSize the maximum batch size
+	 * @param nBatches the number of batches that have been processed
+	 * @param nRequests the total number of inputs across all batches
+	 * @param totalLatencyMillis the total time between each input being requested and its result being available
+	 * @param maxLatencyMillis the maximum time between any input being requested and its result being available
+	 */
+	public record BatchStatistics(int maxBatchSize, long nBatches, long nRequests, double totalLatencyMillis, double maxLatencyMillis) {
+
+		/**
+		 * Get the mean number of inputs in each batch.
+		 * @return
+		 */
+		public double getMeanBatchSize() {
+			return nBatches == 0 ? 0 : nRequests / (double)nBatches;
+		}
+
+		/**
+		 * Get the mean batch size, as a proportion of the maximum batch size.
+		 * @return a value between 0 and 1
+		 */
+		public double getMeanBatchFill() {
+			return getMeanBatchSize() / maxBatchSize;
+		}
+
+		/**
+		 * Get the mean time between an input being requested and its result being available.
+		 * @return
+		 */
+		public double getMeanLatencyMillis() {
+			return nRequests == 0 ? 0 : totalLatencyMillis / nRequests;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d batches, %d inputs (mean batch size %.2f, fill %.1f%%), latency mean %.2f ms, max %.2f ms",
+					nBatches, nRequests, getMeanBatchSize(), getMeanBatchFill() * 100, getMeanLatencyMillis(), maxLatencyMillis);
+		}
+
+	}
+
+	/**
+	 * Stop the dispatcher thread and close the wrapped model.
+	 * Any requests that are still waiting for a prediction fail with an {@link IllegalStateException},
+	 * as do any predictions requested afterwards.
+	 */
+	@Override
+	public void close() throws Exception {
+		Thread thread;
+		synchronized (this) {
+			closed = true;
+			thread = dispatcher;
+			dispatcher = null;
+		}
+		if (thread != null) {
+			thread.interrupt();
+			thread.join();
+			logger.debug("Closing batching model: {}", getStatistics());
+		}
+		synchronized (this) {
+			if (queue != null) {
+				var exception = new IllegalStateException("Batching model has been closed");
+				Request request;
+				while ((request = queue.poll()) != null)
+					request.future.completeExceptionally(exception);
+			}
+		}
+		model.close();
+	}
+
+	@Override
+	public Collection<URI> getURIs() throws IOException {
+		if (model instanceof UriResource resource)
+			return resource.getURIs();
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean updateURIs(Map<URI, URI> replacements) throws IOException {
+		if (model instanceof UriResource resource)
+			return resource.updateURIs(replacements);
+		return false;
+	}
+
+
+	private static class Request {
+
+		private final String inputName;
+		private final Mat mat;
+		private final long startTime = System.nanoTime();
+		private final CompletableFuture<Map<String, Mat>> future = new CompletableFuture<>();
+
+		private Request(String inputName, Mat mat) {
+			this.inputName = inputName;
+			this.mat = mat;
+		}
+
+		/**
+		 * Check if two requests can be combined into the same batch.
+		 */
+		private boolean isCompatible(Request other) {
+			return inputName.equals(other.inputName) &&
+					mat.type() == other.mat.type() &&
+					mat.dims() == other.mat.dims() &&
+					mat.rows() == other.mat.rows() &&
+					mat.cols() == other.mat.cols();
+		}
+
+	}
+
+}
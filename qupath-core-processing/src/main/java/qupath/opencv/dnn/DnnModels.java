@@ -65,7 +65,8 @@ public class DnnModels {
 		
 		dnnAdapter = GsonTools.createSubTypeAdapterFactory(DnnModel.class, "dnn_model")
 				.registerSubtype(DefaultDnnModel.class)
-				.registerSubtype(OpenCVDnn.class);
+				.registerSubtype(OpenCVDnn.class)
+				.registerSubtype(BatchingDnnModel.class);
 		
 		ObjectClassifiers.ObjectClassifierTypeAdapterFactory.registerSubtype(OpenCVModelObjectClassifier.class);
 		ObjectClassifiers.ObjectClassifierTypeAdapterFactory.registerSubtype(DnnObjectClassifier.class);
@@ -123,6 +124,40 @@ public class DnnModels {
 	}
 	
 	
+	/**
+	 * Create a {@link DnnModel} that combines single-input predictions requested concurrently from different threads
+	 * into batches, before passing them to another model.
+	 * This can improve throughput considerably when a model is applied tile-by-tile or object-by-object, since each
+	 * call to the wrapped model can then handle several inputs at once.
+	 * <p>
+	 * Note that batching is only supported for instances of {@link AbstractDnnModel}, since these provide access to
+	 * the {@link BlobFunction} and {@link PredictionFunction} needed to create and split the batches.
+	 * Other models are returned unchanged.
+	 * 
+	 * @param model the model to which predictions should be passed
+	 * @param maxBatchSize the maximum number of inputs to combine in a single batch
+	 * @param maxDelayMillis the maximum time to wait for a batch to fill, in milliseconds
+	 * @return a batching model, or the original model if batching is not supported
+	 * @see BatchingDnnModel
+	 * @since v0.8.0
+	 */
+	public static DnnModel createBatchingModel(DnnModel model, int maxBatchSize, long maxDelayMillis) {
+		if (model instanceof BatchingDnnModel<?> batchingModel) {
+			if (batchingModel.getMaxBatchSize() == maxBatchSize && batchingModel.getMaxDelayMillis() == maxDelayMillis)
+				return model;
+			model = batchingModel.getModel();
+		}
+		if (model instanceof AbstractDnnModel<?> abstractModel)
+			return wrapForBatching(abstractModel, maxBatchSize, maxDelayMillis);
+		logger.warn("Batching is not supported for {} - the model will be used without batching", model);
+		return model;
+	}
+	
+	private static <T> BatchingDnnModel<T> wrapForBatching(AbstractDnnModel<T> model, int maxBatchSize, long maxDelayMillis) {
+		return new BatchingDnnModel<>(model, maxBatchSize, maxDelayMillis);
+	}
+	
+	
 	/**
 	 * Build a {@link DnnModel} from the given parameters.
 	 * This queries all available {@linkplain DnnModelBuilder DnnModelBuilders} through a service loader.
@@ -33,6 +33,7 @@ import qupath.lib.images.servers.ImageServerMetadata.ChannelType;
 import qupath.lib.io.UriResource;
 import qupath.lib.regions.RegionRequest;
 import qupath.opencv.ops.ImageDataOp;
+import qupath.opencv.ops.ImageOpOptimizer;
 import qupath.opencv.tools.OpenCVTools;
 
 import java.awt.image.BufferedImage;
@@ -52,6 +53,9 @@ class OpenCVPixelClassifier implements PixelClassifier, UriResource {
     private PixelClassifierMetadata metadata;
     private ImageDataOp op;
     
+    // Equivalent op that shares calculations where possible
+    private transient ImageDataOp opOptimized;
+    
     private OpenCVPixelClassifier() {}
 
     OpenCVPixelClassifier(ImageDataOp op, PixelClassifierMetadata metadata) {
@@ -87,6 +91,12 @@ class OpenCVPixelClassifier implements PixelClassifier, UriResource {
     	return op;
     }
     
+    private synchronized ImageDataOp getOptimizedOp() {
+    	if (opOptimized == null)
+    		opOptimized = ImageOpOptimizer.optimize(getOp());
+    	return opOptimized;
+    }
+    
     @Override
 	public PixelClassifierMetadata getMetadata() {
         return metadata;
@@ -100,7 +110,7 @@ class OpenCVPixelClassifier implements PixelClassifier, UriResource {
     	
     	try (@SuppressWarnings("unchecked")
 		var scope = new PointerScope()) {
-	    	var matResult = getOp().apply(imageData, request);
+	    	var matResult = getOptimizedOp().apply(imageData, request);
 
 	    	var type = getMetadata().getOutputType();
 	    	ColorModel colorModelLocal = null;
@@ -137,6 +147,9 @@ class OpenCVPixelClassifier implements PixelClassifier, UriResource {
 
 	@Override
 	public boolean updateURIs(Map<URI, URI> replacements) throws IOException {
+		synchronized (this) {
+			opOptimized = null;
+		}
 		return op.updateURIs(replacements);
 	}
     
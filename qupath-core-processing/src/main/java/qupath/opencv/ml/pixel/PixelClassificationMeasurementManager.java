@@ -21,9 +21,13 @@
 
 package qupath.opencv.ml.pixel;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.lib.awt.common.BufferedImageTools;
+import qupath.lib.awt.common.ShapeRasterizer;
+import qupath.lib.classifiers.pixel.PixelClassificationImageServer;
 import qupath.lib.common.GeneralTools;
 import qupath.lib.common.ThreadTools;
 import qupath.lib.images.servers.ImageServer;
@@ -55,6 +59,7 @@ import java.awt.image.DataBuffer;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -63,7 +68,6 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -81,7 +85,16 @@ public class PixelClassificationMeasurementManager {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PixelClassificationMeasurementManager.class);
 	
-	private static final Map<ImageServer<BufferedImage>, Map<ROI, MeasurementList>> measuredROIs = Collections.synchronizedMap(new WeakHashMap<>());
+	/**
+	 * Measurements for each classifier server, keyed by the server's tile cache key so that they can be reused
+	 * by different server instances applying the same classifier to the same image.
+	 */
+	private static final Cache<String, Map<ROI, MeasurementList>> measuredROIs = CacheBuilder.newBuilder()
+			.maximumSize(100)
+			.softValues()
+			.build();
+	
+	private final String measurementKey;
 	
 	private final ImageServer<BufferedImage> classifierServer;
 	private List<String> measurementNames = null;
@@ -102,10 +115,10 @@ public class PixelClassificationMeasurementManager {
 	 */
 	public PixelClassificationMeasurementManager(ImageServer<BufferedImage> classifierServer) {
 		this.classifierServer = classifierServer;
-		synchronized (measuredROIs) {
-			if (!measuredROIs.containsKey(classifierServer))
-				measuredROIs.put(classifierServer, new HashMap<>());
-		}
+		if (classifierServer instanceof PixelClassificationImageServer pixelServer)
+			this.measurementKey = pixelServer.getTileCacheKey();
+		else
+			this.measurementKey = classifierServer.getPath();
 		
         // Calculate area of a pixel
         requestedDownsample = classifierServer.getDownsampleForResolution(0);
@@ -262,6 +275,11 @@ public class PixelClassificationMeasurementManager {
 				measurementID += ": ";
 		}
 
+		// Where we have many area ROIs, it is much more efficient to process each classifier tile once
+		// (handling all the ROIs that intersect it) than to process each ROI separately.
+		// Anything that can't be measured this way will be handled per-object below.
+		measureAreasByTile(objectsToMeasure);
+
 		// This is where things get complicated...
 		// If we have a lot of small objects, we want to parallelize at the object level.
 		// If we have few large objects, we want to parallelize at the tile request level.
@@ -341,6 +359,238 @@ public class PixelClassificationMeasurementManager {
 	}
 
 
+	/**
+	 * Calculate measurements for all area ROIs that have not yet been measured, by requesting each classifier tile
+	 * once and counting pixels for all the ROIs that intersect with it.
+	 * The resulting measurement lists are cached, so that they can be used when measuring each object.
+	 * <p>
+	 * This does nothing if fewer than two ROIs need to be measured, or the classifier output type is not supported.
+	 * @param objectsToMeasure
+	 */
+	private void measureAreasByTile(Collection<? extends PathObject> objectsToMeasure) {
+		var type = classifierServer.getMetadata().getChannelType();
+		int nChannels = classifierServer.nChannels();
+		var tileCounter = switch (type) {
+			case CLASSIFICATION -> nChannels == 1 ? TileCounter.LABELS : null;
+			case PROBABILITY -> nChannels > 1 ? TileCounter.ARGMAX : TileCounter.ABOVE_THRESHOLD;
+			case MULTICLASS_PROBABILITY -> nChannels <= Integer.SIZE ? TileCounter.ABOVE_THRESHOLD : null;
+			default -> null;
+		};
+		if (tileCounter == null)
+			return;
+
+		var measurements = measuredROIs.asMap().computeIfAbsent(measurementKey, s -> new ConcurrentHashMap<>());
+		List<ROI> rois = objectsToMeasure.stream()
+				.map(PathObject::getROI)
+				.filter(r -> r != null && r.isArea() && !r.isEmpty() && !measurements.containsKey(r))
+				.distinct()
+				.toList();
+		if (rois.size() < 2)
+			return;
+
+		// For labelled images, map each label to a compact bin (with a final bin for unknown labels)
+		Map<Integer, PathClass> classificationLabels = classifierServer.getMetadata().getClassificationLabels();
+		int maxLabel = classificationLabels.keySet().stream().mapToInt(Integer::intValue).filter(i -> i >= 0).max().orElse(-1);
+		int[] labelBins;
+		int nBins;
+		if (tileCounter == TileCounter.LABELS) {
+			labelBins = new int[maxLabel + 1];
+			nBins = 0;
+			for (int label = 0; label <= maxLabel; label++)
+				labelBins[label] = classificationLabels.containsKey(label) ? nBins++ : -1;
+			for (int label = 0; label <= maxLabel; label++) {
+				if (labelBins[label] < 0)
+					labelBins[label] = nBins;
+			}
+			nBins++;
+		} else {
+			labelBins = null;
+			nBins = nChannels;
+		}
+
+		// Find the ROIs that may intersect with each tile
+		long startTime = System.currentTimeMillis();
+		int n = rois.size();
+		Shape[] shapes = new Shape[n];
+		ShapeRasterizer[] rasterizers = new ShapeRasterizer[n];
+		Map<TileRequest, List<Integer>> roisForTiles = new LinkedHashMap<>();
+		var tileManager = classifierServer.getTileRequestManager();
+		for (int i = 0; i < n; i++) {
+			var roi = rois.get(i);
+			shapes[i] = RoiTools.getShape(roi);
+			rasterizers[i] = new ShapeRasterizer(shapes[i]);
+			var regionRequest = RegionRequest.createInstance(classifierServer.getPath(), requestedDownsample, roi);
+			for (var tile : tileManager.getTileRequests(regionRequest)) {
+				if (mayIntersectTile(shapes[i], tile, tile.getDownsample()))
+					roisForTiles.computeIfAbsent(tile, t -> new ArrayList<>()).add(i);
+			}
+		}
+
+		long[][] counts = new long[n][nBins];
+		boolean[] failed = new boolean[n];
+
+		var pool = Executors.newFixedThreadPool(calculatePreferredParallelism(),
+				ThreadTools.createThreadFactory("pixel-classification-tiles", true, Thread.NORM_PRIORITY));
+		List<Future<?>> tasks = new ArrayList<>();
+		for (var entry : roisForTiles.entrySet()) {
+			var tile = entry.getKey();
+			var roiIndices = entry.getValue();
+			tasks.add(pool.submit(() -> {
+				BufferedImage img;
+				try {
+					img = classifierServer.readRegion(tile.getRegionRequest());
+				} catch (IOException e) {
+					logger.error("Error reading tile " + tile, e);
+					img = null;
+				}
+				if (img == null) {
+					synchronized (failed) {
+						for (int i : roiIndices)
+							failed[i] = true;
+					}
+					return;
+				}
+				countTilePixels(tile, img, tileCounter, labelBins, nBins, roiIndices, shapes, rasterizers, counts);
+			}));
+		}
+		pool.shutdown();
+		try {
+			for (var t : tasks)
+				t.get();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		int nMeasured = 0;
+		for (int i = 0; i < n; i++) {
+			if (failed[i])
+				continue;
+			long[] roiCounts = counts[i];
+			if (labelBins != null) {
+				// Convert back from bins to labels, retaining the final bin for unknown labels (needed for the total area)
+				long[] labelCounts = new long[maxLabel + 2];
+				for (int label = 0; label <= maxLabel; label++) {
+					if (classificationLabels.containsKey(label))
+						labelCounts[label] = roiCounts[labelBins[label]];
+				}
+				labelCounts[maxLabel + 1] = roiCounts[nBins - 1];
+				roiCounts = labelCounts;
+			}
+			measurements.put(rois.get(i), updateMeasurements(classificationLabels, roiCounts, pixelArea, pixelAreaUnits));
+			nMeasured++;
+		}
+		logger.debug("Measured {} ROIs from {} tiles in {} ms", nMeasured, roisForTiles.size(), System.currentTimeMillis() - startTime);
+	}
+
+
+	/**
+	 * Ways to convert the pixels of a classifier tile into histogram bins.
+	 */
+	private enum TileCounter {
+		/**
+		 * Each pixel has a single label, which is mapped to a bin.
+		 */
+		LABELS,
+		/**
+		 * Each pixel is assigned to the bin of the channel with the highest value.
+		 */
+		ARGMAX,
+		/**
+		 * Each pixel is counted in the bins of all channels with values above the probability threshold.
+		 */
+		ABOVE_THRESHOLD
+	}
+
+
+	/**
+	 * Count the pixels in a single tile for all the ROIs that intersect with it, adding the results to the counts for each ROI.
+	 */
+	private static void countTilePixels(TileRequest tile, BufferedImage img, TileCounter tileCounter, int[] labelBins, int nBins,
+			List<Integer> roiIndices, Shape[] shapes, ShapeRasterizer[] rasterizers, long[][] counts) {
+
+		// Convert the tile to a single value per pixel - either a bin or (for thresholded counts) a bitmask of bins
+		var raster = img.getRaster();
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		int[] pixels;
+		switch (tileCounter) {
+			case LABELS:
+				pixels = raster.getSamples(0, 0, width, height, 0, (int[])null);
+				for (int i = 0; i < pixels.length; i++) {
+					int label = pixels[i];
+					pixels[i] = label >= 0 && label < labelBins.length ? labelBins[label] : nBins - 1;
+				}
+				break;
+			case ARGMAX:
+				pixels = new int[width * height];
+				double[] maxValues = raster.getSamples(0, 0, width, height, 0, (double[])null);
+				double[] values = null;
+				for (int b = 1; b < nBins; b++) {
+					values = raster.getSamples(0, 0, width, height, b, values);
+					for (int i = 0; i < pixels.length; i++) {
+						if (values[i] > maxValues[i]) {
+							maxValues[i] = values[i];
+							pixels[i] = b;
+						}
+					}
+				}
+				break;
+			case ABOVE_THRESHOLD:
+			default:
+				pixels = new int[width * height];
+				double threshold = getProbabilityThreshold(raster);
+				double[] samples = null;
+				for (int b = 0; b < nBins; b++) {
+					samples = raster.getSamples(0, 0, width, height, b, samples);
+					for (int i = 0; i < pixels.length; i++) {
+						if (samples[i] > threshold)
+							pixels[i] |= 1 << b;
+					}
+				}
+				break;
+		}
+		boolean isBitmask = tileCounter == TileCounter.ABOVE_THRESHOLD;
+
+		long[] fullTileCounts = null;
+		long[] tileCounts = new long[nBins];
+		double downsample = tile.getDownsample();
+		for (int ind : roiIndices) {
+			if (completelyContainsTile(shapes[ind], tile, downsample)) {
+				if (fullTileCounts == null) {
+					fullTileCounts = new long[nBins];
+					for (int v : pixels)
+						addToCounts(fullTileCounts, v, isBitmask);
+				}
+				System.arraycopy(fullTileCounts, 0, tileCounts, 0, nBins);
+			} else {
+				Arrays.fill(tileCounts, 0L);
+				rasterizers[ind].rasterize(
+						tile.getTileX() * downsample, tile.getTileY() * downsample, downsample, width, height,
+						(y, xStart, xEnd) -> {
+							int offset = y * width;
+							for (int x = xStart; x < xEnd; x++)
+								addToCounts(tileCounts, pixels[offset + x], isBitmask);
+						});
+			}
+			var roiCounts = counts[ind];
+			synchronized (roiCounts) {
+				for (int b = 0; b < nBins; b++)
+					roiCounts[b] += tileCounts[b];
+			}
+		}
+	}
+
+	private static void addToCounts(long[] counts, int value, boolean isBitmask) {
+		if (isBitmask) {
+			while (value != 0) {
+				counts[Integer.numberOfTrailingZeros(value)]++;
+				value &= value - 1;
+			}
+		} else
+			counts[value]++;
+	}
+
+
 	private ExecutorService getDefaultPool() {
 		return ForkJoinPool.commonPool();
 	}
@@ -353,7 +603,7 @@ public class PixelClassificationMeasurementManager {
 	private MeasurementList getMeasurementList(ROI roi, ExecutorService pool) {
 		if (roi == null)
 			return null;
-		var map = measuredROIs.computeIfAbsent(classifierServer, s -> new ConcurrentHashMap<>());
+		var map = measuredROIs.asMap().computeIfAbsent(measurementKey, s -> new ConcurrentHashMap<>());
 		var ml = map.getOrDefault(roi, null);
 		if (ml == null) {
 			ml = calculateMeasurements(roi, pool);
@@ -433,6 +683,7 @@ public class PixelClassificationMeasurementManager {
         Shape shape = null;
         if (!roi.isPoint())
         	shape = RoiTools.getShape(roi);
+        ShapeRasterizer rasterizer = roi.isArea() ? new ShapeRasterizer(shape) : null;
         
         // Get the regions we need
         Collection<TileRequest> requests;
@@ -502,6 +753,7 @@ public class PixelClassificationMeasurementManager {
 
 		// Calculate stained proportions
         BasicStroke stroke = null;
+        int[] maskRow = null;
         byte[] mask = null;
     	BufferedImage imgMask = imgTileMask.get();
     	
@@ -548,7 +800,33 @@ public class PixelClassificationMeasurementManager {
 	    		bounds.setBounds(0, 0, -1, -1);
 	    		        	
 	        	// Get the tile, which is needed for sub-pixel accuracy
-	        	if (roi.isLine() || roi.isArea()) {
+	        	if (roi.isArea()) {
+	        		
+	        		// Use the same scanline fill as when measuring tile-by-tile, so that results are consistent
+	        		Graphics2D g2d = imgMask.createGraphics();
+	        		g2d.setColor(Color.BLACK);
+	        		g2d.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+	        		g2d.dispose();
+	        		var rasterMask = imgMask.getRaster();
+	        		if (maskRow == null || maskRow.length < tile.getWidth()) {
+	        			maskRow = new int[tile.getWidth()];
+	        			Arrays.fill(maskRow, 255);
+	        		}
+	        		int[] maskRowFinal = maskRow;
+	        		rasterizer.rasterize(
+	        				region.getTileX() * region.getDownsample(),
+	        				region.getTileY() * region.getDownsample(),
+	        				region.getDownsample(), tile.getWidth(), tile.getHeight(),
+	        				(y, xStart, xEnd) -> {
+	        					rasterMask.setSamples(xStart, y, xEnd - xStart, 1, 0, maskRowFinal);
+	        					bounds.add(xStart, y);
+	        					bounds.add(xEnd, y + 1);
+	        				});
+	        		// Skip tiles that don't contain any pixels of the ROI
+	        		if (bounds.width <= 0 || bounds.height <= 0)
+	        			continue;
+	        		
+	        	} else if (roi.isLine()) {
 	        		
 	        		Graphics2D g2d = imgMask.createGraphics();
 	        		g2d.setColor(Color.BLACK);
@@ -558,14 +836,11 @@ public class PixelClassificationMeasurementManager {
 	        		g2d.translate(-region.getTileX() * region.getDownsample(), -region.getTileY() * region.getDownsample());
 	        		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
 	        		g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
-	        		if (roi.isLine()) {
-	        			float fDownsample = (float)region.getDownsample();
-	        			if (stroke == null || stroke.getLineWidth() != fDownsample)
-	        				stroke = new BasicStroke((float)fDownsample);
-	        			g2d.setStroke(stroke);
-	        			g2d.draw(shape);
-	        		} else if (roi.isArea())
-	        			g2d.fill(shape);
+	        		float fDownsample = (float)region.getDownsample();
+	        		if (stroke == null || stroke.getLineWidth() != fDownsample)
+	        			stroke = new BasicStroke((float)fDownsample);
+	        		g2d.setStroke(stroke);
+	        		g2d.draw(shape);
 
 	        		// Use the Graphics2D transform to set a bounding box that contains the ROI
 	        		// This can dramatically reduce the number of samples that need to be checked sometimes
@@ -636,6 +911,7 @@ public class PixelClassificationMeasurementManager {
 						double threshold = getProbabilityThreshold(tile.getRaster());
 						for (int c = 0; c < nChannels; c++)
 							counts[c] += BufferedImageTools.computeAboveThresholdCounts(tile.getRaster(), c, threshold, fullMask ? null : imgMask.getRaster(), bounds);
+						break;
 					case DEFAULT:
 					case FEATURE:
 					default:
@@ -649,6 +925,12 @@ public class PixelClassificationMeasurementManager {
 			}
         }
 
+    	// If no tile contained any pixels of the ROI (e.g. because it is smaller than a pixel), all counts are zero
+    	if (counts == null) {
+    		int maxLabel = classificationLabels.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+    		counts = new long[type == ChannelType.CLASSIFICATION ? maxLabel + 1 : server.nChannels()];
+    	}
+
     	long endTime = System.currentTimeMillis();
     	if (logger.isDebugEnabled()) {
     		long totalCounts = LongStream.of(counts).sum();
@@ -0,0 +1,412 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ops;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.io.GsonTools;
+import qupath.lib.regions.Padding;
+import qupath.opencv.tools.MultiscaleFeatures.MultiscaleFeature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optimize trees of {@link ImageOp} and {@link ImageDataOp}, so that they can be applied more efficiently.
+ * <p>
+ * The main target is {@link ImageOps.Core#splitMerge(ImageOp...)}, which is commonly used to build feature stacks
+ * for pixel classification.
+ * Here, each branch is applied to its own copy of the input, and so the same calculations may be repeated many times.
+ * The optimized op arranges the branches into a tree instead, so that
+ * <ul>
+ *     <li>identical ops at the start of different branches are applied only once, and the result shared;</li>
+ *     <li>multiscale features calculated at the same scale in different branches share the same Gaussian smoothing;</li>
+ *     <li>the input is padded once for all branches, and intermediate images are only copied when they need to be shared.</li>
+ * </ul>
+ * Optimized ops give the same result as the original ops, and have the same JSON representation
+ * because any optimizations are stored only in transient fields.
+ *
+ * @since v0.8.0
+ */
+public class ImageOpOptimizer {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImageOpOptimizer.class);
+
+	/**
+	 * Rough number of floating point operations needed to compute a multiscale feature from smoothed pixels.
+	 */
+	private static final double FLOPS_PER_FEATURE = 16.0;
+
+	private ImageOpOptimizer() {
+		throw new AssertionError("Cannot instantiate this class");
+	}
+
+	/**
+	 * Create an optimized version of an op.
+	 * @param op the op to optimize
+	 * @return an op that gives the same result as the input op, and which has the same JSON representation;
+	 *         this may be the same as the input op if no optimization is possible
+	 */
+	public static ImageOp optimize(ImageOp op) {
+		var optimized = optimizeOp(op);
+		if (optimized != op && logger.isDebugEnabled()) {
+			double flopsBefore = estimateFlopsPerPixel(op);
+			double flopsAfter = estimateFlopsPerPixel(optimized);
+			logger.debug("Optimized op: estimated {} FLOPs saved per pixel ({} -> {})",
+					flopsBefore - flopsAfter, flopsBefore, flopsAfter);
+		}
+		return optimized;
+	}
+
+	/**
+	 * Create an optimized version of a data op.
+	 * Only data ops created by {@link ImageOps} can currently be optimized.
+	 * @param dataOp the data op to optimize
+	 * @return a data op that gives the same result as the input op, and which has the same JSON representation;
+	 *         this may be the same as the input op if no optimization is possible
+	 */
+	public static ImageDataOp optimize(ImageDataOp dataOp) {
+		if (dataOp instanceof ImageOps.DefaultImageDataOp defaultOp && defaultOp.getOp() != null) {
+			var op = optimize(defaultOp.getOp());
+			return op == defaultOp.getOp() ? dataOp : new ImageOps.DefaultImageDataOp(op);
+		}
+		if (dataOp instanceof ImageOps.ChannelImageDataOp channelOp && channelOp.getOp() != null) {
+			var op = optimize(channelOp.getOp());
+			return op == channelOp.getOp() ? dataOp : channelOp.withOp(op);
+		}
+		return dataOp;
+	}
+
+	/**
+	 * Estimate the number of floating point operations needed to apply an op, per pixel and channel of the input image.
+	 * <p>
+	 * This is a rough estimate based upon the size of filters and the number of features computed.
+	 * It is intended for comparing alternative ways to calculate the same result, such as before and after
+	 * calling {@link #optimize(ImageOp)}.
+	 * @param op
+	 * @return
+	 */
+	public static double estimateFlopsPerPixel(ImageOp op) {
+		if (op instanceof ImageOps.Core.SequentialMultiOp sequentialOp)
+			return sumFlops(sequentialOp.getOps());
+		if (op instanceof ImageOps.Core.SplitMergeOp splitMergeOp) {
+			var plan = splitMergeOp.getPlan();
+			return plan == null ? sumFlops(splitMergeOp.getOps()) : plan.flops;
+		}
+		if (op instanceof ImageOps.Core.SplitCombineOp splitCombineOp)
+			return estimateFlopsPerPixel(splitCombineOp.getOp1()) + estimateFlopsPerPixel(splitCombineOp.getOp2()) + 1;
+		if (op instanceof ImageOps.Filters.MultiscaleFeatureOp multiscaleOp)
+			return separableFilterFlops(multiscaleOp.getPadding()) + multiscaleOp.getFeatures().size() * FLOPS_PER_FEATURE;
+		if (op instanceof ImageOps.Filters.GaussianFilterOp)
+			return separableFilterFlops(op.getPadding());
+		var padding = op.getPadding();
+		if (!padding.isEmpty())
+			return 2.0 * (padding.getXSum() + 1) * (padding.getYSum() + 1);
+		return 1.0;
+	}
+
+	private static double sumFlops(List<ImageOp> ops) {
+		double flops = 0;
+		for (var op : ops)
+			flops += estimateFlopsPerPixel(op);
+		return flops;
+	}
+
+	private static double separableFilterFlops(Padding padding) {
+		return 2.0 * (padding.getXSum() + 1 + padding.getYSum() + 1);
+	}
+
+	private static ImageOp optimizeOp(ImageOp op) {
+		if (op instanceof ImageOps.Core.SequentialMultiOp sequentialOp) {
+			var ops = optimizeOps(sequentialOp.getOps());
+			return ops.equals(sequentialOp.getOps()) ? op : new ImageOps.Core.SequentialMultiOp(ops);
+		}
+		if (op instanceof ImageOps.Core.SplitMergeOp splitMergeOp) {
+			var ops = optimizeOps(splitMergeOp.getOps());
+			var plan = BranchPlan.create(ops);
+			if (plan == null)
+				return ops.equals(splitMergeOp.getOps()) ? op : new ImageOps.Core.SplitMergeOp(ops, null);
+			return new ImageOps.Core.SplitMergeOp(ops, plan);
+		}
+		if (op instanceof ImageOps.Core.SplitCombineOp splitCombineOp) {
+			var op1 = optimizeOp(splitCombineOp.getOp1());
+			var op2 = optimizeOp(splitCombineOp.getOp2());
+			if (op1 == splitCombineOp.getOp1() && op2 == splitCombineOp.getOp2())
+				return op;
+			return splitCombineOp.withOps(op1, op2);
+		}
+		return op;
+	}
+
+	private static List<ImageOp> optimizeOps(List<ImageOp> ops) {
+		return ops.stream().map(ImageOpOptimizer::optimizeOp).toList();
+	}
+
+
+	/**
+	 * Plan for applying the branches of a {@link ImageOps.Core.SplitMergeOp}, sharing calculations where possible.
+	 */
+	static class BranchPlan {
+
+		private final Node root;
+		private final int nBranches;
+		private final double flops;
+
+		private BranchPlan(Node root, int nBranches) {
+			this.root = root;
+			this.nBranches = nBranches;
+			this.flops = root.estimateFlops();
+		}
+
+		/**
+		 * Create a plan for applying a list of branches.
+		 * @param branches
+		 * @return the plan, or null if the branches do not share any calculations
+		 */
+		static BranchPlan create(List<ImageOp> branches) {
+			if (branches.size() < 2)
+				return null;
+			var sequences = new ArrayList<List<ImageOp>>();
+			for (var branch : branches) {
+				var sequence = new ArrayList<ImageOp>();
+				flatten(branch, sequence);
+				sequences.add(sequence);
+			}
+			shareMultiscaleFeatures(sequences);
+
+			var root = new Node();
+			for (int i = 0; i < sequences.size(); i++) {
+				var node = root;
+				for (var op : sequences.get(i))
+					node = node.children.computeIfAbsent(getKey(op), k -> new Node(op));
+				node.outputs.add(i);
+			}
+			if (!root.hasSharedResults())
+				return null;
+			root.compress();
+			root.updatePadding();
+			return new BranchPlan(root, branches.size());
+		}
+
+		/**
+		 * Apply the plan to a padded input image.
+		 * @param input the input image; this is not modified
+		 * @param padding the padding of the input image, which must be at least the padding required by all branches
+		 * @return the output for each branch, with padding removed
+		 */
+		List<Mat> apply(Mat input, Padding padding) {
+			var outputs = new Mat[nBranches];
+			applyChildren(root, input, padding, false, outputs);
+			return Arrays.asList(outputs);
+		}
+
+		private static void applyChildren(Node node, Mat mat, Padding padding, boolean owned, Mat[] outputs) {
+			int nConsumers = node.outputs.size() + node.children.size();
+			int count = 0;
+			for (int ind : node.outputs) {
+				count++;
+				boolean isLast = owned && count == nConsumers;
+				if (padding.isEmpty())
+					outputs[ind] = isLast ? mat : mat.clone();
+				else
+					outputs[ind] = ImageOps.stripPadding(mat, padding);
+			}
+			for (var child : node.children.values()) {
+				count++;
+				boolean isLast = owned && count == nConsumers;
+				// Only keep the padding that this child needs
+				var padExtra = padding.subtract(child.padding);
+				Mat temp;
+				if (!padExtra.isEmpty())
+					temp = ImageOps.stripPadding(mat, padExtra);
+				else
+					temp = isLast ? mat : mat.clone();
+				var output = child.op.apply(temp);
+				if (output != temp) {
+					temp.put(output);
+					output.close();
+				}
+				applyChildren(child, temp, child.childPadding, true, outputs);
+			}
+		}
+
+		private static void flatten(ImageOp op, List<ImageOp> sequence) {
+			if (op instanceof ImageOps.Core.SequentialMultiOp sequentialOp) {
+				for (var child : sequentialOp.getOps())
+					flatten(child, sequence);
+			} else
+				sequence.add(op);
+		}
+
+		/**
+		 * If multiple sequences start by calculating multiscale features at the same scale, replace the first op with
+		 * one that calculates all the features needed by any sequence, followed by an op to select the features
+		 * required by that sequence.
+		 * This means that the Gaussian smoothing only needs to be applied once.
+		 */
+		private static void shareMultiscaleFeatures(List<List<ImageOp>> sequences) {
+			Map<String, LinkedHashSet<MultiscaleFeature>> allFeatures = new LinkedHashMap<>();
+			for (var sequence : sequences) {
+				if (!sequence.isEmpty() && sequence.getFirst() instanceof ImageOps.Filters.MultiscaleFeatureOp op)
+					allFeatures.computeIfAbsent(getScaleKey(op), k -> new LinkedHashSet<>()).addAll(op.getFeatures());
+			}
+			Map<String, ImageOp> sharedOps = new LinkedHashMap<>();
+			for (var sequence : sequences) {
+				if (sequence.isEmpty() || !(sequence.getFirst() instanceof ImageOps.Filters.MultiscaleFeatureOp op))
+					continue;
+				var key = getScaleKey(op);
+				var features = new ArrayList<>(allFeatures.get(key));
+				if (features.equals(op.getFeatures()))
+					continue;
+				var sharedOp = sharedOps.computeIfAbsent(key,
+						k -> new ImageOps.Filters.MultiscaleFeatureOp(features, op.getSigmaX(), op.getSigmaY()));
+				int[] indices = op.getFeatures().stream().mapToInt(features::indexOf).toArray();
+				sequence.set(0, sharedOp);
+				sequence.add(1, new SelectFeaturesOp(features.size(), indices));
+			}
+		}
+
+		private static String getScaleKey(ImageOps.Filters.MultiscaleFeatureOp op) {
+			return op.getSigmaX() + "," + op.getSigmaY();
+		}
+
+		/**
+		 * Get a key that is the same for ops that give the same result.
+		 */
+		private static String getKey(ImageOp op) {
+			if (op instanceof SelectFeaturesOp selectOp)
+				return selectOp.toString();
+			return op.getClass().getName() + GsonTools.getInstance().toJson(op);
+		}
+
+	}
+
+
+	private static class Node {
+
+		private ImageOp op;
+		private final Map<String, Node> children = new LinkedHashMap<>();
+		private final List<Integer> outputs = new ArrayList<>();
+
+		// Padding needed for the input to this node, and for the output to be passed to the children
+		private Padding padding = Padding.empty();
+		private Padding childPadding = Padding.empty();
+
+		private Node() {
+			this(null);
+		}
+
+		private Node(ImageOp op) {
+			this.op = op;
+		}
+
+		private int nConsumers() {
+			return children.size() + outputs.size();
+		}
+
+		private boolean hasSharedResults() {
+			if (op != null && nConsumers() > 1)
+				return true;
+			return children.values().stream().anyMatch(Node::hasSharedResults);
+		}
+
+		/**
+		 * Combine chains of ops that are not shared into a single op, so that they may be applied more efficiently.
+		 */
+		private void compress() {
+			if (op != null && outputs.isEmpty() && children.size() == 1) {
+				var ops = new ArrayList<ImageOp>();
+				ops.add(op);
+				var child = children.values().iterator().next();
+				while (true) {
+					ops.add(child.op);
+					if (!child.outputs.isEmpty() || child.children.size() != 1)
+						break;
+					child = child.children.values().iterator().next();
+				}
+				op = ImageOps.Core.sequential(ops);
+				children.clear();
+				children.putAll(child.children);
+				outputs.addAll(child.outputs);
+			}
+			for (var child : children.values())
+				child.compress();
+		}
+
+		private void updatePadding() {
+			childPadding = Padding.empty();
+			for (var child : children.values()) {
+				child.updatePadding();
+				childPadding = childPadding.max(child.padding);
+			}
+			padding = op == null ? childPadding : op.getPadding().add(childPadding);
+		}
+
+		private double estimateFlops() {
+			double flops = op == null ? 0 : estimateFlopsPerPixel(op);
+			for (var child : children.values())
+				flops += child.estimateFlops();
+			return flops;
+		}
+
+	}
+
+
+	/**
+	 * Select a subset of the features calculated by a shared multiscale op.
+	 * This is only used as part of a {@link BranchPlan}, and is never serialized.
+	 */
+	private static class SelectFeaturesOp implements ImageOp {
+
+		private final int nFeatures;
+		private final int[] indices;
+
+		private SelectFeaturesOp(int nFeatures, int[] indices) {
+			this.nFeatures = nFeatures;
+			this.indices = indices;
+		}
+
+		@Override
+		public Mat apply(Mat input) {
+			int nChannels = input.channels() / nFeatures;
+			int[] channels = new int[nChannels * indices.length];
+			int i = 0;
+			for (int c = 0; c < nChannels; c++) {
+				for (int ind : indices)
+					channels[i++] = c * nFeatures + ind;
+			}
+			return ImageOps.Channels.extract(channels).apply(input);
+		}
+
+		@Override
+		public String toString() {
+			return "Select features " + Arrays.toString(indices) + " of " + nFeatures;
+		}
+
+	}
+
+}
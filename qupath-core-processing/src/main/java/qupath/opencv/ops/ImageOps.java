@@ -373,6 +373,10 @@ public class ImageOps {
 			this.op = op;
 		}
 		
+		ImageOp getOp() {
+			return op;
+		}
+		
 		@Override
 		public Mat apply(ImageData<BufferedImage> imageData, RegionRequest request) throws IOException {
 			BufferedImage img;
@@ -451,6 +455,14 @@ public class ImageOps {
 			this.op = op;
 		}
 		
+		ImageOp getOp() {
+			return op;
+		}
+		
+		ChannelImageDataOp withOp(ImageOp op) {
+			return new ChannelImageDataOp(op, colorTransforms);
+		}
+		
 		@Override
 		public boolean supportsImage(ImageData<BufferedImage> imageData) {
 			for (var t : colorTransforms) {
@@ -694,7 +706,7 @@ public class ImageOps {
 		 * @since v0.3.1
 		 */
 		@OpType("sigmoid")
-		static class SigmoidOp implements ImageOp {
+		static class SigmoidOp implements PixelwiseOp {
 
 			@Override
 			public Mat apply(Mat input) {
@@ -702,6 +714,12 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = (float)sigmoid(values[i]);
+			}
+			
 		}
 		
 		private static double sigmoid(double input) {
@@ -1202,6 +1220,18 @@ public class ImageOps {
 				this.sigmaX = sigmaX;
 				this.sigmaY = sigmaY;
 			}
+			
+			List<MultiscaleFeature> getFeatures() {
+				return Collections.unmodifiableList(features);
+			}
+			
+			double getSigmaX() {
+				return sigmaX;
+			}
+			
+			double getSigmaY() {
+				return sigmaY;
+			}
 
 			@Override
 			protected Padding calculatePadding() {
@@ -1803,6 +1833,15 @@ public class ImageOps {
 			protected abstract int getReduceOp();
 
 			protected abstract String reduceName();
+			
+			/**
+			 * Reduce interleaved pixel values, giving the same result as {@link #apply(Mat)} for a 32-bit float image.
+			 * @param values the interleaved values for all channels
+			 * @param nPixels the number of pixels
+			 * @param nChannels the number of channels
+			 * @param output array to store the reduced value for each pixel
+			 */
+			protected abstract void reduceFloats(float[] values, int nPixels, int nChannels, float[] output);
 
 			@Override
 			public List<ImageChannel> getChannels(List<ImageChannel> channels) {
@@ -1826,6 +1865,16 @@ public class ImageOps {
 				return "Mean";
 			}
 			
+			@Override
+			protected void reduceFloats(float[] values, int nPixels, int nChannels, float[] output) {
+				for (int p = 0; p < nPixels; p++) {
+					double sum = 0;
+					for (int i = p * nChannels; i < (p + 1) * nChannels; i++)
+						sum += values[i];
+					output[p] = (float)(sum / nChannels);
+				}
+			}
+			
 		}
 		
 		@OpType("sum")
@@ -1841,6 +1890,16 @@ public class ImageOps {
 				return "Sum";
 			}
 			
+			@Override
+			protected void reduceFloats(float[] values, int nPixels, int nChannels, float[] output) {
+				for (int p = 0; p < nPixels; p++) {
+					double sum = 0;
+					for (int i = p * nChannels; i < (p + 1) * nChannels; i++)
+						sum += values[i];
+					output[p] = (float)sum;
+				}
+			}
+			
 		}
 		
 		@OpType("minimum")
@@ -1856,6 +1915,16 @@ public class ImageOps {
 				return "Minimum";
 			}
 			
+			@Override
+			protected void reduceFloats(float[] values, int nPixels, int nChannels, float[] output) {
+				for (int p = 0; p < nPixels; p++) {
+					float min = values[p * nChannels];
+					for (int i = p * nChannels + 1; i < (p + 1) * nChannels; i++)
+						min = Math.min(min, values[i]);
+					output[p] = min;
+				}
+			}
+			
 		}
 		
 		@OpType("maximum")
@@ -1871,6 +1940,16 @@ public class ImageOps {
 				return "Maximum";
 			}
 			
+			@Override
+			protected void reduceFloats(float[] values, int nPixels, int nChannels, float[] output) {
+				for (int p = 0; p < nPixels; p++) {
+					float max = values[p * nChannels];
+					for (int i = p * nChannels + 1; i < (p + 1) * nChannels; i++)
+						max = Math.max(max, values[i]);
+					output[p] = max;
+				}
+			}
+			
 		}
 		
 	}
@@ -2247,7 +2326,7 @@ public class ImageOps {
 		
 		
 		@OpType("identity")
-		static class IdentityOp implements ImageOp {
+		static class IdentityOp implements PixelwiseOp {
 
 			IdentityOp() {}
 			
@@ -2256,6 +2335,11 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				// Nothing to do
+			}
+			
 		}
 		
 		
@@ -2263,7 +2347,7 @@ public class ImageOps {
 		 * @since v0.3.1
 		 */
 		@OpType("clip")
-		static class ClipOp implements ImageOp {
+		static class ClipOp implements PixelwiseOp {
 			
 			private double min, max;
 			
@@ -2278,6 +2362,12 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = (float)GeneralTools.clipValue(values[i], min, max);
+			}
+			
 		}
 		
 		
@@ -2304,7 +2394,7 @@ public class ImageOps {
 		}
 		
 		@OpType("multiply")
-		static class MultiplyOp implements ImageOp {
+		static class MultiplyOp implements PixelwiseOp {
 
 			private double[] values;
 			
@@ -2329,6 +2419,16 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public boolean supportsChannels(int nChannels) {
+				return PixelwiseOps.supportsChannels(values, nChannels);
+			}
+			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				PixelwiseOps.multiply(values, length, nChannels, this.values);
+			}
+			
 		}
 		
 		@OpType("replace-values")
@@ -2351,7 +2451,7 @@ public class ImageOps {
 		}
 		
 		@OpType("replace-nans")
-		static class ReplaceNaNsOp implements ImageOp {
+		static class ReplaceNaNsOp implements PixelwiseOp {
 			
 			private double value;
 			
@@ -2365,6 +2465,15 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				float replacement = (float)value;
+				for (int i = 0; i < length; i++) {
+					if (Float.isNaN(values[i]))
+						values[i] = replacement;
+				}
+			}
+			
 		}
 		
 		
@@ -2402,7 +2511,7 @@ public class ImageOps {
 		}
 		
 		@OpType("divide")
-		static class DivideOp implements ImageOp {
+		static class DivideOp implements PixelwiseOp {
 
 			private double[] values;
 			
@@ -2427,10 +2536,20 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public boolean supportsChannels(int nChannels) {
+				return PixelwiseOps.supportsChannels(values, nChannels);
+			}
+			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				PixelwiseOps.divide(values, length, nChannels, this.values);
+			}
+			
 		}
 		
 		@OpType("add")
-		static class AddOp implements ImageOp {
+		static class AddOp implements PixelwiseOp {
 
 			private double[] values;
 			
@@ -2455,10 +2574,20 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public boolean supportsChannels(int nChannels) {
+				return PixelwiseOps.supportsChannels(values, nChannels);
+			}
+			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				PixelwiseOps.add(values, length, nChannels, this.values);
+			}
+			
 		}
 		
 		@OpType("subtract")
-		static class SubtractOp implements ImageOp {
+		static class SubtractOp implements PixelwiseOp {
 
 			private double[] values;
 			
@@ -2483,10 +2612,20 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public boolean supportsChannels(int nChannels) {
+				return PixelwiseOps.supportsChannels(values, nChannels);
+			}
+			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				PixelwiseOps.subtract(values, length, nChannels, this.values);
+			}
+			
 		}
 		
 		@OpType("sqrt")
-		static class SqrtOp implements ImageOp {
+		static class SqrtOp implements PixelwiseOp {
 			
 			@Override
 			public Mat apply(Mat input) {
@@ -2494,11 +2633,17 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = (float)Math.sqrt(values[i]);
+			}
+			
 		}
 		
 		
 		@OpType("log")
-		static class LogOp implements ImageOp {
+		static class LogOp implements PixelwiseOp {
 			
 			LogOp() {}
 			
@@ -2509,11 +2654,17 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = (float)FastMath.log(values[i]);
+			}
+			
 		}
 		
 		
 		@OpType("exp")
-		static class ExponentialOp implements ImageOp {
+		static class ExponentialOp implements PixelwiseOp {
 			
 			ExponentialOp() {}
 			
@@ -2523,10 +2674,16 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = (float)Math.exp(values[i]);
+			}
+			
 		}
 		
 		@OpType("pow")
-		static class PowerOp implements ImageOp {
+		static class PowerOp implements PixelwiseOp {
 			
 			private double power;
 			
@@ -2562,6 +2719,12 @@ public class ImageOps {
 //				return input;
 			}
 			
+			@Override
+			public void applyToFloats(float[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = (float)FastMath.pow(values[i], power);
+			}
+			
 		}
 		
 		
@@ -2575,6 +2738,10 @@ public class ImageOps {
 			SequentialMultiOp(Collection<? extends ImageOp> ops) {
 				this.ops = new ArrayList<>(ops);
 			}
+			
+			List<ImageOp> getOps() {
+				return Collections.unmodifiableList(ops);
+			}
 
 			@Override
 			protected Padding calculatePadding() {
@@ -2586,8 +2753,29 @@ public class ImageOps {
 
 			@Override
 			public Mat apply(Mat input) {
-				for (var t : ops) {
-					var output = t.apply(input);
+				int i = 0;
+				while (i < ops.size()) {
+					// Fuse consecutive pixelwise ops (and any channel reduction that follows them) 
+					// into a single pass over the pixels, where possible
+					int end = i;
+					while (end < ops.size() && PixelwiseOps.canApply(ops.get(end), input))
+						end++;
+					Mat output;
+					if (end > i) {
+						var fused = ops.subList(i, end).stream().map(PixelwiseOp.class::cast).toList();
+						if (end < ops.size() && PixelwiseOps.canReduce(ops.get(end), input)) {
+							output = PixelwiseOps.applyAndReduce(input, fused, (Channels.ReduceChannelsOp)ops.get(end));
+							end++;
+						} else {
+							PixelwiseOps.apply(input, fused);
+							output = input;
+						}
+						logger.trace("Applied {} ops in a single pass", end - i);
+						i = end;
+					} else {
+						output = ops.get(i).apply(input);
+						i++;
+					}
 					// Effectively work in-place, deallocating quickly to avoid 
 					// accumulating a lot of references and relying on the garbage collector
 					if (output != input) {
@@ -2653,12 +2841,28 @@ public class ImageOps {
 			
 			private List<ImageOp> ops;
 			
+			// Optional plan to share computations between branches; see ImageOpOptimizer
+			private transient ImageOpOptimizer.BranchPlan plan;
+			
 			SplitMergeOp(ImageOp...ops) {
 				this.ops = new ArrayList<>();
 				for (var t : ops) {
 					this.ops.add(t);
 				}
 			}
+			
+			SplitMergeOp(List<ImageOp> ops, ImageOpOptimizer.BranchPlan plan) {
+				this(ops.toArray(ImageOp[]::new));
+				this.plan = plan;
+			}
+			
+			List<ImageOp> getOps() {
+				return Collections.unmodifiableList(ops);
+			}
+			
+			ImageOpOptimizer.BranchPlan getPlan() {
+				return plan;
+			}
 
 			@Override
 			public Mat apply(Mat input) {
@@ -2688,6 +2892,15 @@ public class ImageOps {
 				if (ops.size() == 1)
 					return Collections.singletonList(ops.get(0).apply(input));
 
+				if (plan != null) {
+					try (var scope = new PointerScope()) {
+						var mats = plan.apply(input, getPadding());
+						for (var mat : mats)
+							mat.retainReference();
+						return mats;
+					}
+				}
+
 				try (var scope = new PointerScope()) {
 					var mats = new ArrayList<Mat>();
 					// Remember we padded all branches the same - but some may have needed more or less than others
@@ -2764,6 +2977,18 @@ public class ImageOps {
 					this.op2 = op2;
 				this.combine = combine;
 			}
+			
+			ImageOp getOp1() {
+				return op1;
+			}
+			
+			ImageOp getOp2() {
+				return op2;
+			}
+			
+			SplitCombineOp withOps(ImageOp op1, ImageOp op2) {
+				return new SplitCombineOp(op1, op2, combine);
+			}
 
 			@Override
 			public Mat apply(Mat input) {
@@ -0,0 +1,52 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ops;
+
+/**
+ * An {@link ImageOp} that transforms each pixel value independently, and without changing the number of channels.
+ * <p>
+ * Ops of this kind can be applied directly to a float array, which makes it possible to fuse several of them
+ * into a single pass over the pixels of an image.
+ *
+ * @see PixelwiseOps
+ */
+interface PixelwiseOp extends ImageOp {
+
+	/**
+	 * Query whether the op can be applied to an image with the specified number of channels.
+	 * @param nChannels
+	 * @return
+	 */
+	default boolean supportsChannels(int nChannels) {
+		return true;
+	}
+
+	/**
+	 * Apply the op in-place to interleaved pixel values.
+	 * The first value always belongs to the first channel, and the length is always a multiple of the number of channels.
+	 * @param values the pixel values
+	 * @param length the number of values to transform
+	 * @param nChannels the number of channels
+	 */
+	void applyToFloats(float[] values, int length, int nChannels);
+
+}
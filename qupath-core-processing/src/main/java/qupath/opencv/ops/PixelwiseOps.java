@@ -0,0 +1,195 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ops;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * Helper methods to apply a sequence of {@link PixelwiseOp} in a single pass over a 32-bit float image.
+ * <p>
+ * Pixels are copied in small chunks into a float array that fits comfortably in the cache,
+ * all ops are applied to the chunk, and the result is copied back.
+ * This avoids creating an intermediate image for each op, and keeps the inner loops simple enough
+ * to be vectorized by the JIT compiler.
+ * If the ops are followed by a {@link ImageOps.Channels.ReduceChannelsOp}, this can be applied in the same pass.
+ */
+final class PixelwiseOps {
+
+	/**
+	 * Approximate number of values in each chunk.
+	 */
+	private static final int CHUNK_SIZE = 4096;
+
+	private PixelwiseOps() {
+		throw new AssertionError("Cannot instantiate this class");
+	}
+
+	/**
+	 * Query whether an op can be applied using {@link #apply(Mat, List)}.
+	 * @param op
+	 * @param mat
+	 * @return true if the op is a {@link PixelwiseOp} that supports the Mat
+	 */
+	static boolean canApply(ImageOp op, Mat mat) {
+		return op instanceof PixelwiseOp pixelwiseOp && isSupported(mat) && pixelwiseOp.supportsChannels(mat.channels());
+	}
+
+	/**
+	 * Query whether an op can be applied using {@link #applyAndReduce(Mat, List, ImageOps.Channels.ReduceChannelsOp)}.
+	 * @param op
+	 * @param mat
+	 * @return true if the op reduces the channels of the Mat
+	 */
+	static boolean canReduce(ImageOp op, Mat mat) {
+		return op instanceof ImageOps.Channels.ReduceChannelsOp && isSupported(mat) && mat.channels() > 1;
+	}
+
+	private static boolean isSupported(Mat mat) {
+		return mat.depth() == opencv_core.CV_32F && mat.isContinuous() && mat.dims() <= 2;
+	}
+
+	/**
+	 * Apply a sequence of ops in-place, using a single pass over the pixels.
+	 * @param mat a continuous 32-bit float Mat
+	 * @param ops the ops to apply
+	 */
+	static void apply(Mat mat, List<? extends PixelwiseOp> ops) {
+		int nChannels = mat.channels();
+		long n = mat.total() * nChannels;
+		if (n == 0 || ops.isEmpty())
+			return;
+		FloatBuffer buffer = mat.createBuffer();
+		float[] chunk = new float[chunkLength(nChannels)];
+		for (int from = 0; from < n; from += chunk.length) {
+			int length = (int)Math.min(chunk.length, n - from);
+			buffer.get(from, chunk, 0, length);
+			for (var op : ops)
+				op.applyToFloats(chunk, length, nChannels);
+			buffer.put(from, chunk, 0, length);
+		}
+	}
+
+	/**
+	 * Apply a sequence of ops followed by a channel reduction, using a single pass over the pixels.
+	 * The input is not modified.
+	 * @param mat a continuous 32-bit float Mat
+	 * @param ops the ops to apply before the reduction
+	 * @param reduceOp the op used to reduce the channels
+	 * @return a new single-channel 32-bit float Mat
+	 */
+	static Mat applyAndReduce(Mat mat, List<? extends PixelwiseOp> ops, ImageOps.Channels.ReduceChannelsOp reduceOp) {
+		int nChannels = mat.channels();
+		var output = new Mat(mat.rows(), mat.cols(), opencv_core.CV_32FC1);
+		long n = mat.total() * nChannels;
+		if (n == 0)
+			return output;
+		FloatBuffer bufferInput = mat.createBuffer();
+		FloatBuffer bufferOutput = output.createBuffer();
+		float[] chunk = new float[chunkLength(nChannels)];
+		float[] reduced = new float[chunk.length / nChannels];
+		for (int from = 0; from < n; from += chunk.length) {
+			int length = (int)Math.min(chunk.length, n - from);
+			bufferInput.get(from, chunk, 0, length);
+			for (var op : ops)
+				op.applyToFloats(chunk, length, nChannels);
+			int nPixels = length / nChannels;
+			reduceOp.reduceFloats(chunk, nPixels, nChannels, reduced);
+			bufferOutput.put(from / nChannels, reduced, 0, nPixels);
+		}
+		return output;
+	}
+
+	private static int chunkLength(int nChannels) {
+		return Math.max(1, CHUNK_SIZE / nChannels) * nChannels;
+	}
+
+	/**
+	 * Query whether an op with the specified values can be applied to an image with a specified number of channels.
+	 * @param values either a single value, or one value per channel
+	 * @param nChannels
+	 * @return
+	 */
+	static boolean supportsChannels(double[] values, int nChannels) {
+		return values.length == 1 || values.length == nChannels;
+	}
+
+	static void add(float[] values, int length, int nChannels, double[] addends) {
+		if (addends.length == 1) {
+			float a = (float)addends[0];
+			for (int i = 0; i < length; i++)
+				values[i] += a;
+		} else {
+			for (int c = 0; c < nChannels; c++) {
+				float a = (float)addends[c];
+				for (int i = c; i < length; i += nChannels)
+					values[i] += a;
+			}
+		}
+	}
+
+	static void subtract(float[] values, int length, int nChannels, double[] subtrahends) {
+		if (subtrahends.length == 1) {
+			float a = (float)subtrahends[0];
+			for (int i = 0; i < length; i++)
+				values[i] -= a;
+		} else {
+			for (int c = 0; c < nChannels; c++) {
+				float a = (float)subtrahends[c];
+				for (int i = c; i < length; i += nChannels)
+					values[i] -= a;
+			}
+		}
+	}
+
+	static void multiply(float[] values, int length, int nChannels, double[] factors) {
+		if (factors.length == 1) {
+			float a = (float)factors[0];
+			for (int i = 0; i < length; i++)
+				values[i] *= a;
+		} else {
+			for (int c = 0; c < nChannels; c++) {
+				float a = (float)factors[c];
+				for (int i = c; i < length; i += nChannels)
+					values[i] *= a;
+			}
+		}
+	}
+
+	static void divide(float[] values, int length, int nChannels, double[] divisors) {
+		if (divisors.length == 1) {
+			float a = (float)divisors[0];
+			for (int i = 0; i < length; i++)
+				values[i] /= a;
+		} else {
+			for (int c = 0; c < nChannels; c++) {
+				float a = (float)divisors[c];
+				for (int i = c; i < length; i += nChannels)
+					values[i] /= a;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,194 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.dnn;
+
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestBatchingDnnModel {
+
+	/**
+	 * Blob function that stacks the rows of all input mats.
+	 */
+	private static class StackingBlobFunction implements BlobFunction<Mat> {
+
+		@Override
+		public Mat toBlob(Mat... mats) {
+			var blob = new Mat();
+			opencv_core.vconcat(new MatVector(mats), blob);
+			return blob;
+		}
+
+		@Override
+		public List<Mat> fromBlob(Mat blob) {
+			return IntStream.range(0, blob.rows()).mapToObj(r -> blob.row(r).clone()).toList();
+		}
+
+	}
+
+	/**
+	 * Prediction function that doubles its input, and records the batch sizes it has seen.
+	 */
+	private static class DoublingPredictionFunction implements PredictionFunction<Mat> {
+
+		private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public Mat predict(Mat input) {
+			batchSizes.add(input.rows());
+			return opencv_core.multiply(input, 2.0).asMat();
+		}
+
+		@Override
+		public Map<String, DnnShape> getInputs() {
+			return Map.of(DEFAULT_INPUT_NAME, DnnShape.UNKNOWN_SHAPE);
+		}
+
+		@Override
+		public Map<String, DnnShape> getOutputs(DnnShape... inputShapes) {
+			return Map.of(DEFAULT_OUTPUT_NAME, DnnShape.UNKNOWN_SHAPE);
+		}
+
+	}
+
+	private static Mat createMat(int cols, float value) {
+		return new Mat(1, cols, opencv_core.CV_32FC1, Scalar.all(value));
+	}
+
+	private static float getValue(Mat mat) {
+		try (FloatIndexer idx = mat.createIndexer()) {
+			return idx.get(0, 0);
+		}
+	}
+
+	@Test
+	void testConcurrentPredictions() throws Exception {
+		var predictionFunction = new DoublingPredictionFunction();
+		var model = new DefaultDnnModel<>(new StackingBlobFunction(), predictionFunction);
+		int maxBatchSize = 8;
+		var batchingModel = (BatchingDnnModel<?>)DnnModels.createBatchingModel(model, maxBatchSize, 200);
+
+		int n = 32;
+		var pool = Executors.newFixedThreadPool(n);
+		var latch = new CountDownLatch(1);
+		List<Future<Mat>> futures = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			// Use two different input sizes, which can't be combined in the same batch
+			var input = createMat(1 + i % 2, i);
+			futures.add(pool.submit(() -> {
+				latch.await();
+				return batchingModel.predict(input);
+			}));
+		}
+		latch.countDown();
+		for (int i = 0; i < n; i++) {
+			var output = futures.get(i).get();
+			assertEquals(1 + i % 2, output.cols());
+			assertEquals(i * 2f, getValue(output));
+		}
+		pool.shutdown();
+
+		var stats = batchingModel.getStatistics();
+		assertEquals(n, stats.nRequests());
+		assertEquals(predictionFunction.batchSizes.size(), stats.nBatches());
+		assertTrue(stats.nBatches() < n);
+		for (int batchSize : predictionFunction.batchSizes)
+			assertTrue(batchSize <= maxBatchSize);
+		assertTrue(stats.getMeanBatchFill() > 0 && stats.getMeanBatchFill() <= 1);
+
+		// Batch predictions should be split into single inputs, so they can be combined with others
+		var outputs = batchingModel.batchPredict(List.of(createMat(1, 1), createMat(1, 2), createMat(1, 3)));
+		assertEquals(3, outputs.size());
+		for (int i = 0; i < 3; i++)
+			assertEquals((i + 1) * 2f, getValue(outputs.get(i)));
+
+		batchingModel.close();
+	}
+
+	@Test
+	void testErrorsArePassedToCallers() throws Exception {
+		var model = new DefaultDnnModel<>(new StackingBlobFunction(), new DoublingPredictionFunction() {
+			@Override
+			public Mat predict(Mat input) {
+				throw new IllegalArgumentException("Prediction failed");
+			}
+		});
+		var batchingModel = DnnModels.createBatchingModel(model, 4, 0);
+		assertThrows(IllegalArgumentException.class, () -> batchingModel.predict(createMat(1, 1)));
+		// The model should still be usable afterwards
+		assertThrows(IllegalArgumentException.class, () -> batchingModel.predict(createMat(1, 1)));
+		batchingModel.close();
+	}
+
+	@Test
+	void testPredictAfterClose() throws Exception {
+		var model = new DefaultDnnModel<>(new StackingBlobFunction(), new DoublingPredictionFunction());
+		var batchingModel = DnnModels.createBatchingModel(model, 4, 0);
+		assertEquals(2f, getValue(batchingModel.predict(createMat(1, 1))));
+		batchingModel.close();
+		// A new dispatcher shouldn't be started for the closed model
+		assertThrows(IllegalStateException.class, () -> batchingModel.predict(createMat(1, 1)));
+		assertThrows(IllegalStateException.class, () -> batchingModel.batchPredict(List.of(createMat(1, 1))));
+	}
+
+	@Test
+	void testCloseWhileFillingBatch() throws Exception {
+		// Use a long delay, so that the batch is still being filled when the model is closed
+		var model = new DefaultDnnModel<>(new StackingBlobFunction(), new DoublingPredictionFunction());
+		var batchingModel = DnnModels.createBatchingModel(model, 8, 60_000);
+		var pool = Executors.newSingleThreadExecutor();
+		var future = pool.submit(() -> batchingModel.predict(createMat(1, 1)));
+		// Wait until the request has been taken from the queue by the dispatcher
+		Thread.sleep(200);
+		batchingModel.close();
+		var e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof IllegalStateException);
+		pool.shutdown();
+	}
+
+	@Test
+	void testUnsupportedModel() {
+		DnnModel model = blobs -> blobs;
+		assertFalse(DnnModels.createBatchingModel(model, 4, 10) instanceof BatchingDnnModel);
+	}
+
+}
@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ml.pixel;
+
+import org.junit.jupiter.api.Test;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerMetadata;
+import qupath.lib.images.servers.ImageServerMetadata.ChannelType;
+import qupath.lib.images.servers.ImageServers;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestPixelClassificationMeasurementManager {
+
+	private static BufferedImage createLabelImage(int width, int height) {
+		var img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		var raster = img.getRaster();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				raster.setSample(x, y, 0, ((x / 7) + (y / 5)) % 4);
+			}
+		}
+		return img;
+	}
+
+	private static ImageServer<BufferedImage> createClassificationServer(BufferedImage img) {
+		var classificationLabels = new LinkedHashMap<Integer, PathClass>();
+		classificationLabels.put(0, PathClass.getInstance("Ignore*"));
+		classificationLabels.put(1, PathClass.getInstance("Class 1"));
+		classificationLabels.put(2, PathClass.getInstance("Class 2"));
+		// Label 3 is deliberately missing, so is only included in the total area
+		ImageServer<BufferedImage> server = new WrappedBufferedImageServer(UUID.randomUUID().toString(), img);
+		server.setMetadata(
+				new ImageServerMetadata.Builder(server.getOriginalMetadata())
+						.channelType(ChannelType.CLASSIFICATION)
+						.classificationLabels(classificationLabels)
+						.build()
+		);
+		// Use small tiles, so that most objects cross tile boundaries
+		return ImageServers.pyramidalizeTiled(server, 64, 64, 1.0);
+	}
+
+	private static List<PathObject> createAnnotations(int width, int height) {
+		var random = new Random(100L);
+		var plane = ImagePlane.getDefaultPlane();
+		List<PathObject> annotations = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			double x = random.nextDouble() * (width - 50);
+			double y = random.nextDouble() * (height - 50);
+			double w = 1 + random.nextDouble() * 40;
+			double h = 1 + random.nextDouble() * 40;
+			var roi = switch (i % 3) {
+				case 0 -> ROIs.createRectangleROI(x, y, w, h, plane);
+				case 1 -> ROIs.createEllipseROI(x, y, w, h, plane);
+				default -> ROIs.createPolygonROI(new double[]{x, x + w, x + w / 3}, new double[]{y, y + h / 2, y + h}, plane);
+			};
+			annotations.add(PathObjects.createAnnotationObject(roi));
+		}
+		// Include a large annotation that completely contains some tiles
+		annotations.add(PathObjects.createAnnotationObject(ROIs.createRectangleROI(10, 10, width - 20, height - 20, plane)));
+		return annotations;
+	}
+
+	@Test
+	void testTileMeasurementsMatchIndividualMeasurements() throws Exception {
+		int width = 300;
+		int height = 200;
+		var img = createLabelImage(width, height);
+		var annotations = createAnnotations(width, height);
+
+		// Use different servers, so that cached measurements aren't shared
+		try (var serverBatch = createClassificationServer(img);
+			 var serverIndividual = createClassificationServer(img)) {
+			var managerBatch = new PixelClassificationMeasurementManager(serverBatch);
+			var managerIndividual = new PixelClassificationMeasurementManager(serverIndividual);
+			assertTrue(managerBatch.addMeasurements(annotations, null));
+
+			var names = managerBatch.getMeasurementNames();
+			assertFalse(names.isEmpty());
+			assertEquals(names, managerIndividual.getMeasurementNames());
+			for (var annotation : annotations) {
+				var ml = annotation.getMeasurementList();
+				for (var name : names) {
+					var expected = managerIndividual.getMeasurementValue(annotation.getROI(), name);
+					assertEquals(expected.doubleValue(), ml.get(name), 1e-9, name + " for " + annotation.getROI());
+				}
+			}
+		}
+	}
+
+	@Test
+	void testTileMeasurementsCountPixels() throws Exception {
+		int width = 300;
+		int height = 200;
+		var img = createLabelImage(width, height);
+		var raster = img.getRaster();
+		var plane = ImagePlane.getDefaultPlane();
+
+		// Rectangles with integer coordinates should contain exactly the pixels inside them
+		List<PathObject> annotations = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			annotations.add(PathObjects.createAnnotationObject(ROIs.createRectangleROI(i * 13, i * 7, 30 + i, 45 - i, plane)));
+
+		try (var server = createClassificationServer(img)) {
+			var manager = new PixelClassificationMeasurementManager(server);
+			assertTrue(manager.addMeasurements(annotations, "Test"));
+			for (var annotation : annotations) {
+				var roi = annotation.getROI();
+				long[] counts = new long[4];
+				for (int y = (int)roi.getBoundsY(); y < roi.getBoundsY() + roi.getBoundsHeight(); y++) {
+					for (int x = (int)roi.getBoundsX(); x < roi.getBoundsX() + roi.getBoundsWidth(); x++)
+						counts[raster.getSample(x, y, 0)]++;
+				}
+				var ml = annotation.getMeasurementList();
+				assertEquals(counts[1], ml.get("Test: Class 1 area px^2"));
+				assertEquals(counts[2], ml.get("Test: Class 2 area px^2"));
+				assertEquals(counts[1] + counts[2], ml.get("Test: Total annotated area px^2"));
+				assertEquals(counts[0] + counts[1] + counts[2] + counts[3], ml.get("Test: Total quantified area px^2"));
+			}
+		}
+	}
+
+	@Test
+	void testSubPixelMeasurementsAreZero() throws Exception {
+		int width = 300;
+		int height = 200;
+		var img = createLabelImage(width, height);
+		var plane = ImagePlane.getDefaultPlane();
+
+		// These ROIs don't contain any pixel centers, so shouldn't contain any pixels
+		List<PathObject> annotations = new ArrayList<>();
+		annotations.add(PathObjects.createAnnotationObject(ROIs.createRectangleROI(10.6, 10.6, 0.3, 0.3, plane)));
+		annotations.add(PathObjects.createAnnotationObject(ROIs.createEllipseROI(63.6, 20.6, 0.5, 0.5, plane)));
+		annotations.add(PathObjects.createAnnotationObject(ROIs.createRectangleROI(100, 50, 20, 20, plane)));
+
+		try (var serverBatch = createClassificationServer(img);
+			 var serverIndividual = createClassificationServer(img)) {
+			var managerBatch = new PixelClassificationMeasurementManager(serverBatch);
+			var managerIndividual = new PixelClassificationMeasurementManager(serverIndividual);
+			assertTrue(managerBatch.addMeasurements(annotations, null));
+			for (var annotation : annotations.subList(0, 2)) {
+				var ml = annotation.getMeasurementList();
+				for (var name : List.of("Class 1 area px^2", "Class 2 area px^2", "Total annotated area px^2", "Total quantified area px^2")) {
+					assertEquals(0.0, ml.get(name), name + " for " + annotation.getROI());
+					assertEquals(0.0, managerIndividual.getMeasurementValue(annotation.getROI(), name).doubleValue(),
+							name + " for " + annotation.getROI());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ops;
+
+import org.bytedeco.javacpp.PointerScope;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.junit.jupiter.api.Test;
+import qupath.lib.images.servers.ColorTransforms;
+import qupath.lib.io.GsonTools;
+import qupath.opencv.tools.MultiscaleFeatures.MultiscaleFeature;
+import qupath.opencv.tools.OpenCVTools;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestImageOpOptimizer {
+
+	@Test
+	public void testSharedBranches() {
+		var op = ImageOps.Core.splitMerge(
+				ImageOps.Core.sequential(ImageOps.Filters.gaussianBlur(2.0), ImageOps.Core.multiply(2.0)),
+				ImageOps.Core.sequential(ImageOps.Filters.gaussianBlur(2.0), ImageOps.Filters.maximum(3)),
+				ImageOps.Core.sequential(ImageOps.Filters.gaussianBlur(2.0), ImageOps.Core.multiply(2.0)),
+				ImageOps.Filters.gaussianBlur(4.0),
+				ImageOps.Core.identity()
+				);
+		checkOptimized(op, 2);
+	}
+
+	@Test
+	public void testSharedMultiscaleFeatures() {
+		var op = ImageOps.Core.sequential(
+				ImageOps.Filters.gaussianBlur(1.0),
+				ImageOps.Core.splitMerge(
+					ImageOps.Filters.features(List.of(MultiscaleFeature.GAUSSIAN, MultiscaleFeature.LAPLACIAN), 2.0, 2.0),
+					ImageOps.Filters.features(List.of(MultiscaleFeature.GRADIENT_MAGNITUDE, MultiscaleFeature.GAUSSIAN), 2.0, 2.0),
+					ImageOps.Filters.features(List.of(MultiscaleFeature.GAUSSIAN), 4.0, 4.0),
+					ImageOps.Core.sequential(
+							ImageOps.Filters.features(List.of(MultiscaleFeature.HESSIAN_DETERMINANT), 2.0, 2.0),
+							ImageOps.Core.sqrt())
+					)
+				);
+		checkOptimized(op, 3);
+	}
+
+	@Test
+	public void testUnchanged() {
+		var op = ImageOps.Core.splitMerge(
+				ImageOps.Filters.gaussianBlur(1.0),
+				ImageOps.Filters.gaussianBlur(2.0)
+				);
+		assertSame(op, ImageOpOptimizer.optimize(op));
+
+		var dataOp = ImageOps.buildImageDataOp().appendOps(op);
+		assertSame(dataOp, ImageOpOptimizer.optimize(dataOp));
+	}
+
+	@Test
+	public void testDataOp() {
+		var dataOp = ImageOps.buildImageDataOp(
+				ColorTransforms.createChannelExtractor(0),
+				ColorTransforms.createChannelExtractor(2)).appendOps(
+				ImageOps.Core.splitMerge(
+						ImageOps.Filters.gaussianBlur(2.0),
+						ImageOps.Filters.gaussianBlur(2.0)
+						));
+		var optimized = ImageOpOptimizer.optimize(dataOp);
+		assertNotSame(dataOp, optimized);
+		var gson = GsonTools.getInstance();
+		assertEquals(gson.toJson(dataOp, ImageDataOp.class), gson.toJson(optimized, ImageDataOp.class));
+	}
+
+	/**
+	 * Check that an optimized op has the same JSON representation and output as the original op,
+	 * and is expected to be faster.
+	 */
+	private static void checkOptimized(ImageOp op, int nChannels) {
+		var optimized = ImageOpOptimizer.optimize(op);
+		assertNotSame(op, optimized);
+
+		var gson = GsonTools.getInstance();
+		assertEquals(gson.toJson(op, ImageOp.class), gson.toJson(optimized, ImageOp.class));
+		assertTrue(ImageOpOptimizer.estimateFlopsPerPixel(optimized) < ImageOpOptimizer.estimateFlopsPerPixel(op));
+		assertEquals(op.getPadding().toString(), optimized.getPadding().toString());
+
+		try (var scope = new PointerScope()) {
+			opencv_core.setRNGSeed(42);
+			var mat = new Mat(64, 80, opencv_core.CV_32FC(nChannels), Scalar.all(10.0));
+			OpenCVTools.addNoise(mat, 0, 5.0);
+			var expected = ImageOps.padAndApply(op, mat.clone());
+			var actual = ImageOps.padAndApply(optimized, mat.clone());
+			assertEquals(expected.channels(), actual.channels());
+			assertArrayEquals(OpenCVTools.extractDoubles(expected), OpenCVTools.extractDoubles(actual), 1e-5);
+		}
+	}
+
+}
@@ -35,6 +35,7 @@ import qupath.opencv.tools.OpenCVTools;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -470,6 +471,69 @@ public class TestImageOps {
 	
 	
 	
+	@Test
+	public void testFusedPixelwiseOps() {
+		try (var scope = new PointerScope()) {
+			var mat = createZerosMat(67, 3);
+			addNoise(mat, 100);
+			
+			// Chains of pixelwise ops are applied in a single pass, and should give the same result as applying each op in turn
+			var opsArithmetic = Arrays.asList(
+					ImageOps.Core.multiply(2.0, 0.5, -1.0),
+					ImageOps.Core.add(10.0),
+					ImageOps.Core.subtract(1.0, 2.0, 3.0),
+					ImageOps.Core.divide(4.0),
+					ImageOps.Core.sqrt(),
+					ImageOps.Core.log(),
+					ImageOps.Core.power(1.5),
+					ImageOps.Core.replaceNaNs(-1.0)
+					);
+			checkSequentialMatchesIndividual(mat, opsArithmetic, 1e-5);
+			
+			var opsNormalize = Arrays.asList(
+					ImageOps.Core.identity(),
+					ImageOps.Core.exp(),
+					ImageOps.Normalize.sigmoid(),
+					ImageOps.Core.clip(0.6, 0.9)
+					);
+			checkSequentialMatchesIndividual(mat, opsNormalize, 1e-5);
+			
+			// Channel reductions can be fused with the preceding ops
+			for (var reduceOp : Arrays.asList(ImageOps.Channels.mean(), ImageOps.Channels.sum(), ImageOps.Channels.minimum(), ImageOps.Channels.maximum())) {
+				var ops = new ArrayList<>(opsArithmetic);
+				ops.add(reduceOp);
+				ops.add(ImageOps.Core.multiply(3.0));
+				checkSequentialMatchesIndividual(mat, ops, 1e-5);
+			}
+			
+			// Non-float images and ops that are not pixelwise should still be handled
+			var matInt = new Mat();
+			mat.convertTo(matInt, opencv_core.CV_8U, 100, 0);
+			checkSequentialMatchesIndividual(matInt, opsArithmetic.subList(0, 3), 1e-5);
+			checkSequentialMatchesIndividual(mat, Arrays.asList(
+					ImageOps.Core.add(1.0),
+					ImageOps.Filters.gaussianBlur(2.0),
+					ImageOps.Core.multiply(2.0),
+					ImageOps.Channels.extract(0, 2),
+					ImageOps.Core.add(1.0, 2.0)
+					), 1e-5);
+			
+			// Per-channel values must still match the number of channels
+			assertThrows(IllegalArgumentException.class, () -> ImageOps.Core.sequential(
+					ImageOps.Core.add(1.0), ImageOps.Core.multiply(1.0, 2.0)).apply(mat.clone()));
+		}
+	}
+	
+	private static void checkSequentialMatchesIndividual(Mat mat, List<ImageOp> ops, double tol) {
+		var expected = mat.clone();
+		for (var op : ops)
+			expected = op.apply(expected);
+		var actual = ImageOps.Core.sequential(ops).apply(mat.clone());
+		assertEquals(expected.type(), actual.type());
+		assertTrue(matsEqual(expected, actual, tol));
+	}
+	
+	
 	/**
 	 * Compare if two Mats are equal in terms of dimensions and values.
 	 * @param m1
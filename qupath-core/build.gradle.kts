@@ -2,6 +2,7 @@ plugins {
   id("qupath.common-conventions")
   id("qupath.publishing-conventions")
   `java-library`
+  alias(libs.plugins.jmh)
 }
 
 extra["moduleName"] = "qupath.core"
@@ -18,4 +19,9 @@ dependencies {
   implementation(libs.commons.math)
   implementation(libs.picocli)
   implementation(libs.imagej)
-}
\ No newline at end of file
+}
+
+// Run benchmarks with gradlew :qupath-core:jmh
+jmh {
+  jmhVersion = libs.versions.jmh
+}
@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import qupath.lib.images.ImageData;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare drawing labeled image tiles with {@link java.awt.Graphics2D} and with the scanline fill
+ * used by default in {@link LabeledImageServer}.
+ * <p>
+ * Cells are packed densely over a 4096 x 4096 pixel image, and every tile is requested at full resolution
+ * to avoid measuring the time taken to read from a cache.
+ * <p>
+ * Run with {@code gradlew :qupath-core:jmh}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class LabeledImageServerBenchmark {
+
+	private static final int SIZE = 4096;
+	private static final int CELL_SPACING = 16;
+
+	/**
+	 * Type of labels to create.
+	 */
+	public enum Labels {
+		/**
+		 * Classification labels, with a boundary label for the cells.
+		 */
+		CLASSES,
+		/**
+		 * Unique instance labels for each cell, as used for training instance segmentation.
+		 */
+		INSTANCES
+	}
+
+	@Param({"true", "false"})
+	public boolean useGraphics2D;
+
+	@Param({"CLASSES", "INSTANCES"})
+	public Labels labels;
+
+	@Param({"1", "4"})
+	public double downsample;
+
+	private LabeledImageServer server;
+	private List<TileRequest> tiles;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		var imageData = new ImageData<>(new WrappedBufferedImageServer("benchmark",
+				new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_GRAY)));
+		var tumor = PathClass.fromString("Tumor");
+		var stroma = PathClass.fromString("Stroma");
+		var rng = new Random(42);
+		List<PathObject> cells = new ArrayList<>();
+		for (int y = 0; y < SIZE; y += CELL_SPACING) {
+			for (int x = 0; x < SIZE; x += CELL_SPACING) {
+				double cx = x + CELL_SPACING / 2.0;
+				double cy = y + CELL_SPACING / 2.0;
+				var roiCell = createPolygon(cx, cy, CELL_SPACING * 0.6, rng);
+				var roiNucleus = createPolygon(cx, cy, CELL_SPACING * 0.3, rng);
+				cells.add(PathObjects.createCellObject(roiCell, roiNucleus, rng.nextBoolean() ? tumor : stroma));
+			}
+		}
+		imageData.getHierarchy().addObjects(cells);
+
+		var builder = new LabeledImageServer.Builder(imageData)
+				.useCells()
+				.downsample(downsample)
+				.tileSize(512)
+				.lineThickness(2)
+				.useGraphics2D(useGraphics2D);
+		builder = switch (labels) {
+			case CLASSES -> builder
+					.backgroundLabel(0)
+					.addLabel(tumor, 1)
+					.addLabel(stroma, 2)
+					.setBoundaryLabel("Boundary", 3);
+			case INSTANCES -> builder.useInstanceLabels();
+		};
+		server = builder.build();
+		tiles = new ArrayList<>(server.getTileRequestManager().getTileRequestsForLevel(0));
+	}
+
+	private static ROI createPolygon(double cx, double cy, double radius, Random rng) {
+		int n = 24;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			double theta = 2 * Math.PI * i / n;
+			double r = radius * (0.8 + rng.nextDouble() * 0.2);
+			x[i] = cx + Math.cos(theta) * r;
+			y[i] = cy + Math.sin(theta) * r;
+		}
+		return ROIs.createPolygonROI(x, y);
+	}
+
+	/**
+	 * Time required to create all the tiles for the image.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void readTiles(Blackhole blackhole) throws IOException {
+		for (var tile : tiles)
+			blackhole.consume(server.readTile(tile));
+	}
+
+}
@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.SpatialIndex;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the JTS Quadtree with the packed Hilbert R-tree used by {@link PathObjectTileCache}.
+ * <p>
+ * Objects are distributed randomly over a 200,000 x 100,000 pixel image, with sizes similar to cells.
+ * Queries request a region similar to a viewer showing the image at full resolution.
+ * <p>
+ * Run with {@code gradlew :qupath-core:jmh}; the 10 million object case requires a large heap.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xmx16g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SpatialIndexBenchmark {
+
+	private static final double WIDTH = 200_000;
+	private static final double HEIGHT = 100_000;
+
+	@Param({"1000000", "10000000"})
+	public int nObjects;
+
+	@Param({"QUADTREE", "HILBERT_RTREE"})
+	public PathObjectTileCache.SpatialIndexType indexType;
+
+	private List<Envelope> envelopes;
+	private Envelope[] queries;
+	private SpatialIndex index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		var rng = new Random(42);
+		envelopes = new ArrayList<>(nObjects);
+		for (int i = 0; i < nObjects; i++) {
+			double x = rng.nextDouble() * WIDTH;
+			double y = rng.nextDouble() * HEIGHT;
+			envelopes.add(new Envelope(x, x + 5 + rng.nextDouble() * 20, y, y + 5 + rng.nextDouble() * 20));
+		}
+		queries = new Envelope[1024];
+		for (int i = 0; i < queries.length; i++) {
+			double x = rng.nextDouble() * (WIDTH - 2000);
+			double y = rng.nextDouble() * (HEIGHT - 1000);
+			queries[i] = new Envelope(x, x + 2000, y, y + 1000);
+		}
+		index = build();
+	}
+
+	private SpatialIndex build() {
+		return switch (indexType) {
+			case QUADTREE -> {
+				var quadtree = new Quadtree();
+				for (var env : envelopes)
+					quadtree.insert(env, env);
+				yield quadtree;
+			}
+			case HILBERT_RTREE -> HilbertRTree.create(envelopes, SpatialIndexBenchmark::getBounds);
+		};
+	}
+
+	private static void getBounds(Envelope env, double[] bounds, int offset) {
+		bounds[offset] = env.getMinX();
+		bounds[offset+1] = env.getMinY();
+		bounds[offset+2] = env.getMaxX();
+		bounds[offset+3] = env.getMaxY();
+	}
+
+	/**
+	 * Time required to build the index from scratch, as needed after the hierarchy structure changes.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public SpatialIndex buildIndex() {
+		return build();
+	}
+
+	/**
+	 * Throughput of viewport-sized queries.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void query(Blackhole blackhole) {
+		for (var query : queries)
+			index.query(query, blackhole::consume);
+	}
+
+	/**
+	 * Throughput of viewport-sized queries from multiple threads, e.g. when painting tiles in parallel.
+	 * Note that the Quadtree itself isn't locked here; in the tile cache it requires a read lock.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Threads(4)
+	public void queryConcurrent(Blackhole blackhole) {
+		for (var query : queries)
+			index.query(query, blackhole::consume);
+	}
+
+	/**
+	 * Time to insert and then remove an object, as happens when an object is edited.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean insertRemove() {
+		var env = queries[0];
+		index.insert(env, env);
+		return index.remove(env, env);
+	}
+
+}
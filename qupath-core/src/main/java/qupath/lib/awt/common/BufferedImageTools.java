@@ -45,8 +45,17 @@ import java.awt.Shape;
 import java.awt.image.BandedSampleModel;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.stream.IntStream;
@@ -391,6 +400,85 @@ public final class BufferedImageTools {
 		}
 	}
 	
+	/**
+	 * Write the values in all banks of a DataBuffer.
+	 * This can be used with {@link #readDataBuffer(DataInput, DataBuffer)} to store pixels temporarily,
+	 * e.g. when writing tiles to disk to reduce memory use.
+	 * @param buffer the buffer to write; this must be one of the standard DataBuffer subclasses
+	 * @param output the output to write to
+	 * @throws IOException if the values could not be written, or the buffer is not supported
+	 * @since v0.8.0
+	 */
+	public static void writeDataBuffer(DataBuffer buffer, DataOutput output) throws IOException {
+		for (int b = 0; b < buffer.getNumBanks(); b++) {
+			switch (buffer) {
+				case DataBufferByte db -> output.write(db.getData(b));
+				case DataBufferUShort db -> {
+					for (short v : db.getData(b))
+						output.writeShort(v);
+				}
+				case DataBufferShort db -> {
+					for (short v : db.getData(b))
+						output.writeShort(v);
+				}
+				case DataBufferInt db -> {
+					for (int v : db.getData(b))
+						output.writeInt(v);
+				}
+				case DataBufferFloat db -> {
+					for (float v : db.getData(b))
+						output.writeFloat(v);
+				}
+				case DataBufferDouble db -> {
+					for (double v : db.getData(b))
+						output.writeDouble(v);
+				}
+				default -> throw new IOException("Unsupported data buffer " + buffer);
+			}
+		}
+	}
+	
+	/**
+	 * Read values written by {@link #writeDataBuffer(DataBuffer, DataOutput)} into all banks of a DataBuffer.
+	 * @param input the input to read from
+	 * @param buffer the buffer to fill; this must have the same type, size and number of banks as the buffer that was written
+	 * @throws IOException if the values could not be read, or the buffer is not supported
+	 * @since v0.8.0
+	 */
+	public static void readDataBuffer(DataInput input, DataBuffer buffer) throws IOException {
+		for (int b = 0; b < buffer.getNumBanks(); b++) {
+			switch (buffer) {
+				case DataBufferByte db -> input.readFully(db.getData(b));
+				case DataBufferUShort db -> {
+					var data = db.getData(b);
+					for (int i = 0; i < data.length; i++)
+						data[i] = input.readShort();
+				}
+				case DataBufferShort db -> {
+					var data = db.getData(b);
+					for (int i = 0; i < data.length; i++)
+						data[i] = input.readShort();
+				}
+				case DataBufferInt db -> {
+					var data = db.getData(b);
+					for (int i = 0; i < data.length; i++)
+						data[i] = input.readInt();
+				}
+				case DataBufferFloat db -> {
+					var data = db.getData(b);
+					for (int i = 0; i < data.length; i++)
+						data[i] = input.readFloat();
+				}
+				case DataBufferDouble db -> {
+					var data = db.getData(b);
+					for (int i = 0; i < data.length; i++)
+						data[i] = input.readDouble();
+				}
+				default -> throw new IOException("Unsupported data buffer " + buffer);
+			}
+		}
+	}
+	
 	
 	/**
 	 * Returns true if a BufferedImage type represents an 8-bit color image.
@@ -0,0 +1,434 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.awt.common;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Scanline rasterizer for filled shapes.
+ * <p>
+ * The shape is flattened to a list of edges once on construction, after which it can be rasterized repeatedly
+ * into different tiles at different downsamples without needing to create a {@link java.awt.Graphics2D}.
+ * <p>
+ * A pixel is considered inside the shape if its center is inside, using the winding rule of the shape.
+ * Pixel centers lying exactly on a boundary are included on the top and left edges, but excluded on the bottom and right,
+ * so that shapes that share an edge never both contain the same pixel.
+ * This is very close to filling a shape with a {@link java.awt.Graphics2D} without antialiasing, but results are
+ * not guaranteed to be identical along the boundary.
+ *
+ * @since v0.8.0
+ */
+public class ShapeRasterizer {
+
+	/**
+	 * Maximum distance between a curve and its flattened approximation, in the coordinate space of the shape.
+	 */
+	private static final double FLATNESS = 0.1;
+
+	private final boolean evenOdd;
+	private final Rectangle2D bounds;
+
+	// Edges, sorted by minimum y
+	private final int nEdges;
+	private final double[] yMin;
+	private final double[] yMax;
+	private final double[] xAtYMin;
+	private final double[] slope; // dx/dy
+	private final int[] direction;
+
+	/**
+	 * Consumer for the spans of pixels inside a shape.
+	 */
+	@FunctionalInterface
+	public interface SpanConsumer {
+
+		/**
+		 * Accept a horizontal span of pixels inside a shape.
+		 * @param y the row
+		 * @param xStart the first column of the span (inclusive)
+		 * @param xEnd the last column of the span (exclusive)
+		 */
+		void accept(int y, int xStart, int xEnd);
+
+	}
+
+	/**
+	 * Create a rasterizer for the specified shape.
+	 * @param shape
+	 */
+	public ShapeRasterizer(Shape shape) {
+		this(shape.getBounds2D(), createEdges(shape));
+	}
+
+	private ShapeRasterizer(Rectangle2D bounds, EdgeList edges) {
+		this.evenOdd = edges.evenOdd;
+		this.bounds = bounds;
+
+		// Sort edges by their minimum y
+		int n = edges.n;
+		double[] keys = new double[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = Math.min(edges.y0[i], edges.y1[i]);
+		int[] order = sortIndices(keys, n);
+
+		nEdges = n;
+		yMin = new double[n];
+		yMax = new double[n];
+		xAtYMin = new double[n];
+		slope = new double[n];
+		direction = new int[n];
+		for (int k = 0; k < n; k++) {
+			int i = order[k];
+			double dx = edges.x1[i] - edges.x0[i];
+			double dy = edges.y1[i] - edges.y0[i];
+			slope[k] = dx / dy;
+			if (dy > 0) {
+				yMin[k] = edges.y0[i];
+				yMax[k] = edges.y1[i];
+				xAtYMin[k] = edges.x0[i];
+				direction[k] = 1;
+			} else {
+				yMin[k] = edges.y1[i];
+				yMax[k] = edges.y0[i];
+				xAtYMin[k] = edges.x1[i];
+				direction[k] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Create a rasterizer for the outline of a shape, drawn with the specified line width.
+	 * <p>
+	 * This is similar to filling the shape returned by {@link java.awt.BasicStroke#createStrokedShape(Shape)}, but
+	 * much faster to create.
+	 * Each segment of the outline becomes a rectangle centered on the segment, extended by half the line width at
+	 * both ends; these overlap at the joins, rather than being mitered or rounded.
+	 * Subpaths are only closed if the shape explicitly closes them, so this can be used for lines as well as areas.
+	 *
+	 * @param shape the shape to outline
+	 * @param lineWidth the width of the line, in the coordinate space of the shape
+	 * @return a rasterizer for the outline
+	 */
+	public static ShapeRasterizer createStroked(Shape shape, double lineWidth) {
+		var edges = new EdgeList(false);
+		double halfWidth = lineWidth / 2.0;
+		double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+		var iterator = shape.getPathIterator(null, FLATNESS);
+		double[] coords = new double[6];
+		double xStart = 0, yStart = 0;
+		double xLast = 0, yLast = 0;
+		while (!iterator.isDone()) {
+			int type = iterator.currentSegment(coords);
+			switch (type) {
+				case PathIterator.SEG_MOVETO -> {
+					xStart = coords[0];
+					yStart = coords[1];
+					xLast = xStart;
+					yLast = yStart;
+				}
+				case PathIterator.SEG_CLOSE -> {
+					addSegment(edges, bounds, xLast, yLast, xStart, yStart, halfWidth);
+					xLast = xStart;
+					yLast = yStart;
+				}
+				default -> {
+					addSegment(edges, bounds, xLast, yLast, coords[0], coords[1], halfWidth);
+					xLast = coords[0];
+					yLast = coords[1];
+				}
+			}
+			iterator.next();
+		}
+		Rectangle2D rect = edges.n == 0 ? new Rectangle2D.Double() :
+				new Rectangle2D.Double(bounds[0], bounds[1], bounds[2] - bounds[0], bounds[3] - bounds[1]);
+		return new ShapeRasterizer(rect, edges);
+	}
+
+	/**
+	 * Add the edges of a rectangle surrounding a line segment.
+	 * All rectangles have the same orientation, so that overlapping rectangles combine using the non-zero winding rule.
+	 */
+	private static void addSegment(EdgeList edges, double[] bounds, double x0, double y0, double x1, double y1, double halfWidth) {
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		double length = Math.sqrt(dx*dx + dy*dy);
+		if (length == 0 || halfWidth <= 0)
+			return;
+		double ux = dx / length * halfWidth;
+		double uy = dy / length * halfWidth;
+		// Corners, going around the rectangle
+		double xa = x0 - ux - uy, ya = y0 - uy + ux;
+		double xb = x1 + ux - uy, yb = y1 + uy + ux;
+		double xc = x1 + ux + uy, yc = y1 + uy - ux;
+		double xd = x0 - ux + uy, yd = y0 - uy - ux;
+		edges.add(xa, ya, xb, yb);
+		edges.add(xb, yb, xc, yc);
+		edges.add(xc, yc, xd, yd);
+		edges.add(xd, yd, xa, ya);
+		bounds[0] = Math.min(bounds[0], Math.min(Math.min(xa, xb), Math.min(xc, xd)));
+		bounds[1] = Math.min(bounds[1], Math.min(Math.min(ya, yb), Math.min(yc, yd)));
+		bounds[2] = Math.max(bounds[2], Math.max(Math.max(xa, xb), Math.max(xc, xd)));
+		bounds[3] = Math.max(bounds[3], Math.max(Math.max(ya, yb), Math.max(yc, yd)));
+	}
+
+	/**
+	 * Flatten a shape to a list of edges, implicitly closing any open subpaths.
+	 */
+	private static EdgeList createEdges(Shape shape) {
+		var iterator = shape.getPathIterator(null, FLATNESS);
+		var edges = new EdgeList(iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD);
+
+		double[] coords = new double[6];
+		double xStart = 0, yStart = 0;
+		double xLast = 0, yLast = 0;
+		boolean isOpen = false;
+		while (!iterator.isDone()) {
+			int type = iterator.currentSegment(coords);
+			double x, y;
+			if (type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_CLOSE) {
+				// Implicitly close any open subpath
+				x = xStart;
+				y = yStart;
+			} else {
+				x = coords[0];
+				y = coords[1];
+			}
+			if (isOpen)
+				edges.add(xLast, yLast, x, y);
+			if (type == PathIterator.SEG_MOVETO) {
+				xStart = coords[0];
+				yStart = coords[1];
+				xLast = xStart;
+				yLast = yStart;
+				isOpen = true;
+			} else if (type == PathIterator.SEG_CLOSE) {
+				xLast = xStart;
+				yLast = yStart;
+			} else {
+				xLast = x;
+				yLast = y;
+			}
+			iterator.next();
+		}
+		if (isOpen)
+			edges.add(xLast, yLast, xStart, yStart);
+		return edges;
+	}
+
+	/**
+	 * Get the indices that would sort an array of keys.
+	 * This is a merge sort using primitive arrays, since shapes may have many edges and boxing them is slow.
+	 */
+	private static int[] sortIndices(double[] keys, int n) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		if (n > 1)
+			mergeSort(keys, order, new int[n], 0, n);
+		return order;
+	}
+
+	private static void mergeSort(double[] keys, int[] order, int[] temp, int start, int end) {
+		if (end - start <= 16) {
+			// Insertion sort for short runs
+			for (int i = start + 1; i < end; i++) {
+				int ind = order[i];
+				int j = i;
+				while (j > start && keys[order[j-1]] > keys[ind]) {
+					order[j] = order[j-1];
+					j--;
+				}
+				order[j] = ind;
+			}
+			return;
+		}
+		int mid = (start + end) >>> 1;
+		mergeSort(keys, order, temp, start, mid);
+		mergeSort(keys, order, temp, mid, end);
+		if (keys[order[mid-1]] <= keys[order[mid]])
+			return;
+		System.arraycopy(order, start, temp, start, end - start);
+		int i = start, j = mid;
+		for (int k = start; k < end; k++) {
+			if (j >= end || (i < mid && keys[temp[i]] <= keys[temp[j]]))
+				order[k] = temp[i++];
+			else
+				order[k] = temp[j++];
+		}
+	}
+
+	/**
+	 * Growable list of non-horizontal edges.
+	 */
+	private static class EdgeList {
+
+		private final boolean evenOdd;
+		private int n = 0;
+		private double[] x0 = new double[16];
+		private double[] y0 = new double[16];
+		private double[] x1 = new double[16];
+		private double[] y1 = new double[16];
+
+		private EdgeList(boolean evenOdd) {
+			this.evenOdd = evenOdd;
+		}
+
+		private void add(double xa, double ya, double xb, double yb) {
+			// Horizontal edges never cross a scanline
+			if (ya == yb)
+				return;
+			if (n == x0.length) {
+				x0 = Arrays.copyOf(x0, n * 2);
+				y0 = Arrays.copyOf(y0, n * 2);
+				x1 = Arrays.copyOf(x1, n * 2);
+				y1 = Arrays.copyOf(y1, n * 2);
+			}
+			x0[n] = xa;
+			y0[n] = ya;
+			x1[n] = xb;
+			y1[n] = yb;
+			n++;
+		}
+
+	}
+
+	/**
+	 * Get the bounding box of the shape.
+	 * @return
+	 */
+	public Rectangle2D getBounds() {
+		return (Rectangle2D)bounds.clone();
+	}
+
+	/**
+	 * Query whether the shape has no edges, and so cannot contain any pixels.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return nEdges == 0;
+	}
+
+	/**
+	 * Find the spans of pixels inside the shape for a region of an image.
+	 * <p>
+	 * The pixel at (x, y) in the region has its center at
+	 * {@code (xOrigin + (x + 0.5) * downsample, yOrigin + (y + 0.5) * downsample)} in the coordinate space of the shape.
+	 * Spans are passed to the consumer in order of increasing y, and are clipped to the region.
+	 *
+	 * @param xOrigin x coordinate of the top left of the region, in the coordinate space of the shape
+	 * @param yOrigin y coordinate of the top left of the region, in the coordinate space of the shape
+	 * @param downsample the size of a pixel in the coordinate space of the shape
+	 * @param width the width of the region, in pixels
+	 * @param height the height of the region, in pixels
+	 * @param consumer consumer for each span
+	 */
+	public void rasterize(double xOrigin, double yOrigin, double downsample, int width, int height, SpanConsumer consumer) {
+		if (nEdges == 0 || width <= 0 || height <= 0)
+			return;
+
+		// Restrict rows to those that could be inside the shape
+		int yFirst = Math.max(0, (int)Math.floor((bounds.getMinY() - yOrigin) / downsample - 0.5));
+		int yLast = Math.min(height, (int)Math.ceil((bounds.getMaxY() - yOrigin) / downsample + 0.5));
+		if (yFirst >= yLast)
+			return;
+
+		int[] active = new int[Math.min(nEdges, 16)];
+		int nActive = 0;
+		double[] crossings = new double[active.length];
+		int[] crossingDirections = new int[active.length];
+		int nextEdge = 0;
+
+		for (int y = yFirst; y < yLast; y++) {
+			double yc = yOrigin + (y + 0.5) * downsample;
+
+			// Add edges that start at or above the scanline
+			while (nextEdge < nEdges && yMin[nextEdge] <= yc) {
+				if (yMax[nextEdge] > yc) {
+					if (nActive == active.length) {
+						active = Arrays.copyOf(active, nActive * 2);
+						crossings = Arrays.copyOf(crossings, nActive * 2);
+						crossingDirections = Arrays.copyOf(crossingDirections, nActive * 2);
+					}
+					active[nActive++] = nextEdge;
+				}
+				nextEdge++;
+			}
+			// Remove edges that end at or above the scanline, and compute crossings for the others
+			int nCrossings = 0;
+			for (int i = 0; i < nActive; i++) {
+				int e = active[i];
+				if (yMax[e] <= yc)
+					continue;
+				active[nCrossings] = e;
+				double x = xAtYMin[e] + (yc - yMin[e]) * slope[e];
+				int dir = direction[e];
+				// Insertion sort, since crossings are usually (nearly) in order already
+				int j = nCrossings;
+				while (j > 0 && crossings[j-1] > x) {
+					crossings[j] = crossings[j-1];
+					crossingDirections[j] = crossingDirections[j-1];
+					j--;
+				}
+				crossings[j] = x;
+				crossingDirections[j] = dir;
+				nCrossings++;
+			}
+			nActive = nCrossings;
+
+			// Emit spans between crossings according to the winding rule
+			int winding = 0;
+			for (int i = 0; i < nCrossings - 1; i++) {
+				if (evenOdd)
+					winding ^= 1;
+				else
+					winding += crossingDirections[i];
+				if (winding == 0)
+					continue;
+				int xStart = Math.max(0, (int)Math.ceil((crossings[i] - xOrigin) / downsample - 0.5));
+				int xEnd = Math.min(width, (int)Math.ceil((crossings[i+1] - xOrigin) / downsample - 0.5));
+				if (xStart < xEnd)
+					consumer.accept(y, xStart, xEnd);
+			}
+		}
+	}
+
+	/**
+	 * Fill the pixels inside the shape for a band of a raster.
+	 * The raster is assumed to have its origin at (0, 0) in the coordinate space of the shape, i.e. the downsample is 1.
+	 * @param raster the raster to fill
+	 * @param band the band to fill
+	 * @param value the value to set for pixels inside the shape
+	 */
+	public void fill(WritableRaster raster, int band, int value) {
+		int[] buffer = new int[raster.getWidth()];
+		Arrays.fill(buffer, value);
+		rasterize(0, 0, 1, raster.getWidth(), raster.getHeight(), (y, xStart, xEnd) -> {
+			raster.setSamples(xStart, y, xEnd - xStart, 1, band, buffer);
+		});
+	}
+
+}
@@ -78,6 +78,9 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 	 */
 	private Map<TileRequest, BufferedImage> tileMap;
 	
+	private transient String tileCacheKey;
+	private transient Map<RegionRequest, BufferedImage> tileCache;
+	
 
 	/**
 	 * Constructor.
@@ -284,6 +287,29 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 	}
 	
 	
+	/**
+	 * Get the key used to store tiles for this server in a {@link PixelClassifierTileCache}.
+	 * This is derived from the path, so that servers applying the same classifier to the same image share the same key.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public String getTileCacheKey() {
+		if (tileCacheKey == null)
+			tileCacheKey = PixelClassifierTileCache.createKey(getPath());
+		return tileCacheKey;
+	}
+	
+	/**
+	 * Returns a view of the shared {@link PixelClassifierTileCache}, so that tiles can be reused
+	 * by all servers applying the same classifier to the same image.
+	 */
+	@Override
+	protected Map<RegionRequest, BufferedImage> getCache() {
+		if (tileCache == null)
+			tileCache = PixelClassifierTileCache.getDefaultInstance().asMap(getTileCacheKey());
+		return tileCache;
+	}
+	
 	@Override
 	public BufferedImage getCachedTile(TileRequest tile) {
 		if (tileMap != null && tileMap.containsKey(tile))
@@ -0,0 +1,474 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.classifiers.pixel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.awt.common.BufferedImageTools;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cache for the tiles output by pixel classifiers.
+ * <p>
+ * Tiles are stored according to a key that identifies the classifier and image, along with the region of the tile.
+ * This means that tiles can be shared between all the {@link PixelClassificationImageServer} instances that apply the
+ * same classifier to the same image, e.g. for display in a viewer, to make measurements and to create objects.
+ * <p>
+ * The cache has a maximum size in bytes.
+ * When this is exceeded, the least recently used tiles are removed - or optionally written to a spill directory,
+ * from which they can be read back if they are needed again.
+ *
+ * @since v0.8.0
+ * @see PixelClassificationImageServer
+ */
+public class PixelClassifierTileCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(PixelClassifierTileCache.class);
+
+	private static final PixelClassifierTileCache DEFAULT_INSTANCE = new PixelClassifierTileCache(Runtime.getRuntime().maxMemory() / 8);
+
+	// All fields below are guarded by 'this'
+	private long maxBytes;
+	private long sizeBytes;
+	private final LinkedHashMap<RegionRequest, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+
+	private Path spillDirectory;
+	private long maxSpillBytes;
+	private long spillBytes;
+	private final LinkedHashMap<RegionRequest, SpilledTile> spilledTiles = new LinkedHashMap<>(64, 0.75f, true);
+
+	// Path of the original requests for each key, so that these can be restored from cached requests
+	private final Map<String, String> originalPaths = new HashMap<>();
+
+	/**
+	 * Create a new cache.
+	 * @param maxBytes the maximum number of bytes to store in memory
+	 */
+	public PixelClassifierTileCache(long maxBytes) {
+		setMaxSizeBytes(maxBytes);
+	}
+
+	/**
+	 * Get the default cache, which is shared by all pixel classification servers unless otherwise specified.
+	 * @return
+	 */
+	public static PixelClassifierTileCache getDefaultInstance() {
+		return DEFAULT_INSTANCE;
+	}
+
+	/**
+	 * Create a compact key for the output of a classifier.
+	 * @param id a string that uniquely identifies the classifier and image, such as the path of a {@link PixelClassificationImageServer}
+	 * @return a key derived from a hash of the id
+	 */
+	public static String createKey(String id) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Set the maximum number of bytes to store in memory.
+	 * If the cache is currently larger than this, tiles will be removed immediately.
+	 * @param maxBytes
+	 */
+	public void setMaxSizeBytes(long maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("Maximum cache size must be >= 0, but was " + maxBytes);
+		List<Map.Entry<RegionRequest, BufferedImage>> evicted;
+		synchronized (this) {
+			this.maxBytes = maxBytes;
+			evicted = evict();
+		}
+		spill(evicted);
+	}
+
+	/**
+	 * Get the maximum number of bytes to store in memory.
+	 * @return
+	 */
+	public synchronized long getMaxSizeBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the approximate number of bytes currently stored in memory.
+	 * @return
+	 */
+	public synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	/**
+	 * Set a directory to which tiles are written when they are removed from memory.
+	 * Tiles in this directory are only used by this cache, and are deleted when no longer needed;
+	 * they are not intended to persist across sessions.
+	 * @param directory the directory to use, or null if tiles should not be written to disk
+	 * @param maxBytes the maximum number of bytes to write to the directory
+	 * @throws IOException if the directory cannot be created
+	 */
+	public void setSpillDirectory(Path directory, long maxBytes) throws IOException {
+		if (directory != null)
+			Files.createDirectories(directory);
+		List<SpilledTile> removed;
+		synchronized (this) {
+			removed = new ArrayList<>(spilledTiles.values());
+			spilledTiles.clear();
+			spillBytes = 0;
+			this.spillDirectory = directory;
+			this.maxSpillBytes = Math.max(0, maxBytes);
+		}
+		deleteSpilledTiles(removed);
+	}
+
+	/**
+	 * Get the directory to which tiles are written when they are removed from memory.
+	 * @return the directory, or null if tiles are not written to disk
+	 */
+	public synchronized Path getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * Get a cached tile.
+	 * @param key the classifier key, as returned by {@link #createKey(String)}
+	 * @param request the region of the tile
+	 * @return the cached tile, or null if the tile is not in the cache
+	 */
+	public BufferedImage get(String key, RegionRequest request) {
+		var cacheRequest = request.updatePath(key);
+		SpilledTile spilled;
+		synchronized (this) {
+			var img = tiles.get(cacheRequest);
+			if (img != null)
+				return img;
+			spilled = spilledTiles.remove(cacheRequest);
+			if (spilled != null)
+				spillBytes -= spilled.sizeBytes;
+		}
+		if (spilled == null)
+			return null;
+		try {
+			var img = spilled.read();
+			put(key, request, img);
+			return img;
+		} catch (IOException e) {
+			logger.warn("Unable to read spilled tile {}: {}", request, e.getMessage());
+			logger.debug(e.getMessage(), e);
+			return null;
+		} finally {
+			deleteSpilledTiles(List.of(spilled));
+		}
+	}
+
+	/**
+	 * Query whether a tile is cached, either in memory or in the spill directory.
+	 * @param key the classifier key, as returned by {@link #createKey(String)}
+	 * @param request the region of the tile
+	 * @return
+	 */
+	public synchronized boolean contains(String key, RegionRequest request) {
+		var cacheRequest = request.updatePath(key);
+		return tiles.containsKey(cacheRequest) || spilledTiles.containsKey(cacheRequest);
+	}
+
+	/**
+	 * Add a tile to the cache.
+	 * @param key the classifier key, as returned by {@link #createKey(String)}
+	 * @param request the region of the tile
+	 * @param img the tile
+	 */
+	public void put(String key, RegionRequest request, BufferedImage img) {
+		var cacheRequest = request.updatePath(key);
+		long bytes = estimateSizeBytes(img);
+		List<Map.Entry<RegionRequest, BufferedImage>> evicted;
+		synchronized (this) {
+			if (bytes > maxBytes) {
+				logger.debug("Tile {} is too large to cache ({} bytes)", request, bytes);
+				return;
+			}
+			originalPaths.put(key, request.getPath());
+			var previous = tiles.put(cacheRequest, img);
+			if (previous != null)
+				sizeBytes -= estimateSizeBytes(previous);
+			sizeBytes += bytes;
+			evicted = evict();
+		}
+		spill(evicted);
+	}
+
+	/**
+	 * Remove all tiles for a specified key.
+	 * This should be called if the output of a classifier may have changed, without its key being changed.
+	 * @param key the classifier key, as returned by {@link #createKey(String)}
+	 */
+	public void invalidate(String key) {
+		List<SpilledTile> removed = new ArrayList<>();
+		synchronized (this) {
+			var iter = tiles.entrySet().iterator();
+			while (iter.hasNext()) {
+				var entry = iter.next();
+				if (entry.getKey().getPath().equals(key)) {
+					sizeBytes -= estimateSizeBytes(entry.getValue());
+					iter.remove();
+				}
+			}
+			var iterSpilled = spilledTiles.entrySet().iterator();
+			while (iterSpilled.hasNext()) {
+				var entry = iterSpilled.next();
+				if (entry.getKey().getPath().equals(key)) {
+					spillBytes -= entry.getValue().sizeBytes;
+					removed.add(entry.getValue());
+					iterSpilled.remove();
+				}
+			}
+			originalPaths.remove(key);
+		}
+		deleteSpilledTiles(removed);
+	}
+
+	/**
+	 * Remove all tiles from the cache.
+	 */
+	public void clear() {
+		List<SpilledTile> removed;
+		synchronized (this) {
+			tiles.clear();
+			sizeBytes = 0;
+			removed = new ArrayList<>(spilledTiles.values());
+			spilledTiles.clear();
+			spillBytes = 0;
+			originalPaths.clear();
+		}
+		deleteSpilledTiles(removed);
+	}
+
+	/**
+	 * Get a map view of the tiles cached for a specific key, where the keys of the map are the original requests.
+	 * This is suitable for use as the tile cache of an {@link qupath.lib.images.servers.ImageServer}.
+	 * <p>
+	 * Note that iterating the map only returns tiles currently stored in memory.
+	 * @param key the classifier key, as returned by {@link #createKey(String)}
+	 * @return
+	 */
+	public Map<RegionRequest, BufferedImage> asMap(String key) {
+		return new KeyedMap(key);
+	}
+
+	/**
+	 * Remove the least recently used tiles until the cache is within its maximum size.
+	 * @return the removed tiles
+	 */
+	private List<Map.Entry<RegionRequest, BufferedImage>> evict() {
+		if (sizeBytes <= maxBytes)
+			return List.of();
+		List<Map.Entry<RegionRequest, BufferedImage>> evicted = new ArrayList<>();
+		var iter = tiles.entrySet().iterator();
+		while (sizeBytes > maxBytes && iter.hasNext()) {
+			var entry = iter.next();
+			sizeBytes -= estimateSizeBytes(entry.getValue());
+			evicted.add(Map.entry(entry.getKey(), entry.getValue()));
+			iter.remove();
+		}
+		return evicted;
+	}
+
+	/**
+	 * Write tiles that have been removed from memory to the spill directory, if there is one.
+	 */
+	private void spill(List<Map.Entry<RegionRequest, BufferedImage>> evicted) {
+		if (evicted.isEmpty())
+			return;
+		Path directory;
+		synchronized (this) {
+			directory = spillDirectory;
+		}
+		if (directory == null)
+			return;
+		List<SpilledTile> removed = new ArrayList<>();
+		for (var entry : evicted) {
+			SpilledTile spilled;
+			try {
+				spilled = SpilledTile.write(directory, entry.getValue());
+			} catch (IOException e) {
+				logger.warn("Unable to spill tile {} to disk: {}", entry.getKey(), e.getMessage());
+				logger.debug(e.getMessage(), e);
+				continue;
+			}
+			synchronized (this) {
+				if (directory.equals(spillDirectory) && spilled.sizeBytes <= maxSpillBytes) {
+					var previous = spilledTiles.put(entry.getKey(), spilled);
+					if (previous != null) {
+						spillBytes -= previous.sizeBytes;
+						removed.add(previous);
+					}
+					spillBytes += spilled.sizeBytes;
+					var iter = spilledTiles.values().iterator();
+					while (spillBytes > maxSpillBytes && iter.hasNext()) {
+						var next = iter.next();
+						spillBytes -= next.sizeBytes;
+						removed.add(next);
+						iter.remove();
+					}
+				} else
+					removed.add(spilled);
+			}
+		}
+		deleteSpilledTiles(removed);
+	}
+
+	private static void deleteSpilledTiles(List<SpilledTile> spilledTiles) {
+		for (var spilled : spilledTiles) {
+			try {
+				Files.deleteIfExists(spilled.path);
+			} catch (IOException e) {
+				logger.debug("Unable to delete spilled tile {}: {}", spilled.path, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Estimate the number of bytes needed to store an image.
+	 * @param img
+	 * @return
+	 */
+	static long estimateSizeBytes(BufferedImage img) {
+		var buffer = img.getRaster().getDataBuffer();
+		return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+	}
+
+
+	/**
+	 * A tile written to disk.
+	 * The pixels are stored in a file, while the sample and color models needed to recreate the image are kept in memory.
+	 */
+	private record SpilledTile(Path path, long sizeBytes, SampleModel sampleModel, ColorModel colorModel, boolean isAlphaPremultiplied) {
+
+		private static SpilledTile write(Path directory, BufferedImage img) throws IOException {
+			var raster = img.getRaster();
+			// Subimages share a larger buffer, which cannot be restored from the sample model alone
+			if (raster.getParent() != null)
+				throw new IOException("Cannot spill a subimage");
+			var buffer = raster.getDataBuffer();
+			var path = directory.resolve(UUID.randomUUID() + ".tile");
+			var deflater = new Deflater(Deflater.BEST_SPEED);
+			try (var stream = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(path), deflater)))) {
+				BufferedImageTools.writeDataBuffer(buffer, stream);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(path);
+				throw e;
+			} finally {
+				deflater.end();
+			}
+			return new SpilledTile(path, Files.size(path), raster.getSampleModel(), img.getColorModel(), img.isAlphaPremultiplied());
+		}
+
+		private BufferedImage read() throws IOException {
+			var buffer = sampleModel.createDataBuffer();
+			try (var stream = new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(path))))) {
+				BufferedImageTools.readDataBuffer(stream, buffer);
+			}
+			var raster = Raster.createWritableRaster(sampleModel, buffer, null);
+			return new BufferedImage(colorModel, raster, isAlphaPremultiplied, null);
+		}
+
+	}
+
+
+	/**
+	 * Map view of the tiles for a single key.
+	 */
+	private class KeyedMap extends AbstractMap<RegionRequest, BufferedImage> {
+
+		private final String key;
+
+		private KeyedMap(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public BufferedImage get(Object request) {
+			return request instanceof RegionRequest r ? PixelClassifierTileCache.this.get(key, r) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object request) {
+			return request instanceof RegionRequest r && contains(key, r);
+		}
+
+		@Override
+		public BufferedImage put(RegionRequest request, BufferedImage img) {
+			PixelClassifierTileCache.this.put(key, request, img);
+			return null;
+		}
+
+		@Override
+		public Set<Entry<RegionRequest, BufferedImage>> entrySet() {
+			synchronized (PixelClassifierTileCache.this) {
+				String path = originalPaths.get(key);
+				return tiles.entrySet().stream()
+						.filter(e -> e.getKey().getPath().equals(key))
+						.map(e -> Map.entry(e.getKey().updatePath(path), e.getValue()))
+						.collect(Collectors.toUnmodifiableSet());
+			}
+		}
+
+		@Override
+		public void clear() {
+			invalidate(key);
+		}
+
+	}
+
+}
@@ -46,6 +46,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Abstract {@link ImageServer} for BufferedImages that internally breaks up requests into constituent tiles.
@@ -169,6 +170,65 @@ public abstract class AbstractTileableImageServer extends AbstractImageServer<Bu
 	 */
 	private int duplicateRequestClashCount = 0;
 	
+	/**
+	 * Tiles that have been read in advance by a {@link TilePrefetcher}, which should be retained until they are released.
+	 * These are stored separately from the cache, so they can't be evicted before they are needed.
+	 */
+	private final transient Map<TileRequest, BufferedImage> prefetchedTiles = new ConcurrentHashMap<>();
+	
+	// Counts of tile requests that could or couldn't be served from memory, across all servers
+	private static final LongAdder tileHitCount = new LongAdder();
+	private static final LongAdder tileMissCount = new LongAdder();
+	
+	/**
+	 * Counts of the tiles requested from all {@link AbstractTileableImageServer} instances since the application started.
+	 * @param hitCount number of tiles that were already available in memory, from the cache or because they were prefetched
+	 * @param missCount number of tiles that needed to be read, or were already being read by another thread
+	 * @since v0.8.0
+	 * @see #getTileStatistics()
+	 */
+	public record TileStatistics(long hitCount, long missCount) {
+		
+		/**
+		 * Get the proportion of tile requests that were already available in memory.
+		 * @return the hit rate, between 0 and 1; this is 1 if no tiles have been requested
+		 */
+		public double getHitRate() {
+			long total = hitCount + missCount;
+			return total == 0 ? 1.0 : (double)hitCount / total;
+		}
+		
+		/**
+		 * Get the total number of tile requests.
+		 * @return
+		 */
+		public long getRequestCount() {
+			return hitCount + missCount;
+		}
+		
+		/**
+		 * Get the statistics for requests made since an earlier snapshot.
+		 * @param earlier statistics returned previously by {@link AbstractTileableImageServer#getTileStatistics()}
+		 * @return
+		 */
+		public TileStatistics since(TileStatistics earlier) {
+			return new TileStatistics(hitCount - earlier.hitCount, missCount - earlier.missCount);
+		}
+		
+	}
+	
+	/**
+	 * Get counts of the tiles requested from all {@link AbstractTileableImageServer} instances.
+	 * This is intended to help assess how effectively tiles are cached, e.g. by comparing snapshots before and after
+	 * running a command.
+	 * Tiles read in advance by a {@link TilePrefetcher} are not counted until they are requested.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public static TileStatistics getTileStatistics() {
+		return new TileStatistics(tileHitCount.sum(), tileMissCount.sum());
+	}
+	
 	private static class TileTask extends FutureTask<BufferedImage> {
 		
 		private Thread thread;
@@ -191,23 +251,49 @@ public abstract class AbstractTileableImageServer extends AbstractImageServer<Bu
 	 * @throws IOException 
 	 */
 	protected BufferedImage getTile(final TileRequest tileRequest) throws IOException {
+		return getTile(tileRequest, true);
+	}
+	
+	/**
+	 * Get a tile for the request, optionally recording whether it was available in memory.
+	 * @param tileRequest
+	 * @param recordStatistics true if the request should be included in {@link #getTileStatistics()}
+	 * @return
+	 * @throws IOException
+	 */
+	BufferedImage getTile(final TileRequest tileRequest, final boolean recordStatistics) throws IOException {
 		// Try to get tile from one of the caches
 		var request = tileRequest.getRegionRequest();
-		if (emptyTiles.contains(tileRequest))
+		if (emptyTiles.contains(tileRequest)) {
+			if (recordStatistics)
+				tileHitCount.increment();
 			return getEmptyTile(tileRequest.getTileWidth(), tileRequest.getTileHeight());
+		}
+		
+		var imgPrefetched = prefetchedTiles.get(tileRequest);
+		if (imgPrefetched != null) {
+			logger.trace("Returning prefetched tile: {}", request);
+			if (recordStatistics)
+				tileHitCount.increment();
+			return imgPrefetched;
+		}
 		
 		var cache = getCache();
 		if (cache != null) {
 			var imgCached = cache.get(request);
 			if (imgCached != null) { 
 				logger.trace("Returning cached tile: {}", request);
+				if (recordStatistics)
+					tileHitCount.increment();
 				return imgCached;
 			}
 		}
 		logger.trace("Reading tile: {}", request);
+		if (recordStatistics)
+			tileMissCount.increment();
 		
 		BufferedImage imgCached = null;
-		var futureTask = pendingTiles.computeIfAbsent(tileRequest, t -> new TileTask(Thread.currentThread(), () -> readTile(t)));
+		var futureTask = pendingTiles.computeIfAbsent(tileRequest, t -> new TileTask(Thread.currentThread(), () -> readTileWithDiskCache(t)));
 		var myTask = futureTask.thread == Thread.currentThread();
 		try {
 			if (myTask)
@@ -241,6 +327,61 @@ public abstract class AbstractTileableImageServer extends AbstractImageServer<Bu
 		return imgCached;
 	}
 	
+	/**
+	 * Retain a tile that was read in advance, so that it is available to later calls to {@link #getTile(TileRequest)}
+	 * until {@link #releasePrefetchedTile(TileRequest)} is called.
+	 * @param tileRequest
+	 * @param img
+	 */
+	void retainPrefetchedTile(final TileRequest tileRequest, final BufferedImage img) {
+		prefetchedTiles.put(tileRequest, img);
+	}
+	
+	/**
+	 * Release a tile previously passed to {@link #retainPrefetchedTile(TileRequest, BufferedImage)}.
+	 * The tile may still be available from the cache.
+	 * @param tileRequest
+	 */
+	void releasePrefetchedTile(final TileRequest tileRequest) {
+		prefetchedTiles.remove(tileRequest);
+	}
+	
+	/**
+	 * Read a tile from the disk cache if possible, otherwise read it from the image and add it to the disk cache.
+	 * @param tileRequest
+	 * @return
+	 * @throws IOException
+	 */
+	private BufferedImage readTileWithDiskCache(final TileRequest tileRequest) throws IOException {
+		var diskCache = isDiskCacheSupported() ? ImageServerProvider.getDiskCache() : null;
+		if (diskCache == null)
+			return readTile(tileRequest);
+		var request = tileRequest.getRegionRequest();
+		var img = diskCache.get(this, request);
+		if (img != null) {
+			logger.trace("Returning tile from disk cache: {}", request);
+			return img;
+		}
+		img = readTile(tileRequest);
+		if (img != null && !isEmptyTile(img))
+			diskCache.put(this, request, img);
+		return img;
+	}
+	
+	/**
+	 * Query whether tiles read by this server may be stored in the disk cache set with
+	 * {@link ImageServerProvider#setDiskCache(DiskTileCache)}, so that they can be reused in later sessions.
+	 * <p>
+	 * This should only return true if the pixels are fully determined by the server path and the files referenced by
+	 * {@link #getURIs()}, and reading tiles is slow enough that decompressing them from disk is likely to be faster.
+	 * The default implementation returns false.
+	 * @return true if the disk cache may be used, false otherwise
+	 * @since v0.8.0
+	 */
+	protected boolean isDiskCacheSupported() {
+		return false;
+	}
+	
 	/**
 	 * Create the default (blank) RGB image for this server.
 	 * <p>
@@ -510,8 +651,10 @@ public abstract class AbstractTileableImageServer extends AbstractImageServer<Bu
 	private void prerequestTiles(Collection<TileRequest> tiles) {
 		var cache = getCache();
 		for (var tile : tiles) {
+			if (prefetchedTiles.containsKey(tile))
+				continue;
 			if (cache == null || !cache.containsKey(tile.getRegionRequest()) && !pendingTiles.containsKey(tile)) {
-				var futureTask = pendingTiles.computeIfAbsent(tile, t -> new TileTask(Thread.currentThread(), () -> readTile(t)));
+				var futureTask = pendingTiles.computeIfAbsent(tile, t -> new TileTask(Thread.currentThread(), () -> readTileWithDiskCache(t)));
 				if (futureTask.thread == Thread.currentThread())
 					futureTask.run();
 			}
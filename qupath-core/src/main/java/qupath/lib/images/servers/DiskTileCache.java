@@ -0,0 +1,1007 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.regions.RegionRequest;
+
+/**
+ * A persistent cache that stores compressed image tiles on disk, so that they can be reused across sessions.
+ * <p>
+ * This is intended as a second-level cache behind the in-memory cache returned by {@link ImageServerProvider#getCache(Class)},
+ * for images where reading a tile is slow (e.g. images on a network share, or formats that are expensive to decode).
+ * It is used by {@link AbstractTileableImageServer} if it has been set with {@link ImageServerProvider#setDiskCache(DiskTileCache)}
+ * and {@link AbstractTileableImageServer#isDiskCacheSupported()} returns true.
+ * <p>
+ * Tiles for each server are appended to a separate, memory-mapped pack file.
+ * An index file alongside records the location of each tile, and is written periodically and when the cache is closed.
+ * Tiles are identified by the server path, and a fingerprint of the files referenced by the server's URIs,
+ * so that tiles are discarded if an image file is modified.
+ * <p>
+ * When the total size exceeds the maximum, the least-recently-used tiles are removed and the pack files compacted.
+ * <p>
+ * Pixels are compressed losslessly, but the color model is not stored. Images with a standard type
+ * (e.g. {@link BufferedImage#TYPE_INT_RGB}) are recreated with the same type, while others are recreated using
+ * the color model that {@link ColorModelFactory} provides for the server's pixel type and channels.
+ *
+ * @since v0.8.0
+ */
+public final class DiskTileCache implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DiskTileCache.class);
+
+	private static final String PACK_EXTENSION = ".pack";
+	private static final String INDEX_EXTENSION = ".index";
+
+	private static final long PACK_MAGIC = 0x5150544c50414b31L;
+	private static final int INDEX_MAGIC = 0x51505449;
+	private static final int INDEX_VERSION = 1;
+	private static final int PACK_HEADER_BYTES = 16;
+
+	// Pack files are mapped in chunks, so that they don't need to be remapped for every tile
+	private static final long MIN_MAPPED_BYTES = 1024 * 1024;
+	private static final long MAX_MAPPED_INCREMENT = 64L * 1024 * 1024;
+
+	// Evict tiles until the cache is smaller than this fraction of the maximum size, to avoid compacting too often
+	private static final double EVICTION_TARGET = 0.9;
+
+	// Write the index after this many changes, to limit what is lost if the cache isn't closed properly
+	private static final int INDEX_WRITE_INTERVAL = 256;
+
+	private final Path directory;
+	private final long maxBytes;
+
+	// All fields below are guarded by 'this'
+	private final Map<String, Pack> packs = new HashMap<>();
+	private long clock;
+	private boolean closed;
+
+	// Updated while holding the lock for the pack that changed, so that compaction doesn't need the cache lock
+	private final AtomicLong sizeBytes = new AtomicLong();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	private DiskTileCache(Path directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Create a disk cache using the specified directory.
+	 * Any tiles cached in the directory previously will be available.
+	 * @param directory the directory used to store tiles; this will be created if necessary
+	 * @param maxBytes the maximum number of bytes to store
+	 * @return the cache
+	 * @throws IOException if the directory cannot be created
+	 */
+	public static DiskTileCache create(Path directory, long maxBytes) throws IOException {
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("Maximum cache size must be > 0, but was " + maxBytes);
+		Files.createDirectories(directory);
+		var cache = new DiskTileCache(directory, maxBytes);
+		cache.readIndexes();
+		return cache;
+	}
+
+	/**
+	 * Get the directory used to store tiles.
+	 * @return
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Get the maximum number of bytes to store.
+	 * @return
+	 */
+	public long getMaxSizeBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the number of bytes currently used to store tiles.
+	 * @return
+	 */
+	public long getSizeBytes() {
+		return sizeBytes.get();
+	}
+
+	/**
+	 * Get a snapshot of the cache statistics.
+	 * @return
+	 */
+	public Statistics getStatistics() {
+		long tileCount = 0;
+		for (var pack : getPacks()) {
+			synchronized (pack) {
+				tileCount += pack.entries.size();
+			}
+		}
+		return new Statistics(hitCount.sum(), missCount.sum(), evictionCount.sum(), tileCount, sizeBytes.get(), maxBytes);
+	}
+
+	/**
+	 * Statistics summarizing the use of a disk cache.
+	 * @param hitCount number of requests that returned a cached tile
+	 * @param missCount number of requests for tiles that were not in the cache
+	 * @param evictionCount number of tiles removed from the cache to make space for other tiles
+	 * @param tileCount number of tiles currently in the cache
+	 * @param sizeBytes number of bytes currently used to store tiles
+	 * @param maxSizeBytes maximum number of bytes that can be used to store tiles
+	 */
+	public record Statistics(long hitCount, long missCount, long evictionCount, long tileCount, long sizeBytes, long maxSizeBytes) {
+
+		/**
+		 * Get the proportion of requests that returned a cached tile.
+		 * @return the hit rate, or 1.0 if there have been no requests
+		 */
+		public double hitRate() {
+			long total = hitCount + missCount;
+			return total == 0 ? 1.0 : (double)hitCount / total;
+		}
+
+	}
+
+	/**
+	 * Get a cached tile.
+	 * @param server the server that provides the tile
+	 * @param request the region of the tile
+	 * @return the tile, or null if it isn't cached (or can't be read)
+	 */
+	public BufferedImage get(ImageServer<BufferedImage> server, RegionRequest request) {
+		var key = TileKey.create(request);
+		Pack pack;
+		long time;
+		synchronized (this) {
+			pack = closed ? null : getPack(server, false);
+			time = ++clock;
+		}
+		byte[] bytes = null;
+		if (pack != null) {
+			try {
+				synchronized (pack) {
+					bytes = pack.discarded ? null : pack.read(key, time);
+				}
+			} catch (IOException e) {
+				logger.warn("Unable to read cached tile {}: {}", request, e.getMessage());
+				logger.debug(e.getMessage(), e);
+				synchronized (this) {
+					removePack(pack);
+				}
+			}
+		}
+		if (bytes == null) {
+			missCount.increment();
+			return null;
+		}
+		try {
+			var img = TileCodec.decode(bytes, server);
+			hitCount.increment();
+			return img;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Unable to decode cached tile {}: {}", request, e.getMessage());
+			logger.debug(e.getMessage(), e);
+			// The space will be reclaimed when the pack is compacted
+			synchronized (pack) {
+				pack.remove(key);
+			}
+			missCount.increment();
+			return null;
+		}
+	}
+
+	/**
+	 * Add a tile to the cache.
+	 * Nothing will happen if the tile can't be cached, e.g. because the server doesn't reference any files or
+	 * the image type isn't supported.
+	 * @param server the server that provides the tile
+	 * @param request the region of the tile
+	 * @param img the tile
+	 */
+	public void put(ImageServer<BufferedImage> server, RegionRequest request, BufferedImage img) {
+		if (server.getURIs().isEmpty() || !TileCodec.canEncode(img, server))
+			return;
+		var bytes = TileCodec.encode(img);
+		if (bytes.length > maxBytes) {
+			logger.debug("Tile {} is too large for the disk cache ({} bytes)", request, bytes.length);
+			return;
+		}
+		var key = TileKey.create(request);
+		Pack pack;
+		long time;
+		synchronized (this) {
+			pack = closed ? null : getPack(server, true);
+			time = ++clock;
+		}
+		if (pack == null)
+			return;
+		try {
+			synchronized (pack) {
+				if (!pack.discarded)
+					sizeBytes.addAndGet(pack.write(key, bytes, time));
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to write tile {} to disk cache: {}", request, e.getMessage());
+			logger.debug(e.getMessage(), e);
+			synchronized (this) {
+				removePack(pack);
+			}
+		}
+		if (sizeBytes.get() > maxBytes) {
+			List<Pack> toCompact;
+			synchronized (this) {
+				toCompact = closed ? List.of() : evict();
+			}
+			compact(toCompact);
+		}
+	}
+
+	/**
+	 * Write the indexes for all tiles to disk.
+	 * This is called automatically when the cache is closed.
+	 */
+	public void flush() {
+		for (var pack : getPacks()) {
+			try {
+				synchronized (pack) {
+					if (!pack.discarded)
+						pack.writeIndexIfChanged();
+				}
+			} catch (IOException e) {
+				logger.warn("Unable to write disk cache index {}: {}", pack.indexPath, e.getMessage());
+				logger.debug(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Remove all tiles from the cache, deleting the files in the cache directory.
+	 */
+	public synchronized void clear() {
+		for (var pack : new ArrayList<>(packs.values()))
+			removePack(pack);
+	}
+
+	/**
+	 * Write the indexes and release all resources.
+	 * The cache can't be used after it has been closed.
+	 */
+	@Override
+	public void close() {
+		List<Pack> packsToClose;
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			packsToClose = new ArrayList<>(packs.values());
+			packs.clear();
+		}
+		for (var pack : packsToClose) {
+			synchronized (pack) {
+				if (pack.discarded)
+					continue;
+				pack.discarded = true;
+				try {
+					pack.writeIndexIfChanged();
+				} catch (IOException e) {
+					logger.warn("Unable to write disk cache index {}: {}", pack.indexPath, e.getMessage());
+					logger.debug(e.getMessage(), e);
+				}
+				try {
+					pack.close();
+				} catch (IOException e) {
+					logger.warn("Unable to close disk cache file {}: {}", pack.packPath, e.getMessage());
+					logger.debug(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private synchronized List<Pack> getPacks() {
+		return new ArrayList<>(packs.values());
+	}
+
+	/**
+	 * Get the pack for a server, checking that the files it references haven't changed since the tiles were written.
+	 * @param server
+	 * @param create if true, create a new pack if none exists
+	 * @return the pack, or null if no pack exists and create is false
+	 */
+	private Pack getPack(ImageServer<BufferedImage> server, boolean create) {
+		var path = server.getPath();
+		var id = getPackId(path);
+		var pack = packs.get(id);
+		if (pack != null && !pack.verified) {
+			var fingerprint = createFingerprint(server.getURIs());
+			if (pack.serverPath.equals(path) && pack.fingerprint.equals(fingerprint)) {
+				pack.verified = true;
+			} else {
+				logger.debug("Discarding cached tiles for {}", path);
+				removePack(pack);
+				pack = null;
+			}
+		}
+		if (pack == null && create) {
+			pack = new Pack(directory, id, path, createFingerprint(server.getURIs()));
+			pack.verified = true;
+			packs.put(id, pack);
+		}
+		return pack;
+	}
+
+	/**
+	 * Remove a pack from the cache and delete its files.
+	 * This must be called while holding the cache lock; it waits for any compaction of the pack to finish.
+	 */
+	private void removePack(Pack pack) {
+		if (packs.get(pack.id) == pack)
+			packs.remove(pack.id);
+		synchronized (pack) {
+			if (pack.discarded)
+				return;
+			pack.discarded = true;
+			sizeBytes.addAndGet(-(pack.dataEnd - PACK_HEADER_BYTES));
+			try {
+				pack.delete();
+			} catch (IOException e) {
+				logger.warn("Unable to delete disk cache file {}: {}", pack.packPath, e.getMessage());
+				logger.debug(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Remove the least-recently-used tiles, and find the packs that should be compacted to reclaim the space.
+	 * This must be called while holding the cache lock, but the compaction should be done afterwards with
+	 * {@link #compact(List)} so that other packs can be used in the meantime.
+	 * Packs that are already waiting to be compacted are skipped; if the cache is still too large, they will
+	 * be considered again the next time a tile is added.
+	 * @return the packs to compact
+	 */
+	private List<Pack> evict() {
+		record Candidate(Pack pack, TileKey key, long lastAccess) {}
+		List<Candidate> candidates = new ArrayList<>();
+		List<Pack> evictable = new ArrayList<>();
+		long liveBytes = 0;
+		for (var pack : packs.values()) {
+			if (pack.compacting)
+				continue;
+			evictable.add(pack);
+			synchronized (pack) {
+				liveBytes += pack.liveBytes;
+				for (var entry : pack.entries.entrySet())
+					candidates.add(new Candidate(pack, entry.getKey(), entry.getValue().lastAccess));
+			}
+		}
+		candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+		long targetBytes = (long)(maxBytes * EVICTION_TARGET);
+		for (var candidate : candidates) {
+			if (liveBytes <= targetBytes)
+				break;
+			var pack = candidate.pack();
+			synchronized (pack) {
+				liveBytes -= pack.remove(candidate.key());
+			}
+			evictionCount.increment();
+		}
+		List<Pack> toCompact = new ArrayList<>();
+		for (var pack : evictable) {
+			boolean isEmpty, needsCompacting;
+			synchronized (pack) {
+				isEmpty = pack.entries.isEmpty();
+				needsCompacting = pack.liveBytes < pack.dataEnd - PACK_HEADER_BYTES;
+			}
+			if (isEmpty) {
+				removePack(pack);
+			} else if (needsCompacting) {
+				pack.compacting = true;
+				toCompact.add(pack);
+			}
+		}
+		return toCompact;
+	}
+
+	/**
+	 * Compact packs returned by {@link #evict()}.
+	 * This must be called without holding the cache lock, so that only requests for tiles in the packs
+	 * being compacted need to wait.
+	 */
+	private void compact(List<Pack> toCompact) {
+		if (toCompact.isEmpty())
+			return;
+		List<Pack> failed = new ArrayList<>();
+		for (var pack : toCompact) {
+			synchronized (pack) {
+				if (pack.discarded)
+					continue;
+				long before = pack.dataEnd;
+				try {
+					pack.compact();
+					sizeBytes.addAndGet(pack.dataEnd - before);
+				} catch (IOException e) {
+					logger.warn("Unable to compact disk cache file {}: {}", pack.packPath, e.getMessage());
+					logger.debug(e.getMessage(), e);
+					failed.add(pack);
+				}
+			}
+		}
+		synchronized (this) {
+			for (var pack : toCompact)
+				pack.compacting = false;
+			for (var pack : failed)
+				removePack(pack);
+		}
+		logger.debug("Disk tile cache size after eviction: {} bytes", sizeBytes.get());
+	}
+
+	/**
+	 * Read the indexes for all packs in the cache directory, deleting any files that can't be used.
+	 * @throws IOException
+	 */
+	private void readIndexes() throws IOException {
+		List<Pack> toCompact;
+		synchronized (this) {
+			readIndexFiles();
+			toCompact = sizeBytes.get() > maxBytes ? evict() : List.of();
+		}
+		compact(toCompact);
+	}
+
+	private void readIndexFiles() throws IOException {
+		List<Path> files;
+		try (var stream = Files.list(directory)) {
+			files = stream.toList();
+		}
+		for (var file : files) {
+			var name = file.getFileName().toString();
+			if (name.endsWith(".tmp")) {
+				// Left over from an incomplete write
+				Files.deleteIfExists(file);
+				continue;
+			}
+			if (!name.endsWith(PACK_EXTENSION) && !name.endsWith(INDEX_EXTENSION))
+				continue;
+			var id = name.substring(0, name.lastIndexOf('.'));
+			if (packs.containsKey(id))
+				continue;
+			try {
+				var pack = Pack.read(directory, id);
+				packs.put(id, pack);
+				sizeBytes.addAndGet(pack.dataEnd - PACK_HEADER_BYTES);
+				for (var entry : pack.entries.values())
+					clock = Math.max(clock, entry.lastAccess);
+			} catch (IOException e) {
+				logger.debug("Deleting unreadable disk cache files for {}: {}", id, e.getMessage());
+				Files.deleteIfExists(directory.resolve(id + PACK_EXTENSION));
+				Files.deleteIfExists(directory.resolve(id + INDEX_EXTENSION));
+			}
+		}
+		logger.debug("Read disk tile cache with {} packs ({} bytes)", packs.size(), sizeBytes.get());
+	}
+
+	private static String getPackId(String serverPath) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256").digest(serverPath.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest, 0, 16);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Create a string that changes if any of the files used by a server are modified.
+	 * @param uris
+	 * @return
+	 */
+	private static String createFingerprint(Iterable<URI> uris) {
+		var sb = new StringBuilder();
+		for (var uri : uris) {
+			sb.append(uri);
+			if ("file".equals(uri.getScheme())) {
+				try {
+					var path = Path.of(uri);
+					if (Files.isRegularFile(path))
+						sb.append(':').append(Files.size(path)).append(':').append(Files.getLastModifiedTime(path).toMillis());
+				} catch (Exception e) {
+					logger.debug("Unable to get file attributes for {}: {}", uri, e.getMessage());
+				}
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+
+	private record TileKey(double downsample, int x, int y, int width, int height, int z, int t) {
+
+		private static TileKey create(RegionRequest request) {
+			return new TileKey(request.getDownsample(), request.getX(), request.getY(),
+					request.getWidth(), request.getHeight(), request.getZ(), request.getT());
+		}
+
+	}
+
+	private static class Entry {
+
+		private final long offset;
+		private final int length;
+		private long lastAccess;
+
+		private Entry(long offset, int length, long lastAccess) {
+			this.offset = offset;
+			this.length = length;
+			this.lastAccess = lastAccess;
+		}
+
+	}
+
+
+	/**
+	 * The tiles for a single server.
+	 * The pack file starts with a header containing a random generation number, which is also stored in the index
+	 * to ensure that the two files match.
+	 * Tiles are appended after the header, and written through a memory mapping that is extended in chunks.
+	 * Any bytes after the end of the last tile are removed when the pack is closed.
+	 * <p>
+	 * The lock for the pack must be held when using its tiles or files, and may be acquired while holding the
+	 * cache lock (but not the other way around).
+	 */
+	private static class Pack {
+
+		private final String id;
+		private final Path packPath;
+		private final Path indexPath;
+		private final String serverPath;
+		private final String fingerprint;
+		private final Map<TileKey, Entry> entries = new HashMap<>();
+
+		private long generation;
+		private long dataEnd = PACK_HEADER_BYTES;
+		private long liveBytes;
+		private int changes;
+		private boolean verified;
+
+		// Guarded by the cache lock
+		private boolean compacting;
+
+		// Set when the pack has been deleted or closed by the cache, after which it shouldn't be used
+		private boolean discarded;
+
+		private FileChannel channel;
+		private Arena arena;
+		private MemorySegment segment;
+
+		private Pack(Path directory, String id, String serverPath, String fingerprint) {
+			this.id = id;
+			this.packPath = directory.resolve(id + PACK_EXTENSION);
+			this.indexPath = directory.resolve(id + INDEX_EXTENSION);
+			this.serverPath = serverPath;
+			this.fingerprint = fingerprint;
+			this.generation = ThreadLocalRandom.current().nextLong();
+		}
+
+		private static Pack read(Path directory, String id) throws IOException {
+			var indexPath = directory.resolve(id + INDEX_EXTENSION);
+			var packPath = directory.resolve(id + PACK_EXTENSION);
+			try (var stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+				if (stream.readInt() != INDEX_MAGIC || stream.readInt() != INDEX_VERSION)
+					throw new IOException("Unsupported index format");
+				var pack = new Pack(directory, id, stream.readUTF(), stream.readUTF());
+				pack.generation = stream.readLong();
+				pack.dataEnd = stream.readLong();
+				int n = stream.readInt();
+				for (int i = 0; i < n; i++) {
+					var key = new TileKey(stream.readDouble(), stream.readInt(), stream.readInt(),
+							stream.readInt(), stream.readInt(), stream.readInt(), stream.readInt());
+					var entry = new Entry(stream.readLong(), stream.readInt(), stream.readLong());
+					if (entry.offset < PACK_HEADER_BYTES || entry.offset + entry.length > pack.dataEnd)
+						throw new IOException("Invalid index entry");
+					pack.entries.put(key, entry);
+					pack.liveBytes += entry.length;
+				}
+				if (!Files.isRegularFile(packPath) || Files.size(packPath) < pack.dataEnd)
+					throw new IOException("Pack file is missing or too small");
+				try (var channel = FileChannel.open(packPath, StandardOpenOption.READ)) {
+					var header = ByteBuffer.allocate(PACK_HEADER_BYTES);
+					while (header.hasRemaining() && channel.read(header) >= 0) {}
+					header.flip();
+					if (header.remaining() < PACK_HEADER_BYTES || header.getLong() != PACK_MAGIC || header.getLong() != pack.generation)
+						throw new IOException("Pack file doesn't match index");
+				}
+				return pack;
+			}
+		}
+
+		private byte[] read(TileKey key, long time) throws IOException {
+			var entry = entries.get(key);
+			if (entry == null)
+				return null;
+			entry.lastAccess = time;
+			changes++;
+			ensureMapped(dataEnd);
+			var bytes = new byte[entry.length];
+			MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, entry.offset, bytes, 0, entry.length);
+			return bytes;
+		}
+
+		/**
+		 * Append a tile.
+		 * @return the change in the number of bytes used by the pack
+		 */
+		private long write(TileKey key, byte[] bytes, long time) throws IOException {
+			long offset = dataEnd;
+			ensureMapped(offset + bytes.length);
+			MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, offset, bytes.length);
+			var previous = entries.put(key, new Entry(offset, bytes.length, time));
+			if (previous != null)
+				liveBytes -= previous.length;
+			liveBytes += bytes.length;
+			dataEnd += bytes.length;
+			if (++changes >= INDEX_WRITE_INTERVAL)
+				writeIndexIfChanged();
+			return bytes.length;
+		}
+
+		/**
+		 * Remove a tile from the index; the space isn't reclaimed until the pack is compacted.
+		 * @return the number of bytes that were used by the tile
+		 */
+		private long remove(TileKey key) {
+			var entry = entries.remove(key);
+			if (entry == null)
+				return 0;
+			liveBytes -= entry.length;
+			changes++;
+			return entry.length;
+		}
+
+		/**
+		 * Ensure the pack file is open and mapped up to at least the specified position.
+		 */
+		private void ensureMapped(long end) throws IOException {
+			if (segment != null && segment.byteSize() >= end)
+				return;
+			if (channel == null) {
+				boolean exists = Files.exists(packPath);
+				channel = FileChannel.open(packPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				if (!exists || channel.size() < PACK_HEADER_BYTES) {
+					var header = ByteBuffer.allocate(PACK_HEADER_BYTES).putLong(PACK_MAGIC).putLong(generation).flip();
+					channel.write(header, 0);
+				}
+			}
+			long size = segment == null ? MIN_MAPPED_BYTES : segment.byteSize() + Math.min(segment.byteSize(), MAX_MAPPED_INCREMENT);
+			size = Math.max(Math.max(size, end), channel.size());
+			unmap();
+			arena = Arena.ofShared();
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+		}
+
+		private void unmap() {
+			if (arena != null)
+				arena.close();
+			arena = null;
+			segment = null;
+		}
+
+		/**
+		 * Rewrite the pack to contain only the tiles that are still in the index.
+		 */
+		private void compact() throws IOException {
+			ensureMapped(dataEnd);
+			var tempPath = packPath.resolveSibling(packPath.getFileName() + ".tmp");
+			long newGeneration = ThreadLocalRandom.current().nextLong();
+			var sorted = new ArrayList<>(entries.entrySet());
+			sorted.sort(Comparator.comparingLong(e -> e.getValue().offset));
+			long offset = PACK_HEADER_BYTES;
+			try (var output = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				output.write(ByteBuffer.allocate(PACK_HEADER_BYTES).putLong(PACK_MAGIC).putLong(newGeneration).flip());
+				for (var e : sorted) {
+					var entry = e.getValue();
+					var buffer = segment.asSlice(entry.offset, entry.length).asByteBuffer();
+					while (buffer.hasRemaining())
+						output.write(buffer);
+					e.setValue(new Entry(offset, entry.length, entry.lastAccess));
+					offset += entry.length;
+				}
+			}
+			close();
+			Files.move(tempPath, packPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			generation = newGeneration;
+			dataEnd = offset;
+			changes++;
+			writeIndexIfChanged();
+		}
+
+		private void writeIndexIfChanged() throws IOException {
+			if (changes == 0 && Files.exists(indexPath))
+				return;
+			var tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+			try (var stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+				stream.writeInt(INDEX_MAGIC);
+				stream.writeInt(INDEX_VERSION);
+				stream.writeUTF(serverPath);
+				stream.writeUTF(fingerprint);
+				stream.writeLong(generation);
+				stream.writeLong(dataEnd);
+				stream.writeInt(entries.size());
+				for (var e : entries.entrySet()) {
+					var key = e.getKey();
+					var entry = e.getValue();
+					stream.writeDouble(key.downsample());
+					stream.writeInt(key.x());
+					stream.writeInt(key.y());
+					stream.writeInt(key.width());
+					stream.writeInt(key.height());
+					stream.writeInt(key.z());
+					stream.writeInt(key.t());
+					stream.writeLong(entry.offset);
+					stream.writeInt(entry.length);
+					stream.writeLong(entry.lastAccess);
+				}
+			}
+			Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			changes = 0;
+		}
+
+		/**
+		 * Unmap and close the pack file, removing any unused space at the end.
+		 */
+		private void close() throws IOException {
+			unmap();
+			if (channel != null) {
+				if (channel.size() > dataEnd)
+					channel.truncate(dataEnd);
+				channel.close();
+				channel = null;
+			}
+		}
+
+		private void delete() throws IOException {
+			unmap();
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+			entries.clear();
+			liveBytes = 0;
+			Files.deleteIfExists(indexPath);
+			Files.deleteIfExists(packPath);
+		}
+
+	}
+
+
+	/**
+	 * Convert tiles to and from compressed bytes.
+	 * <p>
+	 * The uncompressed data contains the width, height, number of bands, data type and image type, followed by
+	 * the number of bytes used for each band, and then the samples for each band in turn.
+	 * Samples are stored using the smallest type that can represent the sample size of the original raster.
+	 */
+	private static class TileCodec {
+
+		private static final int HEADER_INTS = 5;
+
+		private static boolean canEncode(BufferedImage img, ImageServer<BufferedImage> server) {
+			return switch (img.getType()) {
+				case BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED -> false;
+				case BufferedImage.TYPE_CUSTOM -> img.getRaster().getNumBands() == server.nChannels();
+				default -> true;
+			};
+		}
+
+		private static byte[] encode(BufferedImage img) {
+			var raster = img.getRaster();
+			int width = raster.getWidth();
+			int height = raster.getHeight();
+			int nBands = raster.getNumBands();
+			int dataType = raster.getDataBuffer().getDataType();
+			var bytesPerSample = new int[nBands];
+			long rawLength = (HEADER_INTS + nBands) * 4L;
+			for (int b = 0; b < nBands; b++) {
+				bytesPerSample[b] = getBytesPerSample(dataType, raster.getSampleModel().getSampleSize(b));
+				rawLength += (long)bytesPerSample[b] * width * height;
+			}
+			var buffer = ByteBuffer.allocate(Math.toIntExact(rawLength));
+			buffer.putInt(width).putInt(height).putInt(nBands).putInt(dataType).putInt(img.getType());
+			for (int b = 0; b < nBands; b++)
+				buffer.putInt(bytesPerSample[b]);
+			int minX = raster.getMinX();
+			int minY = raster.getMinY();
+			for (int b = 0; b < nBands; b++) {
+				switch (dataType) {
+					case DataBuffer.TYPE_FLOAT -> buffer.asFloatBuffer().put(raster.getSamples(minX, minY, width, height, b, (float[])null));
+					case DataBuffer.TYPE_DOUBLE -> buffer.asDoubleBuffer().put(raster.getSamples(minX, minY, width, height, b, (double[])null));
+					default -> {
+						var samples = raster.getSamples(minX, minY, width, height, b, (int[])null);
+						switch (bytesPerSample[b]) {
+							case 1 -> {
+								for (int v : samples)
+									buffer.put((byte)v);
+							}
+							case 2 -> {
+								var shortBuffer = buffer.asShortBuffer();
+								for (int v : samples)
+									shortBuffer.put((short)v);
+							}
+							default -> buffer.asIntBuffer().put(samples);
+						}
+					}
+				}
+				if (bytesPerSample[b] > 1)
+					buffer.position(buffer.position() + bytesPerSample[b] * width * height);
+			}
+
+			var deflater = new Deflater(Deflater.BEST_SPEED);
+			try {
+				deflater.setInput(buffer.array());
+				deflater.finish();
+				var output = new byte[Math.max(64, buffer.capacity() / 2)];
+				int n = 4;
+				while (!deflater.finished()) {
+					if (n == output.length)
+						output = Arrays.copyOf(output, output.length * 2);
+					n += deflater.deflate(output, n, output.length - n);
+				}
+				ByteBuffer.wrap(output).putInt(buffer.capacity());
+				return Arrays.copyOf(output, n);
+			} finally {
+				deflater.end();
+			}
+		}
+
+		private static BufferedImage decode(byte[] bytes, ImageServer<BufferedImage> server) throws IOException {
+			int rawLength = ByteBuffer.wrap(bytes).getInt();
+			var raw = new byte[rawLength];
+			var inflater = new Inflater();
+			try {
+				inflater.setInput(bytes, 4, bytes.length - 4);
+				int n = 0;
+				while (n < rawLength && !inflater.finished()) {
+					int count = inflater.inflate(raw, n, rawLength - n);
+					if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						throw new IOException("Compressed tile is truncated");
+					n += count;
+				}
+				if (n != rawLength)
+					throw new IOException("Expected " + rawLength + " bytes, but read " + n);
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			} finally {
+				inflater.end();
+			}
+
+			var buffer = ByteBuffer.wrap(raw);
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			int nBands = buffer.getInt();
+			int dataType = buffer.getInt();
+			int imageType = buffer.getInt();
+			var bytesPerSample = new int[nBands];
+			for (int b = 0; b < nBands; b++)
+				bytesPerSample[b] = buffer.getInt();
+
+			BufferedImage img;
+			if (imageType == BufferedImage.TYPE_CUSTOM) {
+				var colorModel = ColorModelFactory.createColorModel(server.getPixelType(), server.getMetadata().getChannels());
+				WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(dataType, width, height, nBands), null);
+				if (!colorModel.isCompatibleRaster(raster))
+					throw new IOException("Cached tile is not compatible with the color model for " + server.getPath());
+				img = new BufferedImage(colorModel, raster, false, null);
+			} else {
+				img = new BufferedImage(width, height, imageType);
+			}
+			var raster = img.getRaster();
+			if (raster.getNumBands() != nBands || raster.getDataBuffer().getDataType() != dataType)
+				throw new IOException("Cached tile does not match the expected image type");
+
+			int nPixels = width * height;
+			for (int b = 0; b < nBands; b++) {
+				switch (dataType) {
+					case DataBuffer.TYPE_FLOAT -> {
+						var samples = new float[nPixels];
+						buffer.asFloatBuffer().get(samples);
+						raster.setSamples(0, 0, width, height, b, samples);
+					}
+					case DataBuffer.TYPE_DOUBLE -> {
+						var samples = new double[nPixels];
+						buffer.asDoubleBuffer().get(samples);
+						raster.setSamples(0, 0, width, height, b, samples);
+					}
+					default -> {
+						var samples = new int[nPixels];
+						switch (bytesPerSample[b]) {
+							case 1 -> {
+								for (int i = 0; i < nPixels; i++)
+									samples[i] = buffer.get() & 0xff;
+							}
+							case 2 -> {
+								var shortBuffer = buffer.asShortBuffer();
+								boolean signed = dataType == DataBuffer.TYPE_SHORT;
+								for (int i = 0; i < nPixels; i++)
+									samples[i] = signed ? shortBuffer.get() : shortBuffer.get() & 0xffff;
+							}
+							default -> buffer.asIntBuffer().get(samples);
+						}
+						raster.setSamples(0, 0, width, height, b, samples);
+					}
+				}
+				if (bytesPerSample[b] > 1)
+					buffer.position(buffer.position() + bytesPerSample[b] * nPixels);
+			}
+			return img;
+		}
+
+		private static int getBytesPerSample(int dataType, int sampleSize) {
+			return switch (dataType) {
+				case DataBuffer.TYPE_FLOAT -> 4;
+				case DataBuffer.TYPE_DOUBLE -> 8;
+				default -> sampleSize <= 8 ? 1 : sampleSize <= 16 ? 2 : 4;
+			};
+		}
+
+	}
+
+}
@@ -61,6 +61,8 @@ public class ImageServerProvider {
 	
 	private static Map<Class<?>, Map<RegionRequest, ?>> cacheMap = new HashMap<>();
 	
+	private static DiskTileCache diskCache;
+	
 	@SuppressWarnings("rawtypes")
 	private static ServiceLoader<ImageServerBuilder> serviceLoader = ServiceLoader.load(ImageServerBuilder.class);
 	
@@ -85,6 +87,25 @@ public class ImageServerProvider {
 		return (Map<RegionRequest, T>)cacheMap.get(cls);
 	}
 	
+	/**
+	 * Set the persistent cache to be used for image tiles that are slow to read.
+	 * @param cache the cache, or null if no disk cache should be used
+	 * @see AbstractTileableImageServer#isDiskCacheSupported()
+	 * @since v0.8.0
+	 */
+	public static void setDiskCache(DiskTileCache cache) {
+		diskCache = cache;
+	}
+	
+	/**
+	 * Get the persistent cache used for image tiles that are slow to read.
+	 * @return the cache, or null if no disk cache should be used
+	 * @since v0.8.0
+	 */
+	public static DiskTileCache getDiskCache() {
+		return diskCache;
+	}
+	
 	/**
 	 * Replace the default service loader with another.
 	 * <p>
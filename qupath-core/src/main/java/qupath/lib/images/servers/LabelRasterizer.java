@@ -0,0 +1,384 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import qupath.lib.awt.common.ShapeRasterizer;
+import qupath.lib.regions.RegionRequest;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Helper class to draw labels for ROIs into a single-band tile, using a scanline fill rather than a
+ * {@link java.awt.Graphics2D}.
+ * <p>
+ * ROIs are added in the order they should be drawn, and then rasterized directly into the pixel array of the tile.
+ * For area ROIs, a pixel is labeled if its center falls inside the ROI.
+ * Lines and boundaries that are no more than 1 pixel thick are drawn as thin, 8-connected lines: for each column 
+ * (or row, for steep lines) the pixel containing the line at the pixel center is labeled, similar to 
+ * {@link java.awt.Graphics2D}.
+ * Thicker lines label pixels with centers inside the outline created by {@link ShapeRasterizer#createStroked(Shape, double)}.
+ * <p>
+ * When there are many ROIs, rasterization is split into horizontal stripes that are processed in parallel.
+ * Each stripe draws all the ROIs in order, so the result is the same as drawing sequentially.
+ * <p>
+ * Shapes are flattened once and cached, so that the same instance can be reused to draw several channels of the
+ * same tile (with {@link #clear()} called in between).
+ */
+class LabelRasterizer {
+
+	/**
+	 * Minimum number of ROIs before rasterizing in parallel.
+	 */
+	private static final int PARALLEL_THRESHOLD = 256;
+
+	/**
+	 * Number of rows to rasterize in each parallel task.
+	 */
+	private static final int STRIPE_HEIGHT = 64;
+
+	/**
+	 * Maximum distance between a curve and its flattened approximation when drawing thin lines, in image pixels.
+	 */
+	private static final double FLATNESS = 0.1;
+
+	private enum Kind { FILL, STROKE, POINTS }
+
+	private record LabelOp(ROI roi, int label, Kind kind) {}
+
+	/**
+	 * Write a label to a horizontal span of pixels.
+	 */
+	@FunctionalInterface
+	private interface SpanWriter {
+		void fill(int offset, int length, int label);
+	}
+
+	/**
+	 * Draw a label into a range of rows of the tile.
+	 */
+	@FunctionalInterface
+	private interface RowDrawer {
+		void draw(int yStart, int yEnd, int label, SpanWriter writer);
+	}
+
+	/**
+	 * A ROI that has been prepared for drawing into the tile.
+	 * @param rowStart first row of the tile that may be drawn (inclusive)
+	 * @param rowEnd last row of the tile that may be drawn (exclusive)
+	 * @param drawer the drawer
+	 */
+	private record PreparedROI(int rowStart, int rowEnd, RowDrawer drawer) {}
+
+	private final double x;
+	private final double y;
+	private final double downsample;
+	private final int width;
+	private final int height;
+	private final double strokeWidth;
+
+	private final List<LabelOp> ops = new ArrayList<>();
+	private final Map<ROI, PreparedROI> fillCache = new IdentityHashMap<>();
+	private final Map<ROI, PreparedROI> strokeCache = new IdentityHashMap<>();
+
+	/**
+	 * Create a rasterizer for a tile.
+	 * @param request the region corresponding to the tile
+	 * @param width the tile width, in pixels
+	 * @param height the tile height, in pixels
+	 * @param lineThickness thickness of lines and boundaries, in pixels of the tile
+	 */
+	LabelRasterizer(RegionRequest request, int width, int height, float lineThickness) {
+		this.x = request.getX();
+		this.y = request.getY();
+		this.downsample = request.getDownsample();
+		this.width = width;
+		this.height = height;
+		this.strokeWidth = lineThickness * downsample;
+	}
+
+	/**
+	 * Add a ROI to draw.
+	 * Area ROIs are filled, lines are stroked and each point sets a single pixel.
+	 * @param roi the ROI
+	 * @param label the label value
+	 * @param boundary if true, stroke the boundary of the ROI rather than filling it
+	 */
+	void add(ROI roi, int label, boolean boundary) {
+		Kind kind;
+		if (boundary || roi.isLine())
+			kind = Kind.STROKE;
+		else if (roi.isArea())
+			kind = Kind.FILL;
+		else if (roi.isPoint())
+			kind = Kind.POINTS;
+		else
+			return;
+		ops.add(new LabelOp(roi, label, kind));
+	}
+
+	/**
+	 * Query whether any ROIs have been added since the last call to {@link #clear()}.
+	 * @return
+	 */
+	boolean isEmpty() {
+		return ops.isEmpty();
+	}
+
+	/**
+	 * Remove all ROIs, but retain the cached shapes so that they can be drawn again quickly.
+	 */
+	void clear() {
+		ops.clear();
+	}
+
+	/**
+	 * Draw all the ROIs into an 8-bit tile.
+	 * @param pixels the pixels, with one byte per pixel and a row stride equal to the tile width
+	 */
+	void rasterize(byte[] pixels) {
+		rasterize((offset, length, label) -> {
+			if (length == 1)
+				pixels[offset] = (byte)label;
+			else
+				Arrays.fill(pixels, offset, offset + length, (byte)label);
+		});
+	}
+
+	/**
+	 * Draw all the ROIs into a 16-bit tile.
+	 * @param pixels the pixels, with one short per pixel and a row stride equal to the tile width
+	 */
+	void rasterize(short[] pixels) {
+		rasterize((offset, length, label) -> {
+			if (length == 1)
+				pixels[offset] = (short)label;
+			else
+				Arrays.fill(pixels, offset, offset + length, (short)label);
+		});
+	}
+
+	/**
+	 * Draw all the ROIs into a 32-bit tile.
+	 * @param pixels the pixels, with one int per pixel and a row stride equal to the tile width
+	 */
+	void rasterize(int[] pixels) {
+		rasterize((offset, length, label) -> {
+			if (length == 1)
+				pixels[offset] = label;
+			else
+				Arrays.fill(pixels, offset, offset + length, label);
+		});
+	}
+
+	private void rasterize(SpanWriter writer) {
+		int n = ops.size();
+		if (n == 0)
+			return;
+		boolean doParallel = n >= PARALLEL_THRESHOLD;
+
+		// Flatten all the shapes we don't already have, which can be the slowest part
+		PreparedROI[] prepared = new PreparedROI[n];
+		for (int i = 0; i < n; i++)
+			prepared[i] = getCache(ops.get(i).kind()).get(ops.get(i).roi());
+		var stream = IntStream.range(0, n).filter(i -> prepared[i] == null);
+		if (doParallel)
+			stream = stream.parallel();
+		stream.forEach(i -> prepared[i] = prepare(ops.get(i)));
+		for (int i = 0; i < n; i++)
+			getCache(ops.get(i).kind()).putIfAbsent(ops.get(i).roi(), prepared[i]);
+
+		// Assign ROIs to the stripes they overlap, retaining the order in which they should be drawn
+		int stripeHeight = doParallel ? STRIPE_HEIGHT : height;
+		int nStripes = (height + stripeHeight - 1) / stripeHeight;
+		int[] counts = new int[nStripes];
+		for (var p : prepared) {
+			for (int s = p.rowStart() / stripeHeight; s < nStripes && s * stripeHeight < p.rowEnd(); s++)
+				counts[s]++;
+		}
+		int[][] stripes = new int[nStripes][];
+		for (int s = 0; s < nStripes; s++)
+			stripes[s] = new int[counts[s]];
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < n; i++) {
+			var p = prepared[i];
+			for (int s = p.rowStart() / stripeHeight; s < nStripes && s * stripeHeight < p.rowEnd(); s++)
+				stripes[s][counts[s]++] = i;
+		}
+
+		var stripeStream = IntStream.range(0, nStripes);
+		if (doParallel)
+			stripeStream = stripeStream.parallel();
+		stripeStream.forEach(s -> {
+			int yStart = s * stripeHeight;
+			int yEnd = Math.min(height, yStart + stripeHeight);
+			for (int i : stripes[s])
+				prepared[i].drawer().draw(yStart, yEnd, ops.get(i).label(), writer);
+		});
+	}
+
+	private Map<ROI, PreparedROI> getCache(Kind kind) {
+		return kind == Kind.STROKE ? strokeCache : fillCache;
+	}
+
+	private PreparedROI prepare(LabelOp op) {
+		var roi = op.roi();
+		return switch (op.kind()) {
+			case FILL -> prepareSpans(new ShapeRasterizer(roi.getShape()));
+			case STROKE -> strokeWidth <= downsample ? prepareThinLines(roi.getShape()) :
+					prepareSpans(ShapeRasterizer.createStroked(roi.getShape(), strokeWidth));
+			case POINTS -> preparePoints(roi);
+		};
+	}
+
+	/**
+	 * Create a prepared ROI, clipping the range of rows to the tile.
+	 * The range may be empty if the ROI is entirely outside the tile.
+	 */
+	private PreparedROI createPrepared(double rowMin, double rowMax, RowDrawer drawer) {
+		int rowStart = (int)Math.max(0, Math.floor(rowMin));
+		int rowEnd = (int)Math.min(height, Math.ceil(rowMax));
+		return new PreparedROI(rowStart, Math.max(rowStart, rowEnd), drawer);
+	}
+
+	private PreparedROI prepareSpans(ShapeRasterizer rasterizer) {
+		var bounds = rasterizer.getBounds();
+		return createPrepared(
+				(bounds.getMinY() - y) / downsample - 0.5,
+				(bounds.getMaxY() - y) / downsample + 0.5,
+				(yStart, yEnd, label, writer) -> rasterizer.rasterize(
+						x, y + yStart * downsample, downsample, width, yEnd - yStart,
+						(row, xStart, xEnd) -> writer.fill((row + yStart) * width + xStart, xEnd - xStart, label)));
+	}
+
+	private PreparedROI preparePoints(ROI roi) {
+		var points = roi.getAllPoints();
+		double yMin = Double.POSITIVE_INFINITY;
+		double yMax = Double.NEGATIVE_INFINITY;
+		for (var p : points) {
+			yMin = Math.min(yMin, p.getY());
+			yMax = Math.max(yMax, p.getY());
+		}
+		return createPrepared(
+				(yMin - y) / downsample - 1,
+				(yMax - y) / downsample + 1,
+				(yStart, yEnd, label, writer) -> {
+					for (var p : points) {
+						int px = (int)((p.getX() - x) / downsample);
+						int py = (int)((p.getY() - y) / downsample);
+						if (px >= 0 && px < width && py >= yStart && py < yEnd)
+							writer.fill(py * width + px, 1, label);
+					}
+				});
+	}
+
+	/**
+	 * Prepare to draw the outline of a shape as thin lines.
+	 * Subpaths are only closed if the shape explicitly closes them, so this can be used for lines as well as areas.
+	 */
+	private PreparedROI prepareThinLines(Shape shape) {
+		// Store the line segments in tile pixel coordinates
+		double[] segments = new double[64];
+		int n = 0;
+		var iterator = shape.getPathIterator(null, FLATNESS * downsample);
+		double[] coords = new double[6];
+		double xStart = 0, yStart = 0;
+		double xLast = 0, yLast = 0;
+		while (!iterator.isDone()) {
+			int type = iterator.currentSegment(coords);
+			double xNext, yNext;
+			if (type == PathIterator.SEG_CLOSE) {
+				xNext = xStart;
+				yNext = yStart;
+			} else {
+				xNext = (coords[0] - x) / downsample;
+				yNext = (coords[1] - y) / downsample;
+			}
+			if (type == PathIterator.SEG_MOVETO) {
+				xStart = xNext;
+				yStart = yNext;
+			} else {
+				if (n + 4 > segments.length)
+					segments = Arrays.copyOf(segments, segments.length * 2);
+				segments[n++] = xLast;
+				segments[n++] = yLast;
+				segments[n++] = xNext;
+				segments[n++] = yNext;
+			}
+			xLast = xNext;
+			yLast = yNext;
+			iterator.next();
+		}
+		double[] lines = Arrays.copyOf(segments, n);
+		double yMin = Double.POSITIVE_INFINITY;
+		double yMax = Double.NEGATIVE_INFINITY;
+		for (int i = 1; i < n; i += 2) {
+			yMin = Math.min(yMin, lines[i]);
+			yMax = Math.max(yMax, lines[i]);
+		}
+		return createPrepared(yMin - 1, yMax + 1, (rowStart, rowEnd, label, writer) -> {
+			for (int i = 0; i < lines.length; i += 4)
+				drawThinLine(lines[i], lines[i+1], lines[i+2], lines[i+3], rowStart, rowEnd, label, writer);
+		});
+	}
+
+	/**
+	 * Draw a thin line, in tile pixel coordinates.
+	 * Each column (or row, for steep lines) with a pixel center between the end points is labeled once.
+	 */
+	private void drawThinLine(double x0, double y0, double x1, double y1, int rowStart, int rowEnd, int label, SpanWriter writer) {
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		if (Math.abs(dx) >= Math.abs(dy)) {
+			if (dx == 0)
+				return;
+			// Skip lines entirely outside the rows
+			if (Math.max(y0, y1) < rowStart || Math.min(y0, y1) >= rowEnd)
+				return;
+			double slope = dy / dx;
+			int colStart = Math.max(0, (int)Math.ceil(Math.min(x0, x1) - 0.5));
+			int colEnd = Math.min(width, (int)Math.ceil(Math.max(x0, x1) - 0.5));
+			for (int col = colStart; col < colEnd; col++) {
+				int row = (int)Math.floor(y0 + (col + 0.5 - x0) * slope);
+				if (row >= rowStart && row < rowEnd)
+					writer.fill(row * width + col, 1, label);
+			}
+		} else {
+			double slope = dx / dy;
+			int start = Math.max(rowStart, (int)Math.ceil(Math.min(y0, y1) - 0.5));
+			int end = Math.min(rowEnd, (int)Math.ceil(Math.max(y0, y1) - 0.5));
+			for (int row = start; row < end; row++) {
+				int col = (int)Math.floor(x0 + (row + 0.5 - y0) * slope);
+				if (col >= 0 && col < width)
+					writer.fill(row * width + col, 1, label);
+			}
+		}
+	}
+
+}
@@ -48,10 +48,13 @@ import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -347,6 +350,8 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 
 		private boolean grayscaleLut = false;
 
+		private boolean useGraphics2D = false;
+
 		private float lineThickness = 1.0f;
 		private Map<PathClass, Integer> labels = new LinkedHashMap<>();
 		private Map<PathClass, Integer> boundaryLabels = new LinkedHashMap<>();
@@ -369,6 +374,7 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 			this.roiFunction = params.roiFunction;
 			this.grayscaleLut = params.grayscaleLut;
 			this.shuffleInstanceLabels = params.shuffleInstanceLabels;
+			this.useGraphics2D = params.useGraphics2D;
 		}
 
 	}
@@ -517,6 +523,22 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 			return this;
 		}
 
+		/**
+		 * Optionally draw labels using {@link Graphics2D}, as in QuPath versions prior to v0.8.0.
+		 * <p>
+		 * By default, labels are drawn with a scanline fill so that a pixel is labeled whenever its center 
+		 * falls inside an object (or inside the stroked line for boundaries and line ROIs).
+		 * This is much faster for tiles containing many objects, but pixels along object boundaries may differ 
+		 * slightly from previous versions.
+		 * @param useGraphics2D
+		 * @return
+		 * @since v0.8.0
+		 */
+		public Builder useGraphics2D(boolean useGraphics2D) {
+			params.useGraphics2D = useGraphics2D;
+			return this;
+		}
+
 
 		/**
 		 * @return
@@ -814,14 +836,40 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 	 */
 	@Override
 	public boolean isEmptyRegion(RegionRequest request) {
-		double thicknessScale = request.getDownsample() / getDownsampleForResolution(0);
-		int pad = (int)Math.ceil(params.lineThickness * thicknessScale);
-		var request2 = pad > 0 ? request.pad2D(pad, pad) : request;
+		var request2 = padForLineThickness(request);
 		return !getObjectsForRegion(request2)
 				.stream()
 				.anyMatch(p -> RoiTools.intersectsRegion(p.getROI(), request2));
 	}
 
+	/**
+	 * Get the objects that may influence the pixels within a region.
+	 * Unlike {@link #getObjectsForRegion(ImageRegion)}, this also includes objects that lie just outside the region but
+	 * may still be drawn within it because of the line thickness.
+	 *
+	 * @param request
+	 * @return a list of objects with ROIs that intersect the specified region, after padding by the line thickness
+	 * @since v0.8.0
+	 */
+	public List<PathObject> getObjectsAffectingRegion(RegionRequest request) {
+		return getObjectsForRegion(padForLineThickness(request));
+	}
+
+	private RegionRequest padForLineThickness(RegionRequest request) {
+		double thicknessScale = request.getDownsample() / getDownsampleForResolution(0);
+		int pad = (int)Math.ceil(params.lineThickness * thicknessScale);
+		return pad > 0 ? request.pad2D(pad, pad) : request;
+	}
+
+	/**
+	 * Get the thickness of lines used to draw boundaries and line ROIs, in pixels at the resolution of this server.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public float getLineThickness() {
+		return params.lineThickness;
+	}
+
 	/**
 	 * Get the objects to be painted that fall within a specified region.
 	 * Note that this does not take into consideration line thickness, and therefore results are not guaranteed 
@@ -893,13 +941,15 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 
 		int nChannels = nChannels();
 		if (nChannels == 1)
-			return createBinaryTile(tileRequest, pathObjects, 0);
+			return createBinaryTile(tileRequest, pathObjects, 0, params.useGraphics2D ? null : createRasterizer(tileRequest));
 
 		int tileWidth = tileRequest.getTileWidth();
 		int tileHeight = tileRequest.getTileHeight();
+		// Reuse the rasterizer across channels, so that we only need to flatten each shape once
+		var rasterizer = params.useGraphics2D ? null : createRasterizer(tileRequest);
 		byte[][] dataArray = new byte[nChannels][];
 		for (int i = 0; i < nChannels; i++) {
-			var tile = createBinaryTile(tileRequest, pathObjects, i);
+			var tile = createBinaryTile(tileRequest, pathObjects, i, rasterizer);
 			dataArray[i] = ((DataBufferByte)tile.getRaster().getDataBuffer()).getData();
 		}
 		DataBuffer buffer = new DataBufferByte(dataArray, tileWidth * tileHeight);
@@ -916,69 +966,58 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 		return new BufferedImage(colorModel, raster, false, null);
 	}
 
-	private BufferedImage createBinaryTile(TileRequest tileRequest, Collection<PathObject> pathObjects, int label) {
+	private LabelRasterizer createRasterizer(TileRequest tileRequest) {
+		return new LabelRasterizer(tileRequest.getRegionRequest(), tileRequest.getTileWidth(), tileRequest.getTileHeight(), params.lineThickness);
+	}
+
+	/**
+	 * Create a binary tile for a single channel of a multichannel image.
+	 * If a rasterizer is provided, this is used to draw the objects - otherwise they are drawn with {@link Graphics2D}.
+	 */
+	private BufferedImage createBinaryTile(TileRequest tileRequest, Collection<PathObject> pathObjects, int label, LabelRasterizer rasterizer) {
 		int width = tileRequest.getTileWidth();
 		int height = tileRequest.getTileHeight();
 		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-		WritableRaster raster = img.getRaster();
-		Graphics2D g2d = img.createGraphics();
 
 		if (!pathObjects.isEmpty()) {
+			if (rasterizer != null) {
+				rasterizer.clear();
+				paintBinaryLabels(rasterizer::add, pathObjects, label);
+				rasterizer.rasterize(((DataBufferByte)img.getRaster().getDataBuffer()).getData());
+			} else {
+				var painter = new Graphics2DLabelPainter(img, tileRequest, params.lineThickness, false);
+				paintBinaryLabels(painter, pathObjects, label);
+				painter.dispose();
+			}
+		}
+		return img;
+	}
 
-			RegionRequest request = tileRequest.getRegionRequest();
-			double downsampleFactor = request.getDownsample();
-
-			g2d.setClip(0, 0, width, height);
-			double scale = 1.0/downsampleFactor;
-			g2d.scale(scale, scale);
-			g2d.translate(-request.getX(), -request.getY());
-			g2d.setColor(Color.WHITE);
-
-			BasicStroke stroke = new BasicStroke((float)(params.lineThickness * tileRequest.getDownsample()));
-			g2d.setStroke(stroke);
-
-			// We want to order consistently to avoid confusing overlaps
-			for (var entry : params.labels.entrySet()) {
-				if (entry.getValue() != label)
-					continue;
-				var pathClass = getPathClass(entry.getKey());
-				for (var pathObject : pathObjects) {
-					if (getPathClass(pathObject) == pathClass) {
-						var roi = params.roiFunction.apply(pathObject);
-						if (roi.isArea())
-							g2d.fill(roi.getShape());
-						else if (roi.isLine())
-							g2d.draw(roi.getShape());
-						else if (roi.isPoint()) {
-							for (var p : roi.getAllPoints()) {
-								int x = (int)((p.getX() - request.getX()) / downsampleFactor);
-								int y = (int)((p.getY() - request.getY()) / downsampleFactor);
-								if (x >= 0 && x < width && y >= 0 && y < height) {
-									raster.setSample(x, y, 0, 255);
-								}
-							}
-						}
-					}
+	private void paintBinaryLabels(LabelPainter painter, Collection<PathObject> pathObjects, int label) {
+		// We want to order consistently to avoid confusing overlaps
+		for (var entry : params.labels.entrySet()) {
+			if (entry.getValue() != label)
+				continue;
+			var pathClass = getPathClass(entry.getKey());
+			for (var pathObject : pathObjects) {
+				if (getPathClass(pathObject) == pathClass) {
+					var roi = params.roiFunction.apply(pathObject);
+					painter.paint(roi, 255, false);
 				}
 			}
-			for (var entry : params.boundaryLabels.entrySet()) {
-				if (entry.getValue() != label)
-					continue;
-				for (var pathObject : pathObjects) {
-					var pathClass = getPathClass(pathObject);
-					if (params.labels.containsKey(pathClass)) { // && !PathClassTools.isIgnoredClass(pathObject.getPathClass())) {
-						var roi = params.roiFunction.apply(pathObject);
-						if (roi.isArea()) {
-							var shape = roi.getShape();
-							g2d.draw(shape);
-						}
-					}
+		}
+		for (var entry : params.boundaryLabels.entrySet()) {
+			if (entry.getValue() != label)
+				continue;
+			for (var pathObject : pathObjects) {
+				var pathClass = getPathClass(pathObject);
+				if (params.labels.containsKey(pathClass)) { // && !PathClassTools.isIgnoredClass(pathObject.getPathClass())) {
+					var roi = params.roiFunction.apply(pathObject);
+					if (roi.isArea())
+						painter.paint(roi, 255, true);
 				}
 			}
 		}
-
-		g2d.dispose();
-		return img;
 	}
 
 
@@ -991,141 +1030,227 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 
 	private BufferedImage createIndexedColorTile(TileRequest tileRequest, Collection<PathObject> pathObjects) {
 
-		RegionRequest request = tileRequest.getRegionRequest();
-
-		double downsampleFactor = request.getDownsample();
-
 		// Fill in the background color
 		int width = tileRequest.getTileWidth();
 		int height = tileRequest.getTileHeight();
 		boolean doRGB = maxLabel > 255;
+		int bgLabel = params.labels.get(params.unannotatedClass);
+
+		// Optimization... for instance maps with large numbers of objects, we'll test for 'contains'
+		// so we want to ensure we have a set
+		if (instanceClassMapInverse != null && pathObjects.size() > 5 && !(pathObjects instanceof Set))
+			pathObjects = new HashSet<>(pathObjects);
+
+		if (!params.useGraphics2D)
+			return createIndexedColorTileScanline(tileRequest, pathObjects, bgLabel);
+
 		// If we have > 255 labels, we can only use Graphics2D if we pretend to have an RGB image
 		BufferedImage img = doRGB ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
 		WritableRaster raster = img.getRaster();
 
 		Graphics2D g2d = img.createGraphics();
-		int bgLabel = params.labels.get(params.unannotatedClass);
 		Color color = getColorForLabel(bgLabel, doRGB);
 		g2d.setColor(color);
 		g2d.fillRect(0, 0, width, height);
+		g2d.dispose();
 
-		// Optimization... for instance maps with large numbers of objects, we'll test for 'contains'
-		// so we want to ensure we have a set
-		if (instanceClassMapInverse != null && pathObjects.size() > 5 && !(pathObjects instanceof Set))
-			pathObjects = new HashSet<>(pathObjects);
+		if (!pathObjects.isEmpty()) {
+			var painter = new Graphics2DLabelPainter(img, tileRequest, params.lineThickness, doRGB);
+			paintLabels(painter, pathObjects);
+			painter.dispose();
+		}
+		if (doRGB) {
+			// Resort to RGB if we have to
+			WritableRaster labelRaster = createLabelRaster(width, height);
+			if (labelRaster == null)
+				return img;
+			// Transfer RGB values as labels to the new raster
+			int[] samples = img.getRGB(0, 0, width, height, null, 0, width);
+			for (int i = 0; i < samples.length; i++)
+				samples[i] &= 0xFFFFFF;
+			labelRaster.setSamples(0, 0, width, height, 0, samples);
+			raster = labelRaster;
+		}
+		return new BufferedImage(colorModel, raster, false, null);
+	}
 
+	/**
+	 * Create a single-band raster to store labels with the pixel type of this server.
+	 * @return the raster, or null if the pixel type is 8-bit (and labels should be stored as packed RGB values)
+	 */
+	private WritableRaster createLabelRaster(int width, int height) {
+		int dataType = switch (getPixelType()) {
+			case FLOAT32 -> DataBuffer.TYPE_FLOAT;
+			case FLOAT64 -> DataBuffer.TYPE_DOUBLE;
+			case INT16 -> DataBuffer.TYPE_SHORT;
+			case INT8, UINT16 -> DataBuffer.TYPE_USHORT;
+			case INT32, UINT32 -> DataBuffer.TYPE_INT;
+			default -> DataBuffer.TYPE_UNDEFINED;
+		};
+		if (dataType == DataBuffer.TYPE_UNDEFINED)
+			return null;
+		return WritableRaster.createWritableRaster(new BandedSampleModel(dataType, width, height, 1), null);
+	}
 
-		if (!pathObjects.isEmpty()) {
+	/**
+	 * Create an indexed color tile using a scanline fill, writing labels directly into the pixels of the output raster.
+	 * This gives the same output type as {@link Graphics2D} drawing, but without needing to convert from RGB
+	 * when there are more than 255 labels.
+	 */
+	private BufferedImage createIndexedColorTileScanline(TileRequest tileRequest, Collection<PathObject> pathObjects, int bgLabel) {
+		int width = tileRequest.getTileWidth();
+		int height = tileRequest.getTileHeight();
+		var rasterizer = createRasterizer(tileRequest);
+		if (!pathObjects.isEmpty())
+			paintLabels(rasterizer::add, pathObjects);
+
+		if (maxLabel >= 65536) {
+			// Labels are encoded as packed RGB values, then transferred to a raster with the server's pixel type if needed
+			// (only 24 bits are available, as with Graphics2D)
+			var img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			int[] pixels = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+			Arrays.fill(pixels, bgLabel);
+			rasterizer.rasterize(pixels);
+			for (int i = 0; i < pixels.length; i++)
+				pixels[i] &= 0xFFFFFF;
+			WritableRaster labelRaster = createLabelRaster(width, height);
+			if (labelRaster == null)
+				return img;
+			labelRaster.setSamples(0, 0, width, height, 0, pixels);
+			return new BufferedImage(colorModel, labelRaster, false, null);
+		}
+		WritableRaster raster;
+		if (maxLabel > 255) {
+			raster = WritableRaster.createWritableRaster(
+					new BandedSampleModel(DataBuffer.TYPE_USHORT, width, height, 1),
+					null);
+			short[] pixels = ((DataBufferUShort)raster.getDataBuffer()).getData();
+			Arrays.fill(pixels, (short)bgLabel);
+			rasterizer.rasterize(pixels);
+		} else {
+			raster = WritableRaster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 1, null);
+			byte[] pixels = ((DataBufferByte)raster.getDataBuffer()).getData();
+			Arrays.fill(pixels, (byte)bgLabel);
+			rasterizer.rasterize(pixels);
+		}
+		return new BufferedImage(colorModel, raster, false, null);
+	}
+
+	private void paintLabels(LabelPainter painter, Collection<PathObject> pathObjects) {
+		// We want to order consistently to avoid confusing overlaps
+		for (var entry : params.labels.entrySet()) {
+			var pathClass = getPathClass(entry.getKey());
+			int c = entry.getValue();
+			List<PathObject> toDraw;
+			if (instanceClassMapInverse != null) {
+				var temp = instanceClassMapInverse.get(c);
+				if (temp == null || !pathObjects.contains(temp))
+					continue;
+				toDraw = Collections.singletonList(temp);
+			} else
+				toDraw = pathObjects
+						.stream()
+						.filter(p -> getPathClass(p) == pathClass)
+						.toList();
+
+			for (var pathObject : toDraw) {
+				var roi = params.roiFunction.apply(pathObject);
+				painter.paint(roi, c, false);
+			}
+		}
+		for (var entry : params.boundaryLabels.entrySet()) {
+			int c = entry.getValue();
+			for (var pathObject : pathObjects) {
+//				if (pathObject.getPathClass() == pathClass) {
+				var pathClass = getPathClass(pathObject);
+				if (params.labels.containsKey(pathClass)) {// && !PathClassTools.isIgnoredClass(pathObject.getPathClass())) {
+					var roi = params.roiFunction.apply(pathObject);
+					if (roi.isArea())
+						painter.paint(roi, c, true);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Draw a label for a ROI.
+	 */
+	@FunctionalInterface
+	private interface LabelPainter {
+
+		/**
+		 * Paint a ROI.
+		 * Area ROIs are filled, lines are drawn and each point sets a single pixel.
+		 * @param roi the ROI
+		 * @param label the label value
+		 * @param boundary if true, draw the boundary of an area ROI rather than filling it
+		 */
+		void paint(ROI roi, int label, boolean boundary);
+
+	}
+
+	/**
+	 * Paint labels using {@link Graphics2D}, as in QuPath versions prior to v0.8.0.
+	 */
+	private static class Graphics2DLabelPainter implements LabelPainter {
+
+		private final BufferedImage img;
+		private final WritableRaster raster;
+		private final Graphics2D g2d;
+		private final RegionRequest request;
+		private final int width;
+		private final int height;
+		private final boolean doRGB;
+
+		private Graphics2DLabelPainter(BufferedImage img, TileRequest tileRequest, float lineThickness, boolean doRGB) {
+			this.img = img;
+			this.raster = img.getRaster();
+			this.request = tileRequest.getRegionRequest();
+			this.width = tileRequest.getTileWidth();
+			this.height = tileRequest.getTileHeight();
+			this.doRGB = doRGB;
+
+			double downsampleFactor = request.getDownsample();
+			g2d = img.createGraphics();
 			g2d.setClip(0, 0, width, height);
 			double scale = 1.0/downsampleFactor;
 			g2d.scale(scale, scale);
 			g2d.translate(-request.getX(), -request.getY());
 
-			BasicStroke stroke = new BasicStroke((float)(params.lineThickness * tileRequest.getDownsample()));
+			BasicStroke stroke = new BasicStroke((float)(lineThickness * tileRequest.getDownsample()));
 			g2d.setStroke(stroke);
+		}
 
-			// We want to order consistently to avoid confusing overlaps
-			for (var entry : params.labels.entrySet()) {
-				var pathClass = getPathClass(entry.getKey());
-				int c = entry.getValue();
-				color = getColorForLabel(c, doRGB);
-				List<PathObject> toDraw;
-				if (instanceClassMapInverse != null) {
-					var temp = instanceClassMapInverse.get(c);
-					if (temp == null || !pathObjects.contains(temp))
-						continue;
-					toDraw = Collections.singletonList(temp);
-				} else
-					toDraw = pathObjects
-							.stream()
-							.filter(p -> getPathClass(p) == pathClass)
-							.toList();
-
-				for (var pathObject : toDraw) {
-					var roi = params.roiFunction.apply(pathObject);
-					g2d.setColor(color);
-					if (roi.isArea())
-						g2d.fill(roi.getShape());
-					else if (roi.isLine())
-						g2d.draw(roi.getShape());
-					else if (roi.isPoint()) {
-						for (var p : roi.getAllPoints()) {
-							int x = (int)((p.getX() - request.getX()) / downsampleFactor);
-							int y = (int)((p.getY() - request.getY()) / downsampleFactor);
-							if (x >= 0 && x < width && y >= 0 && y < height) {
-								if (doRGB)
-									img.setRGB(x, y, color.getRGB());
-								else
-									raster.setSample(x, y, 0, c);
-							}
-						}
-					}
-				}
-			}
-			for (var entry : params.boundaryLabels.entrySet()) {
-				int c = entry.getValue();
-				color = getColorForLabel(c, doRGB);
-				for (var pathObject : pathObjects) {
-//					if (pathObject.getPathClass() == pathClass) {
-					var pathClass = getPathClass(pathObject);
-					if (params.labels.containsKey(pathClass)) {// && !PathClassTools.isIgnoredClass(pathObject.getPathClass())) {
-						var roi = params.roiFunction.apply(pathObject);
-						if (roi.isArea()) {
-							g2d.setColor(color);
-							g2d.draw(roi.getShape());
-						}
+		@Override
+		public void paint(ROI roi, int label, boolean boundary) {
+			var color = getColorForLabel(label, doRGB);
+			g2d.setColor(color);
+			if (boundary)
+				g2d.draw(roi.getShape());
+			else if (roi.isArea())
+				g2d.fill(roi.getShape());
+			else if (roi.isLine())
+				g2d.draw(roi.getShape());
+			else if (roi.isPoint()) {
+				double downsampleFactor = request.getDownsample();
+				for (var p : roi.getAllPoints()) {
+					int x = (int)((p.getX() - request.getX()) / downsampleFactor);
+					int y = (int)((p.getY() - request.getY()) / downsampleFactor);
+					if (x >= 0 && x < width && y >= 0 && y < height) {
+						if (doRGB)
+							img.setRGB(x, y, color.getRGB());
+						else
+							raster.setSample(x, y, 0, label);
 					}
 				}
 			}
 		}
-		g2d.dispose();
-		if (doRGB) {
-			// Resort to RGB if we have to
-			WritableRaster shortRaster = null;
-			int w = img.getWidth();
-			int h = img.getHeight();
-			switch (getPixelType()) {
-				case UINT8:
-					return img;
-				case FLOAT32:
-					shortRaster = WritableRaster.createWritableRaster(
-							new BandedSampleModel(DataBuffer.TYPE_FLOAT, w, h, 1),
-							null);
-					break;
-				case FLOAT64:
-					shortRaster = WritableRaster.createWritableRaster(
-							new BandedSampleModel(DataBuffer.TYPE_DOUBLE, w, h, 1),
-							null);
-					break;
-				case INT16:
-					shortRaster = WritableRaster.createWritableRaster(
-							new BandedSampleModel(DataBuffer.TYPE_SHORT, w, h, 1),
-							null);
-					break;
-				case INT8:
-				case UINT16:
-					shortRaster = WritableRaster.createWritableRaster(
-							new BandedSampleModel(DataBuffer.TYPE_USHORT, w, h, 1),
-							null);
-					break;
-				case INT32:
-				case UINT32:
-					shortRaster = WritableRaster.createWritableRaster(
-							new BandedSampleModel(DataBuffer.TYPE_INT, w, h, 1),
-							null);
-					break;
-				default:
-					break;
-			}
-			if (maxLabel >= 65536 || shortRaster == null) {
-				return img;
-			}
-			// Transfer RGB values as labels to the new raster
-			int[] samples = img.getRGB(0, 0, width, height, null, 0, width);
-			shortRaster.setSamples(0, 0, width, height, 0, samples);
-			raster = shortRaster;
+
+		private void dispose() {
+			g2d.dispose();
 		}
-		return new BufferedImage(colorModel, raster, false, null);
+
 	}
 
 
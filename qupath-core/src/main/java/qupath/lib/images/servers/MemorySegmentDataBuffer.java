@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import java.awt.image.DataBuffer;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * A {@link DataBuffer} that reads and writes values directly from a {@link MemorySegment}, without copying.
+ * <p>
+ * Each bank is stored in a separate region of the segment, starting at a specified byte offset.
+ * Values are stored in native byte order.
+ */
+class MemorySegmentDataBuffer extends DataBuffer {
+
+	private final MemorySegment segment;
+	private final long[] bankOffsets;
+	private final int[] offsets;
+	private final int elementBytes;
+
+	/**
+	 * Create a data buffer that wraps a memory segment.
+	 * @param segment the segment containing the data
+	 * @param dataType the data type, as defined by {@link DataBuffer}
+	 * @param size the size of each bank
+	 * @param bankOffsets the byte offset into the segment for the start of each bank
+	 * @param offsets the element offset into each bank, as used by {@link DataBuffer#getOffsets()}
+	 */
+	MemorySegmentDataBuffer(MemorySegment segment, int dataType, int size, long[] bankOffsets, int[] offsets) {
+		super(dataType, size, bankOffsets.length, offsets);
+		this.segment = segment;
+		this.bankOffsets = bankOffsets.clone();
+		this.offsets = offsets.clone();
+		this.elementBytes = DataBuffer.getDataTypeSize(dataType) / 8;
+	}
+
+	private long position(int bank, int i) {
+		return bankOffsets[bank] + (long)(i + offsets[bank]) * elementBytes;
+	}
+
+	@Override
+	public int getElem(int bank, int i) {
+		long pos = position(bank, i);
+		return switch (dataType) {
+			case TYPE_BYTE -> segment.get(ValueLayout.JAVA_BYTE, pos) & 0xff;
+			case TYPE_USHORT -> segment.get(ValueLayout.JAVA_SHORT, pos) & 0xffff;
+			case TYPE_SHORT -> segment.get(ValueLayout.JAVA_SHORT, pos);
+			case TYPE_INT -> segment.get(ValueLayout.JAVA_INT, pos);
+			case TYPE_FLOAT -> (int)segment.get(ValueLayout.JAVA_FLOAT, pos);
+			case TYPE_DOUBLE -> (int)segment.get(ValueLayout.JAVA_DOUBLE, pos);
+			default -> throw new UnsupportedOperationException("Unsupported data type " + dataType);
+		};
+	}
+
+	@Override
+	public void setElem(int bank, int i, int val) {
+		long pos = position(bank, i);
+		switch (dataType) {
+			case TYPE_BYTE -> segment.set(ValueLayout.JAVA_BYTE, pos, (byte)val);
+			case TYPE_USHORT, TYPE_SHORT -> segment.set(ValueLayout.JAVA_SHORT, pos, (short)val);
+			case TYPE_INT -> segment.set(ValueLayout.JAVA_INT, pos, val);
+			case TYPE_FLOAT -> segment.set(ValueLayout.JAVA_FLOAT, pos, (float)val);
+			case TYPE_DOUBLE -> segment.set(ValueLayout.JAVA_DOUBLE, pos, val);
+			default -> throw new UnsupportedOperationException("Unsupported data type " + dataType);
+		}
+	}
+
+	@Override
+	public float getElemFloat(int bank, int i) {
+		return switch (dataType) {
+			case TYPE_FLOAT -> segment.get(ValueLayout.JAVA_FLOAT, position(bank, i));
+			case TYPE_DOUBLE -> (float)segment.get(ValueLayout.JAVA_DOUBLE, position(bank, i));
+			default -> getElem(bank, i);
+		};
+	}
+
+	@Override
+	public void setElemFloat(int bank, int i, float val) {
+		switch (dataType) {
+			case TYPE_FLOAT -> segment.set(ValueLayout.JAVA_FLOAT, position(bank, i), val);
+			case TYPE_DOUBLE -> segment.set(ValueLayout.JAVA_DOUBLE, position(bank, i), val);
+			default -> setElem(bank, i, (int)val);
+		}
+	}
+
+	@Override
+	public double getElemDouble(int bank, int i) {
+		return switch (dataType) {
+			case TYPE_FLOAT -> segment.get(ValueLayout.JAVA_FLOAT, position(bank, i));
+			case TYPE_DOUBLE -> segment.get(ValueLayout.JAVA_DOUBLE, position(bank, i));
+			default -> getElem(bank, i);
+		};
+	}
+
+	@Override
+	public void setElemDouble(int bank, int i, double val) {
+		switch (dataType) {
+			case TYPE_FLOAT -> segment.set(ValueLayout.JAVA_FLOAT, position(bank, i), (float)val);
+			case TYPE_DOUBLE -> segment.set(ValueLayout.JAVA_DOUBLE, position(bank, i), val);
+			default -> setElem(bank, i, (int)val);
+		}
+	}
+
+}
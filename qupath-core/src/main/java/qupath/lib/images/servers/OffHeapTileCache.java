@@ -0,0 +1,720 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.reflect.Array;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.regions.RegionRequest;
+
+/**
+ * A tile cache that stores pixels outside the Java heap.
+ * <p>
+ * This can be used in place of the default cache returned by {@link ImageServerProvider#getCache(Class)},
+ * to reduce the pressure that large numbers of cached tiles place on the garbage collector.
+ * Each tile is copied into its own native memory segment when it is added, and the size of the cache is
+ * limited by the total number of bytes in all the segments.
+ * The memory for a tile is released as soon as the tile is removed from the cache.
+ * <p>
+ * Tiles are evicted using a W-TinyLFU policy: new tiles enter a small 'window', and are only admitted to the
+ * main part of the cache if they have been requested more often than the tile they would replace.
+ * This helps keep frequently-used tiles (e.g. thumbnails and low-resolution levels) while panning
+ * across a large image at high resolution.
+ * <p>
+ * By default, a new {@link BufferedImage} is created from the stored pixels each time a tile is requested.
+ * Optionally, the image can wrap the native memory directly to avoid copying.
+ * This should be used with caution, since the image will not use one of the standard {@link DataBuffer}
+ * subclasses (e.g. {@link DataBufferByte}), which some code expects.
+ * Changes to the pixels of such an image will also be visible in the cache.
+ * Because the image may still be in use after the tile has been removed, the memory for zero-copy tiles is
+ * instead released by the garbage collector once neither the tile nor any image created from it is reachable.
+ * <p>
+ * Images using a {@link DataBuffer} that isn't one of the standard subclasses are not cached.
+ * Null keys and values are not supported.
+ *
+ * @since v0.8.0
+ */
+public final class OffHeapTileCache extends AbstractMap<RegionRequest, BufferedImage> {
+
+	private static final Logger logger = LoggerFactory.getLogger(OffHeapTileCache.class);
+
+	// Approximate tile size, used to determine the initial size of the frequency sketch
+	private static final long TYPICAL_TILE_BYTES = 256 * 256;
+
+	private enum Region { WINDOW, PROBATION, PROTECTED }
+
+	private final long maxBytes;
+	private final long windowMaxBytes;
+	private final long protectedMaxBytes;
+	private final boolean zeroCopy;
+
+	private final Map<RegionRequest, Node> map = new ConcurrentHashMap<>();
+
+	// Policy state, guarded by 'this'
+	private final Set<Node> window = new LinkedHashSet<>();
+	private final Set<Node> probation = new LinkedHashSet<>();
+	private final Set<Node> protectedNodes = new LinkedHashSet<>();
+	private final TileFrequencySketch sketch = new TileFrequencySketch();
+	private long windowBytes;
+	private long probationBytes;
+	private long protectedBytes;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	private OffHeapTileCache(long maxBytes, boolean zeroCopy) {
+		this.maxBytes = maxBytes;
+		this.windowMaxBytes = Math.max(1, maxBytes / 100);
+		this.protectedMaxBytes = (long)((maxBytes - windowMaxBytes) * 0.8);
+		this.zeroCopy = zeroCopy;
+		sketch.ensureCapacity(Math.max(256, Math.min(maxBytes / TYPICAL_TILE_BYTES, 1 << 20)));
+	}
+
+	/**
+	 * Create a cache that copies pixels into a new image each time a tile is requested.
+	 * @param maxBytes the maximum number of bytes to use for pixels
+	 * @return the cache
+	 */
+	public static OffHeapTileCache create(long maxBytes) {
+		return create(maxBytes, false);
+	}
+
+	/**
+	 * Create a cache.
+	 * @param maxBytes the maximum number of bytes to use for pixels
+	 * @param zeroCopy if true, return images that wrap the native memory directly rather than copying the pixels
+	 * @return the cache
+	 */
+	public static OffHeapTileCache create(long maxBytes, boolean zeroCopy) {
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("Maximum cache size must be > 0, but was " + maxBytes);
+		return new OffHeapTileCache(maxBytes, zeroCopy);
+	}
+
+	/**
+	 * Get the maximum number of bytes that can be used to store pixels.
+	 * @return
+	 */
+	public long getMaxSizeBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the number of bytes currently used to store pixels.
+	 * @return
+	 */
+	public synchronized long getSizeBytes() {
+		return windowBytes + probationBytes + protectedBytes;
+	}
+
+	/**
+	 * Query whether requested images wrap the native memory directly, rather than copying the pixels.
+	 * @return
+	 */
+	public boolean isZeroCopy() {
+		return zeroCopy;
+	}
+
+	/**
+	 * Get a snapshot of the cache statistics.
+	 * @return
+	 */
+	public synchronized Statistics getStatistics() {
+		return new Statistics(hitCount.sum(), missCount.sum(), evictionCount.sum(),
+				map.size(), getSizeBytes(), maxBytes);
+	}
+
+	/**
+	 * Statistics summarizing the use of a cache.
+	 * @param hitCount number of requests that returned a cached tile
+	 * @param missCount number of requests for tiles that were not in the cache
+	 * @param evictionCount number of tiles removed from the cache to make space for other tiles
+	 * @param tileCount number of tiles currently in the cache
+	 * @param sizeBytes number of bytes currently used to store pixels
+	 * @param maxSizeBytes maximum number of bytes that can be used to store pixels
+	 */
+	public record Statistics(long hitCount, long missCount, long evictionCount, long tileCount, long sizeBytes, long maxSizeBytes) {
+
+		/**
+		 * Get the proportion of requests that returned a cached tile.
+		 * @return the hit rate, or 1.0 if there have been no requests
+		 */
+		public double hitRate() {
+			long total = hitCount + missCount;
+			return total == 0 ? 1.0 : (double)hitCount / total;
+		}
+
+	}
+
+	@Override
+	public BufferedImage get(Object key) {
+		var node = map.get(key);
+		if (node == null) {
+			missCount.increment();
+			return null;
+		}
+		// Tile may have been removed (and its memory released) since we got it from the map
+		var img = node.tile.toImage(zeroCopy);
+		if (img == null) {
+			missCount.increment();
+			return null;
+		}
+		hitCount.increment();
+		recordAccess(node);
+		return img;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return map.containsKey(key);
+	}
+
+	@Override
+	public BufferedImage put(RegionRequest key, BufferedImage value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Off-heap tile cache does not support null keys or values");
+		var tile = Tile.create(value, zeroCopy);
+		if (tile == null) {
+			logger.debug("Unable to cache tile with data buffer {}", value.getRaster().getDataBuffer().getClass());
+			return null;
+		}
+		if (tile.byteSize() > maxBytes) {
+			logger.debug("Tile {} is too large to cache ({} bytes)", key, tile.byteSize());
+			return null;
+		}
+		var node = new Node(key, tile);
+		Node previous;
+		synchronized (this) {
+			previous = map.put(key, node);
+			if (previous != null)
+				unlink(previous);
+			sketch.increment(key);
+			window.add(node);
+			node.region = Region.WINDOW;
+			windowBytes += node.bytes;
+			evict();
+		}
+		return previous == null ? null : release(previous);
+	}
+
+	@Override
+	public BufferedImage remove(Object key) {
+		Node node;
+		synchronized (this) {
+			node = map.remove(key);
+			if (node != null)
+				unlink(node);
+		}
+		return node == null ? null : release(node);
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (var node : map.values())
+			node.tile.close();
+		map.clear();
+		window.clear();
+		probation.clear();
+		protectedNodes.clear();
+		windowBytes = 0;
+		probationBytes = 0;
+		protectedBytes = 0;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public Set<RegionRequest> keySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<RegionRequest> iterator() {
+				var iterator = entrySet().iterator();
+				return new Iterator<>() {
+
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public RegionRequest next() {
+						return iterator.next().getKey();
+					}
+
+					@Override
+					public void remove() {
+						iterator.remove();
+					}
+
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				return OffHeapTileCache.this.remove(o) != null;
+			}
+
+			@Override
+			public int size() {
+				return OffHeapTileCache.this.size();
+			}
+
+		};
+	}
+
+	/**
+	 * Get a view of the entries in the cache.
+	 * Values are only created from the stored pixels when {@link Entry#getValue()} is called,
+	 * and doing so does not count as a cache hit.
+	 */
+	@Override
+	public Set<Entry<RegionRequest, BufferedImage>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Entry<RegionRequest, BufferedImage>> iterator() {
+				var iterator = map.values().iterator();
+				return new Iterator<>() {
+
+					private Node last;
+
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Entry<RegionRequest, BufferedImage> next() {
+						var node = iterator.next();
+						last = node;
+						return new NodeEntry(node);
+					}
+
+					@Override
+					public void remove() {
+						if (last == null)
+							throw new IllegalStateException();
+						synchronized (OffHeapTileCache.this) {
+							if (map.remove(last.key, last)) {
+								unlink(last);
+								last.tile.close();
+							}
+						}
+						last = null;
+					}
+
+				};
+			}
+
+			@Override
+			public int size() {
+				return OffHeapTileCache.this.size();
+			}
+
+		};
+	}
+
+	private class NodeEntry implements Entry<RegionRequest, BufferedImage> {
+
+		private final Node node;
+
+		private NodeEntry(Node node) {
+			this.node = node;
+		}
+
+		@Override
+		public RegionRequest getKey() {
+			return node.key;
+		}
+
+		@Override
+		public BufferedImage getValue() {
+			return node.tile.toImage(zeroCopy);
+		}
+
+		@Override
+		public BufferedImage setValue(BufferedImage value) {
+			throw new UnsupportedOperationException("Use put to replace a cached tile");
+		}
+
+	}
+
+	/**
+	 * Update the policy after a tile has been requested.
+	 * @param node
+	 */
+	private synchronized void recordAccess(Node node) {
+		sketch.increment(node.key);
+		// Tile may already have been removed
+		if (node.region == null)
+			return;
+		switch (node.region) {
+			case WINDOW -> moveToEnd(window, node);
+			case PROBATION -> {
+				// Promote to the protected region, demoting the oldest protected tiles if necessary
+				probation.remove(node);
+				probationBytes -= node.bytes;
+				protectedNodes.add(node);
+				protectedBytes += node.bytes;
+				node.region = Region.PROTECTED;
+				while (protectedBytes > protectedMaxBytes && protectedNodes.size() > 1) {
+					var demoted = removeFirst(protectedNodes);
+					protectedBytes -= demoted.bytes;
+					probation.add(demoted);
+					probationBytes += demoted.bytes;
+					demoted.region = Region.PROBATION;
+				}
+			}
+			case PROTECTED -> moveToEnd(protectedNodes, node);
+		}
+	}
+
+	/**
+	 * Move tiles from the window into the main part of the cache, evicting tiles until the cache is
+	 * within its size limit.
+	 */
+	private void evict() {
+		sketch.ensureCapacity(map.size());
+		while (windowBytes > windowMaxBytes && !window.isEmpty()) {
+			var candidate = removeFirst(window);
+			windowBytes -= candidate.bytes;
+			candidate.region = null;
+			admit(candidate);
+		}
+		// Only needed if the window alone exceeds the limit
+		while (windowBytes + probationBytes + protectedBytes > maxBytes && !window.isEmpty())
+			evict(window.iterator().next());
+	}
+
+	/**
+	 * Add a tile that has left the window to the main part of the cache, if it is used more often than the
+	 * tiles that would need to be evicted to make space for it.
+	 * @param candidate
+	 */
+	private void admit(Node candidate) {
+		int candidateFrequency = sketch.frequency(candidate.key);
+		while (windowBytes + probationBytes + protectedBytes + candidate.bytes > maxBytes) {
+			Node victim;
+			if (!probation.isEmpty())
+				victim = probation.iterator().next();
+			else if (!protectedNodes.isEmpty())
+				victim = protectedNodes.iterator().next();
+			else
+				break;
+			if (candidateFrequency > sketch.frequency(victim.key)) {
+				evict(victim);
+			} else {
+				if (map.remove(candidate.key, candidate))
+					evictionCount.increment();
+				candidate.tile.close();
+				return;
+			}
+		}
+		probation.add(candidate);
+		probationBytes += candidate.bytes;
+		candidate.region = Region.PROBATION;
+	}
+
+	private void evict(Node node) {
+		if (map.remove(node.key, node))
+			evictionCount.increment();
+		unlink(node);
+		node.tile.close();
+	}
+
+	/**
+	 * Create an image from a tile that has been removed from the cache, then release its memory.
+	 * @param node
+	 * @return
+	 */
+	private BufferedImage release(Node node) {
+		var img = node.tile.toImage(zeroCopy);
+		node.tile.close();
+		return img;
+	}
+
+	private void unlink(Node node) {
+		if (node.region == null)
+			return;
+		switch (node.region) {
+			case WINDOW -> {
+				window.remove(node);
+				windowBytes -= node.bytes;
+			}
+			case PROBATION -> {
+				probation.remove(node);
+				probationBytes -= node.bytes;
+			}
+			case PROTECTED -> {
+				protectedNodes.remove(node);
+				protectedBytes -= node.bytes;
+			}
+		}
+		node.region = null;
+	}
+
+	private static void moveToEnd(Set<Node> set, Node node) {
+		set.remove(node);
+		set.add(node);
+	}
+
+	private static Node removeFirst(Set<Node> set) {
+		var iterator = set.iterator();
+		if (!iterator.hasNext())
+			throw new NoSuchElementException();
+		var node = iterator.next();
+		iterator.remove();
+		return node;
+	}
+
+
+	/**
+	 * A cached tile. Nodes use identity equality, so that a replaced tile can't be confused with its replacement.
+	 */
+	private static class Node {
+
+		private final RegionRequest key;
+		private final Tile tile;
+		private final long bytes;
+		private Region region;
+
+		private Node(RegionRequest key, Tile tile) {
+			this.key = key;
+			this.tile = tile;
+			this.bytes = tile.byteSize();
+		}
+
+	}
+
+
+	/**
+	 * Pixels and the information needed to recreate an image.
+	 * Each bank of the data buffer is stored in the same segment, aligned to 8 bytes.
+	 * <p>
+	 * Usually the segment uses a shared arena, which is closed when the tile is removed from the cache.
+	 * Zero-copy tiles use an automatic arena instead, so the memory is released once the tile is no longer
+	 * reachable - including by any images created from it.
+	 */
+	private record Tile(Arena arena, MemorySegment segment, SampleModel sampleModel, ColorModel colorModel, boolean isAlphaPremultiplied,
+			int dataType, int size, int[] bankLengths, long[] bankOffsets, int[] offsets) {
+
+		private long byteSize() {
+			return segment.byteSize();
+		}
+
+		private static Tile create(BufferedImage img, boolean zeroCopy) {
+			var raster = img.getRaster();
+			// Ensure we store only the pixels we need, starting at (0, 0)
+			if (raster.getParent() != null || raster.getMinX() != 0 || raster.getMinY() != 0 ||
+					raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+				var copy = raster.createCompatibleWritableRaster(raster.getWidth(), raster.getHeight());
+				copy.setRect(-raster.getMinX(), -raster.getMinY(), raster);
+				raster = copy;
+			}
+			var buffer = raster.getDataBuffer();
+			var layout = getLayout(buffer.getDataType());
+			if (layout == null || !isStandardBuffer(buffer))
+				return null;
+
+			int nBanks = buffer.getNumBanks();
+			var bankLengths = new int[nBanks];
+			var bankOffsets = new long[nBanks];
+			long bytes = 0;
+			for (int b = 0; b < nBanks; b++) {
+				bankLengths[b] = Array.getLength(getBank(buffer, b));
+				bankOffsets[b] = bytes;
+				bytes += alignTo8((long)bankLengths[b] * layout.byteSize());
+			}
+			var arena = zeroCopy ? null : Arena.ofShared();
+			var segment = (arena == null ? Arena.ofAuto() : arena).allocate(Math.max(8, bytes), 8);
+			for (int b = 0; b < nBanks; b++)
+				MemorySegment.copy(getBank(buffer, b), 0, segment, layout, bankOffsets[b], bankLengths[b]);
+			return new Tile(arena, segment, raster.getSampleModel(), img.getColorModel(), img.isAlphaPremultiplied(),
+					buffer.getDataType(), buffer.getSize(), bankLengths, bankOffsets, buffer.getOffsets());
+		}
+
+		/**
+		 * Create an image from the stored pixels.
+		 * @param zeroCopy
+		 * @return the image, or null if the memory has already been released
+		 */
+		private BufferedImage toImage(boolean zeroCopy) {
+			DataBuffer buffer;
+			if (zeroCopy) {
+				buffer = new MemorySegmentDataBuffer(segment, dataType, size, bankOffsets, offsets);
+			} else {
+				// Synchronize so that the arena can't be closed while the pixels are being copied
+				synchronized (this) {
+					if (!segment.scope().isAlive())
+						return null;
+					buffer = createBuffer();
+				}
+			}
+			WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+			return new BufferedImage(colorModel, raster, isAlphaPremultiplied, null);
+		}
+
+		/**
+		 * Release the memory used by the tile, if it isn't managed by the garbage collector.
+		 */
+		private synchronized void close() {
+			if (arena != null && segment.scope().isAlive())
+				arena.close();
+		}
+
+		private DataBuffer createBuffer() {
+			var layout = getLayout(dataType);
+			int nBanks = bankLengths.length;
+			switch (dataType) {
+				case DataBuffer.TYPE_BYTE -> {
+					var banks = new byte[nBanks][];
+					for (int b = 0; b < nBanks; b++) {
+						banks[b] = new byte[bankLengths[b]];
+						MemorySegment.copy(segment, layout, bankOffsets[b], banks[b], 0, bankLengths[b]);
+					}
+					return new DataBufferByte(banks, size, offsets);
+				}
+				case DataBuffer.TYPE_USHORT -> {
+					var banks = new short[nBanks][];
+					for (int b = 0; b < nBanks; b++) {
+						banks[b] = new short[bankLengths[b]];
+						MemorySegment.copy(segment, layout, bankOffsets[b], banks[b], 0, bankLengths[b]);
+					}
+					return new DataBufferUShort(banks, size, offsets);
+				}
+				case DataBuffer.TYPE_SHORT -> {
+					var banks = new short[nBanks][];
+					for (int b = 0; b < nBanks; b++) {
+						banks[b] = new short[bankLengths[b]];
+						MemorySegment.copy(segment, layout, bankOffsets[b], banks[b], 0, bankLengths[b]);
+					}
+					return new DataBufferShort(banks, size, offsets);
+				}
+				case DataBuffer.TYPE_INT -> {
+					var banks = new int[nBanks][];
+					for (int b = 0; b < nBanks; b++) {
+						banks[b] = new int[bankLengths[b]];
+						MemorySegment.copy(segment, layout, bankOffsets[b], banks[b], 0, bankLengths[b]);
+					}
+					return new DataBufferInt(banks, size, offsets);
+				}
+				case DataBuffer.TYPE_FLOAT -> {
+					var banks = new float[nBanks][];
+					for (int b = 0; b < nBanks; b++) {
+						banks[b] = new float[bankLengths[b]];
+						MemorySegment.copy(segment, layout, bankOffsets[b], banks[b], 0, bankLengths[b]);
+					}
+					return new DataBufferFloat(banks, size, offsets);
+				}
+				case DataBuffer.TYPE_DOUBLE -> {
+					var banks = new double[nBanks][];
+					for (int b = 0; b < nBanks; b++) {
+						banks[b] = new double[bankLengths[b]];
+						MemorySegment.copy(segment, layout, bankOffsets[b], banks[b], 0, bankLengths[b]);
+					}
+					return new DataBufferDouble(banks, size, offsets);
+				}
+				default -> throw new IllegalStateException("Unsupported data type " + dataType);
+			}
+		}
+
+		private static boolean isStandardBuffer(DataBuffer buffer) {
+			var cls = buffer.getClass();
+			return cls == DataBufferByte.class || cls == DataBufferUShort.class || cls == DataBufferShort.class ||
+					cls == DataBufferInt.class || cls == DataBufferFloat.class || cls == DataBufferDouble.class;
+		}
+
+		private static Object getBank(DataBuffer buffer, int bank) {
+			if (buffer instanceof DataBufferByte buf)
+				return buf.getData(bank);
+			if (buffer instanceof DataBufferUShort buf)
+				return buf.getData(bank);
+			if (buffer instanceof DataBufferShort buf)
+				return buf.getData(bank);
+			if (buffer instanceof DataBufferInt buf)
+				return buf.getData(bank);
+			if (buffer instanceof DataBufferFloat buf)
+				return buf.getData(bank);
+			if (buffer instanceof DataBufferDouble buf)
+				return buf.getData(bank);
+			throw new IllegalArgumentException("Unsupported data buffer " + buffer.getClass());
+		}
+
+		private static ValueLayout getLayout(int dataType) {
+			return switch (dataType) {
+				case DataBuffer.TYPE_BYTE -> ValueLayout.JAVA_BYTE;
+				case DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT -> ValueLayout.JAVA_SHORT;
+				case DataBuffer.TYPE_INT -> ValueLayout.JAVA_INT;
+				case DataBuffer.TYPE_FLOAT -> ValueLayout.JAVA_FLOAT;
+				case DataBuffer.TYPE_DOUBLE -> ValueLayout.JAVA_DOUBLE;
+				default -> null;
+			};
+		}
+
+		private static long alignTo8(long n) {
+			return (n + 7) & ~7L;
+		}
+
+	}
+
+}
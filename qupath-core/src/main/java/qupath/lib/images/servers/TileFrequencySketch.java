@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+/*
+ * This class is adapted from FrequencySketch in Caffeine (https://github.com/ben-manes/caffeine),
+ * Copyright 2015 Ben Manes, licensed under the Apache License, Version 2.0
+ * (http://www.apache.org/licenses/LICENSE-2.0).
+ */
+
+package qupath.lib.images.servers;
+
+/**
+ * Approximate access frequencies for cache keys, used to decide whether a new tile should replace an existing one.
+ * <p>
+ * This is a count-min sketch with four 4-bit counters per key, packed into longs.
+ * Counts are halved periodically, so that the estimated frequencies favor recent accesses.
+ * This isn't thread-safe; callers are responsible for synchronization.
+ * <p>
+ * The implementation is adapted from Caffeine's {@code FrequencySketch}, which can't be used directly because
+ * it isn't part of Caffeine's public API.
+ */
+class TileFrequencySketch {
+
+	private static final long[] SEEDS = {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	private long[] table = new long[0];
+	private int tableMask;
+	private int sampleSize;
+	private int size;
+
+	/**
+	 * Ensure the sketch is large enough to estimate frequencies for a specified number of keys.
+	 * If the sketch needs to grow, all existing counts are discarded.
+	 * @param maximumSize the expected number of keys
+	 */
+	void ensureCapacity(long maximumSize) {
+		int n = (int)Math.min(1 << 30, Long.highestOneBit(Math.max(16, maximumSize - 1)) << 1);
+		if (table.length >= n)
+			return;
+		table = new long[n];
+		tableMask = n - 1;
+		sampleSize = 10 * n;
+		size = 0;
+	}
+
+	/**
+	 * Get the estimated number of times a key has been used recently, up to a maximum of 15.
+	 * @param key
+	 * @return
+	 */
+	int frequency(Object key) {
+		if (table.length == 0)
+			return 0;
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Increment the estimated frequency of a key.
+	 * @param key
+	 */
+	void increment(Object key) {
+		if (table.length == 0)
+			return;
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++)
+			added |= incrementAt(indexOf(hash, i), start + i);
+		if (added && ++size >= sampleSize)
+			reset();
+	}
+
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Halve all the counts, so that old accesses gradually become less important.
+	 */
+	private void reset() {
+		int count = 0;
+		for (int i = 0; i < table.length; i++) {
+			count += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size - (count >>> 2)) >>> 1;
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int)h) & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+
+}
@@ -0,0 +1,327 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read tiles in advance for a batch of region requests that will be processed in a known order.
+ * <p>
+ * This is intended for whole slide processing, where each worker would otherwise block while tiles are read and
+ * decoded before it can start any computation.
+ * Tiles are read on separate I/O threads in the order in which the regions will be requested, and retained by the
+ * server until all the regions that need them have been completed.
+ * Reading pauses whenever the retained tiles exceed a fixed number of bytes, and resumes as regions are completed.
+ * <p>
+ * Workers don't need to interact with the prefetcher other than to call {@link #regionComplete(RegionRequest)}:
+ * they should read pixels from the server in the usual way, and will receive the prefetched tiles if they are available.
+ * If a worker gets ahead of the prefetcher, it reads the tiles itself and they are skipped by the prefetcher.
+ * <p>
+ * Prefetching is only supported for an {@link AbstractTileableImageServer}; for other servers, or if prefetching
+ * has been turned off with {@link #setEnabled(boolean)}, all methods do nothing.
+ *
+ * @since v0.8.0
+ */
+public class TilePrefetcher implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(TilePrefetcher.class);
+
+	private static int counter = 0;
+
+	private static volatile boolean enabled = true;
+
+	private final AbstractTileableImageServer server;
+	private final int nThreads;
+	private final long maxBytes;
+
+	// Tiles in the order they will first be needed
+	private final List<TileRequest> tiles;
+	// Number of incomplete regions that need each tile
+	private final Map<TileRequest, Integer> tileCounts = new HashMap<>();
+	// Tiles needed by each region, and the number of times the region was requested
+	private final Map<RegionRequest, Collection<TileRequest>> regionTiles = new HashMap<>();
+	private final Map<RegionRequest, Integer> regionCounts = new HashMap<>();
+
+	// Bytes for each tile that is currently being read or retained
+	private final Map<TileRequest, Long> tileBytes = new HashMap<>();
+	private long totalBytes = 0;
+
+	private int nextTile = 0;
+	private int nPrefetched = 0;
+	private boolean started = false;
+	private boolean closed = false;
+
+	private ExecutorService pool;
+
+	private TilePrefetcher(AbstractTileableImageServer server, Collection<RegionRequest> regions, int nThreads, long maxBytes) {
+		this.server = server;
+		this.nThreads = nThreads;
+		this.maxBytes = maxBytes;
+		var orderedTiles = new LinkedHashSet<TileRequest>();
+		if (server != null) {
+			var manager = server.getTileRequestManager();
+			for (var region : regions) {
+				var requiredTiles = regionTiles.computeIfAbsent(region, manager::getTileRequests);
+				regionCounts.merge(region, 1, Integer::sum);
+				for (var tile : requiredTiles) {
+					orderedTiles.add(tile);
+					tileCounts.merge(tile, 1, Integer::sum);
+				}
+			}
+		}
+		this.tiles = new ArrayList<>(orderedTiles);
+	}
+
+	/**
+	 * Set whether tiles should be prefetched.
+	 * If false, prefetchers are still created but never read any tiles.
+	 * This can be used to turn off prefetching if it isn't helpful, e.g. because the tiles would be read at a different
+	 * resolution from the one that is actually needed.
+	 * @param enabled
+	 */
+	public static void setEnabled(boolean enabled) {
+		TilePrefetcher.enabled = enabled;
+	}
+
+	/**
+	 * Query whether tiles should be prefetched.
+	 * @return
+	 * @see #setEnabled(boolean)
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Create a prefetcher for the tiles needed to read the specified regions, using a default number of threads and
+	 * limit on the bytes that may be retained.
+	 * @param server the server that will be used to read the regions
+	 * @param regions the regions, in the order they are expected to be read
+	 * @return a prefetcher, which needs to be started with {@link #start()}
+	 * @see #create(ImageServer, Collection, int, long)
+	 */
+	public static TilePrefetcher create(ImageServer<?> server, Collection<RegionRequest> regions) {
+		int nThreads = Math.max(1, Math.min(4, ThreadTools.getParallelism() / 2));
+		return create(server, regions, nThreads, Runtime.getRuntime().maxMemory() / 16);
+	}
+
+	/**
+	 * Create a prefetcher for the tiles needed to read the specified regions.
+	 * @param server the server that will be used to read the regions
+	 * @param regions the regions, in the order they are expected to be read
+	 * @param nThreads the number of threads to use for reading tiles
+	 * @param maxBytes the maximum number of bytes of tiles to retain before they are needed;
+	 *                 this may be exceeded only if a single tile is larger
+	 * @return a prefetcher, which needs to be started with {@link #start()}
+	 */
+	public static TilePrefetcher create(ImageServer<?> server, Collection<RegionRequest> regions, int nThreads, long maxBytes) {
+		if (nThreads <= 0)
+			throw new IllegalArgumentException("Number of threads must be > 0");
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("Maximum bytes must be > 0");
+		if (!enabled) {
+			logger.debug("Tile prefetching is disabled");
+			return new TilePrefetcher(null, regions, nThreads, maxBytes);
+		}
+		if (server instanceof AbstractTileableImageServer tileableServer)
+			return new TilePrefetcher(tileableServer, regions, nThreads, maxBytes);
+		logger.debug("Tile prefetching is not supported for {}", server);
+		return new TilePrefetcher(null, regions, nThreads, maxBytes);
+	}
+
+	/**
+	 * Start reading tiles in the background.
+	 * Calling this method more than once has no effect.
+	 */
+	public synchronized void start() {
+		if (started || closed || tiles.isEmpty())
+			return;
+		started = true;
+		int n = Math.min(nThreads, tiles.size());
+		pool = Executors.newFixedThreadPool(n, ThreadTools.createThreadFactory("tile-prefetch-" + (++counter) + "-", true));
+		for (int i = 0; i < n; i++)
+			pool.execute(this::prefetchTiles);
+		pool.shutdown();
+		logger.debug("Prefetching {} tiles with {} threads", tiles.size(), n);
+	}
+
+	/**
+	 * Notify the prefetcher that a region has been read and is no longer needed.
+	 * Any tiles that aren't needed for other regions will be released.
+	 * @param region
+	 */
+	public synchronized void regionComplete(RegionRequest region) {
+		Integer count = regionCounts.get(region);
+		if (count == null)
+			return;
+		if (count > 1)
+			regionCounts.put(region, count - 1);
+		else
+			regionCounts.remove(region);
+		for (var tile : regionTiles.get(region)) {
+			int tileCount = tileCounts.merge(tile, -1, Integer::sum);
+			if (tileCount <= 0) {
+				tileCounts.remove(tile);
+				releaseTile(tile);
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Get the number of tiles needed for all regions.
+	 * @return
+	 */
+	public int getTileCount() {
+		return tiles.size();
+	}
+
+	/**
+	 * Get the number of tiles that have been read by the prefetcher so far.
+	 * @return
+	 */
+	public synchronized int getPrefetchedTileCount() {
+		return nPrefetched;
+	}
+
+	/**
+	 * Get the number of bytes currently retained (or reserved for tiles that are being read).
+	 * @return
+	 */
+	public synchronized long getRetainedBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Stop reading tiles, and release any that have been retained.
+	 */
+	@Override
+	public void close() {
+		ExecutorService poolToStop;
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			for (var tile : new ArrayList<>(tileBytes.keySet()))
+				releaseTile(tile);
+			poolToStop = pool;
+			notifyAll();
+			if (started)
+				logger.debug("Prefetched {} of {} tiles", nPrefetched, tiles.size());
+		}
+		if (poolToStop != null)
+			poolToStop.shutdownNow();
+	}
+
+	private void prefetchTiles() {
+		while (true) {
+			TileRequest tile;
+			long estimatedBytes;
+			synchronized (this) {
+				try {
+					while (!closed && nextTile < tiles.size() && totalBytes > 0 &&
+							totalBytes + estimateBytes(tiles.get(nextTile)) > maxBytes) {
+						wait();
+					}
+				} catch (InterruptedException e) {
+					logger.debug("Tile prefetching interrupted");
+					return;
+				}
+				if (closed || nextTile >= tiles.size())
+					return;
+				tile = tiles.get(nextTile++);
+				// Skip tiles if the regions that need them are already complete
+				if (!tileCounts.containsKey(tile))
+					continue;
+				// Retain cached tiles without reading them again, so they can't be evicted before they are needed
+				var imgCached = server.getCachedTile(tile);
+				if (imgCached != null) {
+					retainTile(tile, imgCached);
+					continue;
+				}
+				estimatedBytes = estimateBytes(tile);
+				tileBytes.put(tile, estimatedBytes);
+				totalBytes += estimatedBytes;
+			}
+			BufferedImage img = null;
+			try {
+				img = server.getTile(tile, false);
+			} catch (IOException e) {
+				// The worker will encounter the same exception, so there's no need to log it loudly
+				logger.debug("Unable to prefetch tile {}: {}", tile, e.getMessage());
+			}
+			synchronized (this) {
+				if (tileBytes.remove(tile) == null) {
+					// Tile was released while it was being read
+					continue;
+				}
+				totalBytes -= estimatedBytes;
+				if (img != null && !AbstractTileableImageServer.isEmptyTile(img)) {
+					retainTile(tile, img);
+					nPrefetched++;
+				}
+				notifyAll();
+			}
+		}
+	}
+
+	private void retainTile(TileRequest tile, BufferedImage img) {
+		long bytes = getBytes(img);
+		tileBytes.put(tile, bytes);
+		totalBytes += bytes;
+		server.retainPrefetchedTile(tile, img);
+	}
+
+	private void releaseTile(TileRequest tile) {
+		Long bytes = tileBytes.remove(tile);
+		if (bytes != null) {
+			totalBytes -= bytes;
+			server.releasePrefetchedTile(tile);
+		}
+	}
+
+	private long estimateBytes(TileRequest tile) {
+		return (long)tile.getTileWidth() * tile.getTileHeight() * server.nChannels() *
+				server.getMetadata().getPixelType().getBytesPerPixel();
+	}
+
+	private static long getBytes(BufferedImage img) {
+		var buffer = img.getRaster().getDataBuffer();
+		return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+	}
+
+}
@@ -179,6 +179,15 @@ public class ZProjectedImageServer extends AbstractTileableImageServer {
         }
     }
 
+    /**
+     * Returns true if the wrapped server supports the disk cache, since each projected tile requires
+     * reading tiles from every z-slice.
+     */
+    @Override
+    protected boolean isDiskCacheSupported() {
+        return server instanceof AbstractTileableImageServer tileableServer && tileableServer.isDiskCacheSupported();
+    }
+
     @Override
     public Collection<URI> getURIs() {
         return server.getURIs();
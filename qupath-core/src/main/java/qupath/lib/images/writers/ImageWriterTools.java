@@ -29,6 +29,7 @@ import qupath.lib.images.servers.WrappedBufferedImageServer;
 import qupath.lib.regions.RegionRequest;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -174,6 +175,53 @@ public class ImageWriterTools {
 	}
 	
 	
+	/**
+	 * Encode a 2D image region in memory, using the default writer that supports writing to a stream.
+	 * @param server the image to write
+	 * @param request region to write; if null, the default plane of the entire image will be written
+	 * @param ext the file extension, used to identify an appropriate writer (e.g. ".tif", ".png")
+	 * @return the encoded image
+	 * @throws IOException if no compatible writer could encode the image
+	 * @since v0.8.0
+	 */
+	public static byte[] writeImageRegionToBytes(final ImageServer<BufferedImage> server, final RegionRequest request, final String ext) throws IOException {
+		List<ImageWriter<BufferedImage>> compatibleWriters = ImageWriterTools.getCompatibleWriters(server, ext);
+		for (ImageWriter<BufferedImage> writer : compatibleWriters) {
+			try {
+				var stream = new ByteArrayOutputStream();
+				writer.writeImage(server, request, stream);
+				return stream.toByteArray();
+			} catch (Exception e) {
+				logger.debug("Unable to write image with {}: {}", writer.getName(), e.getMessage());
+			}
+		}
+		throw new IOException("Unable to write image as " + ext + "!  No compatible writer found.");
+	}
+	
+	/**
+	 * Encode a 2D image in memory, using the default writer that supports writing to a stream.
+	 * @param img the image to write
+	 * @param ext the file extension, used to identify an appropriate writer (e.g. ".tif", ".png")
+	 * @return the encoded image
+	 * @throws IOException if no compatible writer could encode the image
+	 * @since v0.8.0
+	 */
+	public static byte[] writeImageToBytes(final BufferedImage img, final String ext) throws IOException {
+		List<ImageWriter<BufferedImage>> compatibleWriters = ImageWriterTools.getCompatibleWriters(
+				new WrappedBufferedImageServer(UUID.randomUUID().toString(), img), ext);
+		for (ImageWriter<BufferedImage> writer : compatibleWriters) {
+			try {
+				var stream = new ByteArrayOutputStream();
+				writer.writeImage(img, stream);
+				return stream.toByteArray();
+			} catch (Exception e) {
+				logger.debug("Unable to write image with {}: {}", writer.getName(), e.getMessage());
+			}
+		}
+		throw new IOException("Unable to write image as " + ext + "!  No compatible writer found.");
+	}
+	
+	
 	/**
 	 * Comparator that prefers the most 'comprehensive/flexible' ImageWriter.
 	 */
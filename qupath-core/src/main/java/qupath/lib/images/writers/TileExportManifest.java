@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.io.GsonTools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of the tiles written by a {@link TileExporter}, along with a hash of the inputs used to create each one.
+ * This makes it possible to skip tiles that haven't changed when exporting to the same directory again.
+ */
+class TileExportManifest {
+
+	private static final Logger logger = LoggerFactory.getLogger(TileExportManifest.class);
+
+	private static final int VERSION = 1;
+
+	private final Map<String, String> previousHashes;
+	private final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+	private TileExportManifest(Map<String, String> previousHashes) {
+		this.previousHashes = previousHashes;
+	}
+
+	/**
+	 * Read a manifest from a previous export.
+	 * @param path the manifest file
+	 * @return the manifest; this will be empty if the file doesn't exist or can't be read
+	 */
+	static TileExportManifest read(Path path) {
+		if (Files.isRegularFile(path)) {
+			try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				var data = GsonTools.getInstance().fromJson(reader, ManifestData.class);
+				if (data != null && data.version == VERSION && data.tiles != null)
+					return new TileExportManifest(data.tiles);
+				logger.warn("Ignoring incompatible tile manifest {}", path);
+			} catch (Exception e) {
+				logger.warn("Unable to read tile manifest {}: {}", path, e.getMessage());
+			}
+		}
+		return new TileExportManifest(Map.of());
+	}
+
+	/**
+	 * Query whether a file is unchanged since the previous export, i.e. it exists and was created from the same inputs.
+	 * @param dir the export directory
+	 * @param path the relative path of the file
+	 * @param hash the hash of the inputs used to create the file
+	 * @return true if the file doesn't need to be written again
+	 */
+	boolean isUnchanged(Path dir, String path, String hash) {
+		return hash.equals(previousHashes.get(path)) && Files.isRegularFile(dir.resolve(path));
+	}
+
+	/**
+	 * Record that a file has been written (or is unchanged).
+	 * This is thread-safe.
+	 * @param path the relative path of the file
+	 * @param hash the hash of the inputs used to create the file
+	 */
+	void put(String path, String hash) {
+		hashes.put(path, hash);
+	}
+
+	/**
+	 * Get the number of files in the previous manifest that haven't been recorded in this one.
+	 * @return
+	 */
+	int countRemovedFiles() {
+		return (int)previousHashes.keySet().stream().filter(p -> !hashes.containsKey(p)).count();
+	}
+
+	/**
+	 * Write the manifest, including only the files that have been recorded with {@link #put(String, String)}.
+	 * @param path the manifest file
+	 * @throws IOException
+	 */
+	void write(Path path) throws IOException {
+		var data = new ManifestData();
+		data.tiles = new TreeMap<>(hashes);
+		try (var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			GsonTools.getInstance(true).toJson(data, writer);
+		}
+	}
+
+	/**
+	 * Create a hash from a string describing all the inputs used to create a file.
+	 * @param inputs
+	 * @return
+	 */
+	static String createHash(String inputs) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256").digest(inputs.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static class ManifestData {
+
+		private int version = VERSION;
+		private Map<String, String> tiles;
+
+	}
+
+}
@@ -21,6 +21,7 @@
 
 package qupath.lib.images.writers;
 
+import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.lib.awt.common.BufferedImageTools;
@@ -32,12 +33,14 @@ import qupath.lib.images.servers.ImageServerMetadata.ChannelType;
 import qupath.lib.images.servers.LabeledImageServer;
 import qupath.lib.images.servers.TransformedServerBuilder;
 import qupath.lib.io.GsonTools;
+import qupath.lib.objects.PathCellObject;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjectTools;
 import qupath.lib.objects.classes.PathClass;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.regions.Padding;
 import qupath.lib.regions.RegionRequest;
+import qupath.lib.roi.interfaces.ROI;
 import qupath.lib.roi.RoiTools;
 
 import java.awt.image.BufferedImage;
@@ -46,17 +49,24 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.NumberFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -98,6 +108,8 @@ public class TileExporter  {
 	private String imageSubDir = null;
 	private String labelSubDir = null;
 	private boolean exportJson = false;
+	private boolean exportTileJson = false;
+	private boolean incremental = false;
 	private String labelId = null;
 
 	private ImageServer<BufferedImage> serverLabeled;
@@ -449,6 +461,40 @@ public class TileExporter  {
 		return this;
 	}
 	
+	/**
+	 * Optionally export a small JSON file alongside each tile, containing its region and the names of the image/label files.
+	 * This is only used when writing tiles to a {@link TileSink}, where it can help identify each tile within an archive.
+	 * @param exportTileJson
+	 * @return this exporter
+	 * @since v0.8.0
+	 * @see #writeTiles(TileSink)
+	 */
+	public TileExporter exportTileJson(boolean exportTileJson) {
+		this.exportTileJson = exportTileJson;
+		return this;
+	}
+	
+	/**
+	 * Optionally skip tiles that are unchanged since a previous export to the same directory.
+	 * <p>
+	 * When this is turned on, a manifest is written alongside the tiles containing a hash of the inputs used to 
+	 * create each file: the image path, the region, the export settings and - for labeled images - the labels 
+	 * and the objects that intersect the tile.
+	 * When exporting again, files are only written if their hash has changed or they no longer exist.
+	 * This makes it much faster to update an export after editing a few annotations.
+	 * <p>
+	 * Note that changes to custom object filters or ROI functions used by a {@link LabeledImageServer} can't be 
+	 * detected; if these change, the tiles should be exported to a new directory.
+	 * This is only used by {@link #writeTiles(String)}.
+	 * @param incremental
+	 * @return this exporter
+	 * @since v0.8.0
+	 */
+	public TileExporter incremental(boolean incremental) {
+		this.incremental = incremental;
+		return this;
+	}
+	
 	
 	/**
 	 * Create region requests, along with information about whether we have a partial tile (which should not be resized/padded) or not.
@@ -570,10 +616,7 @@ public class TileExporter  {
 		if (labelSubDir != null)
 			new File(dirOutput, labelSubDir).mkdirs();
 
-		if (serverLabeled != null) {
-			if (extLabeled == null)
-				extLabeled = serverLabeled.getMetadata().getChannelType() == ChannelType.CLASSIFICATION ? ".png" : ".tif";
-		}
+		updateLabeledExtension();
 		
 		// Work out which RegionRequests to use
 		Collection<RegionRequestWrapper> requests = createRequests();
@@ -587,19 +630,10 @@ public class TileExporter  {
 
 		var pool = Executors.newFixedThreadPool(ThreadTools.getParallelism(), ThreadTools.createThreadFactory("tile-exporter", true));
 
-		String imageName = GeneralTools.stripInvalidFilenameChars(
-				GeneralTools.stripExtension(server.getMetadata().getName())
-				);
+		String imageName = getImageName();
 
 		// Create something we can input as the image path for export
-		String imagePathName = null;
-		var uris = server.getURIs();
-		if (uris.isEmpty())
-			imagePathName = imageName;
-		else if (uris.size() == 1)
-			imagePathName = uris.iterator().next().toString();
-		else
-			imagePathName = "[" + uris.stream().map(u -> u.toString()).collect(Collectors.joining("|")) + "]";
+		String imagePathName = getImagePathName(imageName);
 
 //		// If we have pixel calibration information, use it in the export
 //		PixelCalibration pixelSize = server.getPixelCalibration();
@@ -615,16 +649,21 @@ public class TileExporter  {
 		
 		// Maintain a record of what we exported
 		List<TileExportEntry> exportImages = new ArrayList<>();
+		
+		// If exporting incrementally, check which tiles are unchanged since the last export
+		Path dirPath = Paths.get(dirOutput);
+		Path pathManifest = dirPath.resolve(imageName + "-tiles-manifest.json");
+		TileExportManifest manifest = incremental ? TileExportManifest.read(pathManifest) : null;
+		TileHasher hasher = incremental ? new TileHasher() : null;
+		int nSkipped = 0;
 
 		for (var r : requests) {
 			
 			boolean ensureSize = !r.partialTile;
 			
-			String baseName = String.format("%s [%s]", imageName, getRegionString(r.request));
+			String baseName = getBaseName(imageName, r.request);
 			
-			String exportImageName = baseName + ext;
-			if (imageSubDir != null)
-				exportImageName = Paths.get(imageSubDir, exportImageName).toString();
+			String exportImageName = getExportImageName(baseName);
 			String pathImageOutput = Paths.get(dirOutput, exportImageName).toAbsolutePath().toString();
 			
 			ExportTask taskImage = new ExportTask(server, r.request, pathImageOutput, tileWidth, tileHeight, ensureSize);
@@ -632,14 +671,7 @@ public class TileExporter  {
 			String exportLabelName = null;
 			ExportTask taskLabels = null;
 			if (serverLabeled != null) {
-				String labelName = baseName;
-				if ((labelSubDir == null || labelSubDir.equals(imageSubDir)) && labelId == null && ext.equals(extLabeled)) {
-					labelName = baseName + "-labelled";
-				} else if (labelId != null)
-					labelName = baseName + labelId;
-				exportLabelName = labelName + extLabeled;
-				if (labelSubDir != null)
-					exportLabelName = Paths.get(labelSubDir, exportLabelName).toString();
+				exportLabelName = getExportLabelName(baseName);
 				String pathLabelsOutput = Paths.get(dirOutput, exportLabelName).toAbsolutePath().toString();
 
 				taskLabels = new ExportTask(serverLabeled, r.request.updatePath(serverLabeled.getPath()),
@@ -651,45 +683,46 @@ public class TileExporter  {
 					exportImageName,
 					exportLabelName));
 
+			if (manifest != null) {
+				String hashImage = hasher.getImageHash(r);
+				if (manifest.isUnchanged(dirPath, exportImageName, hashImage)) {
+					manifest.put(exportImageName, hashImage);
+					taskImage = null;
+					nSkipped++;
+				} else {
+					String name = exportImageName;
+					taskImage.onSuccess = () -> manifest.put(name, hashImage);
+				}
+				if (taskLabels != null) {
+					String hashLabels = hasher.getLabelsHash(r);
+					if (manifest.isUnchanged(dirPath, exportLabelName, hashLabels)) {
+						manifest.put(exportLabelName, hashLabels);
+						taskLabels = null;
+						nSkipped++;
+					} else {
+						String name = exportLabelName;
+						taskLabels.onSuccess = () -> manifest.put(name, hashLabels);
+					}
+				}
+			}
+
 			if (taskImage != null)
 				pool.submit(taskImage);
 			if (taskLabels != null) {
 				pool.submit(taskLabels);
 			}
 		}
+		if (nSkipped > 0)
+			logger.info("Skipping {} unchanged files", nSkipped);
 		
 		// Write JSON, if we need to
 		if (exportJson) {
-			var gson = GsonTools.getInstance(true)
-					.newBuilder()
-					.disableHtmlEscaping() // Required to support = in filenames
-					.create();
-			var data = new TileExportData(dirOutput, exportImages);
-			if (serverLabeled instanceof LabeledImageServer) {
-				var labels = ((LabeledImageServer) serverLabeled).getLabels();
-				var boundaryLabels = ((LabeledImageServer) serverLabeled).getBoundaryLabels();
-				List<TileExportLabel> labelList = new ArrayList<>();
-				Set<PathClass> existingLabels = new HashSet<>();
-				for (var entry : labels.entrySet()) {
-					var pathClass = entry.getKey();
-					var label = new TileExportLabel(pathClass.toString(), entry.getValue(), boundaryLabels.getOrDefault(pathClass, null));
-					labelList.add(label);
-				}
-				for (var entry : boundaryLabels.entrySet()) {
-					var pathClass = entry.getKey();
-					if (!existingLabels.contains(pathClass)) {
-						var label = new TileExportLabel(pathClass.toString(), null, boundaryLabels.getOrDefault(pathClass, null));
-						labelList.add(label);
-					}
-				}
-				data.labels = labelList;
-			}
 			var pathJson = Paths.get(dirOutput, imageName + "-tiles.json");
 			if (Files.exists(pathJson)) {
 				logger.warn("Overwriting existing JSON file {}", pathJson);
 			}
 			try (var writer = Files.newBufferedWriter(pathJson, StandardCharsets.UTF_8)) {
-				gson.toJson(data, writer);
+				createGson().toJson(createExportData(dirOutput, exportImages), writer);
 			}
 		}
 
@@ -702,6 +735,308 @@ public class TileExporter  {
 			logger.error("", e);
 			throw new IOException(e);
 		}
+		
+		// Files that failed to export are omitted from the manifest, so they will be written next time
+		if (manifest != null) {
+			int nRemoved = manifest.countRemovedFiles();
+			if (nRemoved > 0)
+				logger.warn("{} files from a previous export are no longer part of the export, but have not been deleted", nRemoved);
+			manifest.write(pathManifest);
+		}
+	}
+	
+	
+	/**
+	 * Helper class to create hashes of the inputs used to export tiles, when exporting incrementally.
+	 * Object hashes are cached, since objects often overlap multiple tiles.
+	 */
+	private class TileHasher {
+		
+		private final String settings;
+		private final String labelSettings;
+		private final Map<PathObject, Integer> instanceLabels;
+		private final Map<PathObject, String> objectHashes = new HashMap<>();
+		
+		private TileHasher() {
+			settings = String.join("\n", ext, String.valueOf(extLabeled),
+					Integer.toString(tileWidth), Integer.toString(tileHeight));
+			if (serverLabeled instanceof LabeledImageServer labeledServer) {
+				var metadata = labeledServer.getMetadata();
+				labelSettings = String.join("\n", server.getPath(),
+						toSortedString(labeledServer.getLabels()),
+						toSortedString(labeledServer.getBoundaryLabels()),
+						Float.toString(labeledServer.getLineThickness()),
+						String.valueOf(metadata.getClassificationLabels()),
+						metadata.getChannels().stream().map(c -> c.getName()).collect(Collectors.joining(",")));
+				instanceLabels = labeledServer.getInstanceLabels();
+			} else {
+				labelSettings = serverLabeled == null ? "" : serverLabeled.getPath();
+				instanceLabels = Collections.emptyMap();
+			}
+		}
+		
+		private String getImageHash(RegionRequestWrapper r) {
+			return TileExportManifest.createHash(String.join("\n",
+					"image", server.getPath(), getRegionKey(r), settings));
+		}
+		
+		private String getLabelsHash(RegionRequestWrapper r) {
+			var request = r.request.updatePath(serverLabeled.getPath());
+			Collection<PathObject> pathObjects;
+			if (serverLabeled instanceof LabeledImageServer labeledServer)
+				pathObjects = labeledServer.getObjectsAffectingRegion(request);
+			else if (imageData != null)
+				pathObjects = imageData.getHierarchy().getAllObjectsForRegion(request, null);
+			else
+				pathObjects = Collections.emptyList();
+			String objects = pathObjects.stream()
+					.map(this::getObjectHash)
+					.sorted()
+					.collect(Collectors.joining(","));
+			return TileExportManifest.createHash(String.join("\n",
+					"labels", labelSettings, getRegionKey(r), settings, objects));
+		}
+		
+		private static String toSortedString(Map<PathClass, Integer> labels) {
+			return labels.entrySet().stream()
+					.map(e -> e.getKey() + "=" + e.getValue())
+					.sorted()
+					.collect(Collectors.joining(","));
+		}
+		
+		private static String getRegionKey(RegionRequestWrapper r) {
+			return getRegionString(r.request) + ",z=" + r.request.getZ() + ",t=" + r.request.getT() + ",partial=" + r.partialTile;
+		}
+		
+		/**
+		 * Get a hash of the properties of an object that may influence how it is drawn.
+		 */
+		private String getObjectHash(PathObject pathObject) {
+			return objectHashes.computeIfAbsent(pathObject, p -> {
+				var sb = new StringBuilder();
+				sb.append(p.getID())
+					.append('\n').append(p.getClass().getName())
+					.append('\n').append(p.getPathClass())
+					.append('\n').append(instanceLabels.get(p));
+				appendROI(sb, p.getROI());
+				if (p instanceof PathCellObject cell)
+					appendROI(sb, cell.getNucleusROI());
+				return TileExportManifest.createHash(sb.toString());
+			});
+		}
+		
+		private static void appendROI(StringBuilder sb, ROI roi) {
+			if (roi == null) {
+				sb.append("\nnull");
+				return;
+			}
+			sb.append('\n').append(roi.getRoiType())
+				.append('\n').append(roi.getImagePlane());
+			for (var p : roi.getAllPoints())
+				sb.append('\n').append(p.getX()).append(',').append(p.getY());
+		}
+		
+	}
+	
+	/**
+	 * Export the image tiles to a {@link TileSink}, which can combine many tiles into a small number of files.
+	 * <p>
+	 * Tiles are read and encoded in parallel, but passed to the sink in order from the calling thread.
+	 * The number of encoded tiles waiting to be written is limited, so that memory use is bounded regardless
+	 * of the number of tiles.
+	 * <p>
+	 * Note that the sink is not closed by this method.
+	 * @param sink the destination for the tiles
+	 * @throws IOException if an error occurs during export
+	 * @since v0.8.0
+	 * @see TileSinks
+	 */
+	public void writeTiles(TileSink sink) throws IOException {
+		
+		updateLabeledExtension();
+		
+		Collection<RegionRequestWrapper> requests = createRequests();
+		if (requests.isEmpty()) {
+			logger.warn("No regions to export!");
+			return;
+		}
+		if (requests.size() > 1)
+			logger.info("Exporting {} tiles", requests.size());
+		
+		String imageName = getImageName();
+		String imagePathName = getImagePathName(imageName);
+		var gson = createGson();
+		
+		int nThreads = ThreadTools.getParallelism();
+		int maxInFlight = nThreads * 4;
+		var pool = Executors.newFixedThreadPool(nThreads, ThreadTools.createThreadFactory("tile-exporter", true));
+		
+		record PendingTile(TileExportEntry entry, Future<List<TileSink.TileFile>> files) {}
+		
+		// Only tiles that were successfully written are included in the JSON
+		List<TileExportEntry> exportImages = new ArrayList<>();
+		Deque<PendingTile> pending = new ArrayDeque<>();
+		try {
+			var iterator = requests.iterator();
+			while (iterator.hasNext() || !pending.isEmpty()) {
+				while (iterator.hasNext() && pending.size() < maxInFlight) {
+					var r = iterator.next();
+					String baseName = getBaseName(imageName, r.request);
+					var entry = new TileExportEntry(
+							r.request.updatePath(imagePathName),
+							getExportImageName(baseName),
+							serverLabeled == null ? null : getExportLabelName(baseName));
+					pending.add(new PendingTile(entry, pool.submit(() -> encodeTile(r, baseName, entry, gson))));
+				}
+				var next = pending.poll();
+				var files = next.files().get();
+				if (files != null) {
+					sink.writeTile(files);
+					exportImages.add(next.entry());
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.error("Tile export interrupted: {}", e.getLocalizedMessage());
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			for (var tile : pending)
+				tile.files().cancel(true);
+			pool.shutdownNow();
+		}
+		
+		if (exportJson) {
+			sink.writeFile(imageName + "-tiles.json",
+					gson.toJson(createExportData(null, exportImages)).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+	
+	/**
+	 * Read and encode all the files for a single tile.
+	 * @return the files, or null if the tile could not be encoded
+	 */
+	private List<TileSink.TileFile> encodeTile(RegionRequestWrapper r, String baseName, TileExportEntry entry, Gson gson) {
+		try {
+			boolean ensureSize = !r.partialTile;
+			List<TileSink.TileFile> files = new ArrayList<>();
+			files.add(new TileSink.TileFile(entry.image, getSuffix(ext),
+					encodeRegion(server, r.request, ext, tileWidth, tileHeight, ensureSize)));
+			if (serverLabeled != null) {
+				files.add(new TileSink.TileFile(entry.labels, "labels." + getSuffix(extLabeled),
+						encodeRegion(serverLabeled, r.request.updatePath(serverLabeled.getPath()), extLabeled, tileWidth, tileHeight, ensureSize)));
+			}
+			if (exportTileJson) {
+				String jsonName = baseName + ".json";
+				if (imageSubDir != null)
+					jsonName = Paths.get(imageSubDir, jsonName).toString();
+				files.add(new TileSink.TileFile(jsonName, "json", gson.toJson(entry).getBytes(StandardCharsets.UTF_8)));
+			}
+			return files;
+		} catch (Exception e) {
+			logger.error("Error writing tile: {}", e.getMessage(), e);
+			return null;
+		}
+	}
+	
+	private static String getSuffix(String ext) {
+		return ext.startsWith(".") ? ext.substring(1) : ext;
+	}
+	
+	/**
+	 * Encode a region in memory, ensuring it has the requested size if necessary.
+	 * This mirrors {@link ExportTask}, but without writing to a file.
+	 */
+	private static byte[] encodeRegion(ImageServer<BufferedImage> server, RegionRequest request, String ext, int tileWidth, int tileHeight, boolean ensureSize) throws IOException {
+		if (ensureSize) {
+			var img = server.readRegion(request.intersect2D(0, 0, server.getWidth(), server.getHeight()));
+			if (img.getWidth() != tileWidth || img.getHeight() != tileHeight) {
+				logger.warn("Adjusting tile to {}x{} pixels for {}", tileWidth, tileHeight, request);
+				img = readFixedSizeRegion(server, request, tileWidth, tileHeight);
+				return ImageWriterTools.writeImageToBytes(img, ext);
+			}
+		}
+		return ImageWriterTools.writeImageRegionToBytes(server, request, ext);
+	}
+	
+	private void updateLabeledExtension() {
+		if (serverLabeled != null) {
+			if (extLabeled == null)
+				extLabeled = serverLabeled.getMetadata().getChannelType() == ChannelType.CLASSIFICATION ? ".png" : ".tif";
+		}
+	}
+	
+	private String getImageName() {
+		return GeneralTools.stripInvalidFilenameChars(
+				GeneralTools.stripExtension(server.getMetadata().getName())
+				);
+	}
+	
+	/**
+	 * Create something we can input as the image path for export.
+	 */
+	private String getImagePathName(String imageName) {
+		var uris = server.getURIs();
+		if (uris.isEmpty())
+			return imageName;
+		else if (uris.size() == 1)
+			return uris.iterator().next().toString();
+		else
+			return "[" + uris.stream().map(u -> u.toString()).collect(Collectors.joining("|")) + "]";
+	}
+	
+	private static String getBaseName(String imageName, RegionRequest request) {
+		return String.format("%s [%s]", imageName, getRegionString(request));
+	}
+	
+	private String getExportImageName(String baseName) {
+		String exportImageName = baseName + ext;
+		if (imageSubDir != null)
+			exportImageName = Paths.get(imageSubDir, exportImageName).toString();
+		return exportImageName;
+	}
+	
+	private String getExportLabelName(String baseName) {
+		String labelName = baseName;
+		if ((labelSubDir == null || labelSubDir.equals(imageSubDir)) && labelId == null && ext.equals(extLabeled)) {
+			labelName = baseName + "-labelled";
+		} else if (labelId != null)
+			labelName = baseName + labelId;
+		String exportLabelName = labelName + extLabeled;
+		if (labelSubDir != null)
+			exportLabelName = Paths.get(labelSubDir, exportLabelName).toString();
+		return exportLabelName;
+	}
+	
+	private static Gson createGson() {
+		return GsonTools.getInstance(true)
+				.newBuilder()
+				.disableHtmlEscaping() // Required to support = in filenames
+				.create();
+	}
+	
+	private TileExportData createExportData(String baseDirectory, List<TileExportEntry> exportImages) {
+		var data = new TileExportData(baseDirectory, exportImages);
+		if (serverLabeled instanceof LabeledImageServer) {
+			var labels = ((LabeledImageServer) serverLabeled).getLabels();
+			var boundaryLabels = ((LabeledImageServer) serverLabeled).getBoundaryLabels();
+			List<TileExportLabel> labelList = new ArrayList<>();
+			Set<PathClass> existingLabels = new HashSet<>();
+			for (var entry : labels.entrySet()) {
+				var pathClass = entry.getKey();
+				var label = new TileExportLabel(pathClass.toString(), entry.getValue(), boundaryLabels.getOrDefault(pathClass, null));
+				labelList.add(label);
+			}
+			for (var entry : boundaryLabels.entrySet()) {
+				var pathClass = entry.getKey();
+				if (!existingLabels.contains(pathClass)) {
+					var label = new TileExportLabel(pathClass.toString(), null, boundaryLabels.getOrDefault(pathClass, null));
+					labelList.add(label);
+				}
+			}
+			data.labels = labelList;
+		}
+		return data;
 	}
 	
 	
@@ -761,6 +1096,8 @@ public class TileExporter  {
 		private String path;
 		private int tileWidth, tileHeight;
 		private boolean ensureSize;
+		// Optional action to run after the image has been written successfully
+		private Runnable onSuccess;
 
 		private ExportTask(ImageServer<BufferedImage> server, RegionRequest request, String path, int tileWidth, int tileHeight, boolean ensureSize) {
 			this.server = server;
@@ -796,6 +1133,8 @@ public class TileExporter  {
 				} else {
 					ImageWriterTools.writeImageRegion(server, request, path);
 				}
+				if (onSuccess != null)
+					onSuccess.run();
 			} catch (Exception e) {
                 logger.error("Error writing tile: {}", e.getMessage(), e);
 			}
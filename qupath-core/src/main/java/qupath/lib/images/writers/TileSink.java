@@ -0,0 +1,66 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for tiles written by a {@link TileExporter}.
+ * <p>
+ * This makes it possible to stream tiles into a small number of large files (e.g. archives), rather than creating
+ * a separate file for every image and label.
+ * Tiles are encoded in parallel by the exporter, but are always passed to the sink from a single thread in
+ * the order they were requested - so implementations don't need to be thread-safe.
+ * <p>
+ * See {@link TileSinks} for the available implementations.
+ *
+ * @since v0.8.0
+ * @see TileSinks
+ */
+public interface TileSink extends Closeable {
+
+	/**
+	 * A single encoded file associated with a tile.
+	 * @param path the relative path for the file, as it would be written when exporting tiles to a directory
+	 * @param suffix a short suffix identifying the kind of file within the tile (e.g. "tif", "labels.png", "json")
+	 * @param bytes the encoded file contents
+	 */
+	record TileFile(String path, String suffix, byte[] bytes) {}
+
+	/**
+	 * Write all the files for a single tile.
+	 * @param files the files, which should be kept together if possible
+	 * @throws IOException
+	 */
+	void writeTile(List<TileFile> files) throws IOException;
+
+	/**
+	 * Write an additional file that does not belong to a specific tile (e.g. a JSON summary of the export).
+	 * @param path the relative path for the file
+	 * @param bytes the file contents
+	 * @throws IOException
+	 */
+	void writeFile(String path, byte[] bytes) throws IOException;
+
+}
@@ -0,0 +1,466 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Static methods to create a {@link TileSink}, to control how a {@link TileExporter} writes its tiles.
+ * <p>
+ * The sinks provided here all combine many tiles into a small number of files.
+ * This avoids creating millions of small files for large exports, which can be very slow (e.g. on network file systems).
+ *
+ * @since v0.8.0
+ */
+public class TileSinks {
+
+	private static final Logger logger = LoggerFactory.getLogger(TileSinks.class);
+
+	/**
+	 * Magic bytes at the start of a pack file written by {@link #pack(Path)}.
+	 */
+	private static final byte[] PACK_MAGIC = "QPTILES1".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Magic bytes at the end of a pack file written by {@link #pack(Path)}, after the index offset.
+	 */
+	private static final byte[] PACK_INDEX_MAGIC = "QPTINDEX".getBytes(StandardCharsets.US_ASCII);
+
+	private TileSinks() {
+		throw new AssertionError("Cannot instantiate this class");
+	}
+
+	/**
+	 * Create a sink that writes tiles to sharded tar archives in a directory.
+	 * Shards are named {@code prefix-000000.tar}, {@code prefix-000001.tar} etc.
+	 * All files for a tile are always written to the same shard, using their usual relative paths.
+	 * Files that don't belong to a tile (e.g. a JSON summary) are written directly to the directory.
+	 * @param dir the output directory, which must exist
+	 * @param prefix prefix for the shard names
+	 * @param maxTilesPerShard maximum number of tiles to write to each shard
+	 * @param maxBytesPerShard approximate maximum number of bytes to write to each shard;
+	 *                         this may be exceeded if a single tile is larger
+	 * @return the sink
+	 * @throws IOException if the directory does not exist
+	 */
+	public static TileSink tarShards(Path dir, String prefix, int maxTilesPerShard, long maxBytesPerShard) throws IOException {
+		return new TarShardSink(dir, prefix, maxTilesPerShard, maxBytesPerShard, false);
+	}
+
+	/**
+	 * Create a sink that writes tiles to sharded tar archives in a format compatible with WebDataset.
+	 * <p>
+	 * This is the same as {@link #tarShards(Path, String, int, long)}, except that the files are renamed so that
+	 * the files for each tile share a unique key, followed by their suffix
+	 * (e.g. {@code 000000042.tif}, {@code 000000042.labels.png}, {@code 000000042.json}).
+	 * Use {@link TileExporter#exportTileJson(boolean)} to include the original file names and regions.
+	 * @param dir the output directory, which must exist
+	 * @param prefix prefix for the shard names
+	 * @param maxTilesPerShard maximum number of tiles to write to each shard
+	 * @param maxBytesPerShard approximate maximum number of bytes to write to each shard;
+	 *                         this may be exceeded if a single tile is larger
+	 * @return the sink
+	 * @throws IOException if the directory does not exist
+	 */
+	public static TileSink webDataset(Path dir, String prefix, int maxTilesPerShard, long maxBytesPerShard) throws IOException {
+		return new TarShardSink(dir, prefix, maxTilesPerShard, maxBytesPerShard, true);
+	}
+
+	/**
+	 * Create a sink that writes tiles to sharded zip archives in a directory.
+	 * Shards are named {@code prefix-000000.zip}, {@code prefix-000001.zip} etc.
+	 * Files are stored without further compression, since encoded images are usually compressed already.
+	 * All files for a tile are always written to the same shard, using their usual relative paths.
+	 * Files that don't belong to a tile (e.g. a JSON summary) are written directly to the directory.
+	 * @param dir the output directory, which must exist
+	 * @param prefix prefix for the shard names
+	 * @param maxTilesPerShard maximum number of tiles to write to each shard
+	 * @param maxBytesPerShard approximate maximum number of bytes to write to each shard;
+	 *                         this may be exceeded if a single tile is larger
+	 * @return the sink
+	 * @throws IOException if the directory does not exist
+	 */
+	public static TileSink zipShards(Path dir, String prefix, int maxTilesPerShard, long maxBytesPerShard) throws IOException {
+		return new ZipShardSink(dir, prefix, maxTilesPerShard, maxBytesPerShard);
+	}
+
+	/**
+	 * Create a sink that writes all files to a single binary pack file, with an index of offsets.
+	 * <p>
+	 * The format is:
+	 * <ul>
+	 *     <li>8 magic bytes {@code QPTILES1}</li>
+	 *     <li>the contents of each file, one after the other</li>
+	 *     <li>the index: a 4-byte entry count, then for each entry the path (as modified UTF-8, preceded by a 2-byte length),
+	 *     an 8-byte offset and an 8-byte length</li>
+	 *     <li>an 8-byte offset of the index, followed by 8 magic bytes {@code QPTINDEX}</li>
+	 * </ul>
+	 * All values are big-endian. Files that don't belong to a tile (e.g. a JSON summary) are included in the pack.
+	 * Use {@link #readPackIndex(Path)} to read the index.
+	 * @param path the output file
+	 * @return the sink
+	 * @throws IOException if the file cannot be created
+	 */
+	public static TileSink pack(Path path) throws IOException {
+		return new PackSink(path);
+	}
+
+	/**
+	 * An entry in a pack file.
+	 * @param path the relative path of the file
+	 * @param offset the offset of the file contents within the pack
+	 * @param length the length of the file contents
+	 * @see #readPackIndex(Path)
+	 */
+	public record PackEntry(String path, long offset, long length) {}
+
+	/**
+	 * Read the index of a pack file written by {@link #pack(Path)}.
+	 * @param path the pack file
+	 * @return the entries, in the order they were written
+	 * @throws IOException if the file could not be read, or is not a valid pack file
+	 */
+	public static List<PackEntry> readPackIndex(Path path) throws IOException {
+		try (var file = new RandomAccessFile(path.toFile(), "r")) {
+			long length = file.length();
+			if (length < PACK_MAGIC.length + 16)
+				throw new IOException(path + " is not a valid tile pack");
+			byte[] magic = new byte[PACK_INDEX_MAGIC.length];
+			file.seek(length - PACK_INDEX_MAGIC.length);
+			file.readFully(magic);
+			if (!Arrays.equals(magic, PACK_INDEX_MAGIC))
+				throw new IOException(path + " is not a valid tile pack (missing index)");
+			file.seek(length - PACK_INDEX_MAGIC.length - 8);
+			long indexOffset = file.readLong();
+			file.seek(indexOffset);
+			int n = file.readInt();
+			List<PackEntry> entries = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				entries.add(new PackEntry(file.readUTF(), file.readLong(), file.readLong()));
+			return entries;
+		}
+	}
+
+
+	/**
+	 * Base class for sinks that divide tiles between several archives.
+	 */
+	private abstract static class ShardedSink implements TileSink {
+
+		private final Path dir;
+		private final String prefix;
+		private final String ext;
+		private final int maxTilesPerShard;
+		private final long maxBytesPerShard;
+
+		private int shardCount = 0;
+		private int shardTiles = 0;
+		private long shardBytes = 0;
+		private boolean shardOpen = false;
+
+		ShardedSink(Path dir, String prefix, String ext, int maxTilesPerShard, long maxBytesPerShard) throws IOException {
+			if (!Files.isDirectory(dir))
+				throw new IOException("Output directory " + dir + " does not exist!");
+			if (maxTilesPerShard <= 0 || maxBytesPerShard <= 0)
+				throw new IllegalArgumentException("Shard limits must be > 0");
+			this.dir = dir;
+			this.prefix = Objects.requireNonNull(prefix);
+			this.ext = ext;
+			this.maxTilesPerShard = maxTilesPerShard;
+			this.maxBytesPerShard = maxBytesPerShard;
+		}
+
+		@Override
+		public void writeTile(List<TileFile> files) throws IOException {
+			if (shardOpen && (shardTiles >= maxTilesPerShard || shardBytes >= maxBytesPerShard)) {
+				closeShard();
+				shardOpen = false;
+			}
+			if (!shardOpen) {
+				var path = dir.resolve(String.format("%s-%06d%s", prefix, shardCount++, ext));
+				logger.debug("Writing tiles to {}", path);
+				openShard(path);
+				shardOpen = true;
+				shardTiles = 0;
+				shardBytes = 0;
+			}
+			for (var file : files) {
+				writeEntry(getEntryName(file), file.bytes());
+				shardBytes += file.bytes().length;
+			}
+			shardTiles++;
+		}
+
+		/**
+		 * Get the name of the entry within the archive.
+		 * @param file
+		 * @return
+		 */
+		String getEntryName(TileFile file) {
+			return toArchivePath(file.path());
+		}
+
+		@Override
+		public void writeFile(String path, byte[] bytes) throws IOException {
+			Files.write(dir.resolve(path), bytes);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (shardOpen) {
+				closeShard();
+				shardOpen = false;
+			}
+			logger.debug("Wrote {} shards to {}", shardCount, dir);
+		}
+
+		abstract void openShard(Path path) throws IOException;
+
+		abstract void writeEntry(String name, byte[] bytes) throws IOException;
+
+		abstract void closeShard() throws IOException;
+
+	}
+
+	/**
+	 * Archives should always use forward slashes.
+	 */
+	private static String toArchivePath(String path) {
+		return path.replace('\\', '/');
+	}
+
+
+	/**
+	 * Write tiles to tar archives, using the POSIX (pax) format where names are too long for a standard ustar header.
+	 */
+	private static class TarShardSink extends ShardedSink {
+
+		private static final int BLOCK_SIZE = 512;
+
+		private final boolean useKeys;
+		private long tileCount = 0;
+
+		private OutputStream stream;
+
+		TarShardSink(Path dir, String prefix, int maxTilesPerShard, long maxBytesPerShard, boolean useKeys) throws IOException {
+			super(dir, prefix, ".tar", maxTilesPerShard, maxBytesPerShard);
+			this.useKeys = useKeys;
+		}
+
+		@Override
+		public void writeTile(List<TileFile> files) throws IOException {
+			super.writeTile(files);
+			tileCount++;
+		}
+
+		@Override
+		String getEntryName(TileFile file) {
+			if (useKeys)
+				return String.format("%09d.%s", tileCount, file.suffix());
+			return super.getEntryName(file);
+		}
+
+		@Override
+		void openShard(Path path) throws IOException {
+			stream = new BufferedOutputStream(Files.newOutputStream(path));
+		}
+
+		@Override
+		void writeEntry(String name, byte[] bytes) throws IOException {
+			byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+			if (nameBytes.length > 100 || nameBytes.length != name.length()) {
+				// Use a pax extended header to store the full name
+				byte[] record = createPaxRecord("path", name);
+				writeHeader(("PaxHeaders/" + (nameBytes.length > 80 ? "entry" : name)).getBytes(StandardCharsets.UTF_8),
+						record.length, (byte)'x');
+				writeContents(record);
+				nameBytes = Arrays.copyOf(nameBytes, Math.min(nameBytes.length, 100));
+			}
+			writeHeader(nameBytes, bytes.length, (byte)'0');
+			writeContents(bytes);
+		}
+
+		private static byte[] createPaxRecord(String key, String value) {
+			// The length includes the digits of the length itself
+			int contentLength = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+			int length = contentLength + Integer.toString(contentLength).length();
+			if (Integer.toString(length).length() != Integer.toString(contentLength).length())
+				length++;
+			return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+		}
+
+		private void writeHeader(byte[] name, long size, byte type) throws IOException {
+			if (size >= 077777777777L)
+				throw new IOException("Tar entry is too large: " + size + " bytes");
+			byte[] header = new byte[BLOCK_SIZE];
+			System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+			putOctal(header, 100, 8, 0644);
+			putOctal(header, 108, 8, 0);
+			putOctal(header, 116, 8, 0);
+			putOctal(header, 124, 12, size);
+			putOctal(header, 136, 12, System.currentTimeMillis() / 1000L);
+			Arrays.fill(header, 148, 156, (byte)' ');
+			header[156] = type;
+			System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+			header[263] = '0';
+			header[264] = '0';
+			long checksum = 0;
+			for (byte b : header)
+				checksum += b & 0xFF;
+			putOctal(header, 148, 7, checksum);
+			header[155] = ' ';
+			stream.write(header);
+		}
+
+		private static void putOctal(byte[] header, int offset, int length, long value) {
+			// Zero-padded octal, followed by a null terminator
+			String s = Long.toOctalString(value);
+			int nDigits = length - 1;
+			for (int i = 0; i < nDigits; i++) {
+				int ind = s.length() - nDigits + i;
+				header[offset + i] = (byte)(ind < 0 ? '0' : s.charAt(ind));
+			}
+			header[offset + nDigits] = 0;
+		}
+
+		private void writeContents(byte[] bytes) throws IOException {
+			stream.write(bytes);
+			int remainder = bytes.length % BLOCK_SIZE;
+			if (remainder != 0)
+				stream.write(new byte[BLOCK_SIZE - remainder]);
+		}
+
+		@Override
+		void closeShard() throws IOException {
+			// End of archive is indicated by two empty blocks
+			stream.write(new byte[BLOCK_SIZE * 2]);
+			stream.close();
+			stream = null;
+		}
+
+	}
+
+
+	/**
+	 * Write tiles to zip archives.
+	 */
+	private static class ZipShardSink extends ShardedSink {
+
+		private ZipOutputStream stream;
+
+		ZipShardSink(Path dir, String prefix, int maxTilesPerShard, long maxBytesPerShard) throws IOException {
+			super(dir, prefix, ".zip", maxTilesPerShard, maxBytesPerShard);
+		}
+
+		@Override
+		void openShard(Path path) throws IOException {
+			stream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path)), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		void writeEntry(String name, byte[] bytes) throws IOException {
+			var entry = new ZipEntry(name);
+			var crc = new CRC32();
+			crc.update(bytes);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(bytes.length);
+			entry.setCompressedSize(bytes.length);
+			entry.setCrc(crc.getValue());
+			stream.putNextEntry(entry);
+			stream.write(bytes);
+			stream.closeEntry();
+		}
+
+		@Override
+		void closeShard() throws IOException {
+			stream.close();
+			stream = null;
+		}
+
+	}
+
+
+	/**
+	 * Write all files to a single pack, with an index at the end.
+	 */
+	private static class PackSink implements TileSink {
+
+		private final Path path;
+		private final DataOutputStream stream;
+		private final List<PackEntry> entries = new ArrayList<>();
+		private long offset;
+
+		PackSink(Path path) throws IOException {
+			this.path = path;
+			this.stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+			stream.write(PACK_MAGIC);
+			offset = PACK_MAGIC.length;
+		}
+
+		@Override
+		public void writeTile(List<TileFile> files) throws IOException {
+			for (var file : files)
+				writeFile(file.path(), file.bytes());
+		}
+
+		@Override
+		public void writeFile(String path, byte[] bytes) throws IOException {
+			stream.write(bytes);
+			entries.add(new PackEntry(toArchivePath(path), offset, bytes.length));
+			offset += bytes.length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			long indexOffset = offset;
+			stream.writeInt(entries.size());
+			for (var entry : entries) {
+				stream.writeUTF(entry.path());
+				stream.writeLong(entry.offset());
+				stream.writeLong(entry.length());
+			}
+			stream.writeLong(indexOffset);
+			stream.write(PACK_INDEX_MAGIC);
+			stream.close();
+			logger.debug("Wrote {} entries to {}", entries.size(), path);
+		}
+
+	}
+
+}
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.hierarchy.PathObjectBlockSource;
+import qupath.lib.regions.ImageRegion;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PathObjectBlockSource} that reads detection blocks from a columnar data file on demand.
+ * <p>
+ * The file is only opened while a block is being read, so that it isn't kept locked.
+ * If the file is changed after it has been opened, any further attempt to read a block will fail.
+ *
+ * @see ColumnarDataFile
+ */
+final class ColumnarBlockSource implements PathObjectBlockSource {
+
+	/**
+	 * The location of a detection block within the file.
+	 * @param offset offset of the first byte of the section contents (i.e. after the section type and length)
+	 * @param length length of the section contents
+	 * @param nObjects number of objects in the block
+	 * @param region region containing the bounds of all objects in the block
+	 */
+	record Block(long offset, int length, int nObjects, ImageRegion region) {
+
+		/**
+		 * Create a block by parsing the header of a detection section.
+		 * @param offset
+		 * @param length
+		 * @param header buffer containing at least {@link ColumnarDataFile#DETECTIONS_HEADER_LENGTH} bytes
+		 * @return
+		 */
+		static Block fromHeader(long offset, int length, ByteBuffer header) {
+			header.get(); // Compression
+			int n = header.getInt();
+			header.getInt(); // Uncompressed length
+			double minX = header.getDouble();
+			double minY = header.getDouble();
+			double maxX = header.getDouble();
+			double maxY = header.getDouble();
+			int z = header.getInt();
+			int t = header.getInt();
+			int x = (int)Math.floor(minX);
+			int y = (int)Math.floor(minY);
+			int width = Math.max(1, (int)Math.ceil(maxX) - x);
+			int height = Math.max(1, (int)Math.ceil(maxY) - y);
+			return new Block(offset, length, n, ImageRegion.createInstance(x, y, width, height, z, t));
+		}
+
+	}
+
+	private final Path path;
+	private final long fileSize;
+	private final FileTime lastModified;
+	private final ColumnarHierarchyReader reader;
+	private final List<Block> blocks;
+
+	/**
+	 * Create a new block source.
+	 * @param path the data file
+	 * @param reader a reader that has already read the dictionaries and built the hierarchy
+	 * @param blocks the detection blocks in the file
+	 * @throws IOException
+	 */
+	ColumnarBlockSource(Path path, ColumnarHierarchyReader reader, List<Block> blocks) throws IOException {
+		this.path = path;
+		this.fileSize = Files.size(path);
+		this.lastModified = Files.getLastModifiedTime(path);
+		this.reader = reader;
+		this.blocks = List.copyOf(blocks);
+	}
+
+	@Override
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	@Override
+	public ImageRegion getBlockRegion(int block) {
+		return blocks.get(block).region();
+	}
+
+	@Override
+	public int getBlockObjectCount(int block) {
+		return blocks.get(block).nObjects();
+	}
+
+	@Override
+	public Map<PathObject, List<PathObject>> loadBlock(int block) throws IOException {
+		if (Files.size(path) != fileSize || !Files.getLastModifiedTime(path).equals(lastModified))
+			throw new IOException("Data file " + path + " has changed since it was opened");
+		var info = blocks.get(block);
+		byte[] section;
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			section = readFully(channel, info.offset(), info.length()).array();
+		}
+		return reader.readDetectionBlock(section);
+	}
+
+	/**
+	 * Read bytes from a specified position in a file.
+	 * @param channel
+	 * @param position
+	 * @param length
+	 * @return a buffer containing the bytes, with the position set to 0
+	 * @throws IOException if the bytes could not be read, or if the end of the file is reached
+	 */
+	static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		var buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer, position + buffer.position());
+			if (n < 0)
+				throw new EOFException("Unexpected end of file at position " + (position + buffer.position()));
+		}
+		return buffer.flip();
+	}
+
+}
@@ -0,0 +1,191 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Constants and helper methods for the columnar .qpdata format (data file version 5).
+ * <p>
+ * Files start with {@link #MAGIC} and the version number, followed by the server JSON
+ * and then a sequence of sections.
+ * Each section has a one-byte type and an int length, so that readers can skip sections
+ * they don't need (or don't understand).
+ * <p>
+ * Objects are written in depth-first order as blocks, each of which stores its values
+ * column-by-column.
+ * Detections without child objects are written separately in {@link #SECTION_DETECTIONS} blocks,
+ * sorted by image plane and then along a Hilbert curve, so that each block covers a compact
+ * region of the image.
+ * This makes it possible to read these blocks on demand, rather than all at once.
+ * <p>
+ * Dictionaries for measurement names and classifications are shared across the whole file,
+ * with each block adding only the entries that are new.
+ * The complete dictionaries are also written in a {@link #SECTION_DICTIONARY} at the end, so that
+ * blocks can be decoded in any order.
+ *
+ * @see ColumnarHierarchyWriter
+ * @see ColumnarHierarchyReader
+ */
+final class ColumnarDataFile {
+
+	/**
+	 * Data file version for the columnar format.
+	 */
+	static final int VERSION = 5;
+
+	/**
+	 * Bytes at the start of every columnar data file.
+	 * Legacy data files start with the Java serialization stream header instead.
+	 */
+	static final byte[] MAGIC = {'Q', 'P', 'D', 'A', 'T', 'A'};
+
+	static final byte SECTION_END = 0;
+	static final byte SECTION_IMAGE = 1;
+	static final byte SECTION_OBJECTS = 2;
+	static final byte SECTION_TMA_GRID = 3;
+	static final byte SECTION_DETECTIONS = 4;
+	static final byte SECTION_DICTIONARY = 5;
+
+	/**
+	 * Length of the header for an object block: compression, object count, uncompressed length and bounds.
+	 */
+	static final int OBJECTS_HEADER_LENGTH = 1 + 4 + 4 + 4 * 8;
+
+	/**
+	 * Length of the header for a detection block, which also includes the z-slice and timepoint.
+	 */
+	static final int DETECTIONS_HEADER_LENGTH = OBJECTS_HEADER_LENGTH + 4 + 4;
+
+	static final byte COMPRESSION_NONE = 0;
+	static final byte COMPRESSION_DEFLATE = 1;
+
+	static final byte OBJECT_ROOT = 0;
+	static final byte OBJECT_ANNOTATION = 1;
+	static final byte OBJECT_DETECTION = 2;
+	static final byte OBJECT_CELL = 3;
+	static final byte OBJECT_TILE = 4;
+	static final byte OBJECT_TMA_CORE = 5;
+
+	static final int FLAG_LOCKED = 1;
+	static final int FLAG_NAME = 1 << 1;
+	static final int FLAG_COLOR = 1 << 2;
+	static final int FLAG_PROBABILITY = 1 << 3;
+	static final int FLAG_METADATA = 1 << 4;
+	static final int FLAG_ROI = 1 << 5;
+	static final int FLAG_NUCLEUS = 1 << 6;
+	static final int FLAG_MISSING = 1 << 7;
+	static final int FLAG_CHILDREN = 1 << 8;
+
+	static final byte ENCODING_FLOAT = 1;
+	static final byte ENCODING_DOUBLE = 2;
+
+	private ColumnarDataFile() {}
+
+	/**
+	 * Check whether a stream starts with {@link #MAGIC}, without consuming any bytes.
+	 * @param stream an input stream that supports mark/reset
+	 * @return true if the stream contains a columnar data file, false otherwise
+	 * @throws IOException
+	 */
+	static boolean isColumnarDataFile(InputStream stream) throws IOException {
+		if (!stream.markSupported())
+			throw new IllegalArgumentException("Input stream must support mark/reset");
+		stream.mark(MAGIC.length);
+		try {
+			byte[] bytes = stream.readNBytes(MAGIC.length);
+			return Arrays.equals(bytes, MAGIC);
+		} finally {
+			stream.reset();
+		}
+	}
+
+	/**
+	 * Read the magic bytes and version from the start of a columnar data file.
+	 * @param input
+	 * @return the data file version
+	 * @throws IOException if the input is not a columnar data file, or has an unsupported version
+	 */
+	static int readHeader(DataInput input) throws IOException {
+		byte[] bytes = new byte[MAGIC.length];
+		input.readFully(bytes);
+		if (!Arrays.equals(bytes, MAGIC))
+			throw new IOException("Input does not appear to be a valid QuPath data file");
+		int version = input.readInt();
+		if (version > VERSION)
+			throw new IOException("Data file version " + version + " is not supported (maximum supported version is " + VERSION + ")");
+		return version;
+	}
+
+	/**
+	 * Write a string as UTF-8 bytes, prefixed by the number of bytes.
+	 * Unlike {@link DataOutput#writeUTF(String)}, this supports null and very long strings.
+	 * @param output
+	 * @param string
+	 * @throws IOException
+	 */
+	static void writeString(DataOutput output, String string) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+		} else {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * Read a string written with {@link #writeString(DataOutput, String)}.
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	static String readString(DataInput input) throws IOException {
+		int length = input.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a string written with {@link #writeString(DataOutput, String)} from a buffer.
+	 * @param buffer
+	 * @return
+	 */
+	static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
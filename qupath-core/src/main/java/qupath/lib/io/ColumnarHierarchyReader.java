@@ -0,0 +1,482 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.measurements.MeasurementList;
+import qupath.lib.measurements.MeasurementListFactory;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.PathROIObject;
+import qupath.lib.objects.TMACoreObject;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.DefaultTMAGrid;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.PackedROIs;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read a {@link PathObjectHierarchy} from columnar blocks written by {@link ColumnarHierarchyWriter}.
+ * <p>
+ * Blocks must be passed to the reader in the order in which they were written, unless the
+ * complete dictionaries have been read first with {@link #readDictionarySection(byte[])}.
+ * Child objects are only added to their parents when {@link #build()} is called,
+ * so that each parent receives all its children in a single call.
+ * <p>
+ * Detection blocks can also be read after the hierarchy has been built using
+ * {@link #readDetectionBlock(byte[])}, which makes it possible to load them on demand.
+ *
+ * @see ColumnarHierarchyWriter
+ * @see ColumnarDataFile
+ */
+final class ColumnarHierarchyReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(ColumnarHierarchyReader.class);
+
+	private final PathObjectHierarchy hierarchy = new PathObjectHierarchy();
+
+	private final List<String> names = new ArrayList<>();
+	private final List<PathClass> pathClasses = new ArrayList<>();
+	private boolean useInlineDictionaries = true;
+
+	private final Map<Integer, PathObject> parents = new HashMap<>();
+	private final Map<Integer, List<PathObject>> children = new LinkedHashMap<>();
+	private final Map<Integer, TMACoreObject> cores = new HashMap<>();
+
+	private int gridWidth = -1;
+	private int[] gridIndices;
+
+	private final Inflater inflater = new Inflater();
+
+	/**
+	 * Read the bytes of an object section.
+	 * @param section the full contents of the section, excluding the section type and length
+	 * @throws IOException
+	 */
+	void readObjectSection(byte[] section) throws IOException {
+		addChildren(readSection(section, ColumnarDataFile.OBJECTS_HEADER_LENGTH));
+	}
+
+	/**
+	 * Read the bytes of a detection section.
+	 * @param section the full contents of the section, excluding the section type and length
+	 * @throws IOException
+	 */
+	void readDetectionSection(byte[] section) throws IOException {
+		addChildren(readSection(section, ColumnarDataFile.DETECTIONS_HEADER_LENGTH));
+	}
+
+	/**
+	 * Read the bytes of a dictionary section.
+	 * After this is called, the dictionary entries stored in each block are ignored - so that blocks may be read in any order.
+	 * @param section the full contents of the section, excluding the section type and length
+	 */
+	void readDictionarySection(byte[] section) {
+		var buffer = ByteBuffer.wrap(section);
+		names.clear();
+		pathClasses.clear();
+		readDictionaryEntries(buffer, true);
+		useInlineDictionaries = false;
+	}
+
+	/**
+	 * Read the bytes of a detection section, after {@link #build()} has been called.
+	 * This requires that the dictionaries have been read.
+	 * @param section the full contents of the section, excluding the section type and length
+	 * @return a map with parent objects as keys, and the detections that should be added to each parent as values
+	 * @throws IOException
+	 */
+	synchronized Map<PathObject, List<PathObject>> readDetectionBlock(byte[] section) throws IOException {
+		if (useInlineDictionaries)
+			throw new IllegalStateException("Dictionaries must be read before detection blocks can be read on demand");
+		var block = readSection(section, ColumnarDataFile.DETECTIONS_HEADER_LENGTH);
+		Map<PathObject, List<PathObject>> map = new LinkedHashMap<>();
+		for (int i = 0; i < block.objects().length; i++) {
+			var parent = parents.get(block.parentIndices()[i]);
+			if (parent == null)
+				throw new IOException("Unable to find parent for object in detection block");
+			map.computeIfAbsent(parent, p -> new ArrayList<>()).add(block.objects()[i]);
+		}
+		return map;
+	}
+
+	/**
+	 * Objects decoded from a block, along with the indices of their parents.
+	 */
+	private record Block(PathObject[] objects, int[] parentIndices) {}
+
+	private void addChildren(Block block) {
+		for (int i = 0; i < block.objects().length; i++) {
+			int parentIndex = block.parentIndices()[i];
+			if (parentIndex >= 0)
+				children.computeIfAbsent(parentIndex, k -> new ArrayList<>()).add(block.objects()[i]);
+		}
+	}
+
+	private Block readSection(byte[] section, int headerLength) throws IOException {
+		var header = ByteBuffer.wrap(section);
+		byte compression = header.get();
+		int n = header.getInt();
+		int rawLength = header.getInt();
+		// Skip the block bounds (and plane)
+		header.position(headerLength);
+		ByteBuffer buffer;
+		if (compression == ColumnarDataFile.COMPRESSION_DEFLATE) {
+			byte[] raw = new byte[rawLength];
+			inflater.reset();
+			inflater.setInput(section, header.position(), section.length - header.position());
+			try {
+				int length = 0;
+				while (length < rawLength && !inflater.finished()) {
+					int count = inflater.inflate(raw, length, rawLength - length);
+					if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					length += count;
+				}
+				if (length != rawLength)
+					throw new IOException("Unable to decompress object block (expected " + rawLength + " bytes, found " + length + ")");
+			} catch (DataFormatException e) {
+				throw new IOException("Unable to decompress object block", e);
+			}
+			buffer = ByteBuffer.wrap(raw);
+		} else if (compression == ColumnarDataFile.COMPRESSION_NONE) {
+			buffer = header.slice();
+		} else
+			throw new IOException("Unsupported block compression " + compression);
+		return readBlock(buffer, n);
+	}
+
+	/**
+	 * Read the bytes of a TMA grid section.
+	 * @param section the full contents of the section, excluding the section type and length
+	 */
+	void readTMAGridSection(byte[] section) {
+		var buffer = ByteBuffer.wrap(section);
+		gridWidth = buffer.getInt();
+		int n = buffer.getInt();
+		gridIndices = new int[n];
+		for (int i = 0; i < n; i++)
+			gridIndices[i] = buffer.getInt();
+	}
+
+	/**
+	 * Assemble the objects that have been read into a hierarchy.
+	 * @return
+	 */
+	PathObjectHierarchy build() {
+		for (var entry : children.entrySet()) {
+			var parent = parents.get(entry.getKey());
+			if (parent == null)
+				logger.warn("Unable to find parent for {} object(s)", entry.getValue().size());
+			else
+				parent.addChildObjects(entry.getValue());
+		}
+		children.clear();
+		// Retain parents, since we may need them if detection blocks are read later
+		if (gridIndices != null) {
+			List<TMACoreObject> gridCores = new ArrayList<>();
+			for (int ind : gridIndices) {
+				var core = cores.get(ind);
+				if (core == null)
+					logger.warn("Unable to find TMA core with index {}", ind);
+				else
+					gridCores.add(core);
+			}
+			if (gridCores.size() == gridIndices.length)
+				hierarchy.setTMAGrid(DefaultTMAGrid.create(gridCores, gridWidth));
+			else
+				logger.warn("TMA grid will be skipped - expected {} cores, found {}", gridIndices.length, gridCores.size());
+		}
+		cores.clear();
+		return hierarchy;
+	}
+
+	private void readDictionaryEntries(ByteBuffer buffer, boolean store) {
+		int nNewNames = buffer.getInt();
+		for (int i = 0; i < nNewNames; i++) {
+			String name = ColumnarDataFile.readString(buffer);
+			if (store)
+				names.add(name);
+		}
+		int nNewClasses = buffer.getInt();
+		for (int i = 0; i < nNewClasses; i++) {
+			String name = ColumnarDataFile.readString(buffer);
+			boolean hasColor = buffer.get() != 0;
+			int color = buffer.getInt();
+			if (store)
+				pathClasses.add(PathClass.fromString(name, hasColor ? color : null));
+		}
+	}
+
+	private Block readBlock(ByteBuffer buffer, int nExpected) throws IOException {
+		int n = buffer.getInt();
+		if (n != nExpected)
+			throw new IOException("Invalid object block (expected " + nExpected + " objects, found " + n + ")");
+		int blockStart = buffer.getInt();
+
+		readDictionaryEntries(buffer, useInlineDictionaries);
+
+		byte[] types = new byte[n];
+		buffer.get(types);
+		int[] parentIndices = readInts(buffer, n);
+		int[] flags = readInts(buffer, n);
+		int[] classes = readInts(buffer, n);
+		UUID[] ids = new UUID[n];
+		for (int i = 0; i < n; i++)
+			ids[i] = new UUID(buffer.getLong(), buffer.getLong());
+
+		String[] objectNames = new String[n];
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_NAME) != 0)
+				objectNames[i] = ColumnarDataFile.readString(buffer);
+		}
+		Integer[] colors = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_COLOR) != 0)
+				colors[i] = buffer.getInt();
+		}
+		double[] probabilities = new double[n];
+		for (int i = 0; i < n; i++) {
+			probabilities[i] = (flags[i] & ColumnarDataFile.FLAG_PROBABILITY) != 0 ? buffer.getDouble() : Double.NaN;
+		}
+		List<Map<String, String>> metadata = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_METADATA) != 0) {
+				int count = buffer.getInt();
+				Map<String, String> map = new LinkedHashMap<>();
+				for (int j = 0; j < count; j++)
+					map.put(ColumnarDataFile.readString(buffer), ColumnarDataFile.readString(buffer));
+				metadata.add(map);
+			}
+		}
+
+		ROI[] rois = readROIs(buffer, flags, ColumnarDataFile.FLAG_ROI);
+		ROI[] nuclei = readROIs(buffer, flags, ColumnarDataFile.FLAG_NUCLEUS);
+		MeasurementList[] measurements = readMeasurements(buffer, types);
+
+		PathObject[] pathObjects = new PathObject[n];
+		int metadataInd = 0;
+		for (int i = 0; i < n; i++) {
+			// Detection blocks don't have indices, since they can't contain parents
+			int index = blockStart < 0 ? -1 : blockStart + i;
+			int f = flags[i];
+			PathClass pathClass = classes[i] < 0 ? null : pathClasses.get(classes[i]);
+			var pathObject = createObject(types[i], rois[i], nuclei[i], pathClass, measurements[i], (f & ColumnarDataFile.FLAG_MISSING) != 0);
+			if (pathObject.isRootObject()) {
+				if (measurements[i] != null)
+					pathObject.getMeasurementList().putAll(measurements[i]);
+			} else {
+				pathObject.setID(ids[i]);
+				if (pathObject instanceof TMACoreObject core) {
+					cores.put(index, core);
+					if (pathClass != null)
+						core.setPathClass(pathClass, probabilities[i]);
+				} else if (!Double.isNaN(probabilities[i]))
+					pathObject.setPathClass(pathClass, probabilities[i]);
+			}
+			if (objectNames[i] != null)
+				pathObject.setName(objectNames[i]);
+			if (colors[i] != null)
+				pathObject.setColor(colors[i]);
+			if ((f & ColumnarDataFile.FLAG_LOCKED) != 0 && pathObject instanceof PathROIObject)
+				pathObject.setLocked(true);
+			if ((f & ColumnarDataFile.FLAG_METADATA) != 0)
+				pathObject.getMetadata().putAll(metadata.get(metadataInd++));
+			if ((f & ColumnarDataFile.FLAG_CHILDREN) != 0 && index >= 0)
+				parents.put(index, pathObject);
+			pathObjects[i] = pathObject;
+		}
+		return new Block(pathObjects, parentIndices);
+	}
+
+	private PathObject createObject(byte type, ROI roi, ROI nucleus, PathClass pathClass, MeasurementList measurements, boolean isMissing) throws IOException {
+		return switch (type) {
+			case ColumnarDataFile.OBJECT_ROOT -> hierarchy.getRootObject();
+			case ColumnarDataFile.OBJECT_ANNOTATION -> PathObjects.createAnnotationObject(roi, pathClass, measurements);
+			case ColumnarDataFile.OBJECT_DETECTION -> PathObjects.createDetectionObject(roi, pathClass, measurements);
+			case ColumnarDataFile.OBJECT_CELL -> PathObjects.createCellObject(roi, nucleus, pathClass, measurements);
+			case ColumnarDataFile.OBJECT_TILE -> PathObjects.createTileObject(roi, pathClass, measurements);
+			case ColumnarDataFile.OBJECT_TMA_CORE -> {
+				var core = PathObjects.createTMACoreObject(roi, isMissing);
+				if (measurements != null)
+					core.getMeasurementList().putAll(measurements);
+				yield core;
+			}
+			default -> throw new IOException("Unsupported object type " + type);
+		};
+	}
+
+	private static ROI[] readROIs(ByteBuffer buffer, int[] flags, int flag) throws IOException {
+		int n = flags.length;
+		ROI[] output = new ROI[n];
+		int nROIs = buffer.getInt();
+		if (nROIs == 0)
+			return output;
+
+		byte[] types = new byte[nROIs];
+		buffer.get(types);
+		int[] c = readInts(buffer, nROIs);
+		int[] z = readInts(buffer, nROIs);
+		int[] t = readInts(buffer, nROIs);
+
+		int nVertexROIs = 0;
+		for (byte type : types) {
+			if (PackedROIs.isVertexType(type))
+				nVertexROIs++;
+		}
+		int[] counts = readInts(buffer, nVertexROIs);
+		int nCoords = buffer.getInt();
+		float[] coords = new float[nCoords];
+		buffer.asFloatBuffer().get(coords);
+		buffer.position(buffer.position() + nCoords * Float.BYTES);
+
+		double[] params = new double[4];
+		int roiInd = 0;
+		int vertexInd = 0;
+		int coordOffset = 0;
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & flag) == 0)
+				continue;
+			if (roiInd >= nROIs)
+				throw new IOException("Invalid object block (too few ROIs)");
+			byte type = types[roiInd];
+			var plane = ImagePlane.getPlaneWithChannel(c[roiInd], z[roiInd], t[roiInd]);
+			if (PackedROIs.isVertexType(type)) {
+				int nVertices = counts[vertexInd++];
+				output[i] = PackedROIs.createFromVertices(type, coords, coordOffset, nVertices, plane);
+				coordOffset += nVertices * 2;
+			} else if (PackedROIs.isParameterType(type)) {
+				for (int p = 0; p < 4; p++)
+					params[p] = buffer.getDouble();
+				output[i] = PackedROIs.createFromParameters(type, params, 0, plane);
+			} else {
+				// WKB is stored after all the parameters, so we need to come back to it
+				output[i] = null;
+			}
+			roiInd++;
+		}
+
+		// Read any geometries stored as well-known binary
+		roiInd = 0;
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & flag) == 0)
+				continue;
+			if (PackedROIs.isWKBType(types[roiInd])) {
+				byte[] wkb = new byte[buffer.getInt()];
+				buffer.get(wkb);
+				output[i] = PackedROIs.createFromWKB(types[roiInd], wkb, ImagePlane.getPlaneWithChannel(c[roiInd], z[roiInd], t[roiInd]));
+			}
+			roiInd++;
+		}
+		return output;
+	}
+
+	private MeasurementList[] readMeasurements(ByteBuffer buffer, byte[] types) {
+		int n = types.length;
+		MeasurementList[] output = new MeasurementList[n];
+		int nColumns = buffer.getInt();
+		if (nColumns == 0)
+			return output;
+
+		// Read all columns first, so that we know how many measurements each object has
+		int[] nameIds = new int[nColumns];
+		long[][] present = new long[nColumns][];
+		double[][] values = new double[nColumns][];
+		int[] counts = new int[n];
+		boolean[] needsDouble = new boolean[n];
+		for (int col = 0; col < nColumns; col++) {
+			nameIds[col] = buffer.getInt();
+			boolean isFloat = buffer.get() == ColumnarDataFile.ENCODING_FLOAT;
+			int nPresent = buffer.getInt();
+			long[] bits = null;
+			if (nPresent < n) {
+				bits = new long[(n + 63) / 64];
+				for (int w = 0; w < bits.length; w++)
+					bits[w] = buffer.getLong();
+			}
+			double[] vals = new double[nPresent];
+			for (int v = 0; v < nPresent; v++)
+				vals[v] = isFloat ? buffer.getFloat() : buffer.getDouble();
+			for (int i = 0; i < n; i++) {
+				if (bits == null || (bits[i >> 6] & (1L << i)) != 0) {
+					counts[i]++;
+					if (!isFloat)
+						needsDouble[i] = true;
+				}
+			}
+			present[col] = bits;
+			values[col] = vals;
+		}
+
+		for (int col = 0; col < nColumns; col++) {
+			String name = names.get(nameIds[col]);
+			long[] bits = present[col];
+			double[] vals = values[col];
+			int v = 0;
+			for (int i = 0; i < n; i++) {
+				if (bits != null && (bits[i >> 6] & (1L << i)) == 0)
+					continue;
+				var list = output[i];
+				if (list == null) {
+					// Only detections may use float lists - other objects always get a general list (as they would by default)
+					// so that measurements added later aren't stored with reduced precision.
+					// Detections also use a general list if we need double precision, since it stores values as doubles.
+					var listType = !isDetectionType(types[i]) || needsDouble[i] ?
+							MeasurementList.MeasurementListType.GENERAL : MeasurementList.MeasurementListType.FLOAT;
+					list = MeasurementListFactory.createMeasurementList(counts[i], listType);
+					output[i] = list;
+				}
+				list.put(name, vals[v++]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (output[i] != null && isDetectionType(types[i]))
+				output[i].close();
+		}
+		return output;
+	}
+
+	private static boolean isDetectionType(byte type) {
+		return type == ColumnarDataFile.OBJECT_DETECTION || type == ColumnarDataFile.OBJECT_CELL || type == ColumnarDataFile.OBJECT_TILE;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int n) {
+		int[] values = new int[n];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + n * Integer.BYTES);
+		return values;
+	}
+
+}
@@ -0,0 +1,688 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import qupath.lib.objects.PathAnnotationObject;
+import qupath.lib.objects.PathCellObject;
+import qupath.lib.objects.PathDetectionObject;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathROIObject;
+import qupath.lib.objects.PathRootObject;
+import qupath.lib.objects.PathTileObject;
+import qupath.lib.objects.TMACoreObject;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.HilbertCurve;
+import qupath.lib.roi.PackedROIs;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Write a {@link PathObjectHierarchy} as a sequence of columnar blocks.
+ * <p>
+ * Objects are visited in depth-first order and buffered only until a block is full,
+ * so the hierarchy is never copied in its entirety.
+ * Detections without child objects are written to separate blocks, after sorting the children
+ * of each parent spatially.
+ *
+ * @see ColumnarHierarchyReader
+ * @see ColumnarDataFile
+ */
+final class ColumnarHierarchyWriter {
+
+	/**
+	 * Default maximum number of objects in each block.
+	 */
+	static final int DEFAULT_BLOCK_SIZE = 8192;
+
+	/**
+	 * Order of the Hilbert curve used to sort detections spatially.
+	 */
+	private static final int HILBERT_ORDER = 16;
+
+	private final DataOutputStream out;
+	private final boolean compress;
+	private final int blockSize;
+
+	private final Map<String, Integer> nameIds = new HashMap<>();
+	private final List<String> names = new ArrayList<>();
+	private int nWrittenNames = 0;
+	private final Map<PathClass, Integer> classIds = new HashMap<>();
+	private final List<PathClass> pathClasses = new ArrayList<>();
+	private int nWrittenClasses = 0;
+	private final Map<TMACoreObject, Integer> coreIndices = new IdentityHashMap<>();
+
+	private final PathObject[] blockObjects;
+	private final int[] blockParents;
+	private int blockCount = 0;
+	private int blockStart = 0;
+
+	private final PathObject[] detectionObjects;
+	private final int[] detectionParents;
+	private int detectionCount = 0;
+	private int detectionZ = 0;
+	private int detectionT = 0;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressed = new byte[0];
+	private float[] coords = new float[1024];
+
+	/**
+	 * Create a new writer.
+	 * @param out the output to write to
+	 * @param compress if true, compress each block
+	 * @param blockSize maximum number of objects per block
+	 */
+	ColumnarHierarchyWriter(DataOutputStream out, boolean compress, int blockSize) {
+		if (blockSize <= 0)
+			throw new IllegalArgumentException("Block size must be > 0");
+		this.out = out;
+		this.compress = compress;
+		this.blockSize = blockSize;
+		this.blockObjects = new PathObject[blockSize];
+		this.blockParents = new int[blockSize];
+		this.detectionObjects = new PathObject[blockSize];
+		this.detectionParents = new int[blockSize];
+	}
+
+	/**
+	 * Query whether all the objects in a hierarchy can be written in the columnar format.
+	 * This is true if the hierarchy contains only the standard object types provided by QuPath.
+	 * @param hierarchy
+	 * @return
+	 */
+	static boolean canWrite(PathObjectHierarchy hierarchy) {
+		Deque<PathObject> stack = new ArrayDeque<>();
+		stack.push(hierarchy.getRootObject());
+		while (!stack.isEmpty()) {
+			var pathObject = stack.pop();
+			if (getObjectType(pathObject) < 0)
+				return false;
+			if (pathObject.hasChildObjects()) {
+				for (var child : pathObject.getChildObjectsAsArray())
+					stack.push(child);
+			}
+		}
+		return true;
+	}
+
+	static byte getObjectType(PathObject pathObject) {
+		var cls = pathObject.getClass();
+		if (cls == PathDetectionObject.class)
+			return ColumnarDataFile.OBJECT_DETECTION;
+		if (cls == PathCellObject.class)
+			return ColumnarDataFile.OBJECT_CELL;
+		if (cls == PathAnnotationObject.class)
+			return ColumnarDataFile.OBJECT_ANNOTATION;
+		if (cls == PathTileObject.class)
+			return ColumnarDataFile.OBJECT_TILE;
+		if (cls == TMACoreObject.class)
+			return ColumnarDataFile.OBJECT_TMA_CORE;
+		if (cls == PathRootObject.class)
+			return ColumnarDataFile.OBJECT_ROOT;
+		return -1;
+	}
+
+	/**
+	 * Write all the objects in a hierarchy, followed by the TMA grid (if present) and the dictionaries.
+	 * @param hierarchy
+	 * @throws IOException
+	 */
+	void writeHierarchy(PathObjectHierarchy hierarchy) throws IOException {
+		// Depth-first traversal, where each frame stores the children of a single parent
+		Deque<Frame> stack = new ArrayDeque<>();
+		int[] positions = new int[16];
+		addToBlock(hierarchy.getRootObject(), -1);
+		stack.push(createFrame(hierarchy.getRootObject(), 0));
+		positions[0] = 0;
+		while (!stack.isEmpty()) {
+			int depth = stack.size() - 1;
+			var frame = stack.peek();
+			int pos = positions[depth];
+			if (pos >= frame.children().length) {
+				stack.pop();
+				continue;
+			}
+			positions[depth] = pos + 1;
+			var child = frame.children()[pos];
+			int index = addToBlock(child, frame.parentIndex());
+			if (child.hasChildObjects()) {
+				if (depth + 1 >= positions.length)
+					positions = Arrays.copyOf(positions, positions.length * 2);
+				positions[depth + 1] = 0;
+				stack.push(createFrame(child, index));
+			}
+		}
+		flushBlock();
+		flushDetections();
+		writeTMAGrid(hierarchy);
+		writeDictionary();
+	}
+
+	private record Frame(PathObject[] children, int parentIndex) {}
+
+	/**
+	 * Create a frame containing the child objects that should be written in depth-first order.
+	 * Detections without child objects are written immediately to detection blocks instead.
+	 * @param parent
+	 * @param parentIndex
+	 * @return
+	 * @throws IOException
+	 */
+	private Frame createFrame(PathObject parent, int parentIndex) throws IOException {
+		var children = parent.getChildObjectsAsArray();
+		int nDetections = 0;
+		for (var child : children) {
+			if (isLeafDetection(child))
+				nDetections++;
+		}
+		if (nDetections == 0)
+			return new Frame(children, parentIndex);
+		var others = new PathObject[children.length - nDetections];
+		var detections = new PathObject[nDetections];
+		int indOthers = 0;
+		int indDetections = 0;
+		for (var child : children) {
+			if (isLeafDetection(child))
+				detections[indDetections++] = child;
+			else
+				others[indOthers++] = child;
+		}
+		addDetections(detections, parentIndex);
+		return new Frame(others, parentIndex);
+	}
+
+	private static boolean isLeafDetection(PathObject pathObject) {
+		return pathObject.isDetection() && pathObject.hasROI() && !pathObject.hasChildObjects();
+	}
+
+	/**
+	 * Add detections with a common parent to the detection blocks, sorting them spatially first.
+	 * @param detections
+	 * @param parentIndex
+	 * @throws IOException
+	 */
+	private void addDetections(PathObject[] detections, int parentIndex) throws IOException {
+		sortSpatially(detections);
+		// Avoid mixing many parents in the same block, unless it would result in lots of tiny blocks
+		if (detectionCount >= blockSize / 4)
+			flushDetections();
+		for (var detection : detections) {
+			var roi = detection.getROI();
+			if (detectionCount == blockSize || (detectionCount > 0 && (roi.getZ() != detectionZ || roi.getT() != detectionT)))
+				flushDetections();
+			if (detectionCount == 0) {
+				detectionZ = roi.getZ();
+				detectionT = roi.getT();
+			}
+			detectionObjects[detectionCount] = detection;
+			detectionParents[detectionCount] = parentIndex;
+			detectionCount++;
+		}
+	}
+
+	/**
+	 * Sort objects by timepoint and z-slice, and then by the position of their centroids along a Hilbert curve.
+	 * @param pathObjects
+	 */
+	private static void sortSpatially(PathObject[] pathObjects) {
+		Arrays.sort(pathObjects, Comparator.comparingInt((PathObject p) -> p.getROI().getT())
+				.thenComparingInt(p -> p.getROI().getZ()));
+		int start = 0;
+		for (int i = 1; i <= pathObjects.length; i++) {
+			if (i == pathObjects.length || !samePlane(pathObjects[start].getROI(), pathObjects[i].getROI())) {
+				sortByHilbertIndex(pathObjects, start, i);
+				start = i;
+			}
+		}
+	}
+
+	private static boolean samePlane(ROI roi1, ROI roi2) {
+		return roi1.getZ() == roi2.getZ() && roi1.getT() == roi2.getT();
+	}
+
+	private static void sortByHilbertIndex(PathObject[] pathObjects, int from, int to) {
+		int n = to - from;
+		if (n < 2)
+			return;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			var roi = pathObjects[i].getROI();
+			minX = Math.min(minX, roi.getCentroidX());
+			minY = Math.min(minY, roi.getCentroidY());
+			maxX = Math.max(maxX, roi.getCentroidX());
+			maxY = Math.max(maxY, roi.getCentroidY());
+		}
+		double range = Math.max(maxX - minX, maxY - minY);
+		int maxCell = (1 << HILBERT_ORDER) - 1;
+		double scale = range > 0 ? maxCell / range : 0;
+		// Combine the Hilbert index with the original index, so we can sort primitive values
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			var roi = pathObjects[from + i].getROI();
+			int x = clip((int)((roi.getCentroidX() - minX) * scale), maxCell);
+			int y = clip((int)((roi.getCentroidY() - minY) * scale), maxCell);
+			keys[i] = (HilbertCurve.encode(HILBERT_ORDER, x, y) << 31) | i;
+		}
+		Arrays.sort(keys);
+		var sorted = new PathObject[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = pathObjects[from + (int)(keys[i] & Integer.MAX_VALUE)];
+		System.arraycopy(sorted, 0, pathObjects, from, n);
+	}
+
+	private static int clip(int value, int max) {
+		return Math.max(0, Math.min(value, max));
+	}
+
+	private int addToBlock(PathObject pathObject, int parentIndex) throws IOException {
+		if (blockCount == blockSize)
+			flushBlock();
+		int index = blockStart + blockCount;
+		blockObjects[blockCount] = pathObject;
+		blockParents[blockCount] = parentIndex;
+		blockCount++;
+		if (pathObject instanceof TMACoreObject core)
+			coreIndices.put(core, index);
+		return index;
+	}
+
+	private void writeTMAGrid(PathObjectHierarchy hierarchy) throws IOException {
+		var grid = hierarchy.getTMAGrid();
+		if (grid == null)
+			return;
+		bytes.reset();
+		var data = new DataOutputStream(bytes);
+		var cores = grid.getTMACoreList();
+		data.writeInt(grid.getGridWidth());
+		data.writeInt(cores.size());
+		for (var core : cores)
+			data.writeInt(coreIndices.getOrDefault(core, -1));
+		data.flush();
+		out.writeByte(ColumnarDataFile.SECTION_TMA_GRID);
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+	private void writeDictionary() throws IOException {
+		bytes.reset();
+		var data = new DataOutputStream(bytes);
+		writeDictionaryEntries(data, 0, 0);
+		data.flush();
+		out.writeByte(ColumnarDataFile.SECTION_DICTIONARY);
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+	/**
+	 * Write names and classifications, starting from the specified indices.
+	 */
+	private void writeDictionaryEntries(DataOutputStream data, int firstName, int firstClass) throws IOException {
+		data.writeInt(names.size() - firstName);
+		for (var name : names.subList(firstName, names.size()))
+			ColumnarDataFile.writeString(data, name);
+		data.writeInt(pathClasses.size() - firstClass);
+		for (var pathClass : pathClasses.subList(firstClass, pathClasses.size())) {
+			ColumnarDataFile.writeString(data, pathClass.toString());
+			Integer color = pathClass.getColor();
+			data.writeBoolean(color != null);
+			data.writeInt(color == null ? 0 : color);
+		}
+	}
+
+	private void flushBlock() throws IOException {
+		int n = blockCount;
+		if (n == 0)
+			return;
+		writeObjects(ColumnarDataFile.SECTION_OBJECTS, blockObjects, blockParents, n, blockStart);
+		blockStart += n;
+		blockCount = 0;
+		Arrays.fill(blockObjects, 0, n, null);
+	}
+
+	private void flushDetections() throws IOException {
+		int n = detectionCount;
+		if (n == 0)
+			return;
+		// Detections don't need indices, since they can't be parents
+		writeObjects(ColumnarDataFile.SECTION_DETECTIONS, detectionObjects, detectionParents, n, -1);
+		detectionCount = 0;
+		Arrays.fill(detectionObjects, 0, n, null);
+	}
+
+	private void writeObjects(byte sectionType, PathObject[] objects, int[] parents, int n, int start) throws IOException {
+		bytes.reset();
+		var data = new DataOutputStream(bytes);
+
+		// Core columns
+		byte[] types = new byte[n];
+		int[] flags = new int[n];
+		int[] classes = new int[n];
+		List<ROI> rois = new ArrayList<>();
+		List<ROI> nuclei = new ArrayList<>();
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			var pathObject = objects[i];
+			types[i] = getObjectType(pathObject);
+			if (types[i] < 0)
+				throw new IOException("Unsupported object type " + pathObject.getClass().getName());
+			int f = 0;
+			if (pathObject instanceof PathROIObject && pathObject.isLocked())
+				f |= ColumnarDataFile.FLAG_LOCKED;
+			if (pathObject.getName() != null)
+				f |= ColumnarDataFile.FLAG_NAME;
+			if (pathObject.getColor() != null)
+				f |= ColumnarDataFile.FLAG_COLOR;
+			if (!Double.isNaN(pathObject.getClassProbability()))
+				f |= ColumnarDataFile.FLAG_PROBABILITY;
+			if (pathObject.hasMetadata())
+				f |= ColumnarDataFile.FLAG_METADATA;
+			var roi = pathObject.getROI();
+			if (roi != null) {
+				f |= ColumnarDataFile.FLAG_ROI;
+				rois.add(roi);
+				minX = Math.min(minX, roi.getBoundsX());
+				minY = Math.min(minY, roi.getBoundsY());
+				maxX = Math.max(maxX, roi.getBoundsX() + roi.getBoundsWidth());
+				maxY = Math.max(maxY, roi.getBoundsY() + roi.getBoundsHeight());
+			}
+			if (pathObject instanceof PathCellObject cell && cell.getNucleusROI() != null) {
+				f |= ColumnarDataFile.FLAG_NUCLEUS;
+				nuclei.add(cell.getNucleusROI());
+			}
+			if (pathObject instanceof TMACoreObject core && core.isMissing())
+				f |= ColumnarDataFile.FLAG_MISSING;
+			if (pathObject.hasChildObjects())
+				f |= ColumnarDataFile.FLAG_CHILDREN;
+			flags[i] = f;
+			classes[i] = getClassId(pathObject.getPathClass());
+		}
+
+		// Measurement columns, in the order in which names are first encountered
+		Map<Integer, MeasurementColumn> columns = new LinkedHashMap<>();
+		for (int i = 0; i < n; i++) {
+			var pathObject = objects[i];
+			if (!pathObject.hasMeasurements())
+				continue;
+			var ml = pathObject.getMeasurementList();
+			List<String> names;
+			double[] values;
+			synchronized (ml) {
+				names = ml.getNames();
+				values = ml.values();
+			}
+			int nValues = Math.min(names.size(), values.length);
+			for (int j = 0; j < nValues; j++) {
+				int id = getNameId(names.get(j));
+				columns.computeIfAbsent(id, k -> new MeasurementColumn(k, n)).set(i, values[j]);
+			}
+		}
+
+		// Dictionary entries that are new to this block
+		data.writeInt(n);
+		data.writeInt(start);
+		writeDictionaryEntries(data, nWrittenNames, nWrittenClasses);
+		nWrittenNames = names.size();
+		nWrittenClasses = pathClasses.size();
+
+		data.write(types);
+		for (int i = 0; i < n; i++)
+			data.writeInt(parents[i]);
+		for (int i = 0; i < n; i++)
+			data.writeInt(flags[i]);
+		for (int i = 0; i < n; i++)
+			data.writeInt(classes[i]);
+		for (int i = 0; i < n; i++) {
+			var id = objects[i].getID();
+			data.writeLong(id.getMostSignificantBits());
+			data.writeLong(id.getLeastSignificantBits());
+		}
+
+		// Sparse columns, only stored for objects with the corresponding flag
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_NAME) != 0)
+				ColumnarDataFile.writeString(data, objects[i].getName());
+		}
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_COLOR) != 0)
+				data.writeInt(objects[i].getColor());
+		}
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_PROBABILITY) != 0)
+				data.writeDouble(objects[i].getClassProbability());
+		}
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & ColumnarDataFile.FLAG_METADATA) != 0) {
+				var metadata = new LinkedHashMap<>(objects[i].getMetadata());
+				data.writeInt(metadata.size());
+				for (var entry : metadata.entrySet()) {
+					ColumnarDataFile.writeString(data, entry.getKey());
+					ColumnarDataFile.writeString(data, entry.getValue());
+				}
+			}
+		}
+
+		writeROIs(data, rois);
+		writeROIs(data, nuclei);
+
+		data.writeInt(columns.size());
+		for (var column : columns.values())
+			column.write(data);
+		data.flush();
+
+		writeBlock(sectionType, n, minX, minY, maxX, maxY);
+	}
+
+	private void writeBlock(byte sectionType, int n, double minX, double minY, double maxX, double maxY) throws IOException {
+		int rawLength = bytes.size();
+		byte compression = ColumnarDataFile.COMPRESSION_NONE;
+		int storedLength = rawLength;
+		if (compress) {
+			byte[] raw = bytes.toByteArray();
+			if (compressed.length < rawLength + 64)
+				compressed = new byte[rawLength + 64];
+			deflater.reset();
+			deflater.setInput(raw);
+			deflater.finish();
+			int length = 0;
+			while (!deflater.finished() && length < compressed.length)
+				length += deflater.deflate(compressed, length, compressed.length - length);
+			// Only use compression if it actually helps
+			if (deflater.finished() && length < rawLength) {
+				compression = ColumnarDataFile.COMPRESSION_DEFLATE;
+				storedLength = length;
+			}
+		}
+		// Header: compression, object count, uncompressed length & bounds (& plane for detections)
+		boolean isDetections = sectionType == ColumnarDataFile.SECTION_DETECTIONS;
+		int headerLength = isDetections ? ColumnarDataFile.DETECTIONS_HEADER_LENGTH : ColumnarDataFile.OBJECTS_HEADER_LENGTH;
+		out.writeByte(sectionType);
+		out.writeInt(headerLength + storedLength);
+		out.writeByte(compression);
+		out.writeInt(n);
+		out.writeInt(rawLength);
+		out.writeDouble(minX);
+		out.writeDouble(minY);
+		out.writeDouble(maxX);
+		out.writeDouble(maxY);
+		if (isDetections) {
+			out.writeInt(detectionZ);
+			out.writeInt(detectionT);
+		}
+		if (compression == ColumnarDataFile.COMPRESSION_DEFLATE)
+			out.write(compressed, 0, storedLength);
+		else
+			bytes.writeTo(out);
+	}
+
+	private void writeROIs(DataOutputStream data, List<ROI> rois) throws IOException {
+		int n = rois.size();
+		data.writeInt(n);
+		if (n == 0)
+			return;
+		byte[] types = new byte[n];
+		int nVertexROIs = 0;
+		int nCoords = 0;
+		for (int i = 0; i < n; i++) {
+			var roi = rois.get(i);
+			byte type = PackedROIs.getPackedType(roi);
+			types[i] = type;
+			if (PackedROIs.isVertexType(type)) {
+				nVertexROIs++;
+				nCoords += PackedROIs.getNumVertices(roi) * 2;
+			}
+		}
+		data.write(types);
+		for (var roi : rois)
+			data.writeInt(roi.getC());
+		for (var roi : rois)
+			data.writeInt(roi.getZ());
+		for (var roi : rois)
+			data.writeInt(roi.getT());
+
+		// Vertex counts, followed by all the coordinates as packed floats
+		if (coords.length < nCoords)
+			coords = new float[Math.max(nCoords, coords.length * 2)];
+		int[] counts = new int[nVertexROIs];
+		int offset = 0;
+		int ind = 0;
+		for (int i = 0; i < n; i++) {
+			if (PackedROIs.isVertexType(types[i])) {
+				int nVertices = PackedROIs.getVertices(rois.get(i), coords, offset);
+				counts[ind++] = nVertices;
+				offset += nVertices * 2;
+			}
+		}
+		for (int count : counts)
+			data.writeInt(count);
+		data.writeInt(offset);
+		for (int i = 0; i < offset; i++)
+			data.writeFloat(coords[i]);
+
+		// Parameters for simple shapes
+		double[] params = new double[4];
+		for (int i = 0; i < n; i++) {
+			if (PackedROIs.isParameterType(types[i])) {
+				PackedROIs.getParameters(rois.get(i), params, 0);
+				for (double p : params)
+					data.writeDouble(p);
+			}
+		}
+
+		// Well-known binary for everything else
+		for (int i = 0; i < n; i++) {
+			if (PackedROIs.isWKBType(types[i])) {
+				byte[] wkb = PackedROIs.getWKB(rois.get(i));
+				data.writeInt(wkb.length);
+				data.write(wkb);
+			}
+		}
+	}
+
+	private int getNameId(String name) {
+		var id = nameIds.get(name);
+		if (id == null) {
+			id = names.size();
+			nameIds.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+
+	private int getClassId(PathClass pathClass) {
+		if (pathClass == null || pathClass == PathClass.NULL_CLASS)
+			return -1;
+		var id = classIds.get(pathClass);
+		if (id == null) {
+			id = pathClasses.size();
+			classIds.put(pathClass, id);
+			pathClasses.add(pathClass);
+		}
+		return id;
+	}
+
+	/**
+	 * Values for a single measurement within a block.
+	 * Values are stored as floats whenever this is lossless.
+	 */
+	private static class MeasurementColumn {
+
+		private final int nameId;
+		private final double[] values;
+		private final long[] present;
+		private int nPresent = 0;
+		private boolean isFloat = true;
+
+		private MeasurementColumn(int nameId, int n) {
+			this.nameId = nameId;
+			this.values = new double[n];
+			this.present = new long[(n + 63) / 64];
+		}
+
+		private void set(int ind, double value) {
+			if ((present[ind >> 6] & (1L << ind)) == 0)
+				nPresent++;
+			present[ind >> 6] |= 1L << ind;
+			values[ind] = value;
+			if (isFloat && !Double.isNaN(value) && (double)(float)value != value)
+				isFloat = false;
+		}
+
+		private void write(DataOutputStream data) throws IOException {
+			data.writeInt(nameId);
+			data.writeByte(isFloat ? ColumnarDataFile.ENCODING_FLOAT : ColumnarDataFile.ENCODING_DOUBLE);
+			data.writeInt(nPresent);
+			boolean all = nPresent == values.length;
+			if (!all) {
+				for (long word : present)
+					data.writeLong(word);
+			}
+			for (int i = 0; i < values.length; i++) {
+				if (all || (present[i >> 6] & (1L << i)) != 0) {
+					if (isFloat)
+						data.writeFloat((float)values[i]);
+					else
+						data.writeDouble(values[i]);
+				}
+			}
+		}
+
+	}
+
+}
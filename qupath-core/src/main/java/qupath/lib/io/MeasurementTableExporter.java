@@ -0,0 +1,728 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.NumberFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.common.GeneralTools;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.images.ImageData;
+import qupath.lib.objects.PathDetectionObject;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjectTools;
+import qupath.lib.projects.ProjectImageEntry;
+
+/**
+ * Export the measurements of large numbers of objects from one or more images.
+ * <p>
+ * This is intended for exporting millions of detections efficiently.
+ * Images are processed in parallel, and objects are converted into batches of rows that store their
+ * values column-by-column as primitive arrays.
+ * These batches are written to temporary files as soon as they are created, so that only a limited
+ * number of images need to be held in memory at any time.
+ * Finally, the batches are written to the output either as delimited text (formatted in parallel),
+ * or in a columnar binary format.
+ * <p>
+ * The columns include the object properties (ID, type, name, classification, parent), the ROI type and centroid,
+ * and all the values in the objects' measurement lists.
+ * Unlike the measurement tables shown in the user interface, dynamic measurements (e.g. ROI shape measurements,
+ * object counts or live pixel classification) are not included.
+ * <p>
+ * The columnar format stores batches of rows column-by-column, similar to Apache Arrow's IPC format, but without
+ * requiring any additional dependencies.
+ * Numeric columns are stored as 32-bit floats if this doesn't lose any precision, or as 64-bit doubles otherwise.
+ * Files in this format use the extension {@link #EXT_COLUMNAR}.
+ *
+ * @since v0.8.0
+ */
+public class MeasurementTableExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(MeasurementTableExporter.class);
+
+	/**
+	 * Constant representing that the number of decimal places to use when exporting measurements can be chosen
+	 * automatically.
+	 * This matches the default used when exporting measurement tables from the user interface.
+	 */
+	public static final int DECIMAL_PLACES_DEFAULT = Integer.MIN_VALUE;
+
+	/**
+	 * File extension for the columnar binary format.
+	 */
+	public static final String EXT_COLUMNAR = ".qptable";
+
+	private static final ObjDoubleConsumer<String> NULL_PROGRESS_MONITOR = (message, progress) -> {};
+
+	/**
+	 * Output formats.
+	 */
+	public enum Format {
+		/**
+		 * Comma-separated values.
+		 */
+		CSV,
+		/**
+		 * Tab-separated values.
+		 */
+		TSV,
+		/**
+		 * Columnar binary format.
+		 */
+		COLUMNAR;
+
+		/**
+		 * Determine the format from a file name, based upon its extension.
+		 * Any trailing {@code .gz} is ignored.
+		 * @param name the file name
+		 * @return the format; this is {@link #TSV} if the extension isn't recognized
+		 */
+		public static Format fromFileName(String name) {
+			var lower = name.toLowerCase();
+			if (lower.endsWith(".gz"))
+				lower = lower.substring(0, lower.length()-3);
+			if (lower.endsWith(".csv"))
+				return CSV;
+			else if (lower.endsWith(EXT_COLUMNAR))
+				return COLUMNAR;
+			return TSV;
+		}
+	}
+
+	private final List<ImageSource> images = new ArrayList<>();
+
+	private Class<? extends PathObject> type = PathDetectionObject.class;
+	private Predicate<PathObject> filter;
+	private List<String> includeOnlyColumns = List.of();
+	private boolean includeImageName = true;
+	private boolean includeProjectMetadata = false;
+	private int nDecimalPlaces = DECIMAL_PLACES_DEFAULT;
+	private String separator;
+	private int batchSize = 8192;
+	private int parallelism = Math.max(1, Math.min(4, ThreadTools.getParallelism()));
+	private ObjDoubleConsumer<String> progressMonitor = NULL_PROGRESS_MONITOR;
+
+	/**
+	 * Create a new exporter.
+	 */
+	public MeasurementTableExporter() {}
+
+	/**
+	 * Add project entries to export.
+	 * Each entry is read when it is needed, and released as soon as its objects have been processed.
+	 * @param entries the entries to export
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter imageList(Collection<? extends ProjectImageEntry<?>> entries) {
+		for (var entry : entries) {
+			var metadata = new LinkedHashMap<>(entry.getMetadata());
+			if (!metadata.containsKey("tags") && !entry.getTags().isEmpty())
+				metadata.put("tags", "[" + String.join(",", entry.getTags()) + "]");
+			images.add(new ImageSource(entry.getImageName(), Map.copyOf(metadata), entry::readImageData));
+		}
+		return this;
+	}
+
+	/**
+	 * Add image data to export.
+	 * This is useful to export measurements for images that are already open.
+	 * @param imageData the image data to export
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter imageData(ImageData<?>... imageData) {
+		for (var data : imageData) {
+			images.add(new ImageSource(null, Map.of(), () -> data));
+		}
+		return this;
+	}
+
+	/**
+	 * Specify what type of object should be exported.
+	 * Default: all detections.
+	 * @param type the type of object to export
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter exportType(Class<? extends PathObject> type) {
+		this.type = type;
+		return this;
+	}
+
+	/**
+	 * Filter the objects before export (objects returning {@code true} for the predicate will be included).
+	 * @param filter a filter to use to select objects for export
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter filter(Predicate<PathObject> filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Specify the columns that will be included in the export.
+	 * The column names are case-sensitive.
+	 * If no columns are specified, all columns are included.
+	 * @param columns the columns to include
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter includeOnlyColumns(String... columns) {
+		this.includeOnlyColumns = List.of(columns);
+		return this;
+	}
+
+	/**
+	 * Specify whether to include a column containing the image name.
+	 * Default: true.
+	 * @param doInclude
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter includeImageName(boolean doInclude) {
+		this.includeImageName = doInclude;
+		return this;
+	}
+
+	/**
+	 * Optionally include columns for project entry metadata (key/value pairs).
+	 * @param doInclude true if metadata should be included in the table, false otherwise
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter includeProjectMetadata(boolean doInclude) {
+		this.includeProjectMetadata = doInclude;
+		return this;
+	}
+
+	/**
+	 * Specify how many decimal places to use for numeric values written as text.
+	 * Default value is {@link #DECIMAL_PLACES_DEFAULT}, which will adapt the number of decimal places based on
+	 * the magnitude of the number being exported.
+	 * @param decimalPlaces the number of decimal places to use
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter decimalPlaces(int decimalPlaces) {
+		this.nDecimalPlaces = decimalPlaces;
+		return this;
+	}
+
+	/**
+	 * Specify the separator used between values when writing text.
+	 * If this isn't set, the separator is determined from the format.
+	 * @param separator the column separator to use
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter separator(String separator) {
+		this.separator = separator;
+		return this;
+	}
+
+	/**
+	 * Specify the maximum number of rows in each batch.
+	 * Larger batches can be processed more efficiently, but require more memory.
+	 * @param batchSize the number of rows
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter batchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Specify the number of threads to use.
+	 * This is also the maximum number of images that will be in memory at the same time.
+	 * @param nThreads the number of threads
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter parallelism(int nThreads) {
+		this.parallelism = Math.max(1, nThreads);
+		return this;
+	}
+
+	/**
+	 * Set a progress monitor to be notified during export.
+	 * This is a consumer that takes a message and a value between 0.0 (at the start) and 1.0 (export complete).
+	 * @param monitor the optional progress monitor
+	 * @return this exporter
+	 */
+	public MeasurementTableExporter progressMonitor(ObjDoubleConsumer<String> monitor) {
+		this.progressMonitor = monitor == null ? NULL_PROGRESS_MONITOR : monitor;
+		return this;
+	}
+
+	/**
+	 * Export measurements to a file.
+	 * The format is determined from the file extension (see {@link Format#fromFileName(String)}),
+	 * and the output is compressed with GZIP if the extension ends with {@code .gz}.
+	 * @param path the output file
+	 * @throws IOException if the export fails
+	 * @throws InterruptedException if the export is interrupted
+	 */
+	public void exportMeasurements(Path path) throws IOException, InterruptedException {
+		var name = path.getFileName().toString();
+		try (var stream = Files.newOutputStream(path)) {
+			if (name.toLowerCase().endsWith(".gz")) {
+				try (var gzip = new GZIPOutputStream(stream)) {
+					exportMeasurements(gzip, Format.fromFileName(name));
+				}
+			} else {
+				exportMeasurements(stream, Format.fromFileName(name));
+			}
+		}
+	}
+
+	/**
+	 * Export measurements to an output stream.
+	 * The stream is flushed, but not closed.
+	 * @param stream the output stream
+	 * @param format the output format
+	 * @throws IOException if the export fails
+	 * @throws InterruptedException if the export is interrupted
+	 */
+	public void exportMeasurements(OutputStream stream, Format format) throws IOException, InterruptedException {
+		if (images.isEmpty()) {
+			logger.warn("No images selected for export!");
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		var columnPredicate = createColumnPredicate();
+		Set<Path> tempFiles = ConcurrentHashMap.newKeySet();
+		var pool = Executors.newFixedThreadPool(parallelism, ThreadTools.createThreadFactory("measurement-export-", true));
+		List<Future<SpillFile>> futures = new ArrayList<>();
+		try {
+			for (var image : images) {
+				futures.add(pool.submit(() -> writeSpillFile(image, columnPredicate, tempFiles)));
+			}
+			if (format == Format.COLUMNAR)
+				writeColumnar(stream, futures);
+			else
+				writeText(stream, futures, separator != null ? separator : format == Format.CSV ? "," : "\t", pool);
+		} finally {
+			pool.shutdownNow();
+			for (var path : tempFiles)
+				Files.deleteIfExists(path);
+			progressMonitor.accept("Export complete", 1.0);
+		}
+		logger.info("Exported measurements for {} images in {} ms", images.size(), System.currentTimeMillis() - startTime);
+	}
+
+	private Predicate<String> createColumnPredicate() {
+		if (includeOnlyColumns.isEmpty())
+			return s -> true;
+		var set = Set.copyOf(includeOnlyColumns);
+		return set::contains;
+	}
+
+	private void writeColumnar(OutputStream stream, List<Future<SpillFile>> futures) throws IOException, InterruptedException {
+		var output = new DataOutputStream(new BufferedOutputStream(stream));
+		MeasurementTableFile.writeHeader(output);
+		int i = 0;
+		for (var future : futures) {
+			var spill = getResult(future);
+			progressMonitor.accept(spill.name(), (double)i++ / futures.size());
+			Files.copy(spill.path(), output);
+			Files.deleteIfExists(spill.path());
+		}
+		output.writeByte(MeasurementTableFile.SECTION_END);
+		output.flush();
+	}
+
+	private void writeText(OutputStream stream, List<Future<SpillFile>> futures, String separator, ExecutorService pool) throws IOException, InterruptedException {
+		// We need all the column names before we can write anything
+		List<SpillFile> spills = new ArrayList<>();
+		Set<String> names = new LinkedHashSet<>();
+		long nBatches = 0;
+		for (var future : futures) {
+			var spill = getResult(future);
+			progressMonitor.accept(spill.name(), 0.5 * spills.size() / futures.size());
+			spills.add(spill);
+			names.addAll(spill.columns());
+			nBatches += spill.nBatches();
+		}
+		var columns = List.copyOf(names);
+		var writer = new OutputStreamWriter(new BufferedOutputStream(stream), StandardCharsets.UTF_8);
+		var formatter = new TextFormatter(columns, separator, nDecimalPlaces);
+		writer.write(formatter.formatHeader());
+
+		// Format batches in parallel, but write them in order
+		var pending = new ArrayDeque<Future<String>>();
+		long nWritten = 0;
+		for (var spill : spills) {
+			try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill.path())))) {
+				for (int b = 0; b < spill.nBatches(); b++) {
+					if (input.readByte() != MeasurementTableFile.SECTION_BATCH)
+						throw new IOException("Invalid batch in " + spill.path());
+					var batch = MeasurementTableFile.readBatch(input);
+					pending.add(pool.submit(() -> formatter.formatRows(batch)));
+					if (pending.size() >= parallelism * 2) {
+						writer.write(getResult(pending.poll()));
+						progressMonitor.accept(spill.name(), 0.5 + 0.5 * (++nWritten) / nBatches);
+					}
+				}
+			}
+			Files.deleteIfExists(spill.path());
+		}
+		while (!pending.isEmpty())
+			writer.write(getResult(pending.poll()));
+		writer.flush();
+	}
+
+	private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioe)
+				throw ioe;
+			throw new IOException("Error exporting measurements", e.getCause());
+		}
+	}
+
+	/**
+	 * Read an image and write the values for all its objects to a temporary file, in batches.
+	 */
+	private SpillFile writeSpillFile(ImageSource image, Predicate<String> columnPredicate, Set<Path> tempFiles) throws IOException, InterruptedException {
+		var imageData = image.supplier().get();
+		if (Thread.interrupted())
+			throw new InterruptedException("Export interrupted!");
+		var name = image.name() == null ? imageData.getServerMetadata().getName() : image.name();
+		Collection<PathObject> objects = imageData.getHierarchy().getObjects(null, type);
+		if (filter != null)
+			objects = objects.stream().filter(filter).toList();
+		var extractor = new BatchExtractor(imageData, includeImageName ? name : null,
+				includeProjectMetadata ? image.metadata() : Map.of(), columnPredicate);
+
+		var path = Files.createTempFile("qupath-measurements-", EXT_COLUMNAR);
+		tempFiles.add(path);
+		Set<String> columns = new LinkedHashSet<>();
+		int nBatches = 0;
+		try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			var list = objects instanceof List<PathObject> l ? l : new ArrayList<>(objects);
+			for (int i = 0; i < list.size(); i += batchSize) {
+				if (Thread.interrupted())
+					throw new InterruptedException("Export interrupted!");
+				var batch = extractor.createBatch(list.subList(i, Math.min(list.size(), i + batchSize)));
+				MeasurementTableFile.writeBatch(output, batch);
+				columns.addAll(batch.getColumnNames());
+				nBatches++;
+			}
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			Files.deleteIfExists(path);
+			throw e;
+		}
+		logger.debug("Processed {} objects for {}", objects.size(), name);
+		return new SpillFile(name, path, List.copyOf(columns), nBatches);
+	}
+
+
+	@FunctionalInterface
+	private interface ImageDataSupplier {
+		ImageData<?> get() throws IOException;
+	}
+
+	private record ImageSource(String name, Map<String, String> metadata, ImageDataSupplier supplier) {}
+
+	private record SpillFile(String name, Path path, List<String> columns, int nBatches) {}
+
+
+	/**
+	 * Extract the values for objects from a single image as batches.
+	 */
+	private static class BatchExtractor {
+
+		private final String imageName;
+		private final Map<String, String> metadata;
+		private final Predicate<String> columnPredicate;
+		private final String centroidXName;
+		private final String centroidYName;
+		private final double pixelWidth;
+		private final double pixelHeight;
+
+		private BatchExtractor(ImageData<?> imageData, String imageName, Map<String, String> metadata, Predicate<String> columnPredicate) {
+			this.imageName = imageName;
+			this.metadata = metadata;
+			this.columnPredicate = columnPredicate;
+			var cal = imageData.getServerMetadata().getPixelCalibration();
+			if (cal.hasPixelSizeMicrons()) {
+				centroidXName = "Centroid X " + GeneralTools.micrometerSymbol();
+				centroidYName = "Centroid Y " + GeneralTools.micrometerSymbol();
+				pixelWidth = cal.getPixelWidthMicrons();
+				pixelHeight = cal.getPixelHeightMicrons();
+			} else {
+				centroidXName = "Centroid X px";
+				centroidYName = "Centroid Y px";
+				pixelWidth = 1.0;
+				pixelHeight = 1.0;
+			}
+		}
+
+		private MeasurementTableFile.Batch createBatch(List<PathObject> pathObjects) {
+			int n = pathObjects.size();
+			var batch = new MeasurementTableFile.Batch(n);
+			if (imageName != null)
+				addConstant(batch, "Image", imageName);
+			addStrings(batch, "Object ID", pathObjects, p -> p.getID() == null ? null : p.getID().toString());
+			addStrings(batch, "Object type", pathObjects,
+					p -> p.isRootObject() ? p.getDisplayedName() : PathObjectTools.getSuitableName(p.getClass(), false));
+			addStrings(batch, "Name", pathObjects, PathObject::getName);
+			addStrings(batch, "Classification", pathObjects, p -> p.getPathClass() == null ? null : p.getPathClass().toString());
+			addStrings(batch, "Parent", pathObjects, p -> p.getParent() == null ? null : p.getParent().getDisplayedName());
+			addStrings(batch, "ROI", pathObjects, p -> p.hasROI() ? p.getROI().getRoiName() : null);
+			addCentroids(batch, pathObjects);
+			addMeasurements(batch, pathObjects);
+			for (var entry : metadata.entrySet()) {
+				if (batch.getColumn(entry.getKey()) == null)
+					addConstant(batch, entry.getKey(), entry.getValue());
+			}
+			return batch;
+		}
+
+		private void addConstant(MeasurementTableFile.Batch batch, String name, String value) {
+			if (!columnPredicate.test(name))
+				return;
+			var values = new String[batch.getRowCount()];
+			Arrays.fill(values, value);
+			batch.addStringColumn(name, values);
+		}
+
+		private void addStrings(MeasurementTableFile.Batch batch, String name, List<PathObject> pathObjects,
+				Function<PathObject, String> fun) {
+			if (!columnPredicate.test(name))
+				return;
+			var values = new String[pathObjects.size()];
+			int i = 0;
+			for (var pathObject : pathObjects)
+				values[i++] = fun.apply(pathObject);
+			batch.addStringColumn(name, values);
+		}
+
+		private void addCentroids(MeasurementTableFile.Batch batch, List<PathObject> pathObjects) {
+			boolean doX = columnPredicate.test(centroidXName);
+			boolean doY = columnPredicate.test(centroidYName);
+			if (!doX && !doY)
+				return;
+			int n = pathObjects.size();
+			double[] x = new double[n];
+			double[] y = new double[n];
+			var present = new BitSet(n);
+			for (int i = 0; i < n; i++) {
+				var roi = pathObjects.get(i).getROI();
+				if (roi != null) {
+					x[i] = roi.getCentroidX() * pixelWidth;
+					y[i] = roi.getCentroidY() * pixelHeight;
+					present.set(i);
+				}
+			}
+			if (doX)
+				batch.addNumericColumn(centroidXName, x, present);
+			if (doY)
+				batch.addNumericColumn(centroidYName, y, present);
+		}
+
+		private void addMeasurements(MeasurementTableFile.Batch batch, List<PathObject> pathObjects) {
+			int n = pathObjects.size();
+			// Use null values for names that should be skipped
+			Map<String, NumericColumn> columns = new LinkedHashMap<>();
+			for (int i = 0; i < n; i++) {
+				var pathObject = pathObjects.get(i);
+				if (!pathObject.hasMeasurements())
+					continue;
+				var ml = pathObject.getMeasurementList();
+				var names = ml.getNames();
+				var values = ml.values();
+				int nValues = Math.min(names.size(), values.length);
+				for (int j = 0; j < nValues; j++) {
+					var name = names.get(j);
+					var column = columns.get(name);
+					if (column == null) {
+						if (columns.containsKey(name))
+							continue;
+						if (!columnPredicate.test(name) || batch.getColumn(name) != null) {
+							columns.put(name, null);
+							continue;
+						}
+						column = new NumericColumn(new double[n], new BitSet(n));
+						columns.put(name, column);
+					}
+					column.values[i] = values[j];
+					column.present.set(i);
+				}
+			}
+			for (var entry : columns.entrySet()) {
+				var column = entry.getValue();
+				if (column != null)
+					batch.addNumericColumn(entry.getKey(), column.values, column.present);
+			}
+		}
+
+		private record NumericColumn(double[] values, BitSet present) {}
+
+	}
+
+
+	/**
+	 * Format batches as delimited text.
+	 * This is thread-safe, since a new number formatter is created for each batch.
+	 */
+	private static class TextFormatter {
+
+		private final List<String> columns;
+		private final String separator;
+		private final boolean isTabDelimited;
+		private final int nDecimalPlaces;
+		private final String lineSeparator = System.lineSeparator();
+
+		private TextFormatter(List<String> columns, String separator, int nDecimalPlaces) {
+			this.columns = columns;
+			this.separator = separator;
+			this.isTabDelimited = "\t".equals(separator);
+			this.nDecimalPlaces = nDecimalPlaces;
+		}
+
+		private String formatHeader() {
+			var sb = new StringBuilder();
+			for (int i = 0; i < columns.size(); i++) {
+				if (i > 0)
+					sb.append(separator);
+				sb.append(cleanValue(columns.get(i)));
+			}
+			return sb.append(lineSeparator).toString();
+		}
+
+		private String formatRows(MeasurementTableFile.Batch batch) {
+			var numberFormatter = new NumberFormatter(nDecimalPlaces);
+			var batchColumns = new MeasurementTableFile.Column[columns.size()];
+			for (int c = 0; c < batchColumns.length; c++)
+				batchColumns[c] = batch.getColumn(columns.get(c));
+			var sb = new StringBuilder(batch.getRowCount() * batchColumns.length * 8);
+			for (int r = 0; r < batch.getRowCount(); r++) {
+				for (int c = 0; c < batchColumns.length; c++) {
+					if (c > 0)
+						sb.append(separator);
+					var column = batchColumns[c];
+					if (column == null || !column.hasValue(r))
+						continue;
+					if (column.isNumeric())
+						sb.append(numberFormatter.format(column.getDouble(r)));
+					else
+						sb.append(cleanValue(column.getString(r)));
+				}
+				sb.append(lineSeparator);
+			}
+			return sb.toString();
+		}
+
+		private String cleanValue(String val) {
+			if (val == null || val.isEmpty())
+				return "";
+			if (isTabDelimited) {
+				// For tab-delimited, we want to escape tabs - and otherwise make no changes
+				if (val.contains("\t"))
+					val = val.replace("\t", "\\t");
+			} else {
+				// Assume CSV with a non-tab delimiter
+				if (val.contains("\"") || val.contains(separator))
+					val = "\"" + val.replace("\"", "\"\"") + "\"";
+			}
+			return val;
+		}
+
+	}
+
+
+	/**
+	 * Format numbers in the same way as measurement tables, but without synchronization.
+	 * Instances should not be shared between threads.
+	 */
+	private static class NumberFormatter {
+
+		private final int nDecimalPlaces;
+		private final NumberFormat format;
+
+		private NumberFormatter(int nDecimalPlaces) {
+			this.nDecimalPlaces = nDecimalPlaces;
+			this.format = NumberFormat.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+			format.setGroupingUsed(false);
+			if (nDecimalPlaces < 0 && nDecimalPlaces != DECIMAL_PLACES_DEFAULT) {
+				format.setMaximumFractionDigits(-nDecimalPlaces);
+			} else if (nDecimalPlaces > 0 && nDecimalPlaces != Integer.MAX_VALUE) {
+				format.setMinimumFractionDigits(nDecimalPlaces);
+				format.setMaximumFractionDigits(nDecimalPlaces);
+			}
+		}
+
+		private String format(double val) {
+			if (Double.isNaN(val))
+				return "NaN";
+			if (nDecimalPlaces == 0)
+				return Long.toString(Math.round(val));
+			if (nDecimalPlaces == Integer.MAX_VALUE)
+				return Double.toString(val);
+			if (nDecimalPlaces == DECIMAL_PLACES_DEFAULT) {
+				// Use the number of decimal places adapted to the magnitude of the value
+				double absVal = Math.abs(val);
+				int dp;
+				if (absVal > 1000)
+					dp = 1;
+				else if (absVal > 10)
+					dp = 2;
+				else if (absVal > 1)
+					dp = 3;
+				else
+					dp = 4;
+				format.setMaximumFractionDigits(dp);
+			}
+			return format.format(val);
+		}
+
+	}
+
+}
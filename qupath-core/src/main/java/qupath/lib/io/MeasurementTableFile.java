@@ -0,0 +1,336 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constants and helper methods for the columnar measurement table format written by {@link MeasurementTableExporter}.
+ * <p>
+ * Files start with {@link #MAGIC} and the version number, followed by a sequence of sections.
+ * Each section starts with a one-byte type; the last section is {@link #SECTION_END}.
+ * <p>
+ * A {@link #SECTION_BATCH} contains a batch of rows, stored column-by-column.
+ * It starts with the number of rows and columns, and then for each column:
+ * <ul>
+ *     <li>the column name (see {@link ColumnarDataFile#writeString(DataOutput, String)})</li>
+ *     <li>the column type: {@link #TYPE_STRING}, {@link #TYPE_FLOAT} or {@link #TYPE_DOUBLE}</li>
+ *     <li>the number of bytes of column data that follow, so that columns can be skipped</li>
+ *     <li>the column data</li>
+ * </ul>
+ * String columns are dictionary-encoded: the data contains the number of unique strings, the strings themselves
+ * (which may be null), and then one int index into the dictionary per row.
+ * <p>
+ * Numeric columns start with a byte that is 1 if a validity bitmap follows, or 0 if every row has a value.
+ * The bitmap uses one bit per row, with the least significant bit first (as in Apache Arrow);
+ * a bit is set if the row has a value.
+ * This is followed by one float or double per row, with NaN used for rows without a value.
+ * <p>
+ * Different batches may contain different columns, so that objects with different measurements
+ * can be written without first determining all the column names.
+ * All values are big-endian, as written by {@link DataOutput}.
+ */
+final class MeasurementTableFile {
+
+	/**
+	 * Bytes at the start of every columnar measurement table.
+	 */
+	static final byte[] MAGIC = {'Q', 'P', 'T', 'A', 'B', 'L', 'E'};
+
+	/**
+	 * Current version of the format.
+	 */
+	static final int VERSION = 1;
+
+	static final byte SECTION_END = 0;
+	static final byte SECTION_BATCH = 1;
+
+	static final byte TYPE_STRING = 1;
+	static final byte TYPE_FLOAT = 2;
+	static final byte TYPE_DOUBLE = 3;
+
+	private MeasurementTableFile() {}
+
+	/**
+	 * Write the magic bytes and version.
+	 * @param output
+	 * @throws IOException
+	 */
+	static void writeHeader(DataOutput output) throws IOException {
+		output.write(MAGIC);
+		output.writeInt(VERSION);
+	}
+
+	/**
+	 * Read the magic bytes and version.
+	 * @param input
+	 * @return the format version
+	 * @throws IOException if the input is not a measurement table, or has an unsupported version
+	 */
+	static int readHeader(DataInput input) throws IOException {
+		byte[] bytes = new byte[MAGIC.length];
+		input.readFully(bytes);
+		if (!Arrays.equals(bytes, MAGIC))
+			throw new IOException("Input does not appear to be a QuPath measurement table");
+		int version = input.readInt();
+		if (version > VERSION)
+			throw new IOException("Measurement table version " + version + " is not supported (maximum supported version is " + VERSION + ")");
+		return version;
+	}
+
+	/**
+	 * Write a batch section, including the section type.
+	 * @param output
+	 * @param batch
+	 * @throws IOException
+	 */
+	static void writeBatch(DataOutput output, Batch batch) throws IOException {
+		output.writeByte(SECTION_BATCH);
+		output.writeInt(batch.nRows);
+		output.writeInt(batch.columns.size());
+		var bytes = new ByteArrayOutputStream();
+		var columnOutput = new DataOutputStream(bytes);
+		for (var column : batch.columns) {
+			bytes.reset();
+			byte type = column.writeData(columnOutput, batch.nRows);
+			columnOutput.flush();
+			ColumnarDataFile.writeString(output, column.name);
+			output.writeByte(type);
+			output.writeInt(bytes.size());
+			output.write(bytes.toByteArray());
+		}
+	}
+
+	/**
+	 * Read the next section, which should be either a batch or the end of the table.
+	 * @param input
+	 * @return the batch, or null if the end of the table has been reached
+	 * @throws IOException
+	 */
+	static Batch readSection(DataInput input) throws IOException {
+		byte section = input.readByte();
+		return switch (section) {
+			case SECTION_END -> null;
+			case SECTION_BATCH -> readBatch(input);
+			default -> throw new IOException("Unknown section type " + section);
+		};
+	}
+
+	/**
+	 * Read a batch, after its section type has been read.
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	static Batch readBatch(DataInput input) throws IOException {
+		int nRows = input.readInt();
+		int nColumns = input.readInt();
+		var batch = new Batch(nRows);
+		for (int c = 0; c < nColumns; c++) {
+			String name = ColumnarDataFile.readString(input);
+			byte type = input.readByte();
+			input.readInt(); // Length, only needed to skip columns
+			switch (type) {
+				case TYPE_STRING -> {
+					String[] dictionary = new String[input.readInt()];
+					for (int i = 0; i < dictionary.length; i++)
+						dictionary[i] = ColumnarDataFile.readString(input);
+					String[] values = new String[nRows];
+					for (int i = 0; i < nRows; i++)
+						values[i] = dictionary[input.readInt()];
+					batch.addStringColumn(name, values);
+				}
+				case TYPE_FLOAT, TYPE_DOUBLE -> {
+					BitSet present = null;
+					if (input.readBoolean()) {
+						byte[] bitmap = new byte[(nRows + 7) / 8];
+						input.readFully(bitmap);
+						present = BitSet.valueOf(bitmap);
+					}
+					double[] values = new double[nRows];
+					for (int i = 0; i < nRows; i++)
+						values[i] = type == TYPE_FLOAT ? input.readFloat() : input.readDouble();
+					batch.addNumericColumn(name, values, present);
+				}
+				default -> throw new IOException("Unknown column type " + type);
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Read all the batches from a table.
+	 * This is mostly useful for tests, since it requires all the values to be in memory.
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	static List<Batch> readTable(DataInputStream input) throws IOException {
+		readHeader(input);
+		List<Batch> batches = new ArrayList<>();
+		Batch batch;
+		while ((batch = readSection(input)) != null)
+			batches.add(batch);
+		return batches;
+	}
+
+
+	/**
+	 * A batch of rows, stored column-by-column.
+	 */
+	static final class Batch {
+
+		private final int nRows;
+		private final List<Column> columns = new ArrayList<>();
+		private final Map<String, Column> columnMap = new HashMap<>();
+
+		Batch(int nRows) {
+			this.nRows = nRows;
+		}
+
+		int getRowCount() {
+			return nRows;
+		}
+
+		List<String> getColumnNames() {
+			return columns.stream().map(c -> c.name).toList();
+		}
+
+		Column getColumn(String name) {
+			return columnMap.get(name);
+		}
+
+		void addStringColumn(String name, String[] values) {
+			addColumn(new Column(name, values, null, null));
+		}
+
+		/**
+		 * Add a numeric column.
+		 * @param name
+		 * @param values
+		 * @param present rows that have a value, or null if all rows have a value
+		 */
+		void addNumericColumn(String name, double[] values, BitSet present) {
+			addColumn(new Column(name, null, values, present));
+		}
+
+		private void addColumn(Column column) {
+			if (columnMap.putIfAbsent(column.name, column) != null)
+				throw new IllegalArgumentException("Duplicate column " + column.name);
+			columns.add(column);
+		}
+
+	}
+
+
+	/**
+	 * A single column of a batch, containing either strings or numbers.
+	 */
+	static final class Column {
+
+		private final String name;
+		private final String[] strings;
+		private final double[] values;
+		private final BitSet present;
+
+		private Column(String name, String[] strings, double[] values, BitSet present) {
+			this.name = name;
+			this.strings = strings;
+			this.values = values;
+			this.present = present;
+		}
+
+		boolean isNumeric() {
+			return values != null;
+		}
+
+		/**
+		 * Query whether a row has a value.
+		 * For string columns, this returns false for null values.
+		 * @param row
+		 * @return
+		 */
+		boolean hasValue(int row) {
+			if (strings != null)
+				return strings[row] != null;
+			return present == null || present.get(row);
+		}
+
+		String getString(int row) {
+			return strings == null ? null : strings[row];
+		}
+
+		double getDouble(int row) {
+			return values == null || !hasValue(row) ? Double.NaN : values[row];
+		}
+
+		private byte writeData(DataOutput output, int nRows) throws IOException {
+			if (strings != null) {
+				Map<String, Integer> dictionary = new LinkedHashMap<>();
+				for (var s : strings)
+					dictionary.putIfAbsent(s, dictionary.size());
+				output.writeInt(dictionary.size());
+				for (var s : dictionary.keySet())
+					ColumnarDataFile.writeString(output, s);
+				for (var s : strings)
+					output.writeInt(dictionary.get(s));
+				return TYPE_STRING;
+			}
+			boolean isFloat = true;
+			for (int i = 0; i < nRows; i++) {
+				double val = values[i];
+				if (hasValue(i) && (float)val != val && !Double.isNaN(val)) {
+					isFloat = false;
+					break;
+				}
+			}
+			boolean allPresent = present == null || present.cardinality() == nRows;
+			output.writeBoolean(!allPresent);
+			if (!allPresent) {
+				byte[] bitmap = Arrays.copyOf(present.toByteArray(), (nRows + 7) / 8);
+				output.write(bitmap);
+			}
+			for (int i = 0; i < nRows; i++) {
+				double val = hasValue(i) ? values[i] : Double.NaN;
+				if (isFloat)
+					output.writeFloat((float)val);
+				else
+					output.writeDouble(val);
+			}
+			return isFloat ? TYPE_FLOAT : TYPE_DOUBLE;
+		}
+
+	}
+
+}
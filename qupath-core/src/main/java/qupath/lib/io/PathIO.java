@@ -44,6 +44,10 @@ import qupath.lib.plugins.workflow.Workflow;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
@@ -61,11 +65,13 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.net.URI;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -98,8 +104,15 @@ public class PathIO {
 	 * Version 2 switched to integers, and includes Locale information
 	 * Version 3 stores JSON instead of a server path
 	 * Version 4 stores PathObject UUIDs as a separate field
+	 * Version 5 stores objects in columnar blocks, rather than using Java serialization
 	 */
-	private static final int DATA_FILE_VERSION = 3;
+	private static final int DATA_FILE_VERSION = ColumnarDataFile.VERSION;
+
+	/**
+	 * Version written in the header of data files that use Java serialization.
+	 * This is kept at 3 for compatibility, since the (optional) v4 changes only affect how objects are serialized.
+	 */
+	private static final int LEGACY_DATA_FILE_VERSION = 3;
 	
 	/**
 	 * Input filter for deserialization that is limited to QuPath-related classes.
@@ -108,7 +121,11 @@ public class PathIO {
 	
 	private PathIO() {}
 	
-	private static int requestedDataFileVersion = DATA_FILE_VERSION - 1;
+	private static int requestedDataFileVersion = DATA_FILE_VERSION;
+
+	private static boolean compressDataFileBlocks = true;
+
+	private static int maxResidentObjectBlocks = 256;
 	
 	/**
 	 * Get the requested version for .qpdata files.
@@ -139,7 +156,10 @@ public class PathIO {
 	 * <li><b>2</b> Switched versions to use integers, added Locale information (used in QuPath v0.1.2)</li>
 	 * <li><b>3</b> Switched {@link ImageServer} paths to be a JSON representation rather than a single path/URL</li>
 	 * <li><b>4</b> Added support for UUID to be stored in each {@link PathObject} (introduced QuPath v0.4.0)</li>
+	 * <li><b>5</b> Switched to a columnar format, where objects are written in compact blocks rather than using Java serialization (introduced QuPath v0.8.0)</li>
 	 * </ul>
+	 * Versions 2-4 use Java serialization for the entire file, and can be read by earlier QuPath versions.
+	 * Version 5 files can only be read by QuPath v0.8.0 and later.
 	 * 
 	 * @param version integer representation of the requested version
 	 * @see #getRequestedDataFileVersion()
@@ -152,6 +172,55 @@ public class PathIO {
 			throw new IllegalArgumentException("Requested data file version must be between 2 and " + DATA_FILE_VERSION);
 		requestedDataFileVersion = version;
 	}
+
+	/**
+	 * Request whether object blocks should be compressed when writing columnar data files.
+	 * <p>
+	 * Compression usually reduces file sizes substantially, at the cost of some additional processing
+	 * when reading and writing. It has no effect for data file versions earlier than 5.
+	 * @param compress true if blocks should be compressed, false otherwise
+	 * @see #getDataFileBlockCompression()
+	 * @since v0.8.0
+	 */
+	public static void setDataFileBlockCompression(boolean compress) {
+		compressDataFileBlocks = compress;
+	}
+
+	/**
+	 * Query whether object blocks are compressed when writing columnar data files.
+	 * @return
+	 * @see #setDataFileBlockCompression(boolean)
+	 * @since v0.8.0
+	 */
+	public static boolean getDataFileBlockCompression() {
+		return compressDataFileBlocks;
+	}
+
+	/**
+	 * Set the maximum number of detection blocks that should normally be kept in memory for each hierarchy,
+	 * when data files are read with lazy loading.
+	 * Each block contains up to 8192 detections.
+	 * @param maxBlocks the maximum number of blocks
+	 * @throws IllegalArgumentException if the maximum number of blocks is less than 1
+	 * @see #readImageData(Path, ServerBuilder, boolean)
+	 * @since v0.8.0
+	 */
+	public static void setMaxResidentObjectBlocks(int maxBlocks) throws IllegalArgumentException {
+		if (maxBlocks < 1)
+			throw new IllegalArgumentException("Maximum number of blocks must be at least 1");
+		maxResidentObjectBlocks = maxBlocks;
+	}
+
+	/**
+	 * Get the maximum number of detection blocks that should normally be kept in memory for each hierarchy,
+	 * when data files are read with lazy loading.
+	 * @return
+	 * @see #setMaxResidentObjectBlocks(int)
+	 * @since v0.8.0
+	 */
+	public static int getMaxResidentObjectBlocks() {
+		return maxResidentObjectBlocks;
+	}
 	
 	
 	/**
@@ -169,8 +238,11 @@ public class PathIO {
 	@Deprecated
 	public static String readSerializedServerPath(final File file) throws FileNotFoundException, IOException, ClassNotFoundException {
 		String serverPath = null;
-		try (FileInputStream fileIn = new FileInputStream(file)) {
-			ObjectInputStream inStream = createObjectInputStream(new BufferedInputStream(fileIn));
+		try (var fileIn = new BufferedInputStream(new FileInputStream(file))) {
+			// Columnar data files never stored a server path
+			if (ColumnarDataFile.isColumnarDataFile(fileIn))
+				return null;
+			ObjectInputStream inStream = createObjectInputStream(fileIn);
 			
 			// Check the first line, then read the server path if it is valid
 			String firstLine = inStream.readUTF();
@@ -191,8 +263,13 @@ public class PathIO {
 	 * @since 0.3
 	 */
 	public static <T> ServerBuilder<T> extractServerBuilder(Path file) throws IOException {
-		try (InputStream fileIn = Files.newInputStream(file)) {
-			ObjectInputStream inStream = createObjectInputStream(new BufferedInputStream(fileIn));
+		try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(file))) {
+			if (ColumnarDataFile.isColumnarDataFile(fileIn)) {
+				var in = new DataInputStream(fileIn);
+				ColumnarDataFile.readHeader(in);
+				return extractServerBuilder(ColumnarDataFile.readString(in), true);
+			}
+			ObjectInputStream inStream = createObjectInputStream(fileIn);
 			
 			// Check the first line, then read the server path if it is valid
 			String firstLine = inStream.readUTF();
@@ -243,7 +320,7 @@ public class PathIO {
 		} else {
 			String json = serverString;
 			var wrapper = GsonTools.getInstance().fromJson(json, ServerBuilderWrapper.class);
-			if (warnIfInvalid && !Objects.equals(wrapper.dataVersion, DATA_FILE_VERSION)) {
+			if (warnIfInvalid && wrapper.dataVersion > DATA_FILE_VERSION) {
 				logger.warn("Attempting to read data file version {} written by QuPath {} (expected data file version {})", wrapper.dataVersion, wrapper.qupathVersion, DATA_FILE_VERSION);
 			}
 			return (ServerBuilder<T>)wrapper.server;
@@ -265,9 +342,9 @@ public class PathIO {
 		private ServerBuilder<T> server;
 		private String id;
 		
-		static <T> ServerBuilderWrapper<T>  create(ServerBuilder<T> builder, String id) {
+		static <T> ServerBuilderWrapper<T>  create(ServerBuilder<T> builder, String id, int dataVersion) {
 			var wrapper = new ServerBuilderWrapper<T>();
-			wrapper.dataVersion = DATA_FILE_VERSION;
+			wrapper.dataVersion = dataVersion;
 			wrapper.qupathVersion = GeneralTools.getVersion();
 			wrapper.server = builder;
 			wrapper.id = id;
@@ -278,8 +355,13 @@ public class PathIO {
 
 
 	private static <T> ImageData<T> readImageDataSerialized(final Path path, ImageServer<T> server) throws IOException {
+		return readImageDataSerialized(path, server, null);
+	}
+
+	private static <T> ImageData<T> readImageDataSerialized(final Path path, ImageServer<T> server,
+															ServerBuilder<T> serverBuilder) throws IOException {
 		try (var stream = new BufferedInputStream(Files.newInputStream(path))) {
-			var imageData = readImageDataSerialized(stream, server);
+			var imageData = readImageDataSerialized(stream, server, serverBuilder);
 			// Set the last saved path (actually the path from which this was opened)
 			imageData.setLastSavedPath(path.toAbsolutePath().toString(), true);
 			return imageData;
@@ -297,10 +379,14 @@ public class PathIO {
 															ServerBuilder<T> requestedServerBuilder) throws IOException {
 		
 		long startTime = System.currentTimeMillis();
+		var bufferedStream = new BufferedInputStream(stream);
+		if (ColumnarDataFile.isColumnarDataFile(bufferedStream))
+			return readImageDataColumnar(bufferedStream, server, requestedServerBuilder);
+
 		Locale locale = Locale.getDefault(Category.FORMAT);
 		boolean localeChanged = false;
 
-		try (ObjectInputStream inStream = createObjectInputStream(new BufferedInputStream(stream))) {
+		try (ObjectInputStream inStream = createObjectInputStream(bufferedStream)) {
 			
 			ServerBuilder<T> serverBuilder = requestedServerBuilder;
 			PathObjectHierarchy hierarchy = null;
@@ -376,26 +462,7 @@ public class PathIO {
 				}
 			}
 
-			// Create a new ImageData
-			ImageData<T> imageData;
-			if (server != null)
-				imageData = new ImageData<>(server, hierarchy, imageType);
-			else if (serverBuilder != null)
-				imageData = new ImageData<>(serverBuilder, hierarchy, imageType);
-			else
-				throw new IOException("Can't read ImageData without a server or server builder");
-
-			// Set the other properties we have just read
-			if (workflow != null) {
-				imageData.getHistoryWorkflow().addSteps(workflow.getSteps());
-			}
-			if (stains != null) {
-				imageData.setColorDeconvolutionStains(stains);
-			}
-			if (propertyMap != null) {
-				for (Entry<String, Object> entry : propertyMap.entrySet())
-					imageData.setProperty(entry.getKey(), entry.getValue());
-			}
+			ImageData<T> imageData = createImageData(server, serverBuilder, hierarchy, imageType, stains, workflow, propertyMap);
 
 			long endTime = System.currentTimeMillis();
 			if (hierarchy != null)
@@ -414,6 +481,192 @@ public class PathIO {
 	}
 
 
+	private static <T> ImageData<T> readImageDataColumnar(final InputStream stream, ImageServer<T> server,
+														  ServerBuilder<T> requestedServerBuilder) throws IOException {
+
+		long startTime = System.currentTimeMillis();
+
+		var in = new DataInputStream(stream);
+		ColumnarDataFile.readHeader(in);
+
+		ServerBuilder<T> serverBuilder = requestedServerBuilder;
+		String serverString = ColumnarDataFile.readString(in);
+		// Don't log warnings if we are provided with a server
+		if (serverBuilder == null)
+			serverBuilder = extractServerBuilder(serverString, true);
+
+		ImageSection imageSection = null;
+		var reader = new ColumnarHierarchyReader();
+		byte sectionType;
+		while ((sectionType = in.readByte()) != ColumnarDataFile.SECTION_END) {
+			byte[] section = new byte[in.readInt()];
+			in.readFully(section);
+			switch (sectionType) {
+				case ColumnarDataFile.SECTION_IMAGE -> imageSection = ImageSection.read(section);
+				case ColumnarDataFile.SECTION_OBJECTS -> reader.readObjectSection(section);
+				case ColumnarDataFile.SECTION_DETECTIONS -> reader.readDetectionSection(section);
+				case ColumnarDataFile.SECTION_TMA_GRID -> reader.readTMAGridSection(section);
+				// The complete dictionaries are only needed when reading blocks out of order
+				case ColumnarDataFile.SECTION_DICTIONARY -> logger.trace("Skipping dictionary section");
+				default -> logger.debug("Skipping unknown data file section {}", sectionType);
+			}
+		}
+		var hierarchy = reader.build();
+
+		ImageData<T> imageData = createImageData(server, serverBuilder, hierarchy, imageSection);
+
+		long endTime = System.currentTimeMillis();
+		logger.debug(String.format("Hierarchy with %d object(s) read in %.2f seconds",
+				hierarchy.nObjects(),
+				(endTime - startTime)/1000.));
+
+		return imageData;
+	}
+
+
+	/**
+	 * Read a columnar data file, loading detection blocks only when they are needed.
+	 * Files that don't support this are read normally instead.
+	 */
+	static <T> ImageData<T> readImageDataLazy(final Path path, ImageServer<T> server, ServerBuilder<T> requestedServerBuilder) throws IOException {
+
+		long startTime = System.currentTimeMillis();
+
+		ServerBuilder<T> serverBuilder = requestedServerBuilder;
+		ImageSection imageSection = null;
+		var reader = new ColumnarHierarchyReader();
+		List<ColumnarBlockSource.Block> blocks = new ArrayList<>();
+
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// Check the header, and fall back to reading the full file if it isn't in the columnar format
+			long pos = ColumnarDataFile.MAGIC.length + 4;
+			if (channel.size() < pos) {
+				return readImageDataSerialized(path, server, requestedServerBuilder);
+			}
+			byte[] header = ColumnarBlockSource.readFully(channel, 0, (int)pos).array();
+			if (!Arrays.equals(Arrays.copyOf(header, ColumnarDataFile.MAGIC.length), ColumnarDataFile.MAGIC)) {
+				logger.debug("Data file does not support lazy loading - will read all objects");
+				return readImageDataSerialized(path, server, requestedServerBuilder);
+			}
+			ColumnarDataFile.readHeader(new DataInputStream(new ByteArrayInputStream(header)));
+
+			int serverLength = ColumnarBlockSource.readFully(channel, pos, 4).getInt();
+			pos += 4;
+			String serverString = serverLength < 0 ? null :
+					new String(ColumnarBlockSource.readFully(channel, pos, serverLength).array(), StandardCharsets.UTF_8);
+			pos += Math.max(0, serverLength);
+			// Don't log warnings if we are provided with a server
+			if (server == null && serverBuilder == null)
+				serverBuilder = extractServerBuilder(serverString, true);
+
+			// Record where all the sections are, reading only the headers of detection sections
+			List<long[]> sections = new ArrayList<>();
+			long[] dictionary = null;
+			byte sectionType;
+			while ((sectionType = ColumnarBlockSource.readFully(channel, pos, 1).get()) != ColumnarDataFile.SECTION_END) {
+				int length = ColumnarBlockSource.readFully(channel, pos + 1, 4).getInt();
+				pos += 5;
+				if (sectionType == ColumnarDataFile.SECTION_DETECTIONS) {
+					var blockHeader = ColumnarBlockSource.readFully(channel, pos, ColumnarDataFile.DETECTIONS_HEADER_LENGTH);
+					blocks.add(ColumnarBlockSource.Block.fromHeader(pos, length, blockHeader));
+				} else if (sectionType == ColumnarDataFile.SECTION_DICTIONARY) {
+					dictionary = new long[]{pos, length};
+				} else {
+					sections.add(new long[]{sectionType, pos, length});
+				}
+				pos += length;
+			}
+			if (dictionary == null) {
+				logger.debug("Data file does not contain a dictionary - will read all objects");
+				return readImageDataSerialized(path, server, requestedServerBuilder);
+			}
+
+			// Read everything apart from the detections
+			reader.readDictionarySection(ColumnarBlockSource.readFully(channel, dictionary[0], (int)dictionary[1]).array());
+			for (var section : sections) {
+				byte[] bytes = ColumnarBlockSource.readFully(channel, section[1], (int)section[2]).array();
+				switch ((byte)section[0]) {
+					case ColumnarDataFile.SECTION_IMAGE -> imageSection = ImageSection.read(bytes);
+					case ColumnarDataFile.SECTION_OBJECTS -> reader.readObjectSection(bytes);
+					case ColumnarDataFile.SECTION_TMA_GRID -> reader.readTMAGridSection(bytes);
+					default -> logger.debug("Skipping unknown data file section {}", section[0]);
+				}
+			}
+		}
+		var hierarchy = reader.build();
+		if (!blocks.isEmpty())
+			hierarchy.setBlockSource(new ColumnarBlockSource(path, reader, blocks), maxResidentObjectBlocks);
+
+		ImageData<T> imageData = createImageData(server, serverBuilder, hierarchy, imageSection);
+		imageData.setLastSavedPath(path.toAbsolutePath().toString(), true);
+
+		long endTime = System.currentTimeMillis();
+		logger.debug(String.format("Hierarchy with %d object(s) in %d block(s) opened in %.2f seconds",
+				hierarchy.nObjects(), blocks.size(),
+				(endTime - startTime)/1000.));
+
+		return imageData;
+	}
+
+
+	/**
+	 * Image properties stored in the image section of a columnar data file.
+	 */
+	private record ImageSection(ImageData.ImageType imageType, ColorDeconvolutionStains stains,
+								Workflow workflow, Map<String, Object> propertyMap) {
+
+		@SuppressWarnings("unchecked")
+		private static ImageSection read(byte[] section) throws IOException {
+			try (var inStream = createObjectInputStream(new ByteArrayInputStream(section))) {
+				return new ImageSection(
+						(ImageData.ImageType)inStream.readObject(),
+						(ColorDeconvolutionStains)inStream.readObject(),
+						(Workflow)inStream.readObject(),
+						(Map<String, Object>)inStream.readObject());
+			} catch (ClassNotFoundException | ClassCastException e) {
+				throw new IOException("Unable to read image properties", e);
+			}
+		}
+
+	}
+
+
+	private static <T> ImageData<T> createImageData(ImageServer<T> server, ServerBuilder<T> serverBuilder, PathObjectHierarchy hierarchy,
+													ImageSection imageSection) throws IOException {
+		if (imageSection == null)
+			return createImageData(server, serverBuilder, hierarchy, null, null, null, null);
+		return createImageData(server, serverBuilder, hierarchy, imageSection.imageType(), imageSection.stains(),
+				imageSection.workflow(), imageSection.propertyMap());
+	}
+
+
+	private static <T> ImageData<T> createImageData(ImageServer<T> server, ServerBuilder<T> serverBuilder, PathObjectHierarchy hierarchy,
+													ImageData.ImageType imageType, ColorDeconvolutionStains stains, Workflow workflow,
+													Map<String, Object> propertyMap) throws IOException {
+		// Create a new ImageData
+		ImageData<T> imageData;
+		if (server != null)
+			imageData = new ImageData<>(server, hierarchy, imageType);
+		else if (serverBuilder != null)
+			imageData = new ImageData<>(serverBuilder, hierarchy, imageType);
+		else
+			throw new IOException("Can't read ImageData without a server or server builder");
+
+		// Set the other properties we have just read
+		if (workflow != null) {
+			imageData.getHistoryWorkflow().addSteps(workflow.getSteps());
+		}
+		if (stains != null) {
+			imageData.setColorDeconvolutionStains(stains);
+		}
+		if (propertyMap != null) {
+			for (Entry<String, Object> entry : propertyMap.entrySet())
+				imageData.setProperty(entry.getKey(), entry.getValue());
+		}
+		return imageData;
+	}
+
+
 	/**
 	 * Try to update an original ImageData object to match a new one.
 	 * @param imageDataOriginal
@@ -541,6 +794,42 @@ public class PathIO {
 		return readImageDataSerialized(stream, null, serverBuilder);
 	}
 
+	/**
+	 * Read an ImageData, optionally providing a serverBuilder for lazy image loading and requesting
+	 * lazy loading of detections.
+	 * <p>
+	 * With lazy loading, annotations, TMA cores and any objects with child objects are read immediately.
+	 * Detections without child objects are instead read in blocks whenever they are requested for a specific
+	 * region of the image, and blocks that haven't been used recently may be discarded again.
+	 * This can greatly reduce the time and memory required to open data files containing very large numbers
+	 * of detections.
+	 * All detections are loaded whenever they are requested for the entire image, or whenever the hierarchy
+	 * structure is changed.
+	 * <p>
+	 * Note that methods of {@link PathObject} that access child objects directly (e.g. {@link PathObject#nChildObjects()},
+	 * {@link PathObject#getChildObjects()}) only include the detections that are currently loaded.
+	 * This means that counts of detections within annotations may be too low until
+	 * {@link PathObjectHierarchy#ensureFullyLoaded()} is called.
+	 * {@link PathObjectHierarchy#nObjects()} always includes detections that have not been loaded.
+	 * <p>
+	 * Lazy loading is only possible with data files written using version 5 or later;
+	 * other files are read in full.
+	 * @param path the .qpdata file to read
+	 * @param serverBuilder the server builder to use, or null to use the one stored in the file
+	 * @param lazyDetections if true, load detections only when they are required
+	 * @return
+	 * @throws IOException
+	 * @see PathObjectHierarchy#ensureFullyLoaded()
+	 * @see #setMaxResidentObjectBlocks(int)
+	 * @since v0.8.0
+	 */
+	public static <T> ImageData<T> readImageData(final Path path, ServerBuilder<T> serverBuilder, boolean lazyDetections) throws IOException {
+		if (lazyDetections)
+			return readImageDataLazy(path, null, serverBuilder);
+		else
+			return readImageData(path, serverBuilder);
+	}
+
 
 	/**
 	 * Read and initialize an {@link ImageData} from a data file.
@@ -616,6 +905,9 @@ public class PathIO {
 	 */
 	public static void writeImageData(final File file, final ImageData<?> imageData) throws FileNotFoundException, IOException {
 		File backup = null;
+
+		// Any objects being loaded lazily might be read from the file we are about to replace
+		imageData.getHierarchy().ensureFullyLoaded();
 		
 		// Backup any existing file... just in case of disaster
 		if (file.exists()) {
@@ -650,6 +942,59 @@ public class PathIO {
 	
 
 	private static void writeImageDataSerialized(final OutputStream stream, final ImageData<?> imageData) throws IOException {
+		imageData.getHierarchy().ensureFullyLoaded();
+		int version = requestedDataFileVersion;
+		if (version >= ColumnarDataFile.VERSION && !ColumnarHierarchyWriter.canWrite(imageData.getHierarchy())) {
+			logger.warn("Hierarchy contains custom object types - data file will be written using Java serialization");
+			version = ColumnarDataFile.VERSION - 1;
+		}
+		if (version >= ColumnarDataFile.VERSION)
+			writeImageDataColumnar(stream, imageData);
+		else
+			writeImageDataLegacy(stream, imageData);
+	}
+
+
+	private static void writeImageDataColumnar(final OutputStream stream, final ImageData<?> imageData) throws IOException {
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(stream))) {
+			long startTime = System.currentTimeMillis();
+
+			// Write the identifier & version
+			out.write(ColumnarDataFile.MAGIC);
+			out.writeInt(ColumnarDataFile.VERSION);
+
+			// Write JSON object including QuPath version and ServerBuilder
+			ColumnarDataFile.writeString(out, createServerJson(imageData, ColumnarDataFile.VERSION));
+
+			// Write the main image metadata - these are small, so we can still use Java serialization
+			var bytes = new ByteArrayOutputStream();
+			try (var outStream = new ObjectOutputStream(bytes)) {
+				outStream.writeObject(imageData.getImageType());
+				outStream.writeObject(imageData.getColorDeconvolutionStains());
+				outStream.writeObject(imageData.getHistoryWorkflow());
+				outStream.writeObject(createSerializablePropertyMap(imageData));
+			}
+			out.writeByte(ColumnarDataFile.SECTION_IMAGE);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+
+			// Write the objects in blocks
+			PathObjectHierarchy hierarchy = imageData.getHierarchy();
+			logger.info(String.format("Writing object hierarchy with %d object(s)...", hierarchy.nObjects()));
+			var writer = new ColumnarHierarchyWriter(out, compressDataFileBlocks, ColumnarHierarchyWriter.DEFAULT_BLOCK_SIZE);
+			writer.writeHierarchy(hierarchy);
+
+			// Write end marker
+			out.writeByte(ColumnarDataFile.SECTION_END);
+
+			long endTime = System.currentTimeMillis();
+			logger.info(String.format("Image data written in %.2f seconds", (endTime - startTime)/1000.));
+		}
+	}
+
+
+	private static void writeImageDataLegacy(final OutputStream stream, final ImageData<?> imageData) throws IOException {
 				
 		try (OutputStream outputStream = new BufferedOutputStream(stream)) {
 			long startTime = System.currentTimeMillis();
@@ -657,22 +1002,10 @@ public class PathIO {
 			ObjectOutputStream outStream = new ObjectOutputStream(outputStream);
 			
 			// Write the identifier
-			outStream.writeUTF("Data file version " + DATA_FILE_VERSION);
+			outStream.writeUTF("Data file version " + LEGACY_DATA_FILE_VERSION);
 			
 			// Write JSON object including QuPath version and ServerBuilder
-			// Note that the builder may be null, in which case the server cannot be recreated
-			var builder = imageData.getServerBuilder();
-			String serverPath;
-			if (builder == null) {
-				var server = imageData.getServer();
-				logger.warn("Server {} does not provide a builder - it will not be possible to recover the ImageServer from this data file", server);
-				serverPath = server.getPath();
-			} else {
-				serverPath = imageData.getLastSavedPath();
-			}
-			var wrapper = ServerBuilderWrapper.create(builder, serverPath);
-			String json = GsonTools.getInstance().toJson(wrapper);
-			outStream.writeObject(json);
+			outStream.writeObject(createServerJson(imageData, LEGACY_DATA_FILE_VERSION));
 			
 			// Write the current locale
 			outStream.writeObject(Locale.getDefault(Category.FORMAT));
@@ -688,15 +1021,7 @@ public class PathIO {
 			outStream.writeObject(hierarchy);
 			
 			// Write any remaining (serializable) properties
-			Map<String, Object> map = new HashMap<>();
-			for (Entry<String, Object> entry : imageData.getProperties().entrySet()) {
-				if (serializableObject(entry.getValue()))
-					map.put(entry.getKey(), entry.getValue());
-				else
-					logger.warn("Property not serializable and will not be saved!  Key: " + entry.getKey() + ", Value: " + entry.getValue());
-			}
-			if (map != null)
-				outStream.writeObject(map);
+			outStream.writeObject(createSerializablePropertyMap(imageData));
 			
 			// Write EOF marker
 			outStream.writeObject("EOF");
@@ -705,6 +1030,37 @@ public class PathIO {
 			logger.info(String.format("Image data written in %.2f seconds", (endTime - startTime)/1000.));
 		}
 	}
+
+
+	/**
+	 * Create JSON including the QuPath version and ServerBuilder.
+	 * Note that the builder may be null, in which case the server cannot be recreated.
+	 */
+	private static String createServerJson(final ImageData<?> imageData, int dataVersion) {
+		var builder = imageData.getServerBuilder();
+		String serverPath;
+		if (builder == null) {
+			var server = imageData.getServer();
+			logger.warn("Server {} does not provide a builder - it will not be possible to recover the ImageServer from this data file", server);
+			serverPath = server.getPath();
+		} else {
+			serverPath = imageData.getLastSavedPath();
+		}
+		var wrapper = ServerBuilderWrapper.create(builder, serverPath, dataVersion);
+		return GsonTools.getInstance().toJson(wrapper);
+	}
+
+
+	private static Map<String, Object> createSerializablePropertyMap(final ImageData<?> imageData) {
+		Map<String, Object> map = new HashMap<>();
+		for (Entry<String, Object> entry : imageData.getProperties().entrySet()) {
+			if (serializableObject(entry.getValue()))
+				map.put(entry.getKey(), entry.getValue());
+			else
+				logger.warn("Property not serializable and will not be saved!  Key: " + entry.getKey() + ", Value: " + entry.getValue());
+		}
+		return map;
+	}
 	
 	/**
 	 * Read a hierarchy from a .qpdata file.
@@ -744,7 +1100,11 @@ public class PathIO {
 		Locale locale = Locale.getDefault(Category.FORMAT);
 		boolean localeChanged = false;
 
-		try (ObjectInputStream inStream = createObjectInputStream(new BufferedInputStream(fileIn))) {
+		var bufferedStream = new BufferedInputStream(fileIn);
+		if (ColumnarDataFile.isColumnarDataFile(bufferedStream))
+			return readHierarchyColumnar(bufferedStream);
+
+		try (ObjectInputStream inStream = createObjectInputStream(bufferedStream)) {
 			
 			if (!inStream.readUTF().startsWith("Data file version")) {
 				logger.error("Input stream is not from a valid QuPath data file!");
@@ -783,6 +1143,37 @@ public class PathIO {
 				Locale.setDefault(Category.FORMAT, locale);
 		}
 	}
+
+	private static PathObjectHierarchy readHierarchyColumnar(final InputStream stream) throws IOException {
+		var in = new DataInputStream(stream);
+		ColumnarDataFile.readHeader(in);
+		// Server JSON isn't needed
+		ColumnarDataFile.readString(in);
+		var reader = new ColumnarHierarchyReader();
+		byte sectionType;
+		while ((sectionType = in.readByte()) != ColumnarDataFile.SECTION_END) {
+			int length = in.readInt();
+			switch (sectionType) {
+				case ColumnarDataFile.SECTION_OBJECTS -> {
+					byte[] section = new byte[length];
+					in.readFully(section);
+					reader.readObjectSection(section);
+				}
+				case ColumnarDataFile.SECTION_DETECTIONS -> {
+					byte[] section = new byte[length];
+					in.readFully(section);
+					reader.readDetectionSection(section);
+				}
+				case ColumnarDataFile.SECTION_TMA_GRID -> {
+					byte[] section = new byte[length];
+					in.readFully(section);
+					reader.readTMAGridSection(section);
+				}
+				default -> in.skipNBytes(length);
+			}
+		}
+		return reader.build();
+	}
 	
 	/**
 	 * Read a list of {@link PathObject} from a file.
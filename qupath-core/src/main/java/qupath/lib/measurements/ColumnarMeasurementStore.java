@@ -0,0 +1,495 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.measurements;
+
+import java.io.ObjectStreamException;
+import java.io.Serial;
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * A column-oriented store for the measurements of many objects.
+ * <p>
+ * Each {@link MeasurementList} created by the store is assigned a 'slot', and its values are stored in
+ * one column per measurement name.
+ * Columns are divided into pages of primitive float or double values, so that the values of a single
+ * measurement for many objects are stored contiguously and can be read without accessing each list.
+ * <p>
+ * Lists from a store do not use locks.
+ * Instead, each list should only be modified by one thread at a time - which is normally the case when
+ * measurements are calculated for objects in parallel.
+ * Lists may be read from other threads, but changes are not guaranteed to be visible immediately.
+ * This is a weaker guarantee than for other measurement lists, which are synchronized.
+ * <p>
+ * Slots are reused after lists are garbage collected, and so stores can be long-lived.
+ * When serialized, lists are converted to a standard float or double measurement list.
+ *
+ * @since v0.8.0
+ * @see MeasurementList.MeasurementListType#COLUMNAR
+ */
+public final class ColumnarMeasurementStore {
+
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private static final Cleaner cleaner = Cleaner.create();
+
+	private static final ColumnarMeasurementStore DEFAULT_STORE = new ColumnarMeasurementStore(false);
+
+	private final boolean doublePrecision;
+
+	private final Map<String, Column> columnMap = new ConcurrentHashMap<>();
+	private volatile Column[] columns = new Column[0];
+
+	private final AtomicInteger nextSlot = new AtomicInteger();
+	private final Queue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+
+	private ColumnarMeasurementStore(boolean doublePrecision) {
+		this.doublePrecision = doublePrecision;
+	}
+
+	/**
+	 * Get the default store, which stores values with float precision.
+	 * This is used for lists of type {@link MeasurementList.MeasurementListType#COLUMNAR}.
+	 * @return
+	 */
+	public static ColumnarMeasurementStore getDefaultStore() {
+		return DEFAULT_STORE;
+	}
+
+	/**
+	 * Create a new store.
+	 * Using a separate store (e.g. for each image) can make reading columns more efficient, since the slots
+	 * are not shared with unrelated objects.
+	 * @param doublePrecision if true, store values as doubles; otherwise store them as floats
+	 * @return
+	 */
+	public static ColumnarMeasurementStore create(boolean doublePrecision) {
+		return new ColumnarMeasurementStore(doublePrecision);
+	}
+
+	/**
+	 * Query whether values are stored with double precision.
+	 * @return true if values are stored as doubles, false if they are stored as floats
+	 */
+	public boolean isDoublePrecision() {
+		return doublePrecision;
+	}
+
+	/**
+	 * Create a new, empty measurement list backed by this store.
+	 * @return
+	 */
+	public MeasurementList createMeasurementList() {
+		Integer slot = freeSlots.poll();
+		var state = new SlotState(slot == null ? nextSlot.getAndIncrement() : slot);
+		var list = new ColumnarMeasurementList(this, state);
+		cleaner.register(list, new SlotReleaser(this, state));
+		return list;
+	}
+
+	/**
+	 * Get the names of all measurements that have been added to any list in this store.
+	 * @return
+	 */
+	public List<String> getNames() {
+		return Arrays.stream(columns).map(c -> c.name).toList();
+	}
+
+	/**
+	 * Get the values of a measurement for multiple lists.
+	 * This is efficient for lists created by this store, since their values can be read directly from the
+	 * column without any lookup by name; other lists are also supported, but require a lookup for each list.
+	 * @param name the measurement name
+	 * @param lists the measurement lists
+	 * @return an array containing the value for each list, or NaN if the measurement is missing
+	 */
+	public double[] getValues(String name, Collection<? extends MeasurementList> lists) {
+		var column = columnMap.get(name);
+		double[] values = new double[lists.size()];
+		int i = 0;
+		for (var list : lists) {
+			if (list instanceof ColumnarMeasurementList columnar && columnar.store == this)
+				values[i] = column == null ? Double.NaN : column.get(columnar.state.slot);
+			else
+				values[i] = list.get(name);
+			i++;
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values of a measurement for all slots in the store.
+	 * The array is indexed by slot, and contains NaN for any slot without the measurement.
+	 * @param name the measurement name
+	 * @return
+	 * @see #getSlot(MeasurementList)
+	 */
+	public double[] getColumn(String name) {
+		int n = nextSlot.get();
+		double[] values = new double[n];
+		var column = columnMap.get(name);
+		if (column == null) {
+			Arrays.fill(values, Double.NaN);
+			return values;
+		}
+		column.copyTo(values);
+		return values;
+	}
+
+	/**
+	 * Get the slot of a list within this store's columns.
+	 * @param list
+	 * @return the slot, or -1 if the list was not created by this store
+	 * @see #getColumn(String)
+	 */
+	public int getSlot(MeasurementList list) {
+		if (list instanceof ColumnarMeasurementList columnar && columnar.store == this)
+			return columnar.state.slot;
+		return -1;
+	}
+
+	private Column getOrCreateColumn(String name) {
+		var column = columnMap.get(name);
+		if (column != null)
+			return column;
+		synchronized (columnMap) {
+			column = columnMap.get(name);
+			if (column == null) {
+				var current = columns;
+				column = new Column(name.intern(), current.length, doublePrecision);
+				var updated = Arrays.copyOf(current, current.length + 1);
+				updated[current.length] = column;
+				columns = updated;
+				columnMap.put(column.name, column);
+			}
+			return column;
+		}
+	}
+
+
+	/**
+	 * The values of a single measurement, stored in pages that are created as they are needed.
+	 */
+	private static class Column {
+
+		private final String name;
+		private final int index;
+		private final boolean doublePrecision;
+		private volatile AtomicReferenceArray<Object> pages = new AtomicReferenceArray<>(16);
+
+		private Column(String name, int index, boolean doublePrecision) {
+			this.name = name;
+			this.index = index;
+			this.doublePrecision = doublePrecision;
+		}
+
+		double get(int slot) {
+			var page = getPage(slot, false);
+			if (page == null)
+				return Double.NaN;
+			if (doublePrecision)
+				return ((double[])page)[slot & PAGE_MASK];
+			else
+				return ((float[])page)[slot & PAGE_MASK];
+		}
+
+		void set(int slot, double value) {
+			var page = getPage(slot, true);
+			if (doublePrecision)
+				((double[])page)[slot & PAGE_MASK] = value;
+			else
+				((float[])page)[slot & PAGE_MASK] = (float)value;
+		}
+
+		void copyTo(double[] values) {
+			var pages = this.pages;
+			for (int p = 0; p * PAGE_SIZE < values.length; p++) {
+				int start = p * PAGE_SIZE;
+				int end = Math.min(values.length, start + PAGE_SIZE);
+				var page = p < pages.length() ? pages.get(p) : null;
+				if (page == null)
+					Arrays.fill(values, start, end, Double.NaN);
+				else if (doublePrecision)
+					System.arraycopy(page, 0, values, start, end - start);
+				else {
+					var floats = (float[])page;
+					for (int i = start; i < end; i++)
+						values[i] = floats[i - start];
+				}
+			}
+		}
+
+		private Object getPage(int slot, boolean create) {
+			int p = slot >>> PAGE_BITS;
+			var pages = this.pages;
+			var page = p < pages.length() ? pages.get(p) : null;
+			if (page != null || !create)
+				return page;
+			// Pages are created rarely, so we can afford to lock here
+			synchronized (this) {
+				pages = this.pages;
+				if (p >= pages.length()) {
+					var updated = new AtomicReferenceArray<>(Math.max(p + 1, pages.length() * 2));
+					for (int i = 0; i < pages.length(); i++)
+						updated.set(i, pages.get(i));
+					this.pages = updated;
+					pages = updated;
+				}
+				page = pages.get(p);
+				if (page == null) {
+					if (doublePrecision) {
+						var values = new double[PAGE_SIZE];
+						Arrays.fill(values, Double.NaN);
+						page = values;
+					} else {
+						var values = new float[PAGE_SIZE];
+						Arrays.fill(values, Float.NaN);
+						page = values;
+					}
+					pages.set(p, page);
+				}
+				return page;
+			}
+		}
+
+	}
+
+
+	/**
+	 * The slot and columns used by a list.
+	 * This is separate from the list itself, so that it can be used to release the slot after the list
+	 * has been garbage collected.
+	 */
+	private static class SlotState {
+
+		private final int slot;
+		// Indices of the columns used by the list, in the order the measurements were added
+		private volatile int[] columns = new int[0];
+
+		private SlotState(int slot) {
+			this.slot = slot;
+		}
+
+	}
+
+
+	private record SlotReleaser(ColumnarMeasurementStore store, SlotState state) implements Runnable {
+
+		@Override
+		public void run() {
+			var allColumns = store.columns;
+			for (int c : state.columns)
+				allColumns[c].set(state.slot, Double.NaN);
+			store.freeSlots.add(state.slot);
+		}
+
+	}
+
+
+	/**
+	 * A measurement list backed by a {@link ColumnarMeasurementStore}.
+	 */
+	private static final class ColumnarMeasurementList implements MeasurementList {
+
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		private final transient ColumnarMeasurementStore store;
+		private final transient SlotState state;
+
+		private transient volatile Map<String, Number> mapView;
+
+		private ColumnarMeasurementList(ColumnarMeasurementStore store, SlotState state) {
+			this.store = store;
+			this.state = state;
+		}
+
+		private int indexOf(int[] columns, int column) {
+			for (int i = 0; i < columns.length; i++) {
+				if (columns[i] == column)
+					return i;
+			}
+			return -1;
+		}
+
+		@Override
+		public void put(String name, double value) {
+			var column = store.getOrCreateColumn(name);
+			var columns = state.columns;
+			if (indexOf(columns, column.index) < 0) {
+				// Set the value before publishing the new columns, so that readers don't see a missing value
+				column.set(state.slot, value);
+				var updated = Arrays.copyOf(columns, columns.length + 1);
+				updated[columns.length] = column.index;
+				state.columns = updated;
+			} else {
+				column.set(state.slot, value);
+			}
+		}
+
+		@Override
+		public double get(String name) {
+			var column = store.columnMap.get(name);
+			if (column == null || indexOf(state.columns, column.index) < 0)
+				return Double.NaN;
+			return column.get(state.slot);
+		}
+
+		@Override
+		public boolean containsKey(String name) {
+			var column = store.columnMap.get(name);
+			return column != null && indexOf(state.columns, column.index) >= 0;
+		}
+
+		@Override
+		public List<Measurement> getMeasurements() {
+			var columns = state.columns;
+			if (columns.length == 0)
+				return Collections.emptyList();
+			var allColumns = store.columns;
+			List<Measurement> measurements = new ArrayList<>(columns.length);
+			for (int c : columns) {
+				var column = allColumns[c];
+				measurements.add(createMeasurement(column));
+			}
+			return Collections.unmodifiableList(measurements);
+		}
+
+		private Measurement createMeasurement(Column column) {
+			double value = column.get(state.slot);
+			if (column.doublePrecision)
+				return MeasurementFactory.createMeasurement(column.name, value);
+			else
+				return MeasurementFactory.createMeasurement(column.name, (float)value);
+		}
+
+		@Override
+		public Measurement getByIndex(int ind) {
+			return createMeasurement(store.columns[state.columns[ind]]);
+		}
+
+		@Override
+		public double[] values() {
+			var columns = state.columns;
+			var allColumns = store.columns;
+			double[] values = new double[columns.length];
+			for (int i = 0; i < columns.length; i++)
+				values[i] = allColumns[columns[i]].get(state.slot);
+			return values;
+		}
+
+		@Override
+		public double remove(String name) {
+			var column = store.columnMap.get(name);
+			if (column == null)
+				return Double.NaN;
+			var columns = state.columns;
+			int ind = indexOf(columns, column.index);
+			if (ind < 0)
+				return Double.NaN;
+			double value = column.get(state.slot);
+			int[] updated = new int[columns.length - 1];
+			System.arraycopy(columns, 0, updated, 0, ind);
+			System.arraycopy(columns, ind + 1, updated, ind, updated.length - ind);
+			state.columns = updated;
+			column.set(state.slot, Double.NaN);
+			return value;
+		}
+
+		@Override
+		public void removeAll(String... measurementNames) {
+			for (var name : measurementNames)
+				remove(name);
+		}
+
+		@Override
+		public List<String> getNames() {
+			var columns = state.columns;
+			if (columns.length == 0)
+				return Collections.emptyList();
+			var allColumns = store.columns;
+			String[] names = new String[columns.length];
+			for (int i = 0; i < columns.length; i++)
+				names[i] = allColumns[columns[i]].name;
+			return List.of(names);
+		}
+
+		@Override
+		public int size() {
+			return state.columns.length;
+		}
+
+		@Override
+		public void clear() {
+			var columns = state.columns;
+			state.columns = new int[0];
+			var allColumns = store.columns;
+			for (int c : columns)
+				allColumns[c].set(state.slot, Double.NaN);
+		}
+
+		@Override
+		public Map<String, Number> asMap() {
+			// Not synchronized, since the list itself doesn't use locks
+			if (mapView == null)
+				mapView = new MeasurementsMap(this);
+			return mapView;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + getMeasurements().stream()
+					.map(m -> m.getName() + ": " + m.getValue())
+					.collect(Collectors.joining(", ")) + "]";
+		}
+
+		/**
+		 * Serialize as a standard list, since the store can't be serialized with it.
+		 */
+		@Serial
+		private Object writeReplace() throws ObjectStreamException {
+			var list = MeasurementListFactory.createMeasurementList(size(),
+					store.doublePrecision ? MeasurementListType.DOUBLE : MeasurementListType.FLOAT);
+			var names = getNames();
+			var values = values();
+			for (int i = 0; i < names.size(); i++)
+				list.put(names.get(i), values[i]);
+			list.close();
+			return list;
+		}
+
+	}
+
+}
@@ -62,7 +62,14 @@ public interface MeasurementList extends Serializable, AutoCloseable {
 		/**
 		 * A list backed by an array of floats.
 		 */
-		FLOAT
+		FLOAT,
+		/**
+		 * A list backed by the default {@link ColumnarMeasurementStore}, which stores values as floats.
+		 * Lists of this type don't use locks, and are suitable when many objects are measured in parallel.
+		 * However, each list should only be modified by one thread at a time.
+		 * @since v0.8.0
+		 */
+		COLUMNAR
 	}
 	
 	/**
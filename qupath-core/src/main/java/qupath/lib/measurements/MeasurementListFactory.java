@@ -23,6 +23,9 @@
 
 package qupath.lib.measurements;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Factory for creating new measurement lists.
  * <p>
@@ -33,8 +36,50 @@ package qupath.lib.measurements;
  */
 public class MeasurementListFactory {
 	
+	private static final Logger logger = LoggerFactory.getLogger(MeasurementListFactory.class);
+
+	/**
+	 * System property that can be used to set the default measurement list type for detections.
+	 */
+	private static final String PROP_DETECTION_LIST_TYPE = "qupath.measurements.detectionListType";
+
+	private static volatile MeasurementList.MeasurementListType defaultDetectionListType = readDefaultDetectionListType();
+
 	private MeasurementListFactory() {}
 
+	private static MeasurementList.MeasurementListType readDefaultDetectionListType() {
+		var value = System.getProperty(PROP_DETECTION_LIST_TYPE);
+		if (value != null && !value.isBlank()) {
+			try {
+				return MeasurementList.MeasurementListType.valueOf(value.strip().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.warn("Unknown measurement list type '{}' - will use {}", value, MeasurementList.MeasurementListType.FLOAT);
+			}
+		}
+		return MeasurementList.MeasurementListType.FLOAT;
+	}
+
+	/**
+	 * Set the type of measurement list used for new detection objects.
+	 * The default is {@link MeasurementList.MeasurementListType#FLOAT}, unless the system property
+	 * {@code qupath.measurements.detectionListType} is set.
+	 * @param type the list type; if null, the default is restored
+	 * @since v0.8.0
+	 */
+	public static void setDefaultDetectionListType(MeasurementList.MeasurementListType type) {
+		defaultDetectionListType = type == null ? MeasurementList.MeasurementListType.FLOAT : type;
+	}
+
+	/**
+	 * Get the type of measurement list used for new detection objects.
+	 * @return
+	 * @since v0.8.0
+	 * @see #setDefaultDetectionListType(MeasurementList.MeasurementListType)
+	 */
+	public static MeasurementList.MeasurementListType getDefaultDetectionListType() {
+		return defaultDetectionListType;
+	}
+
 	/**
 	 * Create a measurement list.
 	 * @param capacity
@@ -47,6 +92,8 @@ public class MeasurementListFactory {
 			return new NumericMeasurementList.DoubleList(capacity);
 		case FLOAT:
 			return new NumericMeasurementList.FloatList(capacity);
+		case COLUMNAR:
+			return ColumnarMeasurementStore.getDefaultStore().createMeasurementList();
 		case GENERAL:
 		default:
 			return new DefaultMeasurementList(capacity);
@@ -24,7 +24,6 @@
 package qupath.lib.objects;
 
 import qupath.lib.measurements.MeasurementList;
-import qupath.lib.measurements.MeasurementList.MeasurementListType;
 import qupath.lib.measurements.MeasurementListFactory;
 import qupath.lib.objects.classes.PathClass;
 import qupath.lib.roi.interfaces.ROI;
@@ -84,7 +83,7 @@ public class PathDetectionObject extends PathROIObject {
 	 */
 	@Override
 	protected MeasurementList createEmptyMeasurementList() {
-		return MeasurementListFactory.createMeasurementList(0, MeasurementListType.FLOAT);
+		return MeasurementListFactory.createMeasurementList(0, MeasurementListFactory.getDefaultDetectionListType());
 	}
 	
 }
@@ -132,6 +132,20 @@ public class PathObjects {
 		return new TMACoreObject(roi, isMissing);
 	}
 	
+	/**
+	 * Create a TMA core object with an arbitrary ROI.
+	 * <p>
+	 * This is primarily intended for restoring cores that have previously been saved;
+	 * in general, TMA cores are expected to have ellipse ROIs.
+	 * @param roi
+	 * @param isMissing
+	 * @return
+	 * @since v0.8.0
+	 */
+	public static TMACoreObject createTMACoreObject(ROI roi, boolean isMissing) {
+		return new TMACoreObject(roi, isMissing);
+	}
+	
 	/**
 	 * Create a classified detection object with a specified measurement list.
 	 * <p>
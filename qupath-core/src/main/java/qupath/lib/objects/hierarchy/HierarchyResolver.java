@@ -0,0 +1,292 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.IntStream;
+
+import org.locationtech.jts.geom.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.roi.interfaces.ROI;
+
+/**
+ * Helper class to insert annotations into a hierarchy, and then reassign detections to the annotations.
+ * <p>
+ * The result is the same as inserting the annotations one at a time, in order of decreasing size,
+ * using {@link PathObjectHierarchy#insertPathObjects(Collection)}.
+ * However, that requires checking every detection below the parent of each annotation as it is inserted,
+ * and rebuilding the tile cache (which contains all the detections) every time.
+ * <p>
+ * Instead, this class inserts the annotations first using a spatial index containing only annotations and TMA cores,
+ * recording the parent of each annotation at the time it was inserted.
+ * Detections are then grouped by plane and tile, and the annotations that each detection would have been moved into
+ * are determined in parallel by replaying the insertion order.
+ * Detections never change the parents of annotations, so the two passes give the same result.
+ * <p>
+ * This should only be used by a thread that holds the hierarchy lock.
+ */
+class HierarchyResolver {
+
+	private static final Logger logger = LoggerFactory.getLogger(HierarchyResolver.class);
+
+	// Size of the tiles used to group detections according to their centroids
+	private static final int TILE_SIZE = 1024;
+
+	private final PathObjectHierarchy hierarchy;
+	private final PathObjectTileCache tileCache;
+	private final ObjDoubleConsumer<String> progress;
+
+	private final HilbertRTree<PathObject> tree = new HilbertRTree<>();
+	private final Map<PathObject, Integer> annotationIndex = new IdentityHashMap<>();
+	private final List<PathObject> annotations = new ArrayList<>();
+	private final List<PathObject> insertionParents = new ArrayList<>();
+	// Inserted annotations that are currently direct children of each object
+	private final Map<PathObject, Set<PathObject>> annotationChildren = new IdentityHashMap<>();
+
+	private record Tile(int z, int t, int x, int y) {}
+
+	/**
+	 * Create a resolver.
+	 * @param hierarchy the hierarchy to resolve
+	 * @param tileCache the tile cache of the hierarchy, used to cache geometry relationships
+	 * @param progress optional consumer to receive progress updates; this may be called from different threads
+	 */
+	HierarchyResolver(PathObjectHierarchy hierarchy, PathObjectTileCache tileCache, ObjDoubleConsumer<String> progress) {
+		this.hierarchy = hierarchy;
+		this.tileCache = tileCache;
+		this.progress = progress == null ? (m, p) -> {} : progress;
+		// Inserts should be applied immediately, so that we can query the tree after each one
+		tree.setBackgroundMerge(false);
+	}
+
+	/**
+	 * Insert annotations into the hierarchy, moving detections below them where needed.
+	 * The annotations should already have been removed from the hierarchy.
+	 * @param pathObjects the annotations to insert
+	 * @param tmaCores TMA cores that are potential parents, or an empty collection if there is no TMA grid
+	 * @return true if any detections were moved, false otherwise
+	 */
+	boolean resolve(Collection<? extends PathObject> pathObjects, Collection<? extends PathObject> tmaCores) {
+		long startTime = System.currentTimeMillis();
+		tree.insertAll(tmaCores.stream().filter(p -> p.hasROI() && p.getParent() != null).toList(), HierarchyResolver::getBounds);
+
+		var sorted = new ArrayList<PathObject>(pathObjects);
+		sorted.sort(PathObjectHierarchy.HIERARCHY_COMPARATOR.reversed());
+		int n = sorted.size();
+		for (int i = 0; i < n; i++) {
+			insertAnnotation(sorted.get(i));
+			if (i % 100 == 0)
+				progress.accept("Inserting annotations", 0.2 * i / n);
+		}
+		long annotationTime = System.currentTimeMillis();
+		logger.debug("Inserted {} annotations in {} ms", n, annotationTime - startTime);
+
+		boolean changes = resolveDetections();
+		logger.debug("Resolved detections in {} ms", System.currentTimeMillis() - annotationTime);
+		progress.accept("Hierarchy resolved", 1.0);
+		return changes;
+	}
+
+	/**
+	 * Insert a single annotation, moving any other annotations that it covers below it.
+	 * This is equivalent to {@link PathObjectHierarchy#insertPathObject(PathObject, boolean)}, except that detections
+	 * are ignored.
+	 * @param annotation
+	 */
+	private void insertAnnotation(PathObject annotation) {
+		var root = hierarchy.getRootObject();
+		var roi = annotation.getROI();
+		var region = ImageRegion.createInstance(roi);
+		var envelope = PathObjectTileCache.getEnvelope(region);
+
+		// Find the same candidates that the tile cache would provide
+		Set<PathObject> candidates = new HashSet<>();
+		candidates.add(root);
+		tree.query(envelope, item -> {
+			var pathObject = (PathObject)item;
+			var roiCandidate = pathObject.getROI();
+			if (roiCandidate.getZ() == region.getZ() && roiCandidate.getT() == region.getT() &&
+					pathObject.getParent() != null && envelope.intersects(PathObjectTileCache.getEnvelope(roiCandidate)))
+				candidates.add(pathObject);
+		});
+		var parent = hierarchy.selectInsertionParent(root, annotation, candidates);
+		if (parent == null)
+			return;
+
+		// Other annotations below the parent that this annotation covers should be moved
+		var siblings = annotationChildren.computeIfAbsent(parent, k -> new LinkedHashSet<>());
+		var previousChildren = new ArrayList<>(siblings);
+		parent.addChildObject(annotation);
+		siblings.add(annotation);
+		if (!previousChildren.isEmpty()) {
+			var covered = hierarchy.filterObjectsForROI(roi, previousChildren);
+			if (!covered.isEmpty()) {
+				annotation.addChildObjects(covered);
+				covered.forEach(siblings::remove);
+				annotationChildren.computeIfAbsent(annotation, k -> new LinkedHashSet<>()).addAll(covered);
+			}
+		}
+
+		annotationIndex.put(annotation, annotations.size());
+		annotations.add(annotation);
+		insertionParents.add(parent);
+		tree.insert(PathObjectTileCache.getEnvelope(roi), annotation);
+	}
+
+	/**
+	 * Move detections below the annotations that they would have been assigned to if they had been present
+	 * when each annotation was inserted.
+	 * @return true if any detections were moved, false otherwise
+	 */
+	private boolean resolveDetections() {
+		var root = hierarchy.getRootObject();
+		// Only detections below the root or a TMA core can be moved, since annotations were inserted after them
+		List<PathObject> detections = new ArrayList<>();
+		for (var child : root.getChildObjectsAsArray()) {
+			if (child.isDetection())
+				detections.add(child);
+			else if (child.isTMACore() && child.hasChildObjects()) {
+				for (var coreChild : child.getChildObjectsAsArray()) {
+					if (coreChild.isDetection())
+						detections.add(coreChild);
+				}
+			}
+		}
+		if (detections.isEmpty() || annotations.isEmpty())
+			return false;
+
+		Map<Tile, List<Integer>> tiles = new LinkedHashMap<>();
+		for (int i = 0; i < detections.size(); i++) {
+			var roi = detections.get(i).getROI();
+			var tile = new Tile(roi.getZ(), roi.getT(),
+					(int)Math.floor(roi.getCentroidX() / TILE_SIZE),
+					(int)Math.floor(roi.getCentroidY() / TILE_SIZE));
+			tiles.computeIfAbsent(tile, k -> new ArrayList<>()).add(i);
+		}
+		var tileList = new ArrayList<>(tiles.values());
+		var newParents = new PathObject[detections.size()];
+		var counter = new AtomicInteger();
+		IntStream.range(0, tileList.size()).parallel().forEach(i -> {
+			resolveTile(detections, tileList.get(i), newParents);
+			int count = counter.incrementAndGet();
+			if (count % 100 == 0)
+				progress.accept("Resolving detections", 0.2 + 0.8 * count / tileList.size());
+		});
+
+		// Apply the changes in order, grouped by parent
+		Map<PathObject, List<PathObject>> childMap = new LinkedHashMap<>();
+		for (int i = 0; i < detections.size(); i++) {
+			var parent = newParents[i];
+			if (parent != null)
+				childMap.computeIfAbsent(parent, k -> new ArrayList<>()).add(detections.get(i));
+		}
+		for (var entry : childMap.entrySet())
+			entry.getKey().addChildObjects(entry.getValue());
+		return !childMap.isEmpty();
+	}
+
+	/**
+	 * Determine the new parents for detections within a single tile.
+	 * @param detections all the detections
+	 * @param indices indices of the detections within the tile
+	 * @param newParents array to store the new parent of each detection, or null if the parent should not change
+	 */
+	private void resolveTile(List<PathObject> detections, List<Integer> indices, PathObject[] newParents) {
+		var root = hierarchy.getRootObject();
+		var firstROI = detections.get(indices.getFirst()).getROI();
+		int z = firstROI.getZ();
+		int t = firstROI.getT();
+		var envelope = new Envelope();
+		for (int i : indices) {
+			var roi = detections.get(i).getROI();
+			envelope.expandToInclude(roi.getCentroidX(), roi.getCentroidY());
+		}
+		// Annotations that might contain the centroids, in the order they were inserted
+		List<PathObject> candidates = new ArrayList<>();
+		tree.query(envelope, item -> {
+			var pathObject = (PathObject)item;
+			var roi = pathObject.getROI();
+			if (annotationIndex.containsKey(pathObject) && roi.getZ() == z && roi.getT() == t && roi.isArea() && !roi.isEmpty())
+				candidates.add(pathObject);
+		});
+		if (candidates.isEmpty())
+			return;
+		candidates.sort(Comparator.comparingInt(annotationIndex::get));
+		int nCandidates = candidates.size();
+		var candidateParents = new PathObject[nCandidates];
+		var candidateEnvelopes = new Envelope[nCandidates];
+		var relates = new RoiRelate[nCandidates];
+		for (int c = 0; c < nCandidates; c++) {
+			var annotation = candidates.get(c);
+			candidateParents[c] = insertionParents.get(annotationIndex.get(annotation));
+			candidateEnvelopes[c] = PathObjectTileCache.getEnvelope(annotation.getROI());
+		}
+
+		for (int i : indices) {
+			var detection = detections.get(i);
+			ROI roi = detection.getROI();
+			double x = roi.getCentroidX();
+			double y = roi.getCentroidY();
+			var originalParent = detection.getParent();
+			var parent = originalParent;
+			for (int c = 0; c < nCandidates; c++) {
+				// When an annotation is inserted, detections below its parent may be moved into it -
+				// along with detections below the root, if the parent is a TMA core
+				var candidateParent = candidateParents[c];
+				if (candidateParent != parent && !(parent == root && candidateParent.isTMACore()))
+					continue;
+				if (!candidateEnvelopes[c].contains(x, y))
+					continue;
+				if (relates[c] == null)
+					relates[c] = tileCache.getRoiRelate(candidates.get(c).getROI());
+				if (relates[c].containsCentroid(roi))
+					parent = candidates.get(c);
+			}
+			if (parent != originalParent)
+				newParents[i] = parent;
+		}
+	}
+
+	private static void getBounds(PathObject pathObject, double[] bounds, int offset) {
+		var roi = pathObject.getROI();
+		bounds[offset] = roi.getBoundsX();
+		bounds[offset + 1] = roi.getBoundsY();
+		bounds[offset + 2] = roi.getBoundsX() + roi.getBoundsWidth();
+		bounds[offset + 3] = roi.getBoundsY() + roi.getBoundsHeight();
+	}
+
+}
@@ -0,0 +1,602 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.SpatialIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.regions.HilbertCurve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A packed R-tree, with items sorted according to the Hilbert curve index of their bounding box centers.
+ * <p>
+ * The tree is built in a single pass (in parallel for large numbers of items), and stores the bounds of all
+ * nodes in primitive arrays.
+ * This makes it much faster to build and much more compact than a {@link org.locationtech.jts.index.quadtree.Quadtree}
+ * when there are very many items.
+ * <p>
+ * Because a packed tree can't be updated, items that are inserted later are stored in a small buffer,
+ * and items that are removed are recorded as 'tombstones'.
+ * When these become too large, a new tree is built in the background and replaces the old one.
+ * <p>
+ * Queries do not require any locks: they use an immutable snapshot of the current state.
+ * Updates are synchronized, and become visible to queries that start after the update completes.
+ * <p>
+ * Items are compared using {@link Object#equals(Object)} when they are removed.
+ *
+ * @param <T> the type of item in the tree
+ */
+class HilbertRTree<T> implements SpatialIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(HilbertRTree.class);
+
+	/**
+	 * Default maximum number of children for each node.
+	 */
+	static final int DEFAULT_NODE_SIZE = 16;
+
+	/**
+	 * Order of the Hilbert curve used for sorting.
+	 * This gives 2^16 cells along each axis, and ensures that the index and the item position can be packed
+	 * together into a long.
+	 */
+	private static final int HILBERT_ORDER = 16;
+
+	/**
+	 * Number of items below which the tree is built sequentially.
+	 */
+	private static final int PARALLEL_THRESHOLD = 100_000;
+
+	private static final int MIN_BUFFER_SIZE = 256;
+	private static final int MAX_BUFFER_SIZE = 8192;
+
+	/**
+	 * Request the bounds of an item.
+	 * @param <T>
+	 */
+	@FunctionalInterface
+	interface BoundsFunction<T> {
+
+		/**
+		 * Write the bounds of an item into an array, in the order minX, minY, maxX, maxY.
+		 * @param item the item
+		 * @param bounds the array to write into
+		 * @param offset the index of the first value to write
+		 */
+		void getBounds(T item, double[] bounds, int offset);
+
+	}
+
+	private final int nodeSize;
+	private final Object lock = new Object();
+
+	private volatile State state;
+
+	// Fields below should only be accessed while holding the lock
+	private List<Operation> pendingOperations;
+	private boolean backgroundMerge = true;
+
+
+	/**
+	 * Create an empty tree, using the default node size.
+	 */
+	HilbertRTree() {
+		this(DEFAULT_NODE_SIZE);
+	}
+
+	/**
+	 * Create an empty tree, with a specified node size.
+	 * @param nodeSize maximum number of children for each node
+	 */
+	HilbertRTree(int nodeSize) {
+		if (nodeSize < 2)
+			throw new IllegalArgumentException("Node size must be at least 2");
+		this.nodeSize = nodeSize;
+		this.state = new State(PackedTree.EMPTY, Buffer.EMPTY, ConcurrentHashMap.newKeySet());
+	}
+
+	/**
+	 * Create a tree containing the specified items.
+	 * This is much faster than inserting items individually.
+	 * @param items the items to add
+	 * @param boundsFunction function to obtain the bounds for each item
+	 * @return
+	 * @param <T>
+	 */
+	static <T> HilbertRTree<T> create(Collection<? extends T> items, BoundsFunction<? super T> boundsFunction) {
+		return create(items, boundsFunction, DEFAULT_NODE_SIZE);
+	}
+
+	/**
+	 * Create a tree containing the specified items, with a specified node size.
+	 * @param items the items to add
+	 * @param boundsFunction function to obtain the bounds for each item
+	 * @param nodeSize maximum number of children for each node
+	 * @return
+	 * @param <T>
+	 */
+	static <T> HilbertRTree<T> create(Collection<? extends T> items, BoundsFunction<? super T> boundsFunction, int nodeSize) {
+		var tree = new HilbertRTree<T>(nodeSize);
+		Object[] array = items.toArray();
+		double[] bounds = new double[array.length * 4];
+		@SuppressWarnings("unchecked")
+		var fun = (BoundsFunction<Object>)boundsFunction;
+		if (array.length >= PARALLEL_THRESHOLD)
+			IntStream.range(0, array.length).parallel().forEach(i -> fun.getBounds(array[i], bounds, i * 4));
+		else {
+			for (int i = 0; i < array.length; i++)
+				fun.getBounds(array[i], bounds, i * 4);
+		}
+		tree.state = new State(PackedTree.build(array, bounds, array.length, nodeSize), Buffer.EMPTY, ConcurrentHashMap.newKeySet());
+		return tree;
+	}
+
+	/**
+	 * Control whether the tree should be rebuilt in a background thread when the number of updates becomes large.
+	 * If false, the tree is rebuilt immediately within the thread calling insert or remove.
+	 * This is mostly useful for testing.
+	 * @param doBackground
+	 */
+	void setBackgroundMerge(boolean doBackground) {
+		synchronized (lock) {
+			this.backgroundMerge = doBackground;
+		}
+	}
+
+	/**
+	 * Get the number of items in the tree.
+	 * This is approximate if items have been removed that were never inserted.
+	 * @return
+	 */
+	int size() {
+		var current = state;
+		return Math.max(0, current.tree.size() - current.removed.size() + current.buffer.size());
+	}
+
+	@Override
+	public void insert(Envelope itemEnv, Object item) {
+		if (itemEnv.isNull())
+			return;
+		synchronized (lock) {
+			if (pendingOperations != null)
+				pendingOperations.add(new Operation(true, item, itemEnv));
+			insertImpl(item, itemEnv.getMinX(), itemEnv.getMinY(), itemEnv.getMaxX(), itemEnv.getMaxY());
+			mergeIfNeeded();
+		}
+	}
+
+	/**
+	 * Insert multiple items, using a function to obtain their bounds.
+	 * @param items
+	 * @param boundsFunction
+	 */
+	void insertAll(Collection<? extends T> items, BoundsFunction<? super T> boundsFunction) {
+		if (items.isEmpty())
+			return;
+		double[] bounds = new double[4];
+		synchronized (lock) {
+			for (var item : items) {
+				boundsFunction.getBounds(item, bounds, 0);
+				if (pendingOperations != null)
+					pendingOperations.add(new Operation(true, item, new Envelope(bounds[0], bounds[2], bounds[1], bounds[3])));
+				insertImpl(item, bounds[0], bounds[1], bounds[2], bounds[3]);
+			}
+			mergeIfNeeded();
+		}
+	}
+
+	/**
+	 * Remove an item.
+	 * <p>
+	 * The envelope is not used to locate the item, since its bounds may have changed since it was inserted.
+	 * Consequently, this method may return true even if the item was never inserted.
+	 * @param itemEnv
+	 * @param item
+	 * @return true if the item may have been removed, false if it was definitely not in the tree
+	 */
+	@Override
+	public boolean remove(Envelope itemEnv, Object item) {
+		synchronized (lock) {
+			if (pendingOperations != null)
+				pendingOperations.add(new Operation(false, item, null));
+			boolean removed = removeImpl(item);
+			mergeIfNeeded();
+			return removed;
+		}
+	}
+
+	@Override
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public List query(Envelope searchEnv) {
+		List<Object> list = new ArrayList<>();
+		query(searchEnv, list::add);
+		return list;
+	}
+
+	@Override
+	public void query(Envelope searchEnv, ItemVisitor visitor) {
+		if (searchEnv.isNull())
+			return;
+		query(searchEnv.getMinX(), searchEnv.getMinY(), searchEnv.getMaxX(), searchEnv.getMaxY(), visitor);
+	}
+
+	/**
+	 * Query all items with bounds that intersect a rectangle.
+	 * Bounds are treated as closed intervals, consistent with {@link Envelope#intersects(Envelope)}.
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param visitor
+	 */
+	void query(double minX, double minY, double maxX, double maxY, ItemVisitor visitor) {
+		var current = state;
+		var removed = current.removed;
+		if (removed.isEmpty())
+			current.tree.query(minX, minY, maxX, maxY, visitor);
+		else
+			current.tree.query(minX, minY, maxX, maxY, item -> {
+				if (!removed.contains(item))
+					visitor.visitItem(item);
+			});
+		current.buffer.query(minX, minY, maxX, maxY, visitor);
+	}
+
+
+	private void insertImpl(Object item, double minX, double minY, double maxX, double maxY) {
+		var current = state;
+		state = new State(current.tree, current.buffer.add(item, minX, minY, maxX, maxY), current.removed);
+	}
+
+	private boolean removeImpl(Object item) {
+		var current = state;
+		var buffer = current.buffer.remove(item);
+		if (buffer != current.buffer) {
+			// If the item is also in the tree, it must have been removed before it was inserted again -
+			// so it will already be recorded as removed
+			state = new State(current.tree, buffer, current.removed);
+			return true;
+		}
+		// We can't cheaply check whether the tree contains the item, so record it as removed anyway
+		return current.tree.size() > 0 && current.removed.add(item);
+	}
+
+	private int maxBufferSize(int treeSize) {
+		return Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, treeSize / 16));
+	}
+
+	private void mergeIfNeeded() {
+		if (pendingOperations != null)
+			return;
+		var current = state;
+		if (current.buffer.size() + current.removed.size() <= maxBufferSize(current.tree.size()))
+			return;
+		var removed = Set.copyOf(current.removed);
+		if (!backgroundMerge) {
+			state = new State(merge(current, removed), Buffer.EMPTY, ConcurrentHashMap.newKeySet());
+			return;
+		}
+		pendingOperations = new ArrayList<>();
+		ForkJoinPool.commonPool().execute(() -> mergeInBackground(current, removed));
+	}
+
+	private void mergeInBackground(State previous, Set<Object> removed) {
+		PackedTree tree = null;
+		try {
+			tree = merge(previous, removed);
+		} catch (Throwable e) {
+			logger.warn("Unable to rebuild spatial index: {}", e.getMessage(), e);
+		}
+		synchronized (lock) {
+			var operations = pendingOperations;
+			pendingOperations = null;
+			if (tree != null) {
+				// Replay any changes made while the new tree was being built
+				state = new State(tree, Buffer.EMPTY, ConcurrentHashMap.newKeySet());
+				for (var op : operations) {
+					if (op.insert)
+						insertImpl(op.item, op.envelope.getMinX(), op.envelope.getMinY(), op.envelope.getMaxX(), op.envelope.getMaxY());
+					else
+						removeImpl(op.item);
+				}
+				mergeIfNeeded();
+			}
+		}
+	}
+
+	private PackedTree merge(State previous, Set<Object> removed) {
+		long startTime = System.currentTimeMillis();
+		var tree = previous.tree;
+		var buffer = previous.buffer;
+		int n = tree.size() + buffer.size();
+		Object[] items = new Object[n];
+		double[] bounds = new double[n * 4];
+		int count = 0;
+		for (int i = 0; i < tree.size(); i++) {
+			var item = tree.items[i];
+			if (removed.contains(item))
+				continue;
+			items[count] = item;
+			System.arraycopy(tree.levelBounds[0], i * 4, bounds, count * 4, 4);
+			count++;
+		}
+		for (int i = 0; i < buffer.size(); i++) {
+			items[count] = buffer.items[i];
+			System.arraycopy(buffer.bounds, i * 4, bounds, count * 4, 4);
+			count++;
+		}
+		var newTree = PackedTree.build(items, bounds, count, nodeSize);
+		long endTime = System.currentTimeMillis();
+		logger.debug("Spatial index with {} items rebuilt in {} ms", count, endTime - startTime);
+		return newTree;
+	}
+
+
+	/**
+	 * An immutable snapshot of the state of the tree.
+	 * The set of removed items may be updated, but only to add items that queries should skip.
+	 */
+	private record State(PackedTree tree, Buffer buffer, Set<Object> removed) {}
+
+	/**
+	 * A change made while the tree was being rebuilt.
+	 */
+	private record Operation(boolean insert, Object item, Envelope envelope) {}
+
+
+	/**
+	 * Items that have been inserted since the tree was built.
+	 * New items are appended to the arrays, which may be shared with an earlier buffer of the same size;
+	 * queries using the earlier buffer never read beyond their own size.
+	 */
+	private static class Buffer {
+
+		private static final Buffer EMPTY = new Buffer(new Object[0], new double[0], 0);
+
+		private final Object[] items;
+		private final double[] bounds;
+		private final int size;
+
+		private Buffer(Object[] items, double[] bounds, int size) {
+			this.items = items;
+			this.bounds = bounds;
+			this.size = size;
+		}
+
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Must be called while holding the lock, and only for the current buffer.
+		 */
+		Buffer add(Object item, double minX, double minY, double maxX, double maxY) {
+			var items = this.items;
+			var bounds = this.bounds;
+			if (size == items.length) {
+				int newLength = Math.max(16, size * 2);
+				items = Arrays.copyOf(items, newLength);
+				bounds = Arrays.copyOf(bounds, newLength * 4);
+			}
+			items[size] = item;
+			int ind = size * 4;
+			bounds[ind] = minX;
+			bounds[ind+1] = minY;
+			bounds[ind+2] = maxX;
+			bounds[ind+3] = maxY;
+			return new Buffer(items, bounds, size + 1);
+		}
+
+		/**
+		 * Remove all occurrences of an item, returning this buffer unchanged if the item isn't found.
+		 */
+		Buffer remove(Object item) {
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (item.equals(items[i]))
+					count++;
+			}
+			if (count == 0)
+				return this;
+			// Always copy, since the arrays may be shared with an earlier buffer
+			int newSize = size - count;
+			Object[] newItems = new Object[Math.max(16, newSize)];
+			double[] newBounds = new double[newItems.length * 4];
+			int ind = 0;
+			for (int i = 0; i < size; i++) {
+				if (item.equals(items[i]))
+					continue;
+				newItems[ind] = items[i];
+				System.arraycopy(bounds, i * 4, newBounds, ind * 4, 4);
+				ind++;
+			}
+			return new Buffer(newItems, newBounds, newSize);
+		}
+
+		void query(double minX, double minY, double maxX, double maxY, ItemVisitor visitor) {
+			for (int i = 0; i < size; i++) {
+				int ind = i * 4;
+				if (bounds[ind] <= maxX && bounds[ind+1] <= maxY && bounds[ind+2] >= minX && bounds[ind+3] >= minY)
+					visitor.visitItem(items[i]);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Immutable packed tree.
+	 * Level 0 contains the bounds of each item, sorted by Hilbert index.
+	 * Each higher level contains the bounds of nodes, where node {@code i} contains the entries
+	 * {@code [i * nodeSize, (i + 1) * nodeSize)} of the level below.
+	 */
+	private static class PackedTree {
+
+		private static final PackedTree EMPTY = new PackedTree(new Object[0], new double[][]{new double[0]}, 2);
+
+		private final Object[] items;
+		private final double[][] levelBounds;
+		private final int nodeSize;
+
+		private PackedTree(Object[] items, double[][] levelBounds, int nodeSize) {
+			this.items = items;
+			this.levelBounds = levelBounds;
+			this.nodeSize = nodeSize;
+		}
+
+		int size() {
+			return items.length;
+		}
+
+		/**
+		 * Build a tree from the first n items and their bounds.
+		 */
+		static PackedTree build(Object[] items, double[] bounds, int n, int nodeSize) {
+			if (n == 0)
+				return EMPTY;
+			boolean parallel = n >= PARALLEL_THRESHOLD;
+
+			// Get the full extent, so we can scale bounding box centers to the Hilbert grid
+			double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				int ind = i * 4;
+				minX = Math.min(minX, bounds[ind]);
+				minY = Math.min(minY, bounds[ind+1]);
+				maxX = Math.max(maxX, bounds[ind+2]);
+				maxY = Math.max(maxY, bounds[ind+3]);
+			}
+			int maxCell = (1 << HILBERT_ORDER) - 1;
+			double scaleX = maxX > minX ? maxCell / (maxX - minX) : 0;
+			double scaleY = maxY > minY ? maxCell / (maxY - minY) : 0;
+			double x0 = minX, y0 = minY;
+
+			// Sort by Hilbert index, packing the original position into the lower bits
+			long[] keys = new long[n];
+			var indices = IntStream.range(0, n);
+			if (parallel)
+				indices = indices.parallel();
+			indices.forEach(i -> {
+				int ind = i * 4;
+				int x = (int)(((bounds[ind] + bounds[ind+2]) / 2 - x0) * scaleX);
+				int y = (int)(((bounds[ind+1] + bounds[ind+3]) / 2 - y0) * scaleY);
+				long h = HilbertCurve.encode(HILBERT_ORDER, clip(x, maxCell), clip(y, maxCell));
+				keys[i] = (h << 31) | i;
+			});
+			if (parallel)
+				Arrays.parallelSort(keys);
+			else
+				Arrays.sort(keys);
+
+			Object[] sortedItems = new Object[n];
+			double[] leafBounds = new double[n * 4];
+			indices = IntStream.range(0, n);
+			if (parallel)
+				indices = indices.parallel();
+			indices.forEach(i -> {
+				int source = (int)(keys[i] & Integer.MAX_VALUE);
+				sortedItems[i] = items[source];
+				System.arraycopy(bounds, source * 4, leafBounds, i * 4, 4);
+			});
+
+			// Build the levels above the leaves
+			List<double[]> levels = new ArrayList<>();
+			levels.add(leafBounds);
+			double[] previous = leafBounds;
+			while (previous.length > 4) {
+				int nChildren = previous.length / 4;
+				int nNodes = (nChildren + nodeSize - 1) / nodeSize;
+				double[] level = new double[nNodes * 4];
+				var childBounds = previous;
+				var nodes = IntStream.range(0, nNodes);
+				if (parallel && nNodes >= PARALLEL_THRESHOLD / nodeSize)
+					nodes = nodes.parallel();
+				nodes.forEach(i -> {
+					double nodeMinX = Double.POSITIVE_INFINITY, nodeMinY = Double.POSITIVE_INFINITY;
+					double nodeMaxX = Double.NEGATIVE_INFINITY, nodeMaxY = Double.NEGATIVE_INFINITY;
+					int end = Math.min(nChildren, (i + 1) * nodeSize);
+					for (int c = i * nodeSize; c < end; c++) {
+						int ind = c * 4;
+						nodeMinX = Math.min(nodeMinX, childBounds[ind]);
+						nodeMinY = Math.min(nodeMinY, childBounds[ind+1]);
+						nodeMaxX = Math.max(nodeMaxX, childBounds[ind+2]);
+						nodeMaxY = Math.max(nodeMaxY, childBounds[ind+3]);
+					}
+					int ind = i * 4;
+					level[ind] = nodeMinX;
+					level[ind+1] = nodeMinY;
+					level[ind+2] = nodeMaxX;
+					level[ind+3] = nodeMaxY;
+				});
+				levels.add(level);
+				previous = level;
+			}
+			return new PackedTree(sortedItems, levels.toArray(double[][]::new), nodeSize);
+		}
+
+		private static int clip(int value, int max) {
+			return value < 0 ? 0 : Math.min(value, max);
+		}
+
+		void query(double minX, double minY, double maxX, double maxY, ItemVisitor visitor) {
+			if (items.length == 0)
+				return;
+			// Stack of (level, node) pairs still to be visited
+			int[] stack = new int[levelBounds.length * nodeSize * 2];
+			int top = 0;
+			stack[top++] = levelBounds.length - 1;
+			stack[top++] = 0;
+			while (top > 0) {
+				int node = stack[--top];
+				int level = stack[--top];
+				var bounds = levelBounds[level];
+				int ind = node * 4;
+				if (bounds[ind] > maxX || bounds[ind+1] > maxY || bounds[ind+2] < minX || bounds[ind+3] < minY)
+					continue;
+				if (level == 0) {
+					visitor.visitItem(items[node]);
+				} else {
+					int nChildren = levelBounds[level - 1].length / 4;
+					int end = Math.min(nChildren, (node + 1) * nodeSize);
+					// Push in reverse, so that items are visited in Hilbert order
+					for (int c = end - 1; c >= node * nodeSize; c--) {
+						stack[top++] = level - 1;
+						stack[top++] = c;
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,369 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.objects.PathCellObject;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyListener;
+import qupath.lib.regions.ImageRegion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Manage the blocks of objects that have been loaded into a hierarchy from a {@link PathObjectBlockSource}.
+ * <p>
+ * Blocks are loaded when they intersect a requested region, and the least recently used blocks are
+ * removed again whenever there are more than a fixed number in memory.
+ * Blocks are never removed if they contain selected objects, or objects that have been changed.
+ * Changes are detected from hierarchy events, and also by comparing a fingerprint of each object
+ * (e.g. classification, name, ROI, measurements, metadata) with the fingerprint when it was loaded.
+ * This is needed because objects can be changed without any event being fired, e.g. by a script
+ * that sets measurements or classifications before firing a single event at the end (or not at all).
+ * <p>
+ * Blocks are loaded and removed while holding the hierarchy lock.
+ * Checking whether blocks are already loaded does not require the lock, so that repeated requests
+ * for the same region (e.g. while painting) remain cheap.
+ */
+class PathObjectBlockCache implements PathObjectHierarchyListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(PathObjectBlockCache.class);
+
+	private final PathObjectHierarchy hierarchy;
+	private final PathObjectTileCache tileCache;
+	private final PathObjectBlockSource source;
+	private final int maxResidentBlocks;
+	private final ImageRegion[] regions;
+
+	// Access counter for each block, or 0 if the block is not currently loaded
+	private final AtomicLongArray lastAccess;
+	private final AtomicLong accessCounter;
+
+	// All fields below should only be accessed while holding the hierarchy lock
+	private final List<List<PathObject>> residentObjects;
+	private final List<long[]> residentFingerprints;
+	private final Map<PathObject, Integer> objectBlocks;
+	private final BitSet pinned;
+	private int nResident;
+	private long nUnloadedObjects;
+	private boolean disposed = false;
+
+	PathObjectBlockCache(PathObjectHierarchy hierarchy, PathObjectTileCache tileCache, PathObjectBlockSource source, int maxResidentBlocks) {
+		if (maxResidentBlocks <= 0)
+			throw new IllegalArgumentException("Maximum number of resident blocks must be > 0");
+		this.hierarchy = hierarchy;
+		this.tileCache = tileCache;
+		this.source = source;
+		this.maxResidentBlocks = maxResidentBlocks;
+		int n = source.getBlockCount();
+		this.regions = new ImageRegion[n];
+		for (int i = 0; i < n; i++) {
+			regions[i] = source.getBlockRegion(i);
+			nUnloadedObjects += source.getBlockObjectCount(i);
+		}
+		this.lastAccess = new AtomicLongArray(n);
+		this.accessCounter = new AtomicLong();
+		this.residentObjects = new ArrayList<>(Collections.nCopies(n, null));
+		this.residentFingerprints = new ArrayList<>(Collections.nCopies(n, null));
+		this.objectBlocks = new IdentityHashMap<>();
+		this.pinned = new BitSet(n);
+		hierarchy.addListener(this);
+	}
+
+	/**
+	 * Create a new cache for a different hierarchy, taking over the state of an existing cache.
+	 * This is needed when the root object of one hierarchy is transferred to another.
+	 * The existing cache is disposed.
+	 */
+	PathObjectBlockCache(PathObjectHierarchy hierarchy, PathObjectTileCache tileCache, PathObjectBlockCache previous) {
+		this.hierarchy = hierarchy;
+		this.tileCache = tileCache;
+		this.source = previous.source;
+		this.maxResidentBlocks = previous.maxResidentBlocks;
+		this.regions = previous.regions;
+		this.lastAccess = previous.lastAccess;
+		this.accessCounter = previous.accessCounter;
+		this.residentObjects = previous.residentObjects;
+		this.residentFingerprints = previous.residentFingerprints;
+		this.objectBlocks = previous.objectBlocks;
+		this.pinned = previous.pinned;
+		this.nResident = previous.nResident;
+		this.nUnloadedObjects = previous.nUnloadedObjects;
+		previous.dispose();
+		hierarchy.addListener(this);
+	}
+
+	/**
+	 * Get the number of objects in all the blocks that are not currently loaded.
+	 * @return
+	 */
+	long getUnloadedObjectCount() {
+		synchronized (hierarchy) {
+			return nUnloadedObjects;
+		}
+	}
+
+	/**
+	 * Ensure that all blocks intersecting a region are loaded.
+	 * @param region
+	 */
+	void ensureLoaded(ImageRegion region) {
+		List<Integer> required = null;
+		for (int i = 0; i < regions.length; i++) {
+			if (!intersects(regions[i], region))
+				continue;
+			long current = lastAccess.get(i);
+			if (current == 0 || !lastAccess.compareAndSet(i, current, accessCounter.incrementAndGet())) {
+				if (required == null)
+					required = new ArrayList<>();
+				required.add(i);
+			}
+		}
+		if (required == null)
+			return;
+		synchronized (hierarchy) {
+			if (disposed)
+				return;
+			for (int i : required) {
+				if (lastAccess.get(i) == 0)
+					loadBlock(i);
+				lastAccess.set(i, accessCounter.incrementAndGet());
+			}
+			evictBlocks(required);
+		}
+	}
+
+	/**
+	 * Load all remaining blocks and stop responding to hierarchy events.
+	 * After calling this method, the hierarchy contains all objects and this cache should be discarded.
+	 */
+	void loadAll() {
+		synchronized (hierarchy) {
+			if (disposed)
+				return;
+			long startTime = System.currentTimeMillis();
+			int nLoaded = 0;
+			for (int i = 0; i < regions.length; i++) {
+				if (lastAccess.get(i) == 0) {
+					loadBlock(i, false);
+					nLoaded++;
+				}
+			}
+			// It's more efficient to rebuild the tile cache if it's needed again
+			tileCache.resetCache();
+			dispose();
+			long endTime = System.currentTimeMillis();
+			logger.debug("Loaded {} remaining object blocks in {} ms", nLoaded, endTime - startTime);
+		}
+	}
+
+	/**
+	 * Stop responding to hierarchy events, and ignore any further requests to load blocks.
+	 */
+	void dispose() {
+		synchronized (hierarchy) {
+			disposed = true;
+			hierarchy.removeListener(this);
+		}
+	}
+
+	private void loadBlock(int block) {
+		loadBlock(block, true);
+	}
+
+	/**
+	 * Load a block of objects.
+	 * @param block the block index
+	 * @param track if true, keep track of the objects (and add them to the tile cache) so that the block can
+	 *              later be removed; this is not needed if all blocks are being loaded
+	 */
+	private void loadBlock(int block, boolean track) {
+		Map<PathObject, List<PathObject>> map;
+		try {
+			map = source.loadBlock(block);
+		} catch (IOException e) {
+			// Don't keep trying to read a block that fails - and don't try to evict it either
+			logger.error("Unable to load objects for region {}: {}", regions[block], e.getMessage(), e);
+			map = Collections.emptyMap();
+			pinned.set(block);
+		}
+		List<PathObject> objects = new ArrayList<>();
+		for (var entry : map.entrySet()) {
+			entry.getKey().addChildObjects(entry.getValue());
+			objects.addAll(entry.getValue());
+		}
+		if (track) {
+			tileCache.addObjects(objects);
+			for (var pathObject : objects)
+				objectBlocks.put(pathObject, block);
+			residentObjects.set(block, objects);
+			residentFingerprints.set(block, computeFingerprints(objects));
+		}
+		lastAccess.set(block, accessCounter.incrementAndGet());
+		nResident++;
+		nUnloadedObjects -= source.getBlockObjectCount(block);
+		logger.trace("Loaded {} objects for block {}", objects.size(), block);
+	}
+
+	private void evictBlocks(List<Integer> required) {
+		while (nResident > maxResidentBlocks) {
+			int block = -1;
+			long oldest = Long.MAX_VALUE;
+			for (int i = 0; i < regions.length; i++) {
+				long access = lastAccess.get(i);
+				if (access != 0 && access < oldest && !pinned.get(i) && !required.contains(i) && !containsSelectedObjects(i)) {
+					block = i;
+					oldest = access;
+				}
+			}
+			if (block < 0)
+				return;
+			if (isModified(block)) {
+				logger.trace("Pinning modified block {}", block);
+				pinned.set(block);
+			} else
+				unloadBlock(block);
+		}
+	}
+
+	private boolean containsSelectedObjects(int block) {
+		var selectionModel = hierarchy.getSelectionModel();
+		if (selectionModel.noSelection())
+			return false;
+		for (var pathObject : residentObjects.get(block)) {
+			if (selectionModel.isSelected(pathObject))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether any object in a block has changed since it was loaded.
+	 */
+	private boolean isModified(int block) {
+		var objects = residentObjects.get(block);
+		var fingerprints = residentFingerprints.get(block);
+		for (int i = 0; i < fingerprints.length; i++) {
+			if (fingerprints[i] != computeFingerprint(objects.get(i)))
+				return true;
+		}
+		return false;
+	}
+
+	private static long[] computeFingerprints(List<PathObject> objects) {
+		long[] fingerprints = new long[objects.size()];
+		for (int i = 0; i < fingerprints.length; i++)
+			fingerprints[i] = computeFingerprint(objects.get(i));
+		return fingerprints;
+	}
+
+	/**
+	 * Compute a fingerprint for the properties of an object that could be changed without firing a hierarchy event.
+	 * ROIs are compared by identity, since they are immutable and can only be changed by setting a new ROI.
+	 */
+	private static long computeFingerprint(PathObject pathObject) {
+		long h = Objects.hashCode(pathObject.getID());
+		h = 31 * h + Objects.hashCode(pathObject.getPathClass());
+		h = 31 * h + Double.hashCode(pathObject.getClassProbability());
+		h = 31 * h + Objects.hashCode(pathObject.getName());
+		h = 31 * h + Objects.hashCode(pathObject.getColor());
+		h = 31 * h + Boolean.hashCode(pathObject.isLocked());
+		h = 31 * h + System.identityHashCode(pathObject.getROI());
+		if (pathObject instanceof PathCellObject cell)
+			h = 31 * h + System.identityHashCode(cell.getNucleusROI());
+		h = 31 * h + System.identityHashCode(pathObject.getParent());
+		h = 31 * h + pathObject.nChildObjects();
+		if (pathObject.hasMeasurements()) {
+			var measurements = pathObject.getMeasurementList();
+			h = 31 * h + measurements.getNames().hashCode();
+			h = 31 * h + Arrays.hashCode(measurements.values());
+		}
+		if (pathObject.hasMetadata())
+			h = 31 * h + pathObject.getMetadata().hashCode();
+		return h;
+	}
+
+	private void unloadBlock(int block) {
+		var objects = residentObjects.get(block);
+		Map<PathObject, List<PathObject>> map = new LinkedHashMap<>();
+		for (var pathObject : objects) {
+			var parent = pathObject.getParent();
+			if (parent != null)
+				map.computeIfAbsent(parent, p -> new ArrayList<>()).add(pathObject);
+			objectBlocks.remove(pathObject);
+		}
+		for (var entry : map.entrySet())
+			entry.getKey().removeChildObjects(entry.getValue());
+		tileCache.removeObjects(objects);
+		residentObjects.set(block, null);
+		residentFingerprints.set(block, null);
+		lastAccess.set(block, 0);
+		nResident--;
+		nUnloadedObjects += source.getBlockObjectCount(block);
+		logger.trace("Unloaded {} objects for block {}", objects.size(), block);
+	}
+
+	@Override
+	public void hierarchyChanged(PathObjectHierarchyEvent event) {
+		// Ensure that we never discard blocks containing objects that may have been modified
+		synchronized (hierarchy) {
+			if (disposed)
+				return;
+			boolean pinAll = event.isStructureChangeEvent();
+			for (var pathObject : event.getChangedObjects()) {
+				if (pathObject.isRootObject()) {
+					pinAll = true;
+					break;
+				}
+				var block = objectBlocks.get(pathObject);
+				if (block != null)
+					pinned.set(block);
+			}
+			if (pinAll) {
+				for (int i = 0; i < regions.length; i++) {
+					if (lastAccess.get(i) != 0)
+						pinned.set(i);
+				}
+			}
+		}
+	}
+
+	private static boolean intersects(ImageRegion block, ImageRegion region) {
+		return block.getZ() == region.getZ() && block.getT() == region.getT() &&
+				block.getMinX() <= region.getMaxX() && block.getMaxX() >= region.getMinX() &&
+				block.getMinY() <= region.getMaxY() && block.getMaxY() >= region.getMinY();
+	}
+
+}
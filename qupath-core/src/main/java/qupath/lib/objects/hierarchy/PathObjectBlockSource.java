@@ -0,0 +1,77 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.regions.ImageRegion;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A source of detection objects that can be loaded into a {@link PathObjectHierarchy} on demand.
+ * <p>
+ * Objects are divided into blocks, where each block contains objects that are close together
+ * within a single image plane.
+ * This makes it possible to open a hierarchy containing a very large number of detections
+ * without creating all of them immediately, and to load only the blocks needed to respond to
+ * requests for specific regions.
+ * <p>
+ * Objects in a block must not have child objects, and their parents must already be part of the hierarchy.
+ * Each call to {@link #loadBlock(int)} should return new objects, because blocks that have been loaded
+ * may later be discarded by the hierarchy to save memory.
+ *
+ * @since v0.8.0
+ * @see PathObjectHierarchy#setBlockSource(PathObjectBlockSource, int)
+ */
+public interface PathObjectBlockSource {
+
+	/**
+	 * Get the number of blocks available from this source.
+	 * @return
+	 */
+	int getBlockCount();
+
+	/**
+	 * Get a region containing the bounding boxes of all the ROIs of all objects in a block.
+	 * @param block the block index
+	 * @return
+	 */
+	ImageRegion getBlockRegion(int block);
+
+	/**
+	 * Get the number of objects in a block.
+	 * @param block the block index
+	 * @return
+	 */
+	int getBlockObjectCount(int block);
+
+	/**
+	 * Load the objects in a block.
+	 * @param block the block index
+	 * @return a map with parent objects as keys, and the objects that should be added to each parent as values
+	 * @throws IOException if the block could not be read
+	 */
+	Map<PathObject, List<PathObject>> loadBlock(int block) throws IOException;
+
+}
@@ -36,6 +36,7 @@ import qupath.lib.objects.PathObjectTools;
 import qupath.lib.objects.PathRootObject;
 import qupath.lib.objects.PathTileObject;
 import qupath.lib.objects.TMACoreObject;
+import qupath.lib.objects.classes.PathClass;
 import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
 import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent.HierarchyEventType;
 import qupath.lib.objects.hierarchy.events.PathObjectHierarchyListener;
@@ -44,6 +45,8 @@ import qupath.lib.regions.ImagePlane;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.roi.interfaces.ROI;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -52,6 +55,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +63,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjDoubleConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -72,6 +77,11 @@ import java.util.stream.Collectors;
  * Note: Be cautious when deserializing - it may not result in a hierarchy in a valid state.
  * As a workaround, you can construct a new PathObjectHierarchy and call setHierarchy(deserializedHierarchy) to
  * ensure that you have a properly-constructed hierarchy with the same data within it.
+ * <p>
+ * Since v0.8.0, a hierarchy may also be only partially loaded, with detections being read on demand from a
+ * {@link PathObjectBlockSource} whenever objects are requested for a specific region.
+ * Any request for all detections, or any change to the hierarchy structure, causes the remaining detections to be loaded.
+ * Code that traverses the child objects directly (starting from the root object) should call {@link #ensureFullyLoaded()} first.
  * 
  * @author Pete Bankhead
  */
@@ -81,6 +91,9 @@ public final class PathObjectHierarchy implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
 	private static final Logger logger = LoggerFactory.getLogger(PathObjectHierarchy.class);
+
+	// Minimum number of detections to insert before parents are identified in parallel
+	private static final int MIN_PARALLEL_INSERT = 1000;
 	
 	private TMAGrid tmaGrid = null;
 	private PathObject rootObject = new PathRootObject();
@@ -96,6 +109,9 @@ public final class PathObjectHierarchy implements Serializable {
 
 	private transient AtomicLong eventCount = new AtomicLong();
 
+	// Blocks of objects that can be loaded on demand, or null if the hierarchy is fully loaded
+	private transient volatile PathObjectBlockCache blockCache;
+
 	/**
 	 * Default constructor, creates an empty hierarchy.
 	 */
@@ -103,6 +119,13 @@ public final class PathObjectHierarchy implements Serializable {
 		super();
 	}
 
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// Serialization needs all objects to be available
+		ensureFullyLoaded();
+		out.defaultWriteObject();
+	}
+
 	
 	/**
 	 * Check if the hierarchy is empty (i.e. no objects apart from the root object, no feature maps)
@@ -110,7 +133,9 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 */
 	public synchronized boolean isEmpty() {
-		return (tmaGrid == null || tmaGrid.nCores() == 0) && !rootObject.hasChildObjects();// && featureMaps.isEmpty();
+		var cache = blockCache;
+		return (tmaGrid == null || tmaGrid.nCores() == 0) && !rootObject.hasChildObjects() &&
+				(cache == null || cache.getUnloadedObjectCount() == 0);// && featureMaps.isEmpty();
 	}
 	
 	/**
@@ -160,6 +185,81 @@ public final class PathObjectHierarchy implements Serializable {
 	public PathObjectSelectionModel getSelectionModel() {
 		return selectionModel;
 	}
+
+	/**
+	 * Set a source from which detections can be loaded on demand.
+	 * <p>
+	 * Blocks of objects are loaded from the source whenever objects are requested for a region that the block
+	 * intersects.
+	 * To limit memory use, the least recently used blocks are removed again from the hierarchy if more than
+	 * {@code maxResidentBlocks} are loaded - unless they contain objects that are selected, or that have been
+	 * changed (either as indicated by a hierarchy event, or because their properties differ from when they were loaded).
+	 * <p>
+	 * While objects are loaded on demand, the child objects of each parent only include the loaded objects.
+	 * This affects methods such as {@link PathObject#nChildObjects()}, and therefore also the detection counts
+	 * shown for annotations.
+	 * {@link #nObjects()} always includes objects that have not been loaded.
+	 * <p>
+	 * Any existing source will be fully loaded before the new source is set.
+	 * @param source the source of objects, or null if no source should be used
+	 * @param maxResidentBlocks the maximum number of blocks that should normally be kept in memory
+	 * @see #ensureFullyLoaded()
+	 * @since v0.8.0
+	 */
+	public synchronized void setBlockSource(PathObjectBlockSource source, int maxResidentBlocks) {
+		ensureFullyLoaded();
+		if (source != null && source.getBlockCount() > 0) {
+			blockCache = new PathObjectBlockCache(this, tileCache, source, maxResidentBlocks);
+			tileCache.resetCache();
+		}
+	}
+
+	/**
+	 * Query whether all objects in the hierarchy have been loaded.
+	 * @return true if all objects have been loaded, false if some may still be loaded on demand
+	 * @see #setBlockSource(PathObjectBlockSource, int)
+	 * @since v0.8.0
+	 */
+	public boolean isFullyLoaded() {
+		return blockCache == null;
+	}
+
+	/**
+	 * Ensure that all objects have been loaded into the hierarchy, if any are being loaded on demand.
+	 * This is called automatically before any change to the hierarchy structure, and whenever all detections are requested.
+	 * @see #setBlockSource(PathObjectBlockSource, int)
+	 * @since v0.8.0
+	 */
+	public void ensureFullyLoaded() {
+		if (blockCache == null)
+			return;
+		synchronized (this) {
+			var cache = blockCache;
+			if (cache != null) {
+				cache.loadAll();
+				blockCache = null;
+			}
+		}
+	}
+
+	/**
+	 * Ensure that objects that could be relevant to a request for a specific class and region have been loaded.
+	 * @param cls the requested class, or null for all objects
+	 * @param region the requested region, or null for the entire image
+	 */
+	private void ensureLoaded(Class<? extends PathObject> cls, ImageRegion region) {
+		var cache = blockCache;
+		if (cache == null || !mayBeDetectionClass(cls))
+			return;
+		if (region == null)
+			ensureFullyLoaded();
+		else
+			cache.ensureLoaded(region);
+	}
+
+	private static boolean mayBeDetectionClass(Class<? extends PathObject> cls) {
+		return cls == null || cls.isAssignableFrom(PathDetectionObject.class) || PathDetectionObject.class.isAssignableFrom(cls);
+	}
 	
 	/**
 	 * Set the tma grid for this hierarchy.
@@ -220,7 +320,20 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return true if the hierarchy changed as a result of this call, false otherwise
 	 */
 	public synchronized boolean insertPathObjects(Collection<? extends PathObject> pathObjects) {
-		var selectedObjects =  new ArrayList<>(pathObjects);
+		return insertPathObjectsImpl(pathObjects, true);
+	}
+
+	/**
+	 * Insert a collection of objects into the hierarchy.
+	 * <p>
+	 * Detections can't be the parent of other objects, so parents are identified in parallel for any detections
+	 * that are next to one another after sorting.
+	 * @param pathObjects the objects to insert
+	 * @param fireChangeEvents if false, no events are fired; this is useful if the caller will fire its own event later
+	 * @return true if the hierarchy changed as a result of this call, false otherwise
+	 */
+	private synchronized boolean insertPathObjectsImpl(Collection<? extends PathObject> pathObjects, boolean fireChangeEvents) {
+		var selectedObjects =  new ArrayList<PathObject>(pathObjects);
 		int nObjects = selectedObjects.size();
 		selectedObjects.removeIf(PathObject::isTMACore);
 		if (selectedObjects.size() < nObjects)
@@ -228,47 +341,121 @@ public final class PathObjectHierarchy implements Serializable {
 		
 		if (selectedObjects.isEmpty())
 			return false;
-		removeObjects(selectedObjects, true);
+		if (fireChangeEvents)
+			removeObjects(selectedObjects, true);
+		else
+			removeObjectsImpl(selectedObjects, true);
 		selectedObjects.sort(PathObjectHierarchy.HIERARCHY_COMPARATOR.reversed());
-		boolean singleObject = selectedObjects.size() == 1;
+		if (selectedObjects.size() == 1)
+			return insertPathObject(getRootObject(), selectedObjects.getFirst(), fireChangeEvents, !fireChangeEvents);
 		// We don't want to reset caches for every object if we have only detections, since previously-inserted objects don't impact the potential parent
 		boolean allDetections = selectedObjects.stream().allMatch(PathObject::isDetection);
+		List<PathObject> detections = new ArrayList<>();
 		for (var pathObject : selectedObjects) {
-//			hierarchy.insertPathObject(pathObject, true);
-			insertPathObject(getRootObject(), pathObject, singleObject, !singleObject && !allDetections);
-//			insertPathObject(pathObject, selectedObjects.size() == 1);
+			if (pathObject.isDetection()) {
+				detections.add(pathObject);
+			} else {
+				insertDetections(detections, !allDetections);
+				detections.clear();
+				insertPathObject(getRootObject(), pathObject, false, !allDetections);
+			}
 		}
-		if (!singleObject)
+		insertDetections(detections, !allDetections);
+		if (fireChangeEvents)
 			fireHierarchyChangedEvent(this);
 		return true;
 	}
+
+	/**
+	 * Insert detections into the hierarchy, identifying their parents in parallel if there are enough of them.
+	 * This gives the same result as inserting the detections one at a time, but without needing to search for
+	 * parents while holding locks on the objects being modified.
+	 * @param detections the detections to insert; these should have been removed from the hierarchy already
+	 * @param resetCache if true, reset the tile cache after inserting the detections
+	 */
+	private synchronized void insertDetections(List<PathObject> detections, boolean resetCache) {
+		if (detections.isEmpty())
+			return;
+		var root = getRootObject();
+		// Ensure the cache is built before querying it from multiple threads
+		tileCache.ensureCacheConstructed();
+		var stream = detections.size() >= MIN_PARALLEL_INSERT ? detections.parallelStream() : detections.stream();
+		var parents = stream.map(p -> findInsertionParent(root, p)).toList();
+		Map<PathObject, List<PathObject>> childMap = new LinkedHashMap<>();
+		for (int i = 0; i < detections.size(); i++) {
+			var pathObject = detections.get(i);
+			var parent = parents.get(i);
+			if (parent == null || pathObject.getParent() == parent)
+				continue;
+			if (parent.isTMACore()) {
+				// Inserting below a TMA core can also reassign detections below the root, so do this in order
+				addChildObjects(childMap);
+				insertPathObject(root, pathObject, false, false);
+			} else {
+				childMap.computeIfAbsent(parent, k -> new ArrayList<>()).add(pathObject);
+			}
+		}
+		addChildObjects(childMap);
+		if (resetCache)
+			tileCache.resetCache();
+	}
+
+	private static void addChildObjects(Map<PathObject, List<PathObject>> childMap) {
+		for (var entry : childMap.entrySet())
+			entry.getKey().addChildObjects(entry.getValue());
+		childMap.clear();
+	}
 	
 	/**
 	 * Attempt to resolve the parent-child relationships between all objects within the hierarchy.
 	 */
-	public synchronized void resolveHierarchy() {
+	public void resolveHierarchy() {
+		resolveHierarchy(null);
+	}
+
+	/**
+	 * Attempt to resolve the parent-child relationships between all objects within the hierarchy,
+	 * optionally reporting progress.
+	 * <p>
+	 * The result is the same as removing all annotations, and then inserting them again with
+	 * {@link #insertPathObjects(Collection)}.
+	 * However, detections are assigned to annotations in parallel, which can be much faster for large images.
+	 * A single event is fired after the hierarchy has been resolved.
+	 * @param progress optional consumer that accepts a progress message and a value between 0 and 1;
+	 *                 this may be called from multiple threads
+	 * @since v0.8.0
+	 */
+	public synchronized void resolveHierarchy(ObjDoubleConsumer<String> progress) {
 		List<? extends PathObject> tmaCores = tmaGrid == null ? Collections.emptyList() : tmaGrid.getTMACoreList();
 		var annotations = getAnnotationObjects();
 		if (annotations.isEmpty() && tmaCores.isEmpty()) {
 			logger.debug("resolveHierarchy() called with no annotations or TMA cores!");
 			return;
 		}
+		ensureFullyLoaded();
 		var detections = getDetectionObjects();
 		if (annotations.size() > 1 && detections.size() > 1000) {
-			logger.warn("Resolving hierarchy that contains {} annotations and {} detections - this may be slow!",
+			logger.debug("Resolving hierarchy that contains {} annotations and {} detections",
 					annotations.size(), detections.size());
 		} else if (annotations.size() > 100) {
-			logger.warn("Resolving hierarchy with {} annotations - this may be slow!", annotations.size());
+			logger.debug("Resolving hierarchy with {} annotations", annotations.size());
 		}
+		boolean changes = false;
 		if (!tmaCores.isEmpty()) {
 			// Need to remove annotations first (they will be re-inserted later) so we can resolve detections if needed
-			if (!annotations.isEmpty())
-				removeObjects(annotations, true);
+			changes = removeObjectsImpl(annotations, true);
 			var remainingDetections = detections.stream().filter(p -> p.getParent() == rootObject).toList();
 			if (!remainingDetections.isEmpty())
-				insertPathObjects(remainingDetections);
+				changes = insertPathObjectsImpl(remainingDetections, false) || changes;
+		} else {
+			changes = removeObjectsImpl(annotations, true);
 		}
-		insertPathObjects(annotations);
+		if (!annotations.isEmpty()) {
+			new HierarchyResolver(this, tileCache, progress).resolve(annotations, tmaCores);
+			changes = true;
+		}
+		if (changes)
+			fireHierarchyChangedEvent(this);
 	}
 	
 	/**
@@ -285,7 +472,46 @@ public final class PathObjectHierarchy implements Serializable {
 			logger.warn("TMA core objects cannot be inserted - use resolveHierarchy() instead");
 			return false;
 		}
+		ensureFullyLoaded();
+
+		var possibleParent = findInsertionParent(pathObjectParent, pathObject);
+		if (possibleParent == null)
+			return true;
+
+		// Don't add if we're already where we should be
+		if (pathObject.getParent() == possibleParent)
+			return false;
+		
+		// Reassign child objects if we need to
+		Collection<PathObject> previousChildren = pathObject.isDetection() ? new ArrayList<>() : new ArrayList<>(possibleParent.getChildObjects());
+		// Can't reassign TMA core objects (these must be directly below the root object)
+		previousChildren.removeIf(PathObject::isTMACore);
+		// Beware that we could have 'orphaned' detections
+		if (possibleParent.isTMACore())
+			possibleParent.getParent().getChildObjects().stream().filter(PathObject::isDetection).forEach(previousChildren::add);
+		possibleParent.addChildObject(pathObject);
+		if (!previousChildren.isEmpty()) {
+			pathObject.addChildObjects(filterObjectsForROI(pathObject.getROI(), previousChildren));
+		}
+		
+		// Notify listeners of changes, if required
+		if (fireChangeEvents)
+			fireObjectAddedEvent(this, pathObject);
+		else if (resetCache)
+			tileCache.resetCache();
+		return true;
+	}
 
+	/**
+	 * Find the parent for an object that should be inserted into the hierarchy, without making any changes.
+	 * <p>
+	 * This doesn't lock the hierarchy, so that it can be called from multiple threads at once by a thread
+	 * that already holds the lock.
+	 * @param pathObjectParent the first potential parent; this can be used to help filter out 'impossible' parents to aid performance
+	 * @param pathObject the object to insert
+	 * @return the parent, or null if no suitable parent could be found
+	 */
+	private PathObject findInsertionParent(PathObject pathObjectParent, PathObject pathObject) {
 		// Get all the annotations that might be a parent of this object
 		var region = ImageRegion.createInstance(pathObject.getROI());
 		Collection<PathObject> tempSet = new HashSet<>();
@@ -294,11 +520,23 @@ public final class PathObjectHierarchy implements Serializable {
 		if (tmaGrid != null)
 			tileCache.getObjectsForRegion(TMACoreObject.class, region, tempSet, true);
 		
+		return selectInsertionParent(pathObjectParent, pathObject, tempSet);
+	}
+
+	/**
+	 * Select the parent for an object that should be inserted into the hierarchy from a collection of candidates.
+	 * This is the smallest candidate that contains the centroid of a detection, or covers any other object.
+	 * @param pathObjectParent the first potential parent; this can be used to help filter out 'impossible' parents to aid performance
+	 * @param pathObject the object to insert
+	 * @param candidates potential parents, usually found using a spatial index; this may be modified
+	 * @return the parent, or null if no suitable parent could be found
+	 */
+	PathObject selectInsertionParent(PathObject pathObjectParent, PathObject pathObject, Collection<PathObject> candidates) {
 		if (pathObjectParent != null) {
-			tempSet.removeIf(p -> p != pathObjectParent && !PathObjectTools.isAncestor(p, pathObjectParent));
+			candidates.removeIf(p -> p != pathObjectParent && !PathObjectTools.isAncestor(p, pathObjectParent));
 		}
 
-		var possibleParentObjects = new ArrayList<>(tempSet);
+		var possibleParentObjects = new ArrayList<>(candidates);
 		possibleParentObjects.sort(HIERARCHY_COMPARATOR);
 
 		for (PathObject possibleParent : possibleParentObjects) {
@@ -317,33 +555,10 @@ public final class PathObjectHierarchy implements Serializable {
 					addObject = pathObjectParent != null && possibleParent == pathObjectParent ||
 								tileCache.covers(possibleParent, pathObject);
 			}
-			
-			if (addObject) {
-				// Don't add if we're already where we should be
-				if (pathObject.getParent() == possibleParent)
-					return false;
-				
-				// Reassign child objects if we need to
-				Collection<PathObject> previousChildren = pathObject.isDetection() ? new ArrayList<>() : new ArrayList<>(possibleParent.getChildObjects());
-				// Can't reassign TMA core objects (these must be directly below the root object)
-				previousChildren.removeIf(PathObject::isTMACore);
-				// Beware that we could have 'orphaned' detections
-				if (possibleParent.isTMACore())
-					possibleParent.getParent().getChildObjects().stream().filter(PathObject::isDetection).forEach(previousChildren::add);
-				possibleParent.addChildObject(pathObject);
-				if (!previousChildren.isEmpty()) {
-					pathObject.addChildObjects(filterObjectsForROI(pathObject.getROI(), previousChildren));
-				}
-				
-				// Notify listeners of changes, if required
-				if (fireChangeEvents)
-					fireObjectAddedEvent(this, pathObject);
-				else if (resetCache)
-					tileCache.resetCache();
-				return true;
-			}
+			if (addObject)
+				return possibleParent;
 		}
-		return true;
+		return null;
 	}
 	
 	
@@ -375,6 +590,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 */
 	private synchronized boolean removeObject(PathObject pathObject, boolean keepChildren, boolean fireEvent) {
+		ensureFullyLoaded();
 		// Check the object is within the hierarchy & has a valid parent (from which it can be removed)
 		PathObject pathObjectParent = pathObject.getParent();
 		if (!inHierarchy(pathObject) || pathObjectParent == null) {
@@ -411,9 +627,21 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param keepChildren if true, retain children and descendants of the objects being removed
 	 */
 	public synchronized void removeObjects(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
+		if (removeObjectsImpl(pathObjects, keepChildren))
+			fireHierarchyChangedEvent(this);
+	}
+
+	/**
+	 * Remove a collection of objects, without firing any events.
+	 * @param pathObjects the objects to remove
+	 * @param keepChildren if true, retain children and descendants of the objects being removed
+	 * @return true if any objects with parents were found, false otherwise
+	 */
+	private synchronized boolean removeObjectsImpl(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
 		
 		if (pathObjects.isEmpty())
-			return;
+			return false;
+		ensureFullyLoaded();
 		
 		List<PathObject> pathObjectSet = new ArrayList<>(pathObjects);
 		pathObjectSet.sort((o1, o2) -> Integer.compare(o2.getLevel(), o1.getLevel()));
@@ -429,7 +657,7 @@ public final class PathObjectHierarchy implements Serializable {
 		}
 		
 		if (map.isEmpty())
-			return;
+			return false;
 		
 		// Loop through and remove objects, keeping children if necessary
 		Set<PathObject> childrenToKeep = new LinkedHashSet<>();
@@ -448,7 +676,7 @@ public final class PathObjectHierarchy implements Serializable {
 		for (PathObject pathObject : childrenToKeep) {
 			addPathObjectImpl(pathObject, false);
 		}
-		fireHierarchyChangedEvent(this);
+		return true;
 	}
 	
 	
@@ -470,6 +698,7 @@ public final class PathObjectHierarchy implements Serializable {
 	
 	// TODO: Be very cautious about this!!!!  Use of tileCache inside a synchronized method might lead to deadlocks?
 	private synchronized boolean addPathObjectToList(PathObject pathObjectParent, PathObject pathObject, boolean fireChangeEvents) {
+		ensureFullyLoaded();
 		pathObjectParent.addChildObject(pathObject);
 		// Notify listeners of changes, if required
 		if (fireChangeEvents)
@@ -556,10 +785,101 @@ public final class PathObjectHierarchy implements Serializable {
 	}
 
 	
+	/**
+	 * Begin a transaction, which can be used to record many changes to the hierarchy and then apply them together,
+	 * firing a single event.
+	 * This is generally much faster than making the changes individually when working with large numbers of objects.
+	 * <p>
+	 * No changes are made until {@link PathObjectHierarchyTransaction#commit()} is called.
+	 * @return a new transaction for this hierarchy
+	 * @since v0.8.0
+	 */
+	public PathObjectHierarchyTransaction beginTransaction() {
+		return new PathObjectHierarchyTransaction(this);
+	}
+
+	/**
+	 * Apply the changes recorded by a transaction, firing a single event if the hierarchy changed.
+	 * <p>
+	 * Consecutive changes of the same type are applied together, so that (for example) all the objects
+	 * to insert can be sorted by size and inserted using {@link #insertPathObjectsImpl(Collection, boolean)}.
+	 * @param operations the changes to apply, in order
+	 * @return true if the hierarchy changed, false otherwise
+	 */
+	synchronized boolean commitTransaction(List<PathObjectHierarchyTransaction.Operation> operations) {
+		ensureFullyLoaded();
+		boolean structureChanged = false;
+		// Track whether the tile cache might be out of date, since we aren't firing events
+		boolean cacheDirty = false;
+		Set<PathObject> reclassified = new LinkedHashSet<>();
+		int i = 0;
+		while (i < operations.size()) {
+			var type = operations.get(i).type();
+			int start = i;
+			while (i < operations.size() && operations.get(i).type() == type)
+				i++;
+			var run = operations.subList(start, i);
+			var pathObjects = run.stream().map(PathObjectHierarchyTransaction.Operation::pathObject).toList();
+			switch (type) {
+				case ADD -> {
+					for (var pathObject : pathObjects) {
+						if (addPathObjectImpl(pathObject, false)) {
+							structureChanged = true;
+							cacheDirty = true;
+						}
+					}
+				}
+				case INSERT -> {
+					if (cacheDirty)
+						tileCache.resetCache();
+					if (insertPathObjectsImpl(pathObjects, false))
+						structureChanged = true;
+					cacheDirty = false;
+				}
+				case REMOVE, REMOVE_KEEP_CHILDREN -> {
+					// Removing objects resets the cache
+					if (removeObjectsImpl(pathObjects, type == PathObjectHierarchyTransaction.OperationType.REMOVE_KEEP_CHILDREN)) {
+						structureChanged = true;
+						cacheDirty = false;
+					}
+				}
+				case SET_PARENT -> {
+					for (var op : run) {
+						var parent = (PathObject)op.value();
+						if (parent == null ? addPathObjectImpl(op.pathObject(), false) : addPathObjectToList(parent, op.pathObject(), false)) {
+							structureChanged = true;
+							cacheDirty = true;
+						}
+					}
+				}
+				case SET_CLASSIFICATION -> {
+					for (var op : run) {
+						var pathObject = op.pathObject();
+						var pathClass = (PathClass)op.value();
+						if (pathObject.getPathClass() != pathClass) {
+							pathObject.setPathClass(pathClass);
+							reclassified.add(pathObject);
+						}
+					}
+				}
+			}
+		}
+		if (structureChanged)
+			fireHierarchyChangedEvent(this);
+		else if (!reclassified.isEmpty())
+			fireObjectClassificationsChangedEvent(this, reclassified);
+		return structureChanged || !reclassified.isEmpty();
+	}
+
 	/**
 	 * Remove all objects from the hierarchy.
 	 */
 	public synchronized void clearAll() {
+		// No need to load objects that are about to be removed
+		if (blockCache != null) {
+			blockCache.dispose();
+			blockCache = null;
+		}
 		getRootObject().removeAllChildObjects();
 		tmaGrid = null;
 		fireHierarchyChangedEvent(getRootObject());
@@ -642,6 +962,7 @@ public final class PathObjectHierarchy implements Serializable {
 	public Collection<PathObject> getObjects(Collection<PathObject> pathObjects, Class<? extends PathObject> cls) {
 		if (pathObjects == null)
 			pathObjects = new ArrayList<>();
+		ensureLoaded(cls, null);
 		
 		// If we want annotations, it can be much faster to get them from the tile cache than to sift through a potentially large number of detections
 		if (PathAnnotationObject.class == cls && tileCache != null && tileCache.isActive()) {
@@ -714,7 +1035,9 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 */
 	public synchronized int nObjects() {
-		return PathObjectTools.countDescendants(getRootObject());
+		var cache = blockCache;
+		long nUnloaded = cache == null ? 0 : cache.getUnloadedObjectCount();
+		return (int)Math.min(Integer.MAX_VALUE, PathObjectTools.countDescendants(getRootObject()) + nUnloaded);
 	}
 	
 	/**
@@ -725,8 +1048,20 @@ public final class PathObjectHierarchy implements Serializable {
 	public synchronized void setHierarchy(PathObjectHierarchy hierarchy) {
 		if (this == hierarchy)
 			return;
+		if (blockCache != null) {
+			blockCache.dispose();
+			blockCache = null;
+		}
 		rootObject = hierarchy.getRootObject();
 		tmaGrid = hierarchy.tmaGrid;
+		// Take over any objects that haven't been loaded yet, since they belong to the root object
+		synchronized (hierarchy) {
+			var otherCache = hierarchy.blockCache;
+			if (otherCache != null) {
+				blockCache = new PathObjectBlockCache(this, tileCache, otherCache);
+				hierarchy.blockCache = null;
+			}
+		}
 		fireHierarchyChangedEvent(rootObject);
 	}
 	
@@ -753,7 +1088,9 @@ public final class PathObjectHierarchy implements Serializable {
 		if (roi.isEmpty() || !roi.isArea())
 			return Collections.emptyList();
 
-		Collection<PathObject> pathObjects = tileCache.getObjectsForRegion(cls, ImageRegion.createInstance(roi), new HashSet<>(), true);
+		var region = ImageRegion.createInstance(roi);
+		ensureLoaded(cls, region);
+		Collection<PathObject> pathObjects = tileCache.getObjectsForRegion(cls, region, new HashSet<>(), true);
 		return filterObjectsForROI(roi, pathObjects);
 	}
 
@@ -892,6 +1229,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 */
 	@Deprecated
 	public Collection<PathObject> getObjectsForRegion(Class<? extends PathObject> cls, ImageRegion region, Collection<PathObject> pathObjects) {
+		ensureLoaded(cls, region);
 		return tileCache.getObjectsForRegion(cls, region, pathObjects, true);
 	}
 
@@ -910,6 +1248,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public Collection<PathObject> getAllObjectsForRegion(ImageRegion region, Collection<PathObject> pathObjects) {
+		ensureLoaded(null, region);
 		return tileCache.getObjectsForRegion(null, region, pathObjects, true);
 	}
 
@@ -974,6 +1313,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public Collection<PathObject> getAllDetectionsForRegion(ImageRegion region, Collection<PathObject> pathObjects) {
+		ensureLoaded(PathDetectionObject.class, region);
 		return tileCache.getObjectsForRegion(PathDetectionObject.class, region, pathObjects, true);
 	}
 
@@ -1001,6 +1341,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public boolean hasObjectsForRegion(Class<? extends PathObject> cls, ImageRegion region) {
+		ensureLoaded(cls, region);
 		return tileCache.hasObjectsForRegion(cls, region, true);
 	}
 
@@ -1014,6 +1355,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public boolean hasObjectsForRegion(ImageRegion region) {
+		ensureLoaded(null, region);
 		return tileCache.hasObjectsForRegion(null, region, true);
 	}
 
@@ -1040,6 +1382,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public boolean hasDetectionsForRegion(ImageRegion region) {
+		ensureLoaded(PathDetectionObject.class, region);
 		return tileCache.hasObjectsForRegion(PathDetectionObject.class, region, true);
 	}
 	
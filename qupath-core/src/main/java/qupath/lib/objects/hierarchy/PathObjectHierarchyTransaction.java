@@ -0,0 +1,240 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.classes.PathClass;
+
+/**
+ * A group of changes to make to a {@link PathObjectHierarchy} in one go.
+ * <p>
+ * Changes are recorded but not applied until {@link #commit()} is called.
+ * At that point they are applied in the order they were recorded, while holding the hierarchy lock,
+ * and a single event is fired to notify listeners.
+ * This avoids the cost of firing (and responding to) an event for every change, and means that
+ * parents can be identified for large numbers of inserted detections in parallel.
+ * <p>
+ * Changes can be recorded from multiple threads, for example when objects are created by parallel tasks.
+ * The transaction should be closed when it is no longer needed; any changes that have not been committed
+ * are then discarded.
+ * <pre>{@code
+ * try (var transaction = hierarchy.beginTransaction()) {
+ *     transaction.removeAll(hierarchy.getDetectionObjects(), false);
+ *     transaction.insertAll(newDetections);
+ *     transaction.commit();
+ * }
+ * }</pre>
+ *
+ * @see PathObjectHierarchy#beginTransaction()
+ * @since v0.8.0
+ */
+public final class PathObjectHierarchyTransaction implements AutoCloseable {
+
+	enum OperationType {
+		ADD,
+		INSERT,
+		REMOVE,
+		REMOVE_KEEP_CHILDREN,
+		SET_PARENT,
+		SET_CLASSIFICATION
+	}
+
+	/**
+	 * A single recorded change.
+	 * @param type the type of change
+	 * @param pathObject the object to change
+	 * @param value the new parent (for {@link OperationType#SET_PARENT}) or classification
+	 *              (for {@link OperationType#SET_CLASSIFICATION}); otherwise null
+	 */
+	record Operation(OperationType type, PathObject pathObject, Object value) {}
+
+	private final PathObjectHierarchy hierarchy;
+	private List<Operation> operations = new ArrayList<>();
+	private boolean isClosed = false;
+
+	PathObjectHierarchyTransaction(PathObjectHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+	}
+
+	/**
+	 * Get the hierarchy that will be changed when the transaction is committed.
+	 * @return
+	 */
+	public PathObjectHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	/**
+	 * Add an object directly below the root object.
+	 * @param pathObject
+	 * @return this transaction
+	 * @see PathObjectHierarchy#addObject(PathObject, boolean)
+	 */
+	public PathObjectHierarchyTransaction add(PathObject pathObject) {
+		return record(OperationType.ADD, pathObject, null);
+	}
+
+	/**
+	 * Add objects directly below the root object.
+	 * @param pathObjects
+	 * @return this transaction
+	 * @see PathObjectHierarchy#addObjects(Collection)
+	 */
+	public PathObjectHierarchyTransaction addAll(Collection<? extends PathObject> pathObjects) {
+		return recordAll(OperationType.ADD, pathObjects);
+	}
+
+	/**
+	 * Insert an object into the hierarchy, resolving its parent when the transaction is committed.
+	 * @param pathObject
+	 * @return this transaction
+	 * @see PathObjectHierarchy#insertPathObject(PathObject, boolean)
+	 */
+	public PathObjectHierarchyTransaction insert(PathObject pathObject) {
+		return record(OperationType.INSERT, pathObject, null);
+	}
+
+	/**
+	 * Insert objects into the hierarchy, resolving their parents when the transaction is committed.
+	 * @param pathObjects
+	 * @return this transaction
+	 * @see PathObjectHierarchy#insertPathObjects(Collection)
+	 */
+	public PathObjectHierarchyTransaction insertAll(Collection<? extends PathObject> pathObjects) {
+		return recordAll(OperationType.INSERT, pathObjects);
+	}
+
+	/**
+	 * Remove an object from the hierarchy.
+	 * @param pathObject
+	 * @param keepChildren if true, retain children and descendants of the object being removed
+	 * @return this transaction
+	 * @see PathObjectHierarchy#removeObject(PathObject, boolean)
+	 */
+	public PathObjectHierarchyTransaction remove(PathObject pathObject, boolean keepChildren) {
+		return record(keepChildren ? OperationType.REMOVE_KEEP_CHILDREN : OperationType.REMOVE, pathObject, null);
+	}
+
+	/**
+	 * Remove objects from the hierarchy.
+	 * @param pathObjects
+	 * @param keepChildren if true, retain children and descendants of the objects being removed
+	 * @return this transaction
+	 * @see PathObjectHierarchy#removeObjects(Collection, boolean)
+	 */
+	public PathObjectHierarchyTransaction removeAll(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
+		return recordAll(keepChildren ? OperationType.REMOVE_KEEP_CHILDREN : OperationType.REMOVE, pathObjects);
+	}
+
+	/**
+	 * Move an object (along with its descendants) so that it is directly below the specified parent.
+	 * The object does not need to be in the hierarchy already.
+	 * @param pathObject the object to move
+	 * @param parent the new parent; if null, the object will be added below the root object
+	 * @return this transaction
+	 * @see PathObjectHierarchy#addObjectBelowParent(PathObject, PathObject, boolean)
+	 */
+	public PathObjectHierarchyTransaction setParent(PathObject pathObject, PathObject parent) {
+		if (pathObject == parent)
+			throw new IllegalArgumentException("Cannot add a PathObject as a descendent of itself!");
+		return record(OperationType.SET_PARENT, pathObject, parent);
+	}
+
+	/**
+	 * Set the classification of an object.
+	 * @param pathObject
+	 * @param pathClass the new classification; may be null
+	 * @return this transaction
+	 */
+	public PathObjectHierarchyTransaction setPathClass(PathObject pathObject, PathClass pathClass) {
+		return record(OperationType.SET_CLASSIFICATION, pathObject, pathClass);
+	}
+
+	/**
+	 * Get the number of changes that have been recorded, but not yet committed.
+	 * @return
+	 */
+	public synchronized int size() {
+		return operations.size();
+	}
+
+	/**
+	 * Query whether any changes have been recorded, but not yet committed.
+	 * @return
+	 */
+	public synchronized boolean isEmpty() {
+		return operations.isEmpty();
+	}
+
+	/**
+	 * Apply all the recorded changes to the hierarchy, firing a single event if the hierarchy changed.
+	 * <p>
+	 * This event is a structure change event if any objects were added, removed or moved;
+	 * otherwise, it is a classification change event for the objects that were reclassified.
+	 * <p>
+	 * The transaction can continue to be used after committing, to record and commit more changes.
+	 * @return true if the hierarchy changed, false otherwise
+	 * @throws IllegalStateException if the transaction has been closed
+	 */
+	public synchronized boolean commit() throws IllegalStateException {
+		ensureOpen();
+		if (operations.isEmpty())
+			return false;
+		var toApply = operations;
+		operations = new ArrayList<>();
+		return hierarchy.commitTransaction(toApply);
+	}
+
+	/**
+	 * Close the transaction, discarding any changes that have not been committed.
+	 */
+	@Override
+	public synchronized void close() {
+		operations.clear();
+		isClosed = true;
+	}
+
+	private synchronized PathObjectHierarchyTransaction record(OperationType type, PathObject pathObject, Object value) {
+		Objects.requireNonNull(pathObject, "Cannot record a change for a null object");
+		ensureOpen();
+		operations.add(new Operation(type, pathObject, value));
+		return this;
+	}
+
+	private synchronized PathObjectHierarchyTransaction recordAll(OperationType type, Collection<? extends PathObject> pathObjects) {
+		ensureOpen();
+		for (var pathObject : pathObjects)
+			operations.add(new Operation(type, Objects.requireNonNull(pathObject, "Cannot record a change for a null object"), null));
+		return this;
+	}
+
+	private void ensureOpen() throws IllegalStateException {
+		if (isClosed)
+			throw new IllegalStateException("Transaction has already been closed");
+	}
+
+}
@@ -40,6 +40,7 @@ import qupath.lib.objects.hierarchy.events.PathObjectHierarchyListener;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.roi.interfaces.ROI;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -49,6 +50,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -60,6 +62,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * In practice, the cache itself is constructed lazily whenever a request is made 
  * through getObjectsForRegion, to avoid rebuilding it too often when the hierarchy
  * is changing a lot.
+ * <p>
+ * By default, objects are stored in a {@link HilbertRTree}, which can be built in parallel and queried without locking.
+ * A JTS {@link Quadtree} can be used instead by setting the system property
+ * {@code qupath.hierarchy.spatialIndex=quadtree}.
  * 
  * @author Pete Bankhead
  *
@@ -67,6 +73,41 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 class PathObjectTileCache implements PathObjectHierarchyListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PathObjectTileCache.class);
+
+	/**
+	 * Available spatial index implementations.
+	 */
+	enum SpatialIndexType {
+		/**
+		 * JTS Quadtree, with objects inserted individually.
+		 * Queries must not run concurrently with updates.
+		 */
+		QUADTREE(false),
+		/**
+		 * Packed Hilbert R-tree, bulk-loaded when the cache is constructed.
+		 * Queries can run concurrently with updates.
+		 */
+		HILBERT_RTREE(true);
+
+		private final boolean concurrentReads;
+
+		SpatialIndexType(boolean concurrentReads) {
+			this.concurrentReads = concurrentReads;
+		}
+
+		/**
+		 * Get the default type, which may be set using the {@code qupath.hierarchy.spatialIndex} system property.
+		 * @return
+		 */
+		static SpatialIndexType getDefault() {
+			String property = System.getProperty("qupath.hierarchy.spatialIndex", "rtree");
+			if ("quadtree".equalsIgnoreCase(property))
+				return QUADTREE;
+			if (!"rtree".equalsIgnoreCase(property))
+				logger.warn("Unknown spatial index type '{}' - will use an R-tree", property);
+			return HILBERT_RTREE;
+		}
+	}
 	
 	/**
 	 * Largest positive envelope, used when all objects are requested.
@@ -75,8 +116,9 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	
 	/**
 	 * Store a spatial index according to the class of PathObject.
+	 * This is replaced entirely whenever the cache is constructed, so that it can be read without locking.
 	 */
-	private final Map<Class<? extends PathObject>, SpatialIndex> map = new HashMap<>();
+	private volatile Map<Class<? extends PathObject>, SpatialIndex> map = new ConcurrentHashMap<>();
 	
 	/**
 	 * Map to cache Geometries, specifically for annotations.
@@ -90,7 +132,8 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	private static final Map<ROI, RoiRelate> relateMap = Collections.synchronizedMap(new WeakHashMap<>());
 
 	private final PathObjectHierarchy hierarchy;
-	private boolean isActive = false;
+	private final SpatialIndexType indexType;
+	private volatile boolean isActive = false;
 	
 	private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
     private final Lock r = rwl.readLock();
@@ -98,7 +141,12 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	
 	
 	public PathObjectTileCache(PathObjectHierarchy hierarchy) {
+		this(hierarchy, SpatialIndexType.getDefault());
+	}
+
+	PathObjectTileCache(PathObjectHierarchy hierarchy, SpatialIndexType indexType) {
 		this.hierarchy = hierarchy;
+		this.indexType = Objects.requireNonNull(indexType);
 		if (hierarchy != null)
 			hierarchy.addListener(this);
 	}
@@ -115,12 +163,19 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		try {
 	//		logger.info("Skipping cache reconstruction...");
 			long startTime = System.currentTimeMillis();
+			// Collect all objects first, so that each index can be bulk-loaded
+			Map<Class<? extends PathObject>, List<PathObject>> objects = new HashMap<>();
+			collectObjects(hierarchy.getRootObject(), limitToClass, objects);
+			Map<Class<? extends PathObject>, SpatialIndex> newMap = new ConcurrentHashMap<>();
+			if (limitToClass != null && isActive()) {
+				newMap.putAll(map);
+				newMap.remove(limitToClass);
+			}
+			for (var entry : objects.entrySet())
+				newMap.put(entry.getKey(), createSpatialIndex(entry.getValue()));
+			// Publish the new map before marking the cache as active, since it may be read without locking
+			map = newMap;
 			isActive = true;
-			if (limitToClass == null)
-				map.clear();
-			else
-				map.remove(limitToClass);
-			addToCache(hierarchy.getRootObject(), true, limitToClass);
 			long endTime = System.currentTimeMillis();
             logger.debug("Cache reconstructed in {} ms", endTime - startTime);
 		} finally {
@@ -130,9 +185,33 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 //		logger.info("Cache count: " + (cacheCounter)/1000.);
 	}
 	
-	private void ensureCacheConstructed() {
-		if (!isActive())
-			constructCache(null);
+	void ensureCacheConstructed() {
+		if (!isActive()) {
+			w.lock();
+			try {
+				// Another thread may have constructed the cache while we were waiting
+				if (!isActive())
+					constructCache(null);
+			} finally {
+				w.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Collect objects with ROIs, grouped by class, optionally including only a specific class.
+	 */
+	private static void collectObjects(PathObject pathObject, Class<? extends PathObject> limitToClass,
+									   Map<Class<? extends PathObject>, List<PathObject>> objects) {
+		if (pathObject.hasROI()) {
+			Class<? extends PathObject> cls = pathObject.getClass();
+			if (limitToClass == null || cls == limitToClass)
+				objects.computeIfAbsent(cls, k -> new ArrayList<>()).add(pathObject);
+		}
+		if (!(pathObject instanceof TemporaryObject) && pathObject.hasChildObjects()) {
+			for (PathObject child : pathObject.getChildObjectsAsArray())
+				collectObjects(child, limitToClass, objects);
+		}
 	}
 	
 	// TRUE if the cache has been constructed
@@ -214,19 +293,39 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	
 	
 	private SpatialIndex createSpatialIndex() {
-		return new Quadtree();
+		return createSpatialIndex(Collections.emptyList());
+	}
+
+	private SpatialIndex createSpatialIndex(List<PathObject> pathObjects) {
+		return switch (indexType) {
+			case QUADTREE -> {
+				var quadtree = new Quadtree();
+				for (var pathObject : pathObjects)
+					quadtree.insert(getEnvelope(pathObject), pathObject);
+				yield quadtree;
+			}
+			case HILBERT_RTREE -> HilbertRTree.create(pathObjects, PathObjectTileCache::getBounds);
+		};
+	}
+
+	private static void getBounds(PathObject pathObject, double[] bounds, int offset) {
+		var roi = pathObject.getROI();
+		bounds[offset] = roi.getBoundsX();
+		bounds[offset+1] = roi.getBoundsY();
+		bounds[offset+2] = roi.getBoundsX() + roi.getBoundsWidth();
+		bounds[offset+3] = roi.getBoundsY() + roi.getBoundsHeight();
 	}
 	
 	private Envelope getEnvelope(PathObject pathObject) {
 		return getEnvelope(pathObject.getROI());
 	}
 	
-	private Envelope getEnvelope(ROI roi) {
+	static Envelope getEnvelope(ROI roi) {
 		return new Envelope(roi.getBoundsX(), roi.getBoundsX() + roi.getBoundsWidth(),
 				roi.getBoundsY(), roi.getBoundsY() + roi.getBoundsHeight());
 	}
 
-	private Envelope getEnvelope(ImageRegion region) {
+	static Envelope getEnvelope(ImageRegion region) {
 		return new Envelope(region.getMinX(), region.getMaxX(),
 				region.getMinY(), region.getMaxY());
 	}
@@ -246,27 +345,71 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		
 		SpatialIndex mapObjects = map.get(pathObject.getClass());
 		
-		// We can remove objects from a Quadtree
-		if (mapObjects instanceof Quadtree) {
+		// We can remove objects from a Quadtree or R-tree
+		// Use the maximum envelope, since the ROI may have changed since the object was added
+		if (mapObjects != null) {
 			if (mapObjects.remove(MAX_ENVELOPE, pathObject)) {
 				logger.debug("Removed {} from cache", pathObject);
 			} else
 				logger.debug("Unable to remove {} from cache", pathObject);
-			// Remove the children
-			if (removeChildren) {
-				for (PathObject child : pathObject.getChildObjectsAsArray())
-					removeFromCache(child, removeChildren);
+		}
+		// Remove the children
+		if (removeChildren) {
+			for (PathObject child : pathObject.getChildObjectsAsArray())
+				removeFromCache(child, removeChildren);
+		}
+	}
+
+	/**
+	 * Add objects to the cache, without their children.
+	 * This is needed when objects are added to the hierarchy without firing an event.
+	 * @param pathObjects
+	 */
+	@SuppressWarnings("unchecked")
+	void addObjects(Collection<? extends PathObject> pathObjects) {
+		w.lock();
+		try {
+			if (!isActive())
+				return;
+			Map<Class<? extends PathObject>, List<PathObject>> objects = new HashMap<>();
+			for (var pathObject : pathObjects)
+				collectObjects(pathObject, null, objects);
+			for (var entry : objects.entrySet()) {
+				var mapObjects = map.computeIfAbsent(entry.getKey(), k -> createSpatialIndex());
+				if (mapObjects instanceof HilbertRTree<?> rtree) {
+					// Inserting together means the tree only needs to be rebuilt once (at most)
+					((HilbertRTree<PathObject>)rtree).insertAll(entry.getValue(), PathObjectTileCache::getBounds);
+				} else {
+					for (var pathObject : entry.getValue())
+						mapObjects.insert(getEnvelope(pathObject), pathObject);
+				}
 			}
-		} else if (mapObjects != null && !removeChildren) {
-			// We can't remove objects from a STRtree, but since we're just removing one object we can rebuild only the cache for this class
-			constructCache(pathObject.getClass());
-		} else {
-			// If we need to remove multiple objects, better to just rebuild the entire cache
-			constructCache(null);
+		} finally {
+			w.unlock();
+		}
+	}
+
+	/**
+	 * Remove objects from the cache, without their children.
+	 * This is needed when objects are removed from the hierarchy without firing an event.
+	 * @param pathObjects
+	 */
+	void removeObjects(Collection<? extends PathObject> pathObjects) {
+		w.lock();
+		try {
+			if (!isActive())
+				return;
+			for (var pathObject : pathObjects) {
+				var mapObjects = map.get(pathObject.getClass());
+				// Use the object's own envelope, since it is much faster than searching the entire tree
+				if (mapObjects != null && pathObject.hasROI())
+					mapObjects.remove(getEnvelope(pathObject), pathObject);
+			}
+		} finally {
+			w.unlock();
 		}
 	}
 
-	
 	/**
 	 * Get all the PathObjects stored in this cache of a specified type and having ROIs with bounds overlapping a specified region.
 	 * This does not guarantee that the ROI (which may not be rectangular) overlaps the region...
@@ -292,7 +435,9 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		
 		int z = region == null ? -1 : region.getZ();
 		int t = region == null ? -1 : region.getT();
-		r.lock();
+		boolean doLock = !indexType.concurrentReads;
+		if (doLock)
+			r.lock();
 		try {
 			// Iterate through all the classes, getting objects of the specified class or subclasses thereof
 			for (Entry<Class<? extends PathObject>, SpatialIndex> entry : map.entrySet()) {
@@ -322,7 +467,8 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 				return Collections.emptySet();
 			return pathObjects;
 		} finally {
-			r.unlock();
+			if (doLock)
+				r.unlock();
 		}
 	}
 	
@@ -333,7 +479,9 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		
 		int z = region == null ? -1 : region.getZ();
 		int t = region == null ? -1 : region.getT();
-		r.lock();
+		boolean doLock = !indexType.concurrentReads;
+		if (doLock)
+			r.lock();
 		try {
 			// Iterate through all the classes, getting objects of the specified class or subclasses thereof
 			for (Entry<Class<? extends PathObject>, SpatialIndex> entry : map.entrySet()) {
@@ -357,7 +505,8 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 			}
 			return false;
 		} finally {
-			r.unlock();
+			if (doLock)
+				r.unlock();
 		}
 	}
 
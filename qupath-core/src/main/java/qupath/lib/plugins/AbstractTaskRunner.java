@@ -26,6 +26,9 @@ package qupath.lib.plugins;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.lib.common.ThreadTools;
+import qupath.lib.images.servers.AbstractTileableImageServer;
+import qupath.lib.images.servers.AbstractTileableImageServer.TileStatistics;
+import qupath.lib.regions.HilbertCurve;
 
 import java.util.Collection;
 import java.util.Map;
@@ -58,6 +61,10 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 
 	private int numThreads;
 
+	private boolean orderTasksSpatially = false;
+
+	private TileStatistics lastTileStatistics;
+
 	/**
 	 * Constructor for a PluginRunner that uses the default number of threads, read from
 	 * {@link ThreadTools#getParallelism()}.
@@ -81,6 +88,45 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 	 * @return
 	 */
 	protected abstract SimpleProgressMonitor makeProgressMonitor();
+
+	/**
+	 * Set whether tasks should be reordered so that those operating on nearby image regions are run together.
+	 * <p>
+	 * If true, any {@link PathTask} that returns a region from {@link PathTask#getRegion()} will be submitted in order
+	 * along a Hilbert curve, followed by all other tasks in their original order.
+	 * Because tasks are started in the order they are submitted, this means that the tasks running concurrently tend
+	 * to request neighboring tiles, which are more likely to be found in the tile cache.
+	 * Post-processing is still applied in the original order.
+	 * @param doOrder
+	 * @since v0.8.0
+	 * @see HilbertCurve#sortByRegion(Collection, java.util.function.Function)
+	 */
+	public void setOrderTasksSpatially(boolean doOrder) {
+		this.orderTasksSpatially = doOrder;
+	}
+
+	/**
+	 * Query whether tasks are reordered so that those operating on nearby image regions are run together.
+	 * @return
+	 * @since v0.8.0
+	 * @see #setOrderTasksSpatially(boolean)
+	 */
+	@Override
+	public boolean getOrderTasksSpatially() {
+		return orderTasksSpatially;
+	}
+
+	/**
+	 * Get counts of the image tiles that were requested while the most recent tasks were running, and whether they
+	 * were found in memory.
+	 * This can be used to assess the effect of {@link #setOrderTasksSpatially(boolean)}.
+	 * Note that requests made by anything else running at the same time are also included.
+	 * @return the tile statistics, or null if no tasks have been run
+	 * @since v0.8.0
+	 */
+	public TileStatistics getLastTileStatistics() {
+		return lastTileStatistics;
+	}
 	
 	@Override
 	public synchronized void runTasks(String message, Collection<? extends Runnable> tasks) {
@@ -102,7 +148,11 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 		
 		monitor = makeProgressMonitor();
 		monitor.startMonitoring(message, tasks.size(), true);
-		for (Runnable task : tasks) {
+		Collection<? extends Runnable> tasksToSubmit = tasks;
+		if (orderTasksSpatially)
+			tasksToSubmit = HilbertCurve.sortByRegion(tasks, task -> task instanceof PathTask pathTask ? pathTask.getRegion() : null);
+		var tileStatistics = AbstractTileableImageServer.getTileStatistics();
+		for (Runnable task : tasksToSubmit) {
 			// If a task if null, then skip it - otherwise the monitor can get stuck
 			if (task == null) {
 				logger.warn("Skipping null task");
@@ -116,6 +166,15 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 		pool.shutdown();
 		awaitCompletion();
 		
+		lastTileStatistics = AbstractTileableImageServer.getTileStatistics().since(tileStatistics);
+		if (lastTileStatistics.getRequestCount() > 0) {
+			String hitRate = String.format("%.1f%%", lastTileStatistics.getHitRate() * 100);
+			if (orderTasksSpatially)
+				logger.info("Tile cache hit rate: {} ({} tiles requested)", hitRate, lastTileStatistics.getRequestCount());
+			else
+				logger.debug("Tile cache hit rate: {} ({} tiles requested)", hitRate, lastTileStatistics.getRequestCount());
+		}
+		
 		// Post-process any PathTasks
 		postProcess(tasks.stream().filter(t -> t instanceof PathTask).map(t -> (PathTask)t).toList());
 	}
@@ -28,9 +28,13 @@ import org.slf4j.LoggerFactory;
 import qupath.lib.geom.ImmutableDimension;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ServerTools;
+import qupath.lib.images.servers.TilePrefetcher;
 import qupath.lib.objects.PathObject;
 import qupath.lib.plugins.parameters.ParameterList;
+import qupath.lib.regions.HilbertCurve;
 import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.ROIs;
 import qupath.lib.roi.RoiTools;
 import qupath.lib.roi.interfaces.ROI;
@@ -58,6 +62,12 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 	private static int PREFERRED_TILE_SIZE = 2048;
 	private static int MAX_TILE_SIZE = 3072;
 
+	// Prefetchers created for the current run, which must be closed when it finishes
+	private final transient List<TilePrefetcher> prefetchers = new ArrayList<>();
+
+	// Whether tiles for the current run should be ordered so that neighboring tiles are processed together
+	private transient boolean orderTilesSpatially = false;
+
 	/**
 	 * Get the preferred pixel size that would be used for the specified ImageData and ParameterList.
 	 * <p>  
@@ -97,6 +107,37 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 	 */
 	protected abstract int getTileOverlap(final ImageData<T> imageData, final ParameterList params);
 
+	/**
+	 * Query whether tiles should be read in advance for the detection tasks.
+	 * <p>
+	 * Prefetching assumes that detectors request pixels at the downsample corresponding to
+	 * {@link #getPreferredPixelSizeMicrons(ImageData, ParameterList)}.
+	 * Subclasses for which this isn't the case should override this method to return false, since otherwise
+	 * prefetching only adds I/O.
+	 * <p>
+	 * The default implementation returns {@link TilePrefetcher#isEnabled()}.
+	 * @param imageData
+	 * @param params
+	 * @return true if tiles should be prefetched, false otherwise
+	 * @since v0.8.0
+	 */
+	protected boolean usePrefetching(final ImageData<T> imageData, final ParameterList params) {
+		return TilePrefetcher.isEnabled();
+	}
+
+	@Override
+	public boolean runPlugin(final TaskRunner taskRunner, final ImageData<T> imageData, final String arg) {
+		orderTilesSpatially = taskRunner != null && taskRunner.getOrderTasksSpatially();
+		try {
+			return super.runPlugin(taskRunner, imageData, arg);
+		} finally {
+			// Stop any prefetching threads and release retained tiles, even if some tasks never completed
+			for (var prefetcher : prefetchers)
+				prefetcher.close();
+			prefetchers.clear();
+		}
+	}
+
 	
 	/**
 	 * Intercepts the 'standard' addRunnableTasks to (if necessary) insert ParallelTileObjects along the way,
@@ -140,8 +181,10 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 					RoiTools.CombineOp.INTERSECT);
 		}
 
-		// Make tiles
+		// Make tiles, optionally sorted so that neighboring tiles (which share overlaps and image tiles) are processed together
 		Collection<? extends ROI> pathROIs = RoiTools.computeTiledROIs(parentROI, sizePreferred, sizeMax, false, getTileOverlap(imageData, params));
+		if (orderTilesSpatially)
+			pathROIs = HilbertCurve.sortByRegion(pathROIs, ImageRegion::createInstance);
 		
 		// No tasks to complete
 		if (pathROIs.isEmpty())
@@ -153,10 +196,21 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 //			return;
 //		}
 		
-		ParallelDetectionTileManager manager = new ParallelDetectionTileManager(parentObject); 
+		// Read tiles in advance, assuming that detectors will request pixels at the preferred resolution
+		List<RegionRequest> regions = new ArrayList<>();
+		for (ROI pathROI : pathROIs)
+			regions.add(RegionRequest.createInstance(server.getPath(), downsampleFactor, pathROI));
+		TilePrefetcher prefetcher = null;
+		if (usePrefetching(imageData, params)) {
+			prefetcher = TilePrefetcher.create(server, regions);
+			prefetchers.add(prefetcher);
+		}
+		
+		ParallelDetectionTileManager manager = new ParallelDetectionTileManager(parentObject, prefetcher); 
 		
 		List<ParallelTileObject> tileList = new ArrayList<>();
 		AtomicInteger countdown = new AtomicInteger(pathROIs.size());
+		int i = 0;
 		for (ROI pathROI : pathROIs) {
 			ParallelTileObject tile = new ParallelTileObject(manager, pathROI, imageData.getHierarchy(), countdown);
 			parentObject.addChildObject(tile);
@@ -165,7 +219,9 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 					tile.suggestNeighbor(tileTemp);
 			}
 			tileList.add(tile);
-			tasks.add(DetectionPluginTools.createRunnableTask(createDetector(imageData, params), params, imageData, tile));
+			var task = DetectionPluginTools.createRunnableTask(createDetector(imageData, params), params, imageData, tile);
+			var region = regions.get(i++);
+			tasks.add(prefetcher == null ? task : new PrefetchingTask(task, prefetcher, region));
 		}
 		manager.setTiles(tileList);
 		
@@ -173,18 +229,64 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 	}
 	
 	
+	/**
+	 * Task that starts prefetching tiles when it is first run, and notifies the prefetcher when its region is complete.
+	 */
+	private static class PrefetchingTask implements PathTask {
+		
+		private final Runnable task;
+		private final TilePrefetcher prefetcher;
+		private final RegionRequest region;
+		
+		PrefetchingTask(Runnable task, TilePrefetcher prefetcher, RegionRequest region) {
+			this.task = task;
+			this.prefetcher = prefetcher;
+			this.region = region;
+		}
+		
+		@Override
+		public void run() {
+			prefetcher.start();
+			try {
+				task.run();
+			} finally {
+				prefetcher.regionComplete(region);
+			}
+		}
+		
+		@Override
+		public void taskComplete(boolean wasCancelled) {
+			if (task instanceof PathTask pathTask)
+				pathTask.taskComplete(wasCancelled);
+		}
+		
+		@Override
+		public String getLastResultsDescription() {
+			return task instanceof PathTask pathTask ? pathTask.getLastResultsDescription() : null;
+		}
+		
+		@Override
+		public ImageRegion getRegion() {
+			return region;
+		}
+		
+	}
+	
+	
 	static class ParallelDetectionTileManager {
 		
 		private PathObject parent;
 		private List<PathObject> originalChildObjects;
+		private TilePrefetcher prefetcher;
 		
 		private boolean wasCancelled = false;
 		
 		private AtomicInteger countdown;
 		private List<ParallelTileObject> tiles = new ArrayList<>();
 		
-		ParallelDetectionTileManager(PathObject parent) {
+		ParallelDetectionTileManager(PathObject parent, TilePrefetcher prefetcher) {
 			this.parent = parent;
+			this.prefetcher = prefetcher;
 			this.originalChildObjects = new ArrayList<>(parent.getChildObjects());
 		}
 		
@@ -204,6 +306,11 @@ public abstract class AbstractTileableDetectionPlugin<T> extends AbstractDetecti
 		}
 		
 		private void postprocess() {
+			// Release any tiles that were read for tasks that didn't run
+			if (prefetcher != null) {
+				prefetcher.close();
+				prefetcher = null;
+			}
 			parent.removeAllChildObjects();
 			if (wasCancelled) {
 				// If anything was cancelled, then replace the original objects
@@ -30,6 +30,7 @@ import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathROIObject;
 import qupath.lib.plugins.ParallelTileObject.Status;
 import qupath.lib.plugins.parameters.ParameterList;
+import qupath.lib.regions.ImageRegion;
 import qupath.lib.roi.interfaces.ROI;
 
 import java.io.IOException;
@@ -174,6 +175,12 @@ public class DetectionPluginTools {
 			return result;
 		}
 
+		@Override
+		public ImageRegion getRegion() {
+			var currentROI = roi;
+			return currentROI == null ? null : ImageRegion.createInstance(currentROI);
+		}
+
 	}
 
 
@@ -23,6 +23,8 @@
 
 package qupath.lib.plugins;
 
+import qupath.lib.regions.ImageRegion;
+
 /**
  * Helper interface to define plugin tasks that require post-processing on a specific thread 
  * (i.e. the EDT, or JavaFX Platform equivalent).
@@ -49,5 +51,15 @@ public interface PathTask extends Runnable {
 	 * @return
 	 */
 	default String getLastResultsDescription() {return null;}
+	
+	/**
+	 * Get the image region that this task will process, if known.
+	 * This may be used by a {@link TaskRunner} to schedule tasks so that nearby regions are processed together.
+	 * Default implementation returns null.
+	 * 
+	 * @return the region, or null if the task does not operate on a specific region
+	 * @since v0.8.0
+	 */
+	default ImageRegion getRegion() {return null;}
 
 }
@@ -55,4 +55,14 @@ public interface TaskRunner {
 	 */
 	void runTasks(String message, Collection<? extends Runnable> tasks);
 
+	/**
+	 * Query whether tasks operating on nearby image regions should be run together.
+	 * Plugins may use this when deciding the order in which to create tasks.
+	 * @return true if tasks should be ordered spatially; the default implementation returns false
+	 * @since v0.8.0
+	 */
+	default boolean getOrderTasksSpatially() {
+		return false;
+	}
+
 }
\ No newline at end of file
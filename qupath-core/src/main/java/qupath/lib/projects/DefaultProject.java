@@ -654,13 +654,18 @@ class DefaultProject implements Project<BufferedImage> {
 		}
 
 		@Override
-		public synchronized ImageData<BufferedImage> readImageData() throws IOException {
+		public ImageData<BufferedImage> readImageData() throws IOException {
+			return readImageData(false);
+		}
+
+		@Override
+		public synchronized ImageData<BufferedImage> readImageData(boolean lazyDetections) throws IOException {
 			Path path = getImageDataPath();
 			ImageData<BufferedImage> imageData = null;
 			// TODO: Consider whether we can set the image name for the lazy-loaded server
 			if (Files.exists(path)) {
 				try {
-					imageData = PathIO.readImageData(path, getServerBuilder());
+					imageData = PathIO.readImageData(path, getServerBuilder(), lazyDetections);
 				} catch (Exception e) {
 					logger.error("Error reading image data from {}", path, e);
 				}
@@ -671,7 +676,7 @@ class DefaultProject implements Project<BufferedImage> {
 				var pathBackup = getBackupImageDataPath();
 				if (Files.exists(pathBackup)) {
 					try {
-						imageData = PathIO.readImageData(pathBackup, getServerBuilder());
+						imageData = PathIO.readImageData(pathBackup, getServerBuilder(), lazyDetections);
 						logger.warn("Restored previous ImageData from {}", pathBackup);
 					} catch (IOException e) {
 						logger.error("Error reading backup image data from {}", pathBackup, e);
@@ -699,6 +704,9 @@ class DefaultProject implements Project<BufferedImage> {
 			getEntryPath(true);
 			var pathData = getImageDataPath();
 			
+			// Objects may still be loaded lazily from the file we are about to move
+			imageData.getHierarchy().ensureFullyLoaded();
+
 			// If we already have a file, back it up first
 			var pathBackup = getBackupImageDataPath();
 			if (Files.exists(pathData))
@@ -215,6 +215,26 @@ public interface ProjectImageEntry<T> extends UriResource, MinimalMetadataStore
 	 * @see #readHierarchy()
 	 */
 	ImageData<T> readImageData() throws IOException;
+
+	/**
+	 * Read the {@link ImageData} associated with this entry, optionally requesting that detections are loaded
+	 * lazily.
+	 * <p>
+	 * Lazy loading can make it much faster to open images with very large numbers of detections, because
+	 * detections are only read when they are needed for a specific region.
+	 * Implementations are not required to support this, and the default implementation simply calls
+	 * {@link #readImageData()}.
+	 *
+	 * @param lazyDetections if true, request that detections are loaded only when they are needed
+	 * @return
+	 * @throws IOException
+	 * @see #readImageData()
+	 * @see PathObjectHierarchy#ensureFullyLoaded()
+	 * @since v0.8.0
+	 */
+	default ImageData<T> readImageData(boolean lazyDetections) throws IOException {
+		return readImageData();
+	}
 	
 	/**
 	 * Save the {@link ImageData} for this entry using the default storage location for the project.
@@ -0,0 +1,196 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.regions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helper class to map 2D coordinates to positions along a Hilbert curve.
+ * <p>
+ * Sorting by Hilbert index means that items that are close together in the image tend to be
+ * close together in the sorted order, which can be useful to group objects or tiles spatially.
+ *
+ * @since v0.8.0
+ */
+public final class HilbertCurve {
+
+	/**
+	 * Maximum supported order.
+	 */
+	public static final int MAX_ORDER = 31;
+
+	private HilbertCurve() {}
+
+	/**
+	 * Get the index of a cell along a Hilbert curve.
+	 * @param order the order of the curve; this defines a grid of {@code 2^order x 2^order} cells
+	 * @param x the x coordinate of the cell, between 0 and {@code 2^order - 1}
+	 * @param y the y coordinate of the cell, between 0 and {@code 2^order - 1}
+	 * @return the distance along the curve, between 0 and {@code 4^order - 1}
+	 * @throws IllegalArgumentException if the order or coordinates are out of range
+	 */
+	public static long encode(int order, int x, int y) throws IllegalArgumentException {
+		if (order < 1 || order > MAX_ORDER)
+			throw new IllegalArgumentException("Order must be between 1 and " + MAX_ORDER + ", but was " + order);
+		long n = 1L << order;
+		if (x < 0 || y < 0 || x >= n || y >= n)
+			throw new IllegalArgumentException("Coordinates (" + x + ", " + y + ") are outside the range for order " + order);
+		long d = 0;
+		long xx = x;
+		long yy = y;
+		for (long s = n >> 1; s > 0; s >>= 1) {
+			int rx = (xx & s) != 0 ? 1 : 0;
+			int ry = (yy & s) != 0 ? 1 : 0;
+			d += s * s * ((3 * rx) ^ ry);
+			// Rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					xx = n - 1 - xx;
+					yy = n - 1 - yy;
+				}
+				long temp = xx;
+				xx = yy;
+				yy = temp;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Get the cell at a specified index along a Hilbert curve.
+	 * This is the inverse of {@link #encode(int, int, int)}.
+	 * @param order the order of the curve
+	 * @param d the distance along the curve, between 0 and {@code 4^order - 1}
+	 * @return an array containing the x and y coordinates of the cell
+	 * @throws IllegalArgumentException if the order or index are out of range
+	 */
+	public static int[] decode(int order, long d) throws IllegalArgumentException {
+		if (order < 1 || order > MAX_ORDER)
+			throw new IllegalArgumentException("Order must be between 1 and " + MAX_ORDER + ", but was " + order);
+		long n = 1L << order;
+		if (d < 0 || d >= n * n)
+			throw new IllegalArgumentException("Index " + d + " is outside the range for order " + order);
+		long x = 0;
+		long y = 0;
+		long t = d;
+		for (long s = 1; s < n; s <<= 1) {
+			long rx = 1 & (t >> 1);
+			long ry = 1 & (t ^ rx);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				long temp = x;
+				x = y;
+				y = temp;
+			}
+			x += s * rx;
+			y += s * ry;
+			t >>= 2;
+		}
+		return new int[] {(int)x, (int)y};
+	}
+
+	/**
+	 * Sort items according to the position of their regions along a Hilbert curve.
+	 * <p>
+	 * This is useful to schedule tasks that operate on image regions, so that regions processed at around the same time
+	 * are close together in the image - and are therefore more likely to share cached tiles.
+	 * <p>
+	 * Items are first sorted by time point and z-slice, then by the Hilbert index of the center of their region on a
+	 * grid with cells the size of the smallest region.
+	 * Items without a region are retained in their original order, after all items with a region.
+	 *
+	 * @param items the items to sort
+	 * @param regionFunction function to get the region for each item; may return null
+	 * @return a new list containing the sorted items
+	 * @param <T> the type of item
+	 */
+	public static <T> List<T> sortByRegion(Collection<? extends T> items, Function<? super T, ? extends ImageRegion> regionFunction) {
+		List<IndexedItem<T>> indexed = new ArrayList<>(items.size());
+		List<T> noRegion = new ArrayList<>();
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double cellSize = Double.POSITIVE_INFINITY;
+		for (var item : items) {
+			var region = regionFunction.apply(item);
+			if (region == null) {
+				noRegion.add(item);
+				continue;
+			}
+			indexed.add(new IndexedItem<>(item, region));
+			double cx = region.getX() + region.getWidth() / 2.0;
+			double cy = region.getY() + region.getHeight() / 2.0;
+			minX = Math.min(minX, cx);
+			minY = Math.min(minY, cy);
+			maxX = Math.max(maxX, cx);
+			maxY = Math.max(maxY, cy);
+			int size = Math.min(region.getWidth(), region.getHeight());
+			if (size > 0)
+				cellSize = Math.min(cellSize, size);
+		}
+		if (!Double.isFinite(cellSize))
+			cellSize = 1;
+
+		long nCells = (long)Math.floor(Math.max(maxX - minX, maxY - minY) / cellSize) + 1;
+		int order = 1;
+		while (order < MAX_ORDER && (1L << order) < nCells)
+			order++;
+		long maxCell = (1L << order) - 1;
+		for (var item : indexed) {
+			var region = item.region;
+			double cx = region.getX() + region.getWidth() / 2.0;
+			double cy = region.getY() + region.getHeight() / 2.0;
+			int x = (int)Math.min(maxCell, (long)((cx - minX) / cellSize));
+			int y = (int)Math.min(maxCell, (long)((cy - minY) / cellSize));
+			item.index = encode(order, x, y);
+		}
+		indexed.sort(Comparator.comparingInt((IndexedItem<T> item) -> item.region.getT())
+				.thenComparingInt(item -> item.region.getZ())
+				.thenComparingLong(item -> item.index));
+
+		List<T> sorted = new ArrayList<>(items.size());
+		for (var item : indexed)
+			sorted.add(item.item);
+		sorted.addAll(noRegion);
+		return sorted;
+	}
+
+	private static class IndexedItem<T> {
+
+		private final T item;
+		private final ImageRegion region;
+		private long index;
+
+		private IndexedItem(T item, ImageRegion region) {
+			this.item = item;
+			this.region = region;
+		}
+
+	}
+
+}
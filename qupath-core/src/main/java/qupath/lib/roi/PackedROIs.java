@@ -0,0 +1,325 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.roi;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.io.IOException;
+
+/**
+ * Helper class to represent ROIs using compact primitive values, and to recreate ROIs from these values.
+ * <p>
+ * This is intended for storing very large numbers of ROIs efficiently, e.g. within columnar data files.
+ * Each ROI is assigned a 'packed type', which determines how its coordinates should be stored:
+ * <ul>
+ *     <li>rectangles, ellipses and lines are defined by 4 double values</li>
+ *     <li>polygons and polylines are defined by interleaved x,y float values, matching their internal representation</li>
+ *     <li>points are defined by interleaved x,y float values if all their coordinates can be represented exactly as floats,
+ *     otherwise by well-known binary (WKB) with double coordinates</li>
+ *     <li>all other ROIs are defined by well-known binary for their geometry</li>
+ * </ul>
+ * In all cases, the conversion is lossless.
+ *
+ * @since v0.8.0
+ */
+public final class PackedROIs {
+
+	/**
+	 * Packed type for a rectangle ROI, stored as x, y, width and height.
+	 */
+	public static final byte TYPE_RECTANGLE = 1;
+
+	/**
+	 * Packed type for an ellipse ROI, stored as x, y, width and height.
+	 */
+	public static final byte TYPE_ELLIPSE = 2;
+
+	/**
+	 * Packed type for a line ROI, stored as x1, y1, x2 and y2.
+	 */
+	public static final byte TYPE_LINE = 3;
+
+	/**
+	 * Packed type for a polygon ROI, stored as interleaved float vertices.
+	 */
+	public static final byte TYPE_POLYGON = 4;
+
+	/**
+	 * Packed type for a polyline ROI, stored as interleaved float vertices.
+	 */
+	public static final byte TYPE_POLYLINE = 5;
+
+	/**
+	 * Packed type for a points ROI, stored as interleaved float vertices.
+	 */
+	public static final byte TYPE_POINTS = 6;
+
+	/**
+	 * Packed type for any other ROI, stored as well-known binary.
+	 */
+	public static final byte TYPE_GEOMETRY = 7;
+
+	/**
+	 * Packed type for a points ROI with coordinates that can't be represented exactly as floats,
+	 * stored as well-known binary with double coordinates.
+	 */
+	public static final byte TYPE_POINTS_DOUBLE = 8;
+
+	// Factory without a fixed precision model, so that point coordinates are not rounded
+	private static final GeometryFactory FLOATING_FACTORY = new GeometryFactory();
+
+	private PackedROIs() {}
+
+	/**
+	 * Get the packed type that should be used for a ROI.
+	 * @param roi
+	 * @return
+	 */
+	public static byte getPackedType(ROI roi) {
+		if (roi instanceof RectangleROI)
+			return TYPE_RECTANGLE;
+		if (roi instanceof EllipseROI)
+			return TYPE_ELLIPSE;
+		if (roi instanceof LineROI)
+			return TYPE_LINE;
+		if (roi instanceof PolygonROI)
+			return TYPE_POLYGON;
+		if (roi instanceof PolylineROI)
+			return TYPE_POLYLINE;
+		if (roi instanceof PointsROI)
+			return isFloatExact(roi) ? TYPE_POINTS : TYPE_POINTS_DOUBLE;
+		return TYPE_GEOMETRY;
+	}
+
+	private static boolean isFloatExact(ROI roi) {
+		for (var p : roi.getAllPoints()) {
+			if ((float)p.getX() != p.getX() || (float)p.getY() != p.getY())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Query whether a packed type is stored using 4 double values.
+	 * @param packedType
+	 * @return
+	 */
+	public static boolean isParameterType(byte packedType) {
+		return packedType == TYPE_RECTANGLE || packedType == TYPE_ELLIPSE || packedType == TYPE_LINE;
+	}
+
+	/**
+	 * Query whether a packed type is stored using interleaved float vertices.
+	 * @param packedType
+	 * @return
+	 */
+	public static boolean isVertexType(byte packedType) {
+		return packedType == TYPE_POLYGON || packedType == TYPE_POLYLINE || packedType == TYPE_POINTS;
+	}
+
+	/**
+	 * Query whether a packed type is stored using well-known binary.
+	 * @param packedType
+	 * @return
+	 */
+	public static boolean isWKBType(byte packedType) {
+		return packedType == TYPE_GEOMETRY || packedType == TYPE_POINTS_DOUBLE;
+	}
+
+	/**
+	 * Get the number of vertices that are needed to store a ROI with a vertex type.
+	 * @param roi
+	 * @return the number of vertices, or 0 if the ROI does not have a vertex type
+	 */
+	public static int getNumVertices(ROI roi) {
+		if (roi instanceof PolygonROI polygon)
+			return polygon.getVertices().size();
+		if (roi instanceof PolylineROI polyline)
+			return polyline.getVertices().size();
+		if (roi instanceof PointsROI)
+			return roi.getNumPoints();
+		return 0;
+	}
+
+	/**
+	 * Write the vertices of a ROI into an array, interleaving x and y coordinates.
+	 * <p>
+	 * Points are only written exactly if {@link #getPackedType(ROI)} returns {@link #TYPE_POINTS}.
+	 * @param roi the ROI, which should have a vertex type
+	 * @param coords the array to which the coordinates should be written; this must have space for 2 values per vertex
+	 * @param offset the index at which the first coordinate should be written
+	 * @return the number of vertices written
+	 */
+	public static int getVertices(ROI roi, float[] coords, int offset) {
+		if (roi instanceof PolygonROI polygon)
+			return copyVertices(polygon.getVertices(), coords, offset);
+		if (roi instanceof PolylineROI polyline)
+			return copyVertices(polyline.getVertices(), coords, offset);
+		if (roi instanceof PointsROI) {
+			var points = roi.getAllPoints();
+			int ind = offset;
+			for (var p : points) {
+				coords[ind++] = (float)p.getX();
+				coords[ind++] = (float)p.getY();
+			}
+			return points.size();
+		}
+		throw new IllegalArgumentException("Cannot get packed vertices for " + roi);
+	}
+
+	private static int copyVertices(Vertices vertices, float[] coords, int offset) {
+		int n = vertices.size();
+		int ind = offset;
+		for (int i = 0; i < n; i++) {
+			coords[ind++] = vertices.getX(i);
+			coords[ind++] = vertices.getY(i);
+		}
+		return n;
+	}
+
+	/**
+	 * Get the 4 parameters defining a ROI with a parameter type.
+	 * @param roi the ROI, which should be a rectangle, ellipse or line
+	 * @param params array to which the parameters should be written
+	 * @param offset the index at which the first parameter should be written
+	 */
+	public static void getParameters(ROI roi, double[] params, int offset) {
+		if (roi instanceof LineROI line) {
+			params[offset] = line.getX1();
+			params[offset+1] = line.getY1();
+			params[offset+2] = line.getX2();
+			params[offset+3] = line.getY2();
+		} else if (roi instanceof RectangleROI || roi instanceof EllipseROI) {
+			params[offset] = roi.getBoundsX();
+			params[offset+1] = roi.getBoundsY();
+			params[offset+2] = roi.getBoundsWidth();
+			params[offset+3] = roi.getBoundsHeight();
+		} else
+			throw new IllegalArgumentException("Cannot get packed parameters for " + roi);
+	}
+
+	/**
+	 * Get well-known binary representing the geometry of a ROI.
+	 * @param roi
+	 * @return
+	 */
+	public static byte[] getWKB(ROI roi) {
+		if (roi instanceof PointsROI) {
+			var coords = roi.getAllPoints().stream()
+					.map(p -> new Coordinate(p.getX(), p.getY()))
+					.toArray(Coordinate[]::new);
+			return new WKBWriter(2).write(FLOATING_FACTORY.createMultiPointFromCoords(coords));
+		}
+		return new WKBWriter(2).write(roi.getGeometry());
+	}
+
+	/**
+	 * Create a ROI from interleaved vertices.
+	 * @param packedType the packed type (polygon, polyline or points)
+	 * @param coords array containing interleaved x and y coordinates
+	 * @param offset index of the first x coordinate
+	 * @param nVertices number of vertices
+	 * @param plane the image plane for the ROI
+	 * @return
+	 */
+	public static ROI createFromVertices(byte packedType, float[] coords, int offset, int nVertices, ImagePlane plane) {
+		float[] x = new float[nVertices];
+		float[] y = new float[nVertices];
+		int ind = offset;
+		for (int i = 0; i < nVertices; i++) {
+			x[i] = coords[ind++];
+			y[i] = coords[ind++];
+		}
+		return switch (packedType) {
+			case TYPE_POLYGON -> new PolygonROI(x, y, plane, false);
+			case TYPE_POLYLINE -> new PolylineROI(x, y, plane);
+			case TYPE_POINTS -> {
+				double[] xd = new double[nVertices];
+				double[] yd = new double[nVertices];
+				for (int i = 0; i < nVertices; i++) {
+					xd[i] = x[i];
+					yd[i] = y[i];
+				}
+				yield ROIs.createPointsROI(xd, yd, plane);
+			}
+			default -> throw new IllegalArgumentException("Packed type " + packedType + " is not a vertex type");
+		};
+	}
+
+	/**
+	 * Create a ROI from 4 parameters.
+	 * @param packedType the packed type (rectangle, ellipse or line)
+	 * @param params array containing the parameters
+	 * @param offset index of the first parameter
+	 * @param plane the image plane for the ROI
+	 * @return
+	 */
+	public static ROI createFromParameters(byte packedType, double[] params, int offset, ImagePlane plane) {
+		double a = params[offset];
+		double b = params[offset+1];
+		double c = params[offset+2];
+		double d = params[offset+3];
+		return switch (packedType) {
+			case TYPE_RECTANGLE -> ROIs.createRectangleROI(a, b, c, d, plane);
+			case TYPE_ELLIPSE -> ROIs.createEllipseROI(a, b, c, d, plane);
+			case TYPE_LINE -> ROIs.createLineROI(a, b, c, d, plane);
+			default -> throw new IllegalArgumentException("Packed type " + packedType + " is not a parameter type");
+		};
+	}
+
+	/**
+	 * Create a ROI from well-known binary.
+	 * @param packedType the packed type (geometry or double points)
+	 * @param wkb
+	 * @param plane
+	 * @return
+	 * @throws IOException if the well-known binary could not be parsed
+	 */
+	public static ROI createFromWKB(byte packedType, byte[] wkb, ImagePlane plane) throws IOException {
+		try {
+			return switch (packedType) {
+				case TYPE_GEOMETRY -> new GeometryROI(new WKBReader(GeometryTools.getDefaultFactory()).read(wkb), plane);
+				case TYPE_POINTS_DOUBLE -> {
+					// Read without the default precision model, which would round the coordinates
+					var coords = new WKBReader(FLOATING_FACTORY).read(wkb).getCoordinates();
+					double[] x = new double[coords.length];
+					double[] y = new double[coords.length];
+					for (int i = 0; i < coords.length; i++) {
+						x[i] = coords[i].x;
+						y[i] = coords[i].y;
+					}
+					yield ROIs.createPointsROI(x, y, plane);
+				}
+				default -> throw new IllegalArgumentException("Packed type " + packedType + " is not stored as well-known binary");
+			};
+		} catch (ParseException e) {
+			throw new IOException(e);
+		}
+	}
+
+}
@@ -28,6 +28,7 @@ import qupath.lib.images.servers.PixelType;
 import java.awt.Color;
 import java.awt.Image;
 import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
@@ -37,6 +38,11 @@ import java.awt.image.DataBufferInt;
 import java.awt.image.DataBufferShort;
 import java.awt.image.DataBufferUShort;
 import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.SplittableRandom;
@@ -426,6 +432,35 @@ public class TestBufferedImageTools {
 	 * This should obviously give the same result... but didn't in QuPath v0.3.2 (and likely earlier) 
 	 * with smooth interpolation due to a rounding error when using OpenCV and converting back to a raster.
 	 */
+	@Test
+	public void test_writeReadDataBuffer() throws IOException {
+		var random = new Random(100L);
+		int size = 50;
+		int nBanks = 3;
+		int[] dataTypes = {DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+				DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE};
+		for (int dataType : dataTypes) {
+			var sampleModel = new BandedSampleModel(dataType, size, 1, nBanks);
+			var buffer = sampleModel.createDataBuffer();
+			for (int b = 0; b < nBanks; b++) {
+				for (int i = 0; i < size; i++)
+					buffer.setElemDouble(b, i, random.nextInt(65536) - 32768 + random.nextDouble());
+			}
+			var bytes = new ByteArrayOutputStream();
+			try (var stream = new DataOutputStream(bytes)) {
+				BufferedImageTools.writeDataBuffer(buffer, stream);
+			}
+			var input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			var buffer2 = sampleModel.createDataBuffer();
+			BufferedImageTools.readDataBuffer(input, buffer2);
+			assertEquals(0, input.available());
+			for (int b = 0; b < nBanks; b++) {
+				for (int i = 0; i < size; i++)
+					assertEquals(buffer.getElemDouble(b, i), buffer2.getElemDouble(b, i));
+			}
+		}
+	}
+
 	@Test
 	public void test_resizeConstant() {
 		
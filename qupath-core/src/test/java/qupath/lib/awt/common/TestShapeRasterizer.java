@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.awt.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SuppressWarnings("javadoc")
+public class TestShapeRasterizer {
+
+	/**
+	 * Create a reference mask by testing whether each pixel center is inside the shape.
+	 * This is only reliable whenever no pixel center lies exactly on the boundary.
+	 */
+	private static int[] fillByContains(Shape shape, double x, double y, double downsample, int width, int height) {
+		int[] pixels = new int[width * height];
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				if (shape.contains(x + (col + 0.5) * downsample, y + (row + 0.5) * downsample))
+					pixels[row * width + col] = 255;
+			}
+		}
+		return pixels;
+	}
+
+	private static int[] fillWithRasterizer(Shape shape, double x, double y, double downsample, int width, int height) {
+		int[] pixels = new int[width * height];
+		new ShapeRasterizer(shape).rasterize(x, y, downsample, width, height, (row, xStart, xEnd) -> {
+			for (int i = xStart; i < xEnd; i++)
+				pixels[row * width + i] = 255;
+		});
+		return pixels;
+	}
+
+	private static Path2D createRandomPolygon(Random random, int nVertices, int windingRule) {
+		var path = new Path2D.Double(windingRule);
+		for (int i = 0; i < nVertices; i++) {
+			double x = random.nextDouble() * 100;
+			double y = random.nextDouble() * 80;
+			if (i == 0)
+				path.moveTo(x, y);
+			else
+				path.lineTo(x, y);
+		}
+		path.closePath();
+		return path;
+	}
+
+	@Test
+	public void test_polygons() {
+		var random = new Random(100L);
+		for (int windingRule : new int[] {Path2D.WIND_EVEN_ODD, Path2D.WIND_NON_ZERO}) {
+			for (int i = 0; i < 50; i++) {
+				var polygon = createRandomPolygon(random, 3 + i % 10, windingRule);
+				assertArrayEquals(
+						fillByContains(polygon, 0, 0, 1, 100, 80),
+						fillWithRasterizer(polygon, 0, 0, 1, 100, 80));
+			}
+		}
+	}
+
+	@Test
+	public void test_pixelCentersOnBoundary() {
+		// Pixel centers on the top & left edges should be included, but not those on the bottom & right
+		var rectangle = new Rectangle2D.Double(10.5, 10.5, 20, 30);
+		int[] pixels = fillWithRasterizer(rectangle, 0, 0, 1, 100, 80);
+		int count = 0;
+		for (int v : pixels) {
+			if (v != 0)
+				count++;
+		}
+		assertEquals(20 * 30, count);
+		assertEquals(255, pixels[10 * 100 + 10]);
+		assertEquals(0, pixels[40 * 100 + 10]);
+		assertEquals(0, pixels[10 * 100 + 30]);
+
+		// Adjacent rectangles should never both contain the same pixel
+		int[] pixels2 = fillWithRasterizer(new Rectangle2D.Double(30.5, 10.5, 20, 30), 0, 0, 1, 100, 80);
+		for (int i = 0; i < pixels.length; i++)
+			assertTrue(pixels[i] == 0 || pixels2[i] == 0);
+	}
+
+	@Test
+	public void test_tilesAndDownsamples() {
+		var random = new Random(200L);
+		var polygon = createRandomPolygon(random, 20, Path2D.WIND_NON_ZERO);
+		var area = new Area(polygon);
+		area.subtract(new Area(new Rectangle2D.Double(30.25, 30.25, 10, 10)));
+		area.add(new Area(AffineTransform.getRotateInstance(0.5).createTransformedShape(new Rectangle2D.Double(20.1, 0.1, 40, 20))));
+		for (double downsample : new double[] {1, 2, 4}) {
+			for (int y = -20; y < 80; y += 20) {
+				for (int x = -20; x < 100; x += 20) {
+					assertArrayEquals(
+							fillByContains(area, x, y, downsample, 16, 16),
+							fillWithRasterizer(area, x, y, downsample, 16, 16));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test_fillRaster() {
+		var img = new BufferedImage(50, 50, BufferedImage.TYPE_BYTE_GRAY);
+		var rasterizer = new ShapeRasterizer(new Rectangle2D.Double(10, 20, 5, 2));
+		assertTrue(rasterizer.getBounds().equals(new Rectangle2D.Double(10, 20, 5, 2)));
+		rasterizer.fill(img.getRaster(), 0, 3);
+		int sum = 0;
+		for (int v : img.getRaster().getSamples(0, 0, 50, 50, 0, (int[])null))
+			sum += v;
+		assertEquals(5 * 2 * 3, sum);
+		assertEquals(3, img.getRaster().getSample(10, 20, 0));
+		assertEquals(0, img.getRaster().getSample(15, 20, 0));
+	}
+
+	@Test
+	public void test_emptyShape() {
+		var rasterizer = new ShapeRasterizer(new Path2D.Double());
+		assertTrue(rasterizer.isEmpty());
+		rasterizer.rasterize(0, 0, 1, 10, 10, (y, xStart, xEnd) -> {
+			throw new AssertionError("No spans expected");
+		});
+	}
+
+}
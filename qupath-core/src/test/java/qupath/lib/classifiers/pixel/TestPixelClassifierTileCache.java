@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.classifiers.pixel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+public class TestPixelClassifierTileCache {
+
+    private static BufferedImage createImage(int type, int seed) {
+        var img = new BufferedImage(32, 16, type);
+        var raster = img.getRaster();
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                for (int b = 0; b < raster.getNumBands(); b++)
+                    raster.setSample(x, y, b, (x + y * 3 + b + seed) % 4);
+            }
+        }
+        return img;
+    }
+
+    private static BufferedImage createIndexedImage(int seed) {
+        var cm = new IndexColorModel(8, 4,
+                new byte[]{0, (byte)255, 0, 0},
+                new byte[]{0, 0, (byte)255, 0},
+                new byte[]{0, 0, 0, (byte)255});
+        var img = new BufferedImage(32, 16, BufferedImage.TYPE_BYTE_INDEXED, cm);
+        var raster = img.getRaster();
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++)
+                raster.setSample(x, y, 0, (x + y + seed) % 4);
+        }
+        return img;
+    }
+
+    private static RegionRequest createRequest(String path, int x) {
+        return RegionRequest.createInstance(path, 1.0, x, 0, 32, 16);
+    }
+
+    private static void assertSamplesEqual(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getType(), actual.getType());
+        Assertions.assertEquals(expected.getColorModel(), actual.getColorModel());
+        var expectedRaster = expected.getRaster();
+        var actualRaster = actual.getRaster();
+        Assertions.assertEquals(expectedRaster.getNumBands(), actualRaster.getNumBands());
+        for (int b = 0; b < expectedRaster.getNumBands(); b++) {
+            Assertions.assertArrayEquals(
+                    expectedRaster.getSamples(0, 0, expected.getWidth(), expected.getHeight(), b, (double[])null),
+                    actualRaster.getSamples(0, 0, actual.getWidth(), actual.getHeight(), b, (double[])null));
+        }
+    }
+
+    @Test
+    void Check_Key_Shared_Between_Requests_With_Different_Paths() {
+        var cache = new PixelClassifierTileCache(1024 * 1024);
+        var key = PixelClassifierTileCache.createKey("Some long classifier path");
+        Assertions.assertEquals(key, PixelClassifierTileCache.createKey("Some long classifier path"));
+        Assertions.assertNotEquals(key, PixelClassifierTileCache.createKey("Another classifier path"));
+
+        var img = createImage(BufferedImage.TYPE_BYTE_GRAY, 0);
+        cache.put(key, createRequest("first", 0), img);
+
+        Assertions.assertSame(img, cache.get(key, createRequest("second", 0)));
+        Assertions.assertSame(img, cache.asMap(key).get(createRequest("third", 0)));
+        Assertions.assertTrue(cache.asMap(key).containsKey(createRequest("fourth", 0)));
+        Assertions.assertNull(cache.get(key, createRequest("first", 32)));
+        Assertions.assertNull(cache.get(PixelClassifierTileCache.createKey("other"), createRequest("first", 0)));
+
+        // Iterating the map should return the original requests, rather than the requests used internally
+        Assertions.assertEquals(Set.of(createRequest("first", 0)), cache.asMap(key).keySet());
+    }
+
+    @Test
+    void Check_Eviction_By_Bytes() {
+        var img = createImage(BufferedImage.TYPE_BYTE_GRAY, 0);
+        long bytes = PixelClassifierTileCache.estimateSizeBytes(img);
+        Assertions.assertEquals(32 * 16, bytes);
+
+        var cache = new PixelClassifierTileCache(bytes * 3);
+        var key = "key";
+        for (int i = 0; i < 3; i++)
+            cache.put(key, createRequest(key, i * 32), createImage(BufferedImage.TYPE_BYTE_GRAY, i));
+        Assertions.assertEquals(bytes * 3, cache.getSizeBytes());
+
+        // Access the first tile so that the second is the least recently used
+        Assertions.assertNotNull(cache.get(key, createRequest(key, 0)));
+        cache.put(key, createRequest(key, 96), img);
+        Assertions.assertEquals(bytes * 3, cache.getSizeBytes());
+        Assertions.assertNotNull(cache.get(key, createRequest(key, 0)));
+        Assertions.assertNull(cache.get(key, createRequest(key, 32)));
+        Assertions.assertNotNull(cache.get(key, createRequest(key, 64)));
+        Assertions.assertSame(img, cache.get(key, createRequest(key, 96)));
+
+        cache.setMaxSizeBytes(bytes);
+        Assertions.assertEquals(bytes, cache.getSizeBytes());
+        Assertions.assertEquals(1, cache.asMap(key).size());
+
+        // Tiles that are too large are never cached
+        cache.put(key, createRequest(key, 128), createImage(BufferedImage.TYPE_INT_RGB, 0));
+        Assertions.assertNull(cache.get(key, createRequest(key, 128)));
+    }
+
+    @Test
+    void Check_Invalidate() {
+        var cache = new PixelClassifierTileCache(1024 * 1024);
+        cache.put("key1", createRequest("key1", 0), createImage(BufferedImage.TYPE_BYTE_GRAY, 0));
+        cache.put("key2", createRequest("key2", 0), createImage(BufferedImage.TYPE_BYTE_GRAY, 0));
+        cache.invalidate("key1");
+        Assertions.assertNull(cache.get("key1", createRequest("key1", 0)));
+        Assertions.assertNotNull(cache.get("key2", createRequest("key2", 0)));
+        Assertions.assertEquals(32 * 16, cache.getSizeBytes());
+        cache.clear();
+        Assertions.assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    void Check_Spill_To_Disk(@TempDir Path dir) throws IOException {
+        var images = new BufferedImage[] {
+                createIndexedImage(0),
+                createImage(BufferedImage.TYPE_3BYTE_BGR, 1),
+                createImage(BufferedImage.TYPE_USHORT_GRAY, 2),
+                createImage(BufferedImage.TYPE_INT_ARGB, 3)
+        };
+        long maxBytes = 0;
+        for (var img : images)
+            maxBytes = Math.max(maxBytes, PixelClassifierTileCache.estimateSizeBytes(img));
+
+        var cache = new PixelClassifierTileCache(maxBytes);
+        cache.setSpillDirectory(dir, 1024 * 1024);
+        var key = "key";
+        for (int i = 0; i < images.length; i++)
+            cache.put(key, createRequest(key, i * 32), images[i]);
+
+        // All but the last tile should have been written to disk
+        try (var files = Files.list(dir)) {
+            Assertions.assertEquals(images.length - 1, files.count());
+        }
+        for (int i = 0; i < images.length; i++) {
+            var request = createRequest(key, i * 32);
+            Assertions.assertTrue(cache.contains(key, request));
+            var img = cache.get(key, request);
+            Assertions.assertNotNull(img);
+            assertSamplesEqual(images[i], img);
+        }
+
+        cache.clear();
+        try (var files = Files.list(dir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void Check_Spill_Bounded(@TempDir Path dir) throws IOException {
+        var cache = new PixelClassifierTileCache(32 * 16);
+        cache.setSpillDirectory(dir, 0);
+        cache.put("key", createRequest("key", 0), createImage(BufferedImage.TYPE_BYTE_GRAY, 0));
+        cache.put("key", createRequest("key", 32), createImage(BufferedImage.TYPE_BYTE_GRAY, 1));
+        Assertions.assertNull(cache.get("key", createRequest("key", 0)));
+        Assertions.assertNotNull(cache.get("key", createRequest("key", 32)));
+        try (var files = Files.list(dir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+}
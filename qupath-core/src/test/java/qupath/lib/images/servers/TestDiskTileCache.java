@@ -0,0 +1,302 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDiskTileCache {
+
+    private static void assertSamplesEqual(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getType(), actual.getType());
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        var expectedRaster = expected.getRaster();
+        var actualRaster = actual.getRaster();
+        Assertions.assertEquals(expectedRaster.getNumBands(), actualRaster.getNumBands());
+        Assertions.assertEquals(expectedRaster.getDataBuffer().getDataType(), actualRaster.getDataBuffer().getDataType());
+        for (int b = 0; b < expectedRaster.getNumBands(); b++) {
+            Assertions.assertArrayEquals(
+                    expectedRaster.getSamples(0, 0, expected.getWidth(), expected.getHeight(), b, (double[])null),
+                    actualRaster.getSamples(0, 0, actual.getWidth(), actual.getHeight(), b, (double[])null));
+        }
+    }
+
+    @Test
+    void Check_Round_Trip_Across_Sessions(@TempDir Path dir) throws Exception {
+        var file = Files.writeString(dir.resolve("image.tif"), "image");
+        var cacheDir = dir.resolve("cache");
+        var servers = List.of(
+                new SampleServer(file, PixelType.UINT16, 3),
+                new SampleServer(file, PixelType.FLOAT32, 2),
+                new SampleServer(file, PixelType.INT16, 1),
+                new SampleServer(file, PixelType.UINT8, 3));
+        try (var cache = DiskTileCache.create(cacheDir, 100 * 1024 * 1024)) {
+            for (var server : servers) {
+                var request = RegionRequest.createInstance(server);
+                Assertions.assertNull(cache.get(server, request));
+                cache.put(server, request, server.readRegion(request));
+            }
+            for (var server : servers) {
+                var request = RegionRequest.createInstance(server);
+                assertSamplesEqual(server.readRegion(request), cache.get(server, request));
+            }
+            var stats = cache.getStatistics();
+            Assertions.assertEquals(servers.size(), stats.hitCount());
+            Assertions.assertEquals(servers.size(), stats.missCount());
+            Assertions.assertEquals(servers.size(), stats.tileCount());
+        }
+
+        // Tiles should still be available after reopening the cache
+        try (var cache = DiskTileCache.create(cacheDir, 100 * 1024 * 1024)) {
+            Assertions.assertEquals(servers.size(), cache.getStatistics().tileCount());
+            for (var server : servers) {
+                var request = RegionRequest.createInstance(server);
+                assertSamplesEqual(server.readRegion(request), cache.get(server, request));
+            }
+        }
+    }
+
+    @Test
+    void Check_Server_Uses_Disk_Cache(@TempDir Path dir) throws Exception {
+        var file = Files.writeString(dir.resolve("image.tif"), "image");
+        var previous = ImageServerProvider.getDiskCache();
+        try (var cache = DiskTileCache.create(dir.resolve("cache"), 100 * 1024 * 1024)) {
+            ImageServerProvider.setDiskCache(cache);
+            var server = new SampleServer(file, PixelType.UINT8, 3);
+            var request = RegionRequest.createInstance(server);
+            var expected = server.readRegion(request);
+            int nTiles = server.getTileRequestManager().getAllTileRequests().size();
+            Assertions.assertEquals(nTiles, server.readCount.get());
+
+            // A new server shouldn't need to read any tiles
+            var server2 = new SampleServer(file, PixelType.UINT8, 3);
+            assertSamplesEqual(expected, server2.readRegion(request));
+            Assertions.assertEquals(0, server2.readCount.get());
+        } finally {
+            ImageServerProvider.setDiskCache(previous);
+        }
+    }
+
+    @Test
+    void Check_Modified_File_Invalidates_Tiles(@TempDir Path dir) throws Exception {
+        var file = Files.writeString(dir.resolve("image.tif"), "image");
+        var server = new SampleServer(file, PixelType.UINT8, 1);
+        var request = RegionRequest.createInstance(server);
+        try (var cache = DiskTileCache.create(dir.resolve("cache"), 100 * 1024 * 1024)) {
+            cache.put(server, request, server.readRegion(request));
+            Assertions.assertNotNull(cache.get(server, request));
+        }
+        Files.writeString(file, "modified image");
+        try (var cache = DiskTileCache.create(dir.resolve("cache"), 100 * 1024 * 1024)) {
+            Assertions.assertNull(cache.get(new SampleServer(file, PixelType.UINT8, 1), request));
+            Assertions.assertEquals(0, cache.getSizeBytes());
+        }
+    }
+
+    @Test
+    void Check_Size_Limit(@TempDir Path dir) throws Exception {
+        var file = Files.writeString(dir.resolve("image.tif"), "image");
+        var server = new SampleServer(file, PixelType.FLOAT32, 1);
+        var first = RegionRequest.createInstance(server.getPath(), 1.0, 0, 0, 64, 64);
+        long tileBytes;
+        try (var cache = DiskTileCache.create(dir.resolve("cache"), 1024 * 1024)) {
+            cache.put(server, first, server.readRegion(first));
+            tileBytes = cache.getSizeBytes();
+            long maxBytes = tileBytes * 10;
+            try (var smallCache = DiskTileCache.create(dir.resolve("small-cache"), maxBytes)) {
+                smallCache.put(server, first, server.readRegion(first));
+                for (int i = 1; i < 50; i++) {
+                    var request = RegionRequest.createInstance(server.getPath(), 1.0, (i % 8) * 64, (i / 8) * 64, 64, 64);
+                    smallCache.put(server, request, server.readRegion(request));
+                    // Keep using the first tile, so that it isn't evicted
+                    Assertions.assertNotNull(smallCache.get(server, first));
+                    Assertions.assertTrue(smallCache.getSizeBytes() <= maxBytes);
+                }
+                var stats = smallCache.getStatistics();
+                Assertions.assertTrue(stats.evictionCount() > 0);
+                Assertions.assertTrue(stats.tileCount() < 50);
+            }
+        }
+    }
+
+    @Test
+    void Check_Concurrent_Eviction(@TempDir Path dir) throws Exception {
+        var file = Files.writeString(dir.resolve("image.tif"), "image");
+        // Use different servers so that tiles are stored in different packs, which are compacted independently
+        var servers = List.of(
+                new SampleServer(file, PixelType.FLOAT32, 1),
+                new SampleServer(file, PixelType.UINT16, 1),
+                new SampleServer(file, PixelType.UINT8, 1));
+        var first = RegionRequest.createInstance(servers.getFirst().getPath(), 1.0, 0, 0, 64, 64);
+        long maxBytes;
+        try (var cache = DiskTileCache.create(dir.resolve("cache"), 1024 * 1024)) {
+            cache.put(servers.getFirst(), first, servers.getFirst().readRegion(first));
+            maxBytes = cache.getSizeBytes() * 10;
+        }
+        try (var cache = DiskTileCache.create(dir.resolve("small-cache"), maxBytes)) {
+            var pool = Executors.newFixedThreadPool(servers.size() * 2);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < servers.size() * 2; t++) {
+                var server = servers.get(t % servers.size());
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 40; i++) {
+                        var request = RegionRequest.createInstance(server.getPath(), 1.0, (i % 7) * 64, (i / 7) * 64, 64, 64);
+                        var expected = server.readRegion(request);
+                        cache.put(server, request, expected);
+                        // Tiles may have been evicted by another thread, but any we get back must be correct
+                        var cached = cache.get(server, request);
+                        if (cached != null)
+                            assertSamplesEqual(expected, cached);
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures)
+                future.get();
+            pool.shutdown();
+            var stats = cache.getStatistics();
+            Assertions.assertTrue(stats.evictionCount() > 0);
+            Assertions.assertTrue(cache.getSizeBytes() <= maxBytes);
+        }
+    }
+
+    @Test
+    void Check_Clear(@TempDir Path dir) throws Exception {
+        var file = Files.writeString(dir.resolve("image.tif"), "image");
+        var server = new SampleServer(file, PixelType.UINT8, 3);
+        var request = RegionRequest.createInstance(server);
+        var cacheDir = dir.resolve("cache");
+        try (var cache = DiskTileCache.create(cacheDir, 100 * 1024 * 1024)) {
+            cache.put(server, request, server.readRegion(request));
+            cache.flush();
+            try (var files = Files.list(cacheDir)) {
+                Assertions.assertEquals(2, files.count());
+            }
+            cache.clear();
+            Assertions.assertNull(cache.get(server, request));
+            Assertions.assertEquals(0, cache.getSizeBytes());
+            try (var files = Files.list(cacheDir)) {
+                Assertions.assertEquals(0, files.count());
+            }
+        }
+    }
+
+    private static class SampleServer extends AbstractTileableImageServer {
+
+        private final Path file;
+        private final PixelType pixelType;
+        private final int nChannels;
+        private final AtomicInteger readCount = new AtomicInteger();
+
+        private SampleServer(Path file, PixelType pixelType, int nChannels) {
+            this.file = file;
+            this.pixelType = pixelType;
+            this.nChannels = nChannels;
+        }
+
+        @Override
+        protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
+            readCount.incrementAndGet();
+            int width = tileRequest.getTileWidth();
+            int height = tileRequest.getTileHeight();
+            if (isRGB()) {
+                var img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++)
+                        img.setRGB(x, y, (tileRequest.getImageX() + x) * 31 + (tileRequest.getImageY() + y) * 17);
+                }
+                return img;
+            }
+            var img = createDefaultImage(width, height);
+            var raster = img.getRaster();
+            for (int c = 0; c < nChannels; c++) {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++)
+                        raster.setSample(x, y, c, (tileRequest.getImageX() + x + tileRequest.getImageY() + y + c * 7) % 100 - 10 + 0.5);
+                }
+            }
+            return img;
+        }
+
+        private BufferedImage createDefaultImage(int width, int height) {
+            var colorModel = ColorModelFactory.createColorModel(pixelType, getMetadata().getChannels());
+            var raster = colorModel.createCompatibleWritableRaster(width, height);
+            return new BufferedImage(colorModel, raster, false, null);
+        }
+
+        @Override
+        protected boolean isDiskCacheSupported() {
+            return true;
+        }
+
+        @Override
+        protected ImageServerBuilder.ServerBuilder<BufferedImage> createServerBuilder() {
+            return null;
+        }
+
+        @Override
+        protected String createID() {
+            return file.toUri() + "-" + pixelType + "-" + nChannels;
+        }
+
+        @Override
+        public Collection<URI> getURIs() {
+            return List.of(file.toUri());
+        }
+
+        @Override
+        public String getServerType() {
+            return "Sample server";
+        }
+
+        @Override
+        public ImageServerMetadata getOriginalMetadata() {
+            boolean isRGB = pixelType == PixelType.UINT8 && nChannels == 3;
+            return new ImageServerMetadata.Builder()
+                    .width(500)
+                    .height(400)
+                    .preferredTileSize(256, 256)
+                    .channels(isRGB ? ImageChannel.getDefaultRGBChannels() : ImageChannel.getDefaultChannelList(nChannels))
+                    .pixelType(pixelType)
+                    .rgb(isRGB)
+                    .build();
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.junit.jupiter.api.Test;
+import qupath.lib.regions.RegionRequest;
+import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SuppressWarnings("javadoc")
+public class TestLabelRasterizer {
+
+	private static final int SIZE = 256;
+
+	private static RegionRequest createRequest(int x, int y, double downsample) {
+		return RegionRequest.createInstance("labels", downsample, x, y, (int)(SIZE * downsample), (int)(SIZE * downsample));
+	}
+
+	@Test
+	public void testFillRectangle() {
+		var rasterizer = new LabelRasterizer(createRequest(0, 0, 1), SIZE, SIZE, 1f);
+		rasterizer.add(ROIs.createRectangleROI(10, 20, 30, 40), 5, false);
+		byte[] pixels = new byte[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				int expected = x >= 10 && x < 40 && y >= 20 && y < 60 ? 5 : 0;
+				assertEquals(expected, pixels[y * SIZE + x]);
+			}
+		}
+	}
+
+	@Test
+	public void testDownsampleAndOffset() {
+		// Rectangle covers pixels [5, 20) at a downsample of 2 once the region offset has been applied
+		var rasterizer = new LabelRasterizer(createRequest(100, 200, 2), SIZE, SIZE, 1f);
+		rasterizer.add(ROIs.createRectangleROI(110, 210, 30, 30), 1, false);
+		int[] pixels = new int[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		int count = 0;
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				if (pixels[y * SIZE + x] != 0) {
+					count++;
+					assertEquals(true, x >= 5 && x < 20 && y >= 5 && y < 20);
+				}
+			}
+		}
+		assertEquals(15 * 15, count);
+	}
+
+	@Test
+	public void testBoundary() {
+		var rasterizer = new LabelRasterizer(createRequest(0, 0, 1), SIZE, SIZE, 1f);
+		var roi = ROIs.createRectangleROI(10, 10, 20, 20);
+		rasterizer.add(roi, 1, false);
+		rasterizer.add(roi, 2, true);
+		short[] pixels = new short[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		// Thin boundaries label the pixels containing the outline, i.e. rows & columns 10 and 30
+		assertEquals(0, pixels[9 * SIZE + 15]);
+		assertEquals(2, pixels[10 * SIZE + 15]);
+		assertEquals(1, pixels[11 * SIZE + 15]);
+		assertEquals(1, pixels[29 * SIZE + 15]);
+		assertEquals(2, pixels[30 * SIZE + 15]);
+		assertEquals(2, pixels[15 * SIZE + 10]);
+		assertEquals(2, pixels[15 * SIZE + 30]);
+		assertEquals(0, pixels[15 * SIZE + 31]);
+	}
+
+	@Test
+	public void testThickBoundary() {
+		var rasterizer = new LabelRasterizer(createRequest(0, 0, 1), SIZE, SIZE, 3f);
+		var roi = ROIs.createRectangleROI(10, 10, 20, 20);
+		rasterizer.add(roi, 1, false);
+		rasterizer.add(roi, 2, true);
+		short[] pixels = new short[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		// Thick boundaries label pixels with centers within 1.5 pixels of the outline,
+		// including centers on the top and left of the stroke but excluding those on the bottom and right
+		assertEquals(0, pixels[7 * SIZE + 15]);
+		assertEquals(2, pixels[8 * SIZE + 15]);
+		assertEquals(2, pixels[10 * SIZE + 15]);
+		assertEquals(1, pixels[11 * SIZE + 15]);
+		assertEquals(1, pixels[27 * SIZE + 15]);
+		assertEquals(2, pixels[28 * SIZE + 15]);
+		assertEquals(2, pixels[30 * SIZE + 15]);
+		assertEquals(0, pixels[31 * SIZE + 15]);
+	}
+
+	@Test
+	public void testLinesAndPoints() {
+		var rasterizer = new LabelRasterizer(createRequest(0, 0, 1), SIZE, SIZE, 1f);
+		rasterizer.add(ROIs.createLineROI(10, 50.5, 100, 50.5), 3, false);
+		rasterizer.add(ROIs.createLineROI(200, 10, 210, 110), 4, false);
+		rasterizer.add(ROIs.createPointsROI(new double[] {5.5, 300}, new double[] {6.5, 10}), 5, false);
+		byte[] pixels = new byte[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		int[] counts = new int[6];
+		for (byte b : pixels)
+			counts[b]++;
+		// Lines include a single pixel for each column (or row, if steep) with a center between the end points
+		assertEquals(90, counts[3]);
+		assertEquals(100, counts[4]);
+		assertEquals(1, counts[5]);
+		assertEquals(3, pixels[50 * SIZE + 10]);
+		assertEquals(5, pixels[6 * SIZE + 5]);
+	}
+
+	@Test
+	public void testOrder() {
+		var rasterizer = new LabelRasterizer(createRequest(0, 0, 1), SIZE, SIZE, 1f);
+		rasterizer.add(ROIs.createRectangleROI(0, 0, 20, 20), 1, false);
+		rasterizer.add(ROIs.createRectangleROI(10, 10, 20, 20), 2, false);
+		byte[] pixels = new byte[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		assertEquals(1, pixels[5 * SIZE + 5]);
+		assertEquals(2, pixels[15 * SIZE + 15]);
+
+		// Reuse after clearing, in the opposite order
+		rasterizer.clear();
+		rasterizer.add(ROIs.createRectangleROI(10, 10, 20, 20), 2, false);
+		rasterizer.add(ROIs.createRectangleROI(0, 0, 20, 20), 1, false);
+		pixels = new byte[SIZE * SIZE];
+		rasterizer.rasterize(pixels);
+		assertEquals(1, pixels[15 * SIZE + 15]);
+	}
+
+	@Test
+	public void testParallelMatchesSequential() {
+		// Create enough overlapping ROIs to rasterize in parallel stripes
+		var rng = new Random(100);
+		List<ROI> rois = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			double x = rng.nextDouble() * SIZE * 2;
+			double y = rng.nextDouble() * SIZE * 2;
+			int n = 3 + rng.nextInt(8);
+			double[] xs = new double[n];
+			double[] ys = new double[n];
+			for (int k = 0; k < n; k++) {
+				double theta = 2 * Math.PI * k / n;
+				double r = 5 + rng.nextDouble() * 15;
+				xs[k] = x + Math.cos(theta) * r;
+				ys[k] = y + Math.sin(theta) * r;
+			}
+			rois.add(ROIs.createPolygonROI(xs, ys));
+		}
+		var request = createRequest(0, 0, 2);
+
+		for (float lineThickness : new float[] {1f, 2.5f}) {
+			var rasterizer = new LabelRasterizer(request, SIZE, SIZE, lineThickness);
+			for (int i = 0; i < rois.size(); i++) {
+				rasterizer.add(rois.get(i), i + 1, false);
+				rasterizer.add(rois.get(i), 60000, true);
+			}
+			short[] pixels = new short[SIZE * SIZE];
+			rasterizer.rasterize(pixels);
+
+			// Draw each ROI separately, which is always sequential
+			short[] expected = new short[SIZE * SIZE];
+			for (int i = 0; i < rois.size(); i++) {
+				var single = new LabelRasterizer(request, SIZE, SIZE, lineThickness);
+				single.add(rois.get(i), i + 1, false);
+				single.add(rois.get(i), 60000, true);
+				single.rasterize(expected);
+			}
+			assertArrayEquals(expected, pixels);
+		}
+	}
+
+}
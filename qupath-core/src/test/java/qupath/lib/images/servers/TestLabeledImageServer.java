@@ -0,0 +1,147 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import qupath.lib.images.ImageData;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SuppressWarnings("javadoc")
+public class TestLabeledImageServer {
+
+	private static final int SIZE = 600;
+	private static final int CELL_SIZE = 2;
+
+	private static final PathClass TUMOR = PathClass.fromString("Tumor");
+	private static final PathClass STROMA = PathClass.fromString("Stroma");
+
+	/**
+	 * Create an image containing the requested number of square detections on a grid.
+	 * Integer rectangles are used so that Graphics2D and the scanline fill should give identical results.
+	 */
+	private static ImageData<BufferedImage> createImageData(int nObjects) {
+		var imageData = new ImageData<>(new WrappedBufferedImageServer("labels",
+				new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_GRAY)));
+		int nPerRow = SIZE / CELL_SIZE;
+		List<PathObject> detections = new ArrayList<>();
+		for (int i = 0; i < nObjects; i++) {
+			int x = (i % nPerRow) * CELL_SIZE;
+			int y = (i / nPerRow) * CELL_SIZE;
+			var roi = ROIs.createRectangleROI(x, y, CELL_SIZE, CELL_SIZE, ImagePlane.getDefaultPlane());
+			detections.add(PathObjects.createDetectionObject(roi, i % 3 == 0 ? TUMOR : STROMA));
+		}
+		imageData.getHierarchy().addObjects(detections);
+		return imageData;
+	}
+
+	static Stream<Arguments> provideInstanceLabels() {
+		return Stream.of(
+				Arguments.of(100, false, PixelType.UINT8),
+				Arguments.of(1000, false, PixelType.UINT16),
+				Arguments.of(1000, true, PixelType.UINT16),
+				// Only 90000 squares fit in the image, which is more than can be stored as UINT16
+				Arguments.of(90_000, false, PixelType.UINT8),
+				Arguments.of(90_000, true, PixelType.FLOAT32)
+		);
+	}
+
+	@ParameterizedTest
+	@MethodSource("provideInstanceLabels")
+	public void testInstanceLabelsMatchGraphics2D(int nObjects, boolean grayscale, PixelType expectedPixelType) throws Exception {
+		var imageData = createImageData(nObjects);
+		try (var server = createInstanceServer(imageData, grayscale, false);
+			 var serverGraphics2D = createInstanceServer(imageData, grayscale, true)) {
+			assertEquals(expectedPixelType, server.getPixelType());
+			assertTilesEqual(serverGraphics2D, server);
+		}
+	}
+
+	@Test
+	public void testClassLabelsMatchGraphics2D() throws Exception {
+		var imageData = createImageData(5000);
+		try (var server = createClassServer(imageData, false);
+			 var serverGraphics2D = createClassServer(imageData, true)) {
+			assertTilesEqual(serverGraphics2D, server);
+		}
+	}
+
+	private static LabeledImageServer createInstanceServer(ImageData<BufferedImage> imageData, boolean grayscale, boolean useGraphics2D) {
+		return new LabeledImageServer.Builder(imageData)
+				.useDetections()
+				.useInstanceLabels()
+				.shuffleInstanceLabels(false)
+				.grayscale(grayscale)
+				.tileSize(256)
+				.useGraphics2D(useGraphics2D)
+				.build();
+	}
+
+	private static LabeledImageServer createClassServer(ImageData<BufferedImage> imageData, boolean useGraphics2D) {
+		return new LabeledImageServer.Builder(imageData)
+				.useDetections()
+				.backgroundLabel(0)
+				.addLabel(TUMOR, 1)
+				.addLabel(STROMA, 2)
+				.tileSize(256)
+				.useGraphics2D(useGraphics2D)
+				.build();
+	}
+
+	private static void assertTilesEqual(LabeledImageServer expected, LabeledImageServer actual) throws IOException {
+		assertEquals(expected.getPixelType(), actual.getPixelType());
+		for (var tile : actual.getTileRequestManager().getTileRequestsForLevel(0)) {
+			var imgExpected = expected.readTile(tile);
+			var img = actual.readTile(tile);
+			// Tiles should always match the server metadata
+			assertEquals(actual.nChannels(), img.getRaster().getNumBands());
+			if (actual.getPixelType() == PixelType.FLOAT32)
+				assertEquals(DataBuffer.TYPE_FLOAT, img.getRaster().getDataBuffer().getDataType());
+			assertEquals(imgExpected.getRaster().getDataBuffer().getDataType(), img.getRaster().getDataBuffer().getDataType());
+			int w = img.getWidth();
+			int h = img.getHeight();
+			for (int b = 0; b < img.getRaster().getNumBands(); b++) {
+				assertArrayEquals(
+						imgExpected.getRaster().getSamples(0, 0, w, h, b, (int[])null),
+						img.getRaster().getSamples(0, 0, w, h, b, (int[])null),
+						"Labels differ for band " + b + " in " + tile);
+			}
+		}
+	}
+
+}
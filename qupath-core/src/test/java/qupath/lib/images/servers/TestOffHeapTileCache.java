@@ -0,0 +1,250 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestOffHeapTileCache {
+
+    private static RegionRequest createRequest(int i) {
+        return RegionRequest.createInstance("test", 1.0, i * 256, 0, 256, 256);
+    }
+
+    private static BufferedImage createImage(int dataType, int width, int height, int nChannels, long seed) {
+        var sampleModel = new BandedSampleModel(dataType, width, height, nChannels);
+        var raster = Raster.createWritableRaster(sampleModel, null);
+        var random = new Random(seed);
+        for (int c = 0; c < nChannels; c++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++)
+                    raster.setSample(x, y, c, random.nextInt(255));
+            }
+        }
+        var pixelType = switch (dataType) {
+            case DataBuffer.TYPE_BYTE -> PixelType.UINT8;
+            case DataBuffer.TYPE_USHORT -> PixelType.UINT16;
+            case DataBuffer.TYPE_SHORT -> PixelType.INT16;
+            case DataBuffer.TYPE_INT -> PixelType.INT32;
+            case DataBuffer.TYPE_FLOAT -> PixelType.FLOAT32;
+            default -> PixelType.FLOAT64;
+        };
+        var colorModel = ColorModelFactory.createColorModel(pixelType, ImageChannel.getDefaultChannelList(nChannels));
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    private static void assertSamplesEqual(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        var expectedRaster = expected.getRaster();
+        var actualRaster = actual.getRaster();
+        Assertions.assertEquals(expectedRaster.getNumBands(), actualRaster.getNumBands());
+        for (int b = 0; b < expectedRaster.getNumBands(); b++) {
+            Assertions.assertArrayEquals(
+                    expectedRaster.getSamples(0, 0, expected.getWidth(), expected.getHeight(), b, (double[])null),
+                    actualRaster.getSamples(0, 0, actual.getWidth(), actual.getHeight(), b, (double[])null));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+            DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE})
+    void Check_Round_Trip(int dataType) {
+        var cache = OffHeapTileCache.create(10 * 1024 * 1024);
+        var img = createImage(dataType, 64, 48, 3, dataType);
+        var request = createRequest(0);
+        cache.put(request, img);
+
+        var cached = cache.get(request);
+        Assertions.assertNotSame(img, cached);
+        Assertions.assertEquals(dataType, cached.getRaster().getDataBuffer().getDataType());
+        Assertions.assertEquals(img.getRaster().getDataBuffer().getClass(), cached.getRaster().getDataBuffer().getClass());
+        assertSamplesEqual(img, cached);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE})
+    void Check_Zero_Copy(int dataType) {
+        var cache = OffHeapTileCache.create(10 * 1024 * 1024, true);
+        var img = createImage(dataType, 32, 40, 2, dataType);
+        var request = createRequest(0);
+        cache.put(request, img);
+
+        var cached = cache.get(request);
+        assertSamplesEqual(img, cached);
+
+        // Changes should be visible in the cache, since the memory is shared
+        cached.getRaster().setSample(1, 2, 1, 100);
+        Assertions.assertEquals(100, cache.get(request).getRaster().getSample(1, 2, 1));
+    }
+
+    @Test
+    void Check_Subimage() {
+        var cache = OffHeapTileCache.create(10 * 1024 * 1024);
+        var img = new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB);
+        var random = new Random(1);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++)
+                img.setRGB(x, y, random.nextInt());
+        }
+        var sub = img.getSubimage(10, 20, 30, 40);
+        var request = createRequest(0);
+        cache.put(request, sub);
+
+        var cached = cache.get(request);
+        // Only the pixels of the subimage should be stored
+        Assertions.assertEquals(30 * 40 * 4, cache.getSizeBytes());
+        Assertions.assertEquals(BufferedImage.TYPE_INT_RGB, cached.getType());
+        for (int y = 0; y < sub.getHeight(); y++) {
+            for (int x = 0; x < sub.getWidth(); x++)
+                Assertions.assertEquals(sub.getRGB(x, y), cached.getRGB(x, y));
+        }
+    }
+
+    @Test
+    void Check_Size_Limit() {
+        long tileBytes = 256 * 256;
+        long maxBytes = tileBytes * 20;
+        var cache = OffHeapTileCache.create(maxBytes);
+        for (int i = 0; i < 100; i++) {
+            cache.put(createRequest(i), new BufferedImage(256, 256, BufferedImage.TYPE_BYTE_GRAY));
+            Assertions.assertTrue(cache.getSizeBytes() <= maxBytes);
+        }
+        var stats = cache.getStatistics();
+        Assertions.assertEquals(cache.size(), stats.tileCount());
+        Assertions.assertEquals(tileBytes * cache.size(), stats.sizeBytes());
+        Assertions.assertEquals(100 - cache.size(), stats.evictionCount());
+        Assertions.assertTrue(cache.size() <= 20);
+
+        // Tiles that are too large should not be cached
+        var request = createRequest(1000);
+        cache.put(request, new BufferedImage(2048, 2048, BufferedImage.TYPE_BYTE_GRAY));
+        Assertions.assertFalse(cache.containsKey(request));
+    }
+
+    @Test
+    void Check_Concurrent_Eviction() throws Exception {
+        // Tiles are released when they are evicted, which mustn't affect threads that are reading them
+        long tileBytes = 64 * 64;
+        var cache = OffHeapTileCache.create(tileBytes * 10);
+        int nThreads = 4;
+        var pool = Executors.newFixedThreadPool(nThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < nThreads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    int ind = i % 25;
+                    var request = createRequest(ind);
+                    var img = createImage(DataBuffer.TYPE_BYTE, 64, 64, 1, ind);
+                    var cached = cache.get(request);
+                    if (cached == null)
+                        cache.put(request, img);
+                    else
+                        assertSamplesEqual(img, cached);
+                }
+                return null;
+            }));
+        }
+        for (var future : futures)
+            future.get();
+        pool.shutdown();
+        Assertions.assertTrue(cache.getSizeBytes() <= tileBytes * 10);
+        Assertions.assertTrue(cache.getStatistics().evictionCount() > 0);
+    }
+
+    @Test
+    void Check_Statistics() {
+        var cache = OffHeapTileCache.create(1024 * 1024);
+        Assertions.assertEquals(1.0, cache.getStatistics().hitRate());
+
+        var request = createRequest(0);
+        Assertions.assertNull(cache.get(request));
+        cache.put(request, new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_GRAY));
+        Assertions.assertNotNull(cache.get(request));
+        Assertions.assertNotNull(cache.get(request));
+        Assertions.assertNull(cache.get(createRequest(1)));
+
+        var stats = cache.getStatistics();
+        Assertions.assertEquals(2, stats.hitCount());
+        Assertions.assertEquals(2, stats.missCount());
+        Assertions.assertEquals(0.5, stats.hitRate(), 1e-6);
+        Assertions.assertEquals(1, stats.tileCount());
+        Assertions.assertEquals(256, stats.sizeBytes());
+        Assertions.assertEquals(1024 * 1024, stats.maxSizeBytes());
+
+        Assertions.assertNotNull(cache.remove(request));
+        Assertions.assertTrue(cache.isEmpty());
+        Assertions.assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    void Check_Frequent_Tiles_Survive_Scan() {
+        long tileBytes = 256 * 256;
+        var cache = OffHeapTileCache.create(tileBytes * 50);
+        var frequent = createRequest(0);
+        var img = new BufferedImage(256, 256, BufferedImage.TYPE_BYTE_GRAY);
+        cache.put(frequent, img);
+        for (int i = 0; i < 10; i++)
+            cache.get(frequent);
+
+        // Add many tiles that are each used only once
+        for (int i = 1; i <= 1000; i++) {
+            var request = createRequest(i);
+            if (cache.get(request) == null)
+                cache.put(request, img);
+        }
+        Assertions.assertTrue(cache.containsKey(frequent));
+        Assertions.assertTrue(cache.getSizeBytes() <= tileBytes * 50);
+    }
+
+    @Test
+    void Check_Views() {
+        var cache = OffHeapTileCache.create(1024 * 1024);
+        for (int i = 0; i < 10; i++)
+            cache.put(createRequest(i), new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_GRAY));
+        Assertions.assertEquals(10, cache.keySet().size());
+        for (var entry : cache.entrySet())
+            Assertions.assertInstanceOf(DataBufferByte.class, entry.getValue().getRaster().getDataBuffer());
+        cache.keySet().removeIf(r -> r.getX() < 256 * 5);
+        Assertions.assertEquals(5, cache.size());
+        Assertions.assertEquals(5 * 256, cache.getSizeBytes());
+        cache.clear();
+        Assertions.assertTrue(cache.isEmpty());
+        Assertions.assertEquals(0, cache.getSizeBytes());
+    }
+
+}
@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class TestTilePrefetcher {
+
+    private static final int TILE_SIZE = 128;
+
+    private static final long TILE_BYTES = TILE_SIZE * TILE_SIZE;
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long endTime = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > endTime)
+                Assertions.fail("Timed out waiting for prefetching");
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<RegionRequest> createTileRegions(ImageServer<?> server) {
+        List<RegionRequest> regions = new ArrayList<>();
+        for (int y = 0; y < server.getHeight(); y += TILE_SIZE) {
+            for (int x = 0; x < server.getWidth(); x += TILE_SIZE)
+                regions.add(RegionRequest.createInstance(server.getPath(), 1.0, x, y, TILE_SIZE, TILE_SIZE));
+        }
+        return regions;
+    }
+
+    @Test
+    void Check_Prefetched_Tiles_Are_Not_Read_Again() throws Exception {
+        var server = new SampleServer();
+        var regions = createTileRegions(server);
+        try (var prefetcher = TilePrefetcher.create(server, regions, 2, 1024 * 1024)) {
+            Assertions.assertEquals(regions.size(), prefetcher.getTileCount());
+            prefetcher.start();
+            awaitCondition(() -> prefetcher.getPrefetchedTileCount() == regions.size());
+            Assertions.assertEquals(regions.size() * TILE_BYTES, prefetcher.getRetainedBytes());
+
+            for (var region : regions) {
+                var img = server.readRegion(region);
+                Assertions.assertEquals((region.getX() + region.getY()) % 256, img.getRaster().getSample(0, 0, 0));
+                prefetcher.regionComplete(region);
+            }
+            // All tiles should have been read exactly once, and then released
+            Assertions.assertEquals(regions.size(), server.readCount.get());
+            Assertions.assertEquals(0, prefetcher.getRetainedBytes());
+        }
+    }
+
+    @Test
+    void Check_Retained_Bytes_Are_Limited() throws Exception {
+        var server = new SampleServer();
+        var regions = createTileRegions(server);
+        long maxBytes = TILE_BYTES * 3;
+        try (var prefetcher = TilePrefetcher.create(server, regions, 4, maxBytes)) {
+            prefetcher.start();
+            awaitCondition(() -> prefetcher.getPrefetchedTileCount() == 3);
+            // Give the prefetcher an opportunity to exceed the limit, if it is going to
+            Thread.sleep(100);
+            Assertions.assertEquals(3, prefetcher.getPrefetchedTileCount());
+            Assertions.assertEquals(maxBytes, prefetcher.getRetainedBytes());
+
+            // Completing regions should allow prefetching to continue
+            for (int i = 0; i < regions.size(); i++) {
+                var region = regions.get(i);
+                server.readRegion(region);
+                prefetcher.regionComplete(region);
+                Assertions.assertTrue(prefetcher.getRetainedBytes() <= maxBytes);
+                int nRemaining = regions.size() - i - 1;
+                int nExpected = Math.min(3, nRemaining);
+                awaitCondition(() -> prefetcher.getRetainedBytes() == nExpected * TILE_BYTES);
+            }
+            Assertions.assertEquals(regions.size(), prefetcher.getPrefetchedTileCount());
+            Assertions.assertEquals(regions.size(), server.readCount.get());
+        }
+    }
+
+    @Test
+    void Check_Disabled_Prefetching_Reads_Nothing() throws Exception {
+        var server = new SampleServer();
+        var regions = createTileRegions(server);
+        boolean wasEnabled = TilePrefetcher.isEnabled();
+        try {
+            TilePrefetcher.setEnabled(false);
+            try (var prefetcher = TilePrefetcher.create(server, regions, 2, 1024 * 1024)) {
+                prefetcher.start();
+                Thread.sleep(100);
+                Assertions.assertEquals(0, prefetcher.getTileCount());
+                Assertions.assertEquals(0, prefetcher.getPrefetchedTileCount());
+                Assertions.assertEquals(0, server.readCount.get());
+            }
+        } finally {
+            TilePrefetcher.setEnabled(wasEnabled);
+        }
+    }
+
+    @Test
+    void Check_Close_Releases_Tiles() throws Exception {
+        var server = new SampleServer();
+        // Request overlapping regions, so that tiles are shared
+        var regions = List.of(
+                RegionRequest.createInstance(server.getPath(), 1.0, 0, 0, 200, 200),
+                RegionRequest.createInstance(server.getPath(), 1.0, 128, 0, 200, 100));
+        var prefetcher = TilePrefetcher.create(server, regions, 2, 1024 * 1024);
+        Assertions.assertEquals(5, prefetcher.getTileCount());
+        prefetcher.start();
+        awaitCondition(() -> prefetcher.getPrefetchedTileCount() == 5);
+
+        // Tiles needed for the second region should be retained
+        prefetcher.regionComplete(regions.getFirst());
+        Assertions.assertEquals(2 * TILE_BYTES, prefetcher.getRetainedBytes());
+
+        prefetcher.close();
+        Assertions.assertEquals(0, prefetcher.getRetainedBytes());
+        server.readRegion(regions.get(1));
+        Assertions.assertEquals(5 + 2, server.readCount.get());
+    }
+
+    private static class SampleServer extends AbstractTileableImageServer {
+
+        private final AtomicInteger readCount = new AtomicInteger();
+
+        @Override
+        protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
+            readCount.incrementAndGet();
+            var img = new BufferedImage(tileRequest.getTileWidth(), tileRequest.getTileHeight(), BufferedImage.TYPE_BYTE_GRAY);
+            img.getRaster().setSample(0, 0, 0, (tileRequest.getImageX() + tileRequest.getImageY()) % 256);
+            return img;
+        }
+
+        @Override
+        protected Map<RegionRequest, BufferedImage> getCache() {
+            // Don't use the cache, so that we can check which tiles are read
+            return null;
+        }
+
+        @Override
+        protected ImageServerBuilder.ServerBuilder<BufferedImage> createServerBuilder() {
+            return null;
+        }
+
+        @Override
+        protected String createID() {
+            return "Sample server " + System.identityHashCode(this);
+        }
+
+        @Override
+        public Collection<URI> getURIs() {
+            return List.of();
+        }
+
+        @Override
+        public String getServerType() {
+            return "Sample server";
+        }
+
+        @Override
+        public ImageServerMetadata getOriginalMetadata() {
+            return new ImageServerMetadata.Builder()
+                    .width(TILE_SIZE * 4)
+                    .height(TILE_SIZE * 3)
+                    .preferredTileSize(TILE_SIZE, TILE_SIZE)
+                    .channels(ImageChannel.getDefaultChannelList(1))
+                    .pixelType(PixelType.UINT8)
+                    .build();
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.LabeledImageServer;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.objects.PathAnnotationObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class TestTileExportManifest {
+
+	@Test
+	public void testHash() {
+		Assertions.assertEquals(TileExportManifest.createHash("tile"), TileExportManifest.createHash("tile"));
+		Assertions.assertNotEquals(TileExportManifest.createHash("tile"), TileExportManifest.createHash("tile2"));
+	}
+
+	@Test
+	public void testMissingManifest(@TempDir Path dir) throws IOException {
+		var manifest = TileExportManifest.read(dir.resolve("missing.json"));
+		Files.writeString(dir.resolve("tile.tif"), "tile");
+		Assertions.assertFalse(manifest.isUnchanged(dir, "tile.tif", "hash"));
+		Assertions.assertEquals(0, manifest.countRemovedFiles());
+	}
+
+	@Test
+	public void testInvalidManifest(@TempDir Path dir) throws IOException {
+		var path = dir.resolve("manifest.json");
+		Files.writeString(path, "not json");
+		var manifest = TileExportManifest.read(path);
+		Assertions.assertFalse(manifest.isUnchanged(dir, "tile.tif", "hash"));
+	}
+
+	@Test
+	public void testReadWrite(@TempDir Path dir) throws IOException {
+		var path = dir.resolve("manifest.json");
+		var manifest = TileExportManifest.read(path);
+		manifest.put("tile1.tif", "hash1");
+		manifest.put("tile2.tif", "hash2");
+		manifest.write(path);
+
+		Files.writeString(dir.resolve("tile1.tif"), "tile");
+		var manifest2 = TileExportManifest.read(path);
+		Assertions.assertTrue(manifest2.isUnchanged(dir, "tile1.tif", "hash1"));
+		Assertions.assertFalse(manifest2.isUnchanged(dir, "tile1.tif", "hash2"));
+		// Unchanged hash, but the file has been deleted
+		Assertions.assertFalse(manifest2.isUnchanged(dir, "tile2.tif", "hash2"));
+
+		manifest2.put("tile1.tif", "hash1");
+		Assertions.assertEquals(1, manifest2.countRemovedFiles());
+	}
+
+	@Test
+	public void testIncrementalExport(@TempDir Path dir) throws IOException {
+		var img = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+		var imageData = new ImageData<>(new WrappedBufferedImageServer("tiles", img));
+		var plane = ImagePlane.getDefaultPlane();
+		var pathClass = PathClass.fromString("Tumor");
+		var edited = (PathAnnotationObject)PathObjects.createAnnotationObject(ROIs.createRectangleROI(20, 20, 20, 20, plane), pathClass);
+		var unchanged = PathObjects.createAnnotationObject(ROIs.createRectangleROI(84, 212, 20, 20, plane), pathClass);
+		imageData.getHierarchy().addObjects(List.of(edited, unchanged));
+
+		// Prevent one tile from being written, by putting a non-empty directory in its place
+		String failedName = "tiles [x=192,y=0,w=64,h=64].png";
+		Files.createDirectories(dir.resolve(failedName));
+		Files.writeString(dir.resolve(failedName).resolve("blocked"), "blocked");
+
+		export(imageData, dir);
+		var files = listTiles(dir);
+		Assertions.assertEquals(31, files.size());
+		Assertions.assertFalse(files.contains(failedName));
+
+		// Replace the failed tile with an old file - this should be written again, because it isn't in the manifest
+		Files.delete(dir.resolve(failedName).resolve("blocked"));
+		Files.delete(dir.resolve(failedName));
+		Files.writeString(dir.resolve(failedName), "stale");
+		var oldTime = FileTime.fromMillis(1_000_000L);
+		for (var name : listTiles(dir))
+			Files.setLastModifiedTime(dir.resolve(name), oldTime);
+
+		// Move one annotation to a different tile
+		var hierarchy = imageData.getHierarchy();
+		hierarchy.removeObject(edited, true);
+		edited.setROI(ROIs.createRectangleROI(148, 148, 20, 20, plane));
+		hierarchy.addObject(edited);
+
+		export(imageData, dir);
+		Set<String> rewritten = new TreeSet<>();
+		for (var name : listTiles(dir)) {
+			if (!Files.getLastModifiedTime(dir.resolve(name)).equals(oldTime))
+				rewritten.add(name);
+		}
+		Assertions.assertEquals(Set.of(
+				failedName,
+				"tiles [x=0,y=0,w=64,h=64]-labelled.png",
+				"tiles [x=128,y=128,w=64,h=64]-labelled.png"), rewritten);
+		Assertions.assertNotEquals("stale", Files.readString(dir.resolve(failedName), StandardCharsets.ISO_8859_1));
+	}
+
+	private static void export(ImageData<BufferedImage> imageData, Path dir) throws IOException {
+		var labelServer = new LabeledImageServer.Builder(imageData)
+				.backgroundLabel(0)
+				.addLabel("Tumor", 1)
+				.useAnnotations()
+				.build();
+		new TileExporter(imageData)
+				.tileSize(64)
+				.imageExtension(".png")
+				.labeledServer(labelServer)
+				.exportJson(false)
+				.incremental(true)
+				.writeTiles(dir.toString());
+	}
+
+	private static Set<String> listTiles(Path dir) throws IOException {
+		try (var stream = Files.list(dir)) {
+			return stream.filter(Files::isRegularFile)
+					.map(p -> p.getFileName().toString())
+					.filter(n -> n.endsWith(".png"))
+					.collect(Collectors.toCollection(TreeSet::new));
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+public class TestTileSinks {
+
+	private static final int N_TILES = 5;
+
+	private static List<TileSink.TileFile> createTile(int ind) {
+		// Use a long name to check that names can exceed the limit of a standard tar header
+		String baseName = "A very long image name that would not fit in a tar header".repeat(2) + " [x=" + ind + "]";
+		return List.of(
+				new TileSink.TileFile("images/" + baseName + ".tif", "tif", createBytes(ind, 1000 + ind)),
+				new TileSink.TileFile("labels/" + baseName + ".png", "labels.png", createBytes(ind + 100, 10)));
+	}
+
+	private static byte[] createBytes(int value, int length) {
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte)value);
+		return bytes;
+	}
+
+	private static void writeTiles(TileSink sink) throws IOException {
+		try (sink) {
+			for (int i = 0; i < N_TILES; i++)
+				sink.writeTile(createTile(i));
+			sink.writeFile("summary.json", "{}".getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static Map<String, byte[]> getExpectedFiles() {
+		Map<String, byte[]> map = new LinkedHashMap<>();
+		for (int i = 0; i < N_TILES; i++) {
+			for (var file : createTile(i))
+				map.put(file.path(), file.bytes());
+		}
+		return map;
+	}
+
+	private static void assertFilesEqual(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+		for (var entry : expected.entrySet())
+			Assertions.assertArrayEquals(entry.getValue(), actual.get(entry.getKey()));
+	}
+
+	/**
+	 * Read the files from a tar archive, using pax headers for the names if available.
+	 */
+	private static Map<String, byte[]> readTar(Path path) throws IOException {
+		Map<String, byte[]> map = new LinkedHashMap<>();
+		byte[] bytes = Files.readAllBytes(path);
+		int offset = 0;
+		String paxName = null;
+		while (offset + 512 <= bytes.length && bytes[offset] != 0) {
+			int nameLength = 0;
+			while (nameLength < 100 && bytes[offset + nameLength] != 0)
+				nameLength++;
+			String name = new String(bytes, offset, nameLength, StandardCharsets.UTF_8);
+			int size = Integer.parseInt(new String(bytes, offset + 124, 11, StandardCharsets.US_ASCII), 8);
+			char type = (char)bytes[offset + 156];
+			Assertions.assertEquals("ustar", new String(bytes, offset + 257, 5, StandardCharsets.US_ASCII));
+			byte[] contents = Arrays.copyOfRange(bytes, offset + 512, offset + 512 + size);
+			if (type == 'x') {
+				String record = new String(contents, StandardCharsets.UTF_8);
+				Assertions.assertEquals(size, Integer.parseInt(record.substring(0, record.indexOf(' '))));
+				paxName = record.substring(record.indexOf("path=") + 5, record.length() - 1);
+			} else {
+				map.put(paxName == null ? name : paxName, contents);
+				paxName = null;
+			}
+			offset += 512 + (size + 511) / 512 * 512;
+		}
+		return map;
+	}
+
+	@Test
+	public void testTarShards(@TempDir Path dir) throws IOException {
+		writeTiles(TileSinks.tarShards(dir, "tiles", 2, Long.MAX_VALUE));
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		for (int i = 0; i < 3; i++)
+			actual.putAll(readTar(dir.resolve(String.format("tiles-%06d.tar", i))));
+		Assertions.assertFalse(Files.exists(dir.resolve("tiles-000003.tar")));
+		assertFilesEqual(getExpectedFiles(), actual);
+		Assertions.assertTrue(Files.exists(dir.resolve("summary.json")));
+	}
+
+	@Test
+	public void testWebDataset(@TempDir Path dir) throws IOException {
+		writeTiles(TileSinks.webDataset(dir, "tiles", 100, 2500));
+		// Shards should be split by size, but all the files for each tile should remain together
+		var shard0 = readTar(dir.resolve("tiles-000000.tar"));
+		var shard1 = readTar(dir.resolve("tiles-000001.tar"));
+		Assertions.assertEquals(List.of("000000000.tif", "000000000.labels.png", "000000001.tif", "000000001.labels.png",
+				"000000002.tif", "000000002.labels.png"), new ArrayList<>(shard0.keySet()));
+		Assertions.assertEquals(List.of("000000003.tif", "000000003.labels.png", "000000004.tif", "000000004.labels.png"),
+				new ArrayList<>(shard1.keySet()));
+		Assertions.assertArrayEquals(createBytes(4, 1004), shard1.get("000000004.tif"));
+	}
+
+	@Test
+	public void testZipShards(@TempDir Path dir) throws IOException {
+		writeTiles(TileSinks.zipShards(dir, "tiles", 3, Long.MAX_VALUE));
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		for (int i = 0; i < 2; i++) {
+			try (var stream = new ZipInputStream(Files.newInputStream(dir.resolve(String.format("tiles-%06d.zip", i))))) {
+				for (var entry = stream.getNextEntry(); entry != null; entry = stream.getNextEntry())
+					actual.put(entry.getName(), stream.readAllBytes());
+			}
+		}
+		assertFilesEqual(getExpectedFiles(), actual);
+	}
+
+	@Test
+	public void testPack(@TempDir Path dir) throws IOException {
+		var path = dir.resolve("tiles.pack");
+		writeTiles(TileSinks.pack(path));
+		var index = TileSinks.readPackIndex(path);
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		try (var file = new RandomAccessFile(path.toFile(), "r")) {
+			for (var entry : index) {
+				byte[] bytes = new byte[(int)entry.length()];
+				file.seek(entry.offset());
+				file.readFully(bytes);
+				actual.put(entry.path(), bytes);
+			}
+		}
+		var expected = getExpectedFiles();
+		expected.put("summary.json", "{}".getBytes(StandardCharsets.UTF_8));
+		assertFilesEqual(expected, actual);
+	}
+
+	@Test
+	public void testInvalidPack(@TempDir Path dir) throws IOException {
+		var path = dir.resolve("invalid.pack");
+		Files.write(path, createBytes(1, 100));
+		Assertions.assertThrows(IOException.class, () -> TileSinks.readPackIndex(path));
+	}
+
+}
@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import qupath.lib.common.GeneralTools;
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SuppressWarnings("javadoc")
+public class TestMeasurementTableExporter {
+
+	private static Locale defaultLocale;
+
+	// Numbers are formatted using the default locale, which could otherwise use commas as decimal separators
+	@BeforeAll
+	public static void setLocale() {
+		defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+		Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+	}
+
+	@AfterAll
+	public static void resetLocale() {
+		Locale.setDefault(Locale.Category.FORMAT, defaultLocale);
+	}
+
+	private static ImageData<BufferedImage> createImageData(String name, int nDetections) {
+		var hierarchy = new PathObjectHierarchy();
+		var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 1000, 1000, ImagePlane.getDefaultPlane()));
+		hierarchy.addObject(annotation);
+		List<PathObject> detections = new ArrayList<>();
+		for (int i = 0; i < nDetections; i++) {
+			var roi = ROIs.createRectangleROI(i % 100 * 10, i / 100 * 10, 5, 5, ImagePlane.getDefaultPlane());
+			var detection = PathObjects.createDetectionObject(roi, i % 2 == 0 ? PathClass.fromString("Tumor") : null);
+			try (var ml = detection.getMeasurementList()) {
+				ml.put("A", i);
+				ml.put("B", i / 3.0);
+				if (i % 10 == 0)
+					ml.put("C", i * 1000.5);
+			}
+			detections.add(detection);
+		}
+		annotation.addChildObjects(detections);
+		var server = new WrappedBufferedImageServer(name, new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB));
+		return new ImageData<>(server, hierarchy, ImageData.ImageType.BRIGHTFIELD_H_E);
+	}
+
+	private static List<String> exportText(MeasurementTableExporter exporter, MeasurementTableExporter.Format format) throws IOException, InterruptedException {
+		var stream = new ByteArrayOutputStream();
+		exporter.exportMeasurements(stream, format);
+		return stream.toString(StandardCharsets.UTF_8).lines().toList();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 3})
+	public void test_exportCsv(int parallelism) throws IOException, InterruptedException {
+		var exporter = new MeasurementTableExporter()
+				.imageData(createImageData("First", 1000), createImageData("Second", 250))
+				.batchSize(100)
+				.parallelism(parallelism);
+		var lines = exportText(exporter, MeasurementTableExporter.Format.CSV);
+		assertEquals(1 + 1000 + 250, lines.size());
+
+		var header = List.of(lines.getFirst().split(","));
+		assertEquals(List.of("Image", "Object ID", "Object type", "Name", "Classification", "Parent", "ROI",
+				"Centroid X px", "Centroid Y px", "A", "B", "C"), header);
+
+		// Rows are in the same order as the images and objects
+		var first = lines.get(1).split(",", -1);
+		assertEquals("First", first[0]);
+		assertEquals("Detection", first[2]);
+		assertEquals("Tumor", first[4]);
+		assertEquals("Annotation", first[5]);
+		assertEquals("Rectangle", first[6]);
+		assertEquals("0", first[9]);
+		assertEquals(GeneralTools.formatNumber(0.0, 4), first[10]);
+
+		var second = lines.get(2).split(",", -1);
+		assertEquals("", second[4]);
+		assertEquals("", second[11]); // Missing measurement
+
+		var last = lines.getLast().split(",", -1);
+		assertEquals("Second", last[0]);
+		assertEquals(GeneralTools.formatNumber(249 / 3.0, 2), last[10]);
+		var tenth = lines.get(11).split(",", -1);
+		assertEquals(GeneralTools.formatNumber(10 * 1000.5, 1), tenth[11]);
+	}
+
+	@Test
+	public void test_exportColumnar() throws IOException, InterruptedException {
+		var exporter = new MeasurementTableExporter()
+				.imageData(createImageData("First", 1000), createImageData("Second", 250))
+				.batchSize(300)
+				.parallelism(2);
+		var stream = new ByteArrayOutputStream();
+		exporter.exportMeasurements(stream, MeasurementTableExporter.Format.COLUMNAR);
+
+		var batches = MeasurementTableFile.readTable(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+		assertEquals(4 + 1, batches.size());
+		assertEquals(1250, batches.stream().mapToInt(MeasurementTableFile.Batch::getRowCount).sum());
+
+		var batch = batches.get(1);
+		assertEquals(300, batch.getRowCount());
+		var a = batch.getColumn("A");
+		var b = batch.getColumn("B");
+		var c = batch.getColumn("C");
+		assertTrue(a.isNumeric());
+		for (int r = 0; r < batch.getRowCount(); r++) {
+			int i = 300 + r;
+			assertEquals(i, a.getDouble(r));
+			// Values are stored with float precision, since they come from float measurement lists
+			assertEquals((float)(i / 3.0), b.getDouble(r));
+			assertEquals(i % 10 == 0, c.hasValue(r));
+			if (i % 10 == 0)
+				assertEquals(i * 1000.5, c.getDouble(r));
+		}
+		assertEquals("Second", batches.getLast().getColumn("Image").getString(0));
+	}
+
+	@Test
+	public void test_includeOnlyColumns() throws IOException, InterruptedException {
+		var exporter = new MeasurementTableExporter()
+				.imageData(createImageData("Image", 10))
+				.includeOnlyColumns("Classification", "B", "Missing");
+		var lines = exportText(exporter, MeasurementTableExporter.Format.TSV);
+		assertEquals("Classification\tB", lines.getFirst());
+		assertEquals(11, lines.size());
+	}
+
+	@Test
+	public void test_exportFile(@TempDir Path dir) throws IOException, InterruptedException {
+		var path = dir.resolve("measurements.tsv");
+		new MeasurementTableExporter()
+				.imageData(createImageData("Image", 100))
+				.exportMeasurements(path);
+		var lines = Files.readAllLines(path);
+		assertEquals(101, lines.size());
+		assertTrue(lines.getFirst().startsWith("Image\tObject ID"));
+
+		var pathColumnar = dir.resolve("measurements" + MeasurementTableExporter.EXT_COLUMNAR);
+		new MeasurementTableExporter()
+				.imageData(createImageData("Image", 100))
+				.exportMeasurements(pathColumnar);
+		try (var input = new DataInputStream(Files.newInputStream(pathColumnar))) {
+			var batches = MeasurementTableFile.readTable(input);
+			assertEquals(100, batches.getFirst().getRowCount());
+		}
+		try (var files = Files.list(dir)) {
+			assertEquals(2, files.count());
+		}
+	}
+
+}
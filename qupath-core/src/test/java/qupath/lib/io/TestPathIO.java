@@ -24,26 +24,54 @@
 package qupath.lib.io;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.measurements.MeasurementList;
+import qupath.lib.measurements.MeasurementListFactory;
+import qupath.lib.objects.PathCellObject;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjectTools;
 import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.TMACoreObject;
 import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.DefaultTMAGrid;
 import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.roi.GeometryTools;
 import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
 
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -136,6 +164,422 @@ public class TestPathIO {
 
 	}
 	
+	@ParameterizedTest
+	@ValueSource(ints = {3, 4, 5})
+	public void test_imageDataRoundTrip(int version) throws IOException {
+		var hierarchy = createTestHierarchy();
+		var server = new WrappedBufferedImageServer("Anything", new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB));
+		var imageData = new ImageData<>(server, hierarchy, ImageData.ImageType.BRIGHTFIELD_H_E);
+		imageData.setProperty("Something", "else");
+
+		int previousVersion = PathIO.getRequestedDataFileVersion();
+		var path = Files.createTempFile("anything", ".qpdata");
+		try {
+			PathIO.setRequestedDataFileVersion(version);
+			PathIO.writeImageData(path, imageData);
+			try (var stream = new BufferedInputStream(Files.newInputStream(path))) {
+				assertEquals(version >= 5, ColumnarDataFile.isColumnarDataFile(stream));
+			}
+
+			var imageData2 = PathIO.readImageData(path, server);
+			assertEquals(ImageData.ImageType.BRIGHTFIELD_H_E, imageData2.getImageType());
+			assertEquals("else", imageData2.getProperty("Something"));
+			assertHierarchiesEqual(hierarchy, imageData2.getHierarchy(), version >= 4);
+
+			assertHierarchiesEqual(hierarchy, PathIO.readHierarchy(path), version >= 4);
+		} finally {
+			PathIO.setRequestedDataFileVersion(previousVersion);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void test_columnarBlocks() throws IOException {
+		// Use a small block size & enough objects to need many blocks
+		var hierarchy = new PathObjectHierarchy();
+		var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 1000, 1000, ImagePlane.getDefaultPlane()));
+		List<PathObject> detections = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			var ml = MeasurementListFactory.createMeasurementList(0, MeasurementList.MeasurementListType.DOUBLE);
+			ml.put("Index", i);
+			// Only some detections have this measurement
+			if (i % 3 == 0)
+				ml.put("Precise", i + 0.1);
+			var pathClass = i % 2 == 0 ? PathClass.fromString("Tumor") : null;
+			detections.add(PathObjects.createDetectionObject(ROIs.createEllipseROI(i % 100, i / 10.0, 5, 5, ImagePlane.getDefaultPlane()), pathClass, ml));
+		}
+		annotation.addChildObjects(detections);
+		hierarchy.addObject(annotation);
+
+		for (boolean compress : new boolean[]{true, false}) {
+			var bytes = new ByteArrayOutputStream();
+			try (var out = new DataOutputStream(bytes)) {
+				new ColumnarHierarchyWriter(out, compress, 64).writeHierarchy(hierarchy);
+				out.writeByte(ColumnarDataFile.SECTION_END);
+			}
+			var reader = new ColumnarHierarchyReader();
+			var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			byte sectionType;
+			int nObjectBlocks = 0;
+			int nDetectionBlocks = 0;
+			int nDictionaries = 0;
+			while ((sectionType = in.readByte()) != ColumnarDataFile.SECTION_END) {
+				byte[] section = new byte[in.readInt()];
+				in.readFully(section);
+				switch (sectionType) {
+					case ColumnarDataFile.SECTION_OBJECTS -> {
+						reader.readObjectSection(section);
+						nObjectBlocks++;
+					}
+					case ColumnarDataFile.SECTION_DETECTIONS -> {
+						reader.readDetectionSection(section);
+						nDetectionBlocks++;
+					}
+					case ColumnarDataFile.SECTION_DICTIONARY -> nDictionaries++;
+					default -> fail("Unexpected section type " + sectionType);
+				}
+			}
+			// Root & annotation are written separately from the detections, which don't have children
+			assertEquals(1, nObjectBlocks);
+			assertEquals((1000 + 63) / 64, nDetectionBlocks);
+			assertEquals(1, nDictionaries);
+			var hierarchy2 = reader.build();
+			assertHierarchiesEqual(hierarchy, hierarchy2, true);
+			var detections2 = hierarchy2.getAnnotationObjects().iterator().next().getChildObjects();
+			assertEquals(1000, detections2.size());
+			var detectionMap = detections2.stream().collect(Collectors.toMap(PathObject::getID, p -> p));
+			assertEquals(detections.get(0).getMeasurementList().get("Precise"),
+					detectionMap.get(detections.get(0).getID()).getMeasurementList().get("Precise"));
+			var detection1 = detectionMap.get(detections.get(1).getID());
+			assertTrue(Double.isNaN(detection1.getMeasurementList().get("Precise")));
+			assertFalse(detection1.getMeasurementList().containsKey("Precise"));
+		}
+	}
+
+	@Test
+	public void test_columnarPointPrecision() throws IOException {
+		// Coordinates that can't be represented exactly as floats must not be changed by saving & reloading
+		var plane = ImagePlane.getDefaultPlane();
+		var hierarchy = new PathObjectHierarchy();
+		var precise = PathObjects.createDetectionObject(
+				ROIs.createPointsROI(new double[]{1234.5678901, 0.1}, new double[]{9876.54321, 2.5}, plane));
+		var floatExact = PathObjects.createDetectionObject(
+				ROIs.createPointsROI(new double[]{1.5, 2}, new double[]{3.25, 4}, plane));
+		var annotation = PathObjects.createAnnotationObject(
+				ROIs.createPointsROI(new double[]{1234.5678901}, new double[]{1e-9}, plane));
+		hierarchy.addObjects(List.of(precise, floatExact, annotation));
+
+		var path = Files.createTempFile("anything", ".qpdata");
+		int previousVersion = PathIO.getRequestedDataFileVersion();
+		try {
+			PathIO.setRequestedDataFileVersion(5);
+			var server = new WrappedBufferedImageServer("Anything", new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB));
+			PathIO.writeImageData(path, new ImageData<>(server, hierarchy, ImageData.ImageType.UNSET));
+			var hierarchy2 = PathIO.readHierarchy(path);
+			var map = PathObjectTools.getFlattenedObjectList(hierarchy2.getRootObject(), null, false)
+					.stream()
+					.collect(Collectors.toMap(PathObject::getID, p -> p));
+			for (var pathObject : List.of(precise, floatExact, annotation)) {
+				var roi2 = map.get(pathObject.getID()).getROI();
+				assertEquals(pathObject.getROI().getClass(), roi2.getClass());
+				assertEquals(pathObject.getROI().getAllPoints(), roi2.getAllPoints());
+			}
+			assertEquals(1234.5678901, map.get(precise.getID()).getROI().getAllPoints().getFirst().getX());
+		} finally {
+			PathIO.setRequestedDataFileVersion(previousVersion);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void test_columnarMeasurementPrecision() throws IOException {
+		// Float-exact values shouldn't cause non-detection objects to get float measurement lists,
+		// otherwise measurements added after reloading would lose precision
+		var hierarchy = createTestHierarchy();
+		for (var pathObject : hierarchy.getAnnotationObjects()) {
+			if (pathObject.getMeasurementList().isEmpty())
+				pathObject.getMeasurementList().put("Float-exact", 1.5);
+		}
+		hierarchy.getTMAGrid().getTMACore(0, 0).getMeasurementList().put("Float-exact", 1.5);
+		var path = Files.createTempFile("anything", ".qpdata");
+		int previousVersion = PathIO.getRequestedDataFileVersion();
+		try {
+			PathIO.setRequestedDataFileVersion(5);
+			var server = new WrappedBufferedImageServer("Anything", new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB));
+			PathIO.writeImageData(path, new ImageData<>(server, hierarchy, ImageData.ImageType.UNSET));
+			var hierarchy2 = PathIO.readHierarchy(path);
+			List<PathObject> nonDetections = new ArrayList<>();
+			nonDetections.add(hierarchy2.getRootObject());
+			nonDetections.addAll(hierarchy2.getAnnotationObjects());
+			nonDetections.addAll(hierarchy2.getTMAGrid().getTMACoreList());
+			for (var pathObject : nonDetections) {
+				pathObject.getMeasurementList().put("Added", 0.1);
+				assertEquals(0.1, pathObject.getMeasurementList().get("Added"));
+			}
+			assertEquals(1.5, hierarchy2.getTMAGrid().getTMACore(0, 0).getMeasurementList().get("Float-exact"));
+		} finally {
+			PathIO.setRequestedDataFileVersion(previousVersion);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void test_lazyDetections() throws IOException {
+		var hierarchy = new PathObjectHierarchy();
+		var planes = List.of(ImagePlane.getDefaultPlane(), ImagePlane.getPlane(1, 0));
+		for (var plane : planes) {
+			for (int a = 0; a < 2; a++) {
+				var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(a * 1000, 0, 1000, 1000, plane));
+				List<PathObject> detections = new ArrayList<>();
+				for (int i = 0; i < 500; i++) {
+					var roi = ROIs.createRectangleROI(a * 1000 + (i % 25) * 40, (i / 25) * 50, 10, 10, plane);
+					var detection = PathObjects.createDetectionObject(roi, PathClass.fromString("Tumor"));
+					detection.getMeasurementList().put("Index", i);
+					detections.add(detection);
+				}
+				annotation.addChildObjects(detections);
+				hierarchy.addObject(annotation);
+			}
+		}
+		var server = new WrappedBufferedImageServer("Anything", new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB));
+
+		var path = Files.createTempFile("anything", ".qpdata");
+		int previousMaxBlocks = PathIO.getMaxResidentObjectBlocks();
+		try {
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+				out.write(ColumnarDataFile.MAGIC);
+				out.writeInt(ColumnarDataFile.VERSION);
+				ColumnarDataFile.writeString(out, null);
+				new ColumnarHierarchyWriter(out, true, 100).writeHierarchy(hierarchy);
+				out.writeByte(ColumnarDataFile.SECTION_END);
+			}
+
+			PathIO.setMaxResidentObjectBlocks(2);
+			var hierarchy2 = PathIO.readImageDataLazy(path, server, null).getHierarchy();
+			assertFalse(hierarchy2.isFullyLoaded());
+			assertEquals(hierarchy.nObjects(), hierarchy2.nObjects());
+			assertEquals(4, hierarchy2.getAnnotationObjects().size());
+			assertTrue(hierarchy2.getAnnotationObjects().stream().noneMatch(PathObject::hasChildObjects));
+
+			// Requesting a region should load only the detections we need
+			for (var plane : planes) {
+				var region = ImageRegion.createInstance(900, 200, 200, 300, plane.getZ(), plane.getT());
+				var expected = hierarchy.getAllDetectionsForRegion(region);
+				var actual = hierarchy2.getAllDetectionsForRegion(region);
+				assertFalse(expected.isEmpty());
+				assertEquals(
+						expected.stream().map(PathObject::getID).collect(Collectors.toSet()),
+						actual.stream().map(PathObject::getID).collect(Collectors.toSet()));
+				assertFalse(hierarchy2.isFullyLoaded());
+				assertEquals(hierarchy.nObjects(), hierarchy2.nObjects());
+			}
+			// Blocks needed for the first plane should have been discarded, since they are no longer used
+			var resident = PathObjectTools.getFlattenedObjectList(hierarchy2.getRootObject(), null, false);
+			assertTrue(resident.size() < hierarchy.nObjects());
+			assertTrue(resident.stream()
+					.filter(PathObject::isDetection)
+					.allMatch(p -> p.getROI().getZ() == 1));
+
+			// Requesting all detections should load everything
+			assertEquals(2000, hierarchy2.getDetectionObjects().size());
+			assertTrue(hierarchy2.isFullyLoaded());
+			assertHierarchiesEqual(hierarchy, hierarchy2, true);
+		} finally {
+			PathIO.setMaxResidentObjectBlocks(previousMaxBlocks);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void test_lazyDetectionsEditedWithoutEvent() throws IOException {
+		var hierarchy = new PathObjectHierarchy();
+		var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 960, 960, ImagePlane.getDefaultPlane()));
+		List<PathObject> detections = new ArrayList<>();
+		for (int i = 0; i < 1024; i++)
+			detections.add(PathObjects.createDetectionObject(ROIs.createRectangleROI(i % 32 * 30, i / 32 * 30, 10, 10, ImagePlane.getDefaultPlane())));
+		annotation.addChildObjects(detections);
+		hierarchy.addObject(annotation);
+		var server = new WrappedBufferedImageServer("Anything", new BufferedImage(960, 960, BufferedImage.TYPE_INT_RGB));
+
+		var path = Files.createTempFile("anything", ".qpdata");
+		int previousMaxBlocks = PathIO.getMaxResidentObjectBlocks();
+		try {
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+				out.write(ColumnarDataFile.MAGIC);
+				out.writeInt(ColumnarDataFile.VERSION);
+				ColumnarDataFile.writeString(out, null);
+				new ColumnarHierarchyWriter(out, false, 64).writeHierarchy(hierarchy);
+				out.writeByte(ColumnarDataFile.SECTION_END);
+			}
+			PathIO.setMaxResidentObjectBlocks(1);
+			var hierarchy2 = PathIO.readImageDataLazy(path, server, null).getHierarchy();
+
+			// Edit objects in the same way as a script might, without firing any hierarchy event
+			var edited = hierarchy2.getAllDetectionsForRegion(ImageRegion.createInstance(0, 0, 50, 50, 0, 0));
+			assertFalse(edited.isEmpty());
+			for (var detection : edited) {
+				detection.getMeasurementList().put("Edited", 1.0);
+				detection.setPathClass(PathClass.fromString("Tumor"));
+			}
+			var unedited = hierarchy2.getAllDetectionsForRegion(ImageRegion.createInstance(480, 0, 50, 50, 0, 0));
+			assertFalse(unedited.isEmpty());
+
+			// Request distant regions, so that the least recently used blocks are removed if possible
+			hierarchy2.getAllDetectionsForRegion(ImageRegion.createInstance(900, 900, 50, 50, 0, 0));
+			hierarchy2.getAllDetectionsForRegion(ImageRegion.createInstance(0, 900, 50, 50, 0, 0));
+			var resident = PathObjectTools.getFlattenedObjectList(hierarchy2.getRootObject(), null, false);
+			assertTrue(resident.size() < hierarchy.nObjects());
+			assertTrue(resident.containsAll(edited));
+			assertTrue(unedited.stream().noneMatch(resident::contains));
+
+			// Edits should still be present when the region is requested again
+			var edited2 = hierarchy2.getAllDetectionsForRegion(ImageRegion.createInstance(0, 0, 50, 50, 0, 0));
+			assertEquals(edited.size(), edited2.size());
+			for (var detection : edited2) {
+				assertEquals(1.0, detection.getMeasurementList().get("Edited"));
+				assertSame(PathClass.fromString("Tumor"), detection.getPathClass());
+			}
+		} finally {
+			PathIO.setMaxResidentObjectBlocks(previousMaxBlocks);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void test_lazyDetectionsStructureChange() throws IOException {
+		var hierarchy = new PathObjectHierarchy();
+		var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 1000, 1000, ImagePlane.getDefaultPlane()));
+		List<PathObject> detections = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			detections.add(PathObjects.createDetectionObject(ROIs.createRectangleROI(i % 100 * 10, i / 10, 5, 5, ImagePlane.getDefaultPlane())));
+		annotation.addChildObjects(detections);
+		hierarchy.addObject(annotation);
+		var server = new WrappedBufferedImageServer("Anything", new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB));
+
+		var path = Files.createTempFile("anything", ".qpdata");
+		try {
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+				out.write(ColumnarDataFile.MAGIC);
+				out.writeInt(ColumnarDataFile.VERSION);
+				ColumnarDataFile.writeString(out, null);
+				new ColumnarHierarchyWriter(out, false, 64).writeHierarchy(hierarchy);
+				out.writeByte(ColumnarDataFile.SECTION_END);
+			}
+			var hierarchy2 = PathIO.readImageDataLazy(path, server, null).getHierarchy();
+			assertFalse(hierarchy2.isFullyLoaded());
+			// Adding an object should ensure everything is loaded first, so it can be inserted in the right place
+			hierarchy2.insertPathObject(PathObjects.createDetectionObject(ROIs.createRectangleROI(1, 1, 2, 2, ImagePlane.getDefaultPlane())), true);
+			assertTrue(hierarchy2.isFullyLoaded());
+			assertEquals(1001, hierarchy2.getDetectionObjects().size());
+			assertEquals(1001, hierarchy2.getAnnotationObjects().iterator().next().nChildObjects());
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	private static PathObjectHierarchy createTestHierarchy() {
+		var hierarchy = new PathObjectHierarchy();
+		var plane = ImagePlane.getPlane(1, 2);
+
+		List<TMACoreObject> cores = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			var core = PathObjects.createTMACoreObject(10 + i * 50, 10, 40, i == 3);
+			core.setName("Core " + i);
+			core.getMetadata().put("Case ID", "Case " + i);
+			cores.add(core);
+		}
+		hierarchy.setTMAGrid(DefaultTMAGrid.create(cores, 2));
+
+		var annotation = PathObjects.createAnnotationObject(
+				ROIs.createPolygonROI(new double[]{0, 100, 100, 0.5}, new double[]{0, 0, 100.25, 100}, plane),
+				PathClass.fromString("Stroma: Positive", 0xFF00FF));
+		annotation.setName("Annotation with a name");
+		annotation.setLocked(true);
+		annotation.getMeasurementList().put("Area value", Math.PI);
+		annotation.getMetadata().put("key", "value");
+
+		var donut = ROIs.createRectangleROI(200, 200, 100, 100, plane)
+				.getGeometry().difference(ROIs.createEllipseROI(220, 220, 20, 20, plane).getGeometry());
+		var annotation2 = PathObjects.createAnnotationObject(GeometryTools.geometryToROI(donut, plane));
+		annotation2.setColor(0xFF0000);
+
+		List<PathObject> children = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			var ml = MeasurementListFactory.createMeasurementList(0, MeasurementList.MeasurementListType.FLOAT);
+			ml.put("Area", i * 1.5);
+			ml.put("Intensity", i / 3.0);
+			ROI roiCell = ROIs.createEllipseROI(i * 10, i * 5, 10, 10, plane);
+			ROI roiNucleus = ROIs.createPolygonROI(new double[]{i * 10 + 2, i * 10 + 8, i * 10 + 5}, new double[]{i * 5 + 2, i * 5 + 2, i * 5 + 8}, plane);
+			var cell = PathObjects.createCellObject(roiCell, i % 2 == 0 ? roiNucleus : null, PathClass.fromString("Tumor"), ml);
+			if (i == 5)
+				cell.setPathClass(PathClass.fromString("Tumor"), 0.75);
+			children.add(cell);
+		}
+		children.add(PathObjects.createDetectionObject(ROIs.createPointsROI(new double[]{1, 2, 3}, new double[]{4, 5, 6}, plane)));
+		children.add(PathObjects.createTileObject(ROIs.createLineROI(1, 2, 30, 40, plane)));
+		children.add(PathObjects.createDetectionObject(ROIs.createPolylineROI(new double[]{1, 2, 3}, new double[]{4, 5, 7}, plane)));
+		annotation.addChildObjects(children);
+
+		hierarchy.addObject(annotation);
+		hierarchy.addObject(annotation2);
+		cores.get(0).addChildObject(PathObjects.createAnnotationObject(ROIs.createRectangleROI(15, 15, 5, 5, ImagePlane.getDefaultPlane())));
+		hierarchy.getRootObject().getMeasurementList().put("Root measurement", 1.0);
+		return hierarchy;
+	}
+
+	private static void assertHierarchiesEqual(PathObjectHierarchy expected, PathObjectHierarchy actual, boolean checkIDs) {
+		var list = PathObjectTools.getFlattenedObjectList(expected.getRootObject(), null, true);
+		var list2 = PathObjectTools.getFlattenedObjectList(actual.getRootObject(), null, true);
+		assertEquals(list.size(), list2.size());
+		// The order of detections may change, so match objects using their IDs where we can
+		Map<UUID, PathObject> map2 = checkIDs ? list2.stream().collect(Collectors.toMap(PathObject::getID, p -> p)) : Map.of();
+		for (int i = 0; i < list.size(); i++) {
+			var p = list.get(i);
+			var p2 = list2.get(i);
+			if (checkIDs && !p.isRootObject()) {
+				p2 = map2.get(p.getID());
+				assertNotNull(p2);
+				if (!p.getParent().isRootObject())
+					assertEquals(p.getParent().getID(), p2.getParent().getID());
+				else
+					assertTrue(p2.getParent().isRootObject());
+			}
+			assertSame(p.getClass(), p2.getClass());
+			assertSame(p.getPathClass(), p2.getPathClass());
+			assertEquals(p.getClassProbability(), p2.getClassProbability());
+			assertEquals(p.getName(), p2.getName());
+			assertEquals(p.getColor(), p2.getColor());
+			assertEquals(p.isLocked(), p2.isLocked());
+			assertEquals(new HashMap<>(p.getMetadata()), new HashMap<>(p2.getMetadata()));
+			assertEquals(p.getMeasurementList().getNames(), p2.getMeasurementList().getNames());
+			assertTrue(Arrays.equals(p.getMeasurementList().values(), p2.getMeasurementList().values()));
+			assertROIsEqual(p.getROI(), p2.getROI());
+			if (p instanceof PathCellObject cell)
+				assertROIsEqual(cell.getNucleusROI(), ((PathCellObject)p2).getNucleusROI());
+			if (p instanceof TMACoreObject core)
+				assertEquals(core.isMissing(), ((TMACoreObject)p2).isMissing());
+		}
+		if (expected.getTMAGrid() == null) {
+			assertTrue(actual.getTMAGrid() == null);
+		} else {
+			assertNotNull(actual.getTMAGrid());
+			assertEquals(expected.getTMAGrid().getGridWidth(), actual.getTMAGrid().getGridWidth());
+			assertEquals(expected.getTMAGrid().getGridHeight(), actual.getTMAGrid().getGridHeight());
+			for (var core : actual.getTMAGrid().getTMACoreList())
+				assertSame(actual.getRootObject(), core.getParent());
+		}
+	}
+
+	private static void assertROIsEqual(ROI expected, ROI actual) {
+		if (expected == null) {
+			assertTrue(actual == null);
+			return;
+		}
+		assertSame(expected.getClass(), actual.getClass());
+		assertEquals(expected.getImagePlane(), actual.getImagePlane());
+		assertTrue(expected.getGeometry().equalsExact(actual.getGeometry()));
+	}
+	
 	private static <T> T serializeDeserializeStandard(T obj) {
 		try {
 			var bytesOut = new ByteArrayOutputStream();
@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.measurements;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestColumnarMeasurementStore {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void test_columns(boolean doublePrecision) {
+        var store = ColumnarMeasurementStore.create(doublePrecision);
+        // Enough lists to require multiple pages
+        int n = 10_000;
+        List<MeasurementList> lists = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            var list = store.createMeasurementList();
+            list.put("Index", i);
+            if (i % 2 == 0)
+                list.put("Even", i / 2.0);
+            lists.add(list);
+        }
+        assertEquals(List.of("Index", "Even"), store.getNames());
+
+        var index = store.getValues("Index", lists);
+        assertArrayEquals(IntStream.range(0, n).asDoubleStream().toArray(), index);
+
+        var column = store.getColumn("Even");
+        for (int i = 0; i < n; i++) {
+            double value = column[store.getSlot(lists.get(i))];
+            if (i % 2 == 0)
+                assertEquals(i / 2.0, value);
+            else
+                assertTrue(Double.isNaN(value));
+        }
+        assertTrue(Double.isNaN(store.getValues("Missing", lists)[0]));
+
+        // Other lists are supported, but need to be looked up by name
+        var other = MeasurementListFactory.createMeasurementList(1, MeasurementList.MeasurementListType.DOUBLE);
+        other.put("Index", -1);
+        assertArrayEquals(new double[]{1, -1}, store.getValues("Index", List.of(lists.get(1), other)));
+        assertEquals(-1, store.getSlot(other));
+    }
+
+    @Test
+    void test_precision() {
+        double value = 1.0 / 3.0;
+        var listDouble = ColumnarMeasurementStore.create(true).createMeasurementList();
+        listDouble.put("Value", value);
+        assertEquals(value, listDouble.get("Value"));
+
+        var listFloat = ColumnarMeasurementStore.create(false).createMeasurementList();
+        listFloat.put("Value", value);
+        assertEquals((float)value, listFloat.get("Value"));
+    }
+
+    @Test
+    void test_concurrentWriters() {
+        var store = ColumnarMeasurementStore.create(false);
+        int n = 20_000;
+        var lists = IntStream.range(0, n).mapToObj(i -> store.createMeasurementList()).toList();
+        // Each list is written by one thread, but new columns and pages are created concurrently
+        IntStream.range(0, n).parallel().forEach(i -> {
+            var list = lists.get(i);
+            for (int m = 0; m < 20; m++)
+                list.put("Measurement " + ((i + m) % 20), i + m);
+        });
+        for (int i = 0; i < n; i++) {
+            var list = lists.get(i);
+            assertEquals(20, list.size());
+            for (int m = 0; m < 20; m++)
+                assertEquals(i + m, list.get("Measurement " + ((i + m) % 20)));
+        }
+        assertEquals(20, store.getNames().size());
+    }
+
+    @Test
+    void test_removeResetsValue() {
+        var store = ColumnarMeasurementStore.create(true);
+        var list = store.createMeasurementList();
+        list.put("First", 1.0);
+        list.put("Second", 2.0);
+        list.remove("First");
+        assertTrue(Double.isNaN(store.getColumn("First")[store.getSlot(list)]));
+        list.clear();
+        assertTrue(Double.isNaN(store.getColumn("Second")[store.getSlot(list)]));
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    void test_serialization() throws IOException, ClassNotFoundException {
+        var list = ColumnarMeasurementStore.getDefaultStore().createMeasurementList();
+        list.put("First", 1.5);
+        list.put("Second", 2.5);
+
+        var bytes = new ByteArrayOutputStream();
+        try (var stream = new ObjectOutputStream(bytes)) {
+            stream.writeObject(list);
+        }
+        try (var stream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            var read = assertInstanceOf(MeasurementList.class, stream.readObject());
+            assertEquals(list.getNames(), read.getNames());
+            assertArrayEquals(list.values(), read.values());
+        }
+    }
+
+}
@@ -42,19 +42,22 @@ public class TestMeasurementList {
         FLOAT,
         GENERAL_CLOSED,
         DOUBLE_CLOSED,
-        FLOAT_CLOSED;
+        FLOAT_CLOSED,
+        COLUMNAR,
+        COLUMNAR_CLOSED;
 
         private MeasurementList.MeasurementListType toMeasurementListType() {
             return switch (this) {
                 case GENERAL, GENERAL_CLOSED -> MeasurementList.MeasurementListType.GENERAL;
                 case DOUBLE, DOUBLE_CLOSED -> MeasurementList.MeasurementListType.DOUBLE;
                 case FLOAT, FLOAT_CLOSED -> MeasurementList.MeasurementListType.FLOAT;
+                case COLUMNAR, COLUMNAR_CLOSED -> MeasurementList.MeasurementListType.COLUMNAR;
             };
         }
 
         private boolean isClosed() {
             return switch (this) {
-                case FLOAT_CLOSED, DOUBLE_CLOSED, GENERAL_CLOSED -> true;
+                case FLOAT_CLOSED, DOUBLE_CLOSED, GENERAL_CLOSED, COLUMNAR_CLOSED -> true;
                 default -> false;
             };
         }
@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.locationtech.jts.geom.Envelope;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.roi.ROIs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SuppressWarnings("javadoc")
+public class TestHilbertRTree {
+
+	private static List<Envelope> createEnvelopes(int n, long seed) {
+		var rng = new Random(seed);
+		List<Envelope> envelopes = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			double x = rng.nextDouble() * 10_000;
+			double y = rng.nextDouble() * 5_000;
+			envelopes.add(new Envelope(x, x + rng.nextDouble() * 50, y, y + rng.nextDouble() * 50));
+		}
+		return envelopes;
+	}
+
+	private static Set<Envelope> bruteForce(Iterable<Envelope> envelopes, Envelope query) {
+		Set<Envelope> set = new HashSet<>();
+		for (var env : envelopes) {
+			if (env.intersects(query))
+				set.add(env);
+		}
+		return set;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<Envelope> query(HilbertRTree<Envelope> tree, Envelope query) {
+		var list = (List<Envelope>)tree.query(query);
+		var set = new HashSet<>(list);
+		assertEquals(list.size(), set.size());
+		return set;
+	}
+
+	private static void getBounds(Envelope env, double[] bounds, int offset) {
+		bounds[offset] = env.getMinX();
+		bounds[offset+1] = env.getMinY();
+		bounds[offset+2] = env.getMaxX();
+		bounds[offset+3] = env.getMaxY();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 2, 15, 16, 17, 1000, 150_000})
+	public void test_bulkLoad(int n) {
+		var envelopes = createEnvelopes(n, n);
+		var tree = HilbertRTree.create(envelopes, TestHilbertRTree::getBounds);
+		assertEquals(n, tree.size());
+		for (var query : createEnvelopes(50, 100)) {
+			query.expandBy(200);
+			assertEquals(bruteForce(envelopes, query), query(tree, query));
+		}
+		assertEquals(new HashSet<>(envelopes), query(tree, new Envelope(-1e10, 1e10, -1e10, 1e10)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	public void test_insertRemove(boolean backgroundMerge) {
+		var envelopes = createEnvelopes(2000, 1);
+		var tree = HilbertRTree.create(envelopes.subList(0, 1000), TestHilbertRTree::getBounds);
+		tree.setBackgroundMerge(backgroundMerge);
+		Set<Envelope> expected = new HashSet<>(envelopes.subList(0, 1000));
+
+		// Enough updates to require the tree to be rebuilt several times
+		var rng = new Random(2);
+		for (int i = 1000; i < envelopes.size(); i++) {
+			var env = envelopes.get(i);
+			tree.insert(env, env);
+			expected.add(env);
+			if (rng.nextBoolean()) {
+				var toRemove = envelopes.get(rng.nextInt(i));
+				if (expected.remove(toRemove))
+					assertTrue(tree.remove(toRemove, toRemove));
+			}
+			if (i % 100 == 0) {
+				var query = new Envelope(env.getMinX() - 500, env.getMaxX() + 500, env.getMinY() - 500, env.getMaxY() + 500);
+				assertEquals(bruteForce(expected, query), query(tree, query));
+			}
+		}
+		var all = new Envelope(-1e10, 1e10, -1e10, 1e10);
+		assertEquals(expected, query(tree, all));
+		assertEquals(expected.size(), tree.size());
+
+		// Removing & re-inserting shouldn't result in duplicates
+		var env = expected.iterator().next();
+		tree.remove(env, env);
+		assertFalse(query(tree, all).contains(env));
+		tree.insert(env, env);
+		assertEquals(expected, query(tree, all));
+	}
+
+	@Test
+	public void test_concurrentQueries() throws InterruptedException {
+		var envelopes = createEnvelopes(50_000, 3);
+		var stable = envelopes.subList(0, 25_000);
+		var tree = HilbertRTree.create(stable, TestHilbertRTree::getBounds);
+		var query = new Envelope(2000, 4000, 1000, 3000);
+		var expected = bruteForce(stable, query);
+
+		// Queries should always find the objects that aren't changed, while others are inserted & removed
+		var failed = new AtomicBoolean(false);
+		var done = new AtomicBoolean(false);
+		int nThreads = 4;
+		var latch = new CountDownLatch(nThreads);
+		for (int t = 0; t < nThreads; t++) {
+			var thread = new Thread(() -> {
+				try {
+					while (!done.get()) {
+						if (!query(tree, query).containsAll(expected))
+							failed.set(true);
+					}
+				} finally {
+					latch.countDown();
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+		for (var env : envelopes.subList(25_000, envelopes.size())) {
+			tree.insert(env, env);
+			tree.remove(env, env);
+		}
+		done.set(true);
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertFalse(failed.get());
+		assertEquals(expected, query(tree, query));
+	}
+
+	@ParameterizedTest
+	@EnumSource(PathObjectTileCache.SpatialIndexType.class)
+	public void test_tileCache(PathObjectTileCache.SpatialIndexType type) {
+		var hierarchy = new PathObjectHierarchy();
+		var cache = new PathObjectTileCache(hierarchy, type);
+		List<PathObject> detections = new ArrayList<>();
+		for (var env : createEnvelopes(5000, 4)) {
+			var roi = ROIs.createRectangleROI(env.getMinX(), env.getMinY(), env.getWidth(), env.getHeight(), ImagePlane.getDefaultPlane());
+			detections.add(PathObjects.createDetectionObject(roi));
+		}
+		hierarchy.addObjects(detections);
+
+		var region = ImageRegion.createInstance(1000, 1000, 2000, 2000, 0, 0);
+		var expected = detections.stream()
+				.filter(p -> p.getROI().getBoundsX() <= region.getMaxX() && p.getROI().getBoundsX() + p.getROI().getBoundsWidth() >= region.getMinX())
+				.filter(p -> p.getROI().getBoundsY() <= region.getMaxY() && p.getROI().getBoundsY() + p.getROI().getBoundsHeight() >= region.getMinY())
+				.toList();
+		assertEquals(new HashSet<>(expected), cache.getObjectsForRegion(null, region, null, true));
+
+		// Single changes are applied incrementally
+		var removed = expected.getFirst();
+		hierarchy.removeObject(removed, false);
+		var added = PathObjects.createDetectionObject(ROIs.createRectangleROI(1500, 1500, 10, 10, ImagePlane.getDefaultPlane()));
+		hierarchy.addObject(added);
+		var result = cache.getObjectsForRegion(null, region, null, true);
+		assertFalse(result.contains(removed));
+		assertTrue(result.contains(added));
+		assertEquals(expected.size(), result.size());
+		assertFalse(cache.hasObjectsForRegion(null, ImageRegion.createInstance(20_000, 0, 100, 100, 0, 0), true));
+	}
+
+}
@@ -37,8 +37,11 @@ import qupath.lib.roi.ROIs;
 import qupath.lib.roi.RoiTools;
 import qupath.lib.roi.interfaces.ROI;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -629,6 +632,75 @@ public class TestPathObjectHierarchy {
         assertCollectionsEqualsWithoutOrder(expectedRootChildren, hierarchy.getRootObject().getChildObjects());
     }
 
+    @Test
+    void Check_Resolve_Hierarchy_Matches_Sequential_Insertion() {
+        var rng = new Random(100);
+        List<ROI> annotationROIs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            var plane = ImagePlane.getPlane(rng.nextInt(2), 0);
+            double size = 50 + rng.nextDouble() * 2000;
+            double x = rng.nextDouble() * 4000;
+            double y = rng.nextDouble() * 4000;
+            if (i % 2 == 0)
+                annotationROIs.add(ROIs.createRectangleROI(x, y, size, size * (0.5 + rng.nextDouble()), plane));
+            else
+                annotationROIs.add(ROIs.createEllipseROI(x, y, size, size * (0.5 + rng.nextDouble()), plane));
+        }
+        // Include some duplicates, which can only cover one another
+        annotationROIs.add(annotationROIs.get(10));
+        annotationROIs.add(annotationROIs.get(11));
+        List<ROI> detectionROIs = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            var plane = ImagePlane.getPlane(rng.nextInt(2), 0);
+            detectionROIs.add(ROIs.createEllipseROI(rng.nextDouble() * 6000, rng.nextDouble() * 6000, 10, 10, plane));
+        }
+
+        var expected = createObjectsForResolving(annotationROIs, detectionROIs);
+        var expectedHierarchy = new PathObjectHierarchy();
+        expectedHierarchy.addObjects(expected);
+        var expectedAnnotations = expectedHierarchy.getAnnotationObjects();
+        expectedHierarchy.removeObjects(expectedAnnotations, true);
+        expectedHierarchy.insertPathObjects(expectedAnnotations);
+
+        var actual = createObjectsForResolving(annotationROIs, detectionROIs);
+        var hierarchy = new PathObjectHierarchy();
+        hierarchy.addObjects(actual);
+        List<Double> progress = new ArrayList<>();
+        hierarchy.resolveHierarchy((message, value) -> {
+            synchronized (progress) {
+                progress.add(value);
+            }
+        });
+        assertEquals(1.0, progress.getLast());
+
+        var expectedIndices = new IdentityHashMap<PathObject, Integer>();
+        var actualIndices = new IdentityHashMap<PathObject, Integer>();
+        for (int i = 0; i < expected.size(); i++) {
+            expectedIndices.put(expected.get(i), i);
+            actualIndices.put(actual.get(i), i);
+        }
+        int nDetectionsInAnnotations = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            var expectedParent = expected.get(i).getParent();
+            var actualParent = actual.get(i).getParent();
+            if (expectedParent.isRootObject()) {
+                assertTrue(actualParent.isRootObject());
+            } else {
+                assertEquals(expectedIndices.get(expectedParent), actualIndices.get(actualParent));
+                if (actual.get(i).isDetection())
+                    nDetectionsInAnnotations++;
+            }
+        }
+        assertTrue(nDetectionsInAnnotations > 0);
+    }
+
+    private static List<PathObject> createObjectsForResolving(List<ROI> annotationROIs, List<ROI> detectionROIs) {
+        List<PathObject> pathObjects = new ArrayList<>();
+        annotationROIs.stream().map(PathObjects::createAnnotationObject).forEach(pathObjects::add);
+        detectionROIs.stream().map(PathObjects::createDetectionObject).forEach(pathObjects::add);
+        return pathObjects;
+    }
+
     private static <T> void assertCollectionsEqualsWithoutOrder(Collection<? extends T> expectedCollection, Collection<? extends T> actualCollection) {
         if (expectedCollection.size() != actualCollection.size()) {
             throw new AssertionFailedError(String.format(
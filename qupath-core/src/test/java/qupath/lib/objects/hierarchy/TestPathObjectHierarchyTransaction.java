@@ -0,0 +1,179 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import org.junit.jupiter.api.Test;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent.HierarchyEventType;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestPathObjectHierarchyTransaction {
+
+    private static List<PathObject> createAnnotations() {
+        var plane = ImagePlane.getDefaultPlane();
+        return List.of(
+                PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 1000, 1000, plane)),
+                PathObjects.createAnnotationObject(ROIs.createRectangleROI(100, 100, 200, 200, plane)),
+                PathObjects.createAnnotationObject(ROIs.createEllipseROI(500, 500, 400, 300, plane)),
+                PathObjects.createAnnotationObject(ROIs.createRectangleROI(1500, 0, 100, 100, plane))
+        );
+    }
+
+    private static List<PathObject> createDetections(int n) {
+        var plane = ImagePlane.getDefaultPlane();
+        return IntStream.range(0, n)
+                .mapToObj(i -> PathObjects.createDetectionObject(ROIs.createEllipseROI(i % 100 * 20, i / 100 * 20, 8, 8, plane)))
+                .toList();
+    }
+
+    private static List<HierarchyEventType> recordEvents(PathObjectHierarchy hierarchy) {
+        List<HierarchyEventType> events = new ArrayList<>();
+        hierarchy.addListener(e -> events.add(e.getEventType()));
+        return events;
+    }
+
+    @Test
+    public void test_insertMatchesSequential() {
+        // Enough detections to resolve parents in parallel
+        int n = 5000;
+        var annotations = createAnnotations();
+
+        var expected = new PathObjectHierarchy();
+        var expectedDetections = createDetections(n);
+        expected.insertPathObjects(annotations.stream().map(p -> PathObjects.createAnnotationObject(p.getROI())).toList());
+        for (var detection : expectedDetections)
+            expected.insertPathObject(detection, false);
+
+        var hierarchy = new PathObjectHierarchy();
+        var detections = createDetections(n);
+        var events = recordEvents(hierarchy);
+        try (var transaction = hierarchy.beginTransaction()) {
+            transaction.insertAll(detections);
+            transaction.insertAll(annotations);
+            assertEquals(n + annotations.size(), transaction.size());
+            assertTrue(transaction.commit());
+            assertTrue(transaction.isEmpty());
+        }
+        assertEquals(List.of(HierarchyEventType.OTHER_STRUCTURE_CHANGE), events);
+        assertEquals(expected.nObjects(), hierarchy.nObjects());
+        for (int i = 0; i < n; i++) {
+            var expectedParent = expectedDetections.get(i).getParent();
+            var parent = detections.get(i).getParent();
+            if (expectedParent.isRootObject())
+                assertTrue(parent.isRootObject());
+            else
+                assertEquals(expectedParent.getROI(), parent.getROI());
+        }
+    }
+
+    @Test
+    public void test_mixedChanges() {
+        var hierarchy = new PathObjectHierarchy();
+        var annotations = createAnnotations();
+        var detections = createDetections(1000);
+        hierarchy.insertPathObjects(annotations);
+        hierarchy.insertPathObjects(detections);
+
+        var inner = annotations.get(1);
+        var detection = detections.get(606);
+        assertSame(inner, detection.getParent());
+
+        var tumor = PathClass.fromString("Tumor");
+        var events = recordEvents(hierarchy);
+        try (var transaction = hierarchy.beginTransaction()) {
+            transaction.remove(inner, true)
+                    .setPathClass(detection, tumor)
+                    .setParent(detections.getFirst(), null)
+                    .add(PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 10, 10, ImagePlane.getDefaultPlane())));
+            assertTrue(transaction.commit());
+        }
+        assertEquals(1, events.size());
+        assertEquals(HierarchyEventType.OTHER_STRUCTURE_CHANGE, events.getFirst());
+        // Children of removed objects are kept below the root, as with PathObjectHierarchy.removeObjects
+        assertTrue(detection.getParent().isRootObject());
+        assertSame(tumor, detection.getPathClass());
+        assertTrue(detections.getFirst().getParent().isRootObject());
+        assertFalse(hierarchy.getAnnotationObjects().contains(inner));
+    }
+
+    @Test
+    public void test_classificationOnly() {
+        var hierarchy = new PathObjectHierarchy();
+        var detections = createDetections(10);
+        hierarchy.addObjects(detections);
+
+        List<PathObjectHierarchyEvent> events = new ArrayList<>();
+        hierarchy.addListener(events::add);
+        var tumor = PathClass.fromString("Tumor");
+        try (var transaction = hierarchy.beginTransaction()) {
+            for (var detection : detections.subList(0, 5))
+                transaction.setPathClass(detection, tumor);
+            assertTrue(transaction.commit());
+            // Nothing to commit
+            assertFalse(transaction.commit());
+        }
+        assertEquals(1, events.size());
+        var event = events.getFirst();
+        assertEquals(HierarchyEventType.CHANGE_CLASSIFICATION, event.getEventType());
+        assertEquals(detections.subList(0, 5), event.getChangedObjects());
+    }
+
+    @Test
+    public void test_closeWithoutCommit() {
+        var hierarchy = new PathObjectHierarchy();
+        var events = recordEvents(hierarchy);
+        var transaction = hierarchy.beginTransaction();
+        transaction.addAll(createDetections(10));
+        transaction.close();
+        assertTrue(hierarchy.isEmpty());
+        assertTrue(events.isEmpty());
+        assertThrows(IllegalStateException.class, transaction::commit);
+        assertThrows(IllegalStateException.class, () -> transaction.insert(createDetections(1).getFirst()));
+    }
+
+    @Test
+    public void test_concurrentRecording() {
+        var hierarchy = new PathObjectHierarchy();
+        hierarchy.insertPathObjects(createAnnotations());
+        var detections = createDetections(2000);
+        try (var transaction = hierarchy.beginTransaction()) {
+            detections.parallelStream().forEach(transaction::insert);
+            transaction.commit();
+        }
+        assertEquals(2000, hierarchy.getDetectionObjects().size());
+    }
+
+}
@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.regions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SuppressWarnings("javadoc")
+public class TestHilbertCurve {
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 3, 5})
+	public void test_encodeDecode(int order) {
+		int n = 1 << order;
+		boolean[] visited = new boolean[n * n];
+		for (int y = 0; y < n; y++) {
+			for (int x = 0; x < n; x++) {
+				long d = HilbertCurve.encode(order, x, y);
+				assertFalse(visited[(int)d]);
+				visited[(int)d] = true;
+				assertArrayEquals(new int[]{x, y}, HilbertCurve.decode(order, d));
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4, 6})
+	public void test_adjacentCells(int order) {
+		// Consecutive indices should always refer to neighboring cells
+		int n = 1 << order;
+		int[] previous = HilbertCurve.decode(order, 0);
+		assertArrayEquals(new int[]{0, 0}, previous);
+		for (long d = 1; d < (long)n * n; d++) {
+			int[] current = HilbertCurve.decode(order, d);
+			assertEquals(1, Math.abs(current[0] - previous[0]) + Math.abs(current[1] - previous[1]));
+			previous = current;
+		}
+	}
+
+	@Test
+	public void test_largeOrder() {
+		int order = HilbertCurve.MAX_ORDER;
+		int max = Integer.MAX_VALUE;
+		for (int[] xy : new int[][]{{0, 0}, {max, max}, {max, 0}, {12345, 67890}}) {
+			long d = HilbertCurve.encode(order, xy[0], xy[1]);
+			assertArrayEquals(xy, HilbertCurve.decode(order, d));
+		}
+	}
+
+	@Test
+	public void test_invalidInput() {
+		assertThrows(IllegalArgumentException.class, () -> HilbertCurve.encode(0, 0, 0));
+		assertThrows(IllegalArgumentException.class, () -> HilbertCurve.encode(2, 4, 0));
+		assertThrows(IllegalArgumentException.class, () -> HilbertCurve.encode(2, 0, -1));
+		assertThrows(IllegalArgumentException.class, () -> HilbertCurve.decode(2, 16));
+	}
+
+	@Test
+	public void test_sortByRegion() {
+		// Create tiles in row-major order, across two z-slices, along with some items without a region
+		int tileSize = 256;
+		int n = 8;
+		List<ImageRegion> regions = new ArrayList<>();
+		for (int z = 1; z >= 0; z--) {
+			for (int y = 0; y < n; y++) {
+				for (int x = 0; x < n; x++) {
+					regions.add(ImageRegion.createInstance(x * tileSize, y * tileSize, tileSize, tileSize, z, 0));
+					if (x == 3 && y == 5)
+						regions.add(null);
+				}
+			}
+		}
+		var sorted = HilbertCurve.sortByRegion(regions, r -> r);
+		assertEquals(regions.size(), sorted.size());
+		assertNull(sorted.get(sorted.size() - 1));
+		assertNull(sorted.get(sorted.size() - 2));
+
+		// Consecutive tiles should be neighbors, and z-slices should be kept together
+		for (int i = 1; i < n * n * 2; i++) {
+			var previous = sorted.get(i - 1);
+			var current = sorted.get(i);
+			assertEquals(i < n * n ? 0 : 1, current.getZ());
+			if (previous.getZ() == current.getZ()) {
+				int dx = Math.abs(current.getX() - previous.getX()) / tileSize;
+				int dy = Math.abs(current.getY() - previous.getY()) / tileSize;
+				assertEquals(1, dx + dy);
+			}
+		}
+	}
+
+}
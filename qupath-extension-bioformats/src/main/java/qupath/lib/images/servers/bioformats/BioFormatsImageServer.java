@@ -429,6 +429,14 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 		return "Bio-Formats";
 	}
 	
+	/**
+	 * Returns true, since some formats are slow to decode and images may be read from remote locations.
+	 */
+	@Override
+	protected boolean isDiskCacheSupported() {
+		return true;
+	}
+	
 	@Override
 	public synchronized void close() throws Exception {
 		super.close();
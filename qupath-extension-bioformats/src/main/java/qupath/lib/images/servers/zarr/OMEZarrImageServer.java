@@ -0,0 +1,402 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.zarr;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.common.ColorTools;
+import qupath.lib.common.GeneralTools;
+import qupath.lib.images.servers.AbstractTileableImageServer;
+import qupath.lib.images.servers.ImageChannel;
+import qupath.lib.images.servers.ImageServerBuilder.DefaultImageServerBuilder;
+import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
+import qupath.lib.images.servers.ImageServerMetadata;
+import qupath.lib.images.servers.ImageServerMetadata.ImageResolutionLevel;
+import qupath.lib.images.servers.PixelType;
+import qupath.lib.images.servers.ServerTools;
+import qupath.lib.images.servers.TileRequest;
+import qupath.lib.images.servers.bioformats.OMEPixelParser;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ImageServer that reads local OME-Zarr images directly, without using Bio-Formats.
+ * <p>
+ * OME-NGFF v0.4 (Zarr v2) and v0.5 (Zarr v3, optionally sharded) images are supported, provided that
+ * they use zlib, gzip or blosc compression.
+ * Chunks are read directly from the file system (using memory-mapping for larger files), and all the chunks
+ * needed for a tile are decoded in parallel.
+ * Since no reader objects are needed, tiles can be read concurrently by as many threads as are requested,
+ * rather than being limited by a pool of readers.
+ *
+ * @since v0.8.0
+ */
+public class OMEZarrImageServer extends AbstractTileableImageServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OMEZarrImageServer.class);
+
+    private final URI uri;
+    private final String[] args;
+    private final ImageServerMetadata originalMetadata;
+    private final List<ZarrArrayReader> levels;
+    private final Axes axes;
+    private final OMEPixelParser pixelParser;
+    private final ColorModel colorModel;
+
+    /**
+     * Indices of the OME-NGFF axes within each array, or -1 if the axis is not present.
+     */
+    private record Axes(int nDims, int t, int c, int z, int y, int x) {}
+
+    /**
+     * Create an ImageServer for a local OME-Zarr image.
+     * @param uri the URI of the root directory of the image
+     * @param args optional arguments (currently unused, but retained in the server builder)
+     * @throws IOException if the image cannot be read, or uses features that aren't supported
+     */
+    public OMEZarrImageServer(URI uri, String... args) throws IOException {
+        super();
+        this.uri = uri;
+        this.args = args.clone();
+
+        Path root = GeneralTools.toPath(uri);
+        if (root == null || !Files.isDirectory(root))
+            throw new IOException("OME-Zarr images must be local directories: " + uri);
+        var attributes = readOmeAttributes(root);
+        if (attributes == null)
+            throw new IOException("No OME-Zarr multiscales metadata found in " + root);
+
+        var multiscales = attributes.getAsJsonArray("multiscales").get(0).getAsJsonObject();
+        var axisList = multiscales.has("axes") ? multiscales.getAsJsonArray("axes") : null;
+        this.axes = parseAxes(axisList);
+
+        // Open all the resolution levels
+        var datasets = multiscales.getAsJsonArray("datasets");
+        levels = new ArrayList<>();
+        for (var dataset : datasets)
+            levels.add(ZarrArrayReader.open(root.resolve(dataset.getAsJsonObject().get("path").getAsString())));
+        var fullResolution = levels.get(0);
+        if (fullResolution.getShape().length != axes.nDims())
+            throw new IOException("OME-Zarr axes don't match the array dimensions");
+
+        var pixelType = fullResolution.getPixelType();
+        if (pixelType == PixelType.INT8 || pixelType == PixelType.UINT32)
+            throw new IOException("Unsupported pixel type " + pixelType);
+        for (var level : levels) {
+            if (level.getPixelType() != pixelType || level.getByteOrder() != fullResolution.getByteOrder())
+                throw new IOException("OME-Zarr resolution levels must all have the same data type");
+        }
+
+        long[] shape = fullResolution.getShape();
+        int width = (int)shape[axes.x()];
+        int height = (int)shape[axes.y()];
+        int nChannels = axes.c() < 0 ? 1 : (int)shape[axes.c()];
+        // Use shards as tiles where possible, so that each tile needs only one file and many chunks can be decoded in parallel
+        int[] tileShape = fullResolution.getStorageShape();
+
+        var resolutionBuilder = new ImageResolutionLevel.Builder(width, height);
+        for (var level : levels) {
+            long[] levelShape = level.getShape();
+            resolutionBuilder.addLevel((int)levelShape[axes.x()], (int)levelShape[axes.y()]);
+        }
+
+        var channels = parseChannels(attributes, nChannels);
+        // RGB images are written as 3 uint8 channels, with red, green and blue colors
+        boolean isRGB = pixelType == PixelType.UINT8 && nChannels == 3 &&
+                channels.get(0).getColor().equals(ColorTools.RED) &&
+                channels.get(1).getColor().equals(ColorTools.GREEN) &&
+                channels.get(2).getColor().equals(ColorTools.BLUE);
+        if (isRGB)
+            channels = ImageChannel.getDefaultRGBChannels();
+
+        var builder = new ImageServerMetadata.Builder(getClass(), uri.toString(), width, height)
+                .name(multiscales.has("name") ? multiscales.get("name").getAsString() : root.getFileName().toString())
+                .sizeZ(axes.z() < 0 ? 1 : (int)shape[axes.z()])
+                .sizeT(axes.t() < 0 ? 1 : (int)shape[axes.t()])
+                .channels(channels)
+                .rgb(isRGB)
+                .pixelType(pixelType)
+                .preferredTileSize(tileShape[axes.x()], tileShape[axes.y()])
+                .levels(resolutionBuilder.build());
+
+        double[] scale = getScale(multiscales, datasets.get(0).getAsJsonObject(), axes.nDims());
+        if (scale != null && axisList != null) {
+            if (isMicrometer(axisList, axes.x()) && isMicrometer(axisList, axes.y()))
+                builder.pixelSizeMicrons(scale[axes.x()], scale[axes.y()]);
+            if (axes.z() >= 0 && isMicrometer(axisList, axes.z()))
+                builder.zSpacingMicrons(scale[axes.z()]);
+        }
+        originalMetadata = builder.build();
+
+        colorModel = isRGB ? ColorModel.getRGBdefault() : ColorModelFactory.createColorModel(pixelType, channels);
+        pixelParser = new OMEPixelParser.Builder()
+                .pixelType(pixelType)
+                .byteOrder(fullResolution.getByteOrder())
+                .effectiveNChannels(nChannels)
+                .build();
+    }
+
+    /**
+     * Read the OME attributes from the root group, for either Zarr v3 (OME-NGFF v0.5) or Zarr v2 (OME-NGFF v0.4).
+     * @param root the root directory of the image
+     * @return the OME attributes, or null if no multiscales metadata could be found
+     * @throws IOException if the metadata could not be read
+     */
+    static JsonObject readOmeAttributes(Path root) throws IOException {
+        var v3 = root.resolve("zarr.json");
+        if (Files.isRegularFile(v3)) {
+            var json = ZarrArrayReader.readJson(v3);
+            var attributes = json.getAsJsonObject("attributes");
+            if (attributes != null && attributes.has("ome"))
+                attributes = attributes.getAsJsonObject("ome");
+            return attributes != null && attributes.has("multiscales") ? attributes : null;
+        }
+        var v2 = root.resolve(".zattrs");
+        if (Files.isRegularFile(v2)) {
+            var attributes = ZarrArrayReader.readJson(v2);
+            return attributes.has("multiscales") ? attributes : null;
+        }
+        return null;
+    }
+
+    private static Axes parseAxes(JsonArray axisList) throws IOException {
+        // Before OME-NGFF v0.3, images were always 5D
+        if (axisList == null)
+            return new Axes(5, 0, 1, 2, 3, 4);
+        int t = -1, c = -1, z = -1, y = -1, x = -1;
+        for (int i = 0; i < axisList.size(); i++) {
+            var axis = axisList.get(i);
+            String name = axis.isJsonObject() ? axis.getAsJsonObject().get("name").getAsString() : axis.getAsString();
+            switch (name.toLowerCase()) {
+                case "t" -> t = i;
+                case "c" -> c = i;
+                case "z" -> z = i;
+                case "y" -> y = i;
+                case "x" -> x = i;
+                default -> throw new IOException("Unsupported OME-Zarr axis: " + name);
+            }
+        }
+        int n = axisList.size();
+        if (x != n - 1 || y != n - 2)
+            throw new IOException("OME-Zarr images must have y and x as the last axes");
+        return new Axes(n, t, c, z, y, x);
+    }
+
+    private static boolean isMicrometer(JsonArray axisList, int index) {
+        var axis = axisList.get(index);
+        if (!axis.isJsonObject() || !axis.getAsJsonObject().has("unit"))
+            return false;
+        return "micrometer".equals(axis.getAsJsonObject().get("unit").getAsString());
+    }
+
+    private static double[] getScale(JsonObject multiscales, JsonObject dataset, int nDims) {
+        double[] scale = getScale(dataset, nDims);
+        if (scale == null)
+            return null;
+        // There may also be a scale that applies to all datasets
+        double[] globalScale = getScale(multiscales, nDims);
+        if (globalScale != null) {
+            for (int i = 0; i < nDims; i++)
+                scale[i] *= globalScale[i];
+        }
+        return scale;
+    }
+
+    private static double[] getScale(JsonObject json, int nDims) {
+        if (!json.has("coordinateTransformations"))
+            return null;
+        for (var transform : json.getAsJsonArray("coordinateTransformations")) {
+            var obj = transform.getAsJsonObject();
+            if ("scale".equals(obj.get("type").getAsString()) && obj.has("scale")) {
+                var values = obj.getAsJsonArray("scale");
+                if (values.size() != nDims)
+                    return null;
+                double[] scale = new double[nDims];
+                for (int i = 0; i < nDims; i++)
+                    scale[i] = values.get(i).getAsDouble();
+                return scale;
+            }
+        }
+        return null;
+    }
+
+    private static List<ImageChannel> parseChannels(JsonObject attributes, int nChannels) {
+        var defaultChannels = ImageChannel.getDefaultChannelList(nChannels);
+        if (!attributes.has("omero") || !attributes.getAsJsonObject("omero").has("channels"))
+            return defaultChannels;
+        var omeroChannels = attributes.getAsJsonObject("omero").getAsJsonArray("channels");
+        if (omeroChannels.size() != nChannels) {
+            logger.warn("Number of OMERO channels ({}) doesn't match the image ({}) - will use default channels",
+                    omeroChannels.size(), nChannels);
+            return defaultChannels;
+        }
+        List<ImageChannel> channels = new ArrayList<>();
+        for (int c = 0; c < nChannels; c++) {
+            var channel = omeroChannels.get(c).getAsJsonObject();
+            var defaultChannel = defaultChannels.get(c);
+            String name = channel.has("label") ? channel.get("label").getAsString() : defaultChannel.getName();
+            Integer color = defaultChannel.getColor();
+            if (channel.has("color")) {
+                try {
+                    int rgb = Integer.parseUnsignedInt(channel.get("color").getAsString(), 16);
+                    color = ColorTools.packRGB(ColorTools.red(rgb), ColorTools.green(rgb), ColorTools.blue(rgb));
+                } catch (NumberFormatException e) {
+                    logger.debug("Unable to parse channel color {}", channel.get("color"));
+                }
+            }
+            channels.add(ImageChannel.getInstance(name, color));
+        }
+        return channels;
+    }
+
+    @Override
+    protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
+        var array = levels.get(tileRequest.getLevel());
+        int x = tileRequest.getTileX();
+        int y = tileRequest.getTileY();
+        int width = tileRequest.getTileWidth();
+        int height = tileRequest.getTileHeight();
+        int nChannels = nChannels();
+        int bytesPerPixel = originalMetadata.getPixelType().getBytesPerPixel();
+        byte[][] pixels = new byte[nChannels][width * height * bytesPerPixel];
+
+        // Find all the chunks that overlap the tile
+        int[] chunkShape = array.getChunkShape();
+        List<long[]> chunks = new ArrayList<>();
+        int nChannelChunks = axes.c() < 0 ? 1 : (nChannels + chunkShape[axes.c()] - 1) / chunkShape[axes.c()];
+        for (int c = 0; c < nChannelChunks; c++) {
+            for (long cy = y / chunkShape[axes.y()]; cy <= (y + height - 1) / chunkShape[axes.y()]; cy++) {
+                for (long cx = x / chunkShape[axes.x()]; cx <= (x + width - 1) / chunkShape[axes.x()]; cx++) {
+                    long[] chunkIndex = new long[axes.nDims()];
+                    if (axes.t() >= 0)
+                        chunkIndex[axes.t()] = tileRequest.getT() / chunkShape[axes.t()];
+                    if (axes.z() >= 0)
+                        chunkIndex[axes.z()] = tileRequest.getZ() / chunkShape[axes.z()];
+                    if (axes.c() >= 0)
+                        chunkIndex[axes.c()] = c;
+                    chunkIndex[axes.y()] = cy;
+                    chunkIndex[axes.x()] = cx;
+                    chunks.add(chunkIndex);
+                }
+            }
+        }
+
+        // Decode chunks in parallel - each writes to a different part of the output arrays
+        try {
+            var stream = chunks.size() > 1 ? chunks.parallelStream() : chunks.stream();
+            stream.forEach(chunkIndex -> {
+                try {
+                    array.readChunk(chunkIndex, buffer -> copyChunk(buffer, chunkIndex, chunkShape, tileRequest, pixels, bytesPerPixel));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return pixelParser.parse(pixels, width, height, nChannels, colorModel);
+    }
+
+    /**
+     * Copy the part of a decoded chunk that overlaps a tile into the per-channel pixel arrays.
+     */
+    private void copyChunk(ByteBuffer buffer, long[] chunkIndex, int[] chunkShape, TileRequest tileRequest,
+                           byte[][] pixels, int bytesPerPixel) {
+        int nDims = chunkShape.length;
+        long[] strides = new long[nDims];
+        strides[nDims - 1] = 1;
+        for (int d = nDims - 2; d >= 0; d--)
+            strides[d] = strides[d + 1] * chunkShape[d + 1];
+
+        // Offset for the t and z planes within the chunk
+        long planeOffset = 0;
+        if (axes.t() >= 0)
+            planeOffset += (tileRequest.getT() - chunkIndex[axes.t()] * chunkShape[axes.t()]) * strides[axes.t()];
+        if (axes.z() >= 0)
+            planeOffset += (tileRequest.getZ() - chunkIndex[axes.z()] * chunkShape[axes.z()]) * strides[axes.z()];
+
+        int tileX = tileRequest.getTileX();
+        int tileY = tileRequest.getTileY();
+        int width = tileRequest.getTileWidth();
+        long chunkX = chunkIndex[axes.x()] * chunkShape[axes.x()];
+        long chunkY = chunkIndex[axes.y()] * chunkShape[axes.y()];
+        int x1 = (int)Math.max(tileX, chunkX);
+        int x2 = (int)Math.min(tileX + width, chunkX + chunkShape[axes.x()]);
+        int y1 = (int)Math.max(tileY, chunkY);
+        int y2 = (int)Math.min(tileY + tileRequest.getTileHeight(), chunkY + chunkShape[axes.y()]);
+        int rowBytes = (x2 - x1) * bytesPerPixel;
+
+        int c1 = 0;
+        int c2 = 1;
+        if (axes.c() >= 0) {
+            c1 = (int)(chunkIndex[axes.c()] * chunkShape[axes.c()]);
+            c2 = Math.min(pixels.length, c1 + chunkShape[axes.c()]);
+        }
+        for (int c = c1; c < c2; c++) {
+            long channelOffset = axes.c() < 0 ? 0 : (c - c1) * strides[axes.c()];
+            for (int yy = y1; yy < y2; yy++) {
+                long src = planeOffset + channelOffset + (yy - chunkY) * strides[axes.y()] + (x1 - chunkX) * strides[axes.x()];
+                int dest = ((yy - tileY) * width + (x1 - tileX)) * bytesPerPixel;
+                buffer.get((int)(buffer.position() + src * bytesPerPixel), pixels[c], dest, rowBytes);
+            }
+        }
+    }
+
+    @Override
+    protected ServerBuilder<BufferedImage> createServerBuilder() {
+        return DefaultImageServerBuilder.createInstance(OMEZarrServerBuilder.class, getMetadata(), uri, args);
+    }
+
+    @Override
+    protected String createID() {
+        return ServerTools.createDefaultID(getClass(), uri, args);
+    }
+
+    @Override
+    public Collection<URI> getURIs() {
+        return List.of(uri);
+    }
+
+    @Override
+    public String getServerType() {
+        return "OME-Zarr";
+    }
+
+    @Override
+    public ImageServerMetadata getOriginalMetadata() {
+        return originalMetadata;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.zarr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.GeneralTools;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerBuilder;
+
+import java.awt.image.BufferedImage;
+import java.net.URI;
+import java.nio.file.Files;
+
+/**
+ * Builder for {@link OMEZarrImageServer}.
+ * <p>
+ * Local OME-Zarr images are given a higher support level than Bio-Formats, so that they are read directly
+ * whenever all the codecs they use are supported.
+ *
+ * @since v0.8.0
+ */
+public class OMEZarrServerBuilder implements ImageServerBuilder<BufferedImage> {
+
+    private static final Logger logger = LoggerFactory.getLogger(OMEZarrServerBuilder.class);
+
+    /**
+     * Support level for OME-Zarr images, which is higher than the default level used by Bio-Formats.
+     */
+    private static final float SUPPORT_LEVEL = 4f;
+
+    @Override
+    public ImageServer<BufferedImage> buildServer(URI uri, String... args) {
+        try {
+            return new OMEZarrImageServer(uri, args);
+        } catch (Exception e) {
+            logger.error("Unable to open {}: {}", uri, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public UriImageSupport<BufferedImage> checkImageSupport(URI uri, String... args) {
+        var path = GeneralTools.toPath(uri);
+        if (path == null || !Files.isDirectory(path))
+            return null;
+        // Creating the server checks that the metadata, data type and codecs are all supported
+        try (var server = new OMEZarrImageServer(uri, args)) {
+            return UriImageSupport.createInstance(getClass(), SUPPORT_LEVEL, server.getBuilder());
+        } catch (Exception e) {
+            logger.debug("Unable to read {} as OME-Zarr: {}", uri, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "OME-Zarr builder";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Image server that reads local OME-Zarr images directly";
+    }
+
+    @Override
+    public Class<BufferedImage> getImageType() {
+        return BufferedImage.class;
+    }
+
+    @Override
+    public boolean matchClassName(String... classNames) {
+        for (var className : classNames) {
+            if (this.getClass().getName().equals(className) ||
+                    this.getClass().getSimpleName().equals(className) ||
+                    OMEZarrImageServer.class.getName().equals(className) ||
+                    OMEZarrImageServer.class.getSimpleName().equals(className) ||
+                    "omezarr".equalsIgnoreCase(className))
+                return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,466 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.zarr;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import qupath.lib.images.servers.PixelType;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reader for a single Zarr array stored in a local directory.
+ * <p>
+ * Both Zarr v2 ({@code .zarray}) and v3 ({@code zarr.json}) arrays are supported, including v3 arrays that
+ * use the {@code sharding_indexed} codec.
+ * Chunks are read using a {@link FileChannel}; larger files (and byte ranges within shards) are memory-mapped,
+ * so that decompression can read directly from the page cache without an intermediate copy.
+ * <p>
+ * Instances are thread-safe, and chunks can be read in parallel.
+ */
+final class ZarrArrayReader {
+
+    /**
+     * Minimum number of bytes to read before memory-mapping is used, since mapping has a fixed overhead
+     * that isn't worthwhile for small (usually compressed) chunk files.
+     */
+    private static final long MAP_THRESHOLD = 256 * 1024;
+
+    private static final int MAX_CACHED_SHARD_INDEXES = 256;
+
+    private static final long MISSING = -1L;
+
+    private final Path dir;
+    private final long[] shape;
+    private final int[] chunkShape;
+    private final PixelType pixelType;
+    private final ByteOrder byteOrder;
+    private final double fillValue;
+    private final String chunkKeyPrefix;
+    private final String separator;
+    private final List<ZarrCodecs.Codec> codecs;
+    private final int chunkBytes;
+
+    private final Sharding sharding;
+    private final Map<Path, long[]> shardIndexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, long[]> eldest) {
+            return size() > MAX_CACHED_SHARD_INDEXES;
+        }
+    });
+
+    private ByteBuffer fillChunk;
+
+    /**
+     * Sharding information for v3 arrays.
+     * @param shardShape the shape of each shard (i.e. the outer chunk grid)
+     * @param chunksPerShard the number of inner chunks along each dimension of a shard
+     * @param indexAtEnd true if the shard index is at the end of the file, false if it is at the start
+     * @param indexOverhead number of bytes added to the index by its codecs (e.g. a checksum)
+     * @param indexCodecs codecs used to encode the index
+     */
+    private record Sharding(int[] shardShape, int[] chunksPerShard, boolean indexAtEnd, int indexOverhead,
+                            List<ZarrCodecs.Codec> indexCodecs) {
+
+        private int nChunks() {
+            int n = 1;
+            for (int c : chunksPerShard)
+                n *= c;
+            return n;
+        }
+
+        private long indexBytes() {
+            return nChunks() * 16L + indexOverhead;
+        }
+
+    }
+
+    private ZarrArrayReader(Path dir, long[] shape, int[] chunkShape, PixelType pixelType, ByteOrder byteOrder,
+                            double fillValue, String chunkKeyPrefix, String separator,
+                            List<ZarrCodecs.Codec> codecs, Sharding sharding) {
+        this.dir = dir;
+        this.shape = shape;
+        this.chunkShape = chunkShape;
+        this.pixelType = pixelType;
+        this.byteOrder = byteOrder;
+        this.fillValue = fillValue;
+        this.chunkKeyPrefix = chunkKeyPrefix;
+        this.separator = separator;
+        this.codecs = List.copyOf(codecs);
+        this.sharding = sharding;
+        long n = pixelType.getBytesPerPixel();
+        for (int c : chunkShape)
+            n *= c;
+        if (n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Zarr chunk is too large (" + n + " bytes)");
+        this.chunkBytes = (int)n;
+    }
+
+    /**
+     * Open a Zarr array from a directory, reading either Zarr v3 or v2 metadata.
+     * @param dir the directory containing the array
+     * @return a reader for the array
+     * @throws IOException if the metadata cannot be read, or uses features that aren't supported
+     */
+    static ZarrArrayReader open(Path dir) throws IOException {
+        var v3 = dir.resolve("zarr.json");
+        if (Files.isRegularFile(v3))
+            return openV3(dir, readJson(v3));
+        var v2 = dir.resolve(".zarray");
+        if (Files.isRegularFile(v2))
+            return openV2(dir, readJson(v2));
+        throw new IOException("No Zarr array found at " + dir);
+    }
+
+    static JsonObject readJson(Path path) throws IOException {
+        try (var reader = Files.newBufferedReader(path)) {
+            var element = JsonParser.parseReader(reader);
+            if (!element.isJsonObject())
+                throw new IOException("Invalid Zarr metadata in " + path);
+            return element.getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to parse " + path, e);
+        }
+    }
+
+    private static ZarrArrayReader openV2(Path dir, JsonObject json) throws IOException {
+        long[] shape = toLongArray(json.getAsJsonArray("shape"));
+        int[] chunks = toIntArray(json.getAsJsonArray("chunks"));
+        String dtype = json.get("dtype").getAsString();
+        var byteOrder = dtype.charAt(0) == '>' ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        var pixelType = parsePixelType(dtype.substring(1));
+
+        if (json.has("order") && !"C".equals(json.get("order").getAsString()))
+            throw new IOException("Only C-order Zarr arrays are supported");
+        if (isPresent(json, "filters"))
+            throw new IOException("Zarr filters are not supported");
+
+        List<ZarrCodecs.Codec> codecs = new ArrayList<>();
+        if (isPresent(json, "compressor"))
+            codecs.add(ZarrCodecs.create(json.getAsJsonObject("compressor").get("id").getAsString()));
+
+        String separator = isPresent(json, "dimension_separator") ? json.get("dimension_separator").getAsString() : ".";
+        return new ZarrArrayReader(dir, shape, chunks, pixelType, byteOrder, parseFillValue(json.get("fill_value")),
+                "", separator, codecs, null);
+    }
+
+    private static ZarrArrayReader openV3(Path dir, JsonObject json) throws IOException {
+        if (!"array".equals(json.get("node_type").getAsString()))
+            throw new IOException("Zarr node at " + dir + " is not an array");
+        long[] shape = toLongArray(json.getAsJsonArray("shape"));
+        var pixelType = parsePixelType(json.get("data_type").getAsString());
+
+        var grid = json.getAsJsonObject("chunk_grid");
+        if (!"regular".equals(grid.get("name").getAsString()))
+            throw new IOException("Unsupported Zarr chunk grid: " + grid.get("name").getAsString());
+        int[] chunks = toIntArray(grid.getAsJsonObject("configuration").getAsJsonArray("chunk_shape"));
+
+        String prefix = "c/";
+        String separator = "/";
+        if (isPresent(json, "chunk_key_encoding")) {
+            var encoding = json.getAsJsonObject("chunk_key_encoding");
+            boolean isV2 = "v2".equals(encoding.get("name").getAsString());
+            var config = encoding.getAsJsonObject("configuration");
+            separator = config != null && config.has("separator") ? config.get("separator").getAsString() : (isV2 ? "." : "/");
+            prefix = isV2 ? "" : "c" + separator;
+        }
+
+        var pipeline = parseCodecs(json.getAsJsonArray("codecs"), shape.length);
+        Sharding sharding = null;
+        int[] chunkShape = chunks;
+        if (pipeline.sharding() != null) {
+            var config = pipeline.sharding();
+            chunkShape = toIntArray(config.getAsJsonArray("chunk_shape"));
+            int[] chunksPerShard = new int[chunks.length];
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunkShape[i] <= 0 || chunks[i] % chunkShape[i] != 0)
+                    throw new IOException("Zarr shard shape must be divisible by the inner chunk shape");
+                chunksPerShard[i] = chunks[i] / chunkShape[i];
+            }
+            var indexPipeline = parseCodecs(config.getAsJsonArray("index_codecs"), shape.length);
+            if (indexPipeline.sharding() != null || indexPipeline.byteOrder() != ByteOrder.LITTLE_ENDIAN)
+                throw new IOException("Unsupported Zarr shard index encoding");
+            int overhead = 0;
+            for (var codec : config.getAsJsonArray("index_codecs"))
+                overhead += codec.getAsJsonObject().get("name").getAsString().equals("bytes") ? 0 :
+                        ZarrCodecs.getEncodedOverhead(codec.getAsJsonObject().get("name").getAsString());
+            boolean indexAtEnd = !config.has("index_location") || "end".equals(config.get("index_location").getAsString());
+            sharding = new Sharding(chunks, chunksPerShard, indexAtEnd, overhead, indexPipeline.codecs());
+
+            pipeline = parseCodecs(config.getAsJsonArray("codecs"), shape.length);
+            if (pipeline.sharding() != null)
+                throw new IOException("Nested Zarr sharding is not supported");
+        }
+        return new ZarrArrayReader(dir, shape, chunkShape, pixelType, pipeline.byteOrder(),
+                parseFillValue(json.get("fill_value")), prefix, separator, pipeline.codecs(), sharding);
+    }
+
+    /**
+     * A parsed Zarr v3 codec pipeline.
+     * @param byteOrder the byte order defined by the array-to-bytes codec
+     * @param codecs the bytes-to-bytes codecs
+     * @param sharding the sharding configuration, if the array-to-bytes codec is {@code sharding_indexed}
+     */
+    private record Pipeline(ByteOrder byteOrder, List<ZarrCodecs.Codec> codecs, JsonObject sharding) {}
+
+    private static Pipeline parseCodecs(JsonArray array, int nDims) throws IOException {
+        var byteOrder = ByteOrder.LITTLE_ENDIAN;
+        JsonObject sharding = null;
+        List<ZarrCodecs.Codec> codecs = new ArrayList<>();
+        for (var element : array) {
+            var codec = element.getAsJsonObject();
+            String name = codec.get("name").getAsString();
+            var config = codec.getAsJsonObject("configuration");
+            switch (name) {
+                case "transpose" -> {
+                    int[] order = toIntArray(config.getAsJsonArray("order"));
+                    for (int i = 0; i < order.length; i++) {
+                        if (order[i] != i)
+                            throw new IOException("Zarr transpose codec is only supported with the default order");
+                    }
+                }
+                case "bytes" -> {
+                    if (config != null && config.has("endian") && "big".equals(config.get("endian").getAsString()))
+                        byteOrder = ByteOrder.BIG_ENDIAN;
+                }
+                case "sharding_indexed" -> sharding = config;
+                default -> codecs.add(ZarrCodecs.create(name));
+            }
+        }
+        return new Pipeline(byteOrder, codecs, sharding);
+    }
+
+    private static PixelType parsePixelType(String dtype) throws IOException {
+        return switch (dtype) {
+            case "uint8", "u1" -> PixelType.UINT8;
+            case "int8", "i1" -> PixelType.INT8;
+            case "uint16", "u2" -> PixelType.UINT16;
+            case "int16", "i2" -> PixelType.INT16;
+            case "uint32", "u4" -> PixelType.UINT32;
+            case "int32", "i4" -> PixelType.INT32;
+            case "float32", "f4" -> PixelType.FLOAT32;
+            case "float64", "f8" -> PixelType.FLOAT64;
+            default -> throw new IOException("Unsupported Zarr data type: " + dtype);
+        };
+    }
+
+    private static double parseFillValue(JsonElement element) {
+        if (element == null || element.isJsonNull())
+            return 0;
+        var primitive = element.getAsJsonPrimitive();
+        if (primitive.isNumber())
+            return primitive.getAsDouble();
+        if (primitive.isBoolean())
+            return primitive.getAsBoolean() ? 1 : 0;
+        // Strings are used for NaN & infinity, or for the bit representation of floats
+        String value = primitive.getAsString();
+        if (value.startsWith("0x")) {
+            long bits = Long.parseUnsignedLong(value.substring(2), 16);
+            return value.length() > 10 ? Double.longBitsToDouble(bits) : Float.intBitsToFloat((int)bits);
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static boolean isPresent(JsonObject json, String name) {
+        return json.has(name) && !json.get(name).isJsonNull();
+    }
+
+    private static long[] toLongArray(JsonArray array) {
+        long[] values = new long[array.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = array.get(i).getAsLong();
+        return values;
+    }
+
+    private static int[] toIntArray(JsonArray array) {
+        int[] values = new int[array.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = array.get(i).getAsInt();
+        return values;
+    }
+
+    /**
+     * Get the shape of the array.
+     * @return the size of each dimension
+     */
+    long[] getShape() {
+        return shape.clone();
+    }
+
+    /**
+     * Get the shape of the chunks returned by {@link #readChunk(long[], Consumer)}.
+     * For sharded arrays, this is the shape of the inner chunks.
+     * @return the size of each chunk dimension
+     */
+    int[] getChunkShape() {
+        return chunkShape.clone();
+    }
+
+    /**
+     * Get the shape of the units in which the array is stored on disk.
+     * For sharded arrays, this is the shape of the shards; otherwise it is the same as the chunk shape.
+     * @return the size of each dimension of a stored unit
+     */
+    int[] getStorageShape() {
+        return sharding == null ? chunkShape.clone() : sharding.shardShape().clone();
+    }
+
+    PixelType getPixelType() {
+        return pixelType;
+    }
+
+    ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    /**
+     * Read and decode a chunk.
+     * <p>
+     * The consumer receives the decoded chunk in C order, using the byte order of the array.
+     * If the chunk is not stored, the consumer receives a chunk filled with the array's fill value.
+     * The buffer may be backed by a memory-mapped file, and so is only valid for the duration of the call.
+     *
+     * @param chunkIndex the index of the chunk along each dimension
+     * @param consumer consumer for the decoded chunk
+     * @throws IOException if the chunk could not be read or decoded
+     */
+    void readChunk(long[] chunkIndex, Consumer<ByteBuffer> consumer) throws IOException {
+        if (sharding == null) {
+            if (!readAndDecode(dir.resolve(getChunkKey(chunkIndex)), 0, -1, codecs, chunkBytes, consumer))
+                consumer.accept(getFillChunk());
+            return;
+        }
+        long[] shardIndex = new long[chunkIndex.length];
+        int indexInShard = 0;
+        for (int d = 0; d < chunkIndex.length; d++) {
+            int n = sharding.chunksPerShard()[d];
+            shardIndex[d] = chunkIndex[d] / n;
+            indexInShard = indexInShard * n + (int)(chunkIndex[d] % n);
+        }
+        var path = dir.resolve(getChunkKey(shardIndex));
+        long[] index = readShardIndex(path);
+        if (index == null || index[indexInShard * 2] == MISSING ||
+                !readAndDecode(path, index[indexInShard * 2], index[indexInShard * 2 + 1], codecs, chunkBytes, consumer))
+            consumer.accept(getFillChunk());
+    }
+
+    private String getChunkKey(long[] chunkIndex) {
+        var sb = new StringBuilder(chunkKeyPrefix);
+        for (int i = 0; i < chunkIndex.length; i++) {
+            if (i > 0)
+                sb.append(separator);
+            sb.append(chunkIndex[i]);
+        }
+        return sb.toString();
+    }
+
+    private long[] readShardIndex(Path path) throws IOException {
+        var index = shardIndexes.get(path);
+        if (index != null)
+            return index;
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        long indexBytes = sharding.indexBytes();
+        long offset = sharding.indexAtEnd() ? size - indexBytes : 0;
+        if (offset < 0)
+            throw new IOException("Zarr shard " + path + " is too small for its index");
+        long[] values = new long[sharding.nChunks() * 2];
+        readAndDecode(path, offset, indexBytes, sharding.indexCodecs(), (int)indexBytes,
+                buffer -> buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(values));
+        shardIndexes.put(path, values);
+        return values;
+    }
+
+    /**
+     * Read bytes from a file and pass the decoded result to a consumer.
+     * @return true if the bytes were read, false if the file does not exist
+     */
+    private boolean readAndDecode(Path path, long offset, long length, List<ZarrCodecs.Codec> codecs,
+                                  int expectedSize, Consumer<ByteBuffer> consumer) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long n = length < 0 ? channel.size() - offset : length;
+            if (n >= MAP_THRESHOLD) {
+                try (var arena = Arena.ofConfined()) {
+                    var segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, n, arena);
+                    consumer.accept(ZarrCodecs.decode(codecs, segment.asByteBuffer(), expectedSize).order(byteOrder));
+                }
+            } else {
+                var buffer = ByteBuffer.allocate((int)n);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0)
+                        throw new IOException("Unexpected end of file " + path);
+                }
+                consumer.accept(ZarrCodecs.decode(codecs, buffer.flip(), expectedSize).order(byteOrder));
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private synchronized ByteBuffer getFillChunk() {
+        if (fillChunk == null) {
+            var buffer = ByteBuffer.allocate(chunkBytes).order(byteOrder);
+            if (fillValue != 0) {
+                int n = chunkBytes / pixelType.getBytesPerPixel();
+                for (int i = 0; i < n; i++) {
+                    switch (pixelType) {
+                        case UINT8, INT8 -> buffer.put((byte)fillValue);
+                        case UINT16, INT16 -> buffer.putShort((short)fillValue);
+                        case UINT32, INT32 -> buffer.putInt((int)(long)fillValue);
+                        case FLOAT32 -> buffer.putFloat((float)fillValue);
+                        case FLOAT64 -> buffer.putDouble(fillValue);
+                    }
+                }
+            }
+            fillChunk = buffer.clear().asReadOnlyBuffer().order(byteOrder);
+        }
+        return fillChunk.duplicate().order(byteOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "ZarrArrayReader[" + dir + ", shape=" + Arrays.toString(shape) + ", chunks=" + Arrays.toString(chunkShape) + "]";
+    }
+
+}
@@ -0,0 +1,204 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.zarr;
+
+import com.bc.zarr.Compressor;
+import com.bc.zarr.CompressorFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Decoders for the bytes-to-bytes codecs used by Zarr v2 compressors and Zarr v3 codec pipelines.
+ * <p>
+ * zlib and gzip are decoded with {@link java.util.zip}, reading directly from the (possibly memory-mapped)
+ * input buffer; blosc is decoded using the native library provided through jzarr.
+ * zstd is not currently supported.
+ */
+final class ZarrCodecs {
+
+    /**
+     * A codec that can decode bytes.
+     */
+    @FunctionalInterface
+    interface Codec {
+
+        /**
+         * Decode the remaining bytes of a buffer.
+         * @param encoded the encoded bytes; this may be a view of a memory-mapped file, and should not be retained
+         * @param expectedSize the expected number of decoded bytes, used to size any output buffer
+         * @return a buffer containing the decoded bytes
+         * @throws IOException if the bytes could not be decoded
+         */
+        ByteBuffer decode(ByteBuffer encoded, int expectedSize) throws IOException;
+
+    }
+
+    private static Compressor blosc;
+
+    private ZarrCodecs() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Create a codec from its Zarr name.
+     * @param name the name of the codec (v3) or the id of the compressor (v2)
+     * @return the codec
+     * @throws IOException if the codec is not supported
+     */
+    static Codec create(String name) throws IOException {
+        return switch (name) {
+            case "zlib", "numcodecs.zlib" -> ZarrCodecs::inflate;
+            case "gzip" -> ZarrCodecs::gunzip;
+            case "blosc" -> ZarrCodecs::unblosc;
+            case "crc32c" -> ZarrCodecs::checkCrc32c;
+            default -> throw new IOException("Unsupported Zarr codec: " + name);
+        };
+    }
+
+    /**
+     * Get the number of bytes that a codec appends to its input, if this is known without decoding.
+     * This is required to find the size of a shard index.
+     * @param name the name of the codec
+     * @return the number of bytes added by encoding
+     * @throws IOException if the size can't be determined in advance
+     */
+    static int getEncodedOverhead(String name) throws IOException {
+        if ("crc32c".equals(name))
+            return 4;
+        throw new IOException("Unsupported Zarr shard index codec: " + name);
+    }
+
+    /**
+     * Decode bytes by applying codecs in reverse order.
+     * @param codecs the codecs, in the order they were applied when encoding
+     * @param encoded the encoded bytes
+     * @param expectedSize the expected number of decoded bytes
+     * @return the decoded bytes
+     * @throws IOException if the bytes could not be decoded
+     */
+    static ByteBuffer decode(List<Codec> codecs, ByteBuffer encoded, int expectedSize) throws IOException {
+        var buffer = encoded;
+        for (int i = codecs.size() - 1; i >= 0; i--) {
+            buffer = codecs.get(i).decode(buffer, expectedSize);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer inflate(ByteBuffer encoded, int expectedSize) throws IOException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(encoded);
+            byte[] output = new byte[Math.max(expectedSize, 1024)];
+            int n = 0;
+            while (!inflater.finished()) {
+                if (n == output.length)
+                    output = Arrays.copyOf(output, output.length * 2);
+                int count = inflater.inflate(output, n, output.length - n);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("Truncated zlib stream");
+                n += count;
+            }
+            return ByteBuffer.wrap(output, 0, n);
+        } catch (DataFormatException e) {
+            throw new IOException("Unable to decode zlib stream", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer gunzip(ByteBuffer encoded, int expectedSize) throws IOException {
+        try (var stream = new GZIPInputStream(new ByteBufferInputStream(encoded), 8192)) {
+            return ByteBuffer.wrap(stream.readAllBytes());
+        }
+    }
+
+    private static ByteBuffer unblosc(ByteBuffer encoded, int expectedSize) throws IOException {
+        var output = new ByteArrayOutputStream(expectedSize);
+        getBlosc().uncompress(new ByteBufferInputStream(encoded), output);
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+
+    private static synchronized Compressor getBlosc() {
+        // Compression settings aren't needed for decoding, since blosc headers are self-describing
+        if (blosc == null)
+            blosc = CompressorFactory.create("blosc");
+        return blosc;
+    }
+
+    private static ByteBuffer checkCrc32c(ByteBuffer encoded, int expectedSize) throws IOException {
+        int n = encoded.remaining() - 4;
+        if (n < 0)
+            throw new IOException("Missing crc32c checksum");
+        var data = encoded.slice(encoded.position(), n);
+        var crc = new CRC32C();
+        crc.update(data.duplicate());
+        int expected = encoded.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(encoded.position() + n);
+        if ((int)crc.getValue() != expected)
+            throw new IOException("crc32c checksum mismatch");
+        return data;
+    }
+
+    /**
+     * Input stream to read from a buffer without copying it first.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Read local OME-Zarr images directly, without Bio-Formats.
+ */
+package qupath.lib.images.servers.zarr;
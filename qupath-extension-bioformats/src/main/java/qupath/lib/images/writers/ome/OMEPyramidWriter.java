@@ -42,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.lib.color.ColorModelFactory;
 import qupath.lib.common.ColorTools;
+import qupath.lib.common.ThreadTools;
 import qupath.lib.images.servers.ImageChannel;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerMetadata;
@@ -60,18 +61,22 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -386,6 +391,8 @@ public class OMEPyramidWriter {
 		private ByteOrder endian = ByteOrder.BIG_ENDIAN;
 		
 		private int parallelThreads = 1;
+
+		private boolean cascadeDownsampling = false;
 		
 		private Boolean bigTiff;
 		private ChannelExportType channelExportType = ChannelExportType.DEFAULT;
@@ -695,7 +702,49 @@ public class OMEPyramidWriter {
             } catch (FormatException e) {
                 throw new IOException(e);
             }
-            for (int level = 0; level < downsamples.length; level++) {
+
+			// Make extra sure we're using the same width & height that we said we'd use for each resolution level
+			int[] levelWidths = new int[downsamples.length];
+			int[] levelHeights = new int[downsamples.length];
+			for (int level = 0; level < downsamples.length; level++) {
+				if (meta instanceof IPyramidStore && level > 0) {
+					levelWidths[level] = ((IPyramidStore)meta).getResolutionSizeX(series, level).getValue().intValue();
+					levelHeights[level] = ((IPyramidStore)meta).getResolutionSizeY(series, level).getValue().intValue();
+				} else {
+					levelWidths[level] = width;
+					levelHeights[level] = height;
+				}
+			}
+
+			// Use a single pool for all planes, rather than creating a new pool for each one
+			ExecutorService pool = parallelThreads > 1 ?
+					Executors.newFixedThreadPool(parallelThreads, ThreadTools.createThreadFactory("ome-pyramid-writer-", true)) : null;
+			PyramidCascade cascade = cascadeDownsampling && isTiled && downsamples.length > 1 ?
+					new PyramidCascade(downsamples, levelWidths, levelHeights, tileWidth, tileHeight,
+							server.getMetadata().getChannelType() == ChannelType.CLASSIFICATION,
+							Runtime.getRuntime().maxMemory() / 16) : null;
+			try {
+				writeLevels(writer, pool, cascade, map, isTiff, isTiled, isRGB, nChannels, nSamples, nPlanes, sizeZ,
+						levelWidths, levelHeights, tileWidth, tileHeight);
+			} finally {
+				if (pool != null)
+					pool.shutdownNow();
+				if (cascade != null)
+					cascade.close();
+			}
+			logger.trace("Image count: {}", meta.getImageCount());
+			if (writer instanceof FormatWriter)
+				logger.trace("Plane count: {}", ((TiffWriter)writer).getPlaneCount());
+			logger.trace("Resolution count: {}", writer.getResolutionCount());
+		}
+
+		private void writeLevels(IFormatWriter writer, ExecutorService pool, PyramidCascade cascade, Map<Integer, IFD> map,
+				boolean isTiff, boolean isTiled, boolean isRGB, int nChannels, int nSamples, int nPlanes, int sizeZ,
+				int[] levelWidths, int[] levelHeights, int tileWidth, int tileHeight) throws IOException {
+
+			var server = getExportServer();
+
+			for (int level = 0; level < downsamples.length; level++) {
 				
 				writer.setResolution(level);
 				
@@ -715,14 +764,9 @@ public class OMEPyramidWriter {
 				}
 	
 				double d = downsamples[level];
-				
-				// Make extra sure we're using the same width & height that we said we'd use for the resolution level
-				int w = width;
-				int h = height;
-				if (meta instanceof IPyramidStore && level > 0) {
-					w = ((IPyramidStore)meta).getResolutionSizeX(series, level).getValue().intValue();
-					h = ((IPyramidStore)meta).getResolutionSizeY(series, level).getValue().intValue();
-				}
+				int w = levelWidths[level];
+				int h = levelHeights[level];
+				int thisLevel = level;
 	
 				int tInc = tEnd >= tStart ? 1 : -1;
 				int zInc = zEnd >= zStart ? 1 : -1;
@@ -740,8 +784,9 @@ public class OMEPyramidWriter {
 						// Use tiles directly if we aren't cropping and they exist as the requested resolution level
 						// This may not be necessary; it is a minor *potential* optimization intended to help ensure 
 						// we avoid any rounding errors that could thwart caching or introduce oddness
+						// When cascading, we need the tiles to be on the same grid for every level
 						int levelTemp = ServerTools.getPreferredResolutionLevel(server, d);
-						if (d == server.getDownsampleForResolution(levelTemp) && 
+						if (cascade == null && d == server.getDownsampleForResolution(levelTemp) && 
 								x == 0 && y == 0 &&
 								w == server.getMetadata().getLevel(levelTemp).getWidth() &&
 								h == server.getMetadata().getLevel(levelTemp).getHeight() &&
@@ -783,8 +828,10 @@ public class OMEPyramidWriter {
 						for (int ci = 0; ci < effectiveSizeC; ci++) {
 							
 							/*
-							 *  It appears we can use parallelization for tile writing (thanks to synchronization in the writer),
+							 *  We can write tiles in parallel (thanks to synchronization in the writer),
 							 *  provided we write the (0,0) tile first.
+							 *  However, when using a pool we read & compress tiles in parallel, but write them in order 
+							 *  from this thread - so that compression isn't limited by the writer's synchronization.
 							 */
 							long planeStartTime = System.currentTimeMillis();
 							count.set(0);
@@ -797,7 +844,7 @@ public class OMEPyramidWriter {
 								
 							// We *must* write the first region first
                             try {
-                                writeRegion(writer, plane, ifd, server, firstTile, isRGB, localChannels);
+                                writeRegion(writer, plane, ifd, readRegion(server, cascade, level, firstTile, ci == 0), firstTile, isRGB, localChannels);
                             } catch (FormatException e) {
                                 throw new IOException(e);
                             }
@@ -811,49 +858,79 @@ public class OMEPyramidWriter {
 									Collections.reverse(tiles);
 								}
 								
-								var localWriter = writer;
-								var tasks = tiles.stream().map(tile -> new Runnable() {
-									@Override
-									public void run() {
-										try {
-											if (Thread.currentThread().isInterrupted())
-												return;
-											writeRegion(localWriter, plane, ifd, server, tile, isRGB, localChannels);
-										} catch (Exception e) {
-											logger.error(String.format(
-													"Error writing %s (downsample=%.2f)",
-													tile.toString(), d),
-													e);
-										} finally {
-											int localCount = count.incrementAndGet();
-											if (total > 20 && keyCounts.size() > 1 && keyCounts.contains(localCount)) {
-												double percentage = localCount*100.0/total;
-												logger.info("Written {}% tiles", Math.round(percentage));
-											}
-										}
+								boolean addToCascade = ci == 0;
+								Runnable progress = () -> {
+									int localCount = count.incrementAndGet();
+									if (total > 20 && keyCounts.size() > 1 && keyCounts.contains(localCount)) {
+										double percentage = localCount*100.0/total;
+										logger.info("Written {}% tiles", Math.round(percentage));
 									}
-								}).toList();
+								};
 								
-								if (parallelThreads > 1) {
-									var pool = Executors.newWorkStealingPool(parallelThreads);
-									for (var task : tasks) {
-										pool.submit(task);
-									}
-									pool.shutdown();
+								if (pool != null) {
+									// The IFD is complete after writing the first tile, so we can check if we can compress tiles ourselves
+									var compressor = TiffTileCompressor.create(writer, ifd, codecOptions,
+											getExportPixelType().getBytesPerPixel(), localChannels.length);
+									if (compressor != null)
+										logger.debug("Compressing tiles in parallel for plane {}", plane+1);
+									
+									// Limit the number of tiles in memory, since the writer may not be able to keep up
+									int maxInFlight = parallelThreads * 4;
+									Deque<Future<EncodedTile>> pending = new ArrayDeque<>();
+									var iterator = tiles.iterator();
 									try {
-										pool.awaitTermination(tiles.size(), TimeUnit.MINUTES);
+										while (iterator.hasNext() || !pending.isEmpty()) {
+											while (iterator.hasNext() && pending.size() < maxInFlight) {
+												var tile = iterator.next();
+												pending.add(pool.submit(() -> {
+													try {
+														var img = readRegion(server, cascade, thisLevel, tile, addToCascade);
+														return encodeRegion(img, tile, isRGB, localChannels, compressor);
+													} catch (Exception e) {
+														logger.error(String.format(
+																"Error writing %s (downsample=%.2f)",
+																tile.toString(), d),
+																e);
+														return null;
+													}
+												}));
+											}
+											var encoded = pending.poll().get();
+											try {
+												if (encoded != null)
+													writeEncodedTile(writer, plane, ifd, encoded, compressor);
+											} catch (Exception e) {
+												logger.error(String.format(
+														"Error writing %s (downsample=%.2f)",
+														encoded.tile().toString(), d),
+														e);
+											} finally {
+												progress.run();
+											}
+										}
 										logger.info("Plane written in {} ms", System.currentTimeMillis() - planeStartTime);
-									} catch (InterruptedException e) {
+									} catch (InterruptedException | ExecutionException e) {
 										logger.warn("OME-TIFF export interrupted!");
-										pool.shutdownNow();
+										for (var future : pending)
+											future.cancel(true);
 										throw new IOException("Error writing regions", e);
 									}
 								} else {
-									for (var task : tasks) {
+									for (var tile : tiles) {
 										if (Thread.currentThread().isInterrupted()) {
 											throw new IOException("Interrupted writing regions!");
 										}
-										task.run();
+										try {
+											var img = readRegion(server, cascade, thisLevel, tile, addToCascade);
+											writeRegion(writer, plane, ifd, img, tile, isRGB, localChannels);
+										} catch (Exception e) {
+											logger.error(String.format(
+													"Error writing %s (downsample=%.2f)",
+													tile.toString(), d),
+													e);
+										} finally {
+											progress.run();
+										}
 									}
 									logger.info("Plane written in {} ms", System.currentTimeMillis() - planeStartTime);
 								}
@@ -863,11 +940,9 @@ public class OMEPyramidWriter {
 					}
 					ti++;
 				}
+				if (cascade != null)
+					cascade.levelComplete(level);
 			}
-			logger.trace("Image count: {}", meta.getImageCount());
-			if (writer instanceof FormatWriter)
-				logger.trace("Plane count: {}", ((TiffWriter)writer).getPlaneCount());
-			logger.trace("Resolution count: {}", writer.getResolutionCount());
 		}
 		
 		/**
@@ -891,63 +966,127 @@ public class OMEPyramidWriter {
 			return serverPyramidalized == null ? getOriginalServer() : serverPyramidalized;
 		}
 		
+		/**
+		 * Read the pixels for a tile.
+		 * If a cascade is provided, the tile may be computed from the previous resolution level rather than
+		 * requested from the server.
+		 *
+		 * @param server the image to export
+		 * @param cascade optional cascade used to compute lower resolution levels; may be null
+		 * @param level the resolution level being written
+		 * @param tile the tile to export
+		 * @param addToCascade if true, add the tile to the cascade so that it can be used to compute the next level
+		 * @return the pixels for the tile, or null if the tile should be written as zeros
+		 * @throws IOException
+		 */
+		private BufferedImage readRegion(ImageServer<BufferedImage> server, PyramidCascade cascade, int level, TileRequest tile, boolean addToCascade) throws IOException {
+			BufferedImage img;
+			if (cascade != null && cascade.isComputed(level)) {
+				img = cascade.getTile(level, tile);
+			} else {
+				// Get the region request - and make sure to translate it to the origin
+				RegionRequest request = tile.getRegionRequest().translate(this.x, this.y);
+				img = server.readRegion(request);
+			}
+			if (cascade != null && addToCascade)
+				cascade.addTile(level, tile, img);
+			return img;
+		}
+
 		/**
 		 * Write a region. The ifd is only used if writer is an instance of TiffWriter.
 		 * 
 		 * @param writer
 		 * @param plane
 		 * @param ifd
-		 * @param server the image to export
+		 * @param img the pixels to export; if null, zeros will be written
 		 * @param tile the tile to export; this incorporates the export coordinates and the full resolution coordinates (via the associated {@link RegionRequest})
 		 * @param isRGB export as RGB; this assumes both the input and export images are RGB (i.e. no extra conversions, channel reordering etc.)
 		 * @param channels
 		 * @throws FormatException
 		 * @throws IOException
 		 */
-		private void writeRegion(IFormatWriter writer, int plane, IFD ifd, ImageServer<BufferedImage> server, TileRequest tile, boolean isRGB, int[] channels) throws FormatException, IOException {
-			
-			// Get the region request - and make sure to translate it to the origin
-			RegionRequest request = tile.getRegionRequest().translate(this.x, this.y);
-			BufferedImage img = server.readRegion(request);
+		private void writeRegion(IFormatWriter writer, int plane, IFD ifd, BufferedImage img, TileRequest tile, boolean isRGB, int[] channels) throws FormatException, IOException {
+			writeEncodedTile(writer, plane, ifd, encodeRegion(img, tile, isRGB, channels, null), null);
+		}
+		
+		/**
+		 * Pixels for a tile, encoded as bytes ready to be written.
+		 */
+		private record EncodedTile(TileRequest tile, byte[] bytes, int width, int height, boolean isCompressed) {}
+		
+		/**
+		 * Convert the pixels for a region to bytes, optionally compressing them.
+		 * This is thread-safe, and does not require access to the writer.
+		 * 
+		 * @param img the pixels to export; if null, zeros will be written
+		 * @param tile the tile to export
+		 * @param isRGB export as RGB; this assumes both the input and export images are RGB (i.e. no extra conversions, channel reordering etc.)
+		 * @param channels
+		 * @param compressor optional compressor; if null, the bytes are not compressed and the writer should compress them
+		 * @return the encoded tile
+		 * @throws FormatException if compression fails
+		 */
+		private EncodedTile encodeRegion(BufferedImage img, TileRequest tile, boolean isRGB, int[] channels, TiffTileCompressor compressor) throws FormatException {
 			
 			var pixelType = getExportPixelType();
 			int bytesPerPixel = pixelType.getBytesPerPixel();
 			int nChannels = channels.length;
+			byte[] bytes;
+			int ww, hh;
 			if (img == null) {
-				byte[] zeros = new byte[tile.getTileWidth() * tile.getTileHeight() * bytesPerPixel * nChannels];
-				if (writer instanceof TiffWriter)
-					((TiffWriter)writer).saveBytes(plane, zeros, ifd, tile.getTileX(), tile.getTileY(), tile.getTileWidth(), tile.getTileHeight());
-				else
-					writer.saveBytes(plane, zeros, tile.getTileX(), tile.getTileY(), tile.getTileWidth(), tile.getTileHeight());
-				return;
-			}
-			
-			int ww = img.getWidth();
-			int hh = img.getHeight();
-			ByteBuffer buf = ByteBuffer.allocate(ww * hh * bytesPerPixel * nChannels)
-					.order(endian);
-			
-			if (isRGB) {
-				Object pixelBuffer = getPixelBuffer(ww*hh, pixelType);
-				if (!(pixelBuffer instanceof int[]))
-					pixelBuffer = null;
-				int[] rgba = img.getRGB(0, 0, ww, hh, (int[])pixelBuffer, 0, ww);
-				for (int val : rgba) {
-					buf.put((byte)ColorTools.red(val));
-					buf.put((byte)ColorTools.green(val));
-					buf.put((byte)ColorTools.blue(val));
-				}
+				ww = tile.getTileWidth();
+				hh = tile.getTileHeight();
+				bytes = new byte[ww * hh * bytesPerPixel * nChannels];
 			} else {
-				for (int ci = 0; ci < channels.length; ci++) {
-					int c = channels[ci];
-					int ind = ci * bytesPerPixel;
-					channelToBuffer(img.getRaster(), c, buf, ind, channels.length * bytesPerPixel, pixelType);
+				ww = img.getWidth();
+				hh = img.getHeight();
+				ByteBuffer buf = ByteBuffer.allocate(ww * hh * bytesPerPixel * nChannels)
+						.order(endian);
+				
+				if (isRGB) {
+					Object pixelBuffer = getPixelBuffer(ww*hh, pixelType);
+					if (!(pixelBuffer instanceof int[]))
+						pixelBuffer = null;
+					int[] rgba = img.getRGB(0, 0, ww, hh, (int[])pixelBuffer, 0, ww);
+					for (int val : rgba) {
+						buf.put((byte)ColorTools.red(val));
+						buf.put((byte)ColorTools.green(val));
+						buf.put((byte)ColorTools.blue(val));
+					}
+				} else {
+					for (int ci = 0; ci < channels.length; ci++) {
+						int c = channels[ci];
+						int ind = ci * bytesPerPixel;
+						channelToBuffer(img.getRaster(), c, buf, ind, channels.length * bytesPerPixel, pixelType);
+					}
 				}
+				bytes = buf.array();
 			}
-			if (writer instanceof TiffWriter)
-				((TiffWriter)writer).saveBytes(plane, buf.array(), ifd, tile.getTileX(), tile.getTileY(), ww, hh);
+			if (compressor != null)
+				return new EncodedTile(tile, compressor.compress(bytes, ww, hh), ww, hh, true);
+			return new EncodedTile(tile, bytes, ww, hh, false);
+		}
+		
+		/**
+		 * Write an encoded tile. The ifd is only used if writer is an instance of TiffWriter.
+		 * 
+		 * @param writer
+		 * @param plane
+		 * @param ifd
+		 * @param encoded the encoded tile
+		 * @param compressor the compressor used to encode the tile, if it is compressed
+		 * @throws FormatException
+		 * @throws IOException
+		 */
+		private void writeEncodedTile(IFormatWriter writer, int plane, IFD ifd, EncodedTile encoded, TiffTileCompressor compressor) throws FormatException, IOException {
+			var tile = encoded.tile();
+			if (encoded.isCompressed())
+				compressor.write((TiffWriter)writer, plane, ifd, encoded.bytes(), tile.getTileX(), tile.getTileY(), encoded.width(), encoded.height());
+			else if (writer instanceof TiffWriter)
+				((TiffWriter)writer).saveBytes(plane, encoded.bytes(), ifd, tile.getTileX(), tile.getTileY(), encoded.width(), encoded.height());
 			else
-				writer.saveBytes(plane, buf.array(), tile.getTileX(), tile.getTileY(), ww, hh);
+				writer.saveBytes(plane, encoded.bytes(), tile.getTileX(), tile.getTileY(), encoded.width(), encoded.height());
 		}
 		
 		/**
@@ -1268,6 +1407,37 @@ public class OMEPyramidWriter {
 			series.parallelThreads = nThreads;
 			return this;
 		}
+
+		/**
+		 * Compute lower resolution levels from the previous level, rather than by requesting pixels from the image.
+		 * 
+		 * @return this builder
+		 * @see #cascadeDownsampling(boolean)
+		 * @since v0.8.0
+		 */
+		public Builder cascadeDownsampling() {
+			return cascadeDownsampling(true);
+		}
+
+		/**
+		 * Specify if lower resolution levels should be computed from the previous level, rather than by requesting 
+		 * pixels from the image.
+		 * <p>
+		 * This can be much faster if pixels are expensive to compute (e.g. for a transformed image or classifier output), 
+		 * because full-resolution pixels are only requested once.
+		 * Each block of pixels is reduced using the mean value, or the most common value for classification images.
+		 * <p>
+		 * This is only possible for tiled export, for levels with a downsample that is an integer multiple of the previous 
+		 * level, where the tile size is divisible by the multiple. Other levels are requested from the image as usual.
+		 * 
+		 * @param doCascade
+		 * @return this builder
+		 * @since v0.8.0
+		 */
+		public Builder cascadeDownsampling(boolean doCascade) {
+			series.cascadeDownsampling = doCascade;
+			return this;
+		}
 		
 		/**
 		 * Specify the output {@link PixelType}.
@@ -0,0 +1,364 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers.ome;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.awt.common.BufferedImageTools;
+import qupath.lib.images.servers.TileRequest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Helper class to compute each level of an image pyramid by reducing the tiles of the previous level,
+ * rather than by requesting pixels from the original image at a lower resolution.
+ * <p>
+ * As each tile of one level is written, it is passed to {@link #addTile(int, TileRequest, BufferedImage)}.
+ * Each block of pixels is then reduced to a single pixel in the next level, using the mean value for each band - or
+ * the mode, for classification images.
+ * Once all the tiles needed for a tile of the next level have been added, the reduced tile is stored until it is
+ * requested with {@link #getTile(int, TileRequest)}.
+ * Tiles are stored in memory up to a fixed limit, after which they are compressed and written to a temporary directory.
+ * <p>
+ * A level can only be computed this way if its downsample is an integer multiple of the previous level's downsample,
+ * and the tile size is divisible by this factor - so that each block is contained within a single tile.
+ */
+class PyramidCascade implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PyramidCascade.class);
+
+	private final int tileWidth;
+	private final int tileHeight;
+	private final int[] levelWidths;
+	private final int[] levelHeights;
+	// Factor between each level and the previous level, or 0 if the level can't be computed from the previous level
+	private final int[] factors;
+	private final boolean useMode;
+
+	private final long maxBytesInMemory;
+	private final AtomicLong bytesInMemory = new AtomicLong();
+
+	private final Map<TileKey, PendingTile> pendingTiles = new ConcurrentHashMap<>();
+	private final Map<TileKey, Object> storedTiles = new ConcurrentHashMap<>();
+
+	private Path tempDir;
+
+	private record TileKey(int level, int x, int y, int z, int t) {}
+
+	private record PendingTile(ColorModel colorModel, WritableRaster raster, AtomicInteger remaining) {}
+
+	private record SpilledTile(Path path, ColorModel colorModel, int width, int height, long sizeBytes) {}
+
+	/**
+	 * Constructor.
+	 * @param downsamples downsample factors for each level
+	 * @param levelWidths width of each level, in pixels
+	 * @param levelHeights height of each level, in pixels
+	 * @param tileWidth tile width, which must be the same for all levels
+	 * @param tileHeight tile height, which must be the same for all levels
+	 * @param useMode if true, reduce blocks using the most common value (e.g. for classifications); otherwise use the mean
+	 * @param maxBytesInMemory maximum number of bytes of reduced tiles to keep in memory before writing them to disk
+	 */
+	PyramidCascade(double[] downsamples, int[] levelWidths, int[] levelHeights, int tileWidth, int tileHeight,
+			boolean useMode, long maxBytesInMemory) {
+		this.levelWidths = levelWidths.clone();
+		this.levelHeights = levelHeights.clone();
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.useMode = useMode;
+		this.maxBytesInMemory = maxBytesInMemory;
+		this.factors = new int[downsamples.length];
+		for (int level = 1; level < downsamples.length; level++) {
+			double ratio = downsamples[level] / downsamples[level-1];
+			int factor = (int)Math.round(ratio);
+			if (factor >= 2 && Math.abs(ratio - factor) < 1e-6 && tileWidth % factor == 0 && tileHeight % factor == 0)
+				factors[level] = factor;
+			else
+				logger.debug("Level {} can't be computed from the previous level (downsample ratio {})", level, ratio);
+		}
+	}
+
+	/**
+	 * Query whether tiles for the specified level are computed from the previous level.
+	 * If so, they should be requested with {@link #getTile(int, TileRequest)}.
+	 * @param level
+	 * @return
+	 */
+	boolean isComputed(int level) {
+		return level > 0 && level < factors.length && factors[level] > 0;
+	}
+
+	/**
+	 * Get a tile computed from the previous level.
+	 * @param level
+	 * @param tile
+	 * @return the tile, or null if no pixels from the previous level contributed to the tile
+	 * @throws IOException if the tile was written to disk, but could not be read
+	 */
+	BufferedImage getTile(int level, TileRequest tile) throws IOException {
+		var stored = storedTiles.get(createKey(level, tile.getTileX() / tileWidth, tile.getTileY() / tileHeight, tile.getZ(), tile.getT()));
+		if (stored instanceof SpilledTile spilled)
+			return readTile(spilled);
+		return (BufferedImage)stored;
+	}
+
+	/**
+	 * Add a tile that has been written for one level, so that it can be used to compute the next level.
+	 * This is thread-safe.
+	 * @param level
+	 * @param tile
+	 * @param img
+	 * @throws IOException if a tile of the next level was complete, but could not be written to disk
+	 */
+	void addTile(int level, TileRequest tile, BufferedImage img) throws IOException {
+		int nextLevel = level + 1;
+		if (img == null || !isComputed(nextLevel))
+			return;
+		int factor = factors[nextLevel];
+		int x = tile.getTileX();
+		int y = tile.getTileY();
+		if (x % factor != 0 || y % factor != 0) {
+			logger.warn("Tile {} is not aligned to the pyramid - the next level will be incomplete", tile);
+			return;
+		}
+		// Find the tile in the next level
+		int xNext = x / factor;
+		int yNext = y / factor;
+		int tileX = xNext / tileWidth;
+		int tileY = yNext / tileHeight;
+		var key = createKey(nextLevel, tileX, tileY, tile.getZ(), tile.getT());
+		int nextWidth = Math.min(tileWidth, levelWidths[nextLevel] - tileX * tileWidth);
+		int nextHeight = Math.min(tileHeight, levelHeights[nextLevel] - tileY * tileHeight);
+		if (nextWidth <= 0 || nextHeight <= 0)
+			return;
+
+		var pending = pendingTiles.computeIfAbsent(key, k -> new PendingTile(
+				img.getColorModel(),
+				img.getColorModel().createCompatibleWritableRaster(nextWidth, nextHeight),
+				new AtomicInteger(countContributingTiles(level, factor, tileX, tileY, nextWidth, nextHeight))));
+
+		int blockWidth = Math.min(nextWidth - (xNext - tileX * tileWidth), (img.getWidth() + factor - 1) / factor);
+		int blockHeight = Math.min(nextHeight - (yNext - tileY * tileHeight), (img.getHeight() + factor - 1) / factor);
+		if (blockWidth > 0 && blockHeight > 0)
+			reduce(img.getRaster(), factor, pending.raster, xNext - tileX * tileWidth, yNext - tileY * tileHeight, blockWidth, blockHeight);
+
+		if (pending.remaining.decrementAndGet() == 0) {
+			pendingTiles.remove(key);
+			storeTile(key, pending);
+		}
+	}
+
+	/**
+	 * Notify that all tiles for a level have been written.
+	 * This stores any incomplete tiles of the next level, and discards the stored tiles for this level.
+	 * @param level
+	 * @throws IOException
+	 */
+	void levelComplete(int level) throws IOException {
+		for (var entry : pendingTiles.entrySet()) {
+			if (entry.getKey().level() == level + 1) {
+				logger.debug("Storing incomplete tile {}", entry.getKey());
+				storeTile(entry.getKey(), entry.getValue());
+				pendingTiles.remove(entry.getKey());
+			}
+		}
+		for (var entry : storedTiles.entrySet()) {
+			if (entry.getKey().level() == level)
+				discardTile(entry.getKey());
+		}
+	}
+
+	/**
+	 * Discard all stored tiles, and delete any temporary files.
+	 */
+	@Override
+	public void close() throws IOException {
+		pendingTiles.clear();
+		for (var key : storedTiles.keySet())
+			discardTile(key);
+		if (tempDir != null) {
+			try (var paths = Files.walk(tempDir)) {
+				for (var path : paths.sorted(Comparator.reverseOrder()).toList())
+					Files.deleteIfExists(path);
+			}
+			tempDir = null;
+		}
+	}
+
+	private static TileKey createKey(int level, int tileX, int tileY, int z, int t) {
+		return new TileKey(level, tileX, tileY, z, t);
+	}
+
+	/**
+	 * Count how many tiles of a level overlap with a tile of the next level.
+	 */
+	private int countContributingTiles(int level, int factor, int tileX, int tileY, int nextWidth, int nextHeight) {
+		int x1 = tileX * tileWidth * factor;
+		int y1 = tileY * tileHeight * factor;
+		int x2 = Math.min((tileX * tileWidth + nextWidth) * factor, levelWidths[level]);
+		int y2 = Math.min((tileY * tileHeight + nextHeight) * factor, levelHeights[level]);
+		int nx = ceilDiv(x2, tileWidth) - x1 / tileWidth;
+		int ny = ceilDiv(y2, tileHeight) - y1 / tileHeight;
+		return Math.max(nx, 0) * Math.max(ny, 0);
+	}
+
+	private static int ceilDiv(int a, int b) {
+		return (a + b - 1) / b;
+	}
+
+	/**
+	 * Reduce blocks of pixels in the source raster, writing the results to the destination raster.
+	 * Blocks along the right and bottom edges may be smaller than the factor.
+	 */
+	void reduce(Raster source, int factor, WritableRaster dest, int xDest, int yDest, int width, int height) {
+		int sourceWidth = source.getWidth();
+		int sourceHeight = source.getHeight();
+		boolean isInteger = isIntegerType(source.getDataBuffer().getDataType());
+		double[] sourcePixels = null;
+		double[] destPixels = new double[width * height];
+		double[] block = new double[factor * factor];
+		for (int b = 0; b < source.getNumBands(); b++) {
+			sourcePixels = source.getSamples(0, 0, sourceWidth, sourceHeight, b, sourcePixels);
+			for (int y = 0; y < height; y++) {
+				int y1 = y * factor;
+				int y2 = Math.min(y1 + factor, sourceHeight);
+				for (int x = 0; x < width; x++) {
+					int x1 = x * factor;
+					int x2 = Math.min(x1 + factor, sourceWidth);
+					int n = 0;
+					for (int yy = y1; yy < y2; yy++) {
+						for (int xx = x1; xx < x2; xx++)
+							block[n++] = sourcePixels[yy * sourceWidth + xx];
+					}
+					double value = useMode ? mode(block, n) : mean(block, n);
+					destPixels[y * width + x] = isInteger && !useMode ? Math.round(value) : value;
+				}
+			}
+			dest.setSamples(xDest, yDest, width, height, b, destPixels);
+		}
+	}
+
+	private static boolean isIntegerType(int dataType) {
+		return dataType != DataBuffer.TYPE_FLOAT && dataType != DataBuffer.TYPE_DOUBLE;
+	}
+
+	private static double mean(double[] values, int n) {
+		double sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += values[i];
+		return sum / n;
+	}
+
+	/**
+	 * Get the most common value, choosing the lowest value in the event of a tie.
+	 */
+	private static double mode(double[] values, int n) {
+		double best = Double.NaN;
+		int bestCount = 0;
+		for (int i = 0; i < n; i++) {
+			double v = values[i];
+			int count = 0;
+			for (int j = 0; j < n; j++) {
+				if (values[j] == v)
+					count++;
+			}
+			if (count > bestCount || (count == bestCount && v < best)) {
+				best = v;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	private void storeTile(TileKey key, PendingTile pending) throws IOException {
+		var img = new BufferedImage(pending.colorModel, pending.raster, pending.colorModel.isAlphaPremultiplied(), null);
+		long bytes = estimateBytes(pending.raster);
+		if (bytesInMemory.addAndGet(bytes) <= maxBytesInMemory) {
+			storedTiles.put(key, img);
+		} else {
+			bytesInMemory.addAndGet(-bytes);
+			storedTiles.put(key, writeTile(img, bytes));
+		}
+	}
+
+	private void discardTile(TileKey key) throws IOException {
+		var stored = storedTiles.remove(key);
+		if (stored instanceof SpilledTile spilled)
+			Files.deleteIfExists(spilled.path);
+		else if (stored instanceof BufferedImage img)
+			bytesInMemory.addAndGet(-estimateBytes(img.getRaster()));
+	}
+
+	private static long estimateBytes(Raster raster) {
+		var buffer = raster.getDataBuffer();
+		return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+	}
+
+	private synchronized Path getTempDir() throws IOException {
+		if (tempDir == null) {
+			tempDir = Files.createTempDirectory("qupath-pyramid-");
+			logger.debug("Writing reduced tiles to {}", tempDir);
+		}
+		return tempDir;
+	}
+
+	private SpilledTile writeTile(BufferedImage img, long bytes) throws IOException {
+		var path = Files.createTempFile(getTempDir(), "tile-", ".bin");
+		var deflater = new Deflater(Deflater.BEST_SPEED);
+		try (var stream = new DataOutputStream(new BufferedOutputStream(
+				new DeflaterOutputStream(Files.newOutputStream(path), deflater)))) {
+			BufferedImageTools.writeDataBuffer(img.getRaster().getDataBuffer(), stream);
+		} finally {
+			deflater.end();
+		}
+		return new SpilledTile(path, img.getColorModel(), img.getWidth(), img.getHeight(), bytes);
+	}
+
+	private static BufferedImage readTile(SpilledTile tile) throws IOException {
+		var raster = tile.colorModel.createCompatibleWritableRaster(tile.width, tile.height);
+		try (var stream = new DataInputStream(new BufferedInputStream(
+				new InflaterInputStream(Files.newInputStream(tile.path))))) {
+			BufferedImageTools.readDataBuffer(stream, raster.getDataBuffer());
+		}
+		return new BufferedImage(tile.colorModel, raster, tile.colorModel.isAlphaPremultiplied(), null);
+	}
+
+}
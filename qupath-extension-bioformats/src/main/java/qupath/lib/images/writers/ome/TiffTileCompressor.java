@@ -0,0 +1,134 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers.ome;
+
+import loci.formats.FormatException;
+import loci.formats.codec.CodecOptions;
+import loci.formats.out.TiffWriter;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Helper class to compress TIFF tiles outside the {@link TiffWriter}, so that compression can run in parallel
+ * while tiles are written in order from a single thread.
+ * <p>
+ * Tiles are padded and compressed in exactly the same way as the writer would do it internally, and then passed
+ * to the writer to be copied directly to the file.
+ * This is only possible if the writer is a {@link TiffWriter}, the image is tiled, and each tile
+ * is written as a single block of interleaved samples.
+ */
+class TiffTileCompressor {
+
+	private static final Logger logger = LoggerFactory.getLogger(TiffTileCompressor.class);
+
+	private final TiffCompression compression;
+	private final CodecOptions options;
+	private final int tileWidth;
+	private final int tileHeight;
+	private final int bytesPerPixel;
+	private final int nChannels;
+
+	private TiffTileCompressor(TiffCompression compression, CodecOptions options, int tileWidth, int tileHeight, int bytesPerPixel, int nChannels) {
+		this.compression = compression;
+		this.options = options;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.bytesPerPixel = bytesPerPixel;
+		this.nChannels = nChannels;
+	}
+
+	/**
+	 * Create a compressor for tiles of a plane.
+	 * This should be called after the first tile of the plane has been written, so that the IFD has been fully
+	 * populated by the writer.
+	 * @param writer the writer
+	 * @param ifd the IFD for the plane
+	 * @param codecOptions the codec options used by the writer; may be null
+	 * @param bytesPerPixel number of bytes per sample
+	 * @param nChannels number of samples per pixel written for each tile
+	 * @return a compressor, or null if tiles can't be compressed outside the writer
+	 */
+	static TiffTileCompressor create(Object writer, IFD ifd, CodecOptions codecOptions, int bytesPerPixel, int nChannels) {
+		if (!(writer instanceof TiffWriter) || ifd == null)
+			return null;
+		try {
+			if (!ifd.isTiled() || ifd.getIFDIntValue(IFD.PREDICTOR, 1) != 1)
+				return null;
+			if (nChannels > 1 && ifd.getPlanarConfiguration() != 1)
+				return null;
+			var compression = ifd.getCompression();
+			var options = compression.getCompressionCodecOptions(ifd, codecOptions);
+			return new TiffTileCompressor(compression, options,
+					(int)ifd.getTileWidth(), (int)ifd.getTileLength(), bytesPerPixel, nChannels);
+		} catch (FormatException e) {
+			logger.debug("Unable to compress tiles outside the writer: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Compress the bytes for a tile.
+	 * This is thread-safe.
+	 * @param bytes interleaved pixel values for the tile, in the byte order of the file
+	 * @param width tile width, which may be smaller than the TIFF tile width along the image boundary
+	 * @param height tile height, which may be smaller than the TIFF tile height along the image boundary
+	 * @return the compressed bytes
+	 * @throws FormatException
+	 */
+	byte[] compress(byte[] bytes, int width, int height) throws FormatException {
+		// The writer always writes complete tiles, padded with zeros
+		int pixelBytes = bytesPerPixel * nChannels;
+		byte[] padded = bytes;
+		if (width != tileWidth || height != tileHeight) {
+			padded = new byte[tileWidth * tileHeight * pixelBytes];
+			for (int y = 0; y < height; y++)
+				System.arraycopy(bytes, y * width * pixelBytes, padded, y * tileWidth * pixelBytes, width * pixelBytes);
+		}
+		var tileOptions = new CodecOptions(options);
+		tileOptions.width = tileWidth;
+		tileOptions.height = tileHeight;
+		tileOptions.channels = nChannels;
+		return compression.compress(padded, tileOptions);
+	}
+
+	/**
+	 * Write a tile that was compressed with {@link #compress(byte[], int, int)}.
+	 * @param writer
+	 * @param plane
+	 * @param ifd
+	 * @param compressed
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @throws FormatException
+	 * @throws IOException
+	 */
+	void write(TiffWriter writer, int plane, IFD ifd, byte[] compressed, int x, int y, int width, int height) throws FormatException, IOException {
+		writer.saveCompressedBytes(plane, compressed, ifd, x, y, width, height);
+	}
+
+}
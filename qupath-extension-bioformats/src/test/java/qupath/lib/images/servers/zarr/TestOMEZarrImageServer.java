@@ -0,0 +1,287 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.zarr;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.PixelType;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class TestOMEZarrImageServer {
+
+    private static final String V2_ATTRIBUTES = """
+            {"multiscales": [{"version": "0.4", "name": "image",
+              "axes": [{"name": "c", "type": "channel"},
+                       {"name": "y", "type": "space", "unit": "micrometer"},
+                       {"name": "x", "type": "space", "unit": "micrometer"}],
+              "datasets": [
+                {"path": "0", "coordinateTransformations": [{"type": "scale", "scale": [1.0, 0.5, 0.25]}]},
+                {"path": "1", "coordinateTransformations": [{"type": "scale", "scale": [1.0, 1.0, 0.5]}]}]}],
+             "omero": {"channels": [{"label": "First", "color": "00FFFF"}, {"label": "Second", "color": "FF00FF"}]}}
+            """;
+
+    private static final String V2_ARRAY = """
+            {"zarr_format": 2, "shape": [2, %d, %d], "chunks": [1, 32, 32], "dtype": "<u2",
+             "compressor": {"id": "zlib", "level": 1}, "fill_value": 7, "order": "C", "filters": null,
+             "dimension_separator": "/"}
+            """;
+
+    private static final String V3_GROUP = """
+            {"zarr_format": 3, "node_type": "group", "attributes": {"ome": {"version": "0.5",
+              "multiscales": [{"name": "rgb",
+                "axes": [{"name": "c", "type": "channel"}, {"name": "y", "type": "space"}, {"name": "x", "type": "space"}],
+                "datasets": [{"path": "0", "coordinateTransformations": [{"type": "scale", "scale": [1.0, 1.0, 1.0]}]}]}],
+              "omero": {"channels": [{"label": "R", "color": "FF0000"}, {"label": "G", "color": "00FF00"}, {"label": "B", "color": "0000FF"}]}}}}
+            """;
+
+    private static final String V3_ARRAY = """
+            {"zarr_format": 3, "node_type": "array", "shape": [3, %d, %d], "data_type": "uint8",
+             "chunk_grid": {"name": "regular", "configuration": {"chunk_shape": [3, 64, 64]}},
+             "chunk_key_encoding": {"name": "default", "configuration": {"separator": "/"}},
+             "fill_value": 0,
+             "codecs": [{"name": "sharding_indexed", "configuration": {
+                "chunk_shape": [3, 16, 16],
+                "codecs": [{"name": "bytes"}, {"name": "gzip", "configuration": {"level": 1}}],
+                "index_codecs": [{"name": "bytes", "configuration": {"endian": "little"}}, {"name": "crc32c"}],
+                "index_location": "end"}}],
+             "dimension_names": ["c", "y", "x"]}
+            """;
+
+    private static int getValue(int c, int x, int y) {
+        return (c * 1000 + x * 3 + y * 7) % 65000;
+    }
+
+    @Test
+    void Check_Zarr_V2(@TempDir Path tempDir) throws Exception {
+        var dir = createV2Image(tempDir.resolve("image.ome.zarr"), 70, 50);
+        try (var server = new OMEZarrImageServer(dir.toUri())) {
+            Assertions.assertEquals(70, server.getWidth());
+            Assertions.assertEquals(50, server.getHeight());
+            Assertions.assertEquals(2, server.nChannels());
+            Assertions.assertEquals(2, server.nResolutions());
+            Assertions.assertEquals(PixelType.UINT16, server.getMetadata().getPixelType());
+            Assertions.assertEquals("First", server.getChannel(0).getName());
+            Assertions.assertEquals(0.25, server.getPixelCalibration().getPixelWidthMicrons(), 1e-6);
+            Assertions.assertEquals(0.5, server.getPixelCalibration().getPixelHeightMicrons(), 1e-6);
+            Assertions.assertEquals(32, server.getMetadata().getPreferredTileWidth());
+
+            var img = server.readRegion(RegionRequest.createInstance(server));
+            var raster = img.getRaster();
+            for (int c = 0; c < 2; c++) {
+                for (int y = 0; y < 50; y++) {
+                    for (int x = 0; x < 70; x++) {
+                        // The chunk at (1, 1) for the second channel is missing, and so should use the fill value
+                        int expected = c == 1 && x >= 32 && x < 64 && y >= 32 ? 7 : getValue(c, x, y);
+                        Assertions.assertEquals(expected, raster.getSample(x, y, c));
+                    }
+                }
+            }
+
+            var downsampled = server.readRegion(2.0, 0, 0, 70, 50);
+            Assertions.assertEquals(35, downsampled.getWidth());
+            Assertions.assertEquals(getValue(1, 40, 20) + 1, downsampled.getRaster().getSample(20, 10, 1));
+        }
+    }
+
+    @Test
+    void Check_Zarr_V3_Sharded_RGB(@TempDir Path tempDir) throws Exception {
+        var dir = createV3Image(tempDir.resolve("image.ome.zarr"), 100, 90);
+        try (var server = new OMEZarrImageServer(dir.toUri())) {
+            Assertions.assertTrue(server.isRGB());
+            Assertions.assertEquals(100, server.getWidth());
+            Assertions.assertEquals(90, server.getHeight());
+            Assertions.assertEquals(64, server.getMetadata().getPreferredTileWidth());
+
+            var img = server.readRegion(RegionRequest.createInstance(server));
+            for (int y = 0; y < 90; y++) {
+                for (int x = 0; x < 100; x++) {
+                    int rgb = img.getRGB(x, y);
+                    Assertions.assertEquals(getValue(0, x, y) & 0xFF, (rgb >> 16) & 0xFF);
+                    Assertions.assertEquals(getValue(1, x, y) & 0xFF, (rgb >> 8) & 0xFF);
+                    Assertions.assertEquals(getValue(2, x, y) & 0xFF, rgb & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    void Check_Memory_Mapped_Chunks(@TempDir Path tempDir) throws Exception {
+        // Uncompressed, big-endian float chunks are large enough to be memory-mapped
+        var dir = tempDir.resolve("image.ome.zarr");
+        int width = 300;
+        int height = 260;
+        int chunkSize = 256;
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(".zattrs"), """
+                {"multiscales": [{"version": "0.4",
+                  "axes": [{"name": "z", "type": "space"}, {"name": "y", "type": "space"}, {"name": "x", "type": "space"}],
+                  "datasets": [{"path": "0"}]}]}
+                """);
+        var array = Files.createDirectories(dir.resolve("0"));
+        Files.writeString(array.resolve(".zarray"), String.format("""
+                {"zarr_format": 2, "shape": [2, %d, %d], "chunks": [1, %d, %d], "dtype": ">f4",
+                 "compressor": null, "fill_value": "NaN", "order": "C", "filters": null}
+                """, height, width, chunkSize, chunkSize));
+        for (int z = 0; z < 2; z++) {
+            for (int cy = 0; cy * chunkSize < height; cy++) {
+                for (int cx = 0; cx * chunkSize < width; cx++) {
+                    var buffer = ByteBuffer.allocate(chunkSize * chunkSize * 4).order(ByteOrder.BIG_ENDIAN);
+                    for (int y = 0; y < chunkSize; y++) {
+                        for (int x = 0; x < chunkSize; x++)
+                            buffer.putFloat(getValue(z, cx * chunkSize + x, cy * chunkSize + y) / 10f);
+                    }
+                    Files.write(array.resolve(z + "." + cy + "." + cx), buffer.array());
+                }
+            }
+        }
+
+        try (ImageServer<BufferedImage> server = new OMEZarrImageServer(dir.toUri())) {
+            Assertions.assertEquals(2, server.nZSlices());
+            Assertions.assertEquals(PixelType.FLOAT32, server.getMetadata().getPixelType());
+            var img = server.readRegion(RegionRequest.createInstance(server.getPath(), 1.0, 200, 200, 100, 60, 1, 0));
+            for (int y = 0; y < 60; y++) {
+                for (int x = 0; x < 100; x++)
+                    Assertions.assertEquals(getValue(1, 200 + x, 200 + y) / 10f, img.getRaster().getSampleFloat(x, y, 0));
+            }
+        }
+    }
+
+    @Test
+    void Check_Builder_Support(@TempDir Path tempDir) throws Exception {
+        var dir = createV2Image(tempDir.resolve("image.ome.zarr"), 40, 40);
+        var builder = new OMEZarrServerBuilder();
+        var support = builder.checkImageSupport(dir.toUri());
+        Assertions.assertNotNull(support);
+        Assertions.assertTrue(support.getSupportLevel() > 3f);
+        try (var server = support.getBuilders().get(0).build()) {
+            Assertions.assertEquals(40, server.getWidth());
+        }
+
+        // Unsupported codecs should be left to other readers
+        Files.writeString(dir.resolve("0").resolve(".zarray"), String.format(V2_ARRAY, 40, 40).replace("zlib", "zstd"));
+        Assertions.assertNull(builder.checkImageSupport(dir.toUri()));
+    }
+
+    @Test
+    void Check_Unsupported(@TempDir Path dir) {
+        Assertions.assertThrows(IOException.class, () -> new OMEZarrImageServer(dir.toUri()));
+    }
+
+    private static Path createV2Image(Path dir, int width, int height) throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(".zgroup"), "{\"zarr_format\": 2}");
+        Files.writeString(dir.resolve(".zattrs"), V2_ATTRIBUTES);
+        for (int level = 0; level < 2; level++) {
+            int downsample = 1 << level;
+            int levelWidth = width / downsample;
+            int levelHeight = height / downsample;
+            var array = Files.createDirectories(dir.resolve(Integer.toString(level)));
+            Files.writeString(array.resolve(".zarray"), String.format(V2_ARRAY, levelHeight, levelWidth));
+            for (int c = 0; c < 2; c++) {
+                for (int cy = 0; cy * 32 < levelHeight; cy++) {
+                    for (int cx = 0; cx * 32 < levelWidth; cx++) {
+                        if (level == 0 && c == 1 && cx == 1 && cy == 1)
+                            continue;
+                        var buffer = ByteBuffer.allocate(32 * 32 * 2).order(ByteOrder.LITTLE_ENDIAN);
+                        for (int y = 0; y < 32; y++) {
+                            for (int x = 0; x < 32; x++)
+                                buffer.putShort((short)(getValue(c, (cx * 32 + x) * downsample, (cy * 32 + y) * downsample) + level));
+                        }
+                        var bytes = new ByteArrayOutputStream();
+                        try (var stream = new DeflaterOutputStream(bytes)) {
+                            stream.write(buffer.array());
+                        }
+                        var chunk = array.resolve(Integer.toString(c)).resolve(Integer.toString(cy)).resolve(Integer.toString(cx));
+                        Files.createDirectories(chunk.getParent());
+                        Files.write(chunk, bytes.toByteArray());
+                    }
+                }
+            }
+        }
+        return dir;
+    }
+
+    private static Path createV3Image(Path dir, int width, int height) throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("zarr.json"), V3_GROUP);
+        var array = Files.createDirectories(dir.resolve("0"));
+        Files.writeString(array.resolve("zarr.json"), String.format(V3_ARRAY, height, width));
+        for (int sy = 0; sy * 64 < height; sy++) {
+            for (int sx = 0; sx * 64 < width; sx++) {
+                var shard = new ByteArrayOutputStream();
+                List<long[]> index = new ArrayList<>();
+                for (int iy = 0; iy < 4; iy++) {
+                    for (int ix = 0; ix < 4; ix++) {
+                        // Leave out chunks that are entirely outside the image
+                        int x0 = sx * 64 + ix * 16;
+                        int y0 = sy * 64 + iy * 16;
+                        if (x0 >= width || y0 >= height) {
+                            index.add(new long[]{-1, -1});
+                            continue;
+                        }
+                        var raw = new byte[3 * 16 * 16];
+                        int i = 0;
+                        for (int c = 0; c < 3; c++) {
+                            for (int y = 0; y < 16; y++) {
+                                for (int x = 0; x < 16; x++)
+                                    raw[i++] = (byte)getValue(c, x0 + x, y0 + y);
+                            }
+                        }
+                        var bytes = new ByteArrayOutputStream();
+                        try (var stream = new GZIPOutputStream(bytes)) {
+                            stream.write(raw);
+                        }
+                        index.add(new long[]{shard.size(), bytes.size()});
+                        shard.write(bytes.toByteArray());
+                    }
+                }
+                var indexBuffer = ByteBuffer.allocate(index.size() * 16 + 4).order(ByteOrder.LITTLE_ENDIAN);
+                for (var entry : index)
+                    indexBuffer.putLong(entry[0]).putLong(entry[1]);
+                var crc = new CRC32C();
+                crc.update(indexBuffer.array(), 0, index.size() * 16);
+                indexBuffer.putInt((int)crc.getValue());
+                shard.write(indexBuffer.array());
+                var path = array.resolve("c").resolve("0").resolve(Integer.toString(sy)).resolve(Integer.toString(sx));
+                Files.createDirectories(path.getParent());
+                Files.write(path, shard.toByteArray());
+            }
+        }
+        return dir;
+    }
+
+}
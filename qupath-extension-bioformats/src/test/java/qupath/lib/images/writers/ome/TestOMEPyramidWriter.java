@@ -0,0 +1,129 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers.ome;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerProvider;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class TestOMEPyramidWriter {
+
+    private static final int TILE_SIZE = 64;
+
+    // Deliberately not a multiple of the tile size, so that we have partial tiles along the edges
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 173;
+
+    private static final double[] DOWNSAMPLES = {1, 2};
+
+    static Stream<Arguments> provideImageTypesAndCompression() {
+        return Stream.of(
+                Arguments.of(BufferedImage.TYPE_BYTE_GRAY, OMEPyramidWriter.CompressionType.LZW),
+                Arguments.of(BufferedImage.TYPE_BYTE_GRAY, OMEPyramidWriter.CompressionType.ZLIB),
+                Arguments.of(BufferedImage.TYPE_USHORT_GRAY, OMEPyramidWriter.CompressionType.LZW),
+                Arguments.of(BufferedImage.TYPE_USHORT_GRAY, OMEPyramidWriter.CompressionType.ZLIB),
+                Arguments.of(BufferedImage.TYPE_INT_RGB, OMEPyramidWriter.CompressionType.LZW),
+                Arguments.of(BufferedImage.TYPE_INT_RGB, OMEPyramidWriter.CompressionType.ZLIB)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideImageTypesAndCompression")
+    void Check_Parallel_Export_Matches_Serial_Export(int imageType, OMEPyramidWriter.CompressionType compression, @TempDir Path dir) throws Exception {
+        var img = createImage(imageType);
+        String pathSerial = dir.resolve("serial.ome.tif").toString();
+        String pathParallel = dir.resolve("parallel.ome.tif").toString();
+
+        try (var server = new WrappedBufferedImageServer("sample", img)) {
+            writeImage(server, pathSerial, compression, 1);
+            writeImage(server, pathParallel, compression, 4);
+        }
+
+        try (ImageServer<BufferedImage> serverSerial = ImageServerProvider.buildServer(pathSerial, BufferedImage.class);
+             ImageServer<BufferedImage> serverParallel = ImageServerProvider.buildServer(pathParallel, BufferedImage.class)) {
+            Assertions.assertEquals(WIDTH, serverParallel.getWidth());
+            Assertions.assertEquals(HEIGHT, serverParallel.getHeight());
+            Assertions.assertEquals(serverSerial.nChannels(), serverParallel.nChannels());
+            Assertions.assertEquals(serverSerial.getPixelType(), serverParallel.getPixelType());
+            for (double downsample : DOWNSAMPLES) {
+                var imgSerial = serverSerial.readRegion(downsample, 0, 0, WIDTH, HEIGHT, 0, 0);
+                var imgParallel = serverParallel.readRegion(downsample, 0, 0, WIDTH, HEIGHT, 0, 0);
+                assertSamplesEqual(imgSerial, imgParallel);
+                // Compression is lossless, so the full resolution image should match the original
+                if (downsample == 1)
+                    assertSamplesEqual(img, imgParallel);
+            }
+        }
+    }
+
+    private static void writeImage(ImageServer<BufferedImage> server, String path, OMEPyramidWriter.CompressionType compression, int nThreads) throws Exception {
+        new OMEPyramidWriter.Builder(server)
+                .compression(compression)
+                .tileSize(TILE_SIZE)
+                .downsamples(DOWNSAMPLES)
+                .parallelize(nThreads)
+                .build()
+                .writeSeries(path);
+    }
+
+    private static BufferedImage createImage(int imageType) {
+        var img = new BufferedImage(WIDTH, HEIGHT, imageType);
+        var raster = img.getRaster();
+        int maxValue = imageType == BufferedImage.TYPE_USHORT_GRAY ? 65536 : 256;
+        // Use a mix of smooth and random values, so that tiles compress differently
+        var rng = new Random(100);
+        for (int b = 0; b < raster.getNumBands(); b++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int value = x < WIDTH / 2 ? (x * 7 + y * 3 + b * 11) : rng.nextInt(maxValue);
+                    raster.setSample(x, y, b, value % maxValue);
+                }
+            }
+        }
+        return img;
+    }
+
+    private static void assertSamplesEqual(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        var rasterExpected = expected.getRaster();
+        var rasterActual = actual.getRaster();
+        Assertions.assertEquals(rasterExpected.getNumBands(), rasterActual.getNumBands());
+        for (int b = 0; b < rasterExpected.getNumBands(); b++) {
+            Assertions.assertArrayEquals(
+                    rasterExpected.getSamples(0, 0, expected.getWidth(), expected.getHeight(), b, (int[])null),
+                    rasterActual.getSamples(0, 0, actual.getWidth(), actual.getHeight(), b, (int[])null),
+                    "Samples differ for band " + b);
+        }
+    }
+
+}
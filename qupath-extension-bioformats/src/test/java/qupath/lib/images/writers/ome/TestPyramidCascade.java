@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers.ome;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import qupath.lib.images.servers.TileRequest;
+import qupath.lib.regions.ImageRegion;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestPyramidCascade {
+
+    private static final int TILE_SIZE = 16;
+
+    // Deliberately not a multiple of the tile size, so that we have partial tiles along the edges
+    private static final int WIDTH = 70;
+    private static final int HEIGHT = 45;
+
+    private static final double[] DOWNSAMPLES = {1, 2, 4};
+    private static final int[] LEVEL_WIDTHS = {WIDTH, WIDTH / 2, WIDTH / 4};
+    private static final int[] LEVEL_HEIGHTS = {HEIGHT, HEIGHT / 2, HEIGHT / 4};
+
+    private static int getValue(int x, int y) {
+        return (x * 7 + y * 3) % 256;
+    }
+
+    private static List<TileRequest> createTiles(int level) {
+        List<TileRequest> tiles = new ArrayList<>();
+        for (int y = 0; y < LEVEL_HEIGHTS[level]; y += TILE_SIZE) {
+            for (int x = 0; x < LEVEL_WIDTHS[level]; x += TILE_SIZE) {
+                var region = ImageRegion.createInstance(x, y,
+                        Math.min(TILE_SIZE, LEVEL_WIDTHS[level] - x),
+                        Math.min(TILE_SIZE, LEVEL_HEIGHTS[level] - y), 0, 0);
+                tiles.add(TileRequest.createInstance("sample", level, DOWNSAMPLES[level], region));
+            }
+        }
+        return tiles;
+    }
+
+    private static BufferedImage createTile(TileRequest tile) {
+        var img = new BufferedImage(tile.getTileWidth(), tile.getTileHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++)
+                img.getRaster().setSample(x, y, 0, getValue(tile.getTileX() + x, tile.getTileY() + y));
+        }
+        return img;
+    }
+
+    @Test
+    void test_meanCascade() throws IOException {
+        test_cascade(Long.MAX_VALUE);
+    }
+
+    @Test
+    void test_meanCascadeOnDisk() throws IOException {
+        // Tiles should be written to disk rather than retained in memory
+        test_cascade(0L);
+    }
+
+    private static void test_cascade(long maxBytesInMemory) throws IOException {
+        try (var cascade = new PyramidCascade(DOWNSAMPLES, LEVEL_WIDTHS, LEVEL_HEIGHTS, TILE_SIZE, TILE_SIZE, false, maxBytesInMemory)) {
+            Assertions.assertFalse(cascade.isComputed(0));
+            Assertions.assertTrue(cascade.isComputed(1));
+            Assertions.assertTrue(cascade.isComputed(2));
+
+            for (var tile : createTiles(0))
+                cascade.addTile(0, tile, createTile(tile));
+            cascade.levelComplete(0);
+
+            for (var tile : createTiles(1)) {
+                var img = cascade.getTile(1, tile);
+                Assertions.assertNotNull(img);
+                Assertions.assertEquals(tile.getTileWidth(), img.getWidth());
+                Assertions.assertEquals(tile.getTileHeight(), img.getHeight());
+                for (int y = 0; y < img.getHeight(); y++) {
+                    for (int x = 0; x < img.getWidth(); x++) {
+                        int x0 = (tile.getTileX() + x) * 2;
+                        int y0 = (tile.getTileY() + y) * 2;
+                        double expected = (getValue(x0, y0) + getValue(x0 + 1, y0) + getValue(x0, y0 + 1) + getValue(x0 + 1, y0 + 1)) / 4.0;
+                        Assertions.assertEquals(Math.round(expected), img.getRaster().getSample(x, y, 0));
+                    }
+                }
+                cascade.addTile(1, tile, img);
+            }
+            cascade.levelComplete(1);
+            // Tiles for the previous level should be discarded
+            Assertions.assertNull(cascade.getTile(1, createTiles(1).getFirst()));
+
+            for (var tile : createTiles(2))
+                Assertions.assertNotNull(cascade.getTile(2, tile));
+        }
+    }
+
+    @Test
+    void test_modeCascade() throws IOException {
+        double[] downsamples = {1, 2};
+        int[] widths = {4, 2};
+        int[] heights = {2, 1};
+        try (var cascade = new PyramidCascade(downsamples, widths, heights, 4, 4, true, Long.MAX_VALUE)) {
+            var img = new BufferedImage(4, 2, BufferedImage.TYPE_BYTE_GRAY);
+            img.getRaster().setPixels(0, 0, 4, 2, new int[] {
+                    1, 2, 5, 3,
+                    2, 2, 3, 5});
+            var tile = TileRequest.createInstance("sample", 0, 1, ImageRegion.createInstance(0, 0, 4, 2, 0, 0));
+            cascade.addTile(0, tile, img);
+            var tileNext = TileRequest.createInstance("sample", 1, 2, ImageRegion.createInstance(0, 0, 2, 1, 0, 0));
+            var imgNext = cascade.getTile(1, tileNext);
+            // Ties should be resolved using the lowest value
+            Assertions.assertArrayEquals(new int[] {2, 3}, imgNext.getRaster().getPixels(0, 0, 2, 1, (int[])null));
+        }
+    }
+
+    @Test
+    void test_unsupportedDownsamples() throws IOException {
+        // Downsample ratio isn't an integer, or tile size isn't divisible by it
+        try (var cascade = new PyramidCascade(new double[] {1, 1.5, 4.5}, LEVEL_WIDTHS, LEVEL_HEIGHTS, TILE_SIZE, TILE_SIZE, false, Long.MAX_VALUE)) {
+            Assertions.assertFalse(cascade.isComputed(1));
+            Assertions.assertFalse(cascade.isComputed(2));
+        }
+    }
+
+}
@@ -358,6 +358,14 @@ public class OpenslideImageServer extends AbstractTileableImageServer {
 	public String getServerType() {
 		return "OpenSlide";
 	}
+	
+	/**
+	 * Returns true, since whole slide images are often read from slow network storage.
+	 */
+	@Override
+	protected boolean isDiskCacheSupported() {
+		return true;
+	}
 
 	@Override
 	public BufferedImage readTile(TileRequest tileRequest) throws IOException {
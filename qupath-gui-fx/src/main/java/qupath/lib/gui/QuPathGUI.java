@@ -124,6 +124,7 @@ import qupath.lib.gui.viewer.tools.PathTool;
 import qupath.lib.gui.viewer.tools.PathTools;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.ImageData.ImageType;
+import qupath.lib.images.servers.DiskTileCache;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
 import qupath.lib.images.servers.ImageServerBuilder.UriImageSupport;
@@ -870,10 +871,29 @@ public class QuPathGUI {
 			imageRegionStore.getCache().clear();
 		});
 		ImageServerProvider.setCache(imageRegionStore.getCache(), BufferedImage.class);
+		initializeDiskTileCache();
 		// Turn off the use of ImageIODiskCache (it causes some trouble)
 		ImageIO.setUseCache(false);
 	}
 	
+	private void initializeDiskTileCache() {
+		int sizeMB = PathPrefs.diskTileCacheSizeMBProperty().get();
+		if (sizeMB <= 0)
+			return;
+		var cachePath = UserDirectoryManager.getInstance().getRelativePathOrNull("cache/tiles");
+		if (cachePath == null) {
+			logger.info("Disk tile cache requires a QuPath user directory");
+			return;
+		}
+		try {
+			ImageServerProvider.setDiskCache(DiskTileCache.create(cachePath, sizeMB * 1024L * 1024L));
+			logger.info("Using disk tile cache at {} (max {} MB)", cachePath, sizeMB);
+		} catch (IOException e) {
+			logger.warn("Unable to create disk tile cache: {}", e.getMessage());
+			logger.debug(e.getMessage(), e);
+		}
+	}
+	
 	
 	private void initializeLocaleChangeListeners() {
 		// If the Locale changes, we want to try to refresh all list & tables to update number formatting
@@ -1113,6 +1133,13 @@ public class QuPathGUI {
 		if (imageRegionStore != null)
 			imageRegionStore.close();
 
+		// Write the disk cache index, so that tiles can be reused next time
+		var diskCache = ImageServerProvider.getDiskCache();
+		if (diskCache != null) {
+			ImageServerProvider.setDiskCache(null);
+			diskCache.close();
+		}
+
 		// Save the PathClasses
 		pathClassManager.savePathClassesToPreferences();
 
@@ -27,6 +27,7 @@ package qupath.lib.gui;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.fx.dialogs.Dialogs;
+import qupath.lib.classifiers.pixel.PixelClassifierTileCache;
 import qupath.lib.gui.localization.QuPathResources;
 
 import java.lang.Thread.UncaughtExceptionHandler;
@@ -69,6 +70,7 @@ class QuPathUncaughtExceptionHandler implements UncaughtExceptionHandler {
 			if (e instanceof OutOfMemoryError) {
 				// Try to reclaim any memory we can
 				qupath.getImageRegionStore().clearCache(true);
+				PixelClassifierTileCache.getDefaultInstance().clear();
 				Dialogs.showErrorNotification(
 						QuPathResources.getString("QuPathUncaughtExceptionHandler.outOfMemory"),
 						QuPathResources.getString("QuPathUncaughtExceptionHandler.outOfMemoryDescription")
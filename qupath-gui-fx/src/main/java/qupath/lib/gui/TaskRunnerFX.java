@@ -42,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.fx.utils.GridPaneUtils;
 import qupath.lib.gui.localization.QuPathResources;
+import qupath.lib.gui.prefs.PathPrefs;
 import qupath.lib.plugins.AbstractTaskRunner;
 import qupath.lib.plugins.CommandLineTaskRunner;
 import qupath.lib.plugins.PathTask;
@@ -76,6 +77,7 @@ public class TaskRunnerFX extends AbstractTaskRunner {
 	public TaskRunnerFX(final QuPathGUI qupath) {
 		super();
 		this.qupath = qupath;
+		setOrderTasksSpatially(PathPrefs.orderTasksSpatiallyProperty().get());
 	}
 
 	/**
@@ -86,6 +88,7 @@ public class TaskRunnerFX extends AbstractTaskRunner {
 	public TaskRunnerFX(final QuPathGUI qupath, final int nThreads) {
 		super(nThreads);
 		this.qupath = qupath;
+		setOrderTasksSpatially(PathPrefs.orderTasksSpatiallyProperty().get());
 	}
 
 	@Override
@@ -45,6 +45,7 @@ import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.fx.utils.FXUtils;
+import qupath.lib.classifiers.pixel.PixelClassifierTileCache;
 import qupath.lib.gui.QuPathGUI;
 import qupath.lib.gui.localization.QuPathResources;
 import qupath.lib.gui.prefs.PathPrefs;
@@ -153,6 +154,7 @@ class MemoryMonitorDialog {
 			try {
 				logger.info("Clearing cache...");
 				qupath.getViewer().getImageRegionStore().clearCache();
+				PixelClassifierTileCache.getDefaultInstance().clear();
 				System.gc();
 			} catch (Exception e2) {
 				logger.error("Error clearing cache", e2);
@@ -0,0 +1,324 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.images.servers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.ColorTools;
+import qupath.lib.gui.prefs.PathPrefs;
+import qupath.lib.gui.viewer.OverlayOptions;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Level-of-detail helper that stores the number of detections in each small bin of an image,
+ * grouped by classification and color.
+ * <p>
+ * When detections are so small that they occupy less than a pixel or two at the current downsample,
+ * painting each one individually is slow and gives little visual benefit.
+ * The counts stored here make it possible to render an approximation of the appearance instead, in a time that
+ * depends upon the size of the region rather than the number of detections.
+ * <p>
+ * Counts are computed lazily for blocks of bins as they are needed, and blocks can be invalidated
+ * whenever the hierarchy changes.
+ *
+ * @since v0.8.0
+ * @see PathHierarchyImageServer
+ */
+public class DetectionDensityMap {
+
+	private static final Logger logger = LoggerFactory.getLogger(DetectionDensityMap.class);
+
+	/**
+	 * Width and height of each bin, in full-resolution pixels.
+	 */
+	private static final int BIN_SIZE = 16;
+
+	/**
+	 * Number of bins along each side of a block.
+	 */
+	private static final int BLOCK_BINS = 32;
+
+	private static final int BLOCK_SIZE = BIN_SIZE * BLOCK_BINS;
+
+	private final PathObjectHierarchy hierarchy;
+
+	private final Map<ImagePlane, Map<Long, Block>> blocks = new ConcurrentHashMap<>();
+
+	// Incremented whenever blocks are invalidated, so that blocks computed concurrently can be discarded
+	private long version = 0;
+
+	/**
+	 * Create a density map for the detections in a hierarchy.
+	 * @param hierarchy
+	 */
+	public DetectionDensityMap(PathObjectHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+	}
+
+	/**
+	 * Get the hierarchy used by this density map.
+	 * @return
+	 */
+	public PathObjectHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	/**
+	 * Query whether a region should be rendered from the density map, rather than by painting each detection.
+	 * <p>
+	 * This is the case whenever the average size of the detections within the region (expressed as the square root of
+	 * their area) is smaller than {@code sizeThreshold} pixels at the downsample of the request.
+	 * Rendering from the density map is not possible if detections need to be colored according to their
+	 * measurements, or if they are filtered using a predicate.
+	 *
+	 * @param request the region to render
+	 * @param options the overlay options
+	 * @param sizeThreshold the size threshold, in downsampled pixels; if &le; 0, this method always returns false
+	 * @return true if {@link #render(RegionRequest, int, int, OverlayOptions)} should be used
+	 */
+	public boolean useForRegion(RegionRequest request, OverlayOptions options, double sizeThreshold) {
+		double downsample = request.getDownsample();
+		if (sizeThreshold <= 0 || downsample < BIN_SIZE)
+			return false;
+		if (options.getMeasurementMapper() != null || options.getShowObjectPredicate() != null)
+			return false;
+		long count = 0;
+		double area = 0;
+		for (var block : getBlocks(request)) {
+			count += block.count;
+			area += block.area;
+		}
+		if (count == 0)
+			return true;
+		return Math.sqrt(area / count) / downsample < sizeThreshold;
+	}
+
+	/**
+	 * Render a region from the density map.
+	 * <p>
+	 * Each pixel is given the average color of the detections it contains, weighted by their number,
+	 * with an alpha value that reflects the proportion of the pixel they cover.
+	 *
+	 * @param request the region to render
+	 * @param width the width of the output image
+	 * @param height the height of the output image
+	 * @param options the overlay options, used to determine which classifications are visible
+	 * @return an ARGB image, or null if there are no visible detections within the region
+	 */
+	public BufferedImage render(RegionRequest request, int width, int height, OverlayOptions options) {
+		double downsample = request.getDownsample();
+		float[] red = null, green = null, blue = null, counts = null, areas = null;
+		Map<BinKey, Integer> colors = new HashMap<>();
+		Map<BinKey, Boolean> hidden = new HashMap<>();
+		for (var block : getBlocks(request)) {
+			if (block.count == 0)
+				continue;
+			double meanArea = block.area / block.count;
+			for (var entry : block.counts.entrySet()) {
+				var key = entry.getKey();
+				if (hidden.computeIfAbsent(key, k -> options.isPathClassHidden(k.pathClass())))
+					continue;
+				int rgb = colors.computeIfAbsent(key, BinKey::getColor);
+				float r = ColorTools.red(rgb);
+				float g = ColorTools.green(rgb);
+				float b = ColorTools.blue(rgb);
+				short[] binCounts = entry.getValue();
+				for (int by = 0; by < BLOCK_BINS; by++) {
+					double cy = block.y + (by + 0.5) * BIN_SIZE;
+					int py = (int)Math.floor((cy - request.getY()) / downsample);
+					if (py < 0 || py >= height)
+						continue;
+					for (int bx = 0; bx < BLOCK_BINS; bx++) {
+						int n = binCounts[by * BLOCK_BINS + bx];
+						if (n == 0)
+							continue;
+						double cx = block.x + (bx + 0.5) * BIN_SIZE;
+						int px = (int)Math.floor((cx - request.getX()) / downsample);
+						if (px < 0 || px >= width)
+							continue;
+						if (counts == null) {
+							red = new float[width * height];
+							green = new float[width * height];
+							blue = new float[width * height];
+							counts = new float[width * height];
+							areas = new float[width * height];
+						}
+						int ind = py * width + px;
+						red[ind] += r * n;
+						green[ind] += g * n;
+						blue[ind] += b * n;
+						counts[ind] += n;
+						areas[ind] += (float)(meanArea * n);
+					}
+				}
+			}
+		}
+		if (counts == null)
+			return null;
+
+		double pixelArea = downsample * downsample;
+		int[] argb = new int[width * height];
+		for (int i = 0; i < argb.length; i++) {
+			float n = counts[i];
+			if (n == 0)
+				continue;
+			int alpha = (int)Math.round(255 * Math.min(1.0, areas[i] / pixelArea));
+			argb[i] = ColorTools.packARGB(Math.max(alpha, 1),
+					Math.round(red[i] / n),
+					Math.round(green[i] / n),
+					Math.round(blue[i] / n));
+		}
+		var img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		img.setRGB(0, 0, width, height, argb, 0, width);
+		return img;
+	}
+
+	/**
+	 * Invalidate the counts for all blocks that overlap any of the specified regions.
+	 * These will be recomputed from the hierarchy when they are next needed.
+	 * @param regions
+	 */
+	public synchronized void invalidate(Collection<? extends ImageRegion> regions) {
+		version++;
+		for (var region : regions) {
+			var planeBlocks = blocks.get(region.getImagePlane());
+			if (planeBlocks == null)
+				continue;
+			for (int y = blockIndex(region.getMinY()); y <= blockIndex(region.getMaxY()); y++) {
+				for (int x = blockIndex(region.getMinX()); x <= blockIndex(region.getMaxX()); x++) {
+					planeBlocks.remove(blockKey(x, y));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invalidate all counts.
+	 * These will be recomputed from the hierarchy when they are next needed.
+	 */
+	public synchronized void invalidateAll() {
+		version++;
+		blocks.clear();
+	}
+
+	private List<Block> getBlocks(ImageRegion region) {
+		var planeBlocks = blocks.computeIfAbsent(region.getImagePlane(), p -> new ConcurrentHashMap<>());
+		List<Block> list = new ArrayList<>();
+		for (int y = blockIndex(region.getMinY()); y <= blockIndex(region.getMaxY() - 1); y++) {
+			for (int x = blockIndex(region.getMinX()); x <= blockIndex(region.getMaxX() - 1); x++) {
+				long key = blockKey(x, y);
+				var block = planeBlocks.get(key);
+				if (block == null) {
+					long currentVersion;
+					synchronized (this) {
+						currentVersion = version;
+					}
+					block = computeBlock(x * BLOCK_SIZE, y * BLOCK_SIZE, region.getImagePlane());
+					synchronized (this) {
+						if (currentVersion == version)
+							planeBlocks.putIfAbsent(key, block);
+					}
+				}
+				list.add(block);
+			}
+		}
+		return list;
+	}
+
+	private Block computeBlock(int x, int y, ImagePlane plane) {
+		var block = new Block(x, y);
+		var region = ImageRegion.createInstance(x, y, BLOCK_SIZE, BLOCK_SIZE, plane.getZ(), plane.getT());
+		for (var pathObject : hierarchy.getAllDetectionsForRegion(region)) {
+			var roi = pathObject.getROI();
+			// Use the centroid, so that each detection is counted only once
+			int bx = (int)Math.floor((roi.getCentroidX() - x) / BIN_SIZE);
+			int by = (int)Math.floor((roi.getCentroidY() - y) / BIN_SIZE);
+			if (bx < 0 || by < 0 || bx >= BLOCK_BINS || by >= BLOCK_BINS)
+				continue;
+			var binCounts = block.counts.computeIfAbsent(BinKey.create(pathObject), k -> new short[BLOCK_BINS * BLOCK_BINS]);
+			int ind = by * BLOCK_BINS + bx;
+			if (binCounts[ind] < Short.MAX_VALUE)
+				binCounts[ind]++;
+			block.count++;
+			block.area += roi.getArea();
+		}
+		logger.trace("Computed density block at ({}, {}) with {} detections", x, y, block.count);
+		return block;
+	}
+
+	private static int blockIndex(double v) {
+		return (int)Math.floor(v / BLOCK_SIZE);
+	}
+
+	private static long blockKey(int x, int y) {
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+
+	private static class Block {
+
+		private final int x;
+		private final int y;
+		private final Map<BinKey, short[]> counts = new HashMap<>();
+		private long count;
+		private double area;
+
+		private Block(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+	}
+
+	/**
+	 * Key used to group detections that are displayed in the same way.
+	 */
+	private record BinKey(PathClass pathClass, Integer color) {
+
+		private static BinKey create(PathObject pathObject) {
+			return new BinKey(pathObject.getPathClass(), pathObject.getColor());
+		}
+
+		private int getColor() {
+			if (color != null)
+				return color;
+			if (pathClass != null && pathClass.getColor() != null)
+				return pathClass.getColor();
+			return PathPrefs.colorDefaultObjectsProperty().get();
+		}
+
+	}
+
+}
@@ -27,6 +27,7 @@ import qupath.lib.analysis.DelaunayTools;
 import qupath.lib.awt.common.AwtTools;
 import qupath.lib.color.ColorToolsAwt;
 import qupath.lib.gui.localization.QuPathResources;
+import qupath.lib.gui.prefs.PathPrefs;
 import qupath.lib.gui.viewer.OverlayOptions;
 import qupath.lib.gui.viewer.PathObjectPainter;
 import qupath.lib.images.ImageData;
@@ -55,6 +56,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -84,6 +86,7 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 	private ImageServer<BufferedImage> server;
 	private OverlayOptions options;
 	private PathObjectHierarchy hierarchy;
+	private DetectionDensityMap densityMap;
 	
 	/**
 	 * Constructor.
@@ -91,7 +94,24 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 	 * @param options options defining how objects will be painted
 	 */
 	public PathHierarchyImageServer(final ImageData<BufferedImage> imageData, final OverlayOptions options) {
+		this(imageData, options, null);
+	}
+	
+	/**
+	 * Constructor with an optional density map, which is used to render tiles whenever detections are too small 
+	 * to be worth painting individually.
+	 * The density map should be invalidated by the caller whenever the hierarchy changes.
+	 * @param imageData the image data
+	 * @param options options defining how objects will be painted
+	 * @param densityMap the density map for the hierarchy of the image data; may be null
+	 * @since v0.8.0
+	 * @see PathPrefs#detectionDensityThresholdProperty()
+	 */
+	public PathHierarchyImageServer(final ImageData<BufferedImage> imageData, final OverlayOptions options, final DetectionDensityMap densityMap) {
 		this(DEFAULT_PREFIX + " " + counter + "::", imageData, options);
+		if (densityMap != null && densityMap.getHierarchy() != hierarchy)
+			throw new IllegalArgumentException("Density map must be created for the hierarchy of the image data");
+		this.densityMap = densityMap;
 	}
 	
 //	public PathHierarchyImageServer(final ImageServer<BufferedImage> server, final PathObjectHierarchy hierarchy, final OverlayOptions options) {
@@ -143,11 +163,22 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 	}
 	
 	/**
-	 * Returns a UUID.
+	 * Returns the prefix, followed by a UUID and the path of the underlying server.
+	 * Including the underlying path means that listeners can identify the image to which an overlay tile belongs.
 	 */
 	@Override
 	protected String createID() {
-		return UUID.randomUUID().toString();
+		return prefix + UUID.randomUUID() + "::" + server.getPath();
+	}
+	
+	/**
+	 * Returns null, so that tiles are only cached by the region store that requested them.
+	 * This ensures that a tile that is still being painted when the hierarchy changes cannot be added to the cache 
+	 * after the cache has been cleared; the region store discards any tiles that were requested before it was cleared.
+	 */
+	@Override
+	protected Map<RegionRequest, BufferedImage> getCache() {
+		return null;
 	}
 
 	private Collection<PathObject> getObjectsToPaint(RegionRequest request) {
@@ -212,6 +243,12 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 		Object o = options.getShowConnections() ? imageData.getProperty(DefaultPathObjectConnectionGroup.KEY_OBJECT_CONNECTIONS) : null;
 		PathObjectConnections connections = (o instanceof PathObjectConnections) ? (PathObjectConnections)o : null;
 
+		// If detections are very small, render them from the density map rather than painting each one
+		if (densityMap != null && !options.getShowConnections() &&
+				densityMap.useForRegion(request, options, PathPrefs.detectionDensityThresholdProperty().get())) {
+			return densityMap.render(request, tileRequest.getTileWidth(), tileRequest.getTileHeight(), options);
+		}
+
 		// If we have cells, show them
 		// Otherwise, show any detections we have
 		DelaunayTools.Subdivision subdivision = null;
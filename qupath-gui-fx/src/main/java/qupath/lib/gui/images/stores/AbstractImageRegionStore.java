@@ -51,6 +51,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.function.Predicate;
 
 
 /**
@@ -434,17 +435,29 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 	 */
 	@Override
 	public synchronized void clearCacheForServer(final ImageServer<T> server) {
+		clearCacheForServer(server, request -> true);
+	}
+	
+	/**
+	 * Clear cached tiles for a specific server that match a filter, and cancel any pending requests for matching tiles.
+	 * This is useful when only part of an image has changed (e.g. for a server that generates tiles from objects).
+	 * 
+	 * @param server the server for which tiles should be removed
+	 * @param filter predicate that returns true for each request that should be removed
+	 * @since v0.8.0
+	 */
+	public synchronized void clearCacheForServer(final ImageServer<T> server, final Predicate<? super RegionRequest> filter) {
 		clearingCache = true;
+		String serverPath = server.getPath();
 		// Ensure any current requests are discarded
 		try {
 			if (!waitingMap.isEmpty()) {
-				String serverPath = server.getPath();
 				logger.trace("Waiting map size before server cache cleared: {}", waitingMap.size());
 				Iterator<Entry<RegionRequest, TileWorker<T>>> iter = waitingMap.entrySet().iterator();
 				while (iter.hasNext()) {
 					logger.trace("Waiting map size during server clear: {}", waitingMap.size());
 					Entry<RegionRequest, TileWorker<T>> entry = iter.next();
-					if (serverPath.equals(entry.getKey().getPath())) {
+					if (serverPath.equals(entry.getKey().getPath()) && filter.test(entry.getKey())) {
 						logger.trace("Removing entry from waiting map for thread  {}", Thread.currentThread().threadId());
 						iter.remove();
 						entry.getValue().cancel(true);
@@ -452,7 +465,7 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 					}
 				}
 			}
-			clearCacheForServer(cache, server);
+			cache.entrySet().removeIf(entry -> serverPath.equals(entry.getKey().getPath()) && filter.test(entry.getKey()));
 		} finally {
 			clearingCache = false;			
 		}
@@ -480,11 +493,6 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 	
 	
 	
-	private synchronized void clearCacheForServer(Map<RegionRequest, T> map, ImageServer<?> server) {
-		String serverPath = server.getPath();
-        map.entrySet().removeIf(entry -> serverPath.equals(entry.getKey().getPath()));
-	}
-	
 	private synchronized void clearCacheForRequestOverlap(Map<RegionRequest, T> map, RegionRequest request) {
         map.entrySet().removeIf(regionRequestTEntry -> request.overlapsRequest(regionRequestTEntry.getKey()));
 	}
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import qupath.lib.awt.common.AwtTools;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerMetadata.ChannelType;
+import qupath.lib.images.servers.OffHeapTileCache;
 import qupath.lib.images.servers.PixelType;
 import qupath.lib.regions.RegionRequest;
 
@@ -36,6 +37,7 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.Shape;
+import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.io.IOException;
@@ -62,8 +64,24 @@ public class DefaultImageRegionStore extends AbstractImageRegionStore<BufferedIm
 	
 	private static boolean DEBUG_TILES = false;
 
+	/**
+	 * System property to store cached tiles outside the Java heap.
+	 * @see OffHeapTileCache
+	 */
+	private static final String PROP_OFF_HEAP = "qupath.tileCache.offHeap";
+
+	/**
+	 * System property to request that tiles from an off-heap cache wrap the native memory without copying.
+	 */
+	private static final String PROP_ZERO_COPY = "qupath.tileCache.zeroCopy";
+
 	DefaultImageRegionStore(int thumbnailWidth, long tileCacheSize) {
 		super(new BufferedImageSizeEstimator(), thumbnailWidth, tileCacheSize);
+		if (Boolean.getBoolean(PROP_OFF_HEAP)) {
+			boolean zeroCopy = Boolean.getBoolean(PROP_ZERO_COPY);
+			logger.info("Using off-heap tile cache (max {} MB, zero copy={})", tileCacheSize / (1024 * 1024), zeroCopy);
+			cache = OffHeapTileCache.create(Math.max(1, tileCacheSize), zeroCopy);
+		}
 	}
 
 	DefaultImageRegionStore(long tileCacheSize) {
@@ -177,6 +195,85 @@ public class DefaultImageRegionStore extends AbstractImageRegionStore<BufferedIm
 	}
 
 
+	/**
+	 * Paint a region using the tiles that are currently available, without waiting for any that are missing.
+	 * <p>
+	 * Missing tiles are requested in the background, and tile listeners are notified whenever they become available.
+	 * In the meantime, cached tiles from lower resolutions are painted in their place as a preview.
+	 * Unlike with {@link #paintRegion(ImageServer, Graphics, Shape, int, int, double, BufferedImage, ImageObserver, ImageRenderer)},
+	 * the preview is clipped to the missing tiles; this means it can be used with images that contain transparency, 
+	 * such as overlays.
+	 *
+	 * @param server
+	 * @param g
+	 * @param clipShapeVisible
+	 * @param zPosition
+	 * @param tPosition
+	 * @param downsampleFactor
+	 * @param observer
+	 * @since v0.8.0
+	 */
+	public void paintRegionProgressively(ImageServer<BufferedImage> server, Graphics2D g, Shape clipShapeVisible, int zPosition, int tPosition, double downsampleFactor, ImageObserver observer) {
+		registerRequest(null, server, clipShapeVisible, downsampleFactor, zPosition, tPosition);
+
+		Area missing = null;
+		double missingDownsample = downsampleFactor;
+		for (RegionRequest request : ImageRegionStoreHelpers.getTilesToRequest(server, clipShapeVisible, downsampleFactor, zPosition, tPosition, null)) {
+			Object result = requestImageTile(server, request, cache, false);
+			if (result instanceof BufferedImage img) {
+				g.drawImage(img, request.getX(), request.getY(), request.getWidth(), request.getHeight(), observer);
+			} else if (result instanceof TileWorker<?>) {
+				if (missing == null)
+					missing = new Area();
+				missing.add(new Area(AwtTools.getBounds(request)));
+				missingDownsample = request.getDownsample();
+			}
+		}
+		if (missing != null)
+			paintCachedPreview(server, g, missing, zPosition, tPosition, missingDownsample, observer);
+	}
+
+
+	/**
+	 * Paint cached tiles at the next resolution below the specified downsample, clipped to a specified area.
+	 * This is called recursively until the area is filled, or there are no lower resolutions available.
+	 */
+	private void paintCachedPreview(ImageServer<BufferedImage> server, Graphics2D g, Area missing, int zPosition, int tPosition, double downsampleFactor, ImageObserver observer) {
+		double[] preferredDownsamples = server.getPreferredDownsamples();
+		Arrays.sort(preferredDownsamples);
+		double nextDownsample = -1;
+		for (double d : preferredDownsamples) {
+			if (d > downsampleFactor) {
+				nextDownsample = d;
+				break;
+			}
+		}
+		if (nextDownsample < 0)
+			return;
+
+		Area stillMissing = null;
+		Shape previousClip = g.getClip();
+		g.clip(missing);
+		for (RegionRequest request : ImageRegionStoreHelpers.getTilesToRequest(server, missing, nextDownsample, zPosition, tPosition, null)) {
+			// Only use what we already have - we don't want to request more tiles just for a preview
+			BufferedImage img = cache.get(request);
+			if (img != null)
+				g.drawImage(img, request.getX(), request.getY(), request.getWidth(), request.getHeight(), observer);
+			else {
+				if (stillMissing == null)
+					stillMissing = new Area();
+				stillMissing.add(new Area(AwtTools.getBounds(request)));
+			}
+		}
+		g.setClip(previousClip);
+
+		if (stillMissing != null) {
+			stillMissing.intersect(missing);
+			paintCachedPreview(server, g, stillMissing, zPosition, tPosition, nextDownsample, observer);
+		}
+	}
+
+
 	private void paintRegionInternal(ImageServer<BufferedImage> server, Graphics g, Shape clipShapeVisible, int zPosition, int tPosition, double downsampleFactor, BufferedImage imgThumbnail, ImageObserver observer, ImageRenderer imageDisplay) {
 
 		// Check if we have all the regions required for this request
@@ -241,6 +241,12 @@ public class PreferencePane {
 		@DoublePref("Prefs.General.tileCache")
 		public final DoubleProperty tileCache = PathPrefs.tileCachePercentageProperty();
 
+		@IntegerPref("Prefs.General.diskTileCache")
+		public final IntegerProperty diskTileCache = PathPrefs.diskTileCacheSizeMBProperty();
+
+		@BooleanPref("Prefs.General.orderTasksSpatially")
+		public final BooleanProperty orderTasksSpatially = PathPrefs.orderTasksSpatiallyProperty();
+
 		@BooleanPref("Prefs.General.showImageNameInTitle")
 		public final BooleanProperty showImageNameInTitle = PathPrefs.showImageNameInTitleProperty();
 
@@ -399,6 +405,9 @@ public class PreferencePane {
 		@BooleanPref("Prefs.Viewer.gridScaleMicrons")
 		public final BooleanProperty gridScaleMicrons = PathPrefs.gridScaleMicronsProperty();
 
+		@DoublePref("Prefs.Viewer.detectionDensityThreshold")
+		public final DoubleProperty detectionDensityThreshold = PathPrefs.detectionDensityThresholdProperty();
+
 	}
 	
 	
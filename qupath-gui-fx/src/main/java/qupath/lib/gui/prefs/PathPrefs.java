@@ -1260,6 +1260,33 @@ public class PathPrefs {
 	}
 	
 	
+	private static IntegerProperty diskTileCacheSizeMB = createPersistentPreference("diskTileCacheSizeMB", 0);
+	
+	/**
+	 * Requested maximum size of the persistent disk cache for image tiles, in MB.
+	 * If this is zero or negative, no disk cache is used.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public static IntegerProperty diskTileCacheSizeMBProperty() {
+		return diskTileCacheSizeMB;
+	}
+	
+	
+	private static BooleanProperty orderTasksSpatially = createPersistentPreference("orderTasksSpatially", false);
+	
+	/**
+	 * Request that tasks run by plugins through the user interface are ordered so that those operating on
+	 * nearby image regions are run together.
+	 * This can improve tile cache use when processing large images.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public static BooleanProperty orderTasksSpatiallyProperty() {
+		return orderTasksSpatially;
+	}
+	
+	
 	private static BooleanProperty useCalibratedLocationString = createPersistentPreference("useCalibratedLocationString", true);
 	
 	/**
@@ -1418,6 +1445,20 @@ public class PathPrefs {
 		return viewerInterpolateBilinear;
 	}
 	
+	private static DoubleProperty detectionDensityThreshold = createPersistentPreference("detectionDensityThreshold", 2.0);
+	
+	/**
+	 * Size threshold, in screen pixels, below which detections are displayed using a density map in the viewer, 
+	 * rather than being painted individually.
+	 * The size of a detection is defined as the square root of its area.
+	 * Set to 0 to always paint detections individually.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public static DoubleProperty detectionDensityThresholdProperty() {
+		return detectionDensityThreshold;
+	}
+	
 	
 	
 	/**
@@ -50,6 +50,7 @@ import qupath.lib.gui.localization.QuPathResources;
 import qupath.lib.gui.measure.ObservableMeasurementTableData;
 import qupath.lib.gui.measure.PathTableData;
 import qupath.lib.images.ImageData;
+import qupath.lib.io.MeasurementTableExporter;
 import qupath.lib.lazy.interfaces.LazyValue;
 import qupath.lib.objects.PathAnnotationObject;
 import qupath.lib.objects.PathCellObject;
@@ -89,6 +90,9 @@ public class MeasurementExporter {
 
 	// New in v0.7.0
 	private boolean includeProjectMetadata = false;
+
+	// New in v0.8.0
+	private boolean streaming = false;
 	
 	// Default: Export for the entire image
 	private Class<? extends PathObject> type = PathRootObject.class;
@@ -228,6 +232,23 @@ public class MeasurementExporter {
 		return this;
 	}
 	
+	/**
+	 * Optionally use a streaming export, which processes images in parallel and writes objects in batches.
+	 * This is much faster and uses less memory when exporting millions of objects, but only includes
+	 * object properties, ROI centroids and measurement list values - not dynamic measurements
+	 * (e.g. ROI shape measurements or object counts).
+	 * <p>
+	 * Streaming is always used when exporting to a file with the extension {@link MeasurementTableExporter#EXT_COLUMNAR}.
+	 * @param doStream true if a streaming export should be used, false otherwise
+	 * @return this exporter
+	 * @since v0.8.0
+	 * @see MeasurementTableExporter
+	 */
+	public MeasurementExporter streaming(boolean doStream) {
+		this.streaming = doStream;
+		return this;
+	}
+
 	/**
 	 * Specify the separator used between measurement values.
 	 * To avoid unexpected behavior, it is recommended to
@@ -347,6 +368,11 @@ public class MeasurementExporter {
 	 * @throws IOException if the export files
 	 */
 	public void exportMeasurements(File file) throws IOException, InterruptedException {
+		var format = MeasurementTableExporter.Format.fromFileName(file.getName());
+		if (streaming || format == MeasurementTableExporter.Format.COLUMNAR) {
+			createStreamingExporter().exportMeasurements(file.toPath());
+			return;
+		}
 		try (var fos = createFileOutputStream(file)) {
 			doExport(fos, getSeparatorToUse(file.getName()));
 		} catch (Exception e) {
@@ -408,7 +434,25 @@ public class MeasurementExporter {
 	 * @throws IOException if the export fails
 	 */
 	public void exportMeasurements(OutputStream stream) throws IOException, InterruptedException {
-		doExport(stream, getSeparatorToUse(null));
+		if (streaming)
+			createStreamingExporter().exportMeasurements(stream, MeasurementTableExporter.Format.TSV);
+		else
+			doExport(stream, getSeparatorToUse(null));
+	}
+
+	private MeasurementTableExporter createStreamingExporter() {
+		var exporter = new MeasurementTableExporter()
+				.exportType(type)
+				.filter(filter)
+				.includeProjectMetadata(includeProjectMetadata)
+				.decimalPlaces(nDecimalPlaces)
+				.separator(separator)
+				.progressMonitor(progressMonitor);
+		if (imageList != null)
+			exporter.imageList(imageList);
+		if (!includeOnlyColumns.isEmpty())
+			exporter.includeOnlyColumns(includeOnlyColumns.toArray(String[]::new));
+		return exporter;
 	}
 
 
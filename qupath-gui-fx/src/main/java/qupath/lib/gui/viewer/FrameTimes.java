@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.viewer;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Record the time taken for each stage of painting a viewer, and paint a summary on top of the viewer.
+ * <p>
+ * Times are smoothed with an exponential moving average, so that the summary is readable while panning.
+ * This is only accessed from the JavaFX Application Thread.
+ */
+class FrameTimes {
+
+    /**
+     * Stages of painting a frame.
+     */
+    enum Stage {
+        /**
+         * Rendering the image pixels (which may be skipped if only the overlay changed)
+         */
+        IMAGE("Image"),
+        /**
+         * Painting overlays on top of the image
+         */
+        OVERLAYS("Overlays"),
+        /**
+         * Passing the frame to JavaFX for display
+         */
+        PRESENT("Present"),
+        /**
+         * The total time for the frame
+         */
+        TOTAL("Total");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+    }
+
+    private static final double SMOOTHING = 0.1;
+
+    private final Map<Stage, Double> millis = new EnumMap<>(Stage.class);
+    private String imageMode = "";
+
+    /**
+     * Record the time taken for a stage.
+     * @param stage the stage
+     * @param nanos the time taken, in nanoseconds
+     */
+    void record(Stage stage, long nanos) {
+        double value = nanos / 1_000_000.0;
+        millis.merge(stage, value, (previous, current) -> previous + SMOOTHING * (current - previous));
+    }
+
+    /**
+     * Set a short description of how the image was last updated (e.g. fully repainted or scrolled).
+     * @param mode
+     */
+    void setImageMode(String mode) {
+        this.imageMode = mode;
+    }
+
+    /**
+     * Paint the times in the top left corner of a canvas.
+     * @param context
+     */
+    void paint(GraphicsContext context) {
+        var sb = new StringBuilder();
+        for (var stage : Stage.values()) {
+            sb.append(String.format("%s: %.2f ms", stage.name, millis.getOrDefault(stage, 0.0)));
+            if (stage == Stage.IMAGE && !imageMode.isEmpty())
+                sb.append(" (").append(imageMode).append(")");
+            sb.append("\n");
+        }
+        String text = sb.toString().strip();
+        context.save();
+        context.setFill(Color.rgb(0, 0, 0, 0.6));
+        context.fillRect(5, 5, 200, 16 * Stage.values().length + 8);
+        context.setFill(Color.WHITE);
+        context.setTextAlign(TextAlignment.LEFT);
+        context.setTextBaseline(VPos.TOP);
+        context.fillText(text, 10, 9);
+        context.restore();
+    }
+
+}
@@ -48,7 +48,6 @@ import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ListChangeListener.Change;
 import javafx.collections.ObservableList;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -57,7 +56,6 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
@@ -97,7 +95,6 @@ import qupath.lib.images.servers.ImageChannel;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerMetadata;
 import qupath.lib.images.servers.PixelCalibration;
-import qupath.lib.objects.PathDetectionObject;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjectTools;
 import qupath.lib.objects.TMACoreObject;
@@ -256,6 +253,25 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 	// The shape (coordinates in the image domain) last painted
 	// Used to determine whether the visible part of the image has been changed
 	private Shape lastVisibleShape = null;
+	
+	// The view last rendered to imgBuffer, used to determine if we can scroll rather than repaint everything
+	private RenderedView lastRenderedView = null;
+	
+	/**
+	 * Parameters defining the view that was rendered to the image buffer.
+	 */
+	private record RenderedView(ImageServer<BufferedImage> server, int z, int t, double downsample, double rotation,
+			double xCenter, double yCenter) {
+		
+		/**
+		 * Check if two views differ only by translation.
+		 */
+		private boolean hasSameProjection(RenderedView other) {
+			return server == other.server && z == other.z && t == other.t && downsample == other.downsample &&
+					rotation == 0 && other.rotation == 0;
+		}
+		
+	}
 
 	private RoiEditor roiEditor = RoiEditor.createInstance();
 
@@ -271,8 +287,10 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 	
 	private StackPane pane;
 	private Canvas canvas;
-	private BufferedImage imgCache;
-	private WritableImage imgCacheFX;
+	private ViewerFrameBuffer frameBuffer;
+	
+	private final FrameTimes frameTimes = new FrameTimes();
+	private final BooleanProperty showFrameTimes = new SimpleBooleanProperty(Boolean.getBoolean("qupath.viewer.frameTimes"));
 	
 	private double borderLineWidth = 6;
 	private javafx.scene.paint.Color borderColor;
@@ -455,12 +473,10 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 				return;
 		}
 		
-		if (imgCache == null || imgCache.getWidth() < canvas.getWidth() || imgCache.getHeight() < canvas.getHeight()) {
+		if (frameBuffer == null || !frameBuffer.canContain(canvas.getWidth(), canvas.getHeight())) {
 			int w = (int)(canvas.getWidth() + 1);
 			int h = (int)(canvas.getHeight() + 1);
-			imgCache = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
-			imgCacheFX = new WritableImage(w, h);
-//			imgCacheFX = SwingFXUtils.toFXImage(imgCache, imgCacheFX);
+			frameBuffer = new ViewerFrameBuffer(w, h);
 		}
 		
 		// Reset repaint flag
@@ -468,17 +484,25 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 		
 		GraphicsContext context = canvas.getGraphicsContext2D();
 
-		long startTime = System.currentTimeMillis();
+		long startTime = System.nanoTime();
 
-		Graphics2D g = imgCache.createGraphics();
-		paintViewer(g, getWidth(), getHeight());
-		g.dispose();
+		// Paint directly into the pixels shared with JavaFX, so no conversion is needed to display them
+		int width = getWidth();
+		int height = getHeight();
+		frameBuffer.paint(img -> {
+			Graphics2D g = img.createGraphics();
+			paintViewer(g, width, height);
+			g.dispose();
+		}, width, height);
+		long paintTime = System.nanoTime();
 
-		long endTime = System.currentTimeMillis();
-		logger.trace("Viewer painting: {} ms", endTime - startTime);
+		context.drawImage(frameBuffer.getFXImage(), 0, 0);
+		frameTimes.record(FrameTimes.Stage.PRESENT, System.nanoTime() - paintTime);
+		frameTimes.record(FrameTimes.Stage.TOTAL, System.nanoTime() - startTime);
+		logger.trace("Viewer painting: {} ms", (paintTime - startTime) / 1_000_000.0);
 
-		imgCacheFX = SwingFXUtils.toFXImage(imgCache, imgCacheFX);
-		context.drawImage(imgCacheFX, 0, 0);
+		if (showFrameTimes.get())
+			frameTimes.paint(context);
 		
 		if (borderColor != null) {
 			context.setStroke(borderColor);
@@ -493,6 +517,17 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 		imageDataChanging.set(false);
 	}
 	
+	/**
+	 * Property indicating whether the time taken for each stage of painting the viewer should be shown.
+	 * This is intended for debugging and performance tuning.
+	 * The default value can be set with the system property {@code qupath.viewer.frameTimes}.
+	 * @return
+	 * @since v0.8.0
+	 */
+	public BooleanProperty showFrameTimesProperty() {
+		return showFrameTimes;
+	}
+	
 	/**
 	 * Set the border color for this viewer.
 	 * This can be used to indicate (for example) that a particular viewer is active.
@@ -879,6 +914,8 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 			updateAffineTransform();
 			repaint();
 		});
+		
+		showFrameTimes.addListener((v, o, n) -> repaint());
 	}
 
 	/**
@@ -1882,11 +1919,22 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 		if (imageUpdated || locationUpdated) {// || imgVolatile.contentsLost()) {
 			// Set flags that image no longer requiring an update
 			// By setting them early, they might still be reset during this run... in which case we don't want to thwart the re-run
+			boolean imageChanged = imageUpdated;
 			imageUpdated = false;
 			locationUpdated = false;
 
-			//			updateBufferedImage(imgVolatile, shapeRegion, w, h);
-			updateBufferedImage(imgBuffer, shapeRegion, w, h);
+			// If we've only panned, reuse what we can & render only the newly-exposed strips
+			long startImage = System.nanoTime();
+			var view = new RenderedView(server, getZPosition(), getTPosition(), getDownsampleFactor(), getRotation(), xCenter, yCenter);
+			boolean scrolled = !imageChanged && scrollBufferedImage(lastRenderedView, view, w, h);
+			if (!scrolled)
+				updateBufferedImage(shapeRegion, w, h);
+			lastRenderedView = view;
+			frameTimes.record(FrameTimes.Stage.IMAGE, System.nanoTime() - startImage);
+			frameTimes.setImageMode(scrolled ? "scroll" : "full");
+		} else {
+			frameTimes.record(FrameTimes.Stage.IMAGE, 0L);
+			frameTimes.setImageMode("cached");
 		}
 
 		//		if (imageUpdated || locationUpdated) {
@@ -1931,6 +1979,7 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 			return;
 		}
 		
+		long startOverlays = System.nanoTime();
 		double downsample = getDownsampleFactor();
 
 		float opacity = overlayOptions.getOpacity();
@@ -1938,7 +1987,8 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 		// Apply required transform to the graphics object (rotation, scaling, shifting...)
 		g2d.transform(transform);
 		Composite previousComposite = g2d.getComposite();
-		boolean paintCompletely = thumbnailIsFullImage || !doFasterRepaint;
+		// Overlays shouldn't wait for tiles, since they are painted in the background & we repaint whenever a tile becomes available
+		boolean paintCompletely = false;
 //		var regionBounds = AwtTools.getImageRegion(clip, getZPosition(), getTPosition());
 		if (opacity > 0 || PathPrefs.alwaysPaintSelectedObjectsProperty().get()) {
 			if (opacity < 1) {
@@ -2022,6 +2072,8 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 			}
 		}
 
+		frameTimes.record(FrameTimes.Stage.OVERLAYS, System.nanoTime() - startOverlays);
+
 		// Notify any listeners of shape changes
 		if (shapeChanged)
 			fireVisibleRegionChangedEvent(lastVisibleShape);
@@ -2064,29 +2116,68 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 	//		gBuffered.dispose();
 	//	}
 
-	private void updateBufferedImage(final BufferedImage imgBuffer, final Shape shapeRegion, final int w, final int h) {
-		Graphics2D gBuffered = imgBuffer.createGraphics();
-		updateBufferedImage(gBuffered, shapeRegion, w, h);
-		gBuffered.dispose();
-		// Apply color transforms, if required
-		if (iccTransformOp != null) {
-			iccTransformOp.filter(this.imgBuffer.getRaster(), this.imgBuffer.getRaster());
-		}
-		var gammaOp = getGammaOp();
-//		ensureGammaUpdated();
-		if (gammaOp != null) {
-			gammaOp.filter(this.imgBuffer.getRaster(), this.imgBuffer.getRaster());
+	private void updateBufferedImage(final Shape shapeRegion, final int w, final int h) {
+		imgBuffer = renderImageRegion(imgBuffer, new Rectangle(0, 0, w, h), shapeRegion);
+	}
+	
+	/**
+	 * Try to update the image buffer after panning by shifting the existing pixels, and rendering only
+	 * the strips that have been newly exposed.
+	 * This is only possible if the view has been translated by a whole number of pixels, without any other change.
+	 * @param previous the view that was previously rendered to the buffer
+	 * @param current the view that should be rendered now
+	 * @param w the width of the buffer
+	 * @param h the height of the buffer
+	 * @return true if the buffer was updated, false if it must be fully repainted
+	 */
+	private boolean scrollBufferedImage(RenderedView previous, RenderedView current, int w, int h) {
+		if (previous == null || !previous.hasSameProjection(current))
+			return false;
+		double dx = (previous.xCenter() - current.xCenter()) / current.downsample();
+		double dy = (previous.yCenter() - current.yCenter()) / current.downsample();
+		int shiftX = (int)Math.round(dx);
+		int shiftY = (int)Math.round(dy);
+		// Require a whole-pixel shift, since any error would accumulate across repeated scrolls
+		if (Math.abs(dx - shiftX) > 1e-6 || Math.abs(dy - shiftY) > 1e-6 || Math.abs(shiftX) >= w || Math.abs(shiftY) >= h)
+			return false;
+		if (shiftX == 0 && shiftY == 0)
+			return true;
+		
+		Graphics2D g = imgBuffer.createGraphics();
+		g.copyArea(0, 0, w, h, shiftX, shiftY);
+		
+		List<Rectangle> exposed = new ArrayList<>();
+		if (shiftX > 0)
+			exposed.add(new Rectangle(0, 0, shiftX, h));
+		else if (shiftX < 0)
+			exposed.add(new Rectangle(w + shiftX, 0, -shiftX, h));
+		if (shiftY > 0)
+			exposed.add(new Rectangle(0, 0, w, shiftY));
+		else if (shiftY < 0)
+			exposed.add(new Rectangle(0, h + shiftY, w, -shiftY));
+		for (var bounds : exposed) {
+			var shape = transformInverse.createTransformedShape(bounds);
+			var imgStrip = renderImageRegion(createBufferedImage(bounds.width, bounds.height), bounds, shape);
+			g.drawImage(imgStrip, bounds.x, bounds.y, null);
 		}
+		g.dispose();
+		return true;
 	}
 
-	//	private void updateBufferedImage(final BufferedImage imgBuffer, final Shape shapeRegion) {
-	private void updateBufferedImage(final Graphics2D gBuffered, final Shape shapeRegion, final int w, final int h) {
-		// Check if we are doing a simple shift (scroll) - if so, we can reuse some previous painting
-		// TODO: Verify that the 'scroll only' test is sufficiently reliable
+	/**
+	 * Render the image for part of the viewer.
+	 * @param img the image to render into; its origin corresponds to the top left of {@code bounds}
+	 * @param bounds the region of the viewer to render
+	 * @param shapeRegion the region of the image that corresponds to the bounds
+	 * @return the rendered image; this may not be the same as {@code img} if color transforms were applied
+	 */
+	private BufferedImage renderImageRegion(BufferedImage img, final Rectangle bounds, final Shape shapeRegion) {
+		Graphics2D gBuffered = img.createGraphics();
+		gBuffered.translate(-bounds.x, -bounds.y);
 		Shape shapeToUpdate = shapeRegion;
 		// Set all image pixels to be the background color
 		gBuffered.setColor(background);
-		gBuffered.fillRect(0, 0, w, h);
+		gBuffered.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
 
 		// Apply the transform so we don't need to worry about converting coordinates so much
 		gBuffered.transform(transform);
@@ -2131,7 +2222,7 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 				if (imageDisplay != null)
 //					imgBuffer = imageDisplay.applyTransforms(imgBuffer, imgBuffer);
 //					 More benchmarking required... but reusing imgBuffer was killing performance for RGB transform on Java 8 (JavaFX)... possibly
-					imgBuffer = getRenderer().applyTransforms(imgBuffer, null);
+					img = getRenderer().applyTransforms(img, null);
 			} else {
 				regionStore.paintRegion(server, gBuffered, shapeToUpdate, getZPosition(), getTPosition(), downsample, imgThumbnail, null, getRenderer());
 			}
@@ -2139,6 +2230,17 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 			// Just paint the 'thumbnail' version, which has already (potentially) been color-transformed
 			paintThumbnail(gBuffered, imgThumbnailRGB, serverWidth, serverHeight, this);
 		}
+		gBuffered.dispose();
+		
+		// Apply color transforms, if required
+		if (iccTransformOp != null) {
+			iccTransformOp.filter(img.getRaster(), img.getRaster());
+		}
+		var gammaOp = getGammaOp();
+		if (gammaOp != null) {
+			gammaOp.filter(img.getRaster(), img.getRaster());
+		}
+		return img;
 	}
 
 
@@ -2989,8 +3091,10 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 			return;
 		
 		// Check contains rather than equals to all for derived servers (e.g. for painting hierarchies)
+		// Overlay tiles don't change the image, so there's no need to update the cached image for the region
+		boolean isHierarchyServer = serverPath != null && serverPath.startsWith(PathHierarchyImageServer.DEFAULT_PREFIX);
 		if (serverPath == null || serverPath.contains(getServerPath()))
-			repaintImageRegion(AwtTools.getBounds(region), true);//!serverPath.startsWith(PathHierarchyImageServer.DEFAULT_PREFIX));
+			repaintImageRegion(AwtTools.getBounds(region), !isHierarchyServer);
 		
 	}
 
@@ -3032,25 +3136,8 @@ public class QuPathViewer implements TileListener<BufferedImage>, PathObjectHier
 			return;
 		}
 		
-		// Clear any cached regions of the overlay, if necessary
-		// TODO: Make this update a bit less conservative - it isn't really needed if we don't modify detections?
-		if (event == null || event.isStructureChangeEvent())
-			hierarchyOverlay.clearCachedOverlay();
-		else {
-			List<PathObject> pathObjects = event.getChangedObjects();
-			List<PathObject> pathDetectionObjects = PathObjectTools.getObjectsOfClass(pathObjects, PathDetectionObject.class);
-			if (pathDetectionObjects.size() <= 50) {
-				// TODO: PUT THIS LISTENER INTO THE HIERARCHY OVERLAY ITSELF?  But then the order of events is uncertain... hierarchy would need to be able to call repaint as well
-				// (or possibly post an event?)
-				for (PathObject temp : pathDetectionObjects) {
-					if (temp.hasROI())
-						hierarchyOverlay.clearCachedOverlayForRegion(ImageRegion.createInstance(temp.getROI()));
-				}
-			} else {
-				hierarchyOverlay.clearCachedOverlay();
-			}
-		}
-//		hierarchyOverlay.clearCachedOverlay();
+		// Clear any cached tiles of the overlay that overlap changed detections
+		hierarchyOverlay.clearCachedOverlay(event);
 
 		// Just in case, make sure the handles are updated in any ROIEditor
 		if (event != null && !event.isChanging())
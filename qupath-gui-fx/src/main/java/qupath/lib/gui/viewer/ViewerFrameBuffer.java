@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2026 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.viewer;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.nio.IntBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Frame buffer that is shared between Java2D and JavaFX.
+ * <p>
+ * A single premultiplied ARGB int array backs both a {@link BufferedImage} (for painting with {@code Graphics2D})
+ * and a JavaFX {@link PixelBuffer}, so that a painted frame can be displayed without converting or copying
+ * pixels on the JavaFX thread.
+ * Only the region reported as dirty needs to be uploaded when the frame is next rendered.
+ */
+class ViewerFrameBuffer {
+
+    private final int width;
+    private final int height;
+    private final BufferedImage image;
+    private final PixelBuffer<IntBuffer> pixelBuffer;
+    private final WritableImage fxImage;
+
+    ViewerFrameBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        var buffer = IntBuffer.allocate(width * height);
+        var dataBuffer = new DataBufferInt(buffer.array(), width * height);
+        var colorModel = new DirectColorModel(
+                ColorSpace.getInstance(ColorSpace.CS_sRGB), 32,
+                0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000,
+                true, DataBuffer.TYPE_INT);
+        var raster = Raster.createPackedRaster(dataBuffer, width, height, width, colorModel.getMasks(), null);
+        // This has the same layout as TYPE_INT_ARGB_PRE, and so can be painted efficiently
+        this.image = new BufferedImage(colorModel, raster, true, null);
+        this.pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+        this.fxImage = new WritableImage(pixelBuffer);
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Check if the buffer is large enough to display a region of the specified size.
+     * @param width
+     * @param height
+     * @return
+     */
+    boolean canContain(double width, double height) {
+        return this.width >= width && this.height >= height;
+    }
+
+    /**
+     * Paint to the buffer.
+     * This must be called from the JavaFX Application Thread, since the pixels are shared with JavaFX.
+     * @param painter consumer that paints the frame
+     * @param dirtyWidth width of the region at the top left of the buffer that may be changed by the painter
+     * @param dirtyHeight height of the region at the top left of the buffer that may be changed by the painter
+     */
+    void paint(Consumer<BufferedImage> painter, int dirtyWidth, int dirtyHeight) {
+        pixelBuffer.updateBuffer(b -> {
+            painter.accept(image);
+            return new Rectangle2D(0, 0, Math.min(dirtyWidth, width), Math.min(dirtyHeight, height));
+        });
+    }
+
+    /**
+     * Get the JavaFX image that shares its pixels with this buffer.
+     * @return
+     */
+    WritableImage getFXImage() {
+        return fxImage;
+    }
+
+}
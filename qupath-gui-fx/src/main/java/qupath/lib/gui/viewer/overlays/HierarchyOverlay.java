@@ -30,19 +30,27 @@ import qupath.lib.color.ColorToolsAwt;
 import qupath.lib.common.ColorTools;
 import qupath.lib.common.GeneralTools;
 import qupath.lib.geom.Point2;
+import qupath.lib.gui.images.servers.DetectionDensityMap;
 import qupath.lib.gui.images.servers.PathHierarchyImageServer;
 import qupath.lib.gui.images.stores.DefaultImageRegionStore;
 import qupath.lib.gui.prefs.PathPrefs;
 import qupath.lib.gui.tools.ColorToolsFX;
+import qupath.lib.gui.tools.MeasurementMapper;
 import qupath.lib.gui.viewer.OverlayOptions;
+import qupath.lib.gui.viewer.OverlayOptions.ClassVisibilityMode;
+import qupath.lib.gui.viewer.OverlayOptions.DetectionDisplayMode;
 import qupath.lib.gui.viewer.PathObjectPainter;
 import qupath.lib.images.ImageData;
 import qupath.lib.objects.DefaultPathObjectComparator;
 import qupath.lib.objects.DefaultPathObjectConnectionGroup;
+import qupath.lib.objects.PathDetectionObject;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjectConnections;
 import qupath.lib.objects.PathObjectTools;
+import qupath.lib.objects.classes.PathClass;
 import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
+import qupath.lib.regions.ImagePlane;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.EllipseROI;
@@ -61,15 +69,20 @@ import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 
 /**
@@ -85,12 +98,13 @@ public class HierarchyOverlay extends AbstractOverlay {
 
 	private ImageData<BufferedImage> imageData;
 	private PathHierarchyImageServer overlayServer = null;
+	
+	private DetectionDensityMap densityMap = null;
 
 	private DefaultImageRegionStore regionStore = null;
 	
-	private long overlayOptionsTimestamp;
-	
-	private int lastPointRadius = PathPrefs.pointRadiusProperty().get();
+	// Options used to paint the detection tiles of the current overlay server
+	private DetectionTileOptions detectionTileOptions;
 	
 	private Font font = new Font("SansSerif", Font.BOLD, 10);
 
@@ -117,17 +131,22 @@ public class HierarchyOverlay extends AbstractOverlay {
 		super(overlayOptions);
 		this.regionStore = regionStore;
 		this.imageData = imageData;
+		this.detectionTileOptions = DetectionTileOptions.create(overlayOptions);
 		updateOverlayServer();
 	}
 	
 	
 	private void updateOverlayServer() {
 		clearCachedOverlay();
-		if (imageData == null)
+		if (imageData == null) {
 			overlayServer = null;
-		else {
+			densityMap = null;
+		} else {
+			// The density map doesn't depend upon the overlay options, so can be retained for as long as the hierarchy
+			if (densityMap == null || densityMap.getHierarchy() != imageData.getHierarchy())
+				densityMap = new DetectionDensityMap(imageData.getHierarchy());
 			// If the image is small, don't really need a server at all...
-			overlayServer = new PathHierarchyImageServer(imageData, getOverlayOptions());
+			overlayServer = new PathHierarchyImageServer(imageData, getOverlayOptions(), densityMap);
 		}
 	}
 
@@ -164,11 +183,13 @@ public class HierarchyOverlay extends AbstractOverlay {
 		var defaultStroke = RenderingHints.VALUE_STROKE_PURE;
 		
 		OverlayOptions overlayOptions = getOverlayOptions();
-		long timestamp = overlayOptions.lastChangeTimestamp().get();
-		int pointRadius = PathPrefs.pointRadiusProperty().get();
-		if (overlayOptionsTimestamp != timestamp || pointRadius != lastPointRadius) {
-			lastPointRadius = pointRadius;
-			overlayOptionsTimestamp = timestamp;
+		// Only options that change the content of detection tiles require a new server (and therefore new cache keys).
+		// Other options (e.g. opacity, names, annotations) are applied when painting, so cached tiles remain valid.
+		var tileOptions = DetectionTileOptions.create(overlayOptions);
+		if (!tileOptions.equals(detectionTileOptions)) {
+			detectionTileOptions = tileOptions;
+			// Use a new server, so that tiles painted with the previous options can never be reused
+			updateOverlayServer();
 		}
 		
 		int t = imageRegion.getT();
@@ -266,13 +287,13 @@ public class HierarchyOverlay extends AbstractOverlay {
 					}
 				}
 			} else {
-				// If the image hasn't been updated, then we are viewing the stationary image - we want to wait for a full repaint then to avoid flickering;
-				// On the other hand, if a large image has been updated then we may be browsing quickly - better to repaint quickly while tiles may still be loading
+				// If we need everything (e.g. for export), wait for the tiles;
+				// otherwise paint what we have while tiles are rendered in the background, with a lower-resolution preview for any that are missing
 				if (paintCompletely) {
 					regionStore.paintRegionCompletely(overlayServer, g2d, shapeRegion, z, t, downsampleFactor, null, null, 5000);
 				}
 				else {
-					regionStore.paintRegion(overlayServer, g2d, shapeRegion, z, t, downsampleFactor, null, null, null);
+					regionStore.paintRegionProgressively(overlayServer, g2d, shapeRegion, z, t, downsampleFactor, null);
 				}
 			}
 		}
@@ -481,6 +502,63 @@ public class HierarchyOverlay extends AbstractOverlay {
 			regionStore.clearCacheForServer(overlayServer);
 	}
 	
+	/**
+	 * Clear previously-cached tiles for this overlay that may be affected by a hierarchy event.
+	 * <p>
+	 * Where possible, only the tiles that overlap changed detections are removed.
+	 * All tiles are removed if the event is null, or it isn't possible to determine which detections have changed.
+	 * @param event the hierarchy event
+	 * @since v0.8.0
+	 */
+	public void clearCachedOverlay(PathObjectHierarchyEvent event) {
+		if (regionStore == null || overlayServer == null)
+			return;
+		var changedRegions = getChangedDetectionRegions(event);
+		if (changedRegions == null) {
+			if (densityMap != null)
+				densityMap.invalidateAll();
+			clearCachedOverlay();
+		} else if (!changedRegions.isEmpty()) {
+			if (densityMap != null)
+				densityMap.invalidate(changedRegions);
+			var changedTiles = new ChangedTiles(changedRegions);
+			regionStore.clearCacheForServer(overlayServer, changedTiles::overlaps);
+		}
+	}
+	
+	/**
+	 * Get the regions of all detections that may be painted differently because of a hierarchy event.
+	 * @param event the hierarchy event
+	 * @return the changed regions, or null if these cannot be determined
+	 */
+	private static List<ImageRegion> getChangedDetectionRegions(PathObjectHierarchyEvent event) {
+		if (event == null)
+			return null;
+		if (event.isStructureChangeEvent() && !event.isAddedOrRemovedEvent())
+			return null;
+		var hierarchy = event.getHierarchy();
+		List<ImageRegion> regions = new ArrayList<>();
+		for (var pathObject : event.getChangedObjects()) {
+			if (pathObject.isDetection()) {
+				if (pathObject.hasROI())
+					regions.add(ImageRegion.createInstance(pathObject.getROI()));
+			} else if (event.isAddedOrRemovedEvent()) {
+				// Adding or removing another object can change the level of detections inside it, 
+				// which in turn can change the order in which they are painted
+				if (pathObject.isRootObject() || !pathObject.hasROI())
+					return null;
+				var region = ImageRegion.createInstance(pathObject.getROI());
+				if (hierarchy != null && hierarchy.hasObjectsForRegion(PathDetectionObject.class, region))
+					regions.add(region);
+				for (var descendant : pathObject.getDescendantObjects(null)) {
+					if (descendant.isDetection() && descendant.hasROI())
+						regions.add(ImageRegion.createInstance(descendant.getROI()));
+				}
+			}
+		}
+		return regions;
+	}
+	
 	/**
 	 * Clear previously-cached tiles for a specified region of this overlay.
 	 * @param region the region for which tiles should be removed
@@ -491,6 +569,86 @@ public class HierarchyOverlay extends AbstractOverlay {
 	}
 
 	
+	/**
+	 * Options and preferences that can change the content of detection tiles painted by a {@link PathHierarchyImageServer}.
+	 */
+	private record DetectionTileOptions(boolean fillDetections, DetectionDisplayMode displayMode, boolean showConnections,
+										Set<PathClass> selectedClasses, ClassVisibilityMode classVisibilityMode,
+										boolean useExactSelectedClasses, MeasurementMapper measurementMapper,
+										Predicate<PathObject> showObjectPredicate, int pointRadius,
+										double strokeThickness, int defaultColor, double densityThreshold) {
+
+		private static DetectionTileOptions create(OverlayOptions options) {
+			return new DetectionTileOptions(
+					options.getFillDetections(),
+					options.getDetectionDisplayMode(),
+					options.getShowConnections(),
+					new HashSet<>(options.selectedClassesProperty()),
+					options.getSelectedClassVisibilityMode(),
+					options.getUseExactSelectedClasses(),
+					options.getMeasurementMapper(),
+					options.getShowObjectPredicate(),
+					PathPrefs.pointRadiusProperty().get(),
+					PathPrefs.detectionStrokeThicknessProperty().get(),
+					PathPrefs.colorDefaultObjectsProperty().get(),
+					PathPrefs.detectionDensityThresholdProperty().get());
+		}
+
+	}
+
+	/**
+	 * Helper class to quickly check whether a tile overlaps any region that has changed.
+	 * Changed regions are recorded on a coarse grid for each plane, so that the check 
+	 * doesn't depend upon the number of regions.
+	 */
+	private static class ChangedTiles {
+		
+		// Size of grid cells, in full-resolution pixels
+		private static final int CELL_SIZE = 256;
+		
+		// Padding to apply around tiles, in downsampled pixels, to allow for stroke thickness and points
+		private static final int TILE_PADDING = 10;
+		
+		private final Map<ImagePlane, Set<Long>> cells = new HashMap<>();
+		
+		private ChangedTiles(Collection<? extends ImageRegion> regions) {
+			for (var region : regions) {
+				var set = cells.computeIfAbsent(region.getImagePlane(), p -> new HashSet<>());
+				for (int y = cell(region.getMinY()); y <= cell(region.getMaxY()); y++) {
+					for (int x = cell(region.getMinX()); x <= cell(region.getMaxX()); x++) {
+						set.add(key(x, y));
+					}
+				}
+			}
+		}
+		
+		private boolean overlaps(RegionRequest request) {
+			var set = cells.get(request.getImagePlane());
+			if (set == null)
+				return false;
+			double pad = TILE_PADDING * request.getDownsample();
+			int yEnd = cell(request.getMaxY() + pad);
+			int xEnd = cell(request.getMaxX() + pad);
+			for (int y = cell(request.getMinY() - pad); y <= yEnd; y++) {
+				for (int x = cell(request.getMinX() - pad); x <= xEnd; x++) {
+					if (set.contains(key(x, y)))
+						return true;
+				}
+			}
+			return false;
+		}
+		
+		private static int cell(double v) {
+			return (int)Math.floor(v / CELL_SIZE);
+		}
+		
+		private static long key(int x, int y) {
+			return ((long)x << 32) | (y & 0xFFFFFFFFL);
+		}
+		
+	}
+	
+	
 	/**
 	 * Comparator that makes use of levels, not only location.
 	 * <p>